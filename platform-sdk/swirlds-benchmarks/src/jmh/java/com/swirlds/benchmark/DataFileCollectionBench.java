@@ -20,6 +20,7 @@ import com.swirlds.merkledb.collections.LongList;
 import com.swirlds.merkledb.collections.LongListOffHeap;
 import com.swirlds.merkledb.files.DataFileCollection;
 import com.swirlds.merkledb.files.DataFileCompactor;
+import com.swirlds.merkledb.files.DataFileCompression;
 import com.swirlds.merkledb.files.DataFileReader;
 import java.io.IOException;
 import java.util.List;
@@ -28,6 +29,7 @@ import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
@@ -39,10 +41,19 @@ import org.openjdk.jmh.annotations.Warmup;
 @Measurement(iterations = 5)
 public class DataFileCollectionBench extends BaseBench {
 
+    @Param({"NONE", "LZ4", "DEFLATE"})
+    public String compression = "NONE";
+
     String benchmarkName() {
         return "DataFileCollectionBench";
     }
 
+    private long bytesOnDisk(final DataFileCollection<?> store) {
+        return store.getAllCompletedFiles().stream()
+                .mapToLong(DataFileReader::getSize)
+                .sum();
+    }
+
     @Benchmark
     public void compaction() throws Exception {
         String storeName = "compactionBench";
@@ -61,6 +72,7 @@ public class DataFileCollectionBench extends BaseBench {
                         return readDataItem(dataLocation);
                     }
                 };
+        store.setDataFileCompression(DataFileCompression.valueOf(compression));
         final var compactor = new DataFileCompactor(storeName, store, index, null, null, null, null);
         System.out.println();
 
@@ -77,14 +89,16 @@ public class DataFileCollectionBench extends BaseBench {
             }
             store.endWriting(0, maxKey).setFileCompleted();
         }
-        System.out.println("Created " + numFiles + " files in " + (System.currentTimeMillis() - start) + "ms");
+        System.out.println("Created " + numFiles + " files in " + (System.currentTimeMillis() - start) + "ms, "
+                + bytesOnDisk(store) + " bytes on disk, compression " + compression);
 
         // Merge files
         start = System.currentTimeMillis();
         final List<DataFileReader<BenchmarkRecord>> filesToMerge = store.getAllCompletedFiles();
         compactor.compact();
         System.out.println(
-                "Merged " + filesToMerge.size() + " files in " + (System.currentTimeMillis() - start) + "ms");
+                "Merged " + filesToMerge.size() + " files in " + (System.currentTimeMillis() - start) + "ms, "
+                        + bytesOnDisk(store) + " bytes on disk");
 
         // Verify merged content
         if (verify) {
@@ -108,4 +122,47 @@ public class DataFileCollectionBench extends BaseBench {
             index.close();
         });
     }
+
+    @Benchmark
+    public void randomReads() throws Exception {
+        String storeName = "randomReadsBench";
+        beforeTest(storeName);
+
+        final LongListOffHeap index = new LongListOffHeap();
+        final var store = new DataFileCollection<BenchmarkRecord>(
+                getTestDir(), storeName, null, new BenchmarkRecordSerializer(), (key, dataLocation, dataValue) -> {});
+        store.setDataFileCompression(DataFileCompression.valueOf(compression));
+        System.out.println();
+
+        // Write files
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < numFiles; i++) {
+            store.startWriting();
+            resetKeys();
+            for (int j = 0; j < numRecords; ++j) {
+                long id = nextAscKey();
+                index.put(id, store.storeDataItem(new BenchmarkRecord(id, nextValue())));
+            }
+            store.endWriting(0, maxKey).setFileCompleted();
+        }
+        System.out.println("Created " + numFiles + " files in " + (System.currentTimeMillis() - start) + "ms, "
+                + bytesOnDisk(store) + " bytes on disk, compression " + compression);
+
+        // Read random keys
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < numRecords; ++i) {
+            if (store.readDataItemUsingIndex(index, Utils.randomLong(maxKey)) != null) {
+                found++;
+            }
+        }
+        final long readNanos = System.nanoTime() - start;
+        System.out.println("Read " + numRecords + " random keys (" + found + " found), "
+                + (readNanos / 1000.0 / numRecords) + "us per read");
+
+        afterTest(() -> {
+            store.close();
+            index.close();
+        });
+    }
 }
@@ -17,6 +17,7 @@
 package com.swirlds.benchmark;
 
 import com.swirlds.fchashmap.FCHashMap;
+import com.swirlds.fchashmap.FCLongHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -98,6 +99,66 @@ public class FCHashMapBench extends BaseBench {
         afterTest(finalMap::release);
     }
 
+    /**
+     * Same as {@link #update()}, but with {@link FCLongHashMap} keyed by the key id.
+     */
+    @Benchmark
+    public void updateLong() throws Exception {
+        beforeTest("updateLong");
+
+        final long[] map = new long[verify ? maxKey : 0];
+        FCLongHashMap<BenchmarkValue> fcHashMap = new FCLongHashMap<>();
+
+        // Update values
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < numFiles; i++) {
+            for (int j = 0; j < numRecords; ++j) {
+                long id = Utils.randomLong(maxKey);
+                var modifiableValue = fcHashMap.getForModify(id);
+                long val = nextValue();
+                if (modifiableValue != null) {
+                    if ((val & 0xff) == 0) {
+                        fcHashMap.remove(id);
+                        if (verify) map[(int) id] = 0L;
+                    } else {
+                        modifiableValue.value().update((l) -> l + val);
+                        if (verify) map[(int) id] += val;
+                    }
+                } else {
+                    fcHashMap.put(id, new BenchmarkValue(val));
+                    if (verify) map[(int) id] = val;
+                }
+            }
+
+            var newCopy = fcHashMap.copy();
+            fcHashMap.release();
+            fcHashMap = newCopy;
+        }
+        System.out.println("Updated " + numFiles + " copies in " + (System.currentTimeMillis() - start) + " ms");
+
+        final var finalMap = fcHashMap;
+        // Verify content
+        if (verify) {
+            start = System.currentTimeMillis();
+            int count = 0;
+            for (int id = 0; id < map.length; ++id) {
+                BenchmarkValue dataItem = finalMap.get(id);
+                if (dataItem == null) {
+                    if (map[id] != 0L) {
+                        throw new RuntimeException("Missing value");
+                    }
+                } else if (!dataItem.equals(new BenchmarkValue(map[id]))) {
+                    throw new RuntimeException("Bad value");
+                } else {
+                    count += 1;
+                }
+            }
+            System.out.println("Verified " + count + " keys in " + (System.currentTimeMillis() - start) + " ms");
+        }
+
+        afterTest(finalMap::release);
+    }
+
     @Benchmark
     public void create() throws Exception {
         beforeTest("create");
@@ -146,8 +207,59 @@ public class FCHashMapBench extends BaseBench {
         afterTest(finalMap::release);
     }
 
-    /* The map is pre-created on demand, reused between benchmarks/iterations */
+    /**
+     * Same as {@link #create()}, but with {@link FCLongHashMap} keyed by the key id.
+     */
+    @Benchmark
+    public void createLong() throws Exception {
+        beforeTest("createLong");
+
+        final BenchmarkValue[] map = new BenchmarkValue[verify ? maxKey : 0];
+        FCLongHashMap<BenchmarkValue> fcHashMap = new FCLongHashMap<>();
+        System.out.println();
+
+        // Write files
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < numFiles; i++) {
+            for (int j = 0; j < numRecords; ++j) {
+                long id = Utils.randomLong(maxKey);
+                BenchmarkValue value = new BenchmarkValue(nextValue());
+                fcHashMap.put(id, value);
+                if (verify) map[(int) id] = value;
+            }
+
+            var newCopy = fcHashMap.copy();
+            fcHashMap.release();
+            fcHashMap = newCopy;
+        }
+        System.out.println("Created " + numFiles + " copies in " + (System.currentTimeMillis() - start) + " ms");
+
+        final var finalMap = fcHashMap;
+        // Verify content
+        if (verify) {
+            start = System.currentTimeMillis();
+            int count = 0;
+            for (int id = 0; id < map.length; ++id) {
+                BenchmarkValue dataItem = finalMap.get(id);
+                if (dataItem == null) {
+                    if (map[id] != null) {
+                        throw new RuntimeException("Missing value");
+                    }
+                } else if (!dataItem.equals(map[id])) {
+                    throw new RuntimeException("Bad value");
+                } else {
+                    count += 1;
+                }
+            }
+            System.out.println("Verified " + count + " keys in " + (System.currentTimeMillis() - start) + " ms");
+        }
+
+        afterTest(finalMap::release);
+    }
+
+    /* The maps are pre-created on demand, reused between benchmarks/iterations */
     private FCHashMap<BenchmarkKey, BenchmarkValue> fcHashMap;
+    private FCLongHashMap<BenchmarkValue> fcLongHashMap;
 
     @TearDown
     public void destroyMap() {
@@ -155,6 +267,10 @@ public class FCHashMapBench extends BaseBench {
             fcHashMap.release();
             fcHashMap = null;
         }
+        if (fcLongHashMap != null) {
+            fcLongHashMap.release();
+            fcLongHashMap = null;
+        }
     }
 
     private void preCreateMap() {
@@ -202,4 +318,49 @@ public class FCHashMapBench extends BaseBench {
 
         afterTest();
     }
+
+    private void preCreateLongMap() {
+        if (fcLongHashMap != null) return;
+        fcLongHashMap = new FCLongHashMap<>();
+
+        long start = System.currentTimeMillis();
+        int count = 0;
+        for (int i = 0; i < maxKey; i++) {
+            BenchmarkValue value = new BenchmarkValue(nextValue());
+            fcLongHashMap.put(i, value);
+
+            if (++count == maxKey / numFiles) {
+                count = 0;
+                var newCopy = fcLongHashMap.copy();
+                fcLongHashMap.release();
+                fcLongHashMap = newCopy;
+            }
+        }
+        System.out.println("Pre-created " + maxKey + " records in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     *  Same as {@link #read()}, but from a pre-created {@link FCLongHashMap}. Parallel.
+     */
+    @Benchmark
+    public void readLong() throws Exception {
+        beforeTest("readLong");
+        preCreateLongMap();
+
+        long start = System.currentTimeMillis();
+        AtomicLong total = new AtomicLong(0);
+        IntStream.range(0, numThreads).parallel().forEach(thread -> {
+            long sum = 0;
+            for (int i = 0; i < numRecords; ++i) {
+                long id = Utils.randomLong(maxKey);
+                BenchmarkValue value = fcLongHashMap.get(id);
+                sum += value.hashCode();
+            }
+            total.addAndGet(sum);
+        });
+        System.out.println("Read " + ((long) numRecords * numThreads) + " records from " + numThreads + " threads in "
+                + (System.currentTimeMillis() - start) + " ms");
+
+        afterTest();
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2022-2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.benchmark;
+
+import com.swirlds.common.merkle.crypto.MerkleCryptoFactory;
+import com.swirlds.common.merkle.crypto.MerkleCryptography;
+import com.swirlds.common.merkle.utility.KeyedMerkleLong;
+import com.swirlds.common.merkle.utility.SerializableLong;
+import com.swirlds.merkle.map.MerkleMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to hash a {@link MerkleMap} copy after a round of modifications. Before each invocation a
+ * fraction of the entries of the mutable copy is modified, and the copy is made immutable. The map is then hashed
+ * either by visiting only the dirty subtrees ({@link MerkleMap#hashDirtySubtrees(MerkleCryptography)}) or by
+ * walking the whole tree ({@link MerkleCryptography#digestTreeSync(com.swirlds.common.merkle.MerkleNode)}).
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MerkleMapHashBench {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"0.01"})
+    public double modifiedFraction;
+
+    @Param({"dirtySubtrees", "fullTree"})
+    public String hashing;
+
+    private final Random random = new Random(42);
+    private MerkleCryptography cryptography;
+    private MerkleMap<SerializableLong, KeyedMerkleLong<SerializableLong>> mutable;
+    private MerkleMap<SerializableLong, KeyedMerkleLong<SerializableLong>> immutable;
+
+    @Setup(Level.Trial)
+    public void setupMap() {
+        cryptography = MerkleCryptoFactory.getInstance();
+        mutable = new MerkleMap<>();
+        for (int i = 0; i < size; i++) {
+            final SerializableLong key = new SerializableLong(i);
+            mutable.put(key, new KeyedMerkleLong<>(key, i));
+        }
+        immutable = mutable;
+        mutable = mutable.copy();
+        cryptography.digestTreeSync(immutable);
+    }
+
+    @Setup(Level.Invocation)
+    public void modifyMap() {
+        final int modifications = (int) (size * modifiedFraction);
+        for (int i = 0; i < modifications; i++) {
+            mutable.getForModify(new SerializableLong(random.nextInt(size))).increment();
+        }
+        immutable.release();
+        immutable = mutable;
+        mutable = mutable.copy();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        immutable.release();
+        mutable.release();
+    }
+
+    @Benchmark
+    public void hash() {
+        if ("dirtySubtrees".equals(hashing)) {
+            immutable.hashDirtySubtrees(cryptography);
+        } else {
+            cryptography.digestTreeSync(immutable);
+        }
+    }
+}
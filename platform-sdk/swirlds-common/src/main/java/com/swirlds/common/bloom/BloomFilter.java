@@ -25,6 +25,7 @@ import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
 import java.io.IOException;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * <p>
@@ -96,11 +97,51 @@ public class BloomFilter<T> implements SelfSerializable {
      */
     private long[] hashBuffer;
 
+    /**
+     * The largest filter, in bits, that will be accepted by {@link #deserialize(SerializableDataInputStream, int)}.
+     */
+    private long maxFilterSizeInBits = Long.MAX_VALUE;
+
+    /**
+     * The largest hash count that will be accepted by {@link #deserialize(SerializableDataInputStream, int)}.
+     */
+    private int maxHashCount = Integer.MAX_VALUE;
+
+    /**
+     * If not null, builds the hasher during deserialization, and only a hasher with the same class ID is accepted.
+     * If null, the hasher is constructed from the class ID in the stream.
+     */
+    private Supplier<BloomHasher<T>> hasherConstructor;
+
     /**
      * Zero arg constructor, required for serialization.
      */
     public BloomFilter() {}
 
+    /**
+     * Create a bloom filter that is about to be deserialized from an untrusted source. Deserialization fails instead of
+     * allocating memory or computing hashes if the serialized filter is larger than the given limits, and the hasher is
+     * never constructed from a class ID chosen by the source.
+     *
+     * @param maxFilterSizeInBits the maximum size of the deserialized filter, in bits
+     * @param maxHashCount        the maximum number of hashes per element of the deserialized filter
+     * @param hasherConstructor   builds the only type of hasher that is accepted
+     */
+    public BloomFilter(
+            final long maxFilterSizeInBits,
+            final int maxHashCount,
+            final Supplier<BloomHasher<T>> hasherConstructor) {
+        if (maxFilterSizeInBits <= 0) {
+            throw new IllegalArgumentException("max filter size must be greater than 0");
+        }
+        if (maxHashCount <= 0) {
+            throw new IllegalArgumentException("max hash count must be greater than 0");
+        }
+        this.maxFilterSizeInBits = maxFilterSizeInBits;
+        this.maxHashCount = maxHashCount;
+        this.hasherConstructor = Objects.requireNonNull(hasherConstructor, "null hasher constructor not supported");
+    }
+
     /**
      * Create a new bloom filter.
      *
@@ -125,6 +166,15 @@ public class BloomFilter<T> implements SelfSerializable {
         this.hashBuffer = new long[hashCount];
     }
 
+    /**
+     * Get the total size of the bloom filter, in bits.
+     *
+     * @return the size of the filter
+     */
+    public long getFilterSizeInBits() {
+        return filterSizeInBits;
+    }
+
     /**
      * Convenience method. Create a new buffer of the appropriate length to hold hashes.
      *
@@ -376,9 +426,16 @@ public class BloomFilter<T> implements SelfSerializable {
      */
     @Override
     public void deserialize(final SerializableDataInputStream in, final int version) throws IOException {
-        hashProvider = in.readSerializable();
+        hashProvider = hasherConstructor == null ? in.readSerializable() : readExpectedHasher(in);
         hashCount = in.readInt();
         filterSizeInBits = in.readLong();
+        if (filterSizeInBits <= 0 || filterSizeInBits > maxFilterSizeInBits) {
+            throw new IOException("bloom filter size " + filterSizeInBits + " is not in the range (0, "
+                    + maxFilterSizeInBits + "]");
+        }
+        if (hashCount <= 0 || hashCount > filterSizeInBits || hashCount > maxHashCount) {
+            throw new IOException("invalid bloom filter hash count " + hashCount);
+        }
 
         final double byteCount = Math.ceil(filterSizeInBits * BITS_TO_BYTES);
         final double intCount = Math.ceil(byteCount / BYTES_PER_INT);
@@ -395,6 +452,26 @@ public class BloomFilter<T> implements SelfSerializable {
         hashBuffer = new long[hashCount];
     }
 
+    /**
+     * Read a hasher that must be of the type built by {@link #hasherConstructor}.
+     *
+     * @param in the stream to read from
+     * @return the hasher
+     * @throws IOException if the stream contains a different type of hasher, or if an IO problem occurs
+     */
+    private BloomHasher<T> readExpectedHasher(final SerializableDataInputStream in) throws IOException {
+        final BloomHasher<T> hasher = hasherConstructor.get();
+        final long classId = in.readLong();
+        if (classId != hasher.getClassId()) {
+            throw new IOException("unexpected bloom hasher class ID " + classId + ", expected " + hasher.getClassId());
+        }
+        final BloomHasher<T> deserialized = in.readSerializable(false, () -> hasher);
+        if (deserialized == null) {
+            throw new IOException("null bloom hasher not supported");
+        }
+        return deserialized;
+    }
+
     /**
      * {@inheritDoc}
      */
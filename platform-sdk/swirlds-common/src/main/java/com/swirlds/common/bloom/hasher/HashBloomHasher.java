@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.common.bloom.hasher;
+
+import static com.swirlds.common.units.UnitConstants.BYTES_PER_LONG;
+import static com.swirlds.common.utility.ByteUtils.byteArrayToLong;
+import static com.swirlds.common.utility.NonCryptographicHashing.hash64;
+
+import com.swirlds.common.bloom.BloomHasher;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import java.io.IOException;
+
+/**
+ * <p>
+ * A {@link BloomHasher} for cryptographic {@link Hash}es. Unlike {@link SelfSerializableBloomHasher}, the value of the
+ * hash is used directly, so nothing is digested when an element is added or looked up.
+ * </p>
+ *
+ * <p>
+ * Every hasher has a salt, which is serialized with it. Bloom filters built with different salts have independent
+ * false positives, so an element that is a false positive in one filter is very unlikely to be a false positive in
+ * the next one.
+ * </p>
+ */
+public class HashBloomHasher implements BloomHasher<Hash> {
+
+    private static final long CLASS_ID = 0x5d3e9b0c84f1a27bL;
+
+    private static final class ClassVersion {
+        public static final int ORIGINAL = 1;
+    }
+
+    private long salt;
+
+    /**
+     * Zero arg constructor, required for serialization.
+     */
+    public HashBloomHasher() {}
+
+    /**
+     * Create a new hasher.
+     *
+     * @param salt mixed into every hash computed by this hasher
+     */
+    public HashBloomHasher(final long salt) {
+        this.salt = salt;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void hash(final Hash element, final long maxHash, final long[] hashes) {
+        final byte[] hashBytes = element.getValue();
+        final int wordCount = hashBytes.length / BYTES_PER_LONG;
+        for (int index = 0; index < hashes.length; index++) {
+            // The hash is already uniformly distributed, so each word of it is a good source of entropy. The index
+            // is mixed in so that filters with more hashes than words still get independent bit positions.
+            final long word = byteArrayToLong(hashBytes, (index % wordCount) * BYTES_PER_LONG);
+            hashes[index] = Math.floorMod(hash64(salt, word, index), maxHash);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getClassId() {
+        return CLASS_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void serialize(final SerializableDataOutputStream out) throws IOException {
+        out.writeLong(salt);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deserialize(final SerializableDataInputStream in, final int version) throws IOException {
+        salt = in.readLong();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getVersion() {
+        return ClassVersion.ORIGINAL;
+    }
+}
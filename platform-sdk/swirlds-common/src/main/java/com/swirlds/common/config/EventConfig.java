@@ -19,6 +19,7 @@ package com.swirlds.common.config;
 import com.swirlds.common.threading.framework.config.QueueThreadConfiguration;
 import com.swirlds.config.api.ConfigData;
 import com.swirlds.config.api.ConfigProperty;
+import java.time.Duration;
 
 /**
  * Configuration for event handling inside the platform.
@@ -58,6 +59,13 @@ import com.swirlds.config.api.ConfigProperty;
  * @param enableEventStreaming              enable stream event to server.
  * @param prehandlePoolSize                 the size of the thread pool used for prehandling transactions
  * @param useLegacyIntake                   if true then use the legacy intake monolith, if false then use the new intake pipeline
+ * @param signatureVerificationBatchSize    the maximum number of events the new intake pipeline collects before their
+ *                                          signatures are verified as a batch
+ * @param signatureVerificationBatchDelay   the maximum amount of time an event waits in a partially filled signature
+ *                                          verification batch. Must be at least 1ms.
+ * @param signatureVerificationThreadCount  the number of threads used to verify the signatures of a batch of events in
+ *                                          parallel. A value of 0 means that signatures are verified on the thread of
+ *                                          the signature validator scheduler.
  */
 @ConfigData("event")
 public record EventConfig(
@@ -72,4 +80,7 @@ public record EventConfig(
         @ConfigProperty(defaultValue = "/opt/hgcapp/eventsStreams") String eventsLogDir,
         @ConfigProperty(defaultValue = "true") boolean enableEventStreaming,
         @ConfigProperty(defaultValue = "8") int prehandlePoolSize,
-        @ConfigProperty(defaultValue = "false") boolean useLegacyIntake) {}
+        @ConfigProperty(defaultValue = "false") boolean useLegacyIntake,
+        @ConfigProperty(defaultValue = "64") int signatureVerificationBatchSize,
+        @ConfigProperty(defaultValue = "2ms") Duration signatureVerificationBatchDelay,
+        @ConfigProperty(defaultValue = "4") int signatureVerificationThreadCount) {}
@@ -170,4 +170,18 @@ public interface MerkleCryptography {
     default Future<Hash> digestTreeAsync(final MerkleNode root) {
         return digestTreeAsync(root, DEFAULT_DIGEST_TYPE);
     }
+
+    /**
+     * Compute the hashes of several disjoint subtrees, returning once all of them are hashed. Implementations may
+     * hash different subtrees on different threads. The default implementation hashes the subtrees one at a time
+     * on the caller's thread.
+     *
+     * @param roots
+     * 		the roots of the subtrees to hash, no subtree may contain another
+     */
+    default void digestSubtreesSync(final List<? extends MerkleNode> roots) {
+        for (final MerkleNode root : roots) {
+            digestTreeSync(root);
+        }
+    }
 }
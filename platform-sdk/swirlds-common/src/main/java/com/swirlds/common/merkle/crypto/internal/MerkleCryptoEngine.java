@@ -83,6 +83,14 @@ public class MerkleCryptoEngine implements MerkleCryptography {
         return merkleHashBuilder.digestTreeAsync(root);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void digestSubtreesSync(final List<? extends MerkleNode> roots) {
+        merkleHashBuilder.digestSubtreesSync(roots);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -30,6 +30,8 @@ import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.common.threading.futures.StandardFuture;
 import com.swirlds.common.threading.manager.ThreadManager;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -151,6 +153,30 @@ public class MerkleHashBuilder {
         }
     }
 
+    /**
+     * Compute the hashes of several disjoint subtrees on the worker threads, one task per subtree. Blocks until all
+     * subtrees are hashed. Must not be called from one of this builder's worker threads.
+     *
+     * @param roots
+     * 		the roots of the subtrees to hash, no subtree may contain another
+     */
+    public void digestSubtreesSync(final List<? extends MerkleNode> roots) {
+        if (roots.isEmpty()) {
+            return;
+        }
+        if (roots.size() == 1) {
+            digestTreeSync(roots.get(0));
+            return;
+        }
+
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[roots.size()];
+        for (int i = 0; i < futures.length; i++) {
+            final MerkleNode root = roots.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> digestTreeSync(root), threadPool);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
     /**
      * Create a thread that will attempt to hash the tree starting at the root.
      *
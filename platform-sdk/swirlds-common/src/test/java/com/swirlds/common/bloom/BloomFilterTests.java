@@ -17,23 +17,29 @@
 package com.swirlds.common.bloom;
 
 import static com.swirlds.common.test.fixtures.RandomUtils.getRandomPrintSeed;
+import static com.swirlds.common.test.fixtures.RandomUtils.randomHash;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.swirlds.common.bloom.hasher.HashBloomHasher;
 import com.swirlds.common.bloom.hasher.IntBloomHasher;
 import com.swirlds.common.bloom.hasher.LongBloomHasher;
 import com.swirlds.common.bloom.hasher.SelfSerializableBloomHasher;
 import com.swirlds.common.constructable.ConstructableRegistry;
 import com.swirlds.common.constructable.ConstructableRegistryException;
+import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
 import com.swirlds.common.merkle.utility.SerializableLong;
+import com.swirlds.common.test.fixtures.RandomUtils;
 import com.swirlds.common.test.fixtures.ResettableRandom;
 import com.swirlds.test.framework.TestQualifierTags;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.function.Function;
 import org.junit.jupiter.api.BeforeAll;
@@ -300,4 +306,85 @@ class BloomFilterTests {
         assertTrue(filter.contains(1234), "filter should now contain value");
         assertTrue(filter.checkAndAdd(1234), "checkAndAdd() should work even when element is present");
     }
+
+    /**
+     * Test a bloom filter containing cryptographic hashes.
+     */
+    @ParameterizedTest
+    @CsvSource({"7, 100000, 10000, 0.02", "7, 1000000, 100000, 0.02"})
+    @DisplayName("Hash Bloom Filter Test")
+    void hashBloomFilterTest(
+            final int hashCount, final long filterSize, final long count, final double maxFalsePositiveFraction)
+            throws IOException {
+        testRandomData(
+                hashCount,
+                new HashBloomHasher(42),
+                filterSize,
+                count,
+                RandomUtils::randomHash,
+                maxFalsePositiveFraction,
+                true);
+    }
+
+    @Test
+    @DisplayName("Filters with different salts have different false positives")
+    void saltTest() {
+        final Random random = getRandomPrintSeed();
+        final BloomFilter<Hash> filter1 = new BloomFilter<>(1, new HashBloomHasher(1), 64);
+        final BloomFilter<Hash> filter2 = new BloomFilter<>(1, new HashBloomHasher(2), 64);
+        int differences = 0;
+        for (int i = 0; i < 100; i++) {
+            final Hash hash = randomHash(random);
+            if (!Arrays.equals(filter1.hash(hash), filter2.hash(hash))) {
+                differences++;
+            }
+        }
+        assertTrue(differences > 50, "salts should change the bit positions of most elements");
+    }
+
+    @Test
+    @DisplayName("Deserialization size limit test")
+    void maxSizeTest() throws IOException {
+        final BloomFilter<Integer> filter = new BloomFilter<>(3, new IntBloomHasher(), 1024);
+        filter.add(1234);
+
+        final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        new SerializableDataOutputStream(byteOut).writeSerializable(filter, false);
+
+        final BloomFilter<Integer> withinLimit = new SerializableDataInputStream(
+                        new ByteArrayInputStream(byteOut.toByteArray()))
+                .readSerializable(false, () -> new BloomFilter<>(1024, 3, IntBloomHasher::new));
+        assertTrue(withinLimit.contains(1234), "filter should contain value");
+        assertEquals(1024, withinLimit.getFilterSizeInBits(), "filter size should be preserved");
+
+        final SerializableDataInputStream in =
+                new SerializableDataInputStream(new ByteArrayInputStream(byteOut.toByteArray()));
+        assertThrows(
+                IOException.class,
+                () -> in.readSerializable(false, () -> new BloomFilter<Integer>(1023, 3, IntBloomHasher::new)),
+                "filters over the size limit should be rejected");
+
+        final SerializableDataInputStream in2 =
+                new SerializableDataInputStream(new ByteArrayInputStream(byteOut.toByteArray()));
+        assertThrows(
+                IOException.class,
+                () -> in2.readSerializable(false, () -> new BloomFilter<Integer>(1024, 2, IntBloomHasher::new)),
+                "filters over the hash count limit should be rejected");
+    }
+
+    @Test
+    @DisplayName("Deserialization rejects unexpected hashers")
+    void unexpectedHasherTest() throws IOException {
+        final BloomFilter<Integer> filter = new BloomFilter<>(3, new IntBloomHasher(), 1024);
+
+        final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        new SerializableDataOutputStream(byteOut).writeSerializable(filter, false);
+
+        final SerializableDataInputStream in =
+                new SerializableDataInputStream(new ByteArrayInputStream(byteOut.toByteArray()));
+        assertThrows(
+                IOException.class,
+                () -> in.readSerializable(false, () -> new BloomFilter<Long>(1024, 3, LongBloomHasher::new)),
+                "filters with a different hasher should be rejected");
+    }
 }
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.fchashmap;
+
+import static java.util.Objects.requireNonNull;
+
+import com.swirlds.common.FastCopyable;
+import com.swirlds.common.exceptions.ReferenceCountException;
+import com.swirlds.fchashmap.internal.FCLongHashMapFamily;
+import com.swirlds.fchashmap.internal.LongMutation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * <p>
+ * An {@link FCHashMap} specialized for primitive {@code long} keys, for example entity numbers. It has the
+ * same {@link FastCopyable} semantics and the same garbage collection of old mutations, but keys are never
+ * boxed, the data is kept in an open addressing table instead of a concurrent hash map, and purged
+ * mutations are reused.
+ * </p>
+ *
+ * <p>
+ * It is always thread safe to read unreleased immutable copies
+ * (as long as not done concurrently with the deletion of that copy).
+ * </p>
+ *
+ * <p>
+ * The mutable copy may be modified by a single thread at a time. It is thread safe to read the mutable copy
+ * concurrently with that thread. {@link #size} may return incorrect results if executed concurrently with an
+ * operation that modifies the size.
+ * </p>
+ *
+ * <p>
+ * The following operations are not thread safe:
+ * </p>
+ *
+ * <ul>
+ *     <li>modifying the mutable copy from multiple threads at the same time</li>
+ *     <li>calling {@link #copy()} concurrently with write operations</li>
+ *     <li>calling {@link #release()} concurrently with read or write operations</li>
+ * </ul>
+ *
+ * @param <V>
+ * 		the type of the value
+ */
+public class FCLongHashMap<V> implements FastCopyable {
+
+    /**
+     * The family of copies this map belongs to, see {@link FCHashMap}.
+     */
+    final FCLongHashMapFamily<V> family;
+
+    /**
+     * Monotonically increasing version number that is incremented every time copy() is called on the mutable copy.
+     */
+    private final long version;
+
+    /**
+     * Is this object a mutable object?
+     */
+    private boolean immutable;
+
+    /**
+     * The current size of the map.
+     */
+    private final AtomicInteger size;
+
+    /**
+     * Tracks if this particular object has been deleted.
+     */
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    /**
+     * Create a new FCLongHashMap.
+     */
+    public FCLongHashMap() {
+        this(0);
+    }
+
+    /**
+     * Create a new FCLongHashMap.
+     *
+     * @param capacity
+     * 		the initial capacity of the map
+     */
+    public FCLongHashMap(final int capacity) {
+        family = new FCLongHashMapFamily<>(capacity);
+        version = 0;
+
+        immutable = false;
+        size = new AtomicInteger(0);
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param that
+     * 		the map to copy
+     */
+    private FCLongHashMap(final FCLongHashMap<V> that) {
+        this.family = that.family;
+        this.version = family.copyMap();
+        size = new AtomicInteger(that.size.get());
+
+        immutable = false;
+    }
+
+    /**
+     * Get the {@link FCLongHashMapFamily} that this map belongs to.
+     */
+    FCLongHashMapFamily<V> getFamily() {
+        return family;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized FCLongHashMap<V> copy() {
+        throwIfImmutable();
+        throwIfDestroyed();
+        try {
+            return new FCLongHashMap<>(this);
+        } finally {
+            this.immutable = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isImmutable() {
+        return this.immutable;
+    }
+
+    /**
+     * <p>
+     * Use this to clean up resources held by this copy.
+     * Failure to call delete on a copy before it is garbage collected will result in a memory leak.
+     * </p>
+     *
+     * <p>
+     * Not thread safe.
+     * Must not be called at the same time another thread is attempting to read from this copy.
+     * </p>
+     */
+    @Override
+    public synchronized boolean release() {
+        final boolean previouslyReleased = released.getAndSet(true);
+        if (previouslyReleased) {
+            throw new ReferenceCountException("this object has already been released");
+        }
+        family.releaseMap(version);
+        return true;
+    }
+
+    /**
+     * Check to see if this copy has been deleted.
+     */
+    @Override
+    public boolean isDestroyed() {
+        return released.get();
+    }
+
+    /**
+     * Returns the version of the copy.
+     *
+     * @return the version of the copy
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number of keys in this copy of the map.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Check if this copy of the map is empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Check if this copy of the map contains a key.
+     *
+     * @param key
+     * 		the key
+     * @return true if the key is in the map
+     */
+    public boolean containsKey(final long key) {
+        final LongMutation<V> mutation = family.getMutation(version, key);
+        return mutation != null && mutation.getValue() != null;
+    }
+
+    /**
+     * Get the value for a key. Not thread safe on an immutable copy of the map if it is possible that another
+     * thread may have deleted the map copy.
+     *
+     * @param key
+     * 		the key
+     * @return the value, or null if the key is not in the map
+     */
+    public V get(final long key) {
+        final LongMutation<V> mutation = family.getMutation(version, key);
+        return mutation == null ? null : mutation.getValue();
+    }
+
+    /**
+     * Get a value that is safe to directly modify, see {@link FCHashMap#getForModify(Object)}. Only permitted
+     * for maps that contain {@link FastCopyable} values.
+     *
+     * @param key
+     * 		the key
+     * @return a {@link ModifiableValue} that contains a value is safe to directly modify, or null if the key
+     * 		is not in the map
+     */
+    public ModifiableValue<V> getForModify(final long key) {
+        throwIfImmutable();
+        return family.getForModify(key);
+    }
+
+    /**
+     * Put a value into the map.
+     *
+     * @param key
+     * 		the key
+     * @param value
+     * 		the value
+     * @return the previous value, or null if the key was not in the map
+     * @throws NullPointerException
+     * 		if the value is null
+     */
+    public V put(final long key, @NonNull final V value) {
+        requireNonNull(value, "value must not be null");
+        throwIfImmutable();
+        return family.mutate(key, value, size);
+    }
+
+    /**
+     * Remove a key from the map.
+     *
+     * @param key
+     * 		the key
+     * @return the removed value, or null if the key was not in the map
+     */
+    public V remove(final long key) {
+        throwIfImmutable();
+        return family.mutate(key, null, size);
+    }
+
+    /**
+     * Call the action for every key in this copy of the map, in no particular order.
+     *
+     * @param action
+     * 		the action, called with the value and the key
+     */
+    public void forEach(@NonNull final ObjLongConsumer<V> action) {
+        requireNonNull(action, "action must not be null");
+        family.forEach(version, action);
+    }
+}
@@ -26,9 +26,14 @@ import com.swirlds.config.api.ConfigProperty;
  *      split the binary tree at this depth relative to the root of the binary tree. The tree will be split into 2^split-factor subtrees, and each subtree will be eligible to be handled on a separate thread.
  * @param rebuildThreadCount
  *      rebuilding the FCHashMap in a MerkleMap, use this many threads to rebuild the tree.
+ * @param hashSplitFactor
+ *      a MerkleMap tracks modified entries by the subtree at this depth (relative to the root of the binary tree)
+ *      that contains them. When rehashing, only the 2^split-factor subtrees that were modified are visited, and
+ *      each of them may be hashed on a separate thread.
  *
  */
 @ConfigData("fcHashMap")
 public record FCHashMapConfig(
         @ConfigProperty(defaultValue = "7") int rebuildSplitFactor,
-        @ConfigProperty(defaultValue = "24") int rebuildThreadCount) {}
+        @ConfigProperty(defaultValue = "24") int rebuildThreadCount,
+        @ConfigProperty(defaultValue = "7") int hashSplitFactor) {}
@@ -56,19 +56,19 @@ public class FCHashMapFamily<K, V> {
     /**
      * Tracks maps that need to be purged when they are deleted.
      */
-    private final Map<Long, UnPurgedMap<K, V>> mapsNeedingPurging = new ConcurrentHashMap<>();
+    private final Map<Long, UnPurgedMap<K, Mutation<V>>> mapsNeedingPurging = new ConcurrentHashMap<>();
 
     /**
      * The youngest map in the family. Only this map is mutable. This forms one end of the
      * linked list that is made up of {@link UnPurgedMap} copies.
      */
-    private UnPurgedMap<K, V> mutableMap;
+    private UnPurgedMap<K, Mutation<V>> mutableMap;
 
     /**
      * The oldest map in the family that has not yet been deleted. This forms one end of the
      * linked list that is made up of {@link UnPurgedMap} copies.
      */
-    private UnPurgedMap<K, V> oldestMap;
+    private UnPurgedMap<K, Mutation<V>> oldestMap;
 
     /**
      * Prevents concurrent deletion of copies within the family.
@@ -116,7 +116,7 @@ public class FCHashMapFamily<K, V> {
 
         final long nextVersion = mutableMap.getVersion() + 1;
 
-        final UnPurgedMap<K, V> newMap = new UnPurgedMap<>(nextVersion);
+        final UnPurgedMap<K, Mutation<V>> newMap = new UnPurgedMap<>(nextVersion);
         mapsNeedingPurging.put(nextVersion, newMap);
 
         mutableMap.setNext(newMap);
@@ -344,7 +344,7 @@ public class FCHashMapFamily<K, V> {
         // We need to find a map that has not yet been deleted to take
         // responsibility for the purging for this key.
 
-        UnPurgedMap<K, V> purgingMap = mutableMap.getPrevious();
+        UnPurgedMap<K, Mutation<V>> purgingMap = mutableMap.getPrevious();
         while (purgingMap != null) {
             if (purgingMap.schedulePurging(key, mutation)) {
                 // We have found a map that is willing to purge for this key.
@@ -369,9 +369,9 @@ public class FCHashMapFamily<K, V> {
     private Map<Long, Long> buildNextUndeletedVersionMap() {
         final Map<Long, Long> nextUndeletedVersionMap = new HashMap<>();
 
-        UnPurgedMap<K, V> nextUndeletedMap = mutableMap;
+        UnPurgedMap<K, Mutation<V>> nextUndeletedMap = mutableMap;
         for (long version = mutableMap.getVersion(); version >= oldestMap.getVersion(); version--) {
-            final UnPurgedMap<K, V> undeletedMap = mapsNeedingPurging.get(version);
+            final UnPurgedMap<K, Mutation<V>> undeletedMap = mapsNeedingPurging.get(version);
             if (undeletedMap != null) {
                 nextUndeletedMap = undeletedMap;
             }
@@ -402,7 +402,7 @@ public class FCHashMapFamily<K, V> {
     private record PurgeMutationHandler<K, V>(
             Mutation<V> target,
             long nextUndeletedVersion,
-            Map<Long, UnPurgedMap<K, V>> mapsNeedingPurging,
+            Map<Long, UnPurgedMap<K, Mutation<V>>> mapsNeedingPurging,
             long currentMapVersion)
             implements BiFunction<K, Mutation<V>, Mutation<V>> {
 
@@ -467,7 +467,7 @@ public class FCHashMapFamily<K, V> {
      */
     private void purgeMutation(
             final long currentMapVersion,
-            final PurgingEvent<K, V> purgingEvent,
+            final PurgingEvent<K, Mutation<V>> purgingEvent,
             final Map<Long, Long> nextUndeletedVersionMap) {
 
         // This is the mutation we want to purge, if possible.
@@ -498,7 +498,7 @@ public class FCHashMapFamily<K, V> {
                 return;
             }
 
-            final UnPurgedMap<K, V> mapToDelete = mapsNeedingPurging.remove(mapVersion);
+            final UnPurgedMap<K, Mutation<V>> mapToDelete = mapsNeedingPurging.remove(mapVersion);
 
             if (mapToDelete == null) {
                 // This should be impossible.
@@ -508,8 +508,8 @@ public class FCHashMapFamily<K, V> {
             mapToDelete.markAsPurged();
 
             // Remove the map from the list of undeleted maps.
-            final UnPurgedMap<K, V> previous = mapToDelete.getPrevious();
-            final UnPurgedMap<K, V> next = mapToDelete.getNext();
+            final UnPurgedMap<K, Mutation<V>> previous = mapToDelete.getPrevious();
+            final UnPurgedMap<K, Mutation<V>> next = mapToDelete.getNext();
             if (previous != null) {
                 previous.setNext(next);
             }
@@ -522,7 +522,7 @@ public class FCHashMapFamily<K, V> {
             }
 
             final Map<Long, Long> nextUndeletedVersionMap = buildNextUndeletedVersionMap();
-            for (final PurgingEvent<K, V> event : mapToDelete) {
+            for (final PurgingEvent<K, Mutation<V>> event : mapToDelete) {
                 purgeMutation(mapVersion, event, nextUndeletedVersionMap);
             }
         }
@@ -0,0 +1,598 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.fchashmap.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.swirlds.common.FastCopyable;
+import com.swirlds.common.threading.locks.AutoClosableLock;
+import com.swirlds.common.threading.locks.Locks;
+import com.swirlds.common.threading.locks.locked.Locked;
+import com.swirlds.common.utility.NonCryptographicHashing;
+import com.swirlds.fchashmap.FCLongHashMap;
+import com.swirlds.fchashmap.ModifiableValue;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A family of {@link FCLongHashMap}s. This is the {@link FCHashMapFamily} counterpart for primitive long keys,
+ * with the same copy lifecycle and the same {@link UnPurgedMap} based garbage collection.
+ *
+ * <p>Instead of a concurrent map of boxed keys, mutation lists are kept in an open addressing table with
+ * linear probing. Keys are stored in a {@code long[]} array, and heads of the mutation lists are stored in a
+ * parallel array. Once a key is written to a slot, the slot never changes its key until the table is rebuilt,
+ * so readers can probe the table without locks. A key whose mutations are all purged leaves a tombstone in its
+ * slot. Tombstones are dropped when the table is rebuilt into a new array, which is then published with a
+ * volatile write. Readers that are still working with the old table see a consistent, slightly stale view.
+ *
+ * <p>Modifications are done by a single writer thread, the thread that modifies the mutable copy, and by the
+ * thread that releases copies and purges mutations. They are serialized with a lock, which is uncontended
+ * unless a copy is being released.
+ *
+ * <p>Purged mutations are reused for new mutations, see {@link MutationPool}.
+ *
+ * @param <V>
+ * 		the type of the values in this family of maps
+ */
+public class FCLongHashMapFamily<V> {
+
+    private static final float LOAD_FACTOR = 0.6F;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MUTATION_POOL_CAPACITY = 64 * 1024;
+
+    /**
+     * Marks a slot of a key that used to be in the map, but has no mutations left. Readers continue probing
+     * past tombstones. The version is lower than any map version, and the value is null, so traversals that
+     * stop at a tombstone see a deleted key.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final LongMutation TOMBSTONE = new LongMutation<>(-1, null, null);
+
+    /**
+     * An open addressing table.
+     */
+    private static final class Table<V> {
+        final long[] keys;
+        final AtomicReferenceArray<LongMutation<V>> heads;
+        final int mask;
+
+        Table(final int capacity) {
+            keys = new long[capacity];
+            heads = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        /**
+         * Find the slot of a key.
+         *
+         * @return the slot of the key if found, or {@code -(slot + 1)} of the empty slot where the key can be
+         * 		inserted otherwise
+         */
+        int find(final long key) {
+            int slot = (int) NonCryptographicHashing.hash64(key) & mask;
+            while (true) {
+                // The key is written before the head is published, so a non-null head means a valid key
+                if (heads.get(slot) == null) {
+                    return -(slot + 1);
+                }
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+
+    /**
+     * The current table.
+     */
+    private volatile Table<V> table;
+
+    /**
+     * The number of non-empty slots in the table, including tombstones. Only accessed under the lock.
+     */
+    private int usedSlots;
+
+    /**
+     * The number of slots with live keys in the table. Only accessed under the lock.
+     */
+    private int liveSlots;
+
+    /**
+     * Serializes modifications by the writer thread and purging.
+     */
+    private final AutoClosableLock modificationLock = Locks.createAutoLock();
+
+    /**
+     * Purged mutations that may be reused. Only accessed under the lock.
+     */
+    private final MutationPool<V> mutationPool = new MutationPool<>(MUTATION_POOL_CAPACITY);
+
+    /**
+     * Tracks maps that need to be purged when they are deleted.
+     */
+    private final Map<Long, UnPurgedMap<Long, LongMutation<V>>> mapsNeedingPurging = new ConcurrentHashMap<>();
+
+    /**
+     * The youngest map in the family. Only this map is mutable.
+     */
+    private UnPurgedMap<Long, LongMutation<V>> mutableMap;
+
+    /**
+     * The oldest map in the family that has not yet been deleted.
+     */
+    private UnPurgedMap<Long, LongMutation<V>> oldestMap;
+
+    /**
+     * The version of {@link #oldestMap}, readable by the writer thread.
+     */
+    private volatile long oldestVersion;
+
+    /**
+     * Prevents concurrent deletion of copies within the family.
+     */
+    private final AutoClosableLock deletionLock = Locks.createAutoLock();
+
+    /**
+     * Initiate a family of {@link FCLongHashMap}s.
+     *
+     * @param capacity
+     * 		the initial capacity of the map
+     */
+    public FCLongHashMapFamily(final int capacity) {
+        table = new Table<>(tableCapacity(capacity));
+        mutableMap = new UnPurgedMap<>(0L);
+        oldestMap = mutableMap;
+        mapsNeedingPurging.put(0L, mutableMap);
+    }
+
+    /**
+     * Get a power of two table capacity to hold the given number of keys.
+     */
+    private static int tableCapacity(final int keys) {
+        final int capacity = Math.max(MIN_CAPACITY, (int) Math.ceil(keys / LOAD_FACTOR));
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * This must be called every time a new {@link FCLongHashMap} copy is created.
+     *
+     * @return the version of the new copy
+     */
+    public long copyMap() {
+        if (mutableMap == null) {
+            throw new IllegalStateException(
+                    "The mutable copy of the map has been released, no further copies are permitted");
+        }
+
+        final long nextVersion = mutableMap.getVersion() + 1;
+
+        final UnPurgedMap<Long, LongMutation<V>> newMap = new UnPurgedMap<>(nextVersion);
+        mapsNeedingPurging.put(nextVersion, newMap);
+
+        mutableMap.setNext(newMap);
+        newMap.setPrevious(mutableMap);
+
+        mutableMap = newMap;
+
+        return nextVersion;
+    }
+
+    /**
+     * Look up the most recent mutation that does not exceed a map's version. Doesn't need any locks.
+     *
+     * @param version
+     * 		the version of the map to look up the mutation for
+     * @param key
+     * 		look up the mutation for this key
+     * @return The mutation that corresponds to the version. May be null if the key is not in the map at this
+     * 		version, or may have a null value if the key is deleted at this version.
+     */
+    public LongMutation<V> getMutation(final long version, final long key) {
+        final Table<V> current = table;
+        final int slot = current.find(key);
+        if (slot < 0) {
+            return null;
+        }
+        // See FCHashMapFamily.getMutation() why it is safe to traverse the list without synchronization
+        LongMutation<V> mutation = current.heads.get(slot);
+        while (mutation != null && mutation.getVersion() > version) {
+            mutation = mutation.getPrevious();
+        }
+        return mutation;
+    }
+
+    /**
+     * Call the action for every key that has a value at the given version. Doesn't need any locks. If called
+     * for the mutable copy concurrently with modifications, it may or may not see the modifications.
+     *
+     * @param version
+     * 		the version of the map
+     * @param action
+     * 		the action to call with the value and the key
+     */
+    public void forEach(final long version, final ObjLongConsumer<V> action) {
+        final Table<V> current = table;
+        for (int slot = 0; slot < current.capacity(); slot++) {
+            LongMutation<V> mutation = current.heads.get(slot);
+            if (mutation == null) {
+                continue;
+            }
+            final long key = current.keys[slot];
+            while (mutation != null && mutation.getVersion() > version) {
+                mutation = mutation.getPrevious();
+            }
+            if (mutation != null && mutation.getValue() != null) {
+                action.accept(mutation.getValue(), key);
+            }
+        }
+    }
+
+    /**
+     * Get the head of the mutation list in a slot, or null if the slot is empty or has a tombstone.
+     */
+    private static <V> LongMutation<V> headAt(final Table<V> table, final int slot) {
+        if (slot < 0) {
+            return null;
+        }
+        final LongMutation<V> head = table.heads.get(slot);
+        return head == TOMBSTONE ? null : head;
+    }
+
+    /**
+     * Create a new mutation, reusing a purged mutation if possible. Must be called under the lock.
+     */
+    private LongMutation<V> newMutation(final long version, final V value, final LongMutation<V> previous) {
+        final LongMutation<V> mutation = mutationPool.acquire(oldestVersion);
+        if (mutation == null) {
+            return new LongMutation<>(version, value, previous);
+        }
+        mutation.reuse(version, value, previous);
+        return mutation;
+    }
+
+    /**
+     * Set a new head for a key, inserting the key if needed. Must be called under the lock.
+     *
+     * @param slot
+     * 		the result of {@link Table#find(long)} for the key in the current table
+     * @param key
+     * 		the key
+     * @param head
+     * 		the new head, must not be null
+     */
+    @SuppressWarnings("unchecked")
+    private void setHead(final int slot, final long key, final LongMutation<V> head) {
+        Table<V> current = table;
+        if (slot >= 0) {
+            final boolean wasLive = current.heads.get(slot) != TOMBSTONE;
+            final boolean isLive = head != TOMBSTONE;
+            if (wasLive != isLive) {
+                liveSlots += isLive ? 1 : -1;
+            }
+            current.heads.set(slot, head);
+            return;
+        }
+
+        int insertSlot = -(slot + 1);
+        if (usedSlots + 1 > current.capacity() * LOAD_FACTOR) {
+            current = rebuild(current);
+            insertSlot = -(current.find(key) + 1);
+        }
+        current.keys[insertSlot] = key;
+        // Volatile write, publishes the key to readers
+        current.heads.set(insertSlot, head);
+        usedSlots++;
+        liveSlots++;
+    }
+
+    /**
+     * Copy all live keys into a new table, dropping tombstones, and publish the new table. Must be called under
+     * the lock.
+     *
+     * @param current
+     * 		the current table
+     * @return the new table
+     */
+    private Table<V> rebuild(final Table<V> current) {
+        final Table<V> rebuilt = new Table<>(tableCapacity((liveSlots + 1) * 2));
+        for (int slot = 0; slot < current.capacity(); slot++) {
+            final LongMutation<V> head = current.heads.get(slot);
+            if (head == null || head == TOMBSTONE) {
+                continue;
+            }
+            final long key = current.keys[slot];
+            final int newSlot = -(rebuilt.find(key) + 1);
+            rebuilt.keys[newSlot] = key;
+            rebuilt.heads.set(newSlot, head);
+        }
+        usedSlots = liveSlots;
+        table = rebuilt;
+        return rebuilt;
+    }
+
+    /**
+     * Update the value for a key at this version. Must only be called on mutable copies.
+     *
+     * @param key
+     * 		the key associated that will hold the new value
+     * @param value
+     * 		the new value, or null if this operation signifies a deletion.
+     * @param size
+     * 		an atomic integer that tracks the size of the map
+     * @return the original value, or null if originally deleted
+     */
+    @SuppressWarnings("unchecked")
+    public V mutate(final long key, final V value, final AtomicInteger size) {
+        final V originalValue;
+        try (final Locked locked = modificationLock.lock()) {
+            final long version = mutableMap.getVersion();
+            final int slot = table.find(key);
+            final LongMutation<V> mutationHead = headAt(table, slot);
+            originalValue = mutationHead == null ? null : mutationHead.getValue();
+
+            if (mutationHead == null && value == null) {
+                // Nothing to delete
+                return null;
+            }
+
+            final LongMutation<V> mutation;
+            if (mutationHead != null && mutationHead.getVersion() == version) {
+                // mutation for this version already exists
+                mutation = mutationHead;
+                mutation.setValue(value);
+            } else {
+                // mutation for this version does not yet exist
+                mutation = newMutation(version, value, mutationHead);
+
+                if (mutationHead != null) {
+                    // All lists with more than one entry will eventually require purging.
+                    schedulePurging(key, mutationHead);
+                }
+            }
+
+            if (value == null && mutation.getPrevious() == null) {
+                // If the only remaining mutation is a deletion then it is safe to remove the key from the map
+                setHead(slot, key, TOMBSTONE);
+            } else if (mutation != mutationHead) {
+                setHead(slot, key, mutation);
+            }
+        }
+
+        // update size of the map
+        if (originalValue == null && value != null) {
+            size.getAndIncrement();
+        } else if (originalValue != null && value == null) {
+            size.getAndDecrement();
+        }
+
+        return originalValue;
+    }
+
+    /**
+     * Get a value that is safe to directly modify, see {@link FCHashMapFamily#getForModify(Object)}.
+     *
+     * @param key
+     * 		the key
+     * @return a {@link ModifiableValue} that contains a value is safe to directly modify, or null if the key
+     * 		is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public ModifiableValue<V> getForModify(final long key) {
+        try (final Locked locked = modificationLock.lock()) {
+            final long version = mutableMap.getVersion();
+            final int slot = table.find(key);
+            final LongMutation<V> mutationHead = headAt(table, slot);
+            if (mutationHead == null || mutationHead.getValue() == null) {
+                return null;
+            }
+
+            final V original = mutationHead.getValue();
+            if (mutationHead.getVersion() == version) {
+                return new ModifiableValue<>(original, original);
+            }
+
+            final LongMutation<V> mutation = newMutation(version, (V) ((FastCopyable) original).copy(), mutationHead);
+            setHead(slot, key, mutation);
+            schedulePurging(key, mutationHead);
+
+            return new ModifiableValue<>(mutation.getValue(), original);
+        }
+    }
+
+    /**
+     * Schedule future purging for a key. Must be called under the lock.
+     *
+     * @param key
+     * 		the key that needs purging
+     * @param mutation
+     * 		the mutation that needs to be purged
+     */
+    private void schedulePurging(final long key, final LongMutation<V> mutation) {
+        // We need to find a map that has not yet been deleted to take
+        // responsibility for the purging for this key.
+        final Long boxedKey = key;
+        UnPurgedMap<Long, LongMutation<V>> purgingMap = mutableMap.getPrevious();
+        while (purgingMap != null) {
+            if (purgingMap.schedulePurging(boxedKey, mutation)) {
+                // We have found a map that is willing to purge for this key.
+                break;
+            }
+
+            purgingMap = purgingMap.getPrevious();
+        }
+
+        if (purgingMap == null) {
+            // There were no maps that were willing to purge for this key.
+            mutableMap.schedulePurging(boxedKey, mutation);
+        }
+    }
+
+    /**
+     * For each version, deleted and undeleted, between the highest and lowest undeleted version (inclusive), find the
+     * first undeleted greater or equal version.
+     *
+     * @return a map of version to first undeleted greater or equal version
+     */
+    private Map<Long, Long> buildNextUndeletedVersionMap() {
+        final Map<Long, Long> nextUndeletedVersionMap = new HashMap<>();
+
+        UnPurgedMap<Long, LongMutation<V>> nextUndeletedMap = mutableMap;
+        for (long version = mutableMap.getVersion(); version >= oldestMap.getVersion(); version--) {
+            final UnPurgedMap<Long, LongMutation<V>> undeletedMap = mapsNeedingPurging.get(version);
+            if (undeletedMap != null) {
+                nextUndeletedMap = undeletedMap;
+            }
+            nextUndeletedVersionMap.put(version, nextUndeletedMap.getVersion());
+        }
+
+        return nextUndeletedVersionMap;
+    }
+
+    /**
+     * Perform purging for a mutation, deleting it if it is no longer referenced by any undeleted map. This is
+     * the same algorithm as in {@link FCHashMapFamily}, except purged mutations are returned to the pool.
+     *
+     * @param currentMapVersion
+     * 		the version of the map that is being purged
+     * @param purgingEvent
+     * 		describes the mutation to purge
+     * @param nextUndeletedVersionMap
+     * 		a map of hypothetical mutation versions to the first version of an undeleted
+     * 		map that has a version that is greater or equal to the mutation version
+     */
+    @SuppressWarnings("unchecked")
+    private void purgeMutation(
+            final long currentMapVersion,
+            final PurgingEvent<Long, LongMutation<V>> purgingEvent,
+            final Map<Long, Long> nextUndeletedVersionMap) {
+
+        // This is the mutation we want to purge, if possible.
+        final LongMutation<V> target = purgingEvent.mutation();
+
+        // This is the first undeleted map version that meets or exceeds the target mutation's version.
+        final long nextUndeletedVersion =
+                nextUndeletedVersionMap.getOrDefault(target.getVersion(), oldestMap.getVersion());
+
+        try (final Locked locked = modificationLock.lock()) {
+            final long key = purgingEvent.key();
+            final int slot = table.find(key);
+            final LongMutation<V> mutationHead = headAt(table, slot);
+            requireNonNull(
+                    mutationHead, "Mutation head must not be null, can't purge mutations if there are no mutations");
+
+            final LongMutation<V> next = target.getNext();
+            requireNonNull(next, "Next should not be null. Mutation being purged is the latest mutation.");
+
+            if (next.getVersion() <= nextUndeletedVersion) {
+                // The next mutation is visible to the next undeleted map, meaning the target
+                // mutation is unreachable and safe to purge.
+
+                next.setPrevious(target.getPrevious());
+                if (target.getPrevious() != null) {
+                    target.getPrevious().setNext(next);
+                }
+
+                // Readers of the mutable map and older maps may still be traversing the target, newer
+                // maps can't reach it any more
+                if (mutableMap != null) {
+                    mutationPool.release(target, mutableMap.getVersion() + 1);
+                }
+
+            } else {
+                // This mutation is currently visible to an undeleted map.
+                // Retry purging when that map is deleted.
+                if (!mapsNeedingPurging.get(nextUndeletedVersion).schedulePurging(key, target)) {
+                    // This should be impossible
+                    throw new IllegalStateException(("Unable to schedule purging for mutation with map version %d, "
+                                    + "this should not be possible, since map version %d is currently "
+                                    + "being purged and holds an exclusive lock.")
+                            .formatted(nextUndeletedVersion, currentMapVersion));
+                }
+            }
+
+            if (mutationHead.getValue() == null && mutationHead.getPrevious() == null) {
+                // If the last remaining mutation is a deletion record then it's safe to remove this key entirely.
+                setHead(slot, key, TOMBSTONE);
+            }
+        }
+    }
+
+    /**
+     * Delete a map from the family.
+     *
+     * @param mapVersion
+     * 		the version of the map that is being deleted.
+     * 		If the mutable version is deleted then no new copies are permitted.
+     */
+    public void releaseMap(final long mapVersion) {
+        try (final Locked locked = deletionLock.lock()) {
+            if (mutableMap == null || mutableMap.getVersion() == mapVersion) {
+                // Once the mutable copy has been released there is no point in doing any additional work.
+                // Once the maps are no longer referenced by anything the JVM garbage collector will clean things up.
+                mutableMap = null;
+                return;
+            }
+
+            final UnPurgedMap<Long, LongMutation<V>> mapToDelete = mapsNeedingPurging.remove(mapVersion);
+
+            if (mapToDelete == null) {
+                // This should be impossible.
+                throw new IllegalStateException("Map with version " + mapVersion + " does not exist");
+            }
+
+            mapToDelete.markAsPurged();
+
+            // Remove the map from the list of undeleted maps.
+            final UnPurgedMap<Long, LongMutation<V>> previous = mapToDelete.getPrevious();
+            final UnPurgedMap<Long, LongMutation<V>> next = mapToDelete.getNext();
+            if (previous != null) {
+                previous.setNext(next);
+            }
+            if (next != null) {
+                next.setPrevious(previous);
+            }
+
+            if (mapVersion == oldestMap.getVersion()) {
+                oldestMap = oldestMap.getNext();
+                oldestVersion = oldestMap.getVersion();
+            }
+
+            final Map<Long, Long> nextUndeletedVersionMap = buildNextUndeletedVersionMap();
+            for (final PurgingEvent<Long, LongMutation<V>> event : mapToDelete) {
+                purgeMutation(mapVersion, event, nextUndeletedVersionMap);
+            }
+        }
+    }
+
+    /**
+     * Get the number of purged mutations that are waiting to be reused.
+     */
+    public int getPooledMutationCount() {
+        try (final Locked locked = modificationLock.lock()) {
+            return mutationPool.size();
+        }
+    }
+}
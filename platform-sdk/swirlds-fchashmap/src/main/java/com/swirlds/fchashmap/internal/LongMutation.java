@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.fchashmap.internal;
+
+/**
+ * Represents a single modification of a {@link com.swirlds.fchashmap.FCLongHashMap FCLongHashMap}. Can be
+ * assembled into a linked list. Unlike {@link Mutation}, it may be reused once it's purged, see
+ * {@link MutationPool}.
+ *
+ * @param <V>
+ * 		the type of the value
+ */
+public final class LongMutation<V> {
+
+    /**
+     * The copy version when this mutation was performed. Only changes when a purged mutation is reused.
+     */
+    private long version;
+
+    /**
+     * The value after the mutation. A value of null signifies a deletion.
+     */
+    private V value;
+
+    /**
+     * The previous mutation in the linked list, or null if this mutation is the oldest unreleased mutation.
+     */
+    private LongMutation<V> previous;
+
+    /**
+     * The next mutation in the linked list, or null if this mutation is the newest mutation.
+     */
+    private LongMutation<V> next;
+
+    /**
+     * Create a mutation and add it to the front of the linked list.
+     *
+     * @param version
+     * 		the version of the mutation
+     * @param value
+     * 		the value of the mutation
+     * @param previous
+     * 		the previous mutation
+     */
+    LongMutation(final long version, final V value, final LongMutation<V> previous) {
+        reuse(version, value, previous);
+    }
+
+    /**
+     * Reinitialize a purged mutation and add it to the front of another linked list. Must only be called when
+     * no thread can be traversing this mutation any more.
+     *
+     * @param version
+     * 		the version of the mutation
+     * @param value
+     * 		the value of the mutation
+     * @param previous
+     * 		the previous mutation
+     */
+    void reuse(final long version, final V value, final LongMutation<V> previous) {
+        this.version = version;
+        this.value = value;
+        this.previous = previous;
+        this.next = null;
+        if (previous != null) {
+            previous.next = this;
+        }
+    }
+
+    /**
+     * Convert this mutation to a human-readable string. For debugging purposes.
+     */
+    public String toString() {
+        return "(version = " + version + ", value = " + (value == null ? "DELETED" : value) + ")";
+    }
+
+    /**
+     * Get the value held by the mutation. If null then this mutation signifies a deletion.
+     *
+     * @return the value held by this mutation
+     */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * Set the value held by this mutation.
+     *
+     * @param value
+     * 		the value of the mutation, or null if this mutation should signify a deletion
+     */
+    void setValue(final V value) {
+        this.value = value;
+    }
+
+    /**
+     * Get the version of the map when this mutation was created.
+     *
+     * @return the version of the mutation
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the mutation before this mutation, or null if this mutation is the oldest mutation
+     *
+     * @return the previous mutation
+     */
+    public LongMutation<V> getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Set the previous mutation before this mutation.
+     *
+     * @param previous
+     * 		the previous mutation
+     */
+    void setPrevious(final LongMutation<V> previous) {
+        this.previous = previous;
+    }
+
+    /**
+     * Get the next mutation, or null if this is the newest mutation.
+     *
+     * @return the next mutation
+     */
+    public LongMutation<V> getNext() {
+        return next;
+    }
+
+    /**
+     * Set the next mutation.
+     *
+     * @param next
+     * 		the next mutation
+     */
+    void setNext(final LongMutation<V> next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.fchashmap.internal;
+
+/**
+ * A pool of purged {@link LongMutation}s that can be reused for new mutations.
+ *
+ * <p>A purged mutation is unlinked from its list, but readers of older map copies may still be traversing
+ * it at that moment. Such readers always read the mutable copy at the time of purging or older copies, copies
+ * created after purging can't reach the mutation. So every pooled mutation is tagged with the version of the
+ * next copy after the mutable one, and it may only be reused after all copies older than that are released.
+ *
+ * <p>Mutations are released and acquired in version order, so the pool is a FIFO ring buffer. The pool is
+ * not thread safe, all calls must be externally synchronized.
+ *
+ * @param <V>
+ * 		the type of the values
+ */
+final class MutationPool<V> {
+
+    private final LongMutation<V>[] mutations;
+
+    private final long[] reusableVersions;
+
+    private int head;
+
+    private int count;
+
+    /**
+     * Create a new pool.
+     *
+     * @param capacity
+     * 		the max number of mutations to keep in the pool, mutations released to a full pool are dropped
+     */
+    @SuppressWarnings("unchecked")
+    MutationPool(final int capacity) {
+        mutations = new LongMutation[capacity];
+        reusableVersions = new long[capacity];
+    }
+
+    /**
+     * Add a purged mutation to the pool.
+     *
+     * @param mutation
+     * 		the mutation
+     * @param reusableVersion
+     * 		the mutation may be reused once the oldest unreleased copy has at least this version
+     */
+    void release(final LongMutation<V> mutation, final long reusableVersion) {
+        if (count == mutations.length) {
+            return;
+        }
+        final int index = (head + count) % mutations.length;
+        mutations[index] = mutation;
+        reusableVersions[index] = reusableVersion;
+        count++;
+    }
+
+    /**
+     * Take a mutation from the pool, if there is one that is safe to reuse.
+     *
+     * @param oldestVersion
+     * 		the version of the oldest unreleased map copy
+     * @return a mutation to reuse, or null if no mutations can be reused yet
+     */
+    LongMutation<V> acquire(final long oldestVersion) {
+        if (count == 0 || reusableVersions[head] > oldestVersion) {
+            return null;
+        }
+        final LongMutation<V> mutation = mutations[head];
+        mutations[head] = null;
+        head = (head + 1) % mutations.length;
+        count--;
+        return mutation;
+    }
+
+    /**
+     * Get the number of mutations in the pool.
+     */
+    int size() {
+        return count;
+    }
+}
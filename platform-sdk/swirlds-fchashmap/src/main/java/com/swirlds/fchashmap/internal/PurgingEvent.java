@@ -25,11 +25,11 @@ package com.swirlds.fchashmap.internal;
  * 		the mutation that requires purging
  * @param <K>
  * 		the type of the key
- * @param <V>
- * 		the type of the value
+ * @param <M>
+ * 		the type of the mutation
  */
-public record PurgingEvent<K, V>(K key, Mutation<V> mutation) {
+public record PurgingEvent<K, M>(K key, M mutation) {
     public String toString() {
-        return "[key = " + key + ", version = " + mutation.getVersion() + "]";
+        return "[key = " + key + ", mutation = " + mutation + "]";
     }
 }
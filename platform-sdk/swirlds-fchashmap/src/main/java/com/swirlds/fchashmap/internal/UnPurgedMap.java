@@ -23,8 +23,13 @@ import java.util.List;
 
 /**
  * Tracks an {@link FCHashMap} that has yet to be purged.
+ *
+ * @param <K>
+ * 		the type of the key
+ * @param <M>
+ * 		the type of the mutation
  */
-public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
+public class UnPurgedMap<K, M> implements Iterable<PurgingEvent<K, M>> {
 
     /**
      * The version of the map.
@@ -52,17 +57,17 @@ public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
     /**
      * The previous un-purged map.
      */
-    private UnPurgedMap<K, V> previous;
+    private UnPurgedMap<K, M> previous;
 
     /**
      * The next un-purged map.
      */
-    private UnPurgedMap<K, V> next;
+    private UnPurgedMap<K, M> next;
 
     /**
      * Keys that require garbage collection work when this copy of the map is purged.
      */
-    private final List<PurgingEvent<K, V>> purgingEvents = new LinkedList<>();
+    private final List<PurgingEvent<K, M>> purgingEvents = new LinkedList<>();
 
     /**
      * True if this map has been purged, or is in the process of being purged.
@@ -83,7 +88,7 @@ public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
      * Set the previous map that needs garbage collection,
      * or null if this is the oldest map that needs garbage collection.
      */
-    public void setPrevious(final UnPurgedMap<K, V> previous) {
+    public void setPrevious(final UnPurgedMap<K, M> previous) {
         this.previous = previous;
     }
 
@@ -91,7 +96,7 @@ public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
      * Get the previous map that needs garbage collection,
      * or null if this is the oldest map that needs garbage collection.
      */
-    public UnPurgedMap<K, V> getPrevious() {
+    public UnPurgedMap<K, M> getPrevious() {
         return previous;
     }
 
@@ -99,7 +104,7 @@ public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
      * Set the next map that needs garbage collection,
      * or null if this is the newest map that needs garbage collection.
      */
-    public UnPurgedMap<K, V> getNext() {
+    public UnPurgedMap<K, M> getNext() {
         return next;
     }
 
@@ -109,7 +114,7 @@ public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
      * @param next
      * 		the next map that needs garbage collection
      */
-    public void setNext(final UnPurgedMap<K, V> next) {
+    public void setNext(final UnPurgedMap<K, M> next) {
         this.next = next;
     }
 
@@ -130,7 +135,7 @@ public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
      * @return true if this copy will eventually garbage collect the key, false if this copy will not accept the key.
      * 		It's possible for a copy to not accept a key if it is being concurrently purged on another thread.
      */
-    public synchronized boolean schedulePurging(final K key, final Mutation<V> mutation) {
+    public synchronized boolean schedulePurging(final K key, final M mutation) {
         if (purged) {
             return false;
         }
@@ -149,7 +154,7 @@ public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
      * Get an iterator over the garbage collection events.
      */
     @Override
-    public Iterator<PurgingEvent<K, V>> iterator() {
+    public Iterator<PurgingEvent<K, M>> iterator() {
         return purgingEvents.iterator();
     }
 
@@ -160,7 +165,7 @@ public class UnPurgedMap<K, V> implements Iterable<PurgingEvent<K, V>> {
     public String toString() {
         final StringBuilder sb = new StringBuilder();
         sb.append("version ").append(version).append(", purge keys = ");
-        for (final PurgingEvent<K, V> event : purgingEvents) {
+        for (final PurgingEvent<K, M> event : purgingEvents) {
             sb.append(event).append(" ");
         }
         return sb.toString();
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.fchashmap;
+
+import static com.swirlds.common.test.fixtures.RandomUtils.getRandomPrintSeed;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.base.state.MutabilityException;
+import com.swirlds.common.test.fixtures.fcqueue.FCInt;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("FCLongHashMap Tests")
+class FCLongHashMapTests {
+
+    private static void assertMapEquality(final Map<Long, FCInt> expected, final FCLongHashMap<FCInt> actual) {
+        assertEquals(expected.size(), actual.size(), "Wrong size, version " + actual.getVersion());
+        for (final Map.Entry<Long, FCInt> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), actual.get(entry.getKey()), "Wrong value, key " + entry.getKey());
+        }
+        final Map<Long, FCInt> iterated = new HashMap<>();
+        actual.forEach((value, key) -> assertNull(iterated.put(key, value), "Duplicate key " + key));
+        assertEquals(expected, iterated, "Iteration must return the same entries");
+    }
+
+    @Test
+    @DisplayName("Basic Behavior")
+    void basicBehavior() {
+        final FCLongHashMap<FCInt> map = new FCLongHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, new FCInt(1)));
+        assertNull(map.put(-1, new FCInt(-1)));
+        assertEquals(new FCInt(1), map.put(1, new FCInt(2)));
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(-1));
+        assertFalse(map.containsKey(3));
+
+        final FCLongHashMap<FCInt> copy = map.copy();
+        assertTrue(map.isImmutable());
+        assertThrows(MutabilityException.class, () -> map.put(3, new FCInt(3)));
+        assertThrows(MutabilityException.class, () -> map.remove(1));
+
+        final ModifiableValue<FCInt> modifiable = copy.getForModify(1);
+        assertNotNull(modifiable);
+        assertNotSame(modifiable.original(), modifiable.value(), "Value must be copied in a new version");
+        modifiable.value().setValue(3);
+        assertSame(modifiable.value(), copy.getForModify(1).value(), "Value must be copied only once per version");
+        assertEquals(new FCInt(2), map.get(1), "Immutable copy must not change");
+        assertEquals(new FCInt(3), copy.get(1));
+
+        assertEquals(new FCInt(-1), copy.remove(-1));
+        assertNull(copy.remove(-1));
+        assertNull(copy.getForModify(-1));
+        assertEquals(1, copy.size());
+        assertEquals(new FCInt(-1), map.get(-1), "Immutable copy must not change");
+
+        map.release();
+        assertNull(copy.get(-1));
+        assertEquals(new FCInt(3), copy.get(1));
+        copy.release();
+    }
+
+    @Test
+    @DisplayName("Random Operations Match FCHashMap")
+    void randomOperations() {
+        final Random random = getRandomPrintSeed();
+        final int maxKey = 2_000;
+        final int copiesToKeep = 5;
+
+        final List<FCLongHashMap<FCInt>> copies = new ArrayList<>();
+        final List<Map<Long, FCInt>> expectedCopies = new ArrayList<>();
+        FCLongHashMap<FCInt> map = new FCLongHashMap<>();
+        Map<Long, FCInt> expected = new HashMap<>();
+
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 1_000; i++) {
+                final long key = random.nextInt(maxKey) * 1_000_003L;
+                final int op = random.nextInt(4);
+                if (op == 0) {
+                    assertEquals(expected.remove(key), map.remove(key));
+                } else if (op == 1) {
+                    final ModifiableValue<FCInt> modifiable = map.getForModify(key);
+                    assertEquals(expected.containsKey(key), modifiable != null);
+                    if (modifiable != null) {
+                        final int value = random.nextInt();
+                        modifiable.value().setValue(value);
+                        expected.put(key, new FCInt(value));
+                    }
+                } else {
+                    final int value = random.nextInt();
+                    assertEquals(expected.put(key, new FCInt(value)), map.put(key, new FCInt(value)));
+                }
+            }
+
+            final FCLongHashMap<FCInt> copy = map.copy();
+            copies.add(map);
+            expectedCopies.add(expected);
+            map = copy;
+            expected = new HashMap<>(expected);
+            if (copies.size() > copiesToKeep) {
+                final int index = random.nextInt(copies.size());
+                copies.remove(index).release();
+                expectedCopies.remove(index);
+            }
+
+            assertMapEquality(expected, map);
+            for (int i = 0; i < copies.size(); i++) {
+                assertMapEquality(expectedCopies.get(i), copies.get(i));
+            }
+        }
+
+        for (final FCLongHashMap<FCInt> copy : copies) {
+            copy.release();
+        }
+        assertMapEquality(expected, map);
+        map.release();
+    }
+
+    @Test
+    @DisplayName("Purged Mutations Are Reused")
+    void purgedMutationsAreReused() {
+        final FCLongHashMap<FCInt> map0 = new FCLongHashMap<>();
+        map0.put(1, new FCInt(1));
+        final FCLongHashMap<FCInt> map1 = map0.copy();
+        map1.put(1, new FCInt(2));
+        final FCLongHashMap<FCInt> map2 = map1.copy();
+        map2.put(1, new FCInt(3));
+
+        map0.release();
+        assertEquals(1, map2.getFamily().getPooledMutationCount(), "Mutation from map0 must be purged");
+        map2.put(2, new FCInt(2));
+        assertEquals(1, map2.getFamily().getPooledMutationCount(), "map1 may still be traversing the mutation");
+
+        map1.release();
+        map2.put(3, new FCInt(3));
+        assertEquals(2, map2.getFamily().getPooledMutationCount(), "map2 may still be traversing the mutations");
+
+        final FCLongHashMap<FCInt> map3 = map2.copy();
+        map2.release();
+        map3.put(4, new FCInt(4));
+        assertEquals(1, map3.getFamily().getPooledMutationCount(), "A pooled mutation must be reused");
+
+        assertEquals(new FCInt(3), map3.get(1));
+        assertEquals(new FCInt(2), map3.get(2));
+        assertEquals(new FCInt(3), map3.get(3));
+        assertEquals(new FCInt(4), map3.get(4));
+        assertEquals(4, map3.size());
+        map3.release();
+    }
+
+    @Test
+    @DisplayName("Readers Of Immutable Copies Run Concurrently With The Writer")
+    void concurrentReaders() throws InterruptedException {
+        final int keys = 10_000;
+        final FCLongHashMap<FCInt> original = new FCLongHashMap<>();
+        for (int i = 0; i < keys; i++) {
+            original.put(i, new FCInt(i));
+        }
+        final FCLongHashMap<FCInt> copy = original.copy();
+
+        final List<Throwable> errors = new ArrayList<>();
+        final List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread reader = new Thread(() -> {
+                for (int round = 0; round < 10; round++) {
+                    for (int i = 0; i < keys; i++) {
+                        assertEquals(new FCInt(i), original.get(i));
+                    }
+                }
+            });
+            reader.setUncaughtExceptionHandler((th, ex) -> {
+                synchronized (errors) {
+                    errors.add(ex);
+                }
+            });
+            readers.add(reader);
+        }
+        readers.forEach(Thread::start);
+
+        // Removals leave tombstones, new keys grow the table, both force table rebuilds
+        for (int i = 0; i < keys; i++) {
+            copy.remove(i);
+            copy.put(keys + i, new FCInt(-i));
+        }
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(errors.isEmpty(), "Readers must see the immutable copy unchanged");
+        assertEquals(keys, copy.size());
+        assertEquals(new FCInt(-5), copy.get(keys + 5));
+
+        original.release();
+        copy.release();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.fcqueue;
+
+import com.swirlds.common.FastCopyable;
+import com.swirlds.common.test.fixtures.fcqueue.FCInt;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link FCQueue} with {@link ConcurrentFCQueue} when a single writer thread appends to and polls from
+ * the mutable queue, while multiple reader threads iterate over either an immutable copy or the mutable queue
+ * itself. Reader and writer results are reported separately per group.
+ */
+@State(Scope.Group)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FCQueueConcurrencyBench {
+
+    private static final int READERS = 7;
+
+    @Param({"FCQueue", "ConcurrentFCQueue"})
+    public String queueType;
+
+    @Param({"1000"})
+    public int queueSize;
+
+    private Queue<FCInt> immutable;
+    private Queue<FCInt> mutable;
+
+    private int nextValue;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        final Queue<FCInt> queue =
+                switch (queueType) {
+                    case "FCQueue" -> new FCQueue<>();
+                    case "ConcurrentFCQueue" -> new ConcurrentFCQueue<>();
+                    default -> throw new IllegalArgumentException("Unknown queue type: " + queueType);
+                };
+        for (nextValue = 0; nextValue < queueSize; nextValue++) {
+            queue.add(new FCInt(nextValue));
+        }
+        immutable = queue;
+        mutable = (Queue<FCInt>) ((FastCopyable) queue).copy();
+    }
+
+    private void write() {
+        mutable.add(new FCInt(nextValue++));
+        mutable.poll();
+    }
+
+    private static long read(final Queue<FCInt> queue) {
+        long sum = queue.size();
+        for (final FCInt value : queue) {
+            sum += value.getValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Group("immutableReads")
+    @GroupThreads(1)
+    public void immutableReadsWriter() {
+        write();
+    }
+
+    @Benchmark
+    @Group("immutableReads")
+    @GroupThreads(READERS)
+    public long immutableReadsReader() {
+        return read(immutable);
+    }
+
+    @Benchmark
+    @Group("mutableReads")
+    @GroupThreads(1)
+    public void mutableReadsWriter() {
+        write();
+    }
+
+    @Benchmark
+    @Group("mutableReads")
+    @GroupThreads(READERS)
+    public long mutableReadsReader() {
+        return read(mutable);
+    }
+}
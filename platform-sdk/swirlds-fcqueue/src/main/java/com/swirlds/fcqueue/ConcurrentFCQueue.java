@@ -0,0 +1,534 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.fcqueue;
+
+import com.swirlds.common.FastCopyable;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.crypto.ImmutableHash;
+import com.swirlds.common.crypto.SerializableHashable;
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.merkle.MerkleLeaf;
+import com.swirlds.common.merkle.impl.PartialMerkleLeaf;
+import com.swirlds.fcqueue.FCQueue.Node;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A fast-copyable queue with the same semantics and the same hash as {@link FCQueue}, but without locks.
+ *
+ * <p>{@link FCQueue} synchronizes every method, so all readers of a queue contend on a single monitor with
+ * each other and with the writer, even though most of the readers work with immutable copies. This queue is
+ * built for one writer and many readers instead:
+ *
+ * <ul>
+ *     <li>All modifying methods ({@link #add(FastCopyable)}, {@link #remove()}, {@link #clear()},
+ *     {@link #copy()} and so on) must be called by a single thread at a time. Nothing checks it, concurrent
+ *     modifications result in lost elements.</li>
+ *     <li>All read methods may be called from any number of threads without any synchronization, both on
+ *     immutable copies and on the mutable queue, concurrently with the writer. Reads on the mutable queue
+ *     observe the queue as of some recent modification.</li>
+ * </ul>
+ *
+ * <p>The head, the tail and the size of the queue are kept in a single immutable {@link State} object, which
+ * is replaced with a volatile write after each modification. Nodes are only ever appended after the tail,
+ * so a reader that captured a state can walk from its head to its tail while the writer keeps appending.
+ * Every reader works with one consistent snapshot, for example, {@link #serialize(SerializableDataOutputStream)}
+ * writes exactly as many elements as the size it writes.
+ *
+ * <p>Queue hashes are incremental rolling hashes shared with {@link FCQueue}, see
+ * {@link FCQueue#computeHash(Node, Node, int, AtomicReference, java.util.function.Function)}. Hashes of
+ * immutable copies are computed once and cached.
+ *
+ * @param <E>
+ * 		the type of elements in the queue
+ */
+public class ConcurrentFCQueue<E extends FastCopyable & SerializableHashable> extends PartialMerkleLeaf
+        implements Queue<E>, MerkleLeaf {
+
+    private static class ClassVersion {
+        public static final int ORIGINAL = 1;
+    }
+
+    /** Object identifier of this class (random int). Do NOT change when the class changes its code/name/version. */
+    public static final long CLASS_ID = 582960213757L;
+
+    /**
+     * An immutable snapshot of the queue. The immutability flag is a part of the snapshot, so readers never
+     * cache a hash of a state that is still being modified.
+     *
+     * @param head
+     * 		the head of the queue, inclusive
+     * @param tail
+     * 		the tail of the queue, exclusive
+     * @param size
+     * 		the number of elements in the queue
+     * @param immutable
+     * 		whether the queue is immutable and the state is final
+     */
+    private record State<E extends FastCopyable>(Node<E> head, Node<E> tail, int size, boolean immutable) {}
+
+    /** the current state of this queue, replaced by the writer after every modification */
+    private volatile State<E> state;
+
+    /** the first unhashed node, shared between queues in a group */
+    private final AtomicReference<Node<E>> unhashed;
+
+    /** the hash of this queue once it becomes immutable */
+    private volatile ImmutableHash hash;
+
+    /**
+     * Instantiates a new empty queue which doesn't require deserialization
+     */
+    public ConcurrentFCQueue() {
+        final Node<E> node = new Node<>();
+        node.runningHash = new long[FCQueue.DIGEST_TYPE.digestLength() / Long.BYTES];
+        state = new State<>(node, node, 0, false);
+        unhashed = new AtomicReference<>(node);
+    }
+
+    /** Instantiate a mutable copy of the given queue. */
+    private ConcurrentFCQueue(final ConcurrentFCQueue<E> queue, final State<E> state) {
+        super(queue);
+        this.state = new State<>(state.head, state.tail, state.size, false);
+        unhashed = queue.unhashed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Hash getHash() {
+        ImmutableHash result = hash;
+        if (result != null) {
+            return result;
+        }
+
+        final State<E> current = state;
+        if (current.head == null) {
+            return FCQueue.NULL_HASH;
+        }
+        // Multiple threads may compute the same hash concurrently, all of them get identical results
+        result = FCQueue.computeHash(current.head, current.tail, current.size, unhashed, FCQueue::hashElement);
+        if (current.immutable) {
+            hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setHash(final Hash hash) {
+        throw new UnsupportedOperationException("ConcurrentFCQueue computes its own hash");
+    }
+
+    @Override
+    public boolean isSelfHashing() {
+        return true;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////////////
+    // modifications, single writer thread only
+    //////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Appends the element to the tail of this queue. Must be called by the writer thread only.
+     *
+     * @param element
+     * 		the element to add
+     * @return {@code true}
+     * @throws IllegalStateException
+     * 		if the queue is immutable or has reached {@link FCQueue#MAX_ELEMENTS}
+     * @throws NullPointerException
+     * 		if the element is null
+     */
+    @Override
+    public boolean add(final E element) {
+        final State<E> current = state;
+        if (current.immutable) {
+            throw new IllegalStateException("tried to modify an immutable ConcurrentFCQueue");
+        }
+
+        if (element == null) {
+            throw new NullPointerException("tried to add a null element into a ConcurrentFCQueue");
+        }
+
+        if (current.size >= FCQueue.MAX_ELEMENTS) {
+            throw new IllegalStateException(String.format(
+                    "tried to add an element to a ConcurrentFCQueue whose size has reached MAX_ELEMENTS: %d",
+                    FCQueue.MAX_ELEMENTS));
+        }
+
+        // Readers of the current state and of older copies never look at the tail node contents. The state
+        // volatile write below publishes the element and the new node to readers of the new state
+        final Node<E> oldTail = current.tail;
+        final Node<E> newTail = new Node<>();
+        oldTail.element = element;
+        oldTail.next = newTail;
+        state = new State<>(current.head, newTail, current.size + 1, false);
+
+        return true;
+    }
+
+    /**
+     * Removes the head of this queue. Must be called by the writer thread only.
+     *
+     * @return the head of this queue
+     * @throws IllegalStateException
+     * 		if the queue is immutable
+     * @throws NoSuchElementException
+     * 		if the queue is empty
+     */
+    @Override
+    public E remove() {
+        final State<E> current = state;
+        if (current.immutable) {
+            throw new IllegalStateException("tried to remove from an immutable ConcurrentFCQueue");
+        }
+
+        if (current.size == 0) {
+            throw new NoSuchElementException("tried to remove from an empty ConcurrentFCQueue");
+        }
+
+        final E element = current.head.element;
+        state = new State<>(current.head.next, current.tail, current.size - 1, false);
+
+        return element;
+    }
+
+    /**
+     * Same as {@link #add(FastCopyable)}. Must be called by the writer thread only.
+     */
+    @Override
+    public boolean offer(final E element) {
+        return add(element);
+    }
+
+    /**
+     * Removes the head of this queue, if any. Must be called by the writer thread only.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    @Override
+    public E poll() {
+        if (state.size == 0) {
+            return null;
+        }
+
+        return remove();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addAll(final Collection<? extends E> c) {
+        for (final E e : c) {
+            add(e);
+        }
+
+        return !c.isEmpty();
+    }
+
+    /**
+     * Removes all of the elements from this queue. Must be called by the writer thread only.
+     */
+    @Override
+    public void clear() {
+        throwIfImmutable();
+
+        final State<E> current = state;
+        state = new State<>(current.tail, current.tail, 0, false);
+    }
+
+    /**
+     * Makes a mutable fast copy of this queue, this queue becomes immutable. Must be called by the writer
+     * thread only, the copy may then be handed over to a different writer thread.
+     *
+     * @return the mutable copy
+     */
+    @Override
+    public ConcurrentFCQueue<E> copy() {
+        final State<E> current = state;
+        if (current.immutable) {
+            throw new IllegalStateException("Tried to make a copy of an immutable ConcurrentFCQueue");
+        }
+
+        final ConcurrentFCQueue<E> queue = new ConcurrentFCQueue<>(this, current);
+
+        // there can be only one mutable per queue group. If the copy is, then this isn't.
+        state = new State<>(current.head, current.tail, current.size, true);
+        setImmutable(true);
+
+        return queue;
+    }
+
+    @Override
+    protected void destroyNode() {
+        setImmutable(true);
+        state = new State<>(null, null, 0, true);
+        hash = FCQueue.NULL_HASH;
+    }
+
+    /**
+     * This operation is not supported, elements can only be removed from the head.
+     *
+     * @throws UnsupportedOperationException
+     * 		always
+     */
+    @Override
+    public boolean remove(final Object o) {
+        throw new UnsupportedOperationException(
+                "ConcurrentFCQueue allows removal only from the head, not arbitrary removals");
+    }
+
+    /**
+     * This operation is not supported, elements can only be removed from the head.
+     *
+     * @throws UnsupportedOperationException
+     * 		always
+     */
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        throw new UnsupportedOperationException("ConcurrentFCQueue can only remove from the head");
+    }
+
+    /**
+     * This operation is not supported, elements can only be removed from the head.
+     *
+     * @throws UnsupportedOperationException
+     * 		always
+     */
+    @Override
+    public boolean retainAll(final Collection<?> c) {
+        throw new UnsupportedOperationException("ConcurrentFCQueue can only remove from the head");
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////////////
+    // reads, any thread
+    //////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E element() {
+        final State<E> current = state;
+        if (current.size == 0) {
+            throw new NoSuchElementException("tried to get the head of an empty ConcurrentFCQueue");
+        }
+
+        return current.head.element;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E peek() {
+        final State<E> current = state;
+        if (current.size == 0) {
+            return null;
+        }
+
+        return current.head.element;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return state.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return state.size == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final Object o) {
+        for (final E e : this) {
+            if (Objects.equals(o, e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsAll(final Collection<?> c) {
+        for (final Object e : c) {
+            if (!contains(e)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue, in insertion order (head first, tail last). The
+     * iterator provides a snapshot view of the queue at the time of iterator creation.
+     *
+     * @return an {@code Iterator} over the elements in this collection
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return iterator(state);
+    }
+
+    private static <E extends FastCopyable> Iterator<E> iterator(final State<E> snapshot) {
+        return new Iterator<>() {
+            Node<E> cur = snapshot.head;
+            final Node<E> end = snapshot.tail;
+
+            @Override
+            public boolean hasNext() {
+                return cur != end;
+            }
+
+            @Override
+            public E next() {
+                if (cur == null || cur == end) {
+                    throw new NoSuchElementException();
+                }
+
+                final E result = cur.element;
+                cur = cur.next;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in reverse insertion order (tail first, head last).
+     *
+     * @return an {@code Iterator} over the elements in this collection in reverse order
+     */
+    public Iterator<E> reverseIterator() {
+        final ArrayList<E> list = new ArrayList<>(this);
+        Collections.reverse(list);
+        return list.iterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] toArray() {
+        final State<E> snapshot = state;
+        final Object[] result = new Object[snapshot.size];
+        int i = 0;
+        for (final Iterator<E> it = iterator(snapshot); it.hasNext(); ) {
+            result[i++] = it.next();
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        final State<E> snapshot = state;
+        if (a.length < snapshot.size) {
+            a = (T[]) Array.newInstance(a.getClass().getComponentType(), snapshot.size);
+        } else if (a.length > snapshot.size) {
+            a[snapshot.size] = null;
+        }
+        int i = 0;
+        for (final Iterator<E> it = iterator(snapshot); it.hasNext(); ) {
+            a[i++] = (T) it.next();
+        }
+        return a;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final ConcurrentFCQueue<?> other = (ConcurrentFCQueue<?>) o;
+
+        return size() == other.size() && Objects.equals(getHash(), other.getHash());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(size());
+        result = 31 * result + Objects.hashCode(getHash());
+        return result;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////////////
+    // serialization
+    //////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void serialize(final SerializableDataOutputStream dos) throws IOException {
+        final State<E> snapshot = state;
+        dos.writeSerializableIterableWithSize(iterator(snapshot), snapshot.size, true, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deserialize(final SerializableDataInputStream dis, final int version) throws IOException {
+        dis.readSerializableIterableWithSize(FCQueue.MAX_ELEMENTS, this::add);
+    }
+
+    @Override
+    public long getClassId() {
+        return CLASS_ID;
+    }
+
+    @Override
+    public int getVersion() {
+        return ClassVersion.ORIGINAL;
+    }
+}
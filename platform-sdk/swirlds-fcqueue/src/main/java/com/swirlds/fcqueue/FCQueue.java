@@ -40,6 +40,7 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * A threadsafe fast-copyable queue, each of whose elements is fast-copyable. Elements must always be inserted at the
@@ -84,12 +85,12 @@ public class FCQueue<E extends FastCopyable & SerializableHashable> extends Part
     public static final int MAX_ELEMENTS = 100_000_000;
 
     /** The digest type used by FCQ */
-    private static final DigestType DIGEST_TYPE = DigestType.SHA_384;
+    static final DigestType DIGEST_TYPE = DigestType.SHA_384;
 
     private static final long HASH_RADIX = 3;
 
     /** A hash value representing a null element or a destroyed queue */
-    private static final ImmutableHash NULL_HASH = new ImmutableHash(new byte[DIGEST_TYPE.digestLength()]);
+    static final ImmutableHash NULL_HASH = new ImmutableHash(new byte[DIGEST_TYPE.digestLength()]);
 
     /** the number of elements in this queue */
     private int size;
@@ -193,13 +194,39 @@ public class FCQueue<E extends FastCopyable & SerializableHashable> extends Part
      * threads.</p>
      */
     private ImmutableHash computeHash() {
+        return computeHash(head, tail, size, unhashed, this::getHash);
+    }
+
+    /**
+     * Computes the rolling hash of a queue with the given head, tail and size, see {@link #computeHash()}. This
+     * method doesn't depend on any queue state other than its arguments and doesn't need any locks, so it's shared
+     * with {@link ConcurrentFCQueue}.
+     *
+     * @param head
+     * 		the head of the queue, inclusive
+     * @param tail
+     * 		the tail of the queue, exclusive
+     * @param size
+     * 		the number of elements between head and tail
+     * @param unhashed
+     * 		the first unhashed node in the queue group
+     * @param elementHasher
+     * 		the function to compute element hashes
+     * @return the queue hash
+     */
+    static <E extends FastCopyable> ImmutableHash computeHash(
+            final Node<E> head,
+            final Node<E> tail,
+            final int size,
+            final AtomicReference<Node<E>> unhashed,
+            final Function<E, byte[]> elementHasher) {
         // Ensure we have tail's running hash
         if (tail.runningHash == null) {
             Node<E> node = unhashed.get();
             while (tail.runningHash == null) {
                 final Node<E> next = node.next;
                 if (next.runningHash == null) {
-                    final byte[] elementHash = getHash(node.element);
+                    final byte[] elementHash = elementHasher.apply(node.element);
                     final long[] runningHash = node.runningHash.clone();
                     for (int i = 0; i < runningHash.length; ++i) {
                         runningHash[i] = runningHash[i] * HASH_RADIX + byteArrayToLong(elementHash, i * Long.BYTES);
@@ -799,6 +826,17 @@ public class FCQueue<E extends FastCopyable & SerializableHashable> extends Part
      * @return the 48-byte hash of the element (zero byte array if element is null)
      */
     byte[] getHash(final E element) {
+        return hashElement(element);
+    }
+
+    /**
+     * Find the hash of a FastCopyable object, see {@link #getHash(FastCopyable)}.
+     *
+     * @param element
+     * 		the element to hash, may be null
+     * @return the 48-byte hash of the element (zero byte array if element is null)
+     */
+    static <E extends SerializableHashable> byte[] hashElement(final E element) {
         // Handle cases where list methods return null if the list is empty
         if (element == null) {
             return NULL_HASH.getValue();
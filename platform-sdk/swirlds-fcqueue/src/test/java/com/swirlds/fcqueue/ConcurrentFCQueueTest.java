@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.fcqueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.constructable.ConstructableRegistry;
+import com.swirlds.common.constructable.ConstructableRegistryException;
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.test.fixtures.fcqueue.FCInt;
+import com.swirlds.test.framework.TestComponentTags;
+import com.swirlds.test.framework.TestTypeTags;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ConcurrentFCQueue Tests")
+class ConcurrentFCQueueTest {
+
+    @BeforeAll
+    public static void setUp() throws ConstructableRegistryException {
+        final ConstructableRegistry registry = ConstructableRegistry.getInstance();
+        registry.registerConstructables("com.swirlds.fcqueue");
+        registry.registerConstructables("com.swirlds.common.merkle");
+        registry.registerConstructables("com.swirlds.common.test.fixtures.fcqueue");
+    }
+
+    @Test
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.FCQUEUE)
+    @DisplayName("Hashes match FCQueue hashes after random adds, removes and copies")
+    void hashesMatchFCQueue() {
+        final Random random = new Random(42);
+        FCQueue<FCInt> expected = new FCQueue<>();
+        ConcurrentFCQueue<FCInt> actual = new ConcurrentFCQueue<>();
+        assertEquals(expected.getHash(), actual.getHash(), "Empty queue hashes must match");
+
+        for (int i = 0; i < 2000; i++) {
+            final int op = random.nextInt(10);
+            if (op < 6) {
+                final int value = random.nextInt();
+                expected.add(new FCInt(value));
+                actual.add(new FCInt(value));
+            } else if (op < 9) {
+                assertEquals(expected.poll(), actual.poll());
+            } else {
+                final FCQueue<FCInt> expectedCopy = expected.copy();
+                final ConcurrentFCQueue<FCInt> actualCopy = actual.copy();
+                assertTrue(actual.isImmutable());
+                assertEquals(expected.getHash(), actual.getHash(), "Immutable copy hashes must match");
+                expected.release();
+                actual.release();
+                expected = expectedCopy;
+                actual = actualCopy;
+            }
+            assertEquals(expected.size(), actual.size());
+            if (i % 100 == 0) {
+                assertEquals(expected.getHash(), actual.getHash(), "Hashes must match, step " + i);
+            }
+        }
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+    }
+
+    @Test
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.FCQUEUE)
+    @DisplayName("Immutable copies are not affected by the writer")
+    void readersOfImmutableCopy() throws InterruptedException {
+        final int size = 10_000;
+        final ConcurrentFCQueue<FCInt> original = new ConcurrentFCQueue<>();
+        for (int i = 0; i < size; i++) {
+            original.add(new FCInt(i));
+        }
+        final ConcurrentFCQueue<FCInt> copy = original.copy();
+        final Hash originalHash = original.getHash();
+
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread reader = new Thread(() -> {
+                for (int round = 0; round < 20; round++) {
+                    final Iterator<FCInt> iterator = original.iterator();
+                    for (int i = 0; i < size; i++) {
+                        assertEquals(i, iterator.next().getValue());
+                    }
+                    assertFalse(iterator.hasNext());
+                    assertEquals(size, original.size());
+                    assertEquals(originalHash, original.getHash());
+                }
+            });
+            reader.setUncaughtExceptionHandler((th, ex) -> error.set(ex));
+            readers.add(reader);
+        }
+        final Thread writer = new Thread(() -> {
+            for (int i = 0; i < size; i++) {
+                copy.remove();
+                copy.add(new FCInt(size + i));
+            }
+        });
+        writer.setUncaughtExceptionHandler((th, ex) -> error.set(ex));
+
+        readers.forEach(Thread::start);
+        writer.start();
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        writer.join();
+        assertNull(error.get(), "Readers and the writer must not fail");
+
+        assertEquals(size, copy.size());
+        assertEquals(size, copy.peek().getValue());
+        assertNotEquals(originalHash, copy.getHash());
+        assertThrows(IllegalStateException.class, original::copy);
+        assertThrows(IllegalStateException.class, () -> original.add(new FCInt(0)));
+        assertThrows(IllegalStateException.class, original::remove);
+    }
+
+    @Test
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.FCQUEUE)
+    @DisplayName("Serialize and deserialize")
+    void serializeAndDeserialize() throws IOException {
+        final ConcurrentFCQueue<FCInt> queue = new ConcurrentFCQueue<>();
+        for (int i = 0; i < 100; i++) {
+            queue.add(new FCInt(i));
+        }
+        queue.remove();
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (final SerializableDataOutputStream dos = new SerializableDataOutputStream(bos)) {
+            dos.writeSerializable(queue, true);
+        }
+        final ConcurrentFCQueue<FCInt> recovered;
+        try (final SerializableDataInputStream dis =
+                new SerializableDataInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            recovered = dis.readSerializable();
+        }
+
+        assertEquals(99, recovered.size());
+        assertEquals(new ArrayList<>(queue), new ArrayList<>(recovered));
+        assertEquals(queue, recovered);
+    }
+}
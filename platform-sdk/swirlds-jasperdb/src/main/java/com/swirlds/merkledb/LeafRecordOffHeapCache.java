@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb;
+
+import com.swirlds.merkledb.collections.OffHeapUser;
+import com.swirlds.merkledb.files.VirtualLeafRecordSerializer;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded off-heap cache of serialized virtual leaf records. Records are stored in fixed size
+ * slots in direct byte buffers, so cached records don't occupy Java heap. Records that don't fit
+ * into a slot are not cached.
+ *
+ * <p>The cache is set-associative. Every record path is mapped to a set of {@link #WAYS} slots,
+ * and within a set, slots are evicted using CLOCK (second chance) algorithm. Records can be looked
+ * up by path, or by key. Lookups by key use a separate set-associative index from key hash codes
+ * to paths.
+ *
+ * <p>The cache is read-through: records are put to the cache after they are read from disk. When
+ * records are changed, they must be invalidated using {@link #invalidate(long, VirtualKey)}. To
+ * avoid a race, when a stale record read from disk before invalidation is put to the cache after
+ * invalidation, every {@link #put(VirtualLeafRecord, long)} call must provide the cache generation
+ * obtained by {@link #generation()} before the record was read from disk. If any records were
+ * invalidated since then, the put is ignored.
+ *
+ * @param <K> virtual key type
+ * @param <V> virtual value type
+ */
+final class LeafRecordOffHeapCache<K extends VirtualKey, V extends VirtualValue> implements OffHeapUser {
+
+    /** Number of slots in a single set */
+    static final int WAYS = 8;
+
+    /** Max size of a single direct byte buffer used to store slots */
+    private static final int MAX_BUFFER_SIZE = 1 << 30;
+
+    /** Number of locks to guard sets */
+    private static final int LOCK_STRIPES = 1024;
+
+    /** Marks an empty slot or key index entry */
+    private static final long EMPTY = -1;
+
+    /** Serializer to convert leaf records to bytes and back */
+    private final VirtualLeafRecordSerializer<K, V> serializer;
+
+    /** Size of a single slot, in bytes. Records larger than this are not cached */
+    private final int slotSize;
+
+    /** Number of sets */
+    private final int setCount;
+
+    /** Number of sets stored in a single direct byte buffer */
+    private final int setsPerBuffer;
+
+    /** Direct byte buffers to store slots */
+    private final ByteBuffer[] buffers;
+
+    /** Record paths by slot, or {@link #EMPTY} */
+    private final long[] slotPaths;
+
+    /** Serialized record sizes by slot */
+    private final int[] slotSizes;
+
+    /** CLOCK reference bits by slot */
+    private final boolean[] slotReferenced;
+
+    /** CLOCK hands by set */
+    private final int[] clockHands;
+
+    /** Key index: key hash codes */
+    private final int[] keyHashes;
+
+    /** Key index: record paths, or {@link #EMPTY} */
+    private final long[] keyPaths;
+
+    /** Key index: next entry to replace by set */
+    private final int[] keyHands;
+
+    /** Locks to guard slots and key index sets */
+    private final Object[] locks;
+
+    /** Cache generation, incremented on every invalidation */
+    private final AtomicLong generation = new AtomicLong(0);
+
+    /** Buffer to serialize records before they are copied to slots */
+    private final ThreadLocal<ByteBuffer> serializationBuffer;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param serializer leaf record serializer
+     * @param capacityBytes cache capacity, in bytes
+     * @param slotSize size of a single slot, in bytes
+     */
+    LeafRecordOffHeapCache(
+            final VirtualLeafRecordSerializer<K, V> serializer, final long capacityBytes, final int slotSize) {
+        if (slotSize <= 0 || slotSize > MAX_BUFFER_SIZE / WAYS) {
+            throw new IllegalArgumentException("Invalid slot size: " + slotSize);
+        }
+        this.serializer = serializer;
+        this.slotSize = slotSize;
+        final long sets = capacityBytes / ((long) slotSize * WAYS);
+        if (sets <= 0 || sets > Integer.MAX_VALUE / WAYS) {
+            throw new IllegalArgumentException("Invalid cache capacity: " + capacityBytes);
+        }
+        setCount = (int) sets;
+        setsPerBuffer = MAX_BUFFER_SIZE / (slotSize * WAYS);
+        final int bufferCount = (setCount + setsPerBuffer - 1) / setsPerBuffer;
+        buffers = new ByteBuffer[bufferCount];
+        for (int i = 0; i < bufferCount; i++) {
+            final int setsInBuffer = Math.min(setsPerBuffer, setCount - i * setsPerBuffer);
+            buffers[i] = ByteBuffer.allocateDirect(setsInBuffer * WAYS * slotSize);
+        }
+        final int slotCount = setCount * WAYS;
+        slotPaths = new long[slotCount];
+        Arrays.fill(slotPaths, EMPTY);
+        slotSizes = new int[slotCount];
+        slotReferenced = new boolean[slotCount];
+        clockHands = new int[setCount];
+        keyHashes = new int[slotCount];
+        keyPaths = new long[slotCount];
+        Arrays.fill(keyPaths, EMPTY);
+        keyHands = new int[setCount];
+        locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        serializationBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(slotSize));
+    }
+
+    /**
+     * Get the current cache generation. It must be called before a record is read from disk, and
+     * then provided to {@link #put(VirtualLeafRecord, long)}.
+     *
+     * @return cache generation
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Looks up a leaf record by path.
+     *
+     * @param path leaf path
+     * @return the cached record, or {@code null} if not found in the cache
+     * @throws IOException if the cached record can't be deserialized
+     */
+    VirtualLeafRecord<K, V> getByPath(final long path) throws IOException {
+        final int set = setForPath(path);
+        final byte[] bytes;
+        synchronized (lockForSet(set)) {
+            final int slot = findSlot(set, path);
+            if (slot < 0) {
+                return null;
+            }
+            slotReferenced[slot] = true;
+            bytes = new byte[slotSizes[slot]];
+            bufferForSet(set).get(slotOffset(set, slot), bytes);
+        }
+        return serializer.deserialize(ByteBuffer.wrap(bytes), serializer.getCurrentDataVersion());
+    }
+
+    /**
+     * Looks up a leaf record by key.
+     *
+     * @param key leaf key
+     * @return the cached record, or {@code null} if not found in the cache
+     * @throws IOException if the cached record can't be deserialized
+     */
+    VirtualLeafRecord<K, V> getByKey(final K key) throws IOException {
+        final int keyHash = key.hashCode();
+        final int set = setForKeyHash(keyHash);
+        long path = EMPTY;
+        synchronized (lockForSet(set)) {
+            for (int i = set * WAYS; i < (set + 1) * WAYS; i++) {
+                if (keyPaths[i] != EMPTY && keyHashes[i] == keyHash) {
+                    path = keyPaths[i];
+                    break;
+                }
+            }
+        }
+        if (path == EMPTY) {
+            return null;
+        }
+        final VirtualLeafRecord<K, V> leafRecord = getByPath(path);
+        // Different keys may have the same hash code
+        return (leafRecord != null) && key.equals(leafRecord.getKey()) ? leafRecord : null;
+    }
+
+    /**
+     * Puts a leaf record read from disk to the cache. If any records were invalidated after the
+     * given generation was obtained, the record isn't cached.
+     *
+     * @param leafRecord the record to cache
+     * @param readGeneration cache generation obtained before the record was read from disk
+     * @return true if another record was evicted from the cache to store this one
+     * @throws IOException if the record can't be serialized
+     */
+    boolean put(final VirtualLeafRecord<K, V> leafRecord, final long readGeneration) throws IOException {
+        final ByteBuffer buffer = serializationBuffer.get();
+        buffer.clear();
+        try {
+            serializer.serialize(leafRecord, buffer);
+        } catch (final BufferOverflowException e) {
+            // The record is too large to be cached
+            return false;
+        }
+        final int size = buffer.position();
+        final long path = leafRecord.getPath();
+        final int set = setForPath(path);
+        boolean evicted = false;
+        synchronized (lockForSet(set)) {
+            if (generation.get() != readGeneration) {
+                return false;
+            }
+            int slot = findSlot(set, path);
+            if (slot < 0) {
+                slot = findFreeSlot(set);
+            }
+            if (slot < 0) {
+                slot = evictSlot(set);
+                evicted = true;
+            }
+            slotPaths[slot] = path;
+            slotSizes[slot] = size;
+            slotReferenced[slot] = false;
+            bufferForSet(set).put(slotOffset(set, slot), buffer.array(), 0, size);
+        }
+        putKeyPath(leafRecord.getKey().hashCode(), path, readGeneration);
+        return evicted;
+    }
+
+    /**
+     * Invalidates a leaf record, both by path and by key. It must be called whenever a leaf with
+     * the given path or key is changed or deleted.
+     *
+     * @param path leaf path
+     * @param key leaf key
+     */
+    void invalidate(final long path, final K key) {
+        generation.incrementAndGet();
+        final int set = setForPath(path);
+        synchronized (lockForSet(set)) {
+            final int slot = findSlot(set, path);
+            if (slot >= 0) {
+                slotPaths[slot] = EMPTY;
+            }
+        }
+        final int keyHash = key.hashCode();
+        final int keySet = setForKeyHash(keyHash);
+        synchronized (lockForSet(keySet)) {
+            for (int i = keySet * WAYS; i < (keySet + 1) * WAYS; i++) {
+                if (keyHashes[i] == keyHash) {
+                    keyPaths[i] = EMPTY;
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getOffHeapConsumption() {
+        long total = 0;
+        for (final ByteBuffer buffer : buffers) {
+            total += buffer.capacity();
+        }
+        return total;
+    }
+
+    private void putKeyPath(final int keyHash, final long path, final long readGeneration) {
+        final int set = setForKeyHash(keyHash);
+        synchronized (lockForSet(set)) {
+            if (generation.get() != readGeneration) {
+                return;
+            }
+            int entry = -1;
+            for (int i = set * WAYS; i < (set + 1) * WAYS; i++) {
+                if (keyPaths[i] == EMPTY || keyHashes[i] == keyHash) {
+                    entry = i;
+                    break;
+                }
+            }
+            if (entry < 0) {
+                entry = set * WAYS + keyHands[set];
+                keyHands[set] = (keyHands[set] + 1) % WAYS;
+            }
+            keyHashes[entry] = keyHash;
+            keyPaths[entry] = path;
+        }
+    }
+
+    /** Finds a slot with the given path in the set. Must be called while holding the set lock. */
+    private int findSlot(final int set, final long path) {
+        for (int i = set * WAYS; i < (set + 1) * WAYS; i++) {
+            if (slotPaths[i] == path) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Finds an empty slot in the set. Must be called while holding the set lock. */
+    private int findFreeSlot(final int set) {
+        return findSlot(set, EMPTY);
+    }
+
+    /**
+     * Finds a slot to evict in the set using CLOCK algorithm: slots with reference bit set get a
+     * second chance. Must be called while holding the set lock.
+     */
+    private int evictSlot(final int set) {
+        while (true) {
+            final int slot = set * WAYS + clockHands[set];
+            clockHands[set] = (clockHands[set] + 1) % WAYS;
+            if (slotReferenced[slot]) {
+                slotReferenced[slot] = false;
+            } else {
+                return slot;
+            }
+        }
+    }
+
+    private int setForPath(final long path) {
+        return (int) Math.floorMod(mix(path), (long) setCount);
+    }
+
+    private int setForKeyHash(final int keyHash) {
+        return (int) Math.floorMod(mix(keyHash), (long) setCount);
+    }
+
+    private Object lockForSet(final int set) {
+        return locks[set % LOCK_STRIPES];
+    }
+
+    private ByteBuffer bufferForSet(final int set) {
+        return buffers[set / setsPerBuffer];
+    }
+
+    private int slotOffset(final int set, final int slot) {
+        final int setInBuffer = set % setsPerBuffer;
+        return (setInBuffer * WAYS + (slot - set * WAYS)) * slotSize;
+    }
+
+    /** Spreads bits of a path or key hash, so adjacent paths don't end up in adjacent sets */
+    private static long mix(final long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+}
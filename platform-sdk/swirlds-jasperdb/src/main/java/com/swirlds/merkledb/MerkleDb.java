@@ -19,9 +19,12 @@ package com.swirlds.merkledb;
 import static com.swirlds.common.io.utility.FileUtils.hardLinkTree;
 import static com.swirlds.logging.legacy.LogMarker.MERKLE_DB;
 
+import com.swirlds.common.config.singleton.ConfigurationHolder;
 import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.common.io.utility.IORunnable;
 import com.swirlds.common.io.utility.TemporaryFileBuilder;
+import com.swirlds.merkledb.config.MerkleDbConfig;
 import com.swirlds.merkledb.files.DataFileCommon;
 import com.swirlds.virtualmap.VirtualKey;
 import com.swirlds.virtualmap.VirtualValue;
@@ -103,6 +106,12 @@ public final class MerkleDb {
     /** A path for a database where new or restored data sources are created by default */
     private static final AtomicReference<Path> defaultInstancePath = new AtomicReference<>();
 
+    /**
+     * Whether data source snapshots taken by the current thread are incremental. See {@link
+     * #runWithIncrementalSnapshots(IORunnable)} for details
+     */
+    private static final ThreadLocal<Boolean> incrementalSnapshots = ThreadLocal.withInitial(() -> false);
+
     /**
      * The base directory in which the database directory will be created. By default, a temporary
      * location provided by {@link com.swirlds.common.io.utility.TemporaryFileBuilder}.
@@ -235,6 +244,7 @@ public final class MerkleDb {
         }
         // If this is a new database, create the metadata file
         if (!Files.exists(storageDir.resolve(METADATA_FILENAME))) {
+            deleteStaleColdStorage(storageDir);
             storeMetadata();
         }
         logger.info(MERKLE_DB.getMarker(), "New MerkleDb instance is created, storageDir={}", storageDir);
@@ -308,6 +318,39 @@ public final class MerkleDb {
         return getTablesDir(baseDir).resolve(tableName + "-" + tableId);
     }
 
+    /**
+     * Cold storage dir to move old data files of a data source with the specified name and table
+     * ID to. Cold storage dirs of all databases are in {@link MerkleDbConfig#coldStorageDirectory()},
+     * in sub-folders named after database storage dirs.
+     *
+     * @param tableName Table name
+     * @param tableId Table ID
+     * @return Cold storage dir for the specified table, or null if cold storage isn't configured
+     */
+    public Path getColdTableDir(final String tableName, final int tableId) {
+        final Path coldBaseDir = getColdBaseDir(storageDir);
+        return (coldBaseDir != null) ? getTableDir(coldBaseDir, tableName, tableId) : null;
+    }
+
+    private static Path getColdBaseDir(final Path baseDir) {
+        final String coldStorageDirectory =
+                ConfigurationHolder.getConfigData(MerkleDbConfig.class).coldStorageDirectory();
+        return coldStorageDirectory.isBlank()
+                ? null
+                : Path.of(coldStorageDirectory).resolve(baseDir.getFileName());
+    }
+
+    /**
+     * Deletes cold storage data left by a previous database in the same storage dir, if any. Must
+     * be called when a new database is created, or a database is restored from a snapshot.
+     */
+    private static void deleteStaleColdStorage(final Path baseDir) {
+        final Path coldBaseDir = getColdBaseDir(baseDir);
+        if (coldBaseDir != null) {
+            DataFileCommon.deleteDirectoryAndContents(coldBaseDir);
+        }
+    }
+
     /**
      * Creates a new data source (table) in this database instance with the given name.
      *
@@ -367,7 +410,7 @@ public final class MerkleDb {
             final MerkleDbDataSource<K, V> dataSource, final boolean makeCopyPrimary) throws IOException {
         final String label = dataSource.getTableName();
         final int tableId = getNextTableId();
-        importDataSource(dataSource, tableId, !makeCopyPrimary, makeCopyPrimary); // import to itself == copy
+        importDataSource(dataSource, tableId, !makeCopyPrimary, makeCopyPrimary, false); // import to itself == copy
         return getDataSource(tableId, label, makeCopyPrimary);
     }
 
@@ -375,7 +418,8 @@ public final class MerkleDb {
             final MerkleDbDataSource<K, V> dataSource,
             final int tableId,
             final boolean leaveSourcePrimary,
-            final boolean makeCopyPrimary)
+            final boolean makeCopyPrimary,
+            final boolean incremental)
             throws IOException {
         final String label = dataSource.getTableName();
         final MerkleDbTableConfig<K, V> tableConfig =
@@ -386,7 +430,7 @@ public final class MerkleDb {
         tableConfigs.set(tableId, new TableMetadata(tableId, label, tableConfig));
         try {
             dataSource.pauseCompaction();
-            dataSource.snapshot(getTableDir(label, tableId));
+            dataSource.snapshot(getTableDir(label, tableId), incremental);
         } finally {
             dataSource.resumeCompaction();
         }
@@ -468,6 +512,10 @@ public final class MerkleDb {
         final String label = metadata.tableName();
         tableConfigs.set(tableId, null);
         DataFileCommon.deleteDirectoryAndContents(getTableDir(label, tableId));
+        final Path coldTableDir = getColdTableDir(label, tableId);
+        if (coldTableDir != null) {
+            DataFileCommon.deleteDirectoryAndContents(coldTableDir);
+        }
         storeMetadata();
     }
 
@@ -524,10 +572,34 @@ public final class MerkleDb {
         if (targetDb.tableExists(tableName)) {
             throw new IllegalStateException("Table already exists in the target database, " + tableName);
         }
-        targetDb.importDataSource(dataSource, dataSource.getTableId(), true, true);
+        targetDb.importDataSource(dataSource, dataSource.getTableId(), true, true, incrementalSnapshots.get());
         targetDb.storeMetadata();
     }
 
+    /**
+     * Runs the given action with incremental snapshots enabled for the current thread. All data
+     * sources snapshotted by the action on this thread using {@link #snapshot(Path,
+     * MerkleDbDataSource)} write their indices as deltas to their previous incremental snapshots,
+     * if incremental snapshots are enabled with {@link MerkleDbConfig#maxSnapshotDeltaChainLength()}.
+     * Resulting snapshots are still self-contained, as all files they depend on are hard-linked to
+     * snapshot directories.
+     *
+     * <p>Data source snapshots are taken deep inside merkle tree serialization, so this is how the
+     * code that writes a state to disk chooses between incremental and full snapshots.
+     *
+     * @param action the action to run
+     * @throws IOException if the action throws an I/O exception
+     */
+    public static void runWithIncrementalSnapshots(final IORunnable action) throws IOException {
+        final boolean previous = incrementalSnapshots.get();
+        incrementalSnapshots.set(true);
+        try {
+            action.run();
+        } finally {
+            incrementalSnapshots.set(previous);
+        }
+    }
+
     /**
      * Creates a database instance from a database snapshot in the specified folder. The instance is
      * created in the specified target folder, if not {@code null}, or in the default MerkleDb
@@ -558,6 +630,9 @@ public final class MerkleDb {
                 hardLinkTree(sharedDirPath, defaultInstancePath.resolve(SHARED_DIRNAME));
             }
             hardLinkTree(source.resolve(TABLES_DIRNAME), defaultInstancePath.resolve(TABLES_DIRNAME));
+            // All cold data files are in the snapshot, they are moved to cold storage again on
+            // compaction
+            deleteStaleColdStorage(defaultInstancePath);
         } else {
             // Check the target database:
             //   * if it has the same set of tables as in the source, restore is a no-op
@@ -24,6 +24,7 @@ import static com.swirlds.merkledb.MerkleDb.MERKLEDB_COMPONENT;
 import com.swirlds.common.config.singleton.ConfigurationHolder;
 import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.merkledb.config.MerkleDbConfig;
+import com.swirlds.merkledb.files.CompactionIoThrottle;
 import com.swirlds.merkledb.files.DataFileCompactor;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -48,6 +49,7 @@ import org.apache.logging.log4j.Logger;
  * and keep them disabled until they are explicitly enabled again.
  * The compaction tasks are executed in a background thread pool.
  * The number of threads in the pool is defined by {@link MerkleDbConfig#compactionThreads()} property.
+ * A single compaction may be split between multiple workers, see {@link MerkleDbConfig#compactionParallelism()}.
  *
  */
 class MerkleDbCompactionCoordinator {
@@ -64,6 +66,22 @@ class MerkleDbCompactionCoordinator {
      * An executor service to run compaction tasks.
      */
     private static final ExecutorService compactionExecutor;
+    /**
+     * An executor service to run compaction workers, when a single compaction is split between
+     * multiple threads. See {@link MerkleDbConfig#compactionParallelism()}.
+     */
+    private static final ExecutorService compactionWorkersExecutor;
+    /**
+     * Number of compaction workers to compact a single set of files.
+     */
+    private static final int compactionParallelism =
+            Math.min(config.compactionParallelism(), DataFileCompactor.MAX_COMPACTION_PARALLELISM);
+    /**
+     * Throttle to limit the rate at which all compactions copy data, shared by all data sources.
+     * See {@link MerkleDbConfig#compactionIoBudgetMbPerSecond()}.
+     */
+    private static final CompactionIoThrottle compactionIoThrottle = new CompactionIoThrottle(
+            config.compactionIoBudgetMbPerSecond(), config.compactionIoBudgetDuringFlushMbPerSecond());
 
     static {
         compactionExecutor = new ThreadPoolExecutor(
@@ -79,6 +97,25 @@ class MerkleDbCompactionCoordinator {
                         .setExceptionHandler(
                                 (t, ex) -> logger.error(EXCEPTION.getMarker(), "Uncaught exception during merging", ex))
                         .buildFactory());
+        // Compaction threads run workers 0, all other workers are run in this pool. Threads are
+        // created on demand and time out when idle, so there are no extra threads unless
+        // parallelism is above 1
+        final int workerThreads = Math.max(1, config.compactionThreads() * (compactionParallelism - 1));
+        final ThreadPoolExecutor workersExecutor = new ThreadPoolExecutor(
+                workerThreads,
+                workerThreads,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadConfiguration(getStaticThreadManager())
+                        .setThreadGroup(new ThreadGroup("Compaction"))
+                        .setComponent(MERKLEDB_COMPONENT)
+                        .setThreadName("Compaction worker")
+                        .setExceptionHandler((t, ex) ->
+                                logger.error(EXCEPTION.getMarker(), "Uncaught exception in compaction worker", ex))
+                        .buildFactory());
+        workersExecutor.allowCoreThreadTimeOut(true);
+        compactionWorkersExecutor = workersExecutor;
     }
 
     public static final String HASH_STORE_DISK_SUFFIX = "HashStoreDisk";
@@ -115,6 +152,22 @@ class MerkleDbCompactionCoordinator {
         this.objectKeyToPath = objectKeyToPath;
         this.hashesStoreDisk = hashesStoreDisk;
         this.pathToKeyValue = pathToKeyValue;
+        if (compactionParallelism > 1) {
+            if (objectKeyToPath != null) {
+                objectKeyToPath.setCompactionParallelism(compactionParallelism, compactionWorkersExecutor);
+            }
+            if (hashesStoreDisk != null) {
+                hashesStoreDisk.setCompactionParallelism(compactionParallelism, compactionWorkersExecutor);
+            }
+            pathToKeyValue.setCompactionParallelism(compactionParallelism, compactionWorkersExecutor);
+        }
+        if (objectKeyToPath != null) {
+            objectKeyToPath.setIoThrottle(compactionIoThrottle);
+        }
+        if (hashesStoreDisk != null) {
+            hashesStoreDisk.setIoThrottle(compactionIoThrottle);
+        }
+        pathToKeyValue.setIoThrottle(compactionIoThrottle);
         if (objectKeyToPath != null) {
             objectKeyToPathTask = new CompactionTask(tableName + OBJECT_KEY_TO_PATH_SUFFIX, objectKeyToPath);
         } else {
@@ -155,6 +208,22 @@ class MerkleDbCompactionCoordinator {
         submitCompactionTaskForExecution(pathToKeyValueTask);
     }
 
+    /**
+     * Notifies compactions that a flush is started. Compactions of all data sources may be slowed
+     * down till the flush is finished, see {@link MerkleDbConfig#compactionIoBudgetDuringFlushMbPerSecond()}.
+     * Must be balanced with {@link #flushFinished()}.
+     */
+    void flushStarted() {
+        compactionIoThrottle.flushStarted();
+    }
+
+    /**
+     * Notifies compactions that a flush is finished.
+     */
+    void flushFinished() {
+        compactionIoThrottle.flushFinished();
+    }
+
     /**
      * Enables background compaction.
      */
@@ -35,8 +35,10 @@ import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.common.units.UnitConstants;
 import com.swirlds.merkledb.collections.HashListByteBuffer;
 import com.swirlds.merkledb.collections.LongList;
+import com.swirlds.merkledb.collections.LongListCopyOnWrite;
 import com.swirlds.merkledb.collections.LongListDisk;
 import com.swirlds.merkledb.collections.LongListOffHeap;
+import com.swirlds.merkledb.collections.LongListSnapshotChain;
 import com.swirlds.merkledb.collections.OffHeapUser;
 import com.swirlds.merkledb.config.MerkleDbConfig;
 import com.swirlds.merkledb.files.DataFileCollection;
@@ -66,14 +68,23 @@ import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
@@ -93,6 +104,9 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
     /** Count of open database instances */
     private static final LongAdder COUNT_OF_OPEN_DATABASES = new LongAdder();
 
+    /** Path placeholder for keys, which paths are not looked up yet, see {@link #loadLeafRecords(List)} */
+    private static final long UNKNOWN_PATH = -2;
+
     /** The version number for format of current data files */
     private static class MetadataFileFormatVersion {
         public static final int ORIGINAL = 1;
@@ -155,6 +169,24 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
     /** Mixed disk and off-heap memory store for path to leaf key and value */
     private final MemoryIndexDiskKeyValueStore<VirtualLeafRecord<K, V>> pathToKeyValue;
 
+    /**
+     * Incremental snapshots of {@link #pathToDiskLocationInternalNodes}. Null if incremental
+     * snapshots are disabled
+     */
+    private final LongListSnapshotChain pathToDiskLocationInternalNodesSnapshotChain;
+
+    /**
+     * Incremental snapshots of {@link #pathToDiskLocationLeafNodes}. Null if incremental snapshots
+     * are disabled
+     */
+    private final LongListSnapshotChain pathToDiskLocationLeafNodesSnapshotChain;
+
+    /**
+     * Incremental snapshots of {@link #longKeyToPath}. Null if incremental snapshots are disabled,
+     * or if keys are not longs
+     */
+    private final LongListSnapshotChain longKeyToPathSnapshotChain;
+
     /**
      * Cache size for reading virtual leaf records. Initialized in data source creation time from
      * MerkleDb settings. If the value is zero, leaf records cache isn't used.
@@ -170,18 +202,57 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
     @SuppressWarnings("rawtypes")
     private final VirtualLeafRecord[] leafRecordCache;
 
+    /**
+     * Off-heap virtual leaf records cache. Unlike {@link #leafRecordCache}, it stores leaf records
+     * in serialized form in direct memory, so it can be much larger without increasing GC pressure.
+     * It's checked when a leaf record isn't found in {@link #leafRecordCache}. If the cache size is
+     * set to zero in MerkleDb settings, this cache isn't used.
+     */
+    private final LeafRecordOffHeapCache<K, V> offHeapLeafCache;
+
     /** Thread pool storing internal records */
     private final ExecutorService storeInternalExecutor;
 
-    /** Thread pool storing key-to-path mappings */
+    /**
+     * Thread pool storing key-to-path mappings. Only used when pipelined flushes are enabled, see
+     * {@link MerkleDbTableConfig#isPipelinedFlushEnabled()}. It's single-threaded, so a commit is
+     * only overlapped with one next stage, see {@link #writeLeavesToPathToKeyValue}
+     */
     private final ExecutorService storeKeyToPathExecutor;
 
+    /** Whether leaf keys store commits are pipelined with the next flush */
+    private final boolean pipelinedFlushEnabled;
+
+    /**
+     * Key to path mappings updated by the last flush, but not committed to {@link #objectKeyToPath}
+     * yet. Deleted keys are mapped to {@link #INVALID_PATH}. Null if there is no commit in progress.
+     * Kept after a failed commit, see {@link #keyToPathCommitFailure}. Only used when pipelined
+     * flushes are enabled
+     */
+    private volatile Map<K, Long> uncommittedKeyToPath = null;
+
+    /** Number of leaf keys store commits submitted, but not finished yet */
+    private final AtomicInteger pendingKeyToPathCommits = new AtomicInteger(0);
+
+    /**
+     * The first background leaf keys store commit failure, if any. A failed commit leaves the leaf
+     * keys store half-written, so the failure is never cleared. All further flushes and snapshots
+     * fail, and the data source has to be closed and loaded from the last snapshot
+     */
+    private final AtomicReference<Throwable> keyToPathCommitFailure = new AtomicReference<>();
+
     /** Thread pool creating snapshots, it is unbounded in threads, but we use at most 7 */
     private final ExecutorService snapshotExecutor;
 
     /** Flag for if a snapshot is in progress */
     private final AtomicBoolean snapshotInProgress = new AtomicBoolean(false);
 
+    /**
+     * Flag for if compaction is paused with {@link #pauseCompaction()}. Snapshots may resume
+     * compaction before they are complete, see {@link #snapshot(Path, boolean)}
+     */
+    private final AtomicBoolean compactionPaused = new AtomicBoolean(false);
+
     /** The range of valid leaf paths for data currently stored by this data source. */
     private volatile KeyRange validLeafPathRange = INVALID_KEY_RANGE;
 
@@ -206,6 +277,7 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         this.tableName = tableName;
         this.tableId = tableId;
         this.tableConfig = tableConfig;
+        pipelinedFlushEnabled = tableConfig.isPipelinedFlushEnabled();
 
         // create thread group with label
         final ThreadGroup threadGroup = new ThreadGroup("MerkleDb-" + tableName);
@@ -235,7 +307,7 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
                 .buildFactory());
 
         final Path storageDir = database.getTableDir(tableName, tableId);
-        dbPaths = new MerkleDbPaths(storageDir);
+        dbPaths = new MerkleDbPaths(storageDir, database.getColdTableDir(tableName, tableId));
 
         // check if we are loading an existing database or creating a new one
         if (Files.exists(storageDir)) {
@@ -264,18 +336,31 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         final boolean forceIndexRebuilding = config.indexRebuildingEnforced();
         if (tableConfig.isPreferDiskBasedIndices()) {
             pathToDiskLocationInternalNodes = new LongListDisk(dbPaths.pathToDiskLocationInternalNodesFile);
+            LongListSnapshotChain.applyDeltas(
+                    pathToDiskLocationInternalNodes, dbPaths.pathToDiskLocationInternalNodesFile);
         } else if (Files.exists(dbPaths.pathToDiskLocationInternalNodesFile) && !forceIndexRebuilding) {
-            pathToDiskLocationInternalNodes = new LongListOffHeap(dbPaths.pathToDiskLocationInternalNodesFile);
+            pathToDiskLocationInternalNodes = config.copyOnWriteIndicesEnabled()
+                    ? new LongListCopyOnWrite(dbPaths.pathToDiskLocationInternalNodesFile)
+                    : new LongListOffHeap(dbPaths.pathToDiskLocationInternalNodesFile);
+            LongListSnapshotChain.applyDeltas(
+                    pathToDiskLocationInternalNodes, dbPaths.pathToDiskLocationInternalNodesFile);
         } else {
-            pathToDiskLocationInternalNodes = new LongListOffHeap();
+            pathToDiskLocationInternalNodes =
+                    config.copyOnWriteIndicesEnabled() ? new LongListCopyOnWrite() : new LongListOffHeap();
         }
         // path to disk location index, leaf nodes
         if (tableConfig.isPreferDiskBasedIndices()) {
             pathToDiskLocationLeafNodes = new LongListDisk(dbPaths.pathToDiskLocationLeafNodesFile);
+            LongListSnapshotChain.applyDeltas(pathToDiskLocationLeafNodes, dbPaths.pathToDiskLocationLeafNodesFile);
         } else if (Files.exists(dbPaths.pathToDiskLocationLeafNodesFile) && !forceIndexRebuilding) {
-            pathToDiskLocationLeafNodes = new LongListOffHeap(dbPaths.pathToDiskLocationLeafNodesFile);
+            pathToDiskLocationLeafNodes = config.copyOnWriteIndicesEnabled()
+                    ? new LongListCopyOnWrite(dbPaths.pathToDiskLocationLeafNodesFile)
+                    : new LongListOffHeap(dbPaths.pathToDiskLocationLeafNodesFile);
+            LongListSnapshotChain.applyDeltas(pathToDiskLocationLeafNodes, dbPaths.pathToDiskLocationLeafNodesFile);
         } else {
-            pathToDiskLocationLeafNodes = new LongListOffHeap(config.reservedBufferLengthForLeafList());
+            pathToDiskLocationLeafNodes = config.copyOnWriteIndicesEnabled()
+                    ? new LongListCopyOnWrite(config.reservedBufferLengthForLeafList())
+                    : new LongListOffHeap(config.reservedBufferLengthForLeafList());
         }
 
         // internal node hashes store, RAM
@@ -294,6 +379,8 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         final Runnable updateTotalStatsFunction = () -> {
             statisticsUpdater.updateStoreFileStats();
             statisticsUpdater.updateOffHeapStats();
+            statisticsUpdater.updateKeyFilterStats();
+            statisticsUpdater.updateTierReadLatencyStats();
         };
 
         // internal node hashes store, on disk
@@ -303,6 +390,7 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
             String storeName = tableName + "_internalhashes";
             hashStoreDisk = new MemoryIndexDiskKeyValueStore<>(
                     dbPaths.hashStoreDiskDirectory,
+                    dbPaths.coldHashStoreDiskDirectory,
                     storeName,
                     tableName + ":internalHashes",
                     virtualHashRecordSerializer,
@@ -315,7 +403,9 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
                     statisticsUpdater::setHashesStoreCompactionTimeMs,
                     statisticsUpdater::setHashesStoreCompactionSavedSpaceMb,
                     statisticsUpdater::setHashesStoreFileSizeByLevelMb,
-                    updateTotalStatsFunction);
+                    updateTotalStatsFunction,
+                    statisticsUpdater::setHashesStoreCompactionThroughputMb,
+                    statisticsUpdater::setHashesStoreGarbageRatio);
         } else {
             hashStoreDisk = null;
             hashStoreDiskFileCompactor = null;
@@ -329,12 +419,15 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
             objectKeyToPath = null;
             objectKeyToPathFileCompactor = null;
             if (Files.exists(dbPaths.longKeyToPathFile)) {
-                longKeyToPath = new LongListOffHeap(dbPaths.longKeyToPathFile);
+                longKeyToPath = config.copyOnWriteIndicesEnabled()
+                        ? new LongListCopyOnWrite(dbPaths.longKeyToPathFile)
+                        : new LongListOffHeap(dbPaths.longKeyToPathFile);
+                LongListSnapshotChain.applyDeltas(longKeyToPath, dbPaths.longKeyToPathFile);
                 // we do not need callback longKeyToPath was written to disk, so we can load it
                 // directly
                 loadedDataCallback = null;
             } else {
-                longKeyToPath = new LongListOffHeap();
+                longKeyToPath = config.copyOnWriteIndicesEnabled() ? new LongListCopyOnWrite() : new LongListOffHeap();
                 loadedDataCallback = (path, dataLocation, keyValueData) -> {
                     // read key from keyValueData, as we are in isLongKeyMode mode then
                     // the key is a single long
@@ -354,6 +447,7 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
                     storeName,
                     tableName + ":objectKeyToPath",
                     tableConfig.isPreferDiskBasedIndices());
+            final HalfDiskHashMap<K> keyToPath = objectKeyToPath;
             objectKeyToPathFileCompactor = new DataFileCompactor(
                     storeName,
                     objectKeyToPath.getFileCollection(),
@@ -361,7 +455,17 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
                     statisticsUpdater::setLeafKeysStoreCompactionTimeMs,
                     statisticsUpdater::setLeafKeysStoreCompactionSavedSpaceMb,
                     statisticsUpdater::setLeafKeysStoreFileSizeByLevelMb,
-                    updateTotalStatsFunction);
+                    () -> {
+                        // compaction is a good time to get rid of deleted keys in the key filter
+                        try {
+                            keyToPath.rebuildKeyFilterIfNeeded();
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        updateTotalStatsFunction.run();
+                    },
+                    statisticsUpdater::setLeafKeysStoreCompactionThroughputMb,
+                    statisticsUpdater::setLeafKeysStoreGarbageRatio);
             objectKeyToPath.printStats();
             // we do not need callback as HalfDiskHashMap loads its own data from disk
             loadedDataCallback = null;
@@ -371,11 +475,13 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         final String storeName = tableName + "_pathtohashkeyvalue";
         pathToKeyValue = new MemoryIndexDiskKeyValueStore<>(
                 dbPaths.pathToKeyValueDirectory,
+                dbPaths.coldPathToKeyValueDirectory,
                 storeName,
                 tableName + ":pathToHashKeyValue",
                 leafRecordSerializer,
                 loadedDataCallback,
                 pathToDiskLocationLeafNodes);
+        pathToKeyValue.getFileCollection().setDataFileCompression(tableConfig.getDataFileCompression());
         final DataFileCompactor pathToKeyValueFileCompactor = new DataFileCompactor(
                 storeName,
                 pathToKeyValue.getFileCollection(),
@@ -383,11 +489,25 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
                 statisticsUpdater::setLeavesStoreCompactionTimeMs,
                 statisticsUpdater::setLeavesStoreCompactionSavedSpaceMb,
                 statisticsUpdater::setLeavesStoreFileSizeByLevelMb,
-                updateTotalStatsFunction);
+                updateTotalStatsFunction,
+                statisticsUpdater::setLeavesStoreCompactionThroughputMb,
+                statisticsUpdater::setLeavesStoreGarbageRatio);
+
+        // Incremental snapshots
+        pathToDiskLocationInternalNodesSnapshotChain =
+                createSnapshotChain(pathToDiskLocationInternalNodes, dbPaths.pathToDiskLocationInternalNodesFile);
+        pathToDiskLocationLeafNodesSnapshotChain =
+                createSnapshotChain(pathToDiskLocationLeafNodes, dbPaths.pathToDiskLocationLeafNodesFile);
+        longKeyToPathSnapshotChain =
+                (longKeyToPath != null) ? createSnapshotChain(longKeyToPath, dbPaths.longKeyToPathFile) : null;
 
         // Leaf records cache
         leafRecordCacheSize = config.leafRecordCacheSize();
         leafRecordCache = (leafRecordCacheSize > 0) ? new VirtualLeafRecord[leafRecordCacheSize] : null;
+        offHeapLeafCache = (config.offHeapLeafCacheSizeBytes() > 0)
+                ? new LeafRecordOffHeapCache<>(
+                        leafRecordSerializer, config.offHeapLeafCacheSizeBytes(), config.offHeapLeafCacheSlotSize())
+                : null;
 
         // Update count of open databases
         COUNT_OF_OPEN_DATABASES.increment();
@@ -464,12 +584,20 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
      * #resumeCompaction()}} is called.
      */
     void pauseCompaction() throws IOException {
-        compactionCoordinator.pauseCompaction();
+        if (!compactionPaused.getAndSet(true)) {
+            compactionCoordinator.pauseCompaction();
+        }
     }
 
-    /** Resumes previously stopped data file collection merging. */
+    /**
+     * Resumes previously stopped data file collection merging. If compaction isn't paused, for
+     * example, if it has already been resumed by {@link #snapshot(Path, boolean)}, this method is
+     * a no-op.
+     */
     void resumeCompaction() throws IOException {
-        compactionCoordinator.resumeCompaction();
+        if (compactionPaused.getAndSet(false)) {
+            compactionCoordinator.resumeCompaction();
+        }
     }
 
     /**
@@ -499,19 +627,25 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
             final Stream<VirtualLeafRecord<K, V>> leafRecordsToAddOrUpdate,
             final Stream<VirtualLeafRecord<K, V>> leafRecordsToDelete)
             throws IOException {
+        // Let compactions know a flush is in progress, so they can slow down to leave more disk
+        // bandwidth to the flush
+        compactionCoordinator.flushStarted();
         try {
+            checkKeyToPathCommitFailure();
             validLeafPathRange = new KeyRange(firstLeafPath, lastLeafPath);
             final CountDownLatch countDownLatch = new CountDownLatch(lastLeafPath > 0 ? 1 : 0);
 
             // might as well write to the 3 data stores in parallel, so lets fork 2 threads for the easy stuff
             if (lastLeafPath > 0) {
                 storeInternalExecutor.execute(() -> {
+                    final long start = System.nanoTime();
                     try {
                         writeHashes(lastLeafPath, hashRecordsToUpdate);
                     } catch (final IOException e) {
                         logger.error(ERROR.getMarker(), "[{}] Failed to store internal records", tableName, e);
                         throw new UncheckedIOException(e);
                     } finally {
+                        statisticsUpdater.recordFlushHashesTime(System.nanoTime() - start);
                         countDownLatch.countDown();
                     }
                 });
@@ -535,12 +669,15 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
                 Thread.currentThread().interrupt();
             }
         } finally {
+            compactionCoordinator.flushFinished();
             // Report total size on disk as sum of all store files. All metadata and other helper files
             // are considered small enough to be ignored. If/when we decide to use on-disk long lists
             // for indices, they should be added here
             statisticsUpdater.updateStoreFileStats();
             // update off-heap stats
             statisticsUpdater.updateOffHeapStats();
+            statisticsUpdater.updateKeyFilterStats();
+            statisticsUpdater.updateTierReadLatencyStats();
         }
     }
 
@@ -580,10 +717,16 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         } else {
             // Cache miss
             cached = null;
+            final VirtualLeafRecord<K, V> offHeapCached = loadLeafRecordFromOffHeapCache(key);
+            if (offHeapCached != null) {
+                if (leafRecordCache != null) {
+                    leafRecordCache[cacheIndex] = offHeapCached;
+                    return offHeapCached.copy();
+                }
+                return offHeapCached;
+            }
             statisticsUpdater.countLeafKeyReads();
-            path = isLongKeyMode
-                    ? longKeyToPath.get(((VirtualLongKey) key).getKeyAsLong(), INVALID_PATH)
-                    : objectKeyToPath.get(key, INVALID_PATH);
+            path = findPath(key);
         }
 
         // If the key didn't map to anything, we just return null
@@ -604,21 +747,14 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
 
         statisticsUpdater.countLeafReads();
         // Go ahead and lookup the value.
+        final long offHeapCacheGeneration = (offHeapLeafCache != null) ? offHeapLeafCache.generation() : 0;
         VirtualLeafRecord<K, V> leafRecord = pathToKeyValue.get(path);
 
-        // FUTURE WORK: once the reconnect key leak bug is fixed, this block should be removed
-        if (!leafRecord.getKey().equals(key)) {
-            if (config.reconnectKeyLeakMitigationEnabled()) {
-                logger.warn(MERKLE_DB.getMarker(), "leaked key {} encountered, mitigation is enabled", key);
-                return null;
-            } else {
-                logger.error(
-                        EXCEPTION.getMarker(),
-                        "leaked key {} encountered, mitigation is disabled, expect problems",
-                        key);
-            }
+        if (isLeakedKey(leafRecord, key)) {
+            return null;
         }
 
+        putLeafRecordToOffHeapCache(leafRecord, offHeapCacheGeneration);
         if (leafRecordCache != null) {
             // No synchronization is needed here, see the comment above
             // A copy is returned to ensure cached value immutability.
@@ -629,6 +765,160 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         return leafRecord;
     }
 
+    /**
+     * Load multiple leaf records by key in a batch. Records found in the leaf record caches are
+     * taken from the caches. For all other keys, paths are looked up first, in object key mode
+     * with a single batch of bucket reads, see {@link HalfDiskHashMap#getAll(List, long)}. Then
+     * records are read from disk in a single batch, see {@link MemoryIndexDiskKeyValueStore#getAll(long[])}.
+     *
+     * @param keys the keys of the leaves to load
+     * @return loaded records in the same order as the keys, an element is null if not found
+     * @throws IOException If there was a problem reading records from db
+     */
+    @Override
+    public List<VirtualLeafRecord<K, V>> loadLeafRecords(final List<K> keys) throws IOException {
+        final int count = keys.size();
+        final List<VirtualLeafRecord<K, V>> result = new ArrayList<>(Collections.nCopies(count, null));
+        // Keys not found in caches, their indices in the result list, and their paths. A path
+        // is UNKNOWN_PATH, if it has to be looked up in the key to path store
+        final List<K> missedKeys = new ArrayList<>();
+        final int[] missed = new int[count];
+        final long[] paths = new long[count];
+        final List<K> keysToFind = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final K key = requireNonNull(keys.get(i));
+            final VirtualLeafRecord<K, V> cached =
+                    (leafRecordCache != null) ? leafRecordCache[leafRecordCacheIndex(key)] : null;
+            long path = UNKNOWN_PATH;
+            if ((cached != null) && key.equals(cached.getKey())) {
+                if (cached.getValue() != null) {
+                    // A copy is returned to ensure cached value immutability.
+                    result.set(i, cached.copy());
+                    continue;
+                }
+                path = cached.getPath();
+            } else {
+                final VirtualLeafRecord<K, V> offHeapCached = loadLeafRecordFromOffHeapCache(key);
+                if (offHeapCached != null) {
+                    if (leafRecordCache != null) {
+                        leafRecordCache[leafRecordCacheIndex(key)] = offHeapCached;
+                        result.set(i, offHeapCached.copy());
+                    } else {
+                        result.set(i, offHeapCached);
+                    }
+                    continue;
+                }
+                keysToFind.add(key);
+            }
+            missed[missedKeys.size()] = i;
+            paths[missedKeys.size()] = path;
+            missedKeys.add(key);
+        }
+        if (missedKeys.isEmpty()) {
+            return result;
+        }
+
+        // Look up paths for keys not found in caches
+        if (!keysToFind.isEmpty()) {
+            final long[] foundPaths;
+            if (isLongKeyMode) {
+                foundPaths = new long[keysToFind.size()];
+                for (int j = 0; j < foundPaths.length; j++) {
+                    final VirtualLongKey key = (VirtualLongKey) keysToFind.get(j);
+                    foundPaths[j] = longKeyToPath.get(key.getKeyAsLong(), INVALID_PATH);
+                }
+            } else {
+                // Must be read before the store, see findPath()
+                final Map<K, Long> uncommitted = uncommittedKeyToPath;
+                foundPaths = objectKeyToPath.getAll(keysToFind, INVALID_PATH);
+                if (uncommitted != null) {
+                    for (int j = 0; j < foundPaths.length; j++) {
+                        final Long path = uncommitted.get(keysToFind.get(j));
+                        if (path != null) {
+                            foundPaths[j] = path;
+                        }
+                    }
+                }
+            }
+            for (int j = 0, f = 0; j < missedKeys.size(); j++) {
+                if (paths[j] != UNKNOWN_PATH) {
+                    continue;
+                }
+                statisticsUpdater.countLeafKeyReads();
+                paths[j] = foundPaths[f++];
+                if ((leafRecordCache != null) && (paths[j] == INVALID_PATH)) {
+                    // Cache the negative result
+                    final K key = missedKeys.get(j);
+                    leafRecordCache[leafRecordCacheIndex(key)] = new VirtualLeafRecord<K, V>(INVALID_PATH, key, null);
+                }
+            }
+        }
+
+        // Read records for all valid paths in a single batch. Paths outside the first/last leaf
+        // path range may be returned, if the key to path store contains old keys not removed yet
+        final KeyRange leafPathRange = validLeafPathRange;
+        final int[] toRead = new int[missedKeys.size()];
+        int toReadCount = 0;
+        for (int j = 0; j < missedKeys.size(); j++) {
+            if ((paths[j] != INVALID_PATH) && leafPathRange.withinRange(paths[j])) {
+                toRead[toReadCount++] = j;
+            }
+        }
+        if (toReadCount == 0) {
+            return result;
+        }
+        final long[] pathsToRead = new long[toReadCount];
+        for (int r = 0; r < toReadCount; r++) {
+            pathsToRead[r] = paths[toRead[r]];
+            statisticsUpdater.countLeafReads();
+        }
+        final long offHeapCacheGeneration = (offHeapLeafCache != null) ? offHeapLeafCache.generation() : 0;
+        final List<VirtualLeafRecord<K, V>> leafRecords = pathToKeyValue.getAll(pathsToRead);
+        for (int r = 0; r < toReadCount; r++) {
+            final K key = missedKeys.get(toRead[r]);
+            VirtualLeafRecord<K, V> leafRecord = leafRecords.get(r);
+            if ((leafRecord == null) || isLeakedKey(leafRecord, key)) {
+                continue;
+            }
+            putLeafRecordToOffHeapCache(leafRecord, offHeapCacheGeneration);
+            if (leafRecordCache != null) {
+                // A copy is returned to ensure cached value immutability.
+                leafRecordCache[leafRecordCacheIndex(key)] = leafRecord;
+                leafRecord = leafRecord.copy();
+            }
+            result.set(missed[toRead[r]], leafRecord);
+        }
+        return result;
+    }
+
+    private int leafRecordCacheIndex(final K key) {
+        return Math.abs(key.hashCode() % leafRecordCacheSize);
+    }
+
+    /**
+     * Checks if a leaf record read from disk by path has a different key than the key the path
+     * was looked up for.
+     *
+     * @param leafRecord the leaf record read by path
+     * @param key the key
+     * @return true if the record should not be returned for the key
+     */
+    private boolean isLeakedKey(final VirtualLeafRecord<K, V> leafRecord, final K key) {
+        // FUTURE WORK: once the reconnect key leak bug is fixed, this method should be removed
+        if (!leafRecord.getKey().equals(key)) {
+            if (config.reconnectKeyLeakMitigationEnabled()) {
+                logger.warn(MERKLE_DB.getMarker(), "leaked key {} encountered, mitigation is enabled", key);
+                return true;
+            } else {
+                logger.error(
+                        EXCEPTION.getMarker(),
+                        "leaked key {} encountered, mitigation is disabled, expect problems",
+                        key);
+            }
+        }
+        return false;
+    }
+
     /**
      * Load a leaf record by path
      *
@@ -642,8 +932,73 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         if (!leafPathRange.withinRange(path)) {
             throw new IllegalArgumentException("path (" + path + ") is not valid; must be in range " + leafPathRange);
         }
+        if (offHeapLeafCache != null) {
+            final VirtualLeafRecord<K, V> cached = offHeapLeafCache.getByPath(path);
+            if (cached != null) {
+                statisticsUpdater.countOffHeapLeafCacheHits();
+                return cached;
+            }
+            statisticsUpdater.countOffHeapLeafCacheMisses();
+        }
         statisticsUpdater.countLeafReads();
-        return pathToKeyValue.get(path);
+        final long offHeapCacheGeneration = (offHeapLeafCache != null) ? offHeapLeafCache.generation() : 0;
+        final VirtualLeafRecord<K, V> leafRecord = pathToKeyValue.get(path);
+        putLeafRecordToOffHeapCache(leafRecord, offHeapCacheGeneration);
+        return leafRecord;
+    }
+
+    /**
+     * Load multiple leaf records by path in a batch. Like {@link #loadLeafRecord(long)}, records are
+     * looked up in the off-heap leaf cache first. Records not found there and stored in the same
+     * data file are read with a single batch read, see {@link MemoryIndexDiskKeyValueStore#getAll(long[])},
+     * and then put to the off-heap leaf cache.
+     *
+     * @param paths the paths for the leaves we are loading
+     * @return loaded records in the same order as the paths, an element is null if not found
+     * @throws IOException If there was a problem reading records from db
+     */
+    @Override
+    public List<VirtualLeafRecord<K, V>> loadLeafRecords(final long[] paths) throws IOException {
+        final KeyRange leafPathRange = validLeafPathRange;
+        final int count = paths.length;
+        final List<VirtualLeafRecord<K, V>> result = new ArrayList<>(Collections.nCopies(count, null));
+        // Indices in the result list of paths not found in the off-heap cache
+        final int[] missed = new int[count];
+        int missedCount = 0;
+        for (int i = 0; i < count; i++) {
+            final long path = paths[i];
+            if (!leafPathRange.withinRange(path)) {
+                throw new IllegalArgumentException(
+                        "path (" + path + ") is not valid; must be in range " + leafPathRange);
+            }
+            if (offHeapLeafCache != null) {
+                final VirtualLeafRecord<K, V> cached = offHeapLeafCache.getByPath(path);
+                if (cached != null) {
+                    statisticsUpdater.countOffHeapLeafCacheHits();
+                    result.set(i, cached);
+                    continue;
+                }
+                statisticsUpdater.countOffHeapLeafCacheMisses();
+            }
+            missed[missedCount++] = i;
+        }
+        if (missedCount == 0) {
+            return result;
+        }
+
+        final long[] pathsToRead = new long[missedCount];
+        for (int m = 0; m < missedCount; m++) {
+            pathsToRead[m] = paths[missed[m]];
+            statisticsUpdater.countLeafReads();
+        }
+        final long offHeapCacheGeneration = (offHeapLeafCache != null) ? offHeapLeafCache.generation() : 0;
+        final List<VirtualLeafRecord<K, V>> leafRecords = pathToKeyValue.getAll(pathsToRead);
+        for (int m = 0; m < missedCount; m++) {
+            final VirtualLeafRecord<K, V> leafRecord = leafRecords.get(m);
+            putLeafRecordToOffHeapCache(leafRecord, offHeapCacheGeneration);
+            result.set(missed[m], leafRecord);
+        }
+        return result;
     }
 
     /**
@@ -670,10 +1025,13 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
             }
         }
 
+        final VirtualLeafRecord<K, V> offHeapCached = loadLeafRecordFromOffHeapCache(key);
+        if (offHeapCached != null) {
+            return offHeapCached.getPath();
+        }
+
         statisticsUpdater.countLeafKeyReads();
-        final long path = isLongKeyMode
-                ? longKeyToPath.get(((VirtualLongKey) key).getKeyAsLong(), INVALID_PATH)
-                : objectKeyToPath.get(key, INVALID_PATH);
+        final long path = findPath(key);
 
         if (leafRecordCache != null) {
             // Path may be INVALID_PATH here. Still needs to be cached (negative result)
@@ -714,6 +1072,52 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         return hash;
     }
 
+    /**
+     * Load multiple virtual node hashes by path in a batch. Hashes stored in RAM are taken from
+     * there, all other hashes are read from disk, hashes from the same data file are read with
+     * a single batch read.
+     *
+     * @param paths virtual node paths
+     * @return loaded hashes in the same order as the paths, an element is null if not found
+     * @throws IOException If there was a problem reading hashes from db
+     */
+    @Override
+    public List<Hash> loadHashes(final long[] paths) throws IOException {
+        final int count = paths.length;
+        final List<Hash> result = new ArrayList<>(Collections.nCopies(count, null));
+        final long lastLeaf = validLeafPathRange.getMaxValidKey();
+        final long hashesRamToDiskThreshold = tableConfig.getHashesRamToDiskThreshold();
+        final int[] onDisk = new int[count];
+        int onDiskCount = 0;
+        for (int i = 0; i < count; i++) {
+            final long path = paths[i];
+            if (path < 0) {
+                throw new IllegalArgumentException("path is less than 0");
+            }
+            if (path > lastLeaf) {
+                continue;
+            }
+            if (path < hashesRamToDiskThreshold) {
+                result.set(i, hashStoreRam.get(path));
+            } else {
+                onDisk[onDiskCount++] = i;
+            }
+        }
+        if (onDiskCount > 0) {
+            final long[] diskPaths = new long[onDiskCount];
+            for (int i = 0; i < onDiskCount; i++) {
+                diskPaths[i] = paths[onDisk[i]];
+                statisticsUpdater.countHashReads();
+            }
+            final List<VirtualHashRecord> records = hashStoreDisk.getAll(diskPaths);
+            for (int i = 0; i < onDiskCount; i++) {
+                final VirtualHashRecord rec = records.get(i);
+                result.set(onDisk[i], (rec != null) ? rec.hash() : null);
+            }
+        }
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -822,9 +1226,33 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
      *     directory
      * @throws IllegalStateException If there is already a snapshot happening
      */
-    @SuppressWarnings("ConstantConditions")
     @Override
     public void snapshot(final Path snapshotDirectory) throws IOException, IllegalStateException {
+        snapshot(snapshotDirectory, false);
+    }
+
+    /**
+     * Write a snapshot of the current state of the database at this moment in time, see {@link
+     * #snapshot(Path)}. If incremental snapshots are enabled with {@link
+     * MerkleDbConfig#maxSnapshotDeltaChainLength()} and requested, indices are written as deltas
+     * to the previous incremental snapshot, see {@link LongListSnapshotChain}. Full snapshots
+     * don't affect incremental snapshot chains.
+     *
+     * <p>If all indices are {@link LongListCopyOnWrite} lists, and they aren't written to
+     * incremental snapshot chains, they are frozen when the snapshot is started, and compaction
+     * paused with {@link #pauseCompaction()} is resumed as soon as all data files are snapshotted,
+     * while the indices are still being written.
+     *
+     * @param snapshotDirectory Directory to put snapshot into, it will be created if it doesn't
+     *     exist.
+     * @param incremental Whether an incremental snapshot is requested
+     * @throws IOException If there was a problem writing the current database out to the given
+     *     directory
+     * @throws IllegalStateException If there is already a snapshot happening
+     */
+    @SuppressWarnings("ConstantConditions")
+    public void snapshot(final Path snapshotDirectory, final boolean incremental)
+            throws IOException, IllegalStateException {
         // check if another snapshot was running
         final boolean aSnapshotWasInProgress = snapshotInProgress.getAndSet(true);
         if (aSnapshotWasInProgress) {
@@ -833,47 +1261,86 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         try {
             // start timing snapshot
             final long START = System.currentTimeMillis();
+            // leaf keys store can't be snapshotted while a new file is being written to it
+            waitForKeyToPathCommit();
+            checkKeyToPathCommitFailure();
             // create snapshot dir if it doesn't exist
             Files.createDirectories(snapshotDirectory);
             final MerkleDbPaths snapshotDbPaths = new MerkleDbPaths(snapshotDirectory);
+            // Copy-on-write indices are frozen right away. They are written to disk in background,
+            // so compaction can be resumed as soon as all other stores are snapshotted, and no
+            // longer needs to wait for the indices
+            final LongListCopyOnWrite.FrozenView internalNodesView = freezeIndex(
+                    pathToDiskLocationInternalNodes, pathToDiskLocationInternalNodesSnapshotChain, incremental);
+            final LongListCopyOnWrite.FrozenView leafNodesView =
+                    freezeIndex(pathToDiskLocationLeafNodes, pathToDiskLocationLeafNodesSnapshotChain, incremental);
+            final LongListCopyOnWrite.FrozenView longKeyToPathView =
+                    freezeIndex(longKeyToPath, longKeyToPathSnapshotChain, incremental);
+            final boolean allIndicesFrozen = (internalNodesView != null)
+                    && (leafNodesView != null)
+                    && ((longKeyToPath == null) || (longKeyToPathView != null));
             // main snapshotting process in multiple-threads
             try {
-                final CountDownLatch countDownLatch = new CountDownLatch(8);
-                // write all data stores
-                runWithSnapshotExecutor(true, countDownLatch, "pathToDiskLocationInternalNodes", () -> {
-                    pathToDiskLocationInternalNodes.writeToFile(snapshotDbPaths.pathToDiskLocationInternalNodesFile);
+                final CountDownLatch indicesCountDownLatch = new CountDownLatch(3);
+                final CountDownLatch storesCountDownLatch = new CountDownLatch(5);
+                // write all indices
+                runWithSnapshotExecutor(true, indicesCountDownLatch, "pathToDiskLocationInternalNodes", () -> {
+                    writeIndex(
+                            pathToDiskLocationInternalNodes,
+                            internalNodesView,
+                            pathToDiskLocationInternalNodesSnapshotChain,
+                            snapshotDbPaths.pathToDiskLocationInternalNodesFile,
+                            incremental);
                     return true;
                 });
-                runWithSnapshotExecutor(true, countDownLatch, "pathToDiskLocationLeafNodes", () -> {
-                    pathToDiskLocationLeafNodes.writeToFile(snapshotDbPaths.pathToDiskLocationLeafNodesFile);
+                runWithSnapshotExecutor(true, indicesCountDownLatch, "pathToDiskLocationLeafNodes", () -> {
+                    writeIndex(
+                            pathToDiskLocationLeafNodes,
+                            leafNodesView,
+                            pathToDiskLocationLeafNodesSnapshotChain,
+                            snapshotDbPaths.pathToDiskLocationLeafNodesFile,
+                            incremental);
                     return true;
                 });
-                runWithSnapshotExecutor(hashStoreRam != null, countDownLatch, "internalHashStoreRam", () -> {
-                    hashStoreRam.writeToFile(snapshotDbPaths.hashStoreRamFile);
+                runWithSnapshotExecutor(longKeyToPath != null, indicesCountDownLatch, "longKeyToPath", () -> {
+                    writeIndex(
+                            longKeyToPath,
+                            longKeyToPathView,
+                            longKeyToPathSnapshotChain,
+                            snapshotDbPaths.longKeyToPathFile,
+                            incremental);
                     return true;
                 });
-                runWithSnapshotExecutor(hashStoreDisk != null, countDownLatch, "internalHashStoreDisk", () -> {
-                    hashStoreDisk.snapshot(snapshotDbPaths.hashStoreDiskDirectory);
+                // write all data stores
+                runWithSnapshotExecutor(hashStoreRam != null, storesCountDownLatch, "internalHashStoreRam", () -> {
+                    hashStoreRam.writeToFile(snapshotDbPaths.hashStoreRamFile);
                     return true;
                 });
-                runWithSnapshotExecutor(longKeyToPath != null, countDownLatch, "longKeyToPath", () -> {
-                    longKeyToPath.writeToFile(snapshotDbPaths.longKeyToPathFile);
+                runWithSnapshotExecutor(hashStoreDisk != null, storesCountDownLatch, "internalHashStoreDisk", () -> {
+                    hashStoreDisk.snapshot(snapshotDbPaths.hashStoreDiskDirectory);
                     return true;
                 });
-                runWithSnapshotExecutor(objectKeyToPath != null, countDownLatch, "objectKeyToPath", () -> {
-                    objectKeyToPath.snapshot(snapshotDbPaths.objectKeyToPathDirectory);
+                runWithSnapshotExecutor(objectKeyToPath != null, storesCountDownLatch, "objectKeyToPath", () -> {
+                    objectKeyToPath.snapshot(snapshotDbPaths.objectKeyToPathDirectory, incremental);
                     return true;
                 });
-                runWithSnapshotExecutor(true, countDownLatch, "pathToKeyValue", () -> {
+                runWithSnapshotExecutor(true, storesCountDownLatch, "pathToKeyValue", () -> {
                     pathToKeyValue.snapshot(snapshotDbPaths.pathToKeyValueDirectory);
                     return true;
                 });
-                runWithSnapshotExecutor(true, countDownLatch, "metadata", () -> {
+                runWithSnapshotExecutor(true, storesCountDownLatch, "metadata", () -> {
                     saveMetadata(snapshotDbPaths.metadataFile);
                     return true;
                 });
-                // wait for the others to finish
-                countDownLatch.await();
+                // wait for the stores to finish
+                storesCountDownLatch.await();
+                if (allIndicesFrozen) {
+                    // compaction doesn't change frozen views, and all data files are already in
+                    // the snapshot
+                    resumeCompaction();
+                }
+                // wait for the indices to finish
+                indicesCountDownLatch.await();
             } catch (final InterruptedException e) {
                 logger.error(
                         EXCEPTION.getMarker(),
@@ -881,6 +1348,10 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
                         tableName,
                         e);
                 Thread.currentThread().interrupt();
+            } finally {
+                closeFrozenView(internalNodesView);
+                closeFrozenView(leafNodesView);
+                closeFrozenView(longKeyToPathView);
             }
             logger.info(
                     MERKLE_DB.getMarker(),
@@ -892,6 +1363,67 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         }
     }
 
+    /**
+     * Creates an incremental snapshot chain for the given index, if incremental snapshots are
+     * enabled.
+     *
+     * @param index the index
+     * @param indexFile the index file in this data source's storage directory
+     * @return the snapshot chain, or null if incremental snapshots are disabled
+     */
+    private LongListSnapshotChain createSnapshotChain(final LongList index, final Path indexFile) {
+        final int maxDeltas = config.maxSnapshotDeltaChainLength();
+        if (maxDeltas <= 0) {
+            return null;
+        }
+        return new LongListSnapshotChain(
+                index, dbPaths.snapshotChainDirectory, indexFile.getFileName().toString(), maxDeltas);
+    }
+
+    /**
+     * Writes an index to a snapshot file, either in full, or as a delta to the previous
+     * incremental snapshot.
+     */
+    private static void writeIndex(
+            final LongList index,
+            final LongListCopyOnWrite.FrozenView frozenView,
+            final LongListSnapshotChain snapshotChain,
+            final Path file,
+            final boolean incremental)
+            throws IOException {
+        if (frozenView != null) {
+            frozenView.writeToFile(file);
+        } else if (incremental && (snapshotChain != null)) {
+            snapshotChain.snapshot(file);
+        } else {
+            index.writeToFile(file);
+        }
+    }
+
+    /**
+     * Creates a frozen view of the given index, if it's a copy-on-write list, and it isn't written
+     * to an incremental snapshot chain. Incremental snapshot chains track changes in live lists,
+     * so they can't be used with frozen views.
+     *
+     * @param index the index, may be null
+     * @param snapshotChain incremental snapshot chain of the index, may be null
+     * @param incremental Whether an incremental snapshot is requested
+     * @return the frozen view, or null if the index can't be frozen
+     */
+    private static LongListCopyOnWrite.FrozenView freezeIndex(
+            final LongList index, final LongListSnapshotChain snapshotChain, final boolean incremental) {
+        if (!(index instanceof LongListCopyOnWrite copyOnWriteIndex) || (incremental && (snapshotChain != null))) {
+            return null;
+        }
+        return copyOnWriteIndex.freeze();
+    }
+
+    private static void closeFrozenView(final LongListCopyOnWrite.FrozenView frozenView) {
+        if (frozenView != null) {
+            frozenView.close();
+        }
+    }
+
     @Override
     public long estimatedSize(final long dirtyInternals, final long dirtyLeaves) {
         // Deleted leaves count is ignored, as deleted leaves aren't flushed to data source
@@ -1126,7 +1658,18 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         }
     }
 
-    /** Write all the given leaf records to pathToKeyValue */
+    /**
+     * Write all the given leaf records to pathToKeyValue, and update key to path mappings. If pipelined
+     * flushes are enabled, key to path mappings are updated on {@link #storeKeyToPathExecutor} in
+     * parallel with pathToKeyValue, and the new leaf keys store file is written in background, after
+     * this method returns.
+     *
+     * <p>The executor is single-threaded, so the pipeline is only one stage deep. Key to path updates
+     * of the next flush are queued behind the pending commit, and the next flush waits for these
+     * updates before it returns. So a commit only overlaps with writing leaves and hashes of the next
+     * flush, and at most one commit is pending at any time. If a commit takes longer than that, the
+     * next flush is slowed down by the difference.
+     */
     private void writeLeavesToPathToKeyValue(
             final long firstLeafPath,
             final long lastLeafPath,
@@ -1138,42 +1681,103 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
             return;
         }
 
-        // start writing
-        pathToKeyValue.startWriting(firstLeafPath, lastLeafPath);
-        if (!isLongKeyMode) {
-            objectKeyToPath.startWriting();
+        // Both leaf stores need the records, so streams are collected to lists
+        final List<VirtualLeafRecord<K, V>> sortedDirtyLeaves = dirtyLeaves
+                .sorted(Comparator.comparingLong(VirtualLeafRecord::getPath))
+                .toList();
+        final List<VirtualLeafRecord<K, V>> deletedLeafRecords = deletedLeaves.toList();
+
+        if (!pipelinedFlushEnabled) {
+            writeLeaves(firstLeafPath, lastLeafPath, sortedDirtyLeaves, deletedLeafRecords);
+            final long keysStart = System.nanoTime();
+            updateKeyToPath(sortedDirtyLeaves, deletedLeafRecords);
+            commitKeyToPath();
+            statisticsUpdater.recordFlushLeafKeysTime(System.nanoTime() - keysStart);
+            return;
         }
 
-        // iterate over leaf records
-        dirtyLeaves.sorted(Comparator.comparingLong(VirtualLeafRecord::getPath)).forEachOrdered(leafRecord -> {
-            if (isLongKeyMode) {
-                longKeyToPath.put(((VirtualLongKey) leafRecord.getKey()).getKeyAsLong(), leafRecord.getPath());
-            } else {
-                objectKeyToPath.put(leafRecord.getKey(), leafRecord.getPath());
+        // Completed as soon as all key to path mappings are updated, before they are committed
+        final CompletableFuture<Void> keysUpdated = new CompletableFuture<>();
+        pendingKeyToPathCommits.incrementAndGet();
+        statisticsUpdater.setFlushPendingLeafKeysCommits(pendingKeyToPathCommits.get());
+        storeKeyToPathExecutor.execute(() -> {
+            try {
+                // The previous commit may have failed after this flush was started
+                checkKeyToPathCommitFailure();
+                final long keysStart = System.nanoTime();
+                updateKeyToPath(sortedDirtyLeaves, deletedLeafRecords);
+                if (!isLongKeyMode) {
+                    // Serve the mappings from memory, until the new store file is written
+                    final Map<K, Long> uncommitted =
+                            new HashMap<>(sortedDirtyLeaves.size() + deletedLeafRecords.size());
+                    sortedDirtyLeaves.forEach(leaf -> uncommitted.put(leaf.getKey(), leaf.getPath()));
+                    deletedLeafRecords.forEach(leaf -> uncommitted.put(leaf.getKey(), INVALID_PATH));
+                    uncommittedKeyToPath = uncommitted;
+                }
+                statisticsUpdater.recordFlushLeafKeysTime(System.nanoTime() - keysStart);
+                keysUpdated.complete(null);
+            } catch (final Throwable e) {
+                keysUpdated.completeExceptionally(e);
             }
-            statisticsUpdater.countFlushLeafKeysWritten();
-
-            // update pathToKeyValue
             try {
-                pathToKeyValue.put(leafRecord.getPath(), leafRecord);
-            } catch (final IOException e) {
-                logger.error(EXCEPTION.getMarker(), "[{}] IOException writing to pathToKeyValue", tableName, e);
-                throw new UncheckedIOException(e);
+                if (keysUpdated.isCompletedExceptionally()) {
+                    return;
+                }
+                final long commitStart = System.nanoTime();
+                commitKeyToPath();
+                statisticsUpdater.recordFlushLeafKeysCommitTime(System.nanoTime() - commitStart);
+                uncommittedKeyToPath = null;
+            } catch (final Throwable e) {
+                // The store is half-written, uncommitted mappings are kept to serve lookups till the
+                // data source is closed
+                logger.error(EXCEPTION.getMarker(), "[{}] Failed to commit leaf keys store", tableName, e);
+                keyToPathCommitFailure.compareAndSet(null, e);
+            } finally {
+                statisticsUpdater.setFlushPendingLeafKeysCommits(pendingKeyToPathCommits.decrementAndGet());
             }
+        });
+
+        writeLeaves(firstLeafPath, lastLeafPath, sortedDirtyLeaves, deletedLeafRecords);
+
+        // Key to path mappings must be updated before the flushed copy is released from the
+        // node cache, but the commit may still be in progress
+        try {
+            keysUpdated.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for key to path updates", e);
+        } catch (final ExecutionException e) {
+            logger.error(EXCEPTION.getMarker(), "[{}] Failed to update key to path mappings", tableName, e);
+            throw new IOException("Failed to update key to path mappings", e.getCause());
+        }
+    }
+
+    /** Write all the given leaf records to pathToKeyValue, and invalidate them in leaf caches */
+    private void writeLeaves(
+            final long firstLeafPath,
+            final long lastLeafPath,
+            final List<VirtualLeafRecord<K, V>> sortedDirtyLeaves,
+            final List<VirtualLeafRecord<K, V>> deletedLeaves)
+            throws IOException {
+        final long start = System.nanoTime();
+        // start writing
+        pathToKeyValue.startWriting(firstLeafPath, lastLeafPath);
+
+        // iterate over leaf records
+        for (final VirtualLeafRecord<K, V> leafRecord : sortedDirtyLeaves) {
+            // update pathToKeyValue
+            pathToKeyValue.put(leafRecord.getPath(), leafRecord);
             statisticsUpdater.countFlushLeavesWritten();
 
             // cache the record
             invalidateReadCache(leafRecord.getKey());
-        });
+            if (offHeapLeafCache != null) {
+                offHeapLeafCache.invalidate(leafRecord.getPath(), leafRecord.getKey());
+            }
+        }
 
         // iterate over leaf records to delete
-        deletedLeaves.forEach(leafRecord -> {
-            // update objectKeyToPath
-            if (isLongKeyMode) {
-                longKeyToPath.put(((VirtualLongKey) leafRecord.getKey()).getKeyAsLong(), INVALID_PATH);
-            } else {
-                objectKeyToPath.delete(leafRecord.getKey());
-            }
+        for (final VirtualLeafRecord<K, V> leafRecord : deletedLeaves) {
             statisticsUpdater.countFlushLeavesDeleted();
 
             // delete from pathToKeyValue, we don't need to explicitly delete leaves as
@@ -1184,16 +1788,106 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
 
             // delete the record from the cache
             invalidateReadCache(leafRecord.getKey());
-        });
+            if (offHeapLeafCache != null) {
+                offHeapLeafCache.invalidate(leafRecord.getPath(), leafRecord.getKey());
+            }
+        }
 
         // end writing
         final DataFileReader<VirtualLeafRecord<K, V>> pathToKeyValueReader = pathToKeyValue.endWriting();
         statisticsUpdater.setFlushLeavesStoreFileSize(pathToKeyValueReader);
         compactionCoordinator.compactPathToKeyValueAsync();
+        statisticsUpdater.recordFlushLeavesTime(System.nanoTime() - start);
+    }
+
+    /**
+     * Update key to path mappings for all the given leaf records. In object key mode, the changes
+     * aren't visible to readers till {@link #commitKeyToPath()} is called. Both methods must be
+     * called on the same thread
+     */
+    private void updateKeyToPath(
+            final List<VirtualLeafRecord<K, V>> sortedDirtyLeaves, final List<VirtualLeafRecord<K, V>> deletedLeaves) {
         if (!isLongKeyMode) {
-            final DataFileReader<Bucket<K>> objectKeyToPathReader = objectKeyToPath.endWriting();
-            statisticsUpdater.setFlushLeafKeysStoreFileSize(objectKeyToPathReader);
-            compactionCoordinator.compactDiskStoreForObjectKeyToPathAsync();
+            objectKeyToPath.startWriting();
+        }
+        for (final VirtualLeafRecord<K, V> leafRecord : sortedDirtyLeaves) {
+            if (isLongKeyMode) {
+                longKeyToPath.put(((VirtualLongKey) leafRecord.getKey()).getKeyAsLong(), leafRecord.getPath());
+            } else {
+                objectKeyToPath.put(leafRecord.getKey(), leafRecord.getPath());
+            }
+            statisticsUpdater.countFlushLeafKeysWritten();
+        }
+        for (final VirtualLeafRecord<K, V> leafRecord : deletedLeaves) {
+            if (isLongKeyMode) {
+                longKeyToPath.put(((VirtualLongKey) leafRecord.getKey()).getKeyAsLong(), INVALID_PATH);
+            } else {
+                objectKeyToPath.delete(leafRecord.getKey());
+            }
+        }
+    }
+
+    /** Write a new leaf keys store file with all key to path changes. No-op in long key mode */
+    private void commitKeyToPath() throws IOException {
+        if (isLongKeyMode) {
+            return;
+        }
+        final DataFileReader<Bucket<K>> objectKeyToPathReader = objectKeyToPath.endWriting();
+        statisticsUpdater.setFlushLeafKeysStoreFileSize(objectKeyToPathReader);
+        compactionCoordinator.compactDiskStoreForObjectKeyToPathAsync();
+    }
+
+    /**
+     * Looks up a path for the given key in the key to path store. In object key mode, mappings
+     * updated by the last flush, but not committed yet, are checked first.
+     *
+     * @param key the key
+     * @return the path, or INVALID_PATH if not found
+     * @throws IOException if there was a problem reading the store
+     */
+    private long findPath(final K key) throws IOException {
+        if (isLongKeyMode) {
+            return longKeyToPath.get(((VirtualLongKey) key).getKeyAsLong(), INVALID_PATH);
+        }
+        // Must be read before the store. If null, the last commit is complete, and the
+        // store is up-to-date. If not null, the store is up-to-date for all keys not in
+        // the uncommitted map
+        final Map<K, Long> uncommitted = uncommittedKeyToPath;
+        if (uncommitted != null) {
+            final Long path = uncommitted.get(key);
+            if (path != null) {
+                return path;
+            }
+        }
+        return objectKeyToPath.get(key, INVALID_PATH);
+    }
+
+    /**
+     * Throws an exception, if a background leaf keys store commit has ever failed, see {@link
+     * #keyToPathCommitFailure}
+     */
+    private void checkKeyToPathCommitFailure() throws IOException {
+        final Throwable commitFailure = keyToPathCommitFailure.get();
+        if (commitFailure != null) {
+            throw new IOException(
+                    "Leaf keys store commit failed in a previous flush, reload the data source from a snapshot",
+                    commitFailure);
+        }
+    }
+
+    /** Wait till a leaf keys store commit in progress, if any, is complete */
+    void waitForKeyToPathCommit() throws IOException {
+        if (pendingKeyToPathCommits.get() == 0) {
+            return;
+        }
+        try {
+            // The executor is single-threaded, so this task runs after all previously submitted commits
+            storeKeyToPathExecutor.submit(() -> {}).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for leaf keys store commit", e);
+        } catch (final ExecutionException e) {
+            throw new IOException(e.getCause());
         }
     }
 
@@ -1221,6 +1915,48 @@ public final class MerkleDbDataSource<K extends VirtualKey, V extends VirtualVal
         }
     }
 
+    /**
+     * Looks up a leaf record by key in the off-heap leaf cache. Cached records with paths outside
+     * the current valid leaf path range are ignored.
+     *
+     * @param key the leaf key
+     * @return the cached leaf record, or null if the off-heap cache is disabled or the record isn't found
+     * @throws IOException if the cached record can't be deserialized
+     */
+    private VirtualLeafRecord<K, V> loadLeafRecordFromOffHeapCache(final K key) throws IOException {
+        if (offHeapLeafCache == null) {
+            return null;
+        }
+        final VirtualLeafRecord<K, V> cached = offHeapLeafCache.getByKey(key);
+        if ((cached != null) && validLeafPathRange.withinRange(cached.getPath())) {
+            statisticsUpdater.countOffHeapLeafCacheHits();
+            return cached;
+        }
+        statisticsUpdater.countOffHeapLeafCacheMisses();
+        return null;
+    }
+
+    /**
+     * Puts a leaf record read from disk to the off-heap leaf cache, if the cache is enabled.
+     *
+     * @param leafRecord the leaf record, may be null
+     * @param readGeneration off-heap cache generation obtained before the record was read from disk
+     * @throws IOException if the record can't be serialized
+     */
+    private void putLeafRecordToOffHeapCache(final VirtualLeafRecord<K, V> leafRecord, final long readGeneration)
+            throws IOException {
+        if ((offHeapLeafCache == null) || (leafRecord == null)) {
+            return;
+        }
+        if (offHeapLeafCache.put(leafRecord, readGeneration)) {
+            statisticsUpdater.countOffHeapLeafCacheEvictions();
+        }
+    }
+
+    LeafRecordOffHeapCache<K, V> getOffHeapLeafCache() {
+        return offHeapLeafCache;
+    }
+
     FileStatisticAware getHashStoreDisk() {
         return hashStoreDisk;
     }
@@ -16,6 +16,7 @@
 
 package com.swirlds.merkledb;
 
+import com.swirlds.merkledb.collections.LongListSnapshotChain;
 import java.nio.file.Path;
 
 /**
@@ -31,6 +32,10 @@ public class MerkleDbPaths {
     public final Path longKeyToPathFile;
     public final Path objectKeyToPathDirectory;
     public final Path pathToKeyValueDirectory;
+    public final Path snapshotChainDirectory;
+    public final Path coldStorageDir;
+    public final Path coldHashStoreDiskDirectory;
+    public final Path coldPathToKeyValueDirectory;
 
     /**
      * Create a set of all the sub-paths for stored data in a MerkleDb data source.
@@ -39,7 +44,21 @@ public class MerkleDbPaths {
      * 		directory to store data files in
      */
     public MerkleDbPaths(final Path storageDir) {
+        this(storageDir, null);
+    }
+
+    /**
+     * Create a set of all the sub-paths for stored data in a MerkleDb data source, including cold
+     * storage sub-paths.
+     *
+     * @param storageDir
+     * 		directory to store data files in
+     * @param coldStorageDir
+     * 		directory to move cold data files to, or null if cold storage isn't used
+     */
+    public MerkleDbPaths(final Path storageDir, final Path coldStorageDir) {
         this.storageDir = storageDir;
+        this.coldStorageDir = coldStorageDir;
         metadataFile = storageDir.resolve("metadata.jdbm");
         pathToDiskLocationInternalNodesFile = storageDir.resolve("pathToDiskLocationInternalNodes.ll");
         pathToDiskLocationLeafNodesFile = storageDir.resolve("pathToDiskLocationLeafNodes.ll");
@@ -48,5 +67,8 @@ public class MerkleDbPaths {
         longKeyToPathFile = storageDir.resolve("longKeyToPath.ll");
         objectKeyToPathDirectory = storageDir.resolve("objectKeyToPath");
         pathToKeyValueDirectory = storageDir.resolve("pathToHashKeyValue");
+        snapshotChainDirectory = storageDir.resolve(LongListSnapshotChain.CHAIN_DIRECTORY_NAME);
+        coldHashStoreDiskDirectory = (coldStorageDir != null) ? coldStorageDir.resolve("internalHashStoreDisk") : null;
+        coldPathToKeyValueDirectory = (coldStorageDir != null) ? coldStorageDir.resolve("pathToHashKeyValue") : null;
     }
 }
@@ -17,9 +17,11 @@
 package com.swirlds.merkledb;
 
 import static com.swirlds.common.metrics.FloatFormats.FORMAT_9_6;
+import static com.swirlds.merkledb.files.DataFileCompactor.MAX_COMPACTION_PARALLELISM;
 
 import com.swirlds.common.config.singleton.ConfigurationHolder;
 import com.swirlds.common.metrics.DoubleAccumulator;
+import com.swirlds.common.metrics.DoubleGauge;
 import com.swirlds.common.metrics.IntegerGauge;
 import com.swirlds.common.metrics.LongAccumulator;
 import com.swirlds.common.metrics.Metrics;
@@ -47,6 +49,7 @@ public class MerkleDbStatistics {
     private static final String COMPACTIONS_PREFIX = "compactions_";
 
     private static final String LEVEL_PREFIX = "level_";
+    private static final String WORKER_PREFIX = "worker_";
     /** Prefix for all off-heap related metrics */
     private static final String OFFHEAP_PREFIX = "offheap_";
 
@@ -65,6 +68,20 @@ public class MerkleDbStatistics {
     private LongAccumulator leafReads;
     /** Leaf keys - reads / s */
     private LongAccumulator leafKeyReads;
+    /** Off-heap leaf cache - hits / s */
+    private LongAccumulator offHeapLeafCacheHits;
+    /** Off-heap leaf cache - misses / s */
+    private LongAccumulator offHeapLeafCacheMisses;
+    /** Off-heap leaf cache - evictions / s */
+    private LongAccumulator offHeapLeafCacheEvictions;
+    /** Leaf keys store key filter - false positive rate */
+    private DoubleGauge leafKeysFilterFalsePositiveRate;
+    /** Leaf keys store key filter - memory usage in Mb */
+    private IntegerGauge leafKeysFilterMb;
+    /** Hashes and leaves stores - average read latency from main storage, in microseconds */
+    private DoubleGauge hotTierReadLatencyMicros;
+    /** Hashes and leaves stores - average read latency from cold storage, in microseconds */
+    private DoubleGauge coldTierReadLatencyMicros;
 
     /** Hashes store - file count */
     private IntegerGauge hashesStoreFileCount;
@@ -78,6 +95,12 @@ public class MerkleDbStatistics {
     private IntegerGauge leafKeysStoreFileCount;
     /** Leaf keys store - total file size in Mb */
     private IntegerGauge leafKeysStoreFileSizeMb;
+    /** Hashes store - estimated ratio of garbage in files */
+    private DoubleGauge hashesStoreGarbageRatio;
+    /** Leaves store - estimated ratio of garbage in files */
+    private DoubleGauge leavesStoreGarbageRatio;
+    /** Leaf keys store - estimated ratio of garbage in files */
+    private DoubleGauge leafKeysStoreGarbageRatio;
     /** Total file size in Mb */
     // Should all file sizes be doubles?
     private IntegerGauge totalFileSizeMb;
@@ -89,6 +112,16 @@ public class MerkleDbStatistics {
     private DoubleAccumulator flushLeavesStoreFileSizeMb;
     private LongAccumulator flushLeafKeysWritten;
     private DoubleAccumulator flushLeafKeysStoreFileSizeMb;
+    /** Flushes - time to write hashes, in ms */
+    private LongAccumulator flushHashesTimeMs;
+    /** Flushes - time to write leaves, in ms */
+    private LongAccumulator flushLeavesTimeMs;
+    /** Flushes - time to update leaf keys, in ms */
+    private LongAccumulator flushLeafKeysTimeMs;
+    /** Flushes - time to commit leaf keys store file, in ms */
+    private LongAccumulator flushLeafKeysCommitTimeMs;
+    /** Flushes - number of leaf keys store commits in progress or waiting */
+    private IntegerGauge flushPendingLeafKeysCommits;
 
     /** Hashes store compactions - time in ms */
     private final List<LongAccumulator> hashesStoreCompactionTimeMsList;
@@ -110,6 +143,12 @@ public class MerkleDbStatistics {
 
     /** Leaf keys store - cumulative file size by compaction level in Mb */
     private final List<DoubleAccumulator> leafKeysStoreFileSizeByLevelMbList;
+    /** Hashes store compactions - throughput by compaction worker in Mb/s */
+    private final List<DoubleAccumulator> hashesStoreCompactionThroughputMbList;
+    /** Leaves store compactions - throughput by compaction worker in Mb/s */
+    private final List<DoubleAccumulator> leavesStoreCompactionThroughputMbList;
+    /** Leaf keys store compactions - throughput by compaction worker in Mb/s */
+    private final List<DoubleAccumulator> leafKeysStoreCompactionThroughputMbList;
     /** Off-heap usage in MB of hashes store index */
     private IntegerGauge offHeapHashesIndexMb;
     /** Off-heap usage in MB of leaves store index */
@@ -120,6 +159,8 @@ public class MerkleDbStatistics {
     private IntegerGauge offHeapObjectKeyBucketsIndexMb;
     /** Off-heap usage in MB of hashes list in RAM */
     private IntegerGauge offHeapHashesListMb;
+    /** Off-heap usage in MB of leaf records cache */
+    private IntegerGauge offHeapLeafCacheMb;
     /** Total data source off-heap usage in MB */
     private IntegerGauge offHeapDataSourceMb;
 
@@ -140,6 +181,9 @@ public class MerkleDbStatistics {
         leafKeysStoreCompactionTimeMsList = new ArrayList<>();
         leafKeysStoreCompactionSavedSpaceMbList = new ArrayList<>();
         leafKeysStoreFileSizeByLevelMbList = new ArrayList<>();
+        hashesStoreCompactionThroughputMbList = new ArrayList<>();
+        leavesStoreCompactionThroughputMbList = new ArrayList<>();
+        leafKeysStoreCompactionThroughputMbList = new ArrayList<>();
     }
 
     private static IntegerGauge buildIntegerGauge(final Metrics metrics, final String name, final String description) {
@@ -180,6 +224,36 @@ public class MerkleDbStatistics {
                 metrics, DS_PREFIX + READS_PREFIX + "leaves_" + label, "Number of leaf reads, " + label);
         leafKeyReads = buildLongAccumulator(
                 metrics, DS_PREFIX + READS_PREFIX + "leafKeys_" + label, "Number of leaf key reads, " + label);
+        offHeapLeafCacheHits = buildLongAccumulator(
+                metrics,
+                DS_PREFIX + READS_PREFIX + "leafCacheHits_" + label,
+                "Number of leaf reads served from off-heap cache, " + label);
+        offHeapLeafCacheMisses = buildLongAccumulator(
+                metrics,
+                DS_PREFIX + READS_PREFIX + "leafCacheMisses_" + label,
+                "Number of leaf reads not found in off-heap cache, " + label);
+        offHeapLeafCacheEvictions = buildLongAccumulator(
+                metrics,
+                DS_PREFIX + READS_PREFIX + "leafCacheEvictions_" + label,
+                "Number of leaves evicted from off-heap cache, " + label);
+        leafKeysFilterFalsePositiveRate = metrics.getOrCreate(new DoubleGauge.Config(
+                        STAT_CATEGORY, DS_PREFIX + READS_PREFIX + "leafKeysFilterFalsePositiveRate_" + label)
+                .withDescription("Ratio of absent leaf key reads not rejected by key filter, " + label)
+                .withFormat(FORMAT_9_6));
+        leafKeysFilterMb = buildIntegerGauge(
+                metrics,
+                DS_PREFIX + "leafKeysFilterMb_" + label,
+                "Memory usage, leaf keys store key filter, " + label + ", Mb");
+        if (!config.coldStorageDirectory().isBlank()) {
+            hotTierReadLatencyMicros = metrics.getOrCreate(new DoubleGauge.Config(
+                            STAT_CATEGORY, DS_PREFIX + READS_PREFIX + "hotTierReadLatencyMicros_" + label)
+                    .withDescription("Average data item read latency from main storage, " + label + ", us")
+                    .withFormat(FORMAT_9_6));
+            coldTierReadLatencyMicros = metrics.getOrCreate(new DoubleGauge.Config(
+                            STAT_CATEGORY, DS_PREFIX + READS_PREFIX + "coldTierReadLatencyMicros_" + label)
+                    .withDescription("Average data item read latency from cold storage, " + label + ", us")
+                    .withFormat(FORMAT_9_6));
+        }
 
         // File counts and sizes
         hashesStoreFileCount = metrics.getOrCreate(
@@ -207,6 +281,18 @@ public class MerkleDbStatistics {
                 metrics,
                 DS_PREFIX + FILES_PREFIX + "totalSizeMb_" + label,
                 "Total file size, data source, " + label + ", Mb");
+        hashesStoreGarbageRatio = metrics.getOrCreate(new DoubleGauge.Config(
+                        STAT_CATEGORY, DS_PREFIX + FILES_PREFIX + "hashesStoreGarbageRatio_" + label)
+                .withDescription("Estimated ratio of garbage in files, hashes store, " + label)
+                .withFormat(FORMAT_9_6));
+        leavesStoreGarbageRatio = metrics.getOrCreate(new DoubleGauge.Config(
+                        STAT_CATEGORY, DS_PREFIX + FILES_PREFIX + "leavesStoreGarbageRatio_" + label)
+                .withDescription("Estimated ratio of garbage in files, leaves store, " + label)
+                .withFormat(FORMAT_9_6));
+        leafKeysStoreGarbageRatio = metrics.getOrCreate(new DoubleGauge.Config(
+                        STAT_CATEGORY, DS_PREFIX + FILES_PREFIX + "leafKeysStoreGarbageRatio_" + label)
+                .withDescription("Estimated ratio of garbage in files, leaf keys store, " + label)
+                .withFormat(FORMAT_9_6));
 
         // Flushes
         flushHashesWritten = buildLongAccumulator(
@@ -237,6 +323,26 @@ public class MerkleDbStatistics {
                 metrics,
                 DS_PREFIX + FLUSHES_PREFIX + "leafKeysStoreFileSizeMb_" + label,
                 "Size of the new leaf keys store file created during flush, " + label + ", Mb");
+        flushHashesTimeMs = buildLongAccumulator(
+                metrics,
+                DS_PREFIX + FLUSHES_PREFIX + "hashesTimeMs_" + label,
+                "Time to write hashes during flush, " + label + ", ms");
+        flushLeavesTimeMs = buildLongAccumulator(
+                metrics,
+                DS_PREFIX + FLUSHES_PREFIX + "leavesTimeMs_" + label,
+                "Time to write leaves during flush, " + label + ", ms");
+        flushLeafKeysTimeMs = buildLongAccumulator(
+                metrics,
+                DS_PREFIX + FLUSHES_PREFIX + "leafKeysTimeMs_" + label,
+                "Time to update leaf keys during flush, " + label + ", ms");
+        flushLeafKeysCommitTimeMs = buildLongAccumulator(
+                metrics,
+                DS_PREFIX + FLUSHES_PREFIX + "leafKeysCommitTimeMs_" + label,
+                "Time to commit the new leaf keys store file after flush, " + label + ", ms");
+        flushPendingLeafKeysCommits = buildIntegerGauge(
+                metrics,
+                DS_PREFIX + FLUSHES_PREFIX + "pendingLeafKeysCommits_" + label,
+                "Number of leaf keys store commits not finished yet, " + label);
 
         // Compaction
 
@@ -284,6 +390,22 @@ public class MerkleDbStatistics {
                     "Total space taken by files of level %s, leaf keys store, %s, Mb".formatted(level, label)));
         }
 
+        final int compactionWorkers = Math.min(config.compactionParallelism(), MAX_COMPACTION_PARALLELISM);
+        for (int worker = 0; worker < compactionWorkers; worker++) {
+            hashesStoreCompactionThroughputMbList.add(buildDoubleAccumulator(
+                    metrics,
+                    DS_PREFIX + COMPACTIONS_PREFIX + WORKER_PREFIX + worker + "_hashesThroughputMbPerSec_" + label,
+                    "Compaction throughput of worker %s, hashes store, %s, Mb/s".formatted(worker, label)));
+            leavesStoreCompactionThroughputMbList.add(buildDoubleAccumulator(
+                    metrics,
+                    DS_PREFIX + COMPACTIONS_PREFIX + WORKER_PREFIX + worker + "_leavesThroughputMbPerSec_" + label,
+                    "Compaction throughput of worker %s, leaves store, %s, Mb/s".formatted(worker, label)));
+            leafKeysStoreCompactionThroughputMbList.add(buildDoubleAccumulator(
+                    metrics,
+                    DS_PREFIX + COMPACTIONS_PREFIX + WORKER_PREFIX + worker + "_leafKeysThroughputMbPerSec_" + label,
+                    "Compaction throughput of worker %s, leaf keys store, %s, Mb/s".formatted(worker, label)));
+        }
+
         // Off-heap usage
         offHeapHashesIndexMb = metrics.getOrCreate(
                 new IntegerGauge.Config(STAT_CATEGORY, DS_PREFIX + OFFHEAP_PREFIX + "hashesIndexMb_" + label)
@@ -300,6 +422,9 @@ public class MerkleDbStatistics {
         offHeapHashesListMb = metrics.getOrCreate(
                 new IntegerGauge.Config(STAT_CATEGORY, DS_PREFIX + OFFHEAP_PREFIX + "hashesListMb_" + label)
                         .withDescription("Off-heap usage, hashes list, " + label + ", Mb"));
+        offHeapLeafCacheMb = metrics.getOrCreate(
+                new IntegerGauge.Config(STAT_CATEGORY, DS_PREFIX + OFFHEAP_PREFIX + "leafCacheMb_" + label)
+                        .withDescription("Off-heap usage, leaf records cache, " + label + ", Mb"));
         offHeapDataSourceMb = metrics.getOrCreate(
                 new IntegerGauge.Config(STAT_CATEGORY, DS_PREFIX + OFFHEAP_PREFIX + "dataSourceMb_" + label)
                         .withDescription("Off-heap usage, data source, " + label + ", Mb"));
@@ -332,6 +457,33 @@ public class MerkleDbStatistics {
         }
     }
 
+    /**
+     * Increment {@link #offHeapLeafCacheHits} stat by 1
+     */
+    public void countOffHeapLeafCacheHits() {
+        if (offHeapLeafCacheHits != null) {
+            offHeapLeafCacheHits.update(1);
+        }
+    }
+
+    /**
+     * Increment {@link #offHeapLeafCacheMisses} stat by 1
+     */
+    public void countOffHeapLeafCacheMisses() {
+        if (offHeapLeafCacheMisses != null) {
+            offHeapLeafCacheMisses.update(1);
+        }
+    }
+
+    /**
+     * Increment {@link #offHeapLeafCacheEvictions} stat by 1
+     */
+    public void countOffHeapLeafCacheEvictions() {
+        if (offHeapLeafCacheEvictions != null) {
+            offHeapLeafCacheEvictions.update(1);
+        }
+    }
+
     /**
      * Set the current value for the {@link #hashesStoreFileCount} stat
      *
@@ -458,6 +610,42 @@ public class MerkleDbStatistics {
         }
     }
 
+    public void recordFlushHashesTimeMs(final long value) {
+        if (flushHashesTimeMs != null) {
+            flushHashesTimeMs.update(value);
+        }
+    }
+
+    public void recordFlushLeavesTimeMs(final long value) {
+        if (flushLeavesTimeMs != null) {
+            flushLeavesTimeMs.update(value);
+        }
+    }
+
+    public void recordFlushLeafKeysTimeMs(final long value) {
+        if (flushLeafKeysTimeMs != null) {
+            flushLeafKeysTimeMs.update(value);
+        }
+    }
+
+    public void recordFlushLeafKeysCommitTimeMs(final long value) {
+        if (flushLeafKeysCommitTimeMs != null) {
+            flushLeafKeysCommitTimeMs.update(value);
+        }
+    }
+
+    /**
+     * Set the current value for the {@link #flushPendingLeafKeysCommits} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setFlushPendingLeafKeysCommits(final int value) {
+        if (flushPendingLeafKeysCommits != null) {
+            flushPendingLeafKeysCommits.set(value);
+        }
+    }
+
     /**
      * Set the current value for the accumulator corresponding to provided compaction level from
      * {@link #hashesStoreCompactionTimeMsList}
@@ -546,6 +734,43 @@ public class MerkleDbStatistics {
         leavesStoreFileSizeByLevelMbList.get(compactionLevel).update(value);
     }
 
+    /**
+     * Set the current value for the accumulator corresponding to provided compaction worker from
+     * {@link #hashesStoreCompactionThroughputMbList}
+     * @param value the value to set
+     */
+    public void setHashesStoreCompactionThroughputMb(final int worker, final double value) {
+        updateWorkerMetric(hashesStoreCompactionThroughputMbList, worker, value);
+    }
+
+    /**
+     * Set the current value for the accumulator corresponding to provided compaction worker from
+     * {@link #leavesStoreCompactionThroughputMbList}
+     * @param value the value to set
+     */
+    public void setLeavesStoreCompactionThroughputMb(final int worker, final double value) {
+        updateWorkerMetric(leavesStoreCompactionThroughputMbList, worker, value);
+    }
+
+    /**
+     * Set the current value for the accumulator corresponding to provided compaction worker from
+     * {@link #leafKeysStoreCompactionThroughputMbList}
+     * @param value the value to set
+     */
+    public void setLeafKeysStoreCompactionThroughputMb(final int worker, final double value) {
+        updateWorkerMetric(leafKeysStoreCompactionThroughputMbList, worker, value);
+    }
+
+    private static void updateWorkerMetric(
+            final List<DoubleAccumulator> metrics, final int worker, final double value) {
+        // the list is empty if the method called before the metrics are registered. Workers
+        // above the configured parallelism are not expected, but shouldn't fail compactions
+        if ((worker < 0) || (worker >= metrics.size())) {
+            return;
+        }
+        metrics.get(worker).update(value);
+    }
+
     /**
      * Set the current value for the accumulator corresponding to provided compaction level from
      * {@link #leafKeysStoreCompactionTimeMsList}
@@ -646,6 +871,102 @@ public class MerkleDbStatistics {
         }
     }
 
+    /**
+     * Set the current value for the {@link #hashesStoreGarbageRatio} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setHashesStoreGarbageRatio(final double value) {
+        if (hashesStoreGarbageRatio != null) {
+            hashesStoreGarbageRatio.set(value);
+        }
+    }
+
+    /**
+     * Set the current value for the {@link #leavesStoreGarbageRatio} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setLeavesStoreGarbageRatio(final double value) {
+        if (leavesStoreGarbageRatio != null) {
+            leavesStoreGarbageRatio.set(value);
+        }
+    }
+
+    /**
+     * Set the current value for the {@link #leafKeysStoreGarbageRatio} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setLeafKeysStoreGarbageRatio(final double value) {
+        if (leafKeysStoreGarbageRatio != null) {
+            leafKeysStoreGarbageRatio.set(value);
+        }
+    }
+
+    /**
+     * Set the current value for the {@link #leafKeysFilterFalsePositiveRate} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setLeafKeysFilterFalsePositiveRate(final double value) {
+        if (leafKeysFilterFalsePositiveRate != null) {
+            leafKeysFilterFalsePositiveRate.set(value);
+        }
+    }
+
+    /**
+     * Set the current value for the {@link #leafKeysFilterMb} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setLeafKeysFilterMb(final int value) {
+        if (leafKeysFilterMb != null) {
+            leafKeysFilterMb.set(value);
+        }
+    }
+
+    /**
+     * Set the current value for the {@link #hotTierReadLatencyMicros} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setHotTierReadLatencyMicros(final double value) {
+        if (hotTierReadLatencyMicros != null) {
+            hotTierReadLatencyMicros.set(value);
+        }
+    }
+
+    /**
+     * Set the current value for the {@link #coldTierReadLatencyMicros} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setColdTierReadLatencyMicros(final double value) {
+        if (coldTierReadLatencyMicros != null) {
+            coldTierReadLatencyMicros.set(value);
+        }
+    }
+
+    /**
+     * Set the current value for the {@link #offHeapLeafCacheMb} stat
+     *
+     * @param value
+     * 		the value to set
+     */
+    public void setOffHeapLeafCacheMb(final int value) {
+        if (offHeapLeafCacheMb != null) {
+            offHeapLeafCacheMb.set(value);
+        }
+    }
+
     /**
      * Set the current value for the {@link #offHeapDataSourceMb} stat
      *
@@ -17,14 +17,19 @@
 package com.swirlds.merkledb;
 
 import static com.swirlds.common.units.UnitConstants.BYTES_TO_MEBIBYTES;
+import static com.swirlds.common.units.UnitConstants.NANOSECONDS_TO_MICROSECONDS;
 
 import com.swirlds.common.metrics.FunctionGauge;
 import com.swirlds.common.metrics.Metrics;
 import com.swirlds.merkledb.collections.LongList;
 import com.swirlds.merkledb.collections.OffHeapUser;
+import com.swirlds.merkledb.files.DataFileCollection.TierReadStatistics;
 import com.swirlds.merkledb.files.DataFileReader;
+import com.swirlds.merkledb.files.MemoryIndexDiskKeyValueStore;
+import com.swirlds.merkledb.files.hashmap.HalfDiskHashMap;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.util.LongSummaryStatistics;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntConsumer;
 
@@ -159,9 +164,55 @@ public class MerkleDbStatisticsUpdater {
             totalOffHeapMemoryConsumption +=
                     updateOffHeapStat(dataSource.getHashStoreRam(), statistics::setOffHeapHashesListMb);
         }
+        if (dataSource.getOffHeapLeafCache() != null) {
+            totalOffHeapMemoryConsumption +=
+                    updateOffHeapStat(dataSource.getOffHeapLeafCache(), statistics::setOffHeapLeafCacheMb);
+        }
         statistics.setOffHeapDataSourceMb(totalOffHeapMemoryConsumption);
     }
 
+    /**
+     * Updates statistics with object key to path store key filter memory usage and false positive rate.
+     */
+    void updateKeyFilterStats() {
+        if (dataSource.getObjectKeyToPath() instanceof HalfDiskHashMap<?> keyToPath) {
+            statistics.setLeafKeysFilterMb((int) (keyToPath.getKeyFilterMemoryConsumption() * BYTES_TO_MEBIBYTES));
+            statistics.setLeafKeysFilterFalsePositiveRate(keyToPath.getKeyFilterFalsePositiveRate());
+        }
+    }
+
+    /**
+     * Updates statistics with average data item read latencies from main and cold storage since
+     * the last update. No-op if cold storage isn't used. A latency isn't updated, if there were
+     * no reads from the corresponding storage tier.
+     */
+    void updateTierReadLatencyStats() {
+        final long[] totals = new long[4];
+        addTierReadStats(dataSource.getHashStoreDisk(), totals);
+        addTierReadStats(dataSource.getPathToKeyValue(), totals);
+        if (totals[0] > 0) {
+            statistics.setHotTierReadLatencyMicros((double) totals[1] / totals[0] * NANOSECONDS_TO_MICROSECONDS);
+        }
+        if (totals[2] > 0) {
+            statistics.setColdTierReadLatencyMicros((double) totals[3] / totals[2] * NANOSECONDS_TO_MICROSECONDS);
+        }
+    }
+
+    /**
+     * Adds tier read statistics of the given store to the totals: hot reads, hot read time, cold
+     * reads, and cold read time.
+     */
+    private static void addTierReadStats(final FileStatisticAware store, final long[] totals) {
+        if (store instanceof MemoryIndexDiskKeyValueStore<?> kvStore
+                && kvStore.getFileCollection().isColdStorageEnabled()) {
+            final TierReadStatistics stats = kvStore.getFileCollection().getAndResetTierReadStatistics();
+            totals[0] += stats.hotReads();
+            totals[1] += stats.hotReadNanos();
+            totals[2] += stats.coldReads();
+            totals[3] += stats.coldReadNanos();
+        }
+    }
+
     /** Updates statistics with number of leaf reads. */
     void countLeafReads() {
         statistics.countLeafReads();
@@ -172,6 +223,21 @@ public class MerkleDbStatisticsUpdater {
         statistics.countLeafKeyReads();
     }
 
+    /** Updates statistics with number of leaf reads served from off-heap leaf cache. */
+    void countOffHeapLeafCacheHits() {
+        statistics.countOffHeapLeafCacheHits();
+    }
+
+    /** Updates statistics with number of leaf reads not found in off-heap leaf cache. */
+    void countOffHeapLeafCacheMisses() {
+        statistics.countOffHeapLeafCacheMisses();
+    }
+
+    /** Updates statistics with number of leaves evicted from off-heap leaf cache. */
+    void countOffHeapLeafCacheEvictions() {
+        statistics.countOffHeapLeafCacheEvictions();
+    }
+
     /** Updates statistics with number of hash reads. */
     void countHashReads() {
         statistics.countHashReads();
@@ -197,6 +263,31 @@ public class MerkleDbStatisticsUpdater {
         statistics.countFlushHashesWritten(1);
     }
 
+    /** Updates statistics with time to write hashes during a flush, in nanoseconds */
+    void recordFlushHashesTime(final long nanos) {
+        statistics.recordFlushHashesTimeMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /** Updates statistics with time to write leaves during a flush, in nanoseconds */
+    void recordFlushLeavesTime(final long nanos) {
+        statistics.recordFlushLeavesTimeMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /** Updates statistics with time to update leaf keys during a flush, in nanoseconds */
+    void recordFlushLeafKeysTime(final long nanos) {
+        statistics.recordFlushLeafKeysTimeMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /** Updates statistics with time to commit a new leaf keys store file, in nanoseconds */
+    void recordFlushLeafKeysCommitTime(final long nanos) {
+        statistics.recordFlushLeafKeysCommitTimeMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /** Updates statistics with the number of leaf keys store commits not finished yet */
+    void setFlushPendingLeafKeysCommits(final int count) {
+        statistics.setFlushPendingLeafKeysCommits(count);
+    }
+
     private static int updateOffHeapStat(final LongList longList, final IntConsumer updateFunction) {
         if (longList instanceof OffHeapUser longListOffHeap) {
             final int result = (int) (longListOffHeap.getOffHeapConsumption() * BYTES_TO_MEBIBYTES);
@@ -248,4 +339,28 @@ public class MerkleDbStatisticsUpdater {
     void setLeavesStoreFileSizeByLevelMb(Integer compactionType, Double savedSpace) {
         statistics.setLeavesStoreFileSizeByLevelMb(compactionType, savedSpace);
     }
+
+    void setHashesStoreCompactionThroughputMb(Integer worker, Double throughput) {
+        statistics.setHashesStoreCompactionThroughputMb(worker, throughput);
+    }
+
+    void setLeavesStoreCompactionThroughputMb(Integer worker, Double throughput) {
+        statistics.setLeavesStoreCompactionThroughputMb(worker, throughput);
+    }
+
+    void setLeafKeysStoreCompactionThroughputMb(Integer worker, Double throughput) {
+        statistics.setLeafKeysStoreCompactionThroughputMb(worker, throughput);
+    }
+
+    void setHashesStoreGarbageRatio(double garbageRatio) {
+        statistics.setHashesStoreGarbageRatio(garbageRatio);
+    }
+
+    void setLeavesStoreGarbageRatio(double garbageRatio) {
+        statistics.setLeavesStoreGarbageRatio(garbageRatio);
+    }
+
+    void setLeafKeysStoreGarbageRatio(double garbageRatio) {
+        statistics.setLeafKeysStoreGarbageRatio(garbageRatio);
+    }
 }
@@ -22,6 +22,7 @@ import com.swirlds.common.io.SelfSerializable;
 import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
 import com.swirlds.merkledb.config.MerkleDbConfig;
+import com.swirlds.merkledb.files.DataFileCompression;
 import com.swirlds.merkledb.serialize.KeySerializer;
 import com.swirlds.merkledb.serialize.ValueSerializer;
 import com.swirlds.virtualmap.VirtualKey;
@@ -45,6 +46,7 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
 
     private static final class ClassVersion {
         public static final int ORIGINAL = 1;
+        public static final int DATA_FILE_COMPRESSION = 2;
     }
 
     /**
@@ -102,6 +104,19 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
      */
     private boolean preferDiskBasedIndices = false;
 
+    /**
+     * Compression of leaf data files. Internal node hashes are not compressed, as hashes are not
+     * compressible
+     */
+    private DataFileCompression dataFileCompression = DataFileCompression.NONE;
+
+    /**
+     * Whether leaf keys store commits are pipelined with the next flush. It only affects how data
+     * is flushed, not how it's stored, so it isn't serialized. Tables loaded from snapshots use
+     * the value from MerkleDb config
+     */
+    private boolean pipelinedFlushEnabled = config.pipelinedFlushEnabled();
+
     /**
      * Creates a new virtual table config with default values. This constructor should only be used
      * for deserialization.
@@ -277,6 +292,58 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
         return this;
     }
 
+    /**
+     * Compression of leaf data files.
+     *
+     * @return
+     *      Leaf data file compression
+     */
+    public DataFileCompression getDataFileCompression() {
+        return dataFileCompression;
+    }
+
+    /**
+     * Specifies compression of leaf data files. If a table is loaded from an existing snapshot with
+     * a different compression, existing files are read as is, and new files, including compacted
+     * ones, are written with the new compression.
+     *
+     * @param dataFileCompression
+     *      Leaf data file compression
+     * @return
+     *      This table config object
+     */
+    public MerkleDbTableConfig<K, V> dataFileCompression(final DataFileCompression dataFileCompression) {
+        if (dataFileCompression == null) {
+            throw new IllegalArgumentException("Null data file compression");
+        }
+        this.dataFileCompression = dataFileCompression;
+        return this;
+    }
+
+    /**
+     * Whether leaf keys store commits are pipelined with the next flush.
+     *
+     * @return
+     *      Whether pipelined flushes are enabled
+     */
+    public boolean isPipelinedFlushEnabled() {
+        return pipelinedFlushEnabled;
+    }
+
+    /**
+     * Specifies whether leaf keys store commits are pipelined with the next flush. Defaults to
+     * {@link MerkleDbConfig#pipelinedFlushEnabled()}. This setting isn't serialized.
+     *
+     * @param pipelinedFlushEnabled
+     *      Whether pipelined flushes are enabled
+     * @return
+     *      This table config object
+     */
+    public MerkleDbTableConfig<K, V> pipelinedFlush(final boolean pipelinedFlushEnabled) {
+        this.pipelinedFlushEnabled = pipelinedFlushEnabled;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -290,7 +357,7 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
      */
     @Override
     public int getVersion() {
-        return ClassVersion.ORIGINAL;
+        return ClassVersion.DATA_FILE_COMPRESSION;
     }
 
     /**
@@ -307,6 +374,7 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
         out.writeSerializable(keySerializer, true);
         out.writeShort(valueVersion);
         out.writeSerializable(valueSerializer, true);
+        out.writeInt(dataFileCompression.getId());
     }
 
     /**
@@ -323,6 +391,9 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
         keySerializer = in.readSerializable();
         valueVersion = in.readShort();
         valueSerializer = in.readSerializable();
+        if (version >= ClassVersion.DATA_FILE_COMPRESSION) {
+            dataFileCompression = DataFileCompression.valueOf(in.readInt());
+        }
     }
 
     /**
@@ -336,6 +407,8 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
         copy.preferDiskIndices(preferDiskBasedIndices);
         copy.hashesRamToDiskThreshold(hashesRamToDiskThreshold);
         copy.maxNumberOfKeys(maxNumberOfKeys);
+        copy.dataFileCompression(dataFileCompression);
+        copy.pipelinedFlush(pipelinedFlushEnabled);
         return copy;
     }
 
@@ -353,7 +426,8 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
                 valueSerializer,
                 preferDiskBasedIndices,
                 maxNumberOfKeys,
-                hashesRamToDiskThreshold);
+                hashesRamToDiskThreshold,
+                dataFileCompression);
     }
 
     /**
@@ -372,6 +446,7 @@ public final class MerkleDbTableConfig<K extends VirtualKey, V extends VirtualVa
                 && (keyVersion == other.keyVersion)
                 && Objects.equals(keySerializer, other.keySerializer)
                 && (valueVersion == other.valueVersion)
-                && Objects.equals(valueSerializer, other.valueSerializer);
+                && Objects.equals(valueSerializer, other.valueSerializer)
+                && (dataFileCompression == other.dataFileCompression);
     }
 }
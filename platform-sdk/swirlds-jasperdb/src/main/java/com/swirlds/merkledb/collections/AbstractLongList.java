@@ -35,6 +35,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.LongStream;
 import java.util.stream.StreamSupport;
@@ -106,6 +107,16 @@ public abstract class AbstractLongList<C> implements LongList {
     protected static final int FILE_HEADER_SIZE_V1 = VERSION_METADATA_SIZE + FORMAT_METADATA_SIZE_V1;
     /** The number for bytes to read for file header, v2 */
     protected static final int FILE_HEADER_SIZE_V2 = VERSION_METADATA_SIZE + FORMAT_METADATA_SIZE_V2;
+
+    /** Number of longs in a single page of changes, see {@link #writeChangesToFile(Path)} */
+    public static final int CHANGE_TRACKING_PAGE_SIZE = 1024;
+    /** File format version of delta files */
+    private static final int DELTA_FILE_FORMAT_VERSION = 1;
+    /**
+     * Delta file header: format version (int), page size (int), min valid index (long), and
+     * size (long)
+     */
+    private static final int DELTA_FILE_HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
     /** File header size for the latest format */
     protected final int currentFileHeaderSize;
 
@@ -139,6 +150,13 @@ public abstract class AbstractLongList<C> implements LongList {
      */
     protected final long reservedBufferLength;
 
+    /**
+     * Bit set of pages changed since the last {@link #startTrackingChanges()} or {@link
+     * #writeChangesToFile(Path)} call, one bit per {@link #CHANGE_TRACKING_PAGE_SIZE} longs. Null
+     * if changes aren't tracked
+     */
+    private volatile AtomicLongArray changedPages = null;
+
     /**
      * Construct a new LongList with the specified number of longs per chunk and maximum number of
      * longs.
@@ -306,6 +324,8 @@ public abstract class AbstractLongList<C> implements LongList {
         final C chunk = createOrGetChunk(index);
         final int subIndex = toIntExact(index % numLongsPerChunk);
         putToChunk(chunk, subIndex, value);
+        // must be done after the value is stored, see writeChangesToFile()
+        markChanged(index, index + 1);
     }
 
     /**
@@ -343,6 +363,7 @@ public abstract class AbstractLongList<C> implements LongList {
         if (result) {
             // update the size if necessary
             size.getAndUpdate(oldSize -> index >= oldSize ? (index + 1) : oldSize);
+            markChanged(index, index + 1);
         }
         return result;
     }
@@ -429,12 +450,24 @@ public abstract class AbstractLongList<C> implements LongList {
      * @throws IOException If there was a problem writing header
      */
     protected final void writeHeader(final FileChannel fc) throws IOException {
+        writeHeader(fc, minValidIndex.get());
+    }
+
+    /**
+     * Write or rewrite header in file, with the given min valid index rather than the current one.
+     * Used to write frozen views of the list.
+     *
+     * @param fc File channel on the file to write to
+     * @param minValidIndex Min valid index to write
+     * @throws IOException If there was a problem writing header
+     */
+    protected final void writeHeader(final FileChannel fc, final long minValidIndex) throws IOException {
         final ByteBuffer headerBuffer = ByteBuffer.allocate(currentFileHeaderSize);
         headerBuffer.rewind();
         headerBuffer.putInt(CURRENT_FILE_FORMAT_VERSION);
         headerBuffer.putInt(getNumLongsPerChunk());
         headerBuffer.putLong(maxLongs);
-        headerBuffer.putLong(minValidIndex.get());
+        headerBuffer.putLong(minValidIndex);
         headerBuffer.flip();
         // always write at start of file
         MerkleDbFileUtils.completelyWrite(fc, headerBuffer, 0);
@@ -469,8 +502,12 @@ public abstract class AbstractLongList<C> implements LongList {
             throw new IndexOutOfBoundsException(MAX_VALID_INDEX_LIMIT.formatted(newMaxValidIndex, maxLongs));
         }
 
-        minValidIndex.set(newMinValidIndex);
+        final long oldMinValidIndex = minValidIndex.getAndSet(newMinValidIndex);
         long oldMaxValidIndex = size.getAndUpdate(v -> min(newMaxValidIndex + 1, v)) - 1;
+        // Values outside the new range are discarded. If the range grows later, these values
+        // will be read as missing, so they must be included to the next delta file
+        markChanged(oldMinValidIndex, min(newMinValidIndex, oldMaxValidIndex + 1));
+        markChanged(max(newMaxValidIndex + 1, oldMinValidIndex), oldMaxValidIndex + 1);
 
         shrinkLeftSideIfNeeded(newMinValidIndex);
         shrinkRightSideIfNeeded(oldMaxValidIndex, newMaxValidIndex);
@@ -478,6 +515,124 @@ public abstract class AbstractLongList<C> implements LongList {
 
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void startTrackingChanges() {
+        final long pageCount = (maxLongs + CHANGE_TRACKING_PAGE_SIZE - 1) / CHANGE_TRACKING_PAGE_SIZE;
+        changedPages = new AtomicLongArray(toIntExact((pageCount + Long.SIZE - 1) / Long.SIZE));
+    }
+
+    /**
+     * Marks all pages, which contain indices in the given range, as changed, if changes are
+     * tracked.
+     *
+     * @param fromIndex the first index in the range, inclusive
+     * @param toIndex the last index in the range, exclusive
+     */
+    private void markChanged(final long fromIndex, final long toIndex) {
+        final AtomicLongArray pages = changedPages;
+        if ((pages == null) || (fromIndex >= toIndex)) {
+            return;
+        }
+        final long firstPage = fromIndex / CHANGE_TRACKING_PAGE_SIZE;
+        final long lastPage = (toIndex - 1) / CHANGE_TRACKING_PAGE_SIZE;
+        for (long page = firstPage; page <= lastPage; page++) {
+            final int word = toIntExact(page / Long.SIZE);
+            final long bit = 1L << (page % Long.SIZE);
+            // check first to avoid CAS in the most common case, when the page is already changed
+            if ((pages.get(word) & bit) == 0) {
+                pages.accumulateAndGet(word, bit, (a, b) -> a | b);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeChangesToFile(final Path file) throws IOException {
+        final AtomicLongArray pages = changedPages;
+        if (pages == null) {
+            throw new IllegalStateException("Changes are not tracked");
+        }
+        final long currentSize = size();
+        final ByteBuffer headerBuffer = ByteBuffer.allocate(DELTA_FILE_HEADER_SIZE);
+        headerBuffer.putInt(DELTA_FILE_FORMAT_VERSION);
+        headerBuffer.putInt(CHANGE_TRACKING_PAGE_SIZE);
+        headerBuffer.putLong(minValidIndex.get());
+        headerBuffer.putLong(currentSize);
+        headerBuffer.flip();
+        final ByteBuffer pageBuffer = ByteBuffer.allocate(Long.BYTES + CHANGE_TRACKING_PAGE_SIZE * Long.BYTES);
+        try (final FileChannel fc = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            MerkleDbFileUtils.completelyWrite(fc, headerBuffer);
+            for (int word = 0; word < pages.length(); word++) {
+                if (pages.get(word) == 0) {
+                    continue;
+                }
+                // Clear the bits before reading pages. If a page is changed concurrently, its
+                // bit is set again after the value is stored, so the change is not lost
+                long bits = pages.getAndSet(word, 0);
+                while (bits != 0) {
+                    final int bit = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    final long firstIndex = ((long) word * Long.SIZE + bit) * CHANGE_TRACKING_PAGE_SIZE;
+                    if (firstIndex >= currentSize) {
+                        // all values beyond the size are discarded on load anyway
+                        continue;
+                    }
+                    pageBuffer.clear();
+                    pageBuffer.putLong(firstIndex);
+                    for (int i = 0; i < CHANGE_TRACKING_PAGE_SIZE; i++) {
+                        final long index = firstIndex + i;
+                        pageBuffer.putLong(index < maxLongs ? get(index) : IMPERMISSIBLE_VALUE);
+                    }
+                    pageBuffer.flip();
+                    MerkleDbFileUtils.completelyWrite(fc, pageBuffer);
+                }
+            }
+            fc.force(true);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void applyChangesFromFile(final Path file) throws IOException {
+        try (final FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer headerBuffer = readFromFileChannel(fc, DELTA_FILE_HEADER_SIZE);
+            final int formatVersion = headerBuffer.getInt();
+            if (formatVersion != DELTA_FILE_FORMAT_VERSION) {
+                throw new IOException("Delta file format version is not supported. File format version ["
+                        + formatVersion
+                        + "], the latest supported version is ["
+                        + DELTA_FILE_FORMAT_VERSION
+                        + "].");
+            }
+            final int pageSize = headerBuffer.getInt();
+            final long newMinValidIndex = headerBuffer.getLong();
+            final long newSize = headerBuffer.getLong();
+            // Delta pages may contain values to the left of the current min valid index
+            minValidIndex.getAndUpdate(v -> min(v, newMinValidIndex));
+            final long pageBytes = Long.BYTES + (long) pageSize * Long.BYTES;
+            while (fc.position() + pageBytes <= fc.size()) {
+                final ByteBuffer pageBuffer = readFromFileChannel(fc, toIntExact(pageBytes));
+                final long firstIndex = pageBuffer.getLong();
+                for (int i = 0; i < pageSize; i++) {
+                    final long index = firstIndex + i;
+                    final long value = pageBuffer.getLong();
+                    if (index >= newSize) {
+                        break;
+                    }
+                    if (value != IMPERMISSIBLE_VALUE) {
+                        put(index, value);
+                    } else if (get(index) != IMPERMISSIBLE_VALUE) {
+                        remove(index);
+                    }
+                }
+            }
+            updateValidRange(newMinValidIndex, newSize - 1);
+            // the range is updated above, but trailing missing values may be not covered by it
+            size.set(newSize);
+        }
+    }
+
     /**
      * Expand the available data storage if needed to allow storage of an item at newIndex
      *
@@ -488,7 +643,7 @@ public abstract class AbstractLongList<C> implements LongList {
         final int chunkIndex = toIntExact(newIndex / numLongsPerChunk);
         final C result = chunkList.get(chunkIndex);
         if (result == null) {
-            final C newChunk = createChunk();
+            final C newChunk = createChunk(chunkIndex);
             // set new chunk if it's not created yet, if it is - release the chunk immediately
             // and use the one from the list
             final C oldChunk = chunkList.compareAndExchange(chunkIndex, null, newChunk);
@@ -589,9 +744,13 @@ public abstract class AbstractLongList<C> implements LongList {
             @NonNull final C chunk, final boolean leftSide, final long entriesToCleanUp);
 
     /**
+     * Creates a new chunk to be stored at the given index in the chunk list. Implementations whose
+     * chunks don't need to know their positions in the list may ignore the index.
+     *
+     * @param chunkIndex the index of the chunk in the chunk list
      * @return a new chunk
      */
-    protected abstract C createChunk();
+    protected abstract C createChunk(final int chunkIndex);
 
     /**
      * @param totalNumberOfElements total number of elements in the list
@@ -628,8 +787,15 @@ public abstract class AbstractLongList<C> implements LongList {
     /** {@inheritDoc} */
     @Override
     public <T extends Throwable> void forEach(final LongAction<T> action) throws InterruptedException, T {
-        final long max = size();
-        for (long i = minValidIndex.get(); i < max; i++) {
+        forEach(action, 0, Long.MAX_VALUE);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends Throwable> void forEach(final LongAction<T> action, final long fromIndex, final long toIndex)
+            throws InterruptedException, T {
+        final long max = Math.min(size(), toIndex);
+        for (long i = Math.max(minValidIndex.get(), fromIndex); i < max; i++) {
             final long value = get(i);
             if (value != IMPERMISSIBLE_VALUE) {
                 action.handle(i, value);
@@ -56,6 +56,27 @@ public interface CASableLongIndex {
      */
     <T extends Throwable> void forEach(LongAction<T> action) throws InterruptedException, T;
 
+    /**
+     * Iterates over valid index entries in the given range and calls the specified action for
+     * each of them. Default implementation iterates over all entries and skips the ones out of
+     * range, implementations are encouraged to provide a more efficient version.
+     *
+     * @param action Action to call.
+     * @param fromIndex The first index to iterate over, inclusive
+     * @param toIndex The last index to iterate over, exclusive
+     * @param <T> Type of throwables allowed to throw by this method
+     * @throws InterruptedException If the thread running the method is interrupted
+     * @throws T If an error occurs
+     */
+    default <T extends Throwable> void forEach(LongAction<T> action, long fromIndex, long toIndex)
+            throws InterruptedException, T {
+        forEach((index, value) -> {
+            if ((index >= fromIndex) && (index < toIndex)) {
+                action.handle(index, value);
+            }
+        });
+    }
+
     /**
      * Action interface to use in {@link #forEach(LongAction)}. It could be a standard Java API
      * interface like BiFunction, but all these APIs work with boxed Long type instead of
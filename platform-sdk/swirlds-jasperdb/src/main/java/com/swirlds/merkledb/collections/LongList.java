@@ -136,6 +136,39 @@ public interface LongList extends CASableLongIndex, Closeable {
      */
     void updateValidRange(long newMinValidIndex, long newMaxValidIndex);
 
+    /**
+     * Starts tracking changes made to this list. All changes made after this call are written to
+     * a file on the next {@link #writeChangesToFile(Path)} call. If changes are already tracked,
+     * this method discards all changes tracked so far.
+     */
+    void startTrackingChanges();
+
+    /**
+     * Writes all changes made to this list since the last call to {@link #startTrackingChanges()}
+     * or this method into a delta file. Changes are tracked in pages of {@link
+     * AbstractLongList#CHANGE_TRACKING_PAGE_SIZE} longs, only changed pages are written.
+     * <p>
+     * <b> Similar to {@link #writeToFile(Path)}, it is not guaranteed what version of data will be
+     * written if the LongList is changed concurrently. Such changes are written to the next delta
+     * file, too. </b>
+     *
+     * @param file The file to write into, it should not exist but its parent directory should exist
+     *             and be writable.
+     * @throws IOException If there was a problem creating or writing to the file.
+     * @throws IllegalStateException If changes aren't tracked
+     */
+    void writeChangesToFile(Path file) throws IOException;
+
+    /**
+     * Applies changes from a delta file written by {@link #writeChangesToFile(Path)}. After all
+     * delta files are applied in order to a list loaded from the full file they are based on,
+     * the list contains the same data as the list, which the last delta file was written from.
+     *
+     * @param file The delta file to read changes from
+     * @throws IOException If there was a problem reading the file
+     */
+    void applyChangesFromFile(Path file) throws IOException;
+
     /** {@inheritDoc} */
     @Override
     <T extends Throwable> void forEach(LongAction<T> action) throws InterruptedException, T;
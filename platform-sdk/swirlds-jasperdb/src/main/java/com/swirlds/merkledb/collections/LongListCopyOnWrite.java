@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.collections;
+
+import static java.lang.Math.toIntExact;
+import static java.nio.ByteBuffer.allocateDirect;
+
+import com.swirlds.merkledb.utilities.MerkleDbFileUtils;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link LongList} that stores its contents on-heap in fixed-size chunks, which are shared with
+ * frozen views of the list and copied on write.
+ *
+ * <p>A frozen view is created with {@link #freeze()}. It only takes references to all current
+ * chunks, so it's O(number of chunks) rather than O(number of longs). Every chunk counts frozen
+ * views referencing it. When a value is stored to a chunk referenced by at least one frozen view,
+ * the chunk is copied first, and the copy replaces the original chunk in the list. Frozen views
+ * are never changed, so they can be written to disk in background, while the list itself is
+ * updated using {@link #put(long, long)} and {@link #putIfEqual(long, long, long)}.
+ *
+ * <p>Writers don't block each other. Freezing the list waits for writes in progress to complete,
+ * and new writes wait for freezing to complete, which is very short.
+ *
+ * <p>{@link #writeToFile(Path)} freezes the list and writes the frozen view, so the file always
+ * contains the list state at a single point in time.
+ *
+ * <p>Per the {@link LongList} contract, this class is thread-safe for both concurrent reads and
+ * writes.
+ */
+public final class LongListCopyOnWrite extends AbstractLongList<LongListCopyOnWrite.Chunk> {
+
+    /** Number of writes in progress, see {@link #startWrite()} */
+    private final AtomicInteger writesInProgress = new AtomicInteger(0);
+
+    /** Indicates that the list is being frozen, and new writes must wait */
+    private volatile boolean freezing = false;
+
+    /** Guards {@link #freeze()}, so the list isn't frozen by multiple threads at the same time */
+    private final Object freezeLock = new Object();
+
+    /** Construct a new LongListCopyOnWrite with the default number of longs per chunk. */
+    public LongListCopyOnWrite() {
+        this(DEFAULT_NUM_LONGS_PER_CHUNK, DEFAULT_MAX_LONGS_TO_STORE, DEFAULT_RESERVED_BUFFER_LENGTH);
+    }
+
+    /**
+     * Construct a new LongListCopyOnWrite with the default number of longs per chunk and the
+     * specified reserved buffer length.
+     *
+     * @param reservedBufferLength the number of indices before the minimal index to keep reserved
+     */
+    public LongListCopyOnWrite(final int reservedBufferLength) {
+        this(DEFAULT_NUM_LONGS_PER_CHUNK, DEFAULT_MAX_LONGS_TO_STORE, reservedBufferLength);
+    }
+
+    /**
+     * Construct a new LongListCopyOnWrite with the specified number of longs per chunk and maximum
+     * number of longs.
+     *
+     * @param numLongsPerChunk number of longs to store in each chunk of memory allocated
+     * @param maxLongs the maximum number of longs permissible for this LongList
+     * @param reservedBufferLength the number of indices before the minimal index to keep reserved
+     */
+    LongListCopyOnWrite(final int numLongsPerChunk, final long maxLongs, final long reservedBufferLength) {
+        super(numLongsPerChunk, maxLongs, reservedBufferLength);
+    }
+
+    /**
+     * Create a {@link LongListCopyOnWrite} from a file that was saved.
+     *
+     * @param file the file to read from
+     * @throws IOException If there was a problem reading the file
+     */
+    public LongListCopyOnWrite(final Path file) throws IOException {
+        super(file, DEFAULT_RESERVED_BUFFER_LENGTH);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void readBodyFromFileChannelOnInit(final String sourceFileName, final FileChannel fileChannel)
+            throws IOException {
+        final int firstChunkIndex = toIntExact(minValidIndex.get() / numLongsPerChunk);
+        final int numOfChunks = calculateNumberOfChunks(size());
+        final ByteBuffer buffer = allocateDirect(memoryChunkSize);
+        buffer.order(ByteOrder.nativeOrder());
+        for (int i = firstChunkIndex; i < numOfChunks; i++) {
+            final Chunk chunk = createChunk(i);
+            // the first chunk may be written to the file partially, starting from min valid index
+            final int firstSubIndex = (i == firstChunkIndex) ? toIntExact(minValidIndex.get() % numLongsPerChunk) : 0;
+            buffer.clear();
+            buffer.position(firstSubIndex * Long.BYTES);
+            MerkleDbFileUtils.completelyRead(fileChannel, buffer);
+            buffer.flip();
+            buffer.position(firstSubIndex * Long.BYTES);
+            int subIndex = firstSubIndex;
+            while (buffer.remaining() > 0) {
+                chunk.values.set(subIndex, buffer.getLong());
+                subIndex++;
+            }
+            chunkList.set(i, chunk);
+        }
+    }
+
+    /**
+     * Marks a write as started. If the list is being frozen, waits till freezing is complete.
+     * Must always be followed by {@link #finishWrite()}.
+     */
+    private void startWrite() {
+        while (true) {
+            writesInProgress.incrementAndGet();
+            if (!freezing) {
+                return;
+            }
+            writesInProgress.decrementAndGet();
+            while (freezing) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /** Marks a write as complete. */
+    private void finishWrite() {
+        writesInProgress.decrementAndGet();
+    }
+
+    /**
+     * Returns the current chunk at the position of the given chunk, which can be written to. If the
+     * current chunk is referenced by frozen views, it's copied, and the copy replaces it in the
+     * list. Must be called between {@link #startWrite()} and {@link #finishWrite()}, so no new
+     * frozen views can be created concurrently.
+     *
+     * @param chunk the chunk to write to. It may be already replaced with a copy in the list
+     * @param subIndex the index in the chunk to write to
+     * @param oldValue the expected current value. If the current value in the chunk is different,
+     *     no copy is made, since there will be no write
+     * @param checkOldValue whether to check the expected current value
+     * @return the chunk to write to, or null if the current value doesn't match the old value
+     */
+    private Chunk writableChunk(
+            final Chunk chunk, final int subIndex, final long oldValue, final boolean checkOldValue) {
+        Chunk current = chunkList.get(chunk.index);
+        if (current == null) {
+            // The chunk has just been discarded by updateValidRange(). Values written to it are
+            // discarded, too, but frozen views must not be affected
+            return (chunk.frozenViews.get() > 0) ? new Chunk(chunk) : chunk;
+        }
+        while (current.frozenViews.get() > 0) {
+            if (checkOldValue && (current.values.get(subIndex) != oldValue)) {
+                return null;
+            }
+            // No other thread writes to the current chunk, as it's referenced by frozen views, so
+            // the copy has all the latest values
+            final Chunk copy = new Chunk(current);
+            final Chunk witness = chunkList.compareAndExchange(chunk.index, current, copy);
+            if (witness == current) {
+                return copy;
+            }
+            if (witness == null) {
+                // discarded concurrently, see above
+                return copy;
+            }
+            // another thread has copied the chunk first
+            current = witness;
+        }
+        return current;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void putToChunk(final Chunk chunk, final int subIndex, final long value) {
+        startWrite();
+        try {
+            writableChunk(chunk, subIndex, IMPERMISSIBLE_VALUE, false).values.set(subIndex, value);
+        } finally {
+            finishWrite();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean putIfEqual(final Chunk chunk, final int subIndex, final long oldValue, final long newValue) {
+        startWrite();
+        try {
+            final Chunk writable = writableChunk(chunk, subIndex, oldValue, true);
+            return (writable != null) && writable.values.compareAndSet(subIndex, oldValue, newValue);
+        } finally {
+            finishWrite();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected long lookupInChunk(@NonNull final Chunk chunk, final long subIndex) {
+        return chunk.values.get(toIntExact(subIndex));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void releaseChunk(@NonNull final Chunk chunk) {
+        // no action needed, the chunk will be collected by GC, when it isn't referenced by frozen views
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void partialChunkCleanup(
+            @NonNull final Chunk chunk, final boolean leftSide, final long entriesToCleanUp) {
+        startWrite();
+        try {
+            final AtomicLongArray values = writableChunk(chunk, 0, IMPERMISSIBLE_VALUE, false).values;
+            if (leftSide) {
+                for (int i = 0; i < entriesToCleanUp; i++) {
+                    values.set(i, IMPERMISSIBLE_VALUE);
+                }
+            } else {
+                for (int i = toIntExact(values.length() - entriesToCleanUp); i < values.length(); i++) {
+                    values.set(i, IMPERMISSIBLE_VALUE);
+                }
+            }
+        } finally {
+            finishWrite();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Chunk createChunk(final int chunkIndex) {
+        return new Chunk(chunkIndex, new AtomicLongArray(numLongsPerChunk));
+    }
+
+    /**
+     * Creates a frozen view of the list. The view isn't affected by any changes made to the list
+     * later. It must be closed, when no longer needed, otherwise all chunks it references will be
+     * copied on every write to them.
+     *
+     * @return the frozen view
+     */
+    public FrozenView freeze() {
+        synchronized (freezeLock) {
+            freezing = true;
+            try {
+                while (writesInProgress.get() > 0) {
+                    Thread.onSpinWait();
+                }
+                final long frozenMinValidIndex = minValidIndex.get();
+                final long frozenSize = size();
+                final Chunk[] chunks = new Chunk[frozenSize == 0 ? 0 : calculateNumberOfChunks(frozenSize)];
+                for (int i = toIntExact(frozenMinValidIndex / numLongsPerChunk); i < chunks.length; i++) {
+                    final Chunk chunk = chunkList.get(i);
+                    if (chunk != null) {
+                        chunk.frozenViews.incrementAndGet();
+                        chunks[i] = chunk;
+                    }
+                }
+                return new FrozenView(chunks, frozenMinValidIndex, frozenSize);
+            } finally {
+                freezing = false;
+            }
+        }
+    }
+
+    /**
+     * Writes a frozen view of the list to the file, see {@link #freeze()}. The list may be updated
+     * concurrently, all such updates will not be written to the file.
+     *
+     * @param file The file to write into, it should not exist but its parent directory should exist
+     *             and be writable.
+     * @throws IOException If there was a problem creating or writing to the file.
+     */
+    @Override
+    public void writeToFile(final Path file) throws IOException {
+        try (final FrozenView view = freeze()) {
+            view.writeToFile(file);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeLongsData(final FileChannel fc) throws IOException {
+        // Never called, as writeToFile() is overridden, but here it is for completeness
+        try (final FrozenView view = freeze()) {
+            view.writeLongsData(fc);
+        }
+    }
+
+    /**
+     * A fixed-size chunk of longs with a counter of frozen views referencing it.
+     */
+    static final class Chunk {
+
+        /** Position of this chunk in the list */
+        private final int index;
+
+        /** Chunk values */
+        private final AtomicLongArray values;
+
+        /** Number of frozen views referencing this chunk. If not zero, the chunk must not be changed */
+        private final AtomicInteger frozenViews = new AtomicInteger(0);
+
+        private Chunk(final int index, final AtomicLongArray values) {
+            this.index = index;
+            this.values = values;
+        }
+
+        /** Creates a copy of the given chunk, which isn't referenced by any frozen views. */
+        private Chunk(final Chunk other) {
+            this.index = other.index;
+            final int length = other.values.length();
+            this.values = new AtomicLongArray(length);
+            for (int i = 0; i < length; i++) {
+                this.values.setPlain(i, other.values.getPlain(i));
+            }
+        }
+    }
+
+    /**
+     * An immutable view of the list at a single point in time, see {@link #freeze()}. The view
+     * must be closed, when no longer needed.
+     */
+    public final class FrozenView implements AutoCloseable {
+
+        /** Frozen chunks, null elements for missing chunks */
+        private final Chunk[] chunks;
+
+        /** Min valid index at the moment the view was created */
+        private final long frozenMinValidIndex;
+
+        /** List size at the moment the view was created */
+        private final long frozenSize;
+
+        /** Indicates whether the view is closed */
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private FrozenView(final Chunk[] chunks, final long frozenMinValidIndex, final long frozenSize) {
+            this.chunks = chunks;
+            this.frozenMinValidIndex = frozenMinValidIndex;
+            this.frozenSize = frozenSize;
+        }
+
+        /**
+         * Get the list size at the moment the view was created.
+         *
+         * @return the list size
+         */
+        public long size() {
+            return frozenSize;
+        }
+
+        /**
+         * Get the min valid index at the moment the view was created.
+         *
+         * @return the min valid index
+         */
+        public long getMinValidIndex() {
+            return frozenMinValidIndex;
+        }
+
+        /**
+         * Get the value at the given index at the moment the view was created.
+         *
+         * @param index the index
+         * @param defaultValue the value to return if nothing is stored at the index
+         * @return the stored value, or the default value
+         */
+        public long get(final long index, final long defaultValue) {
+            if (closed.get()) {
+                throw new IllegalStateException("Frozen view is closed");
+            }
+            if ((index < frozenMinValidIndex) || (index >= frozenSize)) {
+                return defaultValue;
+            }
+            final Chunk chunk = chunks[toIntExact(index / numLongsPerChunk)];
+            if (chunk == null) {
+                return defaultValue;
+            }
+            final long value = chunk.values.get(toIntExact(index % numLongsPerChunk));
+            return value == IMPERMISSIBLE_VALUE ? defaultValue : value;
+        }
+
+        /**
+         * Write all longs in this view into a file, in the same format as {@link
+         * LongList#writeToFile(Path)} does.
+         *
+         * @param file The file to write into, it should not exist but its parent directory should
+         *             exist and be writable.
+         * @throws IOException If there was a problem creating or writing to the file.
+         */
+        public void writeToFile(final Path file) throws IOException {
+            try (final FileChannel fc =
+                    FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                writeHeader(fc, frozenMinValidIndex);
+                writeLongsData(fc);
+                fc.force(true);
+            }
+        }
+
+        private void writeLongsData(final FileChannel fc) throws IOException {
+            final ByteBuffer tempBuffer = allocateDirect(1024 * 1024);
+            tempBuffer.order(ByteOrder.nativeOrder());
+            final LongBuffer tempLongBuffer = tempBuffer.asLongBuffer();
+            for (long i = frozenMinValidIndex; i < frozenSize; i++) {
+                // if buffer is full then write
+                if (!tempLongBuffer.hasRemaining()) {
+                    tempBuffer.clear();
+                    MerkleDbFileUtils.completelyWrite(fc, tempBuffer);
+                    tempLongBuffer.clear();
+                }
+                tempLongBuffer.put(get(i, IMPERMISSIBLE_VALUE));
+            }
+            // write any remaining
+            if (tempLongBuffer.position() > 0) {
+                tempBuffer.position(0);
+                tempBuffer.limit(tempLongBuffer.position() * Long.BYTES);
+                MerkleDbFileUtils.completelyWrite(fc, tempBuffer);
+            }
+        }
+
+        /** Releases all chunks referenced by this view. */
+        @Override
+        public void close() {
+            if (closed.getAndSet(true)) {
+                return;
+            }
+            for (final Chunk chunk : chunks) {
+                if (chunk != null) {
+                    chunk.frozenViews.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -367,7 +367,7 @@ public class LongListDisk extends AbstractLongList<Long> {
 
     /** {@inheritDoc} */
     @Override
-    protected Long createChunk() {
+    protected Long createChunk(final int chunkIndex) {
         Long chunkOffset = freeChunks.poll();
         if (chunkOffset == null) {
             long maxOffset = -1;
@@ -182,7 +182,7 @@ public final class LongListHeap extends AbstractLongList<AtomicLongArray> {
 
     /** {@inheritDoc} */
     @Override
-    protected AtomicLongArray createChunk() {
+    protected AtomicLongArray createChunk(final int chunkIndex) {
         return new AtomicLongArray(numLongsPerChunk);
     }
 }
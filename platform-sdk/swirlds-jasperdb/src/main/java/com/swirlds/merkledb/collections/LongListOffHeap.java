@@ -101,13 +101,13 @@ public final class LongListOffHeap extends AbstractLongList<ByteBuffer> implemen
         final int firstChunkWithDataIndex = toIntExact(minValidIndex.get() / numLongsPerChunk);
         final int minValidIndexInChunk = toIntExact(minValidIndex.get() % numLongsPerChunk);
         // read the first chunk
-        final ByteBuffer firstBuffer = createChunk();
+        final ByteBuffer firstBuffer = createChunk(firstChunkWithDataIndex);
         firstBuffer.position(minValidIndexInChunk * Long.BYTES).limit(firstBuffer.capacity());
         MerkleDbFileUtils.completelyRead(fileChannel, firstBuffer);
         chunkList.set(firstChunkWithDataIndex, firstBuffer);
         // read the rest of the data
         for (int i = firstChunkWithDataIndex + 1; i < totalNumberOfChunks; i++) {
-            final ByteBuffer directBuffer = createChunk();
+            final ByteBuffer directBuffer = createChunk(i);
             MerkleDbFileUtils.completelyRead(fileChannel, directBuffer);
             directBuffer.position(0);
             chunkList.set(i, directBuffer);
@@ -164,7 +164,7 @@ public final class LongListOffHeap extends AbstractLongList<ByteBuffer> implemen
         final long currentMinValidIndex = minValidIndex.get();
         final int firstChunkWithDataIndex = toIntExact(currentMinValidIndex / numLongsPerChunk);
         // write data
-        final ByteBuffer emptyBuffer = createChunk();
+        final ByteBuffer emptyBuffer = allocateChunkBuffer();
         try {
             for (int i = firstChunkWithDataIndex; i < totalNumOfChunks; i++) {
                 final ByteBuffer byteBuffer = chunkList.get(i);
@@ -220,7 +220,16 @@ public final class LongListOffHeap extends AbstractLongList<ByteBuffer> implemen
         }
     }
 
-    protected ByteBuffer createChunk() {
+    /** {@inheritDoc} */
+    @Override
+    protected ByteBuffer createChunk(final int chunkIndex) {
+        return allocateChunkBuffer();
+    }
+
+    /**
+     * @return a new direct buffer, in native byte order, large enough to hold one chunk
+     */
+    private ByteBuffer allocateChunkBuffer() {
         final ByteBuffer directBuffer = ByteBuffer.allocateDirect(memoryChunkSize);
         directBuffer.order(ByteOrder.nativeOrder());
         return directBuffer;
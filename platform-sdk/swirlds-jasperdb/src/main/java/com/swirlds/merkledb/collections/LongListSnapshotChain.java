@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.collections;
+
+import static com.swirlds.logging.legacy.LogMarker.EXCEPTION;
+import static com.swirlds.logging.legacy.LogMarker.MERKLE_DB;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes incremental snapshots of a {@link LongList}. The first snapshot in a chain is a full
+ * base file written with {@link LongList#writeToFile(Path)}. Every next snapshot is a delta file
+ * with list pages changed since the previous snapshot, see {@link LongList#writeChangesToFile(Path)}.
+ * After a configured number of deltas, a new full base is written, and a new chain is started.
+ *
+ * <p>Every snapshot directory is self-contained. Base and delta files are immutable, so all files
+ * of the chain written by previous snapshots are hard-linked to the new snapshot directory rather
+ * than copied. Then a manifest file is written next to the base file, it lists all delta files to
+ * apply to the base file in order. When a list is loaded from a snapshot, deltas from the manifest
+ * are applied using {@link #applyDeltas(LongList, Path)}.
+ *
+ * <p>Previous snapshot directories may be deleted at any moment, so hard links to the chain files
+ * are also kept in a separate chain directory, which is owned by the list owner. When a new chain
+ * is started, all old chain files are removed from the chain directory.
+ *
+ * <p>This class is not thread safe. Snapshots of a single list must not be taken concurrently.
+ */
+public final class LongListSnapshotChain {
+
+    private static final Logger logger = LogManager.getLogger(LongListSnapshotChain.class);
+
+    /** Name of the directory to keep chain files in, relative to the list owner's directory */
+    public static final String CHAIN_DIRECTORY_NAME = "snapshotChain";
+    /** Delta file name suffix, followed by delta number in the chain */
+    static final String DELTA_FILE_SUFFIX = ".delta.";
+    /** Manifest file name suffix */
+    static final String MANIFEST_FILE_SUFFIX = ".manifest";
+    /** Manifest file format version */
+    private static final int MANIFEST_FILE_FORMAT_VERSION = 1;
+
+    /** The list to snapshot */
+    private final LongList list;
+
+    /** Directory to keep hard links to all files in the current chain */
+    private final Path chainDirectory;
+
+    /** Name of the base file in the chain directory */
+    private final String fileName;
+
+    /** Max number of delta files in a chain before a new full base file is written */
+    private final int maxDeltas;
+
+    /** Whether the chain directory contains a base file for the current chain */
+    private boolean hasBase = false;
+
+    /** Names of delta files in the current chain, in order */
+    private final List<String> deltas = new ArrayList<>();
+
+    /**
+     * Creates a new snapshot chain. The first snapshot taken will be a full base file.
+     *
+     * @param list the list to snapshot
+     * @param chainDirectory directory to keep hard links to the current chain files
+     * @param fileName name of the base file in the chain directory
+     * @param maxDeltas max number of delta files in a chain
+     */
+    public LongListSnapshotChain(
+            final LongList list, final Path chainDirectory, final String fileName, final int maxDeltas) {
+        if (maxDeltas < 1) {
+            throw new IllegalArgumentException("Max number of deltas must be positive: " + maxDeltas);
+        }
+        this.list = list;
+        this.chainDirectory = chainDirectory;
+        this.fileName = fileName;
+        this.maxDeltas = maxDeltas;
+    }
+
+    /**
+     * Takes a snapshot of the list to the given file. If possible, only a delta file is written,
+     * and all files of the chain are hard-linked to the file's directory. Otherwise, a full base
+     * file is written, and a new chain is started.
+     *
+     * @param file the file to write the list to. Delta files and the manifest are written to the
+     *             same directory
+     * @return true if the snapshot is a delta, false if a full file was written
+     * @throws IOException if an I/O error occurred
+     */
+    public boolean snapshot(final Path file) throws IOException {
+        if (hasBase && (deltas.size() < maxDeltas)) {
+            try {
+                writeDelta(file);
+                return true;
+            } catch (final IOException e) {
+                // One of the files in the chain may be missing, or hard links may be not supported. Either
+                // way, a full snapshot is still possible
+                logger.warn(
+                        EXCEPTION.getMarker(),
+                        "Failed to write a delta snapshot for {}, writing a full snapshot",
+                        fileName,
+                        e);
+                deleteDeltaFiles(file);
+            }
+        }
+        writeBase(file);
+        return false;
+    }
+
+    private void writeBase(final Path file) throws IOException {
+        resetChain();
+        // Start tracking before the list is written, so changes made while the file is being
+        // written are included to the next delta
+        list.startTrackingChanges();
+        list.writeToFile(file);
+        writeManifest(file, List.of());
+        try {
+            Files.createDirectories(chainDirectory);
+            Files.createLink(chainDirectory.resolve(fileName), file);
+            hasBase = true;
+        } catch (final IOException e) {
+            // The snapshot itself is fine, just the next snapshot will be a full one, too
+            logger.warn(
+                    EXCEPTION.getMarker(),
+                    "Failed to link snapshot file {} to {}, incremental snapshots are not possible",
+                    file,
+                    chainDirectory,
+                    e);
+        }
+    }
+
+    private void writeDelta(final Path file) throws IOException {
+        final String deltaName = fileName + DELTA_FILE_SUFFIX + (deltas.size() + 1);
+        final Path deltaFile = deltaFile(file, deltas.size() + 1);
+        // Link all previous chain files first. If any of them is missing, there is no need to
+        // write the delta
+        Files.createLink(file, chainDirectory.resolve(fileName));
+        for (int i = 0; i < deltas.size(); i++) {
+            Files.createLink(deltaFile(file, i + 1), chainDirectory.resolve(deltas.get(i)));
+        }
+        list.writeChangesToFile(deltaFile);
+        final List<String> deltaFileNames = new ArrayList<>(deltas.size() + 1);
+        for (int i = 0; i <= deltas.size(); i++) {
+            deltaFileNames.add(deltaFile(file, i + 1).getFileName().toString());
+        }
+        writeManifest(file, deltaFileNames);
+        try {
+            Files.createLink(chainDirectory.resolve(deltaName), deltaFile);
+            deltas.add(deltaName);
+        } catch (final IOException e) {
+            // The delta is written, but the chain can't be continued. The next snapshot will
+            // be a full one
+            resetChain();
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes delta files and the manifest from the snapshot directory after a failed delta
+     * snapshot attempt, so a full snapshot can be written to the same directory.
+     */
+    private void deleteDeltaFiles(final Path file) throws IOException {
+        Files.deleteIfExists(file);
+        for (int i = 0; i <= deltas.size(); i++) {
+            Files.deleteIfExists(deltaFile(file, i + 1));
+        }
+        Files.deleteIfExists(manifestFile(file));
+    }
+
+    /** Removes all current chain files from the chain directory. */
+    private void resetChain() throws IOException {
+        hasBase = false;
+        Files.deleteIfExists(chainDirectory.resolve(fileName));
+        for (final String delta : deltas) {
+            Files.deleteIfExists(chainDirectory.resolve(delta));
+        }
+        deltas.clear();
+    }
+
+    private static void writeManifest(final Path file, final List<String> deltaFileNames) throws IOException {
+        try (final DataOutputStream out = new DataOutputStream(Files.newOutputStream(manifestFile(file)))) {
+            out.writeInt(MANIFEST_FILE_FORMAT_VERSION);
+            out.writeUTF(file.getFileName().toString());
+            out.writeInt(deltaFileNames.size());
+            for (final String deltaFileName : deltaFileNames) {
+                out.writeUTF(deltaFileName);
+            }
+        }
+    }
+
+    /**
+     * Applies all delta files listed in the manifest next to the given base file to the list. If
+     * there is no manifest, the list is expected to be loaded from a full file, and this method is
+     * a no-op.
+     *
+     * @param list the list loaded from the base file
+     * @param file the base file
+     * @throws IOException if the manifest doesn't match the base file, or an I/O error occurred
+     */
+    public static void applyDeltas(final LongList list, final Path file) throws IOException {
+        final Path manifestFile = manifestFile(file);
+        if (!Files.exists(manifestFile)) {
+            return;
+        }
+        final List<String> deltaFileNames = new ArrayList<>();
+        try (final DataInputStream in = new DataInputStream(Files.newInputStream(manifestFile))) {
+            final int formatVersion = in.readInt();
+            if (formatVersion != MANIFEST_FILE_FORMAT_VERSION) {
+                throw new IOException("Snapshot manifest format version is not supported. File format version ["
+                        + formatVersion
+                        + "], the latest supported version is ["
+                        + MANIFEST_FILE_FORMAT_VERSION
+                        + "].");
+            }
+            final String baseFileName = in.readUTF();
+            if (!baseFileName.equals(file.getFileName().toString())) {
+                throw new IOException("Snapshot manifest " + manifestFile + " is for a different file " + baseFileName);
+            }
+            final int deltaCount = in.readInt();
+            for (int i = 0; i < deltaCount; i++) {
+                deltaFileNames.add(in.readUTF());
+            }
+        }
+        for (final String deltaFileName : deltaFileNames) {
+            list.applyChangesFromFile(file.resolveSibling(deltaFileName));
+        }
+        if (!deltaFileNames.isEmpty()) {
+            logger.info(MERKLE_DB.getMarker(), "Applied {} delta files to {}", deltaFileNames.size(), file);
+        }
+    }
+
+    static Path deltaFile(final Path file, final int deltaNumber) {
+        return file.resolveSibling(file.getFileName().toString() + DELTA_FILE_SUFFIX + deltaNumber);
+    }
+
+    static Path manifestFile(final Path file) {
+        return file.resolveSibling(file.getFileName().toString() + MANIFEST_FILE_SUFFIX);
+    }
+}
@@ -82,6 +82,82 @@ import com.swirlds.config.extensions.validators.DefaultConfigViolation;
  * @param leafRecordCacheSize
  *      Cache size in bytes for reading virtual leaf records. Initialized in data source creation time from MerkleDb config.
  *      If the value is zero, leaf records cache isn't used.
+ * @param dataFileReadEngine
+ *      Name of the engine used to read multiple data items from a data file in a single batch. Built-in engines are
+ *      "sync", which issues one positional read per item, and "async", which submits all reads of a batch to an
+ *      {@link java.nio.channels.AsynchronousFileChannel} at once. "async" is opt-in: on Linux, asynchronous file
+ *      channels do blocking reads on a hidden thread pool. Other engines may be provided as
+ *      {@link com.swirlds.merkledb.files.DataFileReadEngine} services.
+ * @param dataFileMemoryMappingEnabled
+ *      If true, completed data files are mapped into memory, and data items are read from mapped memory rather than
+ *      using file channels.
+ * @param maxMappedDataFileBytes
+ *      Max total size of data file chunks mapped into memory, in bytes. When this limit is reached, chunks not used
+ *      recently are unmapped. Only used when {@link #dataFileMemoryMappingEnabled()} is true.
+ * @param mappedDataFileChunkSize
+ *      Size of a single data file chunk mapped into memory, in bytes. Only used when
+ *      {@link #dataFileMemoryMappingEnabled()} is true.
+ * @param offHeapLeafCacheSizeBytes
+ *      Size of the off-heap leaf record cache, in bytes. Leaf records read from disk are cached off-heap in
+ *      serialized form. If zero, the off-heap leaf cache is disabled.
+ * @param offHeapLeafCacheSlotSize
+ *      Size of a single slot in the off-heap leaf record cache, in bytes. Leaf records larger than this size
+ *      are not cached.
+ * @param halfDiskHashMapKeyFilterEnabled
+ *      If true, half disk hash maps keep an in-memory bloom filter of key hash codes, so lookups of keys that are
+ *      not in the map don't need to read buckets from disk.
+ * @param halfDiskHashMapKeyFilterBitsPerKey
+ *      Size of half disk hash map key filters, in bits per map entry. Only used when
+ *      {@link #halfDiskHashMapKeyFilterEnabled()} is true.
+ * @param halfDiskHashMapKeyFilterHashCount
+ *      Number of hashes per key in half disk hash map key filters. Only used when
+ *      {@link #halfDiskHashMapKeyFilterEnabled()} is true.
+ * @param compactionParallelism
+ *      Number of worker threads to compact a single set of files in a store. The index key range is split into this
+ *      many partitions, each compacted by its own worker to its own file. If 1, files are compacted on the compaction
+ *      thread. Max value is {@link com.swirlds.merkledb.files.DataFileCompactor#MAX_COMPACTION_PARALLELISM}.
+ * @param maxSnapshotDeltaChainLength
+ *      Max number of incremental snapshots based on a single full snapshot. Incremental snapshots write only index
+ *      pages changed since the previous incremental snapshot, all other files are hard-linked. After this many
+ *      incremental snapshots, a full snapshot is written. If zero, incremental snapshots are disabled, and all
+ *      snapshots are full.
+ * @param copyOnWriteIndicesEnabled
+ *      If true, in-memory indices are stored in copy-on-write lists. Such indices are frozen when a snapshot is started
+ *      and written to disk in background, so compaction doesn't have to wait for them to be written.
+ * @param coldStorageDirectory
+ *      Directory for cold data files. If not empty, data files of leaf and internal hash stores are moved to this
+ *      directory once they are compacted to {@link #coldStorageMinCompactionLevel()} or above. Files are read from
+ *      the new location transparently. If empty, all data files are kept in the database storage directory.
+ * @param coldStorageMinCompactionLevel
+ *      Min compaction level of data files to move to {@link #coldStorageDirectory()}. Only used when cold storage
+ *      directory is set.
+ * @param compressedDataFileBlockSize
+ *      Size of uncompressed blocks, in bytes, in compressed data files. Every block is compressed separately, and a
+ *      block is decompressed as a whole to read a data item from it. Larger blocks give better compression ratio,
+ *      smaller blocks give lower read latency. Only used for tables with data file compression enabled, see
+ *      {@code MerkleDbTableConfig.dataFileCompression()}.
+ * @param compactionGarbageRatioThreshold
+ *      Min estimated ratio of garbage, that is data items no longer referenced from the index, in a data file to
+ *      compact the file regardless of its compaction level. Such files are only compacted when there are no files to
+ *      compact by levels. If 1.0 or above, files are only compacted by levels. Default is 1.0, garbage compaction is
+ *      disabled.
+ * @param maxNumberOfFilesInGarbageCompaction
+ *      Max number of files to compact at once because of their garbage ratio. Files with the highest garbage ratio
+ *      are compacted first.
+ * @param compactionGarbageEstimateIntervalMs
+ *      Min interval between two estimations of data file garbage ratios in a store, in milliseconds. Every estimation
+ *      scans the whole store index.
+ * @param compactionIoBudgetMbPerSecond
+ *      Max rate at which all compactions together copy data items, in Mb/s. If zero, the rate is not limited.
+ * @param compactionIoBudgetDuringFlushMbPerSecond
+ *      Max rate at which all compactions together copy data items while a flush is in progress in any data source,
+ *      in Mb/s. If zero, {@link #compactionIoBudgetMbPerSecond()} is used during flushes, too.
+ * @param pipelinedFlushEnabled
+ *      Whether flushes update the leaf keys store on a separate thread, in parallel with the leaves store, and commit
+ *      it in background. If enabled, a flush returns as soon as all key to path mappings are updated, and the next
+ *      flush can start while the previous leaf keys store file is still being written. Mappings not committed yet
+ *      are served to readers from memory. This is the default for new tables, it can be overridden per table in
+ *      {@code MerkleDbTableConfig}.
  */
 @ConfigData("merkleDb")
 public record MerkleDbConfig(
@@ -101,7 +177,28 @@ public record MerkleDbConfig(
         @ConfigProperty(defaultValue = "50.0") double percentHalfDiskHashMapFlushThreads,
         @ConfigProperty(defaultValue = "-1") int numHalfDiskHashMapFlushThreads,
         @ConfigProperty(defaultValue = "262144") int reservedBufferLengthForLeafList,
-        @ConfigProperty(defaultValue = "1048576") int leafRecordCacheSize) {
+        @ConfigProperty(defaultValue = "1048576") int leafRecordCacheSize,
+        @ConfigProperty(defaultValue = "sync") String dataFileReadEngine,
+        @ConfigProperty(defaultValue = "false") boolean dataFileMemoryMappingEnabled,
+        @Positive @ConfigProperty(defaultValue = "17179869184") long maxMappedDataFileBytes,
+        @Positive @ConfigProperty(defaultValue = "268435456") int mappedDataFileChunkSize,
+        @Min(0) @ConfigProperty(defaultValue = "0") long offHeapLeafCacheSizeBytes,
+        @Positive @ConfigProperty(defaultValue = "256") int offHeapLeafCacheSlotSize,
+        @ConfigProperty(defaultValue = "false") boolean halfDiskHashMapKeyFilterEnabled,
+        @Positive @ConfigProperty(defaultValue = "10") int halfDiskHashMapKeyFilterBitsPerKey,
+        @Positive @ConfigProperty(defaultValue = "7") int halfDiskHashMapKeyFilterHashCount,
+        @Min(1) @ConfigProperty(defaultValue = "1") int compactionParallelism,
+        @Min(0) @ConfigProperty(defaultValue = "0") int maxSnapshotDeltaChainLength,
+        @ConfigProperty(defaultValue = "false") boolean copyOnWriteIndicesEnabled,
+        @ConfigProperty(defaultValue = "") String coldStorageDirectory,
+        @Min(1) @ConfigProperty(defaultValue = "3") int coldStorageMinCompactionLevel,
+        @Min(1024) @ConfigProperty(defaultValue = "16384") int compressedDataFileBlockSize,
+        @ConfigProperty(defaultValue = "1.0") double compactionGarbageRatioThreshold,
+        @Min(1) @ConfigProperty(defaultValue = "16") int maxNumberOfFilesInGarbageCompaction,
+        @Min(0) @ConfigProperty(defaultValue = "60000") long compactionGarbageEstimateIntervalMs,
+        @Min(0) @ConfigProperty(defaultValue = "0") int compactionIoBudgetMbPerSecond,
+        @Min(0) @ConfigProperty(defaultValue = "0") int compactionIoBudgetDuringFlushMbPerSecond,
+        @ConfigProperty(defaultValue = "false") boolean pipelinedFlushEnabled) {
 
     static double UNIT_FRACTION_PERCENT = 100.0;
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Batch read engine based on {@link AsynchronousFileChannel}. All reads of a batch are submitted
+ * to the channel at once, and then the calling thread waits for all of them to complete. This
+ * lets the OS serve multiple reads in parallel rather than one syscall at a time.
+ *
+ * <p>On Linux, the JDK implements asynchronous file channels with a hidden thread pool that
+ * issues blocking reads, so every batch is handed over to other threads. This engine is
+ * therefore not the default, it has to be enabled explicitly.
+ */
+public final class AsyncFileChannelReadEngine implements DataFileReadEngine {
+
+    /** Engine name in MerkleDb config */
+    public static final String NAME = "async";
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BatchReadChannel open(final Path path) throws IOException {
+        final AsynchronousFileChannel fileChannel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+        return new BatchReadChannel() {
+            @Override
+            public void read(final long[] byteOffsets, final ByteBuffer[] buffers) throws IOException {
+                assert byteOffsets.length == buffers.length;
+                final int count = byteOffsets.length;
+                final long[] positions = byteOffsets.clone();
+                @SuppressWarnings("unchecked")
+                final Future<Integer>[] reads = new Future[count];
+                int pending = 0;
+                for (int i = 0; i < count; i++) {
+                    if (buffers[i].hasRemaining()) {
+                        reads[i] = fileChannel.read(buffers[i], positions[i]);
+                        pending++;
+                    }
+                }
+                // Wait for all reads to complete. A read may return fewer bytes than requested,
+                // in this case it's submitted again for the remaining bytes
+                while (pending > 0) {
+                    for (int i = 0; i < count; i++) {
+                        if (reads[i] == null) {
+                            continue;
+                        }
+                        final int bytesRead = await(reads[i]);
+                        reads[i] = null;
+                        pending--;
+                        if ((bytesRead > 0) && buffers[i].hasRemaining()) {
+                            positions[i] += bytesRead;
+                            reads[i] = fileChannel.read(buffers[i], positions[i]);
+                            pending++;
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                fileChannel.close();
+            }
+        };
+    }
+
+    private static int await(final Future<Integer> read) throws IOException {
+        try {
+            return read.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a batch read to complete");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IOException("Failed to read from file", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the rate at which compactions copy data, so background compactions don't compete for
+ * disk bandwidth with flushes. The throttle is shared by all compactors that should fit into a
+ * single I/O budget. Compaction workers call {@link #acquire(long)} after every data item is
+ * copied, and the calling thread is put to sleep, if compactions are ahead of the budget.
+ * <p>
+ * Two budgets are supported: a regular budget, and a budget used while at least one flush is in
+ * progress, see {@link #flushStarted()} and {@link #flushFinished()}. A budget of zero means no
+ * limit. If the budget during flushes is zero, the regular budget is used during flushes, too.
+ */
+public final class CompactionIoThrottle {
+
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    /**
+     * How much unused budget, in nanoseconds, may be accumulated while compactions are idle. It
+     * lets compactions copy small bursts of data without sleeping.
+     */
+    private static final long MAX_BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Min time to sleep. Shorter delays are accumulated till they reach this value.
+     */
+    private static final long MIN_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Regular compaction budget, in bytes per second, or zero if unlimited.
+     */
+    private final long bytesPerSecond;
+
+    /**
+     * Compaction budget while a flush is in progress, in bytes per second, or zero if the regular
+     * budget applies.
+     */
+    private final long bytesPerSecondDuringFlush;
+
+    /**
+     * Number of flushes currently in progress.
+     */
+    private final AtomicInteger flushesInProgress = new AtomicInteger(0);
+
+    /**
+     * The moment, in {@link System#nanoTime()} terms, when the budget for the next copied bytes is
+     * available. Guarded by this object.
+     */
+    private long nextAvailableNanos = System.nanoTime();
+
+    /**
+     * Creates a new throttle.
+     *
+     * @param mbPerSecond regular compaction budget, in Mb/s, or zero if unlimited
+     * @param mbPerSecondDuringFlush compaction budget while flushes are in progress, in Mb/s, or
+     *      zero to use the regular budget
+     */
+    public CompactionIoThrottle(final int mbPerSecond, final int mbPerSecondDuringFlush) {
+        if ((mbPerSecond < 0) || (mbPerSecondDuringFlush < 0)) {
+            throw new IllegalArgumentException("Compaction I/O budget must not be negative");
+        }
+        this.bytesPerSecond = mbPerSecond * BYTES_PER_MB;
+        this.bytesPerSecondDuringFlush = mbPerSecondDuringFlush * BYTES_PER_MB;
+    }
+
+    /**
+     * Notifies the throttle that a flush is started. Must be balanced with {@link #flushFinished()}.
+     */
+    public void flushStarted() {
+        flushesInProgress.incrementAndGet();
+    }
+
+    /**
+     * Notifies the throttle that a flush is finished.
+     */
+    public void flushFinished() {
+        flushesInProgress.decrementAndGet();
+    }
+
+    /**
+     * Checks if any flushes are currently in progress.
+     *
+     * @return whether a flush is in progress
+     */
+    public boolean isFlushInProgress() {
+        return flushesInProgress.get() > 0;
+    }
+
+    /**
+     * Gets the current compaction budget, in bytes per second, depending on whether flushes are
+     * in progress or not.
+     *
+     * @return the current budget, or zero if unlimited
+     */
+    long getCurrentBytesPerSecond() {
+        if (isFlushInProgress() && (bytesPerSecondDuringFlush > 0)) {
+            return bytesPerSecondDuringFlush;
+        }
+        return bytesPerSecond;
+    }
+
+    /**
+     * Accounts the given number of bytes copied by compaction, and waits, if compactions are
+     * ahead of the current budget.
+     *
+     * @param bytes number of bytes copied
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void acquire(final long bytes) throws InterruptedException {
+        final long rate = getCurrentBytesPerSecond();
+        if ((rate <= 0) || (bytes <= 0)) {
+            return;
+        }
+        final long waitNanos;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            // Don't let the budget be accumulated for too long while compactions are idle
+            nextAvailableNanos = Math.max(nextAvailableNanos, now - MAX_BURST_NANOS);
+            nextAvailableNanos += (long) (bytes * ((double) TimeUnit.SECONDS.toNanos(1) / rate));
+            waitNanos = nextAvailableNanos - now;
+        }
+        if (waitNanos >= MIN_SLEEP_NANOS) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Index of compressed blocks in a data file. For every block, the index stores the offset of the
+ * compressed block in the file, plus it stores the end of the last block. All blocks but the last
+ * one contain exactly {@link #getBlockSize()} bytes of uncompressed data.
+ *
+ * <p>Data files are available for reading while they are still being written. To support it, a
+ * block index of a file being written also holds the current block, which isn't compressed and
+ * written to the file yet. The writer appends bytes to the current block and publishes the block
+ * once it's full, see {@link DataFileWriter}. Readers get bytes of published blocks from the
+ * file, and bytes of the current block from this index, see {@link #readCurrentBlock}.
+ */
+final class DataFileBlockIndex {
+
+    /** Size of uncompressed blocks, in bytes */
+    private final int blockSize;
+    /**
+     * Offsets of compressed blocks in the file. Block N spans from blockOffsets[N] (inclusive)
+     * to blockOffsets[N + 1] (exclusive). The array may have more elements than blockCount + 1
+     */
+    private volatile long[] blockOffsets;
+    /** Number of published blocks */
+    private volatile int blockCount;
+    /** Bytes of the current block, or null if the file is completely written */
+    private byte[] currentBlock;
+    /** Number of bytes in the current block */
+    private int currentBlockSize;
+
+    /**
+     * Creates a block index for a new file to write.
+     *
+     * @param blockSize uncompressed block size, in bytes
+     */
+    DataFileBlockIndex(final int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.blockOffsets = new long[16];
+        this.blockCount = 0;
+        this.currentBlock = new byte[blockSize];
+        this.currentBlockSize = 0;
+    }
+
+    /**
+     * Loads a block index of an existing file.
+     *
+     * @param blockSize uncompressed block size, in bytes
+     * @param blockCount number of blocks in the file
+     * @param buf buffer to read block offsets from, must contain blockCount + 1 long values
+     */
+    DataFileBlockIndex(final int blockSize, final int blockCount, final ByteBuffer buf) {
+        this.blockSize = blockSize;
+        final long[] offsets = new long[blockCount + 1];
+        for (int i = 0; i <= blockCount; i++) {
+            offsets[i] = buf.getLong();
+        }
+        this.blockOffsets = offsets;
+        this.blockCount = blockCount;
+        this.currentBlock = null;
+    }
+
+    /** Get uncompressed block size, in bytes */
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    /** Get the number of published blocks */
+    int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Get the number of bytes needed to store this index in a file.
+     *
+     * @return index size, in bytes
+     */
+    int getSerializedSize() {
+        return (blockCount + 1) * Long.BYTES;
+    }
+
+    /**
+     * Get the offset of a compressed block in the file. Block index equal to the number of
+     * blocks gives the end of the last block.
+     *
+     * @param block block index
+     * @return block offset in the file
+     */
+    long getBlockOffset(final int block) {
+        assert block <= blockCount;
+        return blockOffsets[block];
+    }
+
+    /**
+     * Writes all block offsets to the given buffer.
+     *
+     * @param buf buffer to write offsets to
+     */
+    void writeTo(final ByteBuffer buf) {
+        final int count = blockCount;
+        final long[] offsets = blockOffsets;
+        for (int i = 0; i <= count; i++) {
+            buf.putLong(offsets[i]);
+        }
+    }
+
+    // Writer methods
+
+    /**
+     * Appends bytes to the current block. This method is only called by the writer.
+     *
+     * @param src source array
+     * @param srcOff offset in the source array
+     * @param len number of bytes to append, must not exceed {@link #getCurrentBlockRemaining()}
+     */
+    synchronized void appendToCurrentBlock(final byte[] src, final int srcOff, final int len) {
+        assert currentBlockSize + len <= blockSize;
+        System.arraycopy(src, srcOff, currentBlock, currentBlockSize, len);
+        currentBlockSize += len;
+    }
+
+    /** Get the number of bytes that can be appended to the current block */
+    synchronized int getCurrentBlockRemaining() {
+        return blockSize - currentBlockSize;
+    }
+
+    /** Get the number of bytes in the current block */
+    synchronized int getCurrentBlockSize() {
+        return currentBlockSize;
+    }
+
+    /**
+     * Get the current block bytes. This method is only called by the writer, which is the only
+     * thread to modify the block, so the array can be used without synchronization.
+     */
+    byte[] getCurrentBlock() {
+        return currentBlock;
+    }
+
+    /**
+     * Publishes the current block. This method must be called after the compressed block is
+     * written to the file, so readers can read it from there. After this method is called, an
+     * empty current block is started.
+     *
+     * @param endOffset offset in the file of the end of the compressed block
+     */
+    synchronized void publishCurrentBlock(final long endOffset) {
+        final int count = blockCount;
+        if (count + 1 >= blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+        }
+        blockOffsets[count + 1] = endOffset;
+        // volatile write, makes the offset visible to readers
+        blockCount = count + 1;
+        currentBlockSize = 0;
+    }
+
+    /**
+     * Marks the file as completely written. No more bytes can be appended after this call.
+     */
+    synchronized void finish() {
+        assert currentBlockSize == 0;
+        currentBlock = null;
+    }
+
+    // Reader methods
+
+    /**
+     * Copies bytes from the current block, which is not written to the file yet.
+     *
+     * @param block block index
+     * @param offsetInBlock offset of the first byte to copy in the block
+     * @param dst destination array
+     * @param dstOff offset in the destination array
+     * @param len max number of bytes to copy
+     * @return number of bytes copied, or -1 if the block is already published and should be
+     *     read from the file
+     * @throws IOException if the requested bytes are not written yet
+     */
+    int readCurrentBlock(final int block, final int offsetInBlock, final byte[] dst, final int dstOff, final int len)
+            throws IOException {
+        if (block < blockCount) {
+            return -1;
+        }
+        synchronized (this) {
+            if (block < blockCount) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, currentBlockSize - offsetInBlock);
+            if ((block > blockCount) || (currentBlock == null) || (toCopy <= 0)) {
+                throw new IOException("Tried to read data, which isn't written yet, block=" + block
+                        + " offset=" + offsetInBlock);
+            }
+            System.arraycopy(currentBlock, offsetInBlock, dst, dstOff, toCopy);
+            return toCopy;
+        }
+    }
+}
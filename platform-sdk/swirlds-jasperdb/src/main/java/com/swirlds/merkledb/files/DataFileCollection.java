@@ -26,12 +26,14 @@ import static com.swirlds.merkledb.files.DataFileCompactor.INITIAL_COMPACTION_LE
 import static java.util.Collections.singletonList;
 
 import com.swirlds.base.function.CheckedFunction;
+import com.swirlds.common.config.singleton.ConfigurationHolder;
 import com.swirlds.merkledb.KeyRange;
 import com.swirlds.merkledb.Snapshotable;
 import com.swirlds.merkledb.collections.CASableLongIndex;
 import com.swirlds.merkledb.collections.ImmutableIndexedObjectList;
 import com.swirlds.merkledb.collections.ImmutableIndexedObjectListUsingArray;
 import com.swirlds.merkledb.collections.LongList;
+import com.swirlds.merkledb.config.MerkleDbConfig;
 import com.swirlds.merkledb.serialize.DataItemSerializer;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.io.DataInputStream;
@@ -39,20 +41,28 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.LongSummaryStatistics;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -73,12 +83,25 @@ import org.apache.logging.log4j.Logger;
  * leaf nodes. It allows very easy and efficient deleting without the need to maintain a list of
  * deleted keys.
  *
+ * <p>Optionally, a second (cold) storage directory may be provided. Data files, which are rarely
+ * read, e.g. files of high compaction levels, can be moved to the cold storage directory using
+ * {@link #copyToColdStorage(DataFileReader)} and {@link #completeMoveToColdStorage(DataFileReader,
+ * Path)}. Readers of moved files switch to the new location transparently. Read latencies are
+ * tracked separately for files in the main and cold storage directories.
+ *
  * @param <D> type for data items
  */
 @SuppressWarnings({"unused", "unchecked"})
 public class DataFileCollection<D> implements Snapshotable {
     private static final Logger logger = LogManager.getLogger(DataFileCollection.class);
 
+    /**
+     * Since {@code com.swirlds.platform.Browser} populates settings, and it is loaded before any
+     * application classes that might instantiate a data source, the {@link ConfigurationHolder}
+     * holder will have been configured by the time this static initializer runs.
+     */
+    private static final MerkleDbConfig config = ConfigurationHolder.getConfigData(MerkleDbConfig.class);
+
     /**
      * Maximum number of data items that can be in a data file. This is dictated by the maximum size
      * of the movesMap used during merge, which in turn is limited by the maximum RAM to be used for
@@ -93,12 +116,16 @@ public class DataFileCollection<D> implements Snapshotable {
      * legacyStoreName + suffix is tried.
      */
     private static final String METADATA_FILENAME_SUFFIX = "_metadata.dfc";
+    /** Suffix for temporary files, which are being copied to cold storage */
+    private static final String COLD_STORAGE_TEMP_FILE_SUFFIX = ".tmp";
 
     /** The number of times to retry index based reads */
     private static final int NUM_OF_READ_RETRIES = 5;
 
     /** The directory to store data files */
     private final Path storeDir;
+    /** The directory to move cold data files to, or null if cold storage isn't used */
+    private final Path coldStoreDir;
     /**
      * Base name for the data files, allowing more than one DataFileCollection to share a directory
      */
@@ -111,6 +138,11 @@ public class DataFileCollection<D> implements Snapshotable {
     private final String legacyStoreName;
     /** Serializer responsible for serializing/deserializing data items into and out of files */
     private final DataItemSerializer<D> dataItemSerializer;
+    /**
+     * Compression of new data files, both during flushes and compactions. Existing files are read
+     * using compression stored in their metadata
+     */
+    private volatile DataFileCompression dataFileCompression = DataFileCompression.NONE;
     /** True if this DataFileCollection was loaded from an existing set of files */
     private final boolean loadedFromExistingFiles;
     /** The index to use for the next file we create */
@@ -156,6 +188,18 @@ public class DataFileCollection<D> implements Snapshotable {
     private final ConcurrentSkipListSet<Integer> setOfNewFileIndexes =
             logger.isTraceEnabled() ? new ConcurrentSkipListSet<>() : null;
 
+    /**
+     * Number of data items read from files in {@link #storeDir}. Reads are only tracked, when
+     * cold storage is used
+     */
+    private final LongAdder hotReads = new LongAdder();
+    /** Total time spent to read data items counted in {@link #hotReads}, in nanoseconds */
+    private final LongAdder hotReadNanos = new LongAdder();
+    /** Number of data items read from files in {@link #coldStoreDir} */
+    private final LongAdder coldReads = new LongAdder();
+    /** Total time spent to read data items counted in {@link #coldReads}, in nanoseconds */
+    private final LongAdder coldReadNanos = new LongAdder();
+
     /**
      * Construct a new DataFileCollection.
      *
@@ -216,6 +260,42 @@ public class DataFileCollection<D> implements Snapshotable {
                 ImmutableIndexedObjectListUsingArray::new);
     }
 
+    /**
+     * Construct a new DataFileCollection with a custom legacy store name and a cold storage
+     * directory. Files from both the main and the cold storage directories are loaded at startup.
+     *
+     * @param storeDir The directory to store data files
+     * @param coldStoreDir The directory to move cold data files to, or null if cold storage isn't
+     *     used
+     * @param storeName Base name for the data files, allowing more than one DataFileCollection to
+     *     share a directory
+     * @param legacyStoreName Base name for the data files. If not null, data files with this prefix
+     *     are processed by this file collection at startup same way as files prefixed with
+     *     storeName
+     * @param dataItemSerializer Serializer responsible for serializing/deserializing data items
+     *     into and out of files.
+     * @param loadedDataCallback Callback for rebuilding indexes from existing files, can be null if
+     *     not needed. Using this is expensive as it requires all files to be read and parsed.
+     * @throws IOException If there was a problem creating new data set or opening existing one
+     */
+    public DataFileCollection(
+            final Path storeDir,
+            final Path coldStoreDir,
+            final String storeName,
+            final String legacyStoreName,
+            final DataItemSerializer<D> dataItemSerializer,
+            final LoadedDataCallback loadedDataCallback)
+            throws IOException {
+        this(
+                storeDir,
+                coldStoreDir,
+                storeName,
+                legacyStoreName,
+                dataItemSerializer,
+                loadedDataCallback,
+                ImmutableIndexedObjectListUsingArray::new);
+    }
+
     /**
      * Construct a new DataFileCollection with custom legacy store name and indexed object list
      * constructor. If data files and/or metadata file exist with the legacy store name prefix, they
@@ -245,7 +325,28 @@ public class DataFileCollection<D> implements Snapshotable {
             final Function<List<DataFileReader<D>>, ImmutableIndexedObjectList<DataFileReader<D>>>
                     indexedObjectListConstructor)
             throws IOException {
+        this(
+                storeDir,
+                null,
+                storeName,
+                legacyStoreName,
+                dataItemSerializer,
+                loadedDataCallback,
+                indexedObjectListConstructor);
+    }
+
+    private DataFileCollection(
+            final Path storeDir,
+            final Path coldStoreDir,
+            final String storeName,
+            final String legacyStoreName,
+            final DataItemSerializer<D> dataItemSerializer,
+            final LoadedDataCallback loadedDataCallback,
+            final Function<List<DataFileReader<D>>, ImmutableIndexedObjectList<DataFileReader<D>>>
+                    indexedObjectListConstructor)
+            throws IOException {
         this.storeDir = storeDir;
+        this.coldStoreDir = coldStoreDir;
         this.storeName = storeName;
         this.legacyStoreName = legacyStoreName;
         this.dataItemSerializer = dataItemSerializer;
@@ -283,6 +384,58 @@ public class DataFileCollection<D> implements Snapshotable {
         return loadedFromExistingFiles;
     }
 
+    /**
+     * Checks if this data file collection has a cold storage directory to move data files to.
+     *
+     * @return true if cold storage is used
+     */
+    public boolean isColdStorageEnabled() {
+        return coldStoreDir != null;
+    }
+
+    /**
+     * Get the compression used for new data files.
+     *
+     * @return data file compression
+     */
+    public DataFileCompression getDataFileCompression() {
+        return dataFileCompression;
+    }
+
+    /**
+     * Sets the compression to use for new data files. Existing files are not changed, but they
+     * will be rewritten with the new compression, when compacted.
+     *
+     * @param dataFileCompression data file compression
+     */
+    public void setDataFileCompression(@NonNull final DataFileCompression dataFileCompression) {
+        this.dataFileCompression = Objects.requireNonNull(dataFileCompression);
+    }
+
+    /**
+     * Checks if a data file of this collection is in the cold storage directory.
+     *
+     * @param reader the data file reader
+     * @return true if the file is in cold storage, false if it's in the main storage directory
+     */
+    public boolean isInColdStorage(final DataFileReader<?> reader) {
+        return (coldStoreDir != null) && reader.getPath().startsWith(coldStoreDir);
+    }
+
+    /**
+     * Gets data item read statistics for both main (hot) and cold storage directories since the
+     * last call to this method, and resets them. Reads are only tracked, if cold storage is used.
+     *
+     * @return read statistics per storage tier
+     */
+    public TierReadStatistics getAndResetTierReadStatistics() {
+        return new TierReadStatistics(
+                hotReads.sumThenReset(),
+                hotReadNanos.sumThenReset(),
+                coldReads.sumThenReset(),
+                coldReadNanos.sumThenReset());
+    }
+
     /** Get the number of files in this DataFileCollection */
     public int getNumOfFiles() {
         return dataFiles.get().size();
@@ -454,7 +607,13 @@ public class DataFileCollection<D> implements Snapshotable {
      */
     protected ByteBuffer readDataItemBytes(final long dataLocation) throws IOException {
         final DataFileReader<D> file = readerForDataLocation(dataLocation);
-        return (file != null) ? file.readDataItemBytes(dataLocation) : null;
+        if ((file == null) || (coldStoreDir == null)) {
+            return (file != null) ? file.readDataItemBytes(dataLocation) : null;
+        }
+        final long start = System.nanoTime();
+        final ByteBuffer dataItemBytes = file.readDataItemBytes(dataLocation);
+        countReads(file, 1, start);
+        return dataItemBytes;
     }
 
     /**
@@ -470,14 +629,31 @@ public class DataFileCollection<D> implements Snapshotable {
      */
     protected D readDataItem(final long dataLocation) throws IOException {
         final DataFileReader<D> file = readerForDataLocation(dataLocation);
-        if (file == null) {
-            return null;
+        if ((file == null) || (coldStoreDir == null)) {
+            return (file != null) ? file.readDataItem(dataLocation) : null;
         }
-        final ByteBuffer dataItemBytes = file.readDataItemBytes(dataLocation);
-        if (dataItemBytes == null) {
-            return null;
+        final long start = System.nanoTime();
+        final D dataItem = file.readDataItem(dataLocation);
+        countReads(file, 1, start);
+        return dataItem;
+    }
+
+    /**
+     * Updates per tier read statistics after data items are read from the given file.
+     *
+     * @param file the file the items were read from
+     * @param count number of data items read
+     * @param startNanos read start time, as returned by {@link System#nanoTime()}
+     */
+    private void countReads(final DataFileReader<D> file, final int count, final long startNanos) {
+        final long nanos = System.nanoTime() - startNanos;
+        if (isInColdStorage(file)) {
+            coldReads.add(count);
+            coldReadNanos.add(nanos);
+        } else {
+            hotReads.add(count);
+            hotReadNanos.add(nanos);
         }
-        return dataItemSerializer.deserialize(dataItemBytes, file.getMetadata().getSerializationVersion());
     }
 
     private <T> T retryReadUsingIndex(
@@ -586,6 +762,80 @@ public class DataFileCollection<D> implements Snapshotable {
         return retryReadUsingIndex(index, keyIntoIndex, this::readDataItem);
     }
 
+    /**
+     * Read multiple data items in a batch. Uses a LongList that maps key-&gt;dataLocation. Data
+     * locations are grouped by data file, and all items from the same file are read using a single
+     * batch read with the file reader's {@link DataFileReadEngine}.
+     *
+     * <p>If a file is closed while reading, e.g. because of compaction, items from that file are
+     * read one by one using {@link #readDataItemUsingIndex(LongList, long)}, which handles retries.
+     *
+     * @param index key-&gt;dataLocation index
+     * @param keysIntoIndex The keys to lookup in index
+     * @return Data items, in the same order as the keys. If a key is not found in the index, the
+     *     corresponding list element is null
+     * @throws IOException If there was a problem reading the data items
+     */
+    public List<D> readDataItemsUsingIndex(final LongList index, final long[] keysIntoIndex) throws IOException {
+        final int count = keysIntoIndex.length;
+        final List<D> result = new ArrayList<>(Collections.nCopies(count, null));
+        final long[] dataLocations = new long[count];
+        for (int i = 0; i < count; i++) {
+            dataLocations[i] = index.get(keysIntoIndex[i], LongList.IMPERMISSIBLE_VALUE);
+        }
+        // Sorting by data location groups the items by file and then by offset within the file
+        final int[] order = IntStream.range(0, count)
+                .filter(i -> dataLocations[i] != LongList.IMPERMISSIBLE_VALUE)
+                .boxed()
+                .sorted(Comparator.comparingLong(i -> dataLocations[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int start = 0;
+        while (start < order.length) {
+            final int fileIndex = fileIndexFromDataLocation(dataLocations[order[start]]);
+            int end = start + 1;
+            while ((end < order.length) && (fileIndexFromDataLocation(dataLocations[order[end]]) == fileIndex)) {
+                end++;
+            }
+            final long[] fileDataLocations = new long[end - start];
+            for (int i = start; i < end; i++) {
+                fileDataLocations[i - start] = dataLocations[order[i]];
+            }
+            final DataFileReader<D> file = readerForBatch(fileDataLocations[0]);
+            final long batchStart = System.nanoTime();
+            final ByteBuffer[] itemsBytes = (file != null) ? file.readDataItemsBytes(fileDataLocations) : null;
+            if (itemsBytes != null) {
+                if (coldStoreDir != null) {
+                    countReads(file, itemsBytes.length, batchStart);
+                }
+                final long serializationVersion = file.getMetadata().getSerializationVersion();
+                for (int i = start; i < end; i++) {
+                    result.set(order[i], dataItemSerializer.deserialize(itemsBytes[i - start], serializationVersion));
+                }
+            } else {
+                // The file is gone, fall back to single item reads with retries
+                for (int i = start; i < end; i++) {
+                    result.set(order[i], readDataItemUsingIndex(index, keysIntoIndex[order[i]]));
+                }
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #readerForDataLocation(long)}, but returns {@code null} rather than throws
+     * an exception, if the file is not found. Batch reads fall back to single item reads in this
+     * case, and single item reads take care of reporting errors.
+     */
+    private DataFileReader<D> readerForBatch(final long dataLocation) {
+        try {
+            return readerForDataLocation(dataLocation);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void snapshot(final Path snapshotDirectory) throws IOException {
@@ -593,10 +843,68 @@ public class DataFileCollection<D> implements Snapshotable {
         final List<DataFileReader<D>> snapshotIndexedFiles = getAllCompletedFiles();
         for (final DataFileReader<D> fileReader : snapshotIndexedFiles) {
             final Path existingFile = fileReader.getPath();
-            Files.createLink(snapshotDirectory.resolve(existingFile.getFileName()), existingFile);
+            final Path snapshotFile = snapshotDirectory.resolve(existingFile.getFileName());
+            try {
+                Files.createLink(snapshotFile, existingFile);
+            } catch (final IOException e) {
+                if (!isInColdStorage(fileReader)) {
+                    throw e;
+                }
+                // Cold storage may be on a different file system, hard links are not possible
+                // then. Cold files are immutable and not moved while snapshots are taken, so
+                // they can be safely copied
+                Files.copy(existingFile, snapshotFile);
+            }
         }
     }
 
+    /**
+     * Copies a completed data file to a temporary file in the cold storage directory. This is the
+     * first step to move the file to cold storage, it doesn't affect the file itself or reads from
+     * it, so it may take as long as needed. Once this method is complete, the move should be
+     * completed with {@link #completeMoveToColdStorage(DataFileReader, Path)}.
+     *
+     * @param reader the data file to copy, must be a completed file of this collection
+     * @return the temporary file in the cold storage directory
+     * @throws IOException if an I/O error occurred
+     */
+    Path copyToColdStorage(final DataFileReader<?> reader) throws IOException {
+        if (coldStoreDir == null) {
+            throw new IllegalStateException("Cold storage is not enabled for store " + storeName);
+        }
+        assert reader.isFileCompleted();
+        Files.createDirectories(coldStoreDir);
+        final Path tempFile =
+                coldStoreDir.resolve(reader.getPath().getFileName().toString() + COLD_STORAGE_TEMP_FILE_SUFFIX);
+        Files.copy(reader.getPath(), tempFile, StandardCopyOption.REPLACE_EXISTING);
+        // Make sure the copy is on disk before the original file is deleted
+        try (final FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        return tempFile;
+    }
+
+    /**
+     * Completes moving a data file to the cold storage directory. The temporary file created with
+     * {@link #copyToColdStorage(DataFileReader)} is renamed to the data file name, the reader is
+     * switched to the new location, and the file in the main storage directory is deleted.
+     *
+     * <p>This method must not be called concurrently with snapshots, otherwise the file may be
+     * missed in the snapshot.
+     *
+     * @param reader the data file to move
+     * @param tempFile the temporary file created with {@link #copyToColdStorage(DataFileReader)}
+     * @throws IOException if an I/O error occurred
+     */
+    void completeMoveToColdStorage(final DataFileReader<?> reader, final Path tempFile) throws IOException {
+        final Path hotFile = reader.getPath();
+        final Path coldFile = coldStoreDir.resolve(hotFile.getFileName());
+        Files.move(tempFile, coldFile, StandardCopyOption.ATOMIC_MOVE);
+        reader.relocate(coldFile);
+        Files.delete(hotFile);
+        logger.debug(MERKLE_DB.getMarker(), "[{}] Moved data file {} to cold storage", storeName, hotFile);
+    }
+
     /**
      * Get the set of new file indexes. This is only callable if trace logging is enabled.
      *
@@ -691,7 +999,14 @@ public class DataFileCollection<D> implements Snapshotable {
             setOfNewFileIndexes.add(newFileIndex);
         }
         return new DataFileWriter<>(
-                storeName, storeDir, newFileIndex, dataItemSerializer, creationTime, compactionLevel);
+                storeName,
+                storeDir,
+                newFileIndex,
+                dataItemSerializer,
+                creationTime,
+                compactionLevel,
+                dataFileCompression,
+                config.compressedDataFileBlockSize());
     }
 
     /**
@@ -722,40 +1037,81 @@ public class DataFileCollection<D> implements Snapshotable {
                     + storeDir.toAbsolutePath()
                     + "]");
         }
-        try (final Stream<Path> storePaths = Files.list(storeDir)) {
-            final Path[] fullWrittenFilePaths = storePaths
-                    .filter(path ->
-                            isFullyWrittenDataFile(storeName, path) || isFullyWrittenDataFile(legacyStoreName, path))
-                    .toArray(Path[]::new);
-            final DataFileReader<D>[] dataFileReaders = new DataFileReader[fullWrittenFilePaths.length];
-            try {
-                for (int i = 0; i < fullWrittenFilePaths.length; i++) {
-                    dataFileReaders[i] = new DataFileReader<>(fullWrittenFilePaths[i], dataItemSerializer);
+        final Path[] fullWrittenFilePaths = listFullyWrittenDataFiles();
+        final DataFileReader<D>[] dataFileReaders = new DataFileReader[fullWrittenFilePaths.length];
+        try {
+            for (int i = 0; i < fullWrittenFilePaths.length; i++) {
+                dataFileReaders[i] = new DataFileReader<>(fullWrittenFilePaths[i], dataItemSerializer);
+            }
+            // sort the readers into data file index order
+            Arrays.sort(dataFileReaders);
+        } catch (final IOException e) {
+            // clean up any successfully created readers
+            for (final DataFileReader<D> dataFileReader : dataFileReaders) {
+                if (dataFileReader != null) {
+                    dataFileReader.close();
                 }
-                // sort the readers into data file index order
-                Arrays.sort(dataFileReaders);
-            } catch (final IOException e) {
-                // clean up any successfully created readers
-                for (final DataFileReader<D> dataFileReader : dataFileReaders) {
-                    if (dataFileReader != null) {
-                        dataFileReader.close();
+            }
+            // rethrow exception now that we have cleaned up
+            throw e;
+        }
+        if (dataFileReaders.length > 0) {
+            loadFromExistingFiles(dataFileReaders, loadedDataCallback);
+            return true;
+        } else {
+            // next file will have index zero as we did not find any files even though the
+            // directory existed
+            nextFileIndex.set(0);
+            return false;
+        }
+    }
+
+    /**
+     * Lists all fully written data files of this collection in the main and cold storage
+     * directories. If a file is found in both directories, the process must have been stopped
+     * right after the file was moved to cold storage. The file in the main directory is deleted
+     * then, and the cold one is used. Incomplete copies to cold storage are deleted, too.
+     */
+    private Path[] listFullyWrittenDataFiles() throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        final Set<Path> coldFileNames = new HashSet<>();
+        if ((coldStoreDir != null) && Files.isDirectory(coldStoreDir)) {
+            try (final Stream<Path> coldPaths = Files.list(coldStoreDir)) {
+                for (final Path path : (Iterable<Path>) coldPaths::iterator) {
+                    if (path.getFileName().toString().endsWith(COLD_STORAGE_TEMP_FILE_SUFFIX)) {
+                        Files.delete(path);
+                    } else if (isFullyWrittenDataFile(storeName, path)
+                            || isFullyWrittenDataFile(legacyStoreName, path)) {
+                        paths.add(path);
+                        coldFileNames.add(path.getFileName());
                     }
                 }
-                // rethrow exception now that we have cleaned up
-                throw e;
             }
-            if (dataFileReaders.length > 0) {
-                loadFromExistingFiles(dataFileReaders, loadedDataCallback);
-                return true;
-            } else {
-                // next file will have index zero as we did not find any files even though the
-                // directory existed
-                nextFileIndex.set(0);
-                return false;
+        }
+        try (final Stream<Path> storePaths = Files.list(storeDir)) {
+            for (final Path path : (Iterable<Path>) storePaths::iterator) {
+                if (isFullyWrittenDataFile(storeName, path) || isFullyWrittenDataFile(legacyStoreName, path)) {
+                    if (coldFileNames.contains(path.getFileName())) {
+                        Files.delete(path);
+                    } else {
+                        paths.add(path);
+                    }
+                }
             }
         }
+        return paths.toArray(Path[]::new);
     }
 
+    /**
+     * Data item read statistics per storage tier.
+     *
+     * @param hotReads number of data items read from the main storage directory
+     * @param hotReadNanos total time spent to read items from the main storage directory, in nanoseconds
+     * @param coldReads number of data items read from the cold storage directory
+     * @param coldReadNanos total time spent to read items from the cold storage directory, in nanoseconds
+     */
+    public record TierReadStatistics(long hotReads, long hotReadNanos, long coldReads, long coldReadNanos) {}
+
     private void loadFromExistingFiles(
             final DataFileReader<D>[] dataFileReaders, final LoadedDataCallback loadedDataCallback) throws IOException {
         logger.info(
@@ -81,6 +81,11 @@ public final class DataFileCommon {
 
     /** The current file format version, ready for if the file format needs to change */
     public static final int FILE_FORMAT_VERSION = 1;
+    /**
+     * File format version for files with compressed data items. Data is stored in compressed blocks
+     * followed by a block index, see {@link DataFileCompression}
+     */
+    public static final int COMPRESSED_FILE_FORMAT_VERSION = 2;
     /** Date formatter for dates used in data file names */
     private static final DateTimeFormatter DATE_FORMAT =
             DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS").withZone(ZoneId.of("Z"));
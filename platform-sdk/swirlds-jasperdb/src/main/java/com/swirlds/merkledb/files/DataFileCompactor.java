@@ -30,18 +30,26 @@ import com.swirlds.merkledb.collections.CASableLongIndex;
 import com.swirlds.merkledb.config.MerkleDbConfig;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiConsumer;
+import java.util.function.DoubleConsumer;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -66,6 +74,10 @@ public class DataFileCompactor {
      * This is the compaction level that non-compacted files have.
      */
     public static final int INITIAL_COMPACTION_LEVEL = 0;
+    /**
+     * Max number of worker threads to compact a single set of files in parallel.
+     */
+    public static final int MAX_COMPACTION_PARALLELISM = 64;
     /**
      * Name of the file store to compact.
      */
@@ -98,6 +110,58 @@ public class DataFileCompactor {
     @Nullable
     private final Runnable updateTotalStatsFunction;
 
+    /**
+     * A function that will be called to report compaction throughput of a single worker, in Mb/s
+     */
+    @Nullable
+    private final BiConsumer<Integer, Double> reportWorkerThroughputMetricFunction;
+
+    /**
+     * A function that will be called to report the estimated ratio of garbage in the store files,
+     * from 0.0 to 1.0
+     */
+    @Nullable
+    private final DoubleConsumer reportGarbageRatioMetricFunction;
+
+    /**
+     * Throttle to limit the rate at which compactions copy data items, or null if the rate is not
+     * limited. Shared by compactors of all stores
+     */
+    @Nullable
+    private volatile CompactionIoThrottle ioThrottle;
+
+    /**
+     * Live data item counts by file index minus {@link #liveItemCountsFirstFileIndex}, as of the
+     * last index scan in {@link #estimateGarbageRatios(List)}. Files, which were not completed at
+     * the moment of the scan, have -1 counts. Guarded by this object
+     */
+    private long[] liveItemCounts = new long[0];
+
+    /**
+     * The min file index in {@link #liveItemCounts}. Guarded by this object
+     */
+    private int liveItemCountsFirstFileIndex = 0;
+
+    /**
+     * Time of the last index scan to count live data items, in ms, or -1 if the index has never
+     * been scanned. Guarded by this object
+     */
+    private long lastGarbageEstimateTime = -1;
+
+    /**
+     * Number of workers to compact a single set of files. Each worker processes its own range of
+     * index keys and writes to its own compacted file. If 1, all files are compacted on the
+     * compaction thread
+     */
+    private volatile int compactionParallelism = 1;
+
+    /**
+     * Executor to run compaction workers other than the first one, which always runs on the
+     * compaction thread. Only used if {@link #compactionParallelism} is greater than 1
+     */
+    @Nullable
+    private volatile ExecutorService workerExecutor;
+
     /**
      * A lock used for synchronization between snapshots and compactions. While a compaction is in
      * progress, it runs on its own without any synchronization. However, a few critical sections
@@ -106,35 +170,46 @@ public class DataFileCompactor {
      * and to close the compaction writer. This mechanism allows snapshots to effectively put
      * compaction on hold, which is critical as snapshots should be as fast as possible, while
      * compactions are just background processes.
+     * <p>
+     * Compaction workers copy data items holding a single permit each, so multiple workers can
+     * copy items in parallel. All other critical sections, including snapshots, take all {@link
+     * #MAX_COMPACTION_PARALLELISM} permits. The semaphore is fair, so snapshots are not starved
+     * by workers.
      */
-    private final Semaphore snapshotCompactionLock = new Semaphore(1);
+    private final Semaphore snapshotCompactionLock = new Semaphore(MAX_COMPACTION_PARALLELISM, true);
 
     /**
      * Start time of the current compaction, or null if compaction isn't running
      */
     private final AtomicReference<Instant> currentCompactionStartTime = new AtomicReference<>();
     /**
-     * Current data file writer during compaction, or null if compaction isn't running. The writer
-     * is created at compaction start. If compaction is interrupted by a snapshot, the writer is
-     * closed before the snapshot, and then a new writer / new file is created after the snapshot is
-     * taken.
+     * Current data file writers during compaction, one per compaction worker, or nulls if
+     * compaction isn't running. Writers are created at compaction start. If compaction is
+     * interrupted by a snapshot, writers are closed before the snapshot, and then new writers / new
+     * files are created after the snapshot is taken.
+     */
+    private final AtomicReferenceArray<DataFileWriter<?>> currentWriters =
+            new AtomicReferenceArray<>(MAX_COMPACTION_PARALLELISM);
+    /**
+     * Currrent data file readers for the compaction writers above.
      */
-    private final AtomicReference<DataFileWriter<?>> currentWriter = new AtomicReference<>();
+    private final AtomicReferenceArray<DataFileReader<?>> currentReaders =
+            new AtomicReferenceArray<>(MAX_COMPACTION_PARALLELISM);
     /**
-     * Currrent data file reader for the compaction writer above.
+     * Number of compaction workers in the current compaction, or zero if compaction isn't running.
      */
-    private final AtomicReference<DataFileReader<?>> currentReader = new AtomicReference<>();
+    private final AtomicInteger currentWorkerCount = new AtomicInteger(0);
     /**
      * The list of new files created during compaction. Usually, all files to process are compacted
-     * to a single new file, but if compaction is interrupted by a snapshot, there may be more than
-     * one file created.
+     * to a single new file per worker, but if compaction is interrupted by a snapshot, there may be
+     * more files created.
      */
     private final List<Path> newCompactedFiles = new ArrayList<>();
 
     /**
      * Indicates whether compaction is in progress at the time when {@link #pauseCompaction()}
-     * is called. This flag is then checked in {@link DataFileCompactor#resumeCompaction()} )} to start a new
-     * compacted file or not.
+     * is called. This flag is then checked in {@link DataFileCompactor#resumeCompaction()} )} to start new
+     * compacted files or not.
      */
     private final AtomicBoolean compactionWasInProgress = new AtomicBoolean(false);
 
@@ -161,6 +236,69 @@ public class DataFileCompactor {
             @Nullable final BiConsumer<Integer, Double> reportSavedSpaceMetricFunction,
             @Nullable final BiConsumer<Integer, Double> reportFileSizeByLevelMetricFunction,
             @Nullable Runnable updateTotalStatsFunction) {
+        this(
+                storeName,
+                dataFileCollection,
+                index,
+                reportDurationMetricFunction,
+                reportSavedSpaceMetricFunction,
+                reportFileSizeByLevelMetricFunction,
+                updateTotalStatsFunction,
+                null);
+    }
+
+    /**
+     * @param storeName                      name of the store to compact
+     * @param dataFileCollection             data file collection to compact
+     * @param index                          index to update during compaction
+     * @param reportDurationMetricFunction   function to report how long compaction took, in ms
+     * @param reportSavedSpaceMetricFunction function to report how much space was compacted, in Mb
+     * @param reportFileSizeByLevelMetricFunction function to report how much space is used by the store by compaction level, in Mb
+     * @param updateTotalStatsFunction       A function that updates statistics of total usage of disk space and off-heap space
+     * @param reportWorkerThroughputMetricFunction function to report compaction throughput by worker, in Mb/s
+     */
+    public DataFileCompactor(
+            String storeName,
+            final DataFileCollection<?> dataFileCollection,
+            CASableLongIndex index,
+            @Nullable final BiConsumer<Integer, Long> reportDurationMetricFunction,
+            @Nullable final BiConsumer<Integer, Double> reportSavedSpaceMetricFunction,
+            @Nullable final BiConsumer<Integer, Double> reportFileSizeByLevelMetricFunction,
+            @Nullable Runnable updateTotalStatsFunction,
+            @Nullable final BiConsumer<Integer, Double> reportWorkerThroughputMetricFunction) {
+        this(
+                storeName,
+                dataFileCollection,
+                index,
+                reportDurationMetricFunction,
+                reportSavedSpaceMetricFunction,
+                reportFileSizeByLevelMetricFunction,
+                updateTotalStatsFunction,
+                reportWorkerThroughputMetricFunction,
+                null);
+    }
+
+    /**
+     * @param storeName                      name of the store to compact
+     * @param dataFileCollection             data file collection to compact
+     * @param index                          index to update during compaction
+     * @param reportDurationMetricFunction   function to report how long compaction took, in ms
+     * @param reportSavedSpaceMetricFunction function to report how much space was compacted, in Mb
+     * @param reportFileSizeByLevelMetricFunction function to report how much space is used by the store by compaction level, in Mb
+     * @param updateTotalStatsFunction       A function that updates statistics of total usage of disk space and off-heap space
+     * @param reportWorkerThroughputMetricFunction function to report compaction throughput by worker, in Mb/s
+     * @param reportGarbageRatioMetricFunction function to report the estimated garbage ratio of the store
+     */
+    public DataFileCompactor(
+            String storeName,
+            final DataFileCollection<?> dataFileCollection,
+            CASableLongIndex index,
+            @Nullable final BiConsumer<Integer, Long> reportDurationMetricFunction,
+            @Nullable final BiConsumer<Integer, Double> reportSavedSpaceMetricFunction,
+            @Nullable final BiConsumer<Integer, Double> reportFileSizeByLevelMetricFunction,
+            @Nullable Runnable updateTotalStatsFunction,
+            @Nullable final BiConsumer<Integer, Double> reportWorkerThroughputMetricFunction,
+            @Nullable final DoubleConsumer reportGarbageRatioMetricFunction) {
         this.storeName = storeName;
         this.dataFileCollection = dataFileCollection;
         this.index = index;
@@ -168,6 +306,48 @@ public class DataFileCompactor {
         this.reportSavedSpaceMetricFunction = reportSavedSpaceMetricFunction;
         this.reportFileSizeByLevelMetricFunction = reportFileSizeByLevelMetricFunction;
         this.updateTotalStatsFunction = updateTotalStatsFunction;
+        this.reportWorkerThroughputMetricFunction = reportWorkerThroughputMetricFunction;
+        this.reportGarbageRatioMetricFunction = reportGarbageRatioMetricFunction;
+    }
+
+    /**
+     * Enables partitioned compaction. The range of index keys is split into the given number of
+     * partitions, and every partition is compacted by its own worker to its own new file at the
+     * target compaction level. If parallelism is 1, all files are compacted on the compaction
+     * thread to a single file.
+     *
+     * @param parallelism number of compaction workers, from 1 to {@link #MAX_COMPACTION_PARALLELISM}
+     * @param workerExecutor executor to run compaction workers, may be null if parallelism is 1
+     */
+    public void setCompactionParallelism(final int parallelism, @Nullable final ExecutorService workerExecutor) {
+        if ((parallelism < 1) || (parallelism > MAX_COMPACTION_PARALLELISM)) {
+            throw new IllegalArgumentException("Compaction parallelism must be in range [1, "
+                    + MAX_COMPACTION_PARALLELISM + "]: " + parallelism);
+        }
+        if ((parallelism > 1) && (workerExecutor == null)) {
+            throw new IllegalArgumentException("Worker executor is required for parallel compaction");
+        }
+        this.workerExecutor = workerExecutor;
+        this.compactionParallelism = parallelism;
+    }
+
+    /**
+     * Get the number of workers used to compact a single set of files.
+     *
+     * @return compaction parallelism
+     */
+    public int getCompactionParallelism() {
+        return compactionParallelism;
+    }
+
+    /**
+     * Sets a throttle to limit the rate at which this compactor copies data items. The throttle
+     * is usually shared by compactors of all stores.
+     *
+     * @param ioThrottle the throttle, or null to copy data items without limits
+     */
+    public void setIoThrottle(@Nullable final CompactionIoThrottle ioThrottle) {
+        this.ioThrottle = ioThrottle;
     }
 
     /**
@@ -183,12 +363,33 @@ public class DataFileCompactor {
      * @throws InterruptedException If the compaction thread was interrupted
      */
     // visible for testing
-    synchronized List<Path> compactFiles(
+    List<Path> compactFiles(
             final CASableLongIndex index,
             final List<? extends DataFileReader<?>> filesToCompact,
             int targetCompactionLevel)
             throws IOException, InterruptedException {
-        if (filesToCompact.size() < getMinNumberOfFilesToCompact()) {
+        return compactFiles(index, filesToCompact, targetCompactionLevel, getMinNumberOfFilesToCompact());
+    }
+
+    /**
+     * Compacts all files in compactionPlan, if there are at least the given number of files.
+     *
+     * @param index          index to update
+     * @param filesToCompact list of files to compact
+     * @param targetCompactionLevel target compaction level
+     * @param minFilesToCompact min number of files to compact, if there are fewer files, they
+     *                          are not compacted
+     * @return list of files created during the compaction
+     * @throws IOException          If there was a problem with the compaction
+     * @throws InterruptedException If the compaction thread was interrupted
+     */
+    private synchronized List<Path> compactFiles(
+            final CASableLongIndex index,
+            final List<? extends DataFileReader<?>> filesToCompact,
+            final int targetCompactionLevel,
+            final int minFilesToCompact)
+            throws IOException, InterruptedException {
+        if (filesToCompact.isEmpty() || (filesToCompact.size() < minFilesToCompact)) {
             // nothing to do we have merged since the last data update
             logger.debug(MERKLE_DB.getMarker(), "No files were available for merging [{}]", storeName);
             return Collections.emptyList();
@@ -200,17 +401,26 @@ public class DataFileCompactor {
                 .map(file -> file.getMetadata().getCreationDate())
                 .max(Instant::compareTo)
                 .orElseGet(Instant::now);
-        snapshotCompactionLock.acquire();
+        final KeyRange keyRange = dataFileCollection.getValidKeyRange();
+        final long firstKey = Math.max(0, keyRange.getMinValidKey());
+        final long keyCount = keyRange.getMaxValidKey() - firstKey + 1;
+        // There is no point to run more workers than keys in the index
+        final int workerCount = (int) Math.max(1, Math.min(compactionParallelism, keyCount));
+
+        snapshotCompactionLock.acquire(MAX_COMPACTION_PARALLELISM);
         try {
             currentCompactionStartTime.set(startTime);
             newCompactedFiles.clear();
-            startNewCompactionFile(targetCompactionLevel);
+            currentWorkerCount.set(workerCount);
+            for (int worker = 0; worker < workerCount; worker++) {
+                startNewCompactionFile(worker, targetCompactionLevel);
+            }
         } finally {
-            snapshotCompactionLock.release();
+            snapshotCompactionLock.release(MAX_COMPACTION_PARALLELISM);
         }
 
         // We need a map to find readers by file index below. It doesn't have to be synchronized
-        // as it will be accessed in this thread only, so it can be a simple HashMap or alike.
+        // as it's only read by compaction workers, so it can be a simple HashMap or alike.
         // However, standard Java maps can only work with Integer, not int (yet), so auto-boxing
         // will put significant load on GC. Let's do something different
         int minFileIndex = Integer.MAX_VALUE;
@@ -225,58 +435,26 @@ public class DataFileCompactor {
         for (DataFileReader<?> r : filesToCompact) {
             readers[r.getIndex() - firstIndexInc] = r;
         }
+        final CompactionSource source = new CompactionSource(index, keyRange, readers, firstIndexInc, lastIndexExc);
 
         boolean allDataItemsProcessed = false;
         try {
-            final KeyRange keyRange = dataFileCollection.getValidKeyRange();
-            index.forEach((path, dataLocation) -> {
-                if (!keyRange.withinRange(path)) {
-                    return;
-                }
-                final int fileIndex = DataFileCommon.fileIndexFromDataLocation(dataLocation);
-                if ((fileIndex < firstIndexInc) || (fileIndex >= lastIndexExc)) {
-                    return;
-                }
-                final DataFileReader<?> reader = readers[fileIndex - firstIndexInc];
-                if (reader == null) {
-                    return;
-                }
-                final long fileOffset = DataFileCommon.byteOffsetFromDataLocation(dataLocation);
-                // Take the lock. If a snapshot is started in a different thread, this call
-                // will block until the snapshot is done. The current file will be flushed,
-                // and current data file writer and reader will point to a new file
-                snapshotCompactionLock.acquire();
-                try {
-                    final DataFileWriter<?> newFileWriter = currentWriter.get();
-                    long serializationVersion = reader.getMetadata().getSerializationVersion();
-                    final long newLocation = newFileWriter.writeCopiedDataItem(
-                            serializationVersion, reader.readDataItemBytes(fileOffset));
-                    // update the index
-                    index.putIfEqual(path, dataLocation, newLocation);
-
-                } catch (final ClosedByInterruptException e) {
-                    logger.info(
-                            MERKLE_DB.getMarker(),
-                            "Failed to copy data item {} / {} due to thread interruption",
-                            fileIndex,
-                            fileOffset,
-                            e);
-                    throw e;
-                } catch (final IOException z) {
-                    logger.error(EXCEPTION.getMarker(), "Failed to copy data item {} / {}", fileIndex, fileOffset, z);
-                    throw z;
-                } finally {
-                    snapshotCompactionLock.release();
-                }
-            });
+            if (workerCount == 1) {
+                copyDataItems(source, 0, 0, Long.MAX_VALUE, new AtomicBoolean());
+            } else {
+                copyDataItemsInParallel(source, workerCount, firstKey, keyCount);
+            }
             allDataItemsProcessed = true;
         } finally {
-            // Even if the thread is interrupted, make sure the new compacted file is properly closed
-            // and is included to future compactions
-            snapshotCompactionLock.acquire();
+            // Even if the thread is interrupted, make sure the new compacted files are properly closed
+            // and are included to future compactions
+            snapshotCompactionLock.acquire(MAX_COMPACTION_PARALLELISM);
             try {
-                // Finish writing the last file. In rare cases, it may be an empty file
-                finishCurrentCompactionFile();
+                // Finish writing the last files. In rare cases, they may be empty files
+                for (int worker = 0; worker < workerCount; worker++) {
+                    finishCurrentCompactionFile(worker);
+                }
+                currentWorkerCount.set(0);
                 // Clear compaction start time
                 currentCompactionStartTime.set(null);
                 if (allDataItemsProcessed) {
@@ -284,18 +462,206 @@ public class DataFileCompactor {
                     dataFileCollection.deleteFiles(filesToCompact);
                 }
             } finally {
-                snapshotCompactionLock.release();
+                snapshotCompactionLock.release(MAX_COMPACTION_PARALLELISM);
             }
         }
 
         return newCompactedFiles;
     }
 
+    /**
+     * Copies data items from the given range of index keys in parallel. The range is split into
+     * equal partitions, one per worker. The first worker runs on the current thread, all others
+     * are run using {@link #workerExecutor}. This method doesn't return till all workers are done,
+     * even if one of them fails or the current thread is interrupted.
+     *
+     * @param source files to compact and their index
+     * @param workerCount number of workers
+     * @param firstKey the first index key to process
+     * @param keyCount number of index keys to process
+     * @throws IOException If a worker failed to copy a data item
+     * @throws InterruptedException If the compaction thread was interrupted
+     */
+    private void copyDataItemsInParallel(
+            final CompactionSource source, final int workerCount, final long firstKey, final long keyCount)
+            throws IOException, InterruptedException {
+        final ExecutorService executor = workerExecutor;
+        assert executor != null;
+        final long partitionSize = (keyCount + workerCount - 1) / workerCount;
+        final AtomicBoolean aborted = new AtomicBoolean(false);
+        final AtomicReference<Throwable> workerError = new AtomicReference<>();
+        final CountDownLatch workersDone = new CountDownLatch(workerCount - 1);
+        for (int worker = 1; worker < workerCount; worker++) {
+            final int w = worker;
+            final long fromKey = firstKey + w * partitionSize;
+            final long toKey = Math.min(fromKey + partitionSize, firstKey + keyCount);
+            try {
+                executor.execute(() -> {
+                    try {
+                        copyDataItems(source, w, fromKey, toKey, aborted);
+                    } catch (final Throwable e) {
+                        workerError.compareAndSet(null, e);
+                        aborted.set(true);
+                    } finally {
+                        workersDone.countDown();
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                workerError.compareAndSet(null, e);
+                aborted.set(true);
+                workersDone.countDown();
+            }
+        }
+        boolean done = false;
+        try {
+            copyDataItems(source, 0, firstKey, firstKey + partitionSize, aborted);
+            workersDone.await();
+            done = true;
+        } finally {
+            if (!done) {
+                // Stop other workers and wait for them, so compacted files can be safely closed
+                aborted.set(true);
+                awaitUninterruptibly(workersDone);
+            }
+        }
+        final Throwable error = workerError.get();
+        if (error instanceof IOException e) {
+            throw e;
+        } else if (error instanceof InterruptedException e) {
+            throw e;
+        } else if (error instanceof RuntimeException e) {
+            throw e;
+        } else if (error != null) {
+            throw new IOException("Compaction worker failed", error);
+        }
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies all data items from the files to compact, which are referenced from the given range
+     * of index keys, to the current compaction file of the given worker.
+     *
+     * @param source files to compact and their index
+     * @param worker worker number
+     * @param fromKey the first index key to process, inclusive
+     * @param toKey the last index key to process, exclusive
+     * @param aborted a flag to stop copying, if set by another worker
+     * @throws IOException If there was a problem copying a data item
+     * @throws InterruptedException If the thread was interrupted, or the compaction is aborted
+     */
+    private void copyDataItems(
+            final CompactionSource source,
+            final int worker,
+            final long fromKey,
+            final long toKey,
+            final AtomicBoolean aborted)
+            throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final long[] bytesCopied = new long[1];
+        final CompactionIoThrottle throttle = ioThrottle;
+        final CASableLongIndex.LongAction<IOException> action = (path, dataLocation) -> {
+            if (!source.keyRange.withinRange(path)) {
+                return;
+            }
+            final int fileIndex = DataFileCommon.fileIndexFromDataLocation(dataLocation);
+            if ((fileIndex < source.firstIndexInc) || (fileIndex >= source.lastIndexExc)) {
+                return;
+            }
+            final DataFileReader<?> reader = source.readers[fileIndex - source.firstIndexInc];
+            if (reader == null) {
+                return;
+            }
+            if (aborted.get()) {
+                throw new InterruptedException("Compaction is aborted");
+            }
+            final long fileOffset = DataFileCommon.byteOffsetFromDataLocation(dataLocation);
+            final long copiedBefore = bytesCopied[0];
+            // Take the lock. If a snapshot is started in a different thread, this call
+            // will block until the snapshot is done. The current file will be flushed,
+            // and current data file writer and reader will point to a new file
+            snapshotCompactionLock.acquire();
+            try {
+                final DataFileWriter<?> newFileWriter = currentWriters.get(worker);
+                long serializationVersion = reader.getMetadata().getSerializationVersion();
+                final ByteBuffer itemBytes = reader.readDataItemBytes(fileOffset);
+                bytesCopied[0] += itemBytes.remaining();
+                final long newLocation = newFileWriter.writeCopiedDataItem(serializationVersion, itemBytes);
+                // update the index
+                source.index.putIfEqual(path, dataLocation, newLocation);
+
+            } catch (final ClosedByInterruptException e) {
+                logger.info(
+                        MERKLE_DB.getMarker(),
+                        "Failed to copy data item {} / {} due to thread interruption",
+                        fileIndex,
+                        fileOffset,
+                        e);
+                throw e;
+            } catch (final IOException z) {
+                logger.error(EXCEPTION.getMarker(), "Failed to copy data item {} / {}", fileIndex, fileOffset, z);
+                throw z;
+            } finally {
+                snapshotCompactionLock.release();
+            }
+            // Wait outside the lock, so snapshots are not blocked by throttled compactions
+            if (throttle != null) {
+                throttle.acquire(bytesCopied[0] - copiedBefore);
+            }
+        };
+        if (toKey == Long.MAX_VALUE) {
+            // Single worker, iterate over the whole index
+            source.index.forEach(action);
+        } else {
+            source.index.forEach(action, fromKey, toKey);
+        }
+        final long tookNanos = System.nanoTime() - start;
+        if ((reportWorkerThroughputMetricFunction != null) && (tookNanos > 0)) {
+            reportWorkerThroughputMetricFunction.accept(
+                    worker,
+                    bytesCopied[0] * UnitConstants.BYTES_TO_MEBIBYTES / (tookNanos * UnitConstants.NANOSECONDS_TO_SECONDS));
+        }
+    }
+
+    /**
+     * Files to compact and their index, shared by all compaction workers.
+     *
+     * @param index index to update
+     * @param keyRange valid index key range
+     * @param readers files to compact, by file index minus {@code firstIndexInc}
+     * @param firstIndexInc the min file index of files to compact
+     * @param lastIndexExc the max file index of files to compact, plus one
+     */
+    private record CompactionSource(
+            CASableLongIndex index,
+            KeyRange keyRange,
+            DataFileReader<?>[] readers,
+            int firstIndexInc,
+            int lastIndexExc) {}
+
     // visible for testing
     int getMinNumberOfFilesToCompact() {
         return config.minNumberOfFilesInCompaction();
     }
 
+    // visible for testing
+    double getGarbageRatioThreshold() {
+        return config.compactionGarbageRatioThreshold();
+    }
+
     /**
      * Opens a new file for writing during compaction. This method is called, when compaction is
      * started. If compaction is interrupted and resumed by data source snapshot using {@link
@@ -306,17 +672,17 @@ public class DataFileCompactor {
      *
      * @throws IOException If an I/O error occurs
      */
-    private void startNewCompactionFile(int compactionLevel) throws IOException {
+    private void startNewCompactionFile(int worker, int compactionLevel) throws IOException {
         final Instant startTime = currentCompactionStartTime.get();
         assert startTime != null;
         final DataFileWriter<?> newFileWriter = dataFileCollection.newDataFile(startTime, compactionLevel);
-        currentWriter.set(newFileWriter);
+        currentWriters.set(worker, newFileWriter);
         final Path newFileCreated = newFileWriter.getPath();
         newCompactedFiles.add(newFileCreated);
         final DataFileMetadata newFileMetadata = newFileWriter.getMetadata();
         final DataFileReader<?> newFileReader =
                 dataFileCollection.addNewDataFileReader(newFileCreated, newFileMetadata);
-        currentReader.set(newFileReader);
+        currentReaders.set(worker, newFileReader);
     }
 
     /**
@@ -328,12 +694,12 @@ public class DataFileCompactor {
      *
      * @throws IOException If an I/O error occurs
      */
-    private void finishCurrentCompactionFile() throws IOException {
-        currentWriter.get().finishWriting();
-        currentWriter.set(null);
+    private void finishCurrentCompactionFile(int worker) throws IOException {
+        currentWriters.get(worker).finishWriting();
+        currentWriters.set(worker, null);
         // Now include the file in future compactions
-        currentReader.get().setFileCompleted();
-        currentReader.set(null);
+        currentReaders.get(worker).setFileCompleted();
+        currentReaders.set(worker, null);
     }
 
     /**
@@ -354,14 +720,16 @@ public class DataFileCompactor {
      * @see #resumeCompaction()
      */
     public void pauseCompaction() throws IOException {
-        snapshotCompactionLock.acquireUninterruptibly();
-        // Check if compaction is currently in progress. If so, flush and close the current file, so
-        // it's included to the snapshot
-        final DataFileWriter<?> compactionWriter = currentWriter.get();
+        snapshotCompactionLock.acquireUninterruptibly(MAX_COMPACTION_PARALLELISM);
+        // Check if compaction is currently in progress. If so, flush and close the current files, so
+        // they are included to the snapshot
+        final DataFileWriter<?> compactionWriter = currentWriters.get(0);
         if (compactionWriter != null) {
             compactionWasInProgress.set(true);
             compactionLevelInProgress.set(compactionWriter.getMetadata().getCompactionLevel());
-            finishCurrentCompactionFile();
+            for (int worker = 0; worker < currentWorkerCount.get(); worker++) {
+                finishCurrentCompactionFile(worker);
+            }
             // Don't start a new compaction file here, as it would be included to snapshots, but
             // it shouldn't, as it isn't fully written yet. Instead, a new file will be started
             // right after snapshot is taken, in resumeCompaction()
@@ -385,12 +753,15 @@ public class DataFileCompactor {
     public void resumeCompaction() throws IOException {
         try {
             if (compactionWasInProgress.getAndSet(false)) {
-                assert currentWriter.get() == null;
-                assert currentReader.get() == null;
-                startNewCompactionFile(compactionLevelInProgress.getAndSet(0));
+                final int compactionLevel = compactionLevelInProgress.getAndSet(0);
+                for (int worker = 0; worker < currentWorkerCount.get(); worker++) {
+                    assert currentWriters.get(worker) == null;
+                    assert currentReaders.get(worker) == null;
+                    startNewCompactionFile(worker, compactionLevel);
+                }
             }
         } finally {
-            snapshotCompactionLock.release();
+            snapshotCompactionLock.release(MAX_COMPACTION_PARALLELISM);
         }
     }
 
@@ -405,17 +776,35 @@ public class DataFileCompactor {
 
         final List<? extends DataFileReader<?>> completedFiles = dataFileCollection.getAllCompletedFiles();
         reportFileSizeByLevel(completedFiles);
-        final List<? extends DataFileReader<?>> filesToCompact =
+        final double[] garbageRatios = estimateGarbageRatios(completedFiles);
+        List<? extends DataFileReader<?>> filesToCompact =
                 compactionPlan(completedFiles, getMinNumberOfFilesToCompact(), config.maxCompactionLevel());
+        final boolean garbageCompaction = filesToCompact.isEmpty();
+        if (garbageCompaction) {
+            // Nothing to compact by levels, check if there are files mostly full of garbage
+            filesToCompact = garbageCompactionPlan(
+                    completedFiles,
+                    garbageRatios,
+                    getGarbageRatioThreshold(),
+                    config.maxNumberOfFilesInGarbageCompaction());
+        }
         if (filesToCompact.isEmpty()) {
             logger.debug(MERKLE_DB.getMarker(), "[{}] No need to compact, as the compaction plan is empty", storeName);
+            // Files loaded from a snapshot may still need to be moved to cold storage
+            moveFilesToColdStorage();
             return false;
         }
 
         final int filesCount = filesToCompact.size();
-        logger.info(MERKLE_DB.getMarker(), "[{}] Starting compaction", storeName);
+        logger.info(
+                MERKLE_DB.getMarker(),
+                "[{}] Starting {}compaction",
+                storeName,
+                garbageCompaction ? "garbage " : "");
 
-        final int targetCompactionLevel = getTargetCompactionLevel(filesToCompact, filesCount);
+        final int targetCompactionLevel = garbageCompaction
+                ? getGarbageCompactionTargetLevel(filesToCompact)
+                : getTargetCompactionLevel(filesToCompact, filesCount);
 
         final long start = System.currentTimeMillis();
 
@@ -427,7 +816,8 @@ public class DataFileCompactor {
                 filesCount,
                 formatSizeBytes(filesToCompactSize));
 
-        final List<Path> newFilesCreated = compactFiles(index, filesToCompact, targetCompactionLevel);
+        final List<Path> newFilesCreated = compactFiles(
+                index, filesToCompact, targetCompactionLevel, garbageCompaction ? 1 : getMinNumberOfFilesToCompact());
 
         final long end = System.currentTimeMillis();
         final long tookMillis = end - start;
@@ -452,6 +842,9 @@ public class DataFileCompactor {
                 newFilesCreated,
                 targetCompactionLevel,
                 dataFileCollection);
+        // New files may be on the cold storage compaction level already. They are moved after
+        // compaction stats are logged, as stats are collected using the original file paths
+        moveFilesToColdStorage();
         logger.info(
                 MERKLE_DB.getMarker(),
                 "[{}] Finished compaction {} files / {} in {} ms",
@@ -467,6 +860,33 @@ public class DataFileCompactor {
         return true;
     }
 
+    /**
+     * Moves all completed files of compaction level {@link MerkleDbConfig#coldStorageMinCompactionLevel()}
+     * and above to the cold storage directory of the data file collection, if cold storage is
+     * enabled. Files are copied to cold storage without any locks, and then the copies are switched
+     * to while holding {@link #snapshotCompactionLock}, so snapshots never see files half moved.
+     *
+     * @throws IOException if an I/O error occurred
+     */
+    private void moveFilesToColdStorage() throws IOException {
+        if (!dataFileCollection.isColdStorageEnabled()) {
+            return;
+        }
+        for (final DataFileReader<?> file : dataFileCollection.getAllCompletedFiles()) {
+            if ((file.getMetadata().getCompactionLevel() < config.coldStorageMinCompactionLevel())
+                    || dataFileCollection.isInColdStorage(file)) {
+                continue;
+            }
+            final Path tempFile = dataFileCollection.copyToColdStorage(file);
+            snapshotCompactionLock.acquireUninterruptibly(MAX_COMPACTION_PARALLELISM);
+            try {
+                dataFileCollection.completeMoveToColdStorage(file, tempFile);
+            } finally {
+                snapshotCompactionLock.release(MAX_COMPACTION_PARALLELISM);
+            }
+        }
+    }
+
     private void reportFileSizeByLevel(List<? extends DataFileReader<?>> allCompletedFiles) {
         if (reportFileSizeByLevelMetricFunction != null) {
             Map<Integer, List<DataFileReader<?>>> readersByLevel = getReadersByLevel(allCompletedFiles);
@@ -493,6 +913,140 @@ public class DataFileCompactor {
         return Math.min(highestExistingCompactionLevel + 1, config.maxCompactionLevel());
     }
 
+    /**
+     * Files compacted because of their garbage ratio stay at the highest compaction level among
+     * them, as they aren't merged with a previous level.
+     */
+    private static int getGarbageCompactionTargetLevel(List<? extends DataFileReader<?>> filesToCompact) {
+        int highestExistingCompactionLevel = INITIAL_COMPACTION_LEVEL;
+        for (final DataFileReader<?> file : filesToCompact) {
+            highestExistingCompactionLevel =
+                    Math.max(highestExistingCompactionLevel, file.getMetadata().getCompactionLevel());
+        }
+        return Math.min(highestExistingCompactionLevel, config.maxCompactionLevel());
+    }
+
+    /**
+     * Estimates the ratio of garbage, that is data items no longer referenced from the index, in
+     * each of the given files. Live data items are counted per file by a full index scan. Scans
+     * are expensive, so they are run at most once per {@link
+     * MerkleDbConfig#compactionGarbageEstimateIntervalMs()}, and the last counts are used in
+     * between. Counts of live items in a file may only go down over time, so stale counts may
+     * only underestimate garbage. Files completed after the last scan are assumed to have no
+     * garbage.
+     * <p>
+     * The estimated garbage ratio of the whole store, weighted by file sizes, is reported to
+     * metrics.
+     *
+     * @param files completed files to estimate garbage in
+     * @return garbage ratios, from 0.0 to 1.0, in the same order as files
+     */
+    // visible for testing
+    synchronized double[] estimateGarbageRatios(final List<? extends DataFileReader<?>> files) {
+        final double[] ratios = new double[files.size()];
+        if ((index == null) || files.isEmpty()) {
+            return ratios;
+        }
+        final long now = System.currentTimeMillis();
+        if ((lastGarbageEstimateTime < 0)
+                || (now - lastGarbageEstimateTime >= config.compactionGarbageEstimateIntervalMs())) {
+            countLiveItems(files);
+            lastGarbageEstimateTime = now;
+        }
+        double garbageBytes = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < files.size(); i++) {
+            final DataFileReader<?> file = files.get(i);
+            final long itemCount = file.getMetadata().getDataItemCount();
+            final int countIndex = file.getIndex() - liveItemCountsFirstFileIndex;
+            if ((itemCount > 0) && (countIndex >= 0) && (countIndex < liveItemCounts.length)) {
+                final long liveCount = liveItemCounts[countIndex];
+                if (liveCount >= 0) {
+                    ratios[i] = Math.max(0.0, 1.0 - (double) liveCount / itemCount);
+                }
+            }
+            final long fileSize = file.getSize();
+            garbageBytes += ratios[i] * fileSize;
+            totalBytes += fileSize;
+        }
+        if (reportGarbageRatioMetricFunction != null) {
+            reportGarbageRatioMetricFunction.accept(totalBytes > 0 ? garbageBytes / totalBytes : 0.0);
+        }
+        return ratios;
+    }
+
+    /**
+     * Counts data items referenced from the index in each of the given files. Must be called while
+     * holding this object's monitor.
+     *
+     * @param files completed files to count live items in
+     */
+    private void countLiveItems(final List<? extends DataFileReader<?>> files) {
+        int minFileIndex = Integer.MAX_VALUE;
+        int maxFileIndex = 0;
+        for (final DataFileReader<?> file : files) {
+            minFileIndex = Math.min(minFileIndex, file.getIndex());
+            maxFileIndex = Math.max(maxFileIndex, file.getIndex());
+        }
+        final int firstIndexInc = minFileIndex;
+        final long[] counts = new long[maxFileIndex - minFileIndex + 1];
+        Arrays.fill(counts, -1);
+        for (final DataFileReader<?> file : files) {
+            counts[file.getIndex() - firstIndexInc] = 0;
+        }
+        final KeyRange keyRange = dataFileCollection.getValidKeyRange();
+        try {
+            index.forEach((path, dataLocation) -> {
+                if (!keyRange.withinRange(path)) {
+                    return;
+                }
+                final int i = DataFileCommon.fileIndexFromDataLocation(dataLocation) - firstIndexInc;
+                if ((i >= 0) && (i < counts.length) && (counts[i] >= 0)) {
+                    counts[i]++;
+                }
+            });
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        liveItemCounts = counts;
+        liveItemCountsFirstFileIndex = firstIndexInc;
+    }
+
+    /**
+     * Creates a compaction plan based on file garbage ratios. Files with the garbage ratio at or
+     * above the threshold are included to the plan, the files with the most garbage first. This
+     * plan is used when there are no files to compact by levels, see {@link #compactionPlan(List,
+     * int, int)}.
+     *
+     * @param dataFileReaders completed files
+     * @param garbageRatios estimated garbage ratios, in the same order as files
+     * @param threshold min garbage ratio of a file to compact
+     * @param maxFiles max number of files in the plan
+     * @return files to compact, may be empty
+     */
+    static List<? extends DataFileReader<?>> garbageCompactionPlan(
+            final List<? extends DataFileReader<?>> dataFileReaders,
+            final double[] garbageRatios,
+            final double threshold,
+            final int maxFiles) {
+        final List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < dataFileReaders.size(); i++) {
+            if ((garbageRatios[i] > 0) && (garbageRatios[i] >= threshold)) {
+                candidates.add(i);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        candidates.sort(Comparator.comparingDouble((Integer i) -> garbageRatios[i]).reversed());
+        final List<DataFileReader<?>> readersToCompact = new ArrayList<>();
+        for (int i = 0; (i < candidates.size()) && (i < maxFiles); i++) {
+            readersToCompact.add(dataFileReaders.get(candidates.get(i)));
+        }
+        return readersToCompact;
+    }
+
     /**
      * This method creates a compaction plan (a set of files to be compacted). The plan is organized by compaction levels
      * in ascending order. If there are not enough files to compact, then no files are compacted and the plan will be empty.
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression codecs for data files. When a codec other than {@link #NONE} is used, data items
+ * are written to data files in blocks of a fixed uncompressed size, and every block is compressed
+ * separately, so a data item can be read without decompressing the whole file. Data locations in
+ * compressed files are still offsets in the uncompressed stream of data items.
+ *
+ * <p>File layout: compressed blocks, then block index (offsets of all blocks in the file, plus
+ * the end of the last block), then padding till a page boundary, then metadata footer.
+ */
+public enum DataFileCompression {
+
+    /** Data items are not compressed, the original data file format */
+    NONE(0) {
+        @Override
+        int maxCompressedLength(final int srcLen) {
+            return srcLen;
+        }
+
+        @Override
+        int compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff) {
+            System.arraycopy(src, srcOff, dst, dstOff, srcLen);
+            return srcLen;
+        }
+
+        @Override
+        int decompress(
+                final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff) {
+            System.arraycopy(src, srcOff, dst, dstOff, srcLen);
+            return srcLen;
+        }
+    },
+
+    /**
+     * Fast compression, LZ4 block format. The codec is implemented in pure Java, it doesn't need
+     * any native libraries
+     */
+    LZ4(1) {
+        @Override
+        int maxCompressedLength(final int srcLen) {
+            return srcLen + srcLen / 255 + 16;
+        }
+
+        @Override
+        int compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff) {
+            return lz4Compress(src, srcOff, srcLen, dst, dstOff);
+        }
+
+        @Override
+        int decompress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff)
+                throws IOException {
+            try {
+                return lz4Decompress(src, srcOff, srcLen, dst, dstOff);
+            } catch (final IndexOutOfBoundsException e) {
+                throw new IOException("Malformed LZ4 block", e);
+            }
+        }
+    },
+
+    /**
+     * Slower compression with better compression ratio than {@link #LZ4}, raw deflate format as
+     * implemented by {@link Deflater}
+     */
+    DEFLATE(2) {
+        @Override
+        int maxCompressedLength(final int srcLen) {
+            return srcLen + (srcLen >> 12) + (srcLen >> 14) + 64;
+        }
+
+        @Override
+        int compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff) {
+            final Deflater deflater = DEFLATERS.get();
+            deflater.reset();
+            deflater.setInput(src, srcOff, srcLen);
+            deflater.finish();
+            final int len = deflater.deflate(dst, dstOff, dst.length - dstOff);
+            if (!deflater.finished()) {
+                throw new IllegalStateException("Compressed data doesn't fit into the output buffer");
+            }
+            return len;
+        }
+
+        @Override
+        int decompress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff)
+                throws IOException {
+            final Inflater inflater = INFLATERS.get();
+            inflater.reset();
+            inflater.setInput(src, srcOff, srcLen);
+            try {
+                final int len = inflater.inflate(dst, dstOff, dst.length - dstOff);
+                if (!inflater.finished()) {
+                    throw new IOException("Malformed deflate block, or output buffer is too small");
+                }
+                return len;
+            } catch (final DataFormatException e) {
+                throw new IOException("Malformed deflate block", e);
+            }
+        }
+    };
+
+    /** Deflaters are expensive to create, so they are reused by every thread */
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(6, true));
+    /** Inflaters are expensive to create, so they are reused by every thread */
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    /** Minimum LZ4 match length */
+    private static final int LZ4_MIN_MATCH = 4;
+    /** LZ4 blocks end with at least this number of literals */
+    private static final int LZ4_LAST_LITERALS = 5;
+    /** The last LZ4 match must start at least this number of bytes before the end of block */
+    private static final int LZ4_MF_LIMIT = 12;
+    /** Max distance between a match and the matched bytes */
+    private static final int LZ4_MAX_DISTANCE = 0xFFFF;
+    /** Number of bits in LZ4 match finder hash table index */
+    private static final int LZ4_HASH_BITS = 12;
+    /** Hash tables used by LZ4 compressor, reused by every thread */
+    private static final ThreadLocal<int[]> LZ4_HASH_TABLES =
+            ThreadLocal.withInitial(() -> new int[1 << LZ4_HASH_BITS]);
+
+    /** Codec ID, as stored in data file footers */
+    private final int id;
+
+    DataFileCompression(final int id) {
+        this.id = id;
+    }
+
+    /**
+     * Get codec ID, as stored in data file footers.
+     *
+     * @return codec ID
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Looks up a codec by its ID.
+     *
+     * @param id codec ID
+     * @return the codec
+     * @throws IllegalArgumentException if there is no codec with the given ID
+     */
+    public static DataFileCompression valueOf(final int id) {
+        for (final DataFileCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("Unknown data file compression: " + id);
+    }
+
+    /**
+     * Get the max size of compressed data for the given size of uncompressed data.
+     *
+     * @param srcLen uncompressed data size, in bytes
+     * @return max compressed data size, in bytes
+     */
+    abstract int maxCompressedLength(int srcLen);
+
+    /**
+     * Compresses bytes from the source array to the destination array. The destination array
+     * must have at least {@link #maxCompressedLength(int)} bytes available starting from the
+     * given offset.
+     *
+     * @param src source array
+     * @param srcOff offset in the source array
+     * @param srcLen number of bytes to compress
+     * @param dst destination array
+     * @param dstOff offset in the destination array
+     * @return number of compressed bytes written to the destination array
+     */
+    abstract int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff);
+
+    /**
+     * Decompresses bytes from the source array to the destination array.
+     *
+     * @param src source array
+     * @param srcOff offset in the source array
+     * @param srcLen number of compressed bytes
+     * @param dst destination array, must be large enough to store all decompressed bytes
+     * @param dstOff offset in the destination array
+     * @return number of decompressed bytes written to the destination array
+     * @throws IOException if compressed data is malformed
+     */
+    abstract int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) throws IOException;
+
+    // =================================================================================================================
+    // LZ4 block format
+
+    private static int lz4Compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, int op) {
+        final int dstOff = op;
+        final int srcEnd = srcOff + srcLen;
+        final int matchLimit = srcEnd - LZ4_LAST_LITERALS;
+        final int mfLimit = srcEnd - LZ4_MF_LIMIT;
+        int anchor = srcOff;
+        int ip = srcOff;
+        if (srcLen > LZ4_MF_LIMIT) {
+            final int[] hashTable = LZ4_HASH_TABLES.get();
+            Arrays.fill(hashTable, -1);
+            while (ip < mfLimit) {
+                final int sequence = readInt(src, ip);
+                final int hash = (sequence * -1640531535) >>> (Integer.SIZE - LZ4_HASH_BITS);
+                final int ref = hashTable[hash];
+                hashTable[hash] = ip;
+                if ((ref < 0) || (ip - ref > LZ4_MAX_DISTANCE) || (readInt(src, ref) != sequence)) {
+                    ip++;
+                    continue;
+                }
+                int matchLen = LZ4_MIN_MATCH;
+                while ((ip + matchLen < matchLimit) && (src[ref + matchLen] == src[ip + matchLen])) {
+                    matchLen++;
+                }
+                // token: literals length and match length
+                final int literalsLen = ip - anchor;
+                final int tokenPos = op++;
+                op = writeLz4Length(literalsLen, dst, op);
+                System.arraycopy(src, anchor, dst, op, literalsLen);
+                op += literalsLen;
+                final int offset = ip - ref;
+                dst[op++] = (byte) offset;
+                dst[op++] = (byte) (offset >>> 8);
+                op = writeLz4Length(matchLen - LZ4_MIN_MATCH, dst, op);
+                dst[tokenPos] = (byte)
+                        ((Math.min(literalsLen, 15) << 4) | Math.min(matchLen - LZ4_MIN_MATCH, 15));
+                ip += matchLen;
+                anchor = ip;
+            }
+        }
+        // last literals
+        final int literalsLen = srcEnd - anchor;
+        dst[op++] = (byte) (Math.min(literalsLen, 15) << 4);
+        op = writeLz4Length(literalsLen, dst, op);
+        System.arraycopy(src, anchor, dst, op, literalsLen);
+        op += literalsLen;
+        return op - dstOff;
+    }
+
+    /**
+     * Writes LZ4 extended length bytes, if the length doesn't fit into 4 token bits.
+     *
+     * @return new offset in the destination array
+     */
+    private static int writeLz4Length(final int length, final byte[] dst, int op) {
+        if (length >= 15) {
+            int remaining = length - 15;
+            while (remaining >= 255) {
+                dst[op++] = (byte) 255;
+                remaining -= 255;
+            }
+            dst[op++] = (byte) remaining;
+        }
+        return op;
+    }
+
+    private static int lz4Decompress(final byte[] src, int ip, final int srcLen, final byte[] dst, final int dstOff)
+            throws IOException {
+        final int srcEnd = ip + srcLen;
+        int op = dstOff;
+        while (true) {
+            final int token = src[ip++] & 0xFF;
+            int literalsLen = token >>> 4;
+            if (literalsLen == 15) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    literalsLen += b;
+                } while (b == 255);
+            }
+            System.arraycopy(src, ip, dst, op, literalsLen);
+            ip += literalsLen;
+            op += literalsLen;
+            if (ip >= srcEnd) {
+                // the last sequence has no match
+                break;
+            }
+            final int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+            ip += 2;
+            int matchLen = token & 0x0F;
+            if (matchLen == 15) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    matchLen += b;
+                } while (b == 255);
+            }
+            matchLen += LZ4_MIN_MATCH;
+            final int ref = op - offset;
+            if ((offset == 0) || (ref < dstOff)) {
+                throw new IOException("Malformed LZ4 block, wrong match offset: " + offset);
+            }
+            if (offset >= matchLen) {
+                System.arraycopy(dst, ref, dst, op, matchLen);
+            } else {
+                // overlapping match, copy byte by byte
+                for (int i = 0; i < matchLen; i++) {
+                    dst[op + i] = dst[ref + i];
+                }
+            }
+            op += matchLen;
+        }
+        return op - dstOff;
+    }
+
+    private static int readInt(final byte[] src, final int pos) {
+        return (src[pos] & 0xFF)
+                | ((src[pos + 1] & 0xFF) << 8)
+                | ((src[pos + 2] & 0xFF) << 16)
+                | ((src[pos + 3] & 0xFF) << 24);
+    }
+}
@@ -24,6 +24,7 @@ import com.swirlds.merkledb.serialize.DataItemSerializer;
 import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -93,8 +94,12 @@ public final class DataFileIterator implements AutoCloseable {
         this.dataItemSerializer = dataItemSerializer;
         this.headerSize = dataItemSerializer.getHeaderSize();
         /* FUTURE WORK - https://github.com/swirlds/swirlds-platform/issues/3929 */
+        final InputStream fileInputStream = Files.newInputStream(path, StandardOpenOption.READ);
         this.inputStream = new BufferedInputStream(
-                Files.newInputStream(path, StandardOpenOption.READ), config.iteratorInputBufferBytes());
+                metadata.isCompressed()
+                        ? new DecompressingInputStream(fileInputStream, metadata)
+                        : fileInputStream,
+                config.iteratorInputBufferBytes());
     }
 
     /**
@@ -295,4 +300,97 @@ public final class DataFileIterator implements AutoCloseable {
         }
         dataItemBuffer = newBuffer;
     }
+
+    /**
+     * Input stream to read uncompressed data from a compressed data file. Compressed blocks are
+     * read from the file one by one and decompressed.
+     */
+    private static final class DecompressingInputStream extends InputStream {
+        /** Input stream to read compressed blocks from */
+        private final InputStream in;
+        /** Compression codec */
+        private final DataFileCompression compression;
+        /** Index of compressed blocks in the file */
+        private final DataFileBlockIndex blockIndex;
+        /** Buffer to read compressed blocks to */
+        private byte[] compressed = new byte[0];
+        /** The current decompressed block */
+        private final byte[] block;
+        /** Number of bytes in the current block */
+        private int blockLength = 0;
+        /** Read position in the current block */
+        private int blockPosition = 0;
+        /** The next block to read from the file */
+        private int nextBlock = 0;
+
+        DecompressingInputStream(final InputStream in, final DataFileMetadata metadata) {
+            this.in = in;
+            this.compression = metadata.getCompression();
+            this.blockIndex = metadata.getBlockIndex();
+            this.block = new byte[blockIndex.getBlockSize()];
+        }
+
+        /**
+         * Makes sure there are bytes available to read in the current block, reading the next
+         * block from the file if needed.
+         *
+         * @return false if there are no more bytes to read in the file
+         */
+        private boolean ensureAvailable() throws IOException {
+            while (blockPosition == blockLength) {
+                if (nextBlock >= blockIndex.getBlockCount()) {
+                    return false;
+                }
+                final int compressedSize =
+                        (int) (blockIndex.getBlockOffset(nextBlock + 1) - blockIndex.getBlockOffset(nextBlock));
+                if (compressed.length < compressedSize) {
+                    compressed = new byte[compressedSize];
+                }
+                if (in.readNBytes(compressed, 0, compressedSize) != compressedSize) {
+                    throw new EOFException("Unexpected end of compressed block " + nextBlock);
+                }
+                blockLength = compression.decompress(compressed, 0, compressedSize, block, 0);
+                blockPosition = 0;
+                nextBlock++;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return block[blockPosition++] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            // Read across block boundaries, BufferedInputStream expects len bytes to be read,
+            // unless the end of stream is reached
+            int bytesRead = 0;
+            while ((bytesRead < len) && ensureAvailable()) {
+                final int count = Math.min(len - bytesRead, blockLength - blockPosition);
+                System.arraycopy(block, blockPosition, b, off + bytesRead, count);
+                blockPosition += count;
+                bytesRead += count;
+            }
+            return bytesRead == 0 ? -1 : bytesRead;
+        }
+
+        @Override
+        public int available() {
+            final int inBlock = blockLength - blockPosition;
+            // At least one byte is available, if there are more blocks to read
+            return (inBlock == 0) && (nextBlock < blockIndex.getBlockCount()) ? 1 : inBlock;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
 }
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import sun.misc.Unsafe;
+
+/**
+ * Maps chunks of completed, read only data files into memory. Data file readers use mapped chunks
+ * to read data items without syscalls.
+ *
+ * <p>Files are mapped in chunks, as a single mapped byte buffer is limited to 2Gb. Total size of
+ * all chunks mapped by a mapper is limited. When a new chunk doesn't fit into the limit, chunks
+ * not used recently are unmapped. Chunks are kept in a queue in mapping order, and eviction gives
+ * a second chance to every chunk leased since the previous eviction pass: such chunks are moved to
+ * the end of the queue rather than unmapped. Leases only set a flag, they never take the lock.
+ *
+ * <p>A chunk may be unmapped while other threads are reading from it. To prevent crashes, chunks
+ * are reference counted. Readers lease a chunk using {@link MappedChunk#lease()} before reading
+ * and release it using {@link MappedChunk#release()} right after. The chunk memory is unmapped
+ * when the chunk is evicted and all its leases are released. Readers must never keep references
+ * to chunk bytes after the chunk is released.
+ */
+final class DataFileMemoryMapper {
+
+    /** Access to sun.misc.Unsafe required to unmap mapped byte buffers */
+    private static final Unsafe UNSAFE;
+
+    static {
+        try {
+            Field f = Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            UNSAFE = (Unsafe) f.get(null);
+        } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /** Max total size of all mapped chunks, in bytes */
+    private final long maxMappedBytes;
+
+    /** Max size of a single mapped chunk, in bytes */
+    private final int chunkSize;
+
+    /**
+     * All chunks currently mapped by this mapper, in eviction queue order: chunks at the head are
+     * candidates to evict next. Guarded by this
+     */
+    private final LinkedHashSet<MappedChunk> mappedChunks = new LinkedHashSet<>();
+
+    /** Total size of all chunks currently mapped by this mapper, in bytes. Guarded by this */
+    private long mappedBytes = 0;
+
+    /**
+     * Creates a new memory mapper.
+     *
+     * @param maxMappedBytes max total size of all mapped chunks, in bytes
+     * @param chunkSize max size of a single mapped chunk, in bytes
+     */
+    DataFileMemoryMapper(final long maxMappedBytes, final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.maxMappedBytes = maxMappedBytes;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get max size of a single mapped chunk.
+     *
+     * @return chunk size, in bytes
+     */
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get total size of all chunks currently mapped.
+     *
+     * @return mapped size, in bytes
+     */
+    synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * Get the number of chunks needed to map a file of the given size.
+     *
+     * @param fileSize file size, in bytes
+     * @return number of chunks
+     */
+    int chunkCount(final long fileSize) {
+        return Math.toIntExact((fileSize + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Maps a chunk of the given file into memory and stores it to the given chunk array. If the
+     * array already contains a chunk at the given index, no new chunk is mapped, and the existing
+     * chunk is returned.
+     *
+     * @param path the file to map
+     * @param fileSize the file size, in bytes
+     * @param chunks the chunk array of the file
+     * @param chunkIndex the chunk index
+     * @return the mapped chunk, or {@code null} if the chunk can't be mapped because of the size limit
+     * @throws IOException if an I/O error occurred
+     */
+    MappedChunk map(
+            final Path path,
+            final long fileSize,
+            final AtomicReferenceArray<MappedChunk> chunks,
+            final int chunkIndex)
+            throws IOException {
+        final long position = (long) chunkIndex * chunkSize;
+        final int size = (int) Math.min(chunkSize, fileSize - position);
+        if (size > maxMappedBytes) {
+            return null;
+        }
+        synchronized (this) {
+            final MappedChunk existing = chunks.get(chunkIndex);
+            if (existing != null) {
+                return existing;
+            }
+            while (mappedBytes + size > maxMappedBytes) {
+                evictNotRecentlyUsed();
+            }
+            final MappedByteBuffer buffer;
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(MapMode.READ_ONLY, position, size);
+            }
+            final MappedChunk chunk = new MappedChunk(buffer, size, chunks, chunkIndex);
+            chunks.set(chunkIndex, chunk);
+            mappedChunks.add(chunk);
+            mappedBytes += size;
+            return chunk;
+        }
+    }
+
+    /**
+     * Unmaps all chunks in the given chunk array. Used when a data file is closed. Chunks that are
+     * currently in use are unmapped once all their leases are released.
+     *
+     * @param chunks the chunk array of the file
+     */
+    void unmapAll(final AtomicReferenceArray<MappedChunk> chunks) {
+        for (int i = 0; i < chunks.length(); i++) {
+            final MappedChunk chunk = chunks.get(i);
+            if (chunk != null) {
+                evict(chunk);
+            }
+        }
+    }
+
+    /**
+     * Evicts the first chunk in the queue that hasn't been leased since it was last checked. Leased
+     * chunks get a second chance, they are moved to the end of the queue. Must be called while
+     * holding the lock.
+     */
+    private void evictNotRecentlyUsed() {
+        assert Thread.holdsLock(this);
+        assert !mappedChunks.isEmpty();
+        // After a full pass all chunks have their flags cleared. The limit only matters if readers
+        // lease chunks again faster than they are checked
+        for (int checksLeft = mappedChunks.size(); ; checksLeft--) {
+            final Iterator<MappedChunk> iterator = mappedChunks.iterator();
+            final MappedChunk chunk = iterator.next();
+            if (chunk.referenced && (checksLeft > 0)) {
+                chunk.referenced = false;
+                iterator.remove();
+                mappedChunks.add(chunk);
+            } else {
+                evict(chunk);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the chunk from its chunk array and from the set of mapped chunks, and releases the
+     * mapper's reference to the chunk.
+     */
+    private synchronized void evict(final MappedChunk chunk) {
+        if (!mappedChunks.remove(chunk)) {
+            // already evicted
+            return;
+        }
+        mappedBytes -= chunk.size;
+        chunk.owner.compareAndSet(chunk.index, chunk, null);
+        chunk.release();
+    }
+
+    /**
+     * A single mapped chunk of a data file.
+     */
+    static final class MappedChunk {
+
+        /** Mapped chunk bytes */
+        private final MappedByteBuffer buffer;
+
+        /** Chunk size, in bytes */
+        private final int size;
+
+        /** The chunk array this chunk is stored in */
+        private final AtomicReferenceArray<MappedChunk> owner;
+
+        /** Chunk index in the owner array */
+        private final int index;
+
+        /**
+         * Reference count. The mapper holds one reference until the chunk is evicted, every lease
+         * holds one more. When the count reaches zero, the chunk is unmapped
+         */
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        /**
+         * Whether this chunk has been leased since the mapper last checked it for eviction. Set by
+         * readers without synchronization and cleared by the mapper, as it's only used as a hint
+         */
+        private volatile boolean referenced;
+
+        private MappedChunk(
+                final MappedByteBuffer buffer,
+                final int size,
+                final AtomicReferenceArray<MappedChunk> owner,
+                final int index) {
+            this.buffer = buffer;
+            this.size = size;
+            this.owner = owner;
+            this.index = index;
+        }
+
+        /**
+         * Get the chunk bytes. May only be used between {@link #lease()} and {@link #release()}.
+         *
+         * @return mapped chunk bytes
+         */
+        MappedByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Get the chunk size.
+         *
+         * @return chunk size, in bytes
+         */
+        int getSize() {
+            return size;
+        }
+
+        /**
+         * Leases this chunk for reading.
+         *
+         * @return true if the chunk is leased, false if it's already unmapped
+         */
+        boolean lease() {
+            int current;
+            do {
+                current = refs.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!refs.compareAndSet(current, current + 1));
+            if (!referenced) {
+                referenced = true;
+            }
+            return true;
+        }
+
+        /**
+         * Releases a lease of this chunk, or the mapper's reference. If it was the last reference,
+         * the chunk is unmapped.
+         */
+        void release() {
+            if (refs.decrementAndGet() == 0) {
+                UNSAFE.invokeCleaner(buffer);
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.swirlds.merkledb.files;
 
+import static com.swirlds.merkledb.files.DataFileCommon.COMPRESSED_FILE_FORMAT_VERSION;
 import static com.swirlds.merkledb.files.DataFileCommon.FOOTER_SIZE;
 import static com.swirlds.merkledb.serialize.BaseSerializer.VARIABLE_DATA_SIZE;
 
@@ -70,6 +71,19 @@ public final class DataFileMetadata {
     private final long serializationVersion;
     /** The level of compaction this file has. See {@link DataFileCompactor}*/
     private final byte compactionLevel;
+    /** Data compression used in the file */
+    private final DataFileCompression compression;
+    /**
+     * Index of compressed blocks in the file, or null if the file isn't compressed. For new files,
+     * the index is shared between the writer and readers, so data can be read while the file is
+     * still being written
+     */
+    private final DataFileBlockIndex blockIndex;
+    /**
+     * Offset of the block index in the file. For new files, this field is set to 0 initially and
+     * then updated right before the file is finished writing
+     */
+    private long blockIndexOffset;
 
     /**
      * Create a new DataFileMetadata with complete set of data
@@ -93,6 +107,63 @@ public final class DataFileMetadata {
             final Instant creationDate,
             final long serializationVersion,
             final int compactionLevel) {
+        this(
+                fileFormatVersion,
+                dataItemValueSize,
+                dataItemCount,
+                index,
+                creationDate,
+                serializationVersion,
+                compactionLevel,
+                DataFileCompression.NONE,
+                0);
+    }
+
+    /**
+     * Create a new DataFileMetadata for a file with the given compression. Files without
+     * compression use {@link DataFileCommon#FILE_FORMAT_VERSION} format, all other files use
+     * {@link DataFileCommon#COMPRESSED_FILE_FORMAT_VERSION}.
+     *
+     * @param dataItemValueSize The data item value's size
+     * @param index The file index, in a data file collection
+     * @param creationDate The creation data of this file
+     * @param serializationVersion Serialization version for data stored in the file
+     * @param compactionLevel The level of compaction of this file
+     * @param compression Data compression
+     * @param blockSize Size of uncompressed blocks, ignored if compression is NONE
+     */
+    DataFileMetadata(
+            final int dataItemValueSize,
+            final int index,
+            final Instant creationDate,
+            final long serializationVersion,
+            final int compactionLevel,
+            final DataFileCompression compression,
+            final int blockSize) {
+        this(
+                compression == DataFileCompression.NONE
+                        ? DataFileCommon.FILE_FORMAT_VERSION
+                        : COMPRESSED_FILE_FORMAT_VERSION,
+                dataItemValueSize,
+                0,
+                index,
+                creationDate,
+                serializationVersion,
+                compactionLevel,
+                compression,
+                blockSize);
+    }
+
+    private DataFileMetadata(
+            final int fileFormatVersion,
+            final int dataItemValueSize,
+            final long dataItemCount,
+            final int index,
+            final Instant creationDate,
+            final long serializationVersion,
+            final int compactionLevel,
+            final DataFileCompression compression,
+            final int blockSize) {
         this.fileFormatVersion = fileFormatVersion;
         this.dataItemValueSize = dataItemValueSize;
         this.dataItemCount = dataItemCount;
@@ -101,6 +172,8 @@ public final class DataFileMetadata {
         this.serializationVersion = serializationVersion;
         assert compactionLevel >= 0 && compactionLevel < MAX_COMPACTION_LEVEL;
         this.compactionLevel = (byte) compactionLevel;
+        this.compression = compression;
+        this.blockIndex = compression == DataFileCompression.NONE ? null : new DataFileBlockIndex(blockSize);
     }
 
     /**
@@ -124,6 +197,21 @@ public final class DataFileMetadata {
             this.creationDate = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
             this.compactionLevel = buf.get();
             this.serializationVersion = buf.getLong();
+            if (fileFormatVersion >= COMPRESSED_FILE_FORMAT_VERSION) {
+                this.compression = DataFileCompression.valueOf(buf.get());
+                final int blockSize = buf.getInt();
+                final int blockCount = buf.getInt();
+                this.blockIndexOffset = buf.getLong();
+                // read block index
+                final ByteBuffer indexBuf = ByteBuffer.allocate((blockCount + 1) * Long.BYTES);
+                channel.position(blockIndexOffset);
+                MerkleDbFileUtils.completelyRead(channel, indexBuf);
+                indexBuf.rewind();
+                this.blockIndex = new DataFileBlockIndex(blockSize, blockCount, indexBuf);
+            } else {
+                this.compression = DataFileCompression.NONE;
+                this.blockIndex = null;
+            }
         }
     }
 
@@ -142,6 +230,12 @@ public final class DataFileMetadata {
         buf.putInt(this.creationDate.getNano());
         buf.put(compactionLevel);
         buf.putLong(this.serializationVersion);
+        if (fileFormatVersion >= COMPRESSED_FILE_FORMAT_VERSION) {
+            buf.put((byte) compression.getId());
+            buf.putInt(blockIndex.getBlockSize());
+            buf.putInt(blockIndex.getBlockCount());
+            buf.putLong(blockIndexOffset);
+        }
         buf.rewind();
         return buf;
     }
@@ -203,6 +297,29 @@ public final class DataFileMetadata {
         return compactionLevel;
     }
 
+    /** Get data compression used in the file */
+    public DataFileCompression getCompression() {
+        return compression;
+    }
+
+    /** Get if data items in the file are compressed */
+    public boolean isCompressed() {
+        return blockIndex != null;
+    }
+
+    /** Get the index of compressed blocks in the file, or null if the file isn't compressed */
+    DataFileBlockIndex getBlockIndex() {
+        return blockIndex;
+    }
+
+    /**
+     * Updates the offset of the block index in the file. This method is called by {@link
+     * DataFileWriter} right before the file is finished writing.
+     */
+    void setBlockIndexOffset(final long blockIndexOffset) {
+        this.blockIndexOffset = blockIndexOffset;
+    }
+
     /** toString for debugging */
     @Override
     public String toString() {
@@ -213,6 +330,7 @@ public final class DataFileMetadata {
                 .append("index", index)
                 .append("creationDate", creationDate)
                 .append("serializationVersion", serializationVersion)
+                .append("compression", compression)
                 .toString();
     }
 
@@ -233,6 +351,7 @@ public final class DataFileMetadata {
                 && dataItemCount == that.dataItemCount
                 && index == that.index
                 && serializationVersion == that.serializationVersion
+                && compression == that.compression
                 && Objects.equals(this.creationDate, that.creationDate);
     }
 
@@ -242,6 +361,12 @@ public final class DataFileMetadata {
     @Override
     public int hashCode() {
         return Objects.hash(
-                fileFormatVersion, dataItemValueSize, dataItemCount, index, creationDate, serializationVersion);
+                fileFormatVersion,
+                dataItemValueSize,
+                dataItemCount,
+                index,
+                creationDate,
+                serializationVersion,
+                compression);
     }
 }
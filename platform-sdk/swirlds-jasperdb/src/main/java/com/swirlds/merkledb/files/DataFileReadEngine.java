@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * An engine to read multiple data items from a single data file in one batch. Data file readers
+ * use engines for batch reads only, single item reads always go through the reader's own file
+ * channels.
+ *
+ * <p>Engines are selected by name using {@code merkleDb.dataFileReadEngine} config. Two engines
+ * are built in, see {@link PositionalReadEngine} and {@link AsyncFileChannelReadEngine}. Other
+ * engines, for example a native io_uring based one, can be provided as services implementing
+ * this interface, they are looked up by {@link DataFileReadEngines#forName(String)}.
+ */
+public interface DataFileReadEngine {
+
+    /**
+     * Get the name of this engine, as used in MerkleDb config.
+     *
+     * @return engine name
+     */
+    String getName();
+
+    /**
+     * Open a new batch read channel for the given file. The file is immutable for as long as the
+     * channel is used for reading.
+     *
+     * @param path the path to the data file
+     * @return a new batch read channel, must be closed by the caller
+     * @throws IOException If an I/O error occurred
+     */
+    BatchReadChannel open(Path path) throws IOException;
+
+    /**
+     * A channel to read bytes from a single file at multiple offsets in one batch. Channels must
+     * be safe to use from multiple threads at the same time.
+     */
+    interface BatchReadChannel extends Closeable {
+
+        /**
+         * Read bytes from the file into the given buffers. Every buffer is filled from its position
+         * to its limit with bytes starting at the corresponding offset, unless the end of file is
+         * reached. On return, every buffer's position is set to the number of bytes read.
+         *
+         * @param byteOffsets offsets in the file to read from
+         * @param buffers buffers to read into, must be of the same length as offsets
+         * @throws IOException If an I/O error occurred
+         * @throws java.nio.channels.ClosedChannelException If the channel was closed
+         */
+        void read(long[] byteOffsets, ByteBuffer[] buffers) throws IOException;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import static com.swirlds.logging.legacy.LogMarker.MERKLE_DB;
+
+import java.util.ServiceLoader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Lookup of {@link DataFileReadEngine} implementations by name.
+ */
+public final class DataFileReadEngines {
+
+    private static final Logger logger = LogManager.getLogger(DataFileReadEngines.class);
+
+    private DataFileReadEngines() {}
+
+    /**
+     * Get a batch read engine by name. Built-in engines are checked first, then all engines
+     * provided as services. If no engine with the given name is found, {@link PositionalReadEngine}
+     * is returned.
+     *
+     * @param name engine name
+     * @return the batch read engine
+     */
+    public static DataFileReadEngine forName(final String name) {
+        if (AsyncFileChannelReadEngine.NAME.equals(name)) {
+            return new AsyncFileChannelReadEngine();
+        }
+        if (PositionalReadEngine.NAME.equals(name)) {
+            return new PositionalReadEngine();
+        }
+        for (final DataFileReadEngine engine : ServiceLoader.load(DataFileReadEngine.class)) {
+            if (engine.getName().equals(name)) {
+                return engine;
+            }
+        }
+        logger.warn(MERKLE_DB.getMarker(), "Data file read engine [{}] not found, using positional reads", name);
+        return new PositionalReadEngine();
+    }
+}
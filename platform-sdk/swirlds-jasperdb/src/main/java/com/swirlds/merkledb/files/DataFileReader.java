@@ -16,7 +16,9 @@
 
 package com.swirlds.merkledb.files;
 
+import com.swirlds.common.config.singleton.ConfigurationHolder;
 import com.swirlds.merkledb.collections.IndexedObject;
+import com.swirlds.merkledb.config.MerkleDbConfig;
 import com.swirlds.merkledb.serialize.DataItemHeader;
 import com.swirlds.merkledb.serialize.DataItemSerializer;
 import com.swirlds.merkledb.utilities.MerkleDbFileUtils;
@@ -27,12 +29,14 @@ import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
@@ -43,8 +47,29 @@ import java.util.concurrent.atomic.AtomicReferenceArray;
  */
 @SuppressWarnings({"DuplicatedCode", "NullableProblems"})
 public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFileReader<D>>, IndexedObject {
+    /**
+     * Since {@code com.swirlds.platform.Browser} populates settings, and it is loaded before any
+     * application classes that might instantiate a data source, the {@link ConfigurationHolder}
+     * holder will have been configured by the time this static initializer runs.
+     */
+    private static final MerkleDbConfig config = ConfigurationHolder.getConfigData(MerkleDbConfig.class);
+    /** Batch read engine used by all data file readers, unless a different one is provided */
+    private static final DataFileReadEngine DEFAULT_READ_ENGINE =
+            DataFileReadEngines.forName(config.dataFileReadEngine());
+    /** Memory mapper shared by all data file readers, or null if memory mapped reads are disabled */
+    private static final DataFileMemoryMapper DEFAULT_MEMORY_MAPPER = config.dataFileMemoryMappingEnabled()
+            ? new DataFileMemoryMapper(config.maxMappedDataFileBytes(), config.mappedDataFileChunkSize())
+            : null;
     /** FileChannel's for each thread */
     private static final ThreadLocal<ByteBuffer> BUFFER_CACHE = new ThreadLocal<>();
+    /** Buffers to read compressed blocks to, for each thread */
+    private static final ThreadLocal<ByteBuffer> COMPRESSED_BUFFER_CACHE = new ThreadLocal<>();
+    /**
+     * The last decompressed block, for each thread. Data items are often read in the order they
+     * are stored in the file, so there is a good chance the next item is in the same block
+     */
+    private static final ThreadLocal<DecompressedBlock> DECOMPRESSED_BLOCK_CACHE =
+            ThreadLocal.withInitial(DecompressedBlock::new);
     /** Max number of file channels to use for reading */
     private static final int MAX_FILE_CHANNELS = 8;
     /**
@@ -69,8 +94,18 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
     private final AtomicInteger fileChannelsInUse = new AtomicInteger(0);
     /** Indicates whether this file reader is open */
     private final AtomicBoolean open = new AtomicBoolean(true);
-    /** The path to the file on disk */
-    private final Path path;
+    /**
+     * The path to the file on disk. The path may change, if the file is moved to cold storage,
+     * see {@link #relocate(Path)}
+     */
+    private volatile Path path;
+    /**
+     * The path the file was opened at. Data file readers are compared by this path rather than by
+     * {@link #path}, so they can be relocated while stored in hash based collections
+     */
+    private final Path originalPath;
+    /** Whether the file has been moved to cold storage with {@link #relocate(Path)} */
+    private volatile boolean relocated = false;
     /** The metadata for this file read from the footer */
     private final DataFileMetadata metadata;
     /** Serializer for converting raw data to/from data items */
@@ -83,6 +118,21 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
      * and for newly created files right after they are fully written and available to compact.
      */
     private final AtomicLong fileSizeBytes = new AtomicLong(0);
+    /** Engine to read multiple data items from this file in a single batch */
+    private final DataFileReadEngine readEngine;
+    /**
+     * Batch read channel opened with {@link #readEngine}. The channel is opened lazily on the first
+     * batch read, as most data files are never read in batches
+     */
+    private final AtomicReference<DataFileReadEngine.BatchReadChannel> batchReadChannel = new AtomicReference<>();
+    /** Memory mapper to map this file into memory once completed, or null to read using file channels only */
+    private final DataFileMemoryMapper memoryMapper;
+    /**
+     * Memory mapped chunks of this file. Chunks are mapped lazily on first read. Set in {@link
+     * #setFileCompleted()}, as only completed (immutable) files are mapped. Null if the file isn't
+     * completed yet, or memory mapped reads are disabled
+     */
+    private volatile AtomicReferenceArray<DataFileMemoryMapper.MappedChunk> mappedChunks;
     /**
      * Open an existing data file, reading the metadata from the file
      *
@@ -103,13 +153,52 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
     public DataFileReader(
             final Path path, final DataItemSerializer<D> dataItemSerializer, final DataFileMetadata metadata)
             throws IOException {
+        this(path, dataItemSerializer, metadata, DEFAULT_READ_ENGINE);
+    }
+
+    /**
+     * Open an existing data file, using the provided metadata and batch read engine
+     *
+     * @param path the path to the data file
+     * @param dataItemSerializer Serializer for converting raw data to/from data items
+     * @param metadata the file's metadata to save loading from file
+     * @param readEngine engine to read multiple data items in a single batch
+     */
+    public DataFileReader(
+            final Path path,
+            final DataItemSerializer<D> dataItemSerializer,
+            final DataFileMetadata metadata,
+            final DataFileReadEngine readEngine)
+            throws IOException {
+        this(path, dataItemSerializer, metadata, readEngine, DEFAULT_MEMORY_MAPPER);
+    }
+
+    /**
+     * Open an existing data file, using the provided metadata, batch read engine, and memory mapper
+     *
+     * @param path the path to the data file
+     * @param dataItemSerializer Serializer for converting raw data to/from data items
+     * @param metadata the file's metadata to save loading from file
+     * @param readEngine engine to read multiple data items in a single batch
+     * @param memoryMapper memory mapper to map the file once completed, may be null
+     */
+    DataFileReader(
+            final Path path,
+            final DataItemSerializer<D> dataItemSerializer,
+            final DataFileMetadata metadata,
+            final DataFileReadEngine readEngine,
+            final DataFileMemoryMapper memoryMapper)
+            throws IOException {
         if (!Files.exists(path)) {
             throw new IllegalArgumentException(
                     "Tried to open a non existent data file [" + path.toAbsolutePath() + "].");
         }
         this.path = path;
+        this.originalPath = path;
         this.metadata = metadata;
         this.dataItemSerializer = dataItemSerializer;
+        this.readEngine = Objects.requireNonNull(readEngine);
+        this.memoryMapper = memoryMapper;
         openNewFileChannel(0);
     }
 
@@ -131,6 +220,10 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
     public void setFileCompleted() {
         try {
             fileSizeBytes.set(fileChannels.get(0).size());
+            // Compressed files are always read using file channels
+            if ((memoryMapper != null) && !metadata.isCompressed()) {
+                mappedChunks = new AtomicReferenceArray<>(memoryMapper.chunkCount(fileSizeBytes.get()));
+            }
         } catch (final IOException e) {
             throw new UncheckedIOException("Failed to update data file reader size", e);
         } finally {
@@ -158,6 +251,59 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
         return path;
     }
 
+    /**
+     * Checks if this file has been moved to a different location with {@link #relocate(Path)}.
+     *
+     * @return true if the file was relocated
+     */
+    public boolean isRelocated() {
+        return relocated;
+    }
+
+    /**
+     * Switches this reader to a copy of the file at a new location, e.g. in cold storage. All
+     * file channels opened for the current location are replaced with channels for the new
+     * location, and all memory mapped chunks are unmapped, so the file at the old location is no
+     * longer used and can be deleted right after this method returns. Reads in progress, which
+     * use old file channels, are retried with new channels.
+     *
+     * <p>This method must only be called for completed files, and the file at the new location
+     * must be an exact copy of the current file.
+     *
+     * @param newPath the new file location
+     * @throws IOException if an I/O error occurred while opening the file at the new location
+     */
+    void relocate(final Path newPath) throws IOException {
+        if (!Files.exists(newPath)) {
+            throw new IllegalArgumentException(
+                    "Tried to relocate to a non existent data file [" + newPath.toAbsolutePath() + "].");
+        }
+        assert isFileCompleted();
+        path = newPath;
+        relocated = true;
+        for (int i = 0; i < MAX_FILE_CHANNELS; i++) {
+            final FileChannel oldChannel = fileChannels.get(i);
+            if (oldChannel == null) {
+                continue;
+            }
+            final FileChannel newChannel = FileChannel.open(newPath, StandardOpenOption.READ);
+            if (fileChannels.compareAndSet(i, oldChannel, newChannel)) {
+                oldChannel.close();
+            } else {
+                // The channel was reopened or the reader was closed in parallel
+                newChannel.close();
+            }
+        }
+        final DataFileReadEngine.BatchReadChannel oldBatchChannel = batchReadChannel.getAndSet(null);
+        if (oldBatchChannel != null) {
+            oldBatchChannel.close();
+        }
+        final AtomicReferenceArray<DataFileMemoryMapper.MappedChunk> chunks = mappedChunks;
+        if (chunks != null) {
+            memoryMapper.unmapAll(chunks);
+        }
+    }
+
     /**
      * Create an iterator to iterate over the data items in this data file. It opens its own file
      * handle so can be used in a separate thread. It must therefore be closed when you are finished
@@ -197,6 +343,82 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
         return read(byteOffset, bytesToRead);
     }
 
+    /**
+     * Read bytes of multiple data items from this file in a single batch. For variable size data
+     * items, it takes two batches: the first one to read item headers, and the second one to read
+     * the items.
+     *
+     * <p>Unlike {@link #readDataItemBytes(long)}, every returned buffer is newly allocated, so it
+     * can be used after subsequent reads from the same thread.
+     *
+     * @param dataLocations Data item locations, all of them must be in this file. It's recommended
+     *     to sort the locations by offset
+     * @return Data item bytes, in the same order as data locations, or {@code null} if this file
+     *     was closed
+     * @throws IOException If there was a problem reading from data file
+     */
+    ByteBuffer[] readDataItemsBytes(final long[] dataLocations) throws IOException {
+        final int count = dataLocations.length;
+        if (metadata.isCompressed()) {
+            // Batch read engines work with file offsets, which are not known for data items in
+            // compressed files. Read the items one by one
+            final ByteBuffer[] buffers = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                final ByteBuffer bytes = readDataItemBytes(dataLocations[i]);
+                if (bytes == null) {
+                    return null;
+                }
+                buffers[i] = ByteBuffer.allocate(bytes.remaining());
+                buffers[i].put(bytes);
+                buffers[i].flip();
+            }
+            return buffers;
+        }
+        final long[] byteOffsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            assert DataFileCommon.fileIndexFromDataLocation(dataLocations[i]) == getIndex();
+            byteOffsets[i] = DataFileCommon.byteOffsetFromDataLocation(dataLocations[i]);
+        }
+        final DataFileReadEngine.BatchReadChannel channel = leaseBatchReadChannel();
+        if (channel == null) {
+            return null;
+        }
+        final ByteBuffer[] buffers = new ByteBuffer[count];
+        try {
+            if (dataItemSerializer.isVariableSize()) {
+                // read all headers to get sizes
+                final int headerSize = dataItemSerializer.getHeaderSize();
+                for (int i = 0; i < count; i++) {
+                    buffers[i] = ByteBuffer.allocate(headerSize);
+                }
+                channel.read(byteOffsets, buffers);
+                for (int i = 0; i < count; i++) {
+                    buffers[i].flip();
+                    final DataItemHeader header = dataItemSerializer.deserializeHeader(buffers[i]);
+                    buffers[i] = ByteBuffer.allocate(header.getSizeBytes());
+                }
+            } else {
+                final int itemSize =
+                        dataItemSerializer.getSerializedSizeForVersion(metadata.getSerializationVersion());
+                for (int i = 0; i < count; i++) {
+                    buffers[i] = ByteBuffer.allocate(itemSize);
+                }
+            }
+            channel.read(byteOffsets, buffers);
+        } catch (final ClosedByInterruptException e) {
+            // If the thread and the channel are interrupted, propagate it to the callers
+            throw e;
+        } catch (final ClosedChannelException e) {
+            // The reader was closed in parallel, e.g. by compaction. Let the caller retry using
+            // fresh data locations from the index
+            return null;
+        }
+        for (final ByteBuffer buffer : buffers) {
+            buffer.flip();
+        }
+        return buffers;
+    }
+
     /**
      * Read data item from file at dataLocation and deserialize it to a Java object.
      *
@@ -206,7 +428,16 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
      * @throws ClosedChannelException if the data file was closed
      */
     D readDataItem(final long dataLocation) throws IOException {
+        if (mappedChunks != null) {
+            final D dataItem = readMappedDataItem(dataLocation);
+            if (dataItem != null) {
+                return dataItem;
+            }
+        }
         final ByteBuffer dataItemBytes = readDataItemBytes(dataLocation);
+        if (dataItemBytes == null) {
+            return null;
+        }
         return dataItemSerializer.deserialize(dataItemBytes, metadata.getSerializationVersion());
     }
 
@@ -220,7 +451,7 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
         return fileSizeBytes.get();
     }
 
-    /** Equals for use when comparing in collections, based on matching file paths */
+    /** Equals for use when comparing in collections, based on matching original file paths */
     @SuppressWarnings("rawtypes")
     @Override
     public boolean equals(final Object o) {
@@ -231,13 +462,13 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
             return false;
         }
         final DataFileReader that = (DataFileReader) o;
-        return path.equals(that.path);
+        return originalPath.equals(that.originalPath);
     }
 
-    /** hashCode for use when comparing in collections, based on file path */
+    /** hashCode for use when comparing in collections, based on original file path */
     @Override
     public int hashCode() {
-        return path.hashCode();
+        return originalPath.hashCode();
     }
 
     /** Compares this Data File to another based on creation date and index */
@@ -277,6 +508,14 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
                 fileChannel.close();
             }
         }
+        final DataFileReadEngine.BatchReadChannel channel = batchReadChannel.getAndSet(null);
+        if (channel != null) {
+            channel.close();
+        }
+        final AtomicReferenceArray<DataFileMemoryMapper.MappedChunk> chunks = mappedChunks;
+        if (chunks != null) {
+            memoryMapper.unmapAll(chunks);
+        }
     }
 
     // =================================================================================================================
@@ -348,6 +587,131 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
         return inUse % count;
     }
 
+    /**
+     * Returns a batch read channel for this file, opening it if needed. This method is safe to
+     * call from multiple threads. If two threads open a channel at the same time, only one of
+     * the channels is kept, and the other one is closed immediately.
+     *
+     * @return Batch read channel, or {@code null} if this reader is closed
+     * @throws IOException
+     *      If an I/O exception occurs
+     */
+    private DataFileReadEngine.BatchReadChannel leaseBatchReadChannel() throws IOException {
+        DataFileReadEngine.BatchReadChannel channel = batchReadChannel.get();
+        if (channel != null) {
+            return channel;
+        }
+        if (!open.get()) {
+            return null;
+        }
+        try {
+            channel = readEngine.open(path);
+        } catch (final NoSuchFileException e) {
+            // The file was just relocated, and the old file is deleted. Let the caller fall back
+            // to single item reads
+            return null;
+        }
+        if (!batchReadChannel.compareAndSet(null, channel)) {
+            channel.close();
+            channel = batchReadChannel.get();
+        } else if (!open.get()) {
+            // The reader was closed while the channel was being opened
+            batchReadChannel.compareAndSet(channel, null);
+            channel.close();
+            return null;
+        }
+        return channel;
+    }
+
+    /**
+     * Read data item from a memory mapped chunk of this file and deserialize it. Item bytes are
+     * copied from mapped memory to the reused per thread buffer, and the item is deserialized from
+     * there. The chunk may be unmapped as soon as it's released, and a serializer that kept a view
+     * of mapped memory would then crash the JVM on access. With the copy, serializers see the same
+     * kind of buffer as with file channel reads.
+     *
+     * @param dataLocation Data item location, which combines data file index and offset in the file
+     * @return Deserialized data item, or {@code null} if the item can't be read from mapped memory,
+     *     e.g. because it spans over two chunks, or the file is closed. Callers should fall back to
+     *     file channel reads in this case
+     * @throws IOException If there was a problem mapping the file
+     */
+    private D readMappedDataItem(final long dataLocation) throws IOException {
+        final long byteOffset = DataFileCommon.byteOffsetFromDataLocation(dataLocation);
+        final int chunkSize = memoryMapper.getChunkSize();
+        final int chunkIndex = (int) (byteOffset / chunkSize);
+        final DataFileMemoryMapper.MappedChunk chunk = leaseMappedChunk(chunkIndex);
+        if (chunk == null) {
+            return null;
+        }
+        final ByteBuffer itemBytes;
+        try {
+            final int offsetInChunk = (int) (byteOffset - (long) chunkIndex * chunkSize);
+            final ByteBuffer chunkBuffer = chunk.getBuffer();
+            final int bytesToRead;
+            if (dataItemSerializer.isVariableSize()) {
+                final int headerSize = dataItemSerializer.getHeaderSize();
+                if (offsetInChunk + headerSize > chunk.getSize()) {
+                    return null;
+                }
+                final DataItemHeader header =
+                        dataItemSerializer.deserializeHeader(chunkBuffer.slice(offsetInChunk, headerSize));
+                bytesToRead = header.getSizeBytes();
+            } else {
+                bytesToRead = dataItemSerializer.getSerializedSizeForVersion(metadata.getSerializationVersion());
+            }
+            if (offsetInChunk + bytesToRead > chunk.getSize()) {
+                return null;
+            }
+            final ByteBuffer buffer = threadLocalBuffer(bytesToRead);
+            buffer.put(0, chunkBuffer, offsetInChunk, bytesToRead);
+            buffer.position(0).limit(bytesToRead);
+            itemBytes = buffer;
+        } finally {
+            chunk.release();
+        }
+        return dataItemSerializer.deserialize(itemBytes, metadata.getSerializationVersion());
+    }
+
+    /**
+     * Leases a memory mapped chunk of this file, mapping it if needed.
+     *
+     * @param chunkIndex chunk index
+     * @return leased chunk, or {@code null} if the chunk can't be mapped or this reader is closed
+     * @throws IOException If there was a problem mapping the file
+     */
+    private DataFileMemoryMapper.MappedChunk leaseMappedChunk(final int chunkIndex) throws IOException {
+        final AtomicReferenceArray<DataFileMemoryMapper.MappedChunk> chunks = mappedChunks;
+        // A chunk may be evicted right after it's retrieved from the array, retry a few times
+        for (int retries = 3; retries > 0; retries--) {
+            DataFileMemoryMapper.MappedChunk chunk = chunks.get(chunkIndex);
+            if (chunk == null) {
+                if (!open.get()) {
+                    return null;
+                }
+                try {
+                    chunk = memoryMapper.map(path, fileSizeBytes.get(), chunks, chunkIndex);
+                } catch (final NoSuchFileException e) {
+                    // The file was just relocated, and the old file is deleted. Fall back to file
+                    // channel reads, they use the new location
+                    return null;
+                }
+                if (chunk == null) {
+                    return null;
+                }
+                if (!open.get()) {
+                    // The reader was closed while the chunk was being mapped
+                    memoryMapper.unmapAll(chunks);
+                    return null;
+                }
+            }
+            if (chunk.lease()) {
+                return chunk;
+            }
+        }
+        return null;
+    }
+
     /**
      * Decreases the number of opened file channels in use by one.
      */
@@ -368,12 +732,119 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
      * @throws ClosedChannelException if the file was closed
      */
     private ByteBuffer read(final long byteOffsetInFile, final int bytesToRead) throws IOException {
+        final ByteBuffer buffer = threadLocalBuffer(bytesToRead);
+        if (metadata.isCompressed()) {
+            return readCompressed(byteOffsetInFile, bytesToRead, buffer);
+        }
+        return readFromFile(byteOffsetInFile, bytesToRead, buffer);
+    }
+
+    /**
+     * Get the reused per thread buffer, with a capacity of at least the given number of bytes.
+     *
+     * @param capacity Min buffer capacity, in bytes
+     * @return The buffer for the current thread
+     */
+    private static ByteBuffer threadLocalBuffer(final int capacity) {
         // get or create cached buffer
         ByteBuffer buffer = BUFFER_CACHE.get();
-        if (buffer == null || bytesToRead > buffer.capacity()) {
-            buffer = ByteBuffer.allocate(bytesToRead);
+        if (buffer == null || capacity > buffer.capacity()) {
+            buffer = ByteBuffer.allocate(capacity);
             BUFFER_CACHE.set(buffer);
         }
+        return buffer;
+    }
+
+    /**
+     * Read bytesToRead bytes of uncompressed data from a compressed file. Bytes are read from
+     * one or more compressed blocks. If the file is still being written, some bytes may be read
+     * from the current block, which isn't written to the file yet.
+     *
+     * @param byteOffset Offset in the uncompressed data to start reading at
+     * @param bytesToRead Number of bytes to read
+     * @param buffer Buffer to read to, must have at least bytesToRead bytes capacity
+     * @return The buffer containing read data, or null if the file was closed
+     * @throws IOException if there was a problem reading
+     */
+    private ByteBuffer readCompressed(final long byteOffset, final int bytesToRead, final ByteBuffer buffer)
+            throws IOException {
+        final DataFileBlockIndex blockIndex = metadata.getBlockIndex();
+        final int blockSize = blockIndex.getBlockSize();
+        final byte[] dst = buffer.array();
+        int bytesRead = 0;
+        while (bytesRead < bytesToRead) {
+            final long pos = byteOffset + bytesRead;
+            final int block = (int) (pos / blockSize);
+            final int offsetInBlock = (int) (pos % blockSize);
+            int count = blockIndex.readCurrentBlock(block, offsetInBlock, dst, bytesRead, bytesToRead - bytesRead);
+            if (count < 0) {
+                // the block is written to the file
+                final DecompressedBlock decompressed = readBlock(blockIndex, block);
+                if (decompressed == null) {
+                    return null;
+                }
+                count = Math.min(bytesToRead - bytesRead, decompressed.length - offsetInBlock);
+                if (count <= 0) {
+                    throw new IOException("Tried to read past the end of block " + block + " in file " + path);
+                }
+                System.arraycopy(decompressed.data, offsetInBlock, dst, bytesRead, count);
+            }
+            bytesRead += count;
+        }
+        buffer.position(0);
+        buffer.limit(bytesToRead);
+        return buffer;
+    }
+
+    /**
+     * Reads and decompresses a block of a compressed file. The last decompressed block is cached
+     * for every thread.
+     *
+     * @param blockIndex Block index of this file
+     * @param block Block to read
+     * @return Decompressed block, or null if the file was closed
+     * @throws IOException if there was a problem reading
+     */
+    private DecompressedBlock readBlock(final DataFileBlockIndex blockIndex, final int block) throws IOException {
+        final DecompressedBlock decompressed = DECOMPRESSED_BLOCK_CACHE.get();
+        if ((decompressed.blockIndex == blockIndex) && (decompressed.block == block)) {
+            return decompressed;
+        }
+        final long blockOffset = blockIndex.getBlockOffset(block);
+        final int compressedSize = (int) (blockIndex.getBlockOffset(block + 1) - blockOffset);
+        ByteBuffer compressed = COMPRESSED_BUFFER_CACHE.get();
+        if (compressed == null || compressedSize > compressed.capacity()) {
+            compressed = ByteBuffer.allocate(compressedSize);
+            COMPRESSED_BUFFER_CACHE.set(compressed);
+        }
+        if (readFromFile(blockOffset, compressedSize, compressed) == null) {
+            return null;
+        }
+        final int blockSize = blockIndex.getBlockSize();
+        if (decompressed.data == null || decompressed.data.length < blockSize) {
+            decompressed.data = new byte[blockSize];
+        }
+        // Reset the cache first, in case decompression fails
+        decompressed.blockIndex = null;
+        decompressed.length = metadata.getCompression()
+                .decompress(compressed.array(), 0, compressedSize, decompressed.data, 0);
+        decompressed.blockIndex = blockIndex;
+        decompressed.block = block;
+        return decompressed;
+    }
+
+    /**
+     * Read bytesToRead bytes of data from the file starting at byteOffsetInFile to the given
+     * buffer.
+     *
+     * @param byteOffsetInFile Offset to start reading at
+     * @param bytesToRead Number of bytes to read
+     * @param buffer Buffer to read to, must have at least bytesToRead bytes capacity
+     * @return The buffer containing read data, or null if the file was closed
+     * @throws IOException if there was a problem reading
+     */
+    private ByteBuffer readFromFile(final long byteOffsetInFile, final int bytesToRead, final ByteBuffer buffer)
+            throws IOException {
         // Try a few times. It's very unlikely (other than in tests) that a thread is
         // interrupted more than once in short period of time, so 3 retries should be enough
         for (int retries = 3; retries > 0; retries--) {
@@ -405,4 +876,16 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
         }
         throw new IOException("Failed to read from file, file channels keep getting closed");
     }
+
+    /** A decompressed block of a compressed data file, cached for every thread */
+    private static final class DecompressedBlock {
+        /** Block index of the file the block belongs to, or null if the block is not loaded */
+        private DataFileBlockIndex blockIndex;
+        /** Block number in the file */
+        private int block;
+        /** Decompressed bytes */
+        private byte[] data;
+        /** Number of decompressed bytes */
+        private int length;
+    }
 }
@@ -45,6 +45,11 @@ import sun.misc.Unsafe;
  * At the end of the file it is padded till a 4096 byte page boundary then a footer page is
  * written by DataFileMetadata.
  *
+ * If the file is compressed, data items are serialized to an uncompressed block in memory, see
+ * {@link DataFileBlockIndex}. Full blocks are compressed and written to the file. Data locations
+ * returned by this writer are offsets in the uncompressed data. When the file is finished, the
+ * last block is written followed by the block index, padding and the footer.
+ *
  * @param <D> Data item type
  */
 public final class DataFileWriter<D> {
@@ -79,6 +84,20 @@ public final class DataFileWriter<D> {
      * metadata
      */
     private long dataItemCount = 0;
+    /** Compression codec, or null if the file isn't compressed */
+    private final DataFileCompression compression;
+    /** Index of compressed blocks, or null if the file isn't compressed */
+    private final DataFileBlockIndex blockIndex;
+    /** File channel to write compressed blocks to, or null if the file isn't compressed */
+    private FileChannel compressedChannel;
+    /** Current position in {@link #compressedChannel}, or the file size after the file is finished */
+    private long compressedPositionInFile = 0;
+    /** Number of uncompressed bytes written to the file so far */
+    private long uncompressedPosition = 0;
+    /** Buffer to serialize data items to, before they are appended to compressed blocks */
+    private ByteBuffer serializationBuffer;
+    /** Buffer to compress blocks to */
+    private byte[] compressionBuffer;
 
     /** Access to sun.misc.Unsafe required for atomic compareAndSwapLong on off-heap memory */
     private static final Unsafe UNSAFE;
@@ -103,6 +122,7 @@ public final class DataFileWriter<D> {
      * @param index the index number for this file
      * @param dataItemSerializer Serializer for converting raw data to/from data items
      * @param creationTime the time stamp for the creation time for this file
+     * @param compactionLevel the compaction level of this file
      */
     public DataFileWriter(
             final String filePrefix,
@@ -112,20 +132,63 @@ public final class DataFileWriter<D> {
             final Instant creationTime,
             final int compactionLevel)
             throws IOException {
+        this(
+                filePrefix,
+                dataFileDir,
+                index,
+                dataItemSerializer,
+                creationTime,
+                compactionLevel,
+                DataFileCompression.NONE,
+                0);
+    }
+
+    /**
+     * Create a new data file in the given directory, in append mode, with the given compression.
+     *
+     * @param filePrefix string prefix for all files, must not contain "_" chars
+     * @param dataFileDir the path to directory to create the data file in
+     * @param index the index number for this file
+     * @param dataItemSerializer Serializer for converting raw data to/from data items
+     * @param creationTime the time stamp for the creation time for this file
+     * @param compactionLevel the compaction level of this file
+     * @param compression data compression
+     * @param blockSize size of uncompressed blocks, ignored if compression is NONE
+     */
+    public DataFileWriter(
+            final String filePrefix,
+            final Path dataFileDir,
+            final int index,
+            final DataItemSerializer<D> dataItemSerializer,
+            final Instant creationTime,
+            final int compactionLevel,
+            final DataFileCompression compression,
+            final int blockSize)
+            throws IOException {
         this.index = index;
         this.dataItemSerializer = dataItemSerializer;
         this.creationInstant = creationTime;
         this.path = createDataFilePath(filePrefix, dataFileDir, index, creationInstant);
         metadata = new DataFileMetadata(
-                DataFileCommon.FILE_FORMAT_VERSION,
                 dataItemSerializer.getSerializedSize(),
-                0, // data item count will be updated later in finishWriting()
                 index,
                 creationInstant,
                 dataItemSerializer.getCurrentDataVersion(),
-                compactionLevel);
+                compactionLevel,
+                compression,
+                blockSize);
         Files.createFile(path);
-        moveMmapBuffer(0);
+        if (metadata.isCompressed()) {
+            this.compression = compression;
+            this.blockIndex = metadata.getBlockIndex();
+            this.compressedChannel = FileChannel.open(path, StandardOpenOption.WRITE);
+            this.serializationBuffer = ByteBuffer.allocate(PAGE_SIZE);
+            this.compressionBuffer = new byte[compression.maxCompressedLength(blockSize)];
+        } else {
+            this.compression = null;
+            this.blockIndex = null;
+            moveMmapBuffer(0);
+        }
     }
 
     /**
@@ -164,6 +227,15 @@ public final class DataFileWriter<D> {
      * If this method is called after {@link #finishWriting()}, it returns the total file size.
      */
     public long getFileSizeEstimate() {
+        if (blockIndex != null) {
+            if (compressedChannel == null) {
+                return compressedPositionInFile;
+            }
+            // Compressed blocks + current block (uncompressed) + block index + padding + footer
+            final long size =
+                    compressedPositionInFile + blockIndex.getCurrentBlockSize() + blockIndex.getSerializedSize();
+            return size + (PAGE_SIZE - (size % PAGE_SIZE)) % PAGE_SIZE + FOOTER_SIZE;
+        }
         if (writingMmap == null) {
             // Done with writing, return mmapPositionInFile, which is equal to the file size
             return mmapPositionInFile;
@@ -199,6 +271,20 @@ public final class DataFileWriter<D> {
      */
     public synchronized long writeCopiedDataItem(final long serializedVersion, final ByteBuffer dataItemData)
             throws IOException {
+        if (blockIndex != null) {
+            final int currentDataItemPos = dataItemData.position();
+            while (true) {
+                try {
+                    serializationBuffer.clear();
+                    dataItemSerializer.copyItem(
+                            serializedVersion, dataItemData.remaining(), dataItemData, serializationBuffer);
+                    return appendSerializedDataItem();
+                } catch (final BufferOverflowException e) {
+                    growSerializationBuffer(e);
+                    dataItemData.position(currentDataItemPos);
+                }
+            }
+        }
         // capture the current write position for beginning of data item
         final int currentWritingMmapPos = writingMmap.position();
         final long byteOffset = mmapPositionInFile + currentWritingMmapPos;
@@ -236,6 +322,17 @@ public final class DataFileWriter<D> {
      * @throws IOException if there was a problem appending data to file
      */
     public synchronized long storeDataItem(final D dataItem) throws IOException {
+        if (blockIndex != null) {
+            while (true) {
+                try {
+                    serializationBuffer.clear();
+                    dataItemSerializer.serialize(dataItem, serializationBuffer);
+                    return appendSerializedDataItem();
+                } catch (final BufferOverflowException e) {
+                    growSerializationBuffer(e);
+                }
+            }
+        }
         // find offset for the start of this new data item, we assume we always write data in a
         // whole number of blocks
         final int currentWritingMmapPos = writingMmap.position();
@@ -264,6 +361,89 @@ public final class DataFileWriter<D> {
         return DataFileCommon.dataLocation(index, byteOffset);
     }
 
+    /**
+     * Appends a data item serialized to {@link #serializationBuffer} to the current compressed
+     * block. If the block is full, it's compressed and written to the file, and the rest of the
+     * data item is appended to the next block.
+     *
+     * @return the data location of the data item
+     * @throws IOException if there was a problem writing a compressed block to the file
+     */
+    private long appendSerializedDataItem() throws IOException {
+        final long byteOffset = uncompressedPosition;
+        final byte[] bytes = serializationBuffer.array();
+        final int len = serializationBuffer.position();
+        int pos = 0;
+        while (pos < len) {
+            final int toAppend = Math.min(len - pos, blockIndex.getCurrentBlockRemaining());
+            blockIndex.appendToCurrentBlock(bytes, pos, toAppend);
+            pos += toAppend;
+            if (blockIndex.getCurrentBlockRemaining() == 0) {
+                writeCurrentBlock();
+            }
+        }
+        uncompressedPosition += len;
+        dataItemCount++;
+        return DataFileCommon.dataLocation(index, byteOffset);
+    }
+
+    /**
+     * Doubles the size of {@link #serializationBuffer}, after a data item didn't fit into it.
+     *
+     * @param e the overflow exception
+     * @throws IOException if the buffer can't grow any further
+     */
+    private void growSerializationBuffer(final BufferOverflowException e) throws IOException {
+        if (serializationBuffer.capacity() >= MMAP_BUF_SIZE) {
+            throw new IOException("Data item is too large to write to a data file", e);
+        }
+        serializationBuffer = ByteBuffer.allocate(serializationBuffer.capacity() * 2);
+    }
+
+    /**
+     * Compresses the current block, writes it to the file, and then publishes it in the block
+     * index, so readers can read it from the file.
+     *
+     * @throws IOException if there was a problem writing to the file
+     */
+    private void writeCurrentBlock() throws IOException {
+        final int compressedSize = compression.compress(
+                blockIndex.getCurrentBlock(), 0, blockIndex.getCurrentBlockSize(), compressionBuffer, 0);
+        final ByteBuffer buf = ByteBuffer.wrap(compressionBuffer, 0, compressedSize);
+        while (buf.hasRemaining()) {
+            compressedPositionInFile += compressedChannel.write(buf, compressedPositionInFile);
+        }
+        blockIndex.publishCurrentBlock(compressedPositionInFile);
+    }
+
+    /**
+     * Writes the last block, block index, padding, and the footer of a compressed file.
+     *
+     * @throws IOException if there was a problem writing to the file
+     */
+    private void finishWritingCompressed() throws IOException {
+        if (blockIndex.getCurrentBlockSize() > 0) {
+            writeCurrentBlock();
+        }
+        blockIndex.finish();
+        metadata.setDataItemCount(dataItemCount);
+        metadata.setBlockIndexOffset(compressedPositionInFile);
+        final int indexSize = blockIndex.getSerializedSize();
+        final int paddingSize = (int) ((PAGE_SIZE - ((compressedPositionInFile + indexSize) % PAGE_SIZE)) % PAGE_SIZE);
+        final ByteBuffer buf = ByteBuffer.allocate(indexSize + paddingSize + FOOTER_SIZE);
+        blockIndex.writeTo(buf);
+        buf.position(indexSize + paddingSize);
+        buf.put(metadata.getFooterForWriting());
+        buf.flip();
+        while (buf.hasRemaining()) {
+            compressedPositionInFile += compressedChannel.write(buf, compressedPositionInFile);
+        }
+        compressedChannel.close();
+        compressedChannel = null;
+        serializationBuffer = null;
+        compressionBuffer = null;
+    }
+
     /** A helper method to write a byte buffer to the file. */
     private void writeBytes(final ByteBuffer data) throws IOException {
         final int needToWrite = data.remaining();
@@ -282,6 +462,10 @@ public final class DataFileWriter<D> {
      * @throws IOException if there was a problem sealing file or opening again as read only
      */
     public synchronized void finishWriting() throws IOException {
+        if (blockIndex != null) {
+            finishWritingCompressed();
+            return;
+        }
         // pad the end of file till we are a whole number of pages
         int paddingBytesNeeded = computePaddingLength();
         final ByteBuffer paddingBuf = ByteBuffer.allocate(paddingBytesNeeded);
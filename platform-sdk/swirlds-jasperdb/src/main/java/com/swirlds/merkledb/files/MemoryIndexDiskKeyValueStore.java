@@ -29,6 +29,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
@@ -92,6 +95,39 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
             final LoadedDataCallback loadedDataCallback,
             final LongList keyToDiskLocationIndex)
             throws IOException {
+        this(
+                storeDir,
+                null,
+                storeName,
+                legacyStoreName,
+                dataItemSerializer,
+                loadedDataCallback,
+                keyToDiskLocationIndex);
+    }
+
+    /**
+     * Construct a new MemoryIndexDiskKeyValueStore with a cold storage directory. Data files can
+     * be moved to this directory from the store directory during compaction, see {@link
+     * DataFileCompactor}.
+     *
+     * @param storeDir The directory to store data files in
+     * @param coldStoreDir The directory to move cold data files to, or null if cold storage isn't used
+     * @param storeName The name for the data store, this allows more than one data store in a single directory.
+     * @param legacyStoreName Base name for the data store. If not null, the store will process files with this prefix at startup. New files in the store will be prefixed with {@code storeName}
+     * @param dataItemSerializer Serializer for converting raw data to/from data items
+     * @param loadedDataCallback call back for handing loaded data from existing files on startup. Can be null if not needed.
+     * @param keyToDiskLocationIndex The index to use for keys to disk locations
+     * @throws IOException If there was a problem opening data files
+     */
+    public MemoryIndexDiskKeyValueStore(
+            final Path storeDir,
+            final Path coldStoreDir,
+            final String storeName,
+            final String legacyStoreName,
+            final DataItemSerializer<D> dataItemSerializer,
+            final LoadedDataCallback loadedDataCallback,
+            final LongList keyToDiskLocationIndex)
+            throws IOException {
         this.storeName = storeName;
         index = keyToDiskLocationIndex;
         final boolean indexIsEmpty = keyToDiskLocationIndex.size() == 0;
@@ -113,7 +149,7 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
         }
         // create file collection
         fileCollection = new DataFileCollection<>(
-                storeDir, storeName, legacyStoreName, dataItemSerializer, combinedLoadedDataCallback);
+                storeDir, coldStoreDir, storeName, legacyStoreName, dataItemSerializer, combinedLoadedDataCallback);
         // no limits for the keys on init
         minValidKey = new AtomicLong(0);
         maxValidKey = new AtomicLong(Long.MAX_VALUE);
@@ -201,6 +237,39 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
         return fileCollection.readDataItemUsingIndex(index, key);
     }
 
+    /**
+     * Get multiple values by reading them from disk in a batch. Values stored in the same data
+     * file are read together, see {@link DataFileCollection#readDataItemsUsingIndex(LongList, long[])}.
+     *
+     * @param keys The keys to find and read values for
+     * @return Values in the same order as the keys. If a value is not found, the corresponding
+     *     list element is null
+     * @throws IOException If there was a problem reading the values from files
+     */
+    public List<D> getAll(final long[] keys) throws IOException {
+        final int count = keys.length;
+        final int[] inRange = new int[count];
+        int inRangeCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (checkKeyInRange(keys[i])) {
+                inRange[inRangeCount++] = i;
+            }
+        }
+        if (inRangeCount == count) {
+            return fileCollection.readDataItemsUsingIndex(index, keys);
+        }
+        final long[] keysToRead = new long[inRangeCount];
+        for (int i = 0; i < inRangeCount; i++) {
+            keysToRead[i] = keys[inRange[i]];
+        }
+        final List<D> read = fileCollection.readDataItemsUsingIndex(index, keysToRead);
+        final List<D> result = new ArrayList<>(Collections.nCopies(count, null));
+        for (int i = 0; i < inRangeCount; i++) {
+            result.set(inRange[i], read.get(i));
+        }
+        return result;
+    }
+
     /**
      * Get raw value bytes by reading it from disk.
      *
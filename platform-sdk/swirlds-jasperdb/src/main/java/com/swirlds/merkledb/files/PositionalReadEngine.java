@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import com.swirlds.merkledb.utilities.MerkleDbFileUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Batch read engine, which reads data items one by one using positional {@link FileChannel}
+ * reads. Reads are issued in the order of file offsets, which is the best that can be done
+ * without native vectored I/O. This engine is used as a fallback, when no other engine is
+ * available.
+ */
+public final class PositionalReadEngine implements DataFileReadEngine {
+
+    /** Engine name in MerkleDb config */
+    public static final String NAME = "sync";
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BatchReadChannel open(final Path path) throws IOException {
+        final FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        return new BatchReadChannel() {
+            @Override
+            public void read(final long[] byteOffsets, final ByteBuffer[] buffers) throws IOException {
+                assert byteOffsets.length == buffers.length;
+                for (int i = 0; i < byteOffsets.length; i++) {
+                    MerkleDbFileUtils.completelyRead(fileChannel, buffers[i], byteOffsets[i]);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                fileChannel.close();
+            }
+        };
+    }
+}
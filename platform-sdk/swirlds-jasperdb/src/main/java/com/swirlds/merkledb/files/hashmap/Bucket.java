@@ -31,6 +31,7 @@ import java.io.UncheckedIOException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -399,6 +400,22 @@ public final class Bucket<K extends VirtualKey> implements Closeable {
         return new FindResult(getSize(), -1, false, 0);
     }
 
+    /**
+     * Calls the given consumer for key hash codes of all entries in this bucket.
+     *
+     * @param consumer the consumer to call for every key hash code
+     */
+    void forEachKeyHashCode(final IntConsumer consumer) {
+        final int entryCount = getBucketEntryCount();
+        int entryOffset = BUCKET_HEADER_SIZE;
+        for (int i = 0; i < entryCount; i++) {
+            consumer.accept(bucketBuffer.getInt(entryOffset));
+            if (i < entryCount - 1) {
+                entryOffset += KEY_HASHCODE_SIZE + VALUE_SIZE + getKeySize(entryOffset);
+            }
+        }
+    }
+
     /**
      * Read the size of the key for an entry
      *
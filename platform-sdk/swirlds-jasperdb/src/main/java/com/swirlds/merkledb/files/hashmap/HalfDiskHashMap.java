@@ -28,6 +28,7 @@ import com.swirlds.merkledb.Snapshotable;
 import com.swirlds.merkledb.collections.CASableLongIndex;
 import com.swirlds.merkledb.collections.LongList;
 import com.swirlds.merkledb.collections.LongListDisk;
+import com.swirlds.merkledb.collections.LongListSnapshotChain;
 import com.swirlds.merkledb.collections.LongListOffHeap;
 import com.swirlds.merkledb.collections.OffHeapUser;
 import com.swirlds.merkledb.config.MerkleDbConfig;
@@ -42,7 +43,9 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -51,6 +54,8 @@ import java.util.concurrent.Executors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.collections.api.tuple.primitive.IntObjectPair;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+import org.eclipse.collections.impl.map.mutable.primitive.IntIntHashMap;
 import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
 
 /**
@@ -95,6 +100,13 @@ public class HalfDiskHashMap<K extends VirtualKey>
     public static final double LOADING_FACTOR = 0.6;
     /** The limit on the number of concurrent read tasks in {@code endWriting()} */
     private static final int MAX_IN_FLIGHT = 64;
+    /** Number of buckets read at once when the key filter is rebuilt */
+    private static final int KEY_FILTER_REBUILD_BATCH_SIZE = 64;
+    /**
+     * The key filter is rebuilt when the number of keys removed since the last rebuild exceeds
+     * this fraction of the map size
+     */
+    private static final double KEY_FILTER_REBUILD_REMOVED_RATIO = 0.1;
     /**
      * Long list used for mapping bucketIndex(index into list) to disk location for latest copy of
      * bucket
@@ -122,6 +134,16 @@ public class HalfDiskHashMap<K extends VirtualKey>
     private final String storeName;
 
     private final BucketSerializer<K> bucketSerializer;
+    /**
+     * In-memory filter of key hash codes stored in this map, used to avoid bucket reads from disk
+     * for absent keys. Null if the filter is disabled
+     */
+    private final KeyHashFilter keyFilter;
+    /**
+     * Incremental snapshots of {@link #bucketIndexToBucketLocation}. Null if incremental snapshots
+     * are disabled
+     */
+    private final LongListSnapshotChain bucketIndexSnapshotChain;
     /** Store for session data during a writing transaction */
     private IntObjectHashMap<BucketMutation<K>> oneTransactionsData = null;
     /**
@@ -169,6 +191,45 @@ public class HalfDiskHashMap<K extends VirtualKey>
             final String legacyStoreName,
             final boolean preferDiskBasedIndex)
             throws IOException {
+        this(
+                mapSize,
+                keySerializer,
+                storeDir,
+                storeName,
+                legacyStoreName,
+                preferDiskBasedIndex,
+                config.halfDiskHashMapKeyFilterEnabled());
+    }
+
+    /**
+     * Construct a new HalfDiskHashMap
+     *
+     * @param mapSize                        The maximum map number of entries. This should be more than big enough to
+     *                                       avoid too many key collisions.
+     * @param keySerializer                  Serializer for converting raw data to/from keys
+     * @param storeDir                       The directory to use for storing data files.
+     * @param storeName                      The name for the data store, this allows more than one data store in a
+     *                                       single directory.
+     * @param legacyStoreName                Base name for the data store. If not null, the store will process
+     *                                       files with this prefix at startup. New files in the store will be prefixed with {@code
+     *                                       storeName}
+     * @param preferDiskBasedIndex           When true we will use disk based index rather than ram where
+     *                                       possible. This will come with a significant performance cost, especially for writing. It
+     *                                       is possible to load a data source that was written with memory index with disk based
+     *                                       index and vice versa.
+     * @param keyFilterEnabled               When true, an in-memory filter of key hash codes is maintained, so
+     *                                       lookups of absent keys don't need to read buckets from disk
+     * @throws IOException If there was a problem creating or opening a set of data files.
+     */
+    public HalfDiskHashMap(
+            final long mapSize,
+            final KeySerializer<K> keySerializer,
+            final Path storeDir,
+            final String storeName,
+            final String legacyStoreName,
+            final boolean preferDiskBasedIndex,
+            final boolean keyFilterEnabled)
+            throws IOException {
         this.mapSize = mapSize;
         this.storeName = storeName;
         Path indexFile = storeDir.resolve(storeName + BUCKET_INDEX_FILENAME_SUFFIX);
@@ -215,6 +276,7 @@ public class HalfDiskHashMap<K extends VirtualKey>
             if (Files.exists(indexFile) && !forceIndexRebuilding) {
                 bucketIndexToBucketLocation =
                         preferDiskBasedIndex ? new LongListDisk(indexFile) : new LongListOffHeap(indexFile);
+                LongListSnapshotChain.applyDeltas(bucketIndexToBucketLocation, indexFile);
                 loadedDataCallback = null;
             } else {
                 // create new index and setup call back to rebuild
@@ -245,6 +307,24 @@ public class HalfDiskHashMap<K extends VirtualKey>
         // create file collection
         fileCollection =
                 new DataFileCollection<>(storeDir, storeName, legacyStoreName, bucketSerializer, loadedDataCallback);
+        // create key filter and fill it with all keys loaded from disk, if any
+        if (keyFilterEnabled) {
+            keyFilter = new KeyHashFilter(
+                    config.halfDiskHashMapKeyFilterHashCount(),
+                    Math.max(1, mapSize * config.halfDiskHashMapKeyFilterBitsPerKey()));
+            if (!fileCollection.getAllCompletedFiles().isEmpty()) {
+                rebuildKeyFilter();
+            }
+        } else {
+            keyFilter = null;
+        }
+        bucketIndexSnapshotChain = (config.maxSnapshotDeltaChainLength() > 0)
+                ? new LongListSnapshotChain(
+                        bucketIndexToBucketLocation,
+                        storeDir.resolve(LongListSnapshotChain.CHAIN_DIRECTORY_NAME),
+                        storeName + BUCKET_INDEX_FILENAME_SUFFIX,
+                        config.maxSnapshotDeltaChainLength())
+                : null;
     }
 
     /**
@@ -258,10 +338,28 @@ public class HalfDiskHashMap<K extends VirtualKey>
 
     /** {@inheritDoc} */
     public void snapshot(final Path snapshotDirectory) throws IOException {
+        snapshot(snapshotDirectory, false);
+    }
+
+    /**
+     * Write a snapshot of this map to the given directory. If incremental snapshots are enabled
+     * with {@link MerkleDbConfig#maxSnapshotDeltaChainLength()} and requested, only bucket index
+     * changes since the previous incremental snapshot are written, see {@link LongListSnapshotChain}.
+     *
+     * @param snapshotDirectory the directory to write the snapshot to
+     * @param incremental whether an incremental snapshot is requested
+     * @throws IOException if there was a problem writing the snapshot
+     */
+    public void snapshot(final Path snapshotDirectory, final boolean incremental) throws IOException {
         // create snapshot directory if needed
         Files.createDirectories(snapshotDirectory);
         // write index to file
-        bucketIndexToBucketLocation.writeToFile(snapshotDirectory.resolve(storeName + BUCKET_INDEX_FILENAME_SUFFIX));
+        final Path indexFile = snapshotDirectory.resolve(storeName + BUCKET_INDEX_FILENAME_SUFFIX);
+        if (incremental && (bucketIndexSnapshotChain != null)) {
+            bucketIndexSnapshotChain.snapshot(indexFile);
+        } else {
+            bucketIndexToBucketLocation.writeToFile(indexFile);
+        }
         // snapshot files
         fileCollection.snapshot(snapshotDirectory);
         // write metadata
@@ -285,6 +383,70 @@ public class HalfDiskHashMap<K extends VirtualKey>
         return 0;
     }
 
+    /**
+     * Get the memory used by the key filter.
+     *
+     * @return key filter memory consumption in bytes, or zero if the key filter is disabled
+     */
+    public long getKeyFilterMemoryConsumption() {
+        return (keyFilter != null) ? keyFilter.getMemoryConsumption() : 0;
+    }
+
+    /**
+     * Get the key filter false positive rate, which is the ratio of absent key lookups that had to
+     * read a bucket from disk to all absent key lookups, since the filter was last rebuilt.
+     *
+     * @return key filter false positive rate, or zero if the key filter is disabled
+     */
+    public double getKeyFilterFalsePositiveRate() {
+        return (keyFilter != null) ? keyFilter.getFalsePositiveRate() : 0;
+    }
+
+    /**
+     * Rebuilds the key filter, if it's enabled, and many keys were removed from this map since
+     * the filter was last built. Removed keys are never removed from the filter, so it becomes
+     * less efficient over time. This method may be called while the map is read or written, for
+     * example, after compaction.
+     *
+     * @throws IOException If there was a problem reading buckets from disk
+     */
+    public void rebuildKeyFilterIfNeeded() throws IOException {
+        if ((keyFilter != null) && (keyFilter.getRemovedSinceRebuild() > mapSize * KEY_FILTER_REBUILD_REMOVED_RATIO)) {
+            rebuildKeyFilter();
+        }
+    }
+
+    /**
+     * Rebuilds the key filter from scratch by reading all buckets from disk.
+     *
+     * @throws IOException If there was a problem reading buckets from disk
+     */
+    private void rebuildKeyFilter() throws IOException {
+        final long start = System.currentTimeMillis();
+        keyFilter.startRebuild();
+        final long[] bucketIndices = new long[KEY_FILTER_REBUILD_BATCH_SIZE];
+        for (int first = 0; first < numOfBuckets; first += KEY_FILTER_REBUILD_BATCH_SIZE) {
+            final int count = Math.min(KEY_FILTER_REBUILD_BATCH_SIZE, numOfBuckets - first);
+            final long[] batch = (count == bucketIndices.length) ? bucketIndices : new long[count];
+            for (int i = 0; i < count; i++) {
+                batch[i] = first + i;
+            }
+            for (final Bucket<K> bucket : fileCollection.readDataItemsUsingIndex(bucketIndexToBucketLocation, batch)) {
+                if (bucket != null) {
+                    try (bucket) {
+                        bucket.forEachKeyHashCode(keyFilter::addForRebuild);
+                    }
+                }
+            }
+        }
+        keyFilter.finishRebuild();
+        logger.info(
+                MERKLE_DB.getMarker(),
+                "HalfDiskHashMap [{}] key filter rebuilt in {} ms",
+                storeName,
+                System.currentTimeMillis() - start);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -374,6 +536,13 @@ public class HalfDiskHashMap<K extends VirtualKey>
 
         final DataFileReader<Bucket<K>> dataFileReader;
         if (size > 0) {
+            // Add new keys to the key filter before buckets are updated, so readers never miss keys
+            // once they are committed. Keys are added again below, in case the filter is being rebuilt
+            // concurrently and the rebuild has already read old versions of updated buckets
+            final int[] addedKeyHashCodes = addedKeyHashCodes();
+            if (keyFilter != null) {
+                keyFilter.addAll(addedKeyHashCodes, addedKeyHashCodes.length);
+            }
             final Queue<ReadBucketResult<K>> queue = new ConcurrentLinkedQueue<>();
             final Iterator<IntObjectPair<BucketMutation<K>>> iterator =
                     oneTransactionsData.keyValuesView().iterator();
@@ -421,6 +590,9 @@ public class HalfDiskHashMap<K extends VirtualKey>
             dataFileReader = fileCollection.endWriting(0, numOfBuckets);
             // we have updated all indexes so the data file can now be included in merges
             dataFileReader.setFileCompleted();
+            if (keyFilter != null) {
+                keyFilter.addAll(addedKeyHashCodes, addedKeyHashCodes.length);
+            }
             return dataFileReader;
         } else {
             dataFileReader = null;
@@ -431,6 +603,29 @@ public class HalfDiskHashMap<K extends VirtualKey>
         return dataFileReader;
     }
 
+    /**
+     * Collects hash codes of all keys put to the map in the current writing session. Also records
+     * the number of deleted keys in the key filter, if it's enabled.
+     *
+     * @return hash codes of all keys put, but not deleted, in the current writing session
+     */
+    private int[] addedKeyHashCodes() {
+        if (keyFilter == null) {
+            return new int[0];
+        }
+        final IntArrayList added = new IntArrayList();
+        final long[] removed = new long[1];
+        oneTransactionsData.forEachValue(mutation -> mutation.forEachKeyValue((key, value) -> {
+            if (value == SPECIAL_DELETE_ME_VALUE) {
+                removed[0]++;
+            } else {
+                added.add(key.hashCode());
+            }
+        }));
+        keyFilter.countRemoved(removed[0]);
+        return added.toArray();
+    }
+
     /**
      * Reads a bucket with a given index from disk, updates given keys in it, and puts the bucket to
      * a queue. If an exception is thrown, it's put to the queue instead, so the number of {@code
@@ -476,13 +671,89 @@ public class HalfDiskHashMap<K extends VirtualKey>
             throw new IllegalArgumentException("Can not get a null key");
         }
         final int keyHash = key.hashCode();
+        if ((keyFilter != null) && !keyFilter.mightContain(keyHash)) {
+            keyFilter.countTrueNegative();
+            return notFoundValue;
+        }
         final int bucketIndex = computeBucketIndex(keyHash);
+        long value = notFoundValue;
         try (final Bucket<K> bucket = fileCollection.readDataItemUsingIndex(bucketIndexToBucketLocation, bucketIndex)) {
             if (bucket != null) {
-                return bucket.findValue(keyHash, key, notFoundValue);
+                value = bucket.findValue(keyHash, key, notFoundValue);
+            }
+        }
+        if ((keyFilter != null) && (value == notFoundValue)) {
+            keyFilter.countFalsePositive();
+        }
+        return value;
+    }
+
+    /**
+     * Get values for multiple keys from this map. All buckets the keys belong to are read in a
+     * single batch, see {@link DataFileCollection#readDataItemsUsingIndex(LongList, long[])}, and
+     * every bucket is read once, even if multiple keys are in the same bucket.
+     *
+     * @param keys The keys to get values for
+     * @param notFoundValue the value to return for keys not found
+     * @return the values in the same order as the keys, {notFoundValue} for keys not found
+     * @throws IOException If there was a problem reading from the map
+     */
+    public long[] getAll(final List<K> keys, final long notFoundValue) throws IOException {
+        final int count = keys.size();
+        final long[] values = new long[count];
+        Arrays.fill(values, notFoundValue);
+        // Bucket index to read for every key, or -1 if the key is rejected by the key filter
+        final int[] keyBuckets = new int[count];
+        final long[] bucketIndices = new long[count];
+        final IntIntHashMap bucketPositions = new IntIntHashMap(count);
+        int bucketCount = 0;
+        for (int i = 0; i < count; i++) {
+            final K key = keys.get(i);
+            if (key == null) {
+                throw new IllegalArgumentException("Can not get a null key");
+            }
+            final int keyHash = key.hashCode();
+            if ((keyFilter != null) && !keyFilter.mightContain(keyHash)) {
+                keyFilter.countTrueNegative();
+                keyBuckets[i] = -1;
+                continue;
+            }
+            final int bucketIndex = computeBucketIndex(keyHash);
+            int pos = bucketPositions.getIfAbsent(bucketIndex, -1);
+            if (pos < 0) {
+                pos = bucketCount++;
+                bucketPositions.put(bucketIndex, pos);
+                bucketIndices[pos] = bucketIndex;
+            }
+            keyBuckets[i] = pos;
+        }
+        if (bucketCount == 0) {
+            return values;
+        }
+        final List<Bucket<K>> buckets = fileCollection.readDataItemsUsingIndex(
+                bucketIndexToBucketLocation, Arrays.copyOf(bucketIndices, bucketCount));
+        try {
+            for (int i = 0; i < count; i++) {
+                if (keyBuckets[i] < 0) {
+                    continue;
+                }
+                final Bucket<K> bucket = buckets.get(keyBuckets[i]);
+                if (bucket != null) {
+                    final K key = keys.get(i);
+                    values[i] = bucket.findValue(key.hashCode(), key, notFoundValue);
+                }
+                if ((keyFilter != null) && (values[i] == notFoundValue)) {
+                    keyFilter.countFalsePositive();
+                }
+            }
+        } finally {
+            for (final Bucket<K> bucket : buckets) {
+                if (bucket != null) {
+                    bucket.close();
+                }
             }
         }
-        return notFoundValue;
+        return values;
     }
 
     // =================================================================================================================
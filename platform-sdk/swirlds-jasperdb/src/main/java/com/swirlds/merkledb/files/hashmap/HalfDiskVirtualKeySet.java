@@ -91,6 +91,7 @@ public class HalfDiskVirtualKeySet<K extends VirtualKey> implements VirtualKeySe
                     tempDir,
                     "halfdiskvirtualkeyset",
                     "halfDiskVirtualKeySet",
+                    false,
                     false);
         } catch (final IOException e) {
             throw new UncheckedIOException(e);
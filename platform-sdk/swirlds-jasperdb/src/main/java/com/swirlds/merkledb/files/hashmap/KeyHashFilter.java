@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files.hashmap;
+
+import static com.swirlds.common.units.UnitConstants.BITS_TO_BYTES;
+
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.bloom.hasher.IntBloomHasher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory membership filter of key hash codes stored in a {@link HalfDiskHashMap}. If the filter
+ * says a key hash code is absent, no key with this hash code is stored in the map, so the bucket
+ * doesn't need to be read from disk.
+ *
+ * <p>The filter is a {@link BloomFilter}, so keys can't be removed from it. When keys are removed
+ * from the map, the filter becomes less efficient over time. It can be rebuilt from scratch using
+ * {@link #startRebuild()}, {@link #addForRebuild(int)} and {@link #finishRebuild()} calls, while
+ * the map is still being read and written.
+ *
+ * <p>Filter lookups are thread safe. All additions are done while holding a lock, and bits are
+ * only ever set, never cleared, in the current filter. Filter bits are plain memory, so additions
+ * are published with a volatile write to the {@link #filter} field after the bits are set, and
+ * every lookup starts with a volatile read of the same field. Hence a lookup that starts after {@link
+ * #addAll(int[], int)} returns sees all added keys. {@link HalfDiskHashMap} adds keys to the filter
+ * before it updates bucket locations, which are volatile writes, too. So a reader that can see a
+ * new bucket location can see the keys stored in that bucket in the filter as well. A lookup
+ * concurrent with additions may only miss keys that are being added right now, which is fine, as
+ * such keys are not committed to the map yet.
+ */
+final class KeyHashFilter {
+
+    /** Number of hashes per key */
+    private final int hashCount;
+
+    /** Filter size, in bits */
+    private final long sizeInBits;
+
+    /** Guards all additions to both current and pending filters */
+    private final Object lock = new Object();
+
+    /** The current filter. Also the publication point for added bits, see class javadoc */
+    private volatile BloomFilter<Integer> filter;
+
+    /** The filter being rebuilt, or null if no rebuild is in progress. Guarded by {@link #lock} */
+    private BloomFilter<Integer> pendingFilter;
+
+    /** Per-thread buffers to compute key hash code hashes */
+    private final ThreadLocal<long[]> hashBuffers;
+
+    /** Number of lookups of absent keys rejected by the filter */
+    private final LongAdder trueNegatives = new LongAdder();
+
+    /** Number of lookups of absent keys not rejected by the filter */
+    private final LongAdder falsePositives = new LongAdder();
+
+    /** Number of keys removed from the map since the filter was last rebuilt */
+    private final AtomicLong removedSinceRebuild = new AtomicLong();
+
+    /**
+     * Creates a new empty filter.
+     *
+     * @param hashCount number of hashes per key
+     * @param sizeInBits filter size, in bits
+     */
+    KeyHashFilter(final int hashCount, final long sizeInBits) {
+        this.hashCount = hashCount;
+        this.sizeInBits = sizeInBits;
+        this.filter = createFilter();
+        this.hashBuffers = ThreadLocal.withInitial(() -> new long[hashCount]);
+    }
+
+    /**
+     * Checks if a key with the given hash code may be stored in the map.
+     *
+     * @param keyHashCode key hash code
+     * @return false if no key with the given hash code is stored in the map, true otherwise
+     */
+    boolean mightContain(final int keyHashCode) {
+        final BloomFilter<Integer> current = filter;
+        final long[] hashes = hashBuffers.get();
+        current.hash(keyHashCode, hashes);
+        return current.contains(hashes);
+    }
+
+    /**
+     * Adds key hash codes to the filter. If a rebuild is in progress, hash codes are also added to
+     * the filter being rebuilt.
+     *
+     * @param keyHashCodes key hash codes to add
+     * @param count number of hash codes in the array to add
+     */
+    void addAll(final int[] keyHashCodes, final int count) {
+        final long[] hashes = hashBuffers.get();
+        synchronized (lock) {
+            final BloomFilter<Integer> current = filter;
+            for (int i = 0; i < count; i++) {
+                current.hash(keyHashCodes[i], hashes);
+                current.add(hashes);
+                if (pendingFilter != null) {
+                    pendingFilter.add(hashes);
+                }
+            }
+            // Publish the bits set above. Must be the last write, see class javadoc
+            filter = current;
+        }
+    }
+
+    /**
+     * Records that some keys were removed from the map. Removed keys stay in the filter till it's
+     * rebuilt.
+     *
+     * @param count number of removed keys
+     */
+    void countRemoved(final long count) {
+        removedSinceRebuild.addAndGet(count);
+    }
+
+    /**
+     * Get the number of keys removed from the map since the filter was last rebuilt.
+     *
+     * @return number of removed keys
+     */
+    long getRemovedSinceRebuild() {
+        return removedSinceRebuild.get();
+    }
+
+    /** Records a lookup of an absent key rejected by the filter. */
+    void countTrueNegative() {
+        trueNegatives.increment();
+    }
+
+    /** Records a lookup of an absent key, which wasn't rejected by the filter. */
+    void countFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Get the ratio of absent key lookups not rejected by the filter to all absent key lookups,
+     * since the filter was last rebuilt.
+     *
+     * @return false positive rate, from 0 to 1
+     */
+    double getFalsePositiveRate() {
+        final long fp = falsePositives.sum();
+        final long total = fp + trueNegatives.sum();
+        return (total == 0) ? 0 : (double) fp / total;
+    }
+
+    /**
+     * Get the memory used by the filter, in bytes.
+     *
+     * @return memory consumption, in bytes
+     */
+    long getMemoryConsumption() {
+        return (long) Math.ceil(sizeInBits * BITS_TO_BYTES);
+    }
+
+    /**
+     * Starts a filter rebuild. All key hash codes currently stored in the map must then be added
+     * using {@link #addForRebuild(int)}, followed by a call to {@link #finishRebuild()}. Keys added
+     * to the map while the rebuild is in progress are added to the new filter automatically.
+     */
+    void startRebuild() {
+        synchronized (lock) {
+            pendingFilter = createFilter();
+        }
+    }
+
+    /**
+     * Adds a key hash code to the filter being rebuilt.
+     *
+     * @param keyHashCode key hash code
+     */
+    void addForRebuild(final int keyHashCode) {
+        final long[] hashes = hashBuffers.get();
+        synchronized (lock) {
+            pendingFilter.hash(keyHashCode, hashes);
+            pendingFilter.add(hashes);
+        }
+    }
+
+    /** Replaces the current filter with the rebuilt one. */
+    void finishRebuild() {
+        synchronized (lock) {
+            filter = pendingFilter;
+            pendingFilter = null;
+            removedSinceRebuild.set(0);
+            trueNegatives.reset();
+            falsePositives.reset();
+        }
+    }
+
+    private BloomFilter<Integer> createFilter() {
+        return new BloomFilter<>(hashCount, new IntBloomHasher(), sizeInBits);
+    }
+}
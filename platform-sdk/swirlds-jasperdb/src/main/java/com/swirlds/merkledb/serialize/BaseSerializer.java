@@ -72,6 +72,10 @@ public interface BaseSerializer<T> {
     /**
      * Deserialize a data item from a byte buffer, that was written with given data version.
      *
+     * <p>The buffer is only valid during this call. Callers may reuse it for other data right after
+     * the call returns, so implementations must copy all bytes they need to the returned item and
+     * must not keep references to the buffer or its views.
+     *
      * @param buffer The buffer to read from containing the data item including its header
      * @param dataVersion The serialization version the data item was written with
      * @return Deserialized data item
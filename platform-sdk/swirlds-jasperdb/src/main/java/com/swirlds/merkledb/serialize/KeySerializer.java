@@ -81,6 +81,7 @@ public interface KeySerializer<K extends VirtualKey> extends BaseSerializer<K>,
     /**
      * Deserialize a key from the byte buffer, where it was previously written using either {@link
      * #serialize(VirtualKey, ByteBuffer)} or {@link #serialize(VirtualKey, ByteBuffer)} method.
+     * The buffer is only valid during this call, see {@link BaseSerializer#deserialize(ByteBuffer, long)}.
      *
      * @param buffer The byte buffer to read from
      * @param dataVersion The serialization version of the key to read
@@ -41,4 +41,6 @@ open module com.swirlds.merkledb {
     requires org.eclipse.collections.api;
     requires org.eclipse.collections.impl;
     requires static com.github.spotbugs.annotations;
+
+    uses com.swirlds.merkledb.files.DataFileReadEngine;
 }
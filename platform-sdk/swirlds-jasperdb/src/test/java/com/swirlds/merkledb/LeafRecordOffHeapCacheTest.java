@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.constructable.ConstructableRegistry;
+import com.swirlds.common.constructable.ConstructableRegistryException;
+import com.swirlds.common.crypto.DigestType;
+import com.swirlds.merkledb.files.VirtualLeafRecordSerializer;
+import com.swirlds.merkledb.serialize.KeySerializer;
+import com.swirlds.merkledb.serialize.ValueSerializer;
+import com.swirlds.virtualmap.VirtualLongKey;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class LeafRecordOffHeapCacheTest {
+
+    private static final int SLOT_SIZE = 2048;
+    private static final int SETS = 16;
+    private static final long CAPACITY = (long) SLOT_SIZE * LeafRecordOffHeapCache.WAYS * SETS;
+
+    @BeforeAll
+    static void setUp() throws ConstructableRegistryException {
+        ConstructableRegistry.getInstance().registerConstructables("com.swirlds.merkledb");
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static LeafRecordOffHeapCache<VirtualLongKey, ExampleByteArrayVirtualValue> createCache(
+            final TestType testType) {
+        final KeySerializer<?> keySerializer = testType.dataType().getKeySerializer();
+        final ValueSerializer<?> valueSerializer = testType.dataType().getValueSerializer();
+        final MerkleDbTableConfig<VirtualLongKey, ExampleByteArrayVirtualValue> tableConfig = new MerkleDbTableConfig(
+                (short) 1,
+                DigestType.SHA_384,
+                (short) keySerializer.getCurrentDataVersion(),
+                keySerializer,
+                (short) valueSerializer.getCurrentDataVersion(),
+                valueSerializer);
+        return new LeafRecordOffHeapCache<>(new VirtualLeafRecordSerializer<>(tableConfig), CAPACITY, SLOT_SIZE);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TestType.class)
+    void putAndGet(final TestType testType) throws IOException {
+        final LeafRecordOffHeapCache<VirtualLongKey, ExampleByteArrayVirtualValue> cache = createCache(testType);
+        assertEquals(CAPACITY, cache.getOffHeapConsumption());
+        final VirtualLeafRecord<VirtualLongKey, ExampleByteArrayVirtualValue> leafRecord =
+                testType.dataType().createVirtualLeafRecord(100, 7, 7);
+        assertNull(cache.getByPath(100));
+        assertNull(cache.getByKey(leafRecord.getKey()));
+
+        cache.put(leafRecord, cache.generation());
+        assertEquals(leafRecord, cache.getByPath(100));
+        assertEquals(leafRecord, cache.getByKey(leafRecord.getKey()));
+        assertNull(cache.getByKey(testType.dataType().createVirtualLongKey(8)), "Unknown key must not be found");
+    }
+
+    @ParameterizedTest
+    @EnumSource(TestType.class)
+    void invalidate(final TestType testType) throws IOException {
+        final LeafRecordOffHeapCache<VirtualLongKey, ExampleByteArrayVirtualValue> cache = createCache(testType);
+        final VirtualLeafRecord<VirtualLongKey, ExampleByteArrayVirtualValue> leafRecord =
+                testType.dataType().createVirtualLeafRecord(100, 7, 7);
+        cache.put(leafRecord, cache.generation());
+
+        final long staleGeneration = cache.generation();
+        cache.invalidate(leafRecord.getPath(), leafRecord.getKey());
+        assertNull(cache.getByPath(100), "Invalidated record must not be found by path");
+        assertNull(cache.getByKey(leafRecord.getKey()), "Invalidated record must not be found by key");
+
+        // A record read before invalidation must not be put to the cache
+        cache.put(leafRecord, staleGeneration);
+        assertNull(cache.getByPath(100), "Stale record must not be cached");
+
+        cache.put(leafRecord, cache.generation());
+        assertEquals(leafRecord, cache.getByPath(100));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TestType.class)
+    void eviction(final TestType testType) throws IOException {
+        final LeafRecordOffHeapCache<VirtualLongKey, ExampleByteArrayVirtualValue> cache = createCache(testType);
+        final int count = SETS * LeafRecordOffHeapCache.WAYS * 4;
+        int evictions = 0;
+        for (int i = 0; i < count; i++) {
+            if (cache.put(testType.dataType().createVirtualLeafRecord(i, i, i), cache.generation())) {
+                evictions++;
+            }
+        }
+        assertTrue(evictions >= count - SETS * LeafRecordOffHeapCache.WAYS, "Too few evictions: " + evictions);
+
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            final VirtualLeafRecord<VirtualLongKey, ExampleByteArrayVirtualValue> cached = cache.getByPath(i);
+            if (cached != null) {
+                assertEquals(testType.dataType().createVirtualLeafRecord(i, i, i), cached);
+                found++;
+            }
+        }
+        assertTrue(found <= SETS * LeafRecordOffHeapCache.WAYS, "Cache holds more records than its capacity");
+        assertTrue(found > 0, "Some records should be cached");
+    }
+}
@@ -31,6 +31,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.swirlds.common.constructable.ConstructableRegistry;
+import com.swirlds.common.crypto.DigestType;
+import com.swirlds.common.io.utility.IORunnable;
 import com.swirlds.common.io.utility.TemporaryFileBuilder;
 import com.swirlds.common.units.UnitConstants;
 import com.swirlds.merkledb.serialize.KeyIndexType;
@@ -39,13 +41,18 @@ import com.swirlds.virtualmap.VirtualLongKey;
 import com.swirlds.virtualmap.datasource.VirtualHashRecord;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -242,6 +249,84 @@ class MerkleDbDataSourceTest {
         dataSource.close();
     }
 
+    @ParameterizedTest
+    @EnumSource(TestType.class)
+    void loadLeavesByKeysInBatch(final TestType testType) throws IOException {
+        final int count = 1_000;
+        final MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> dataSource =
+                createDataSource(testDirectory, "testBatchLeaves", testType, count);
+        dataSource.saveRecords(
+                count,
+                count * 2,
+                IntStream.range(count, count * 2).mapToObj(MerkleDbDataSourceTest::createVirtualInternalRecord),
+                IntStream.range(count, count * 2)
+                        .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)),
+                Stream.empty());
+        // delete a few leaves, they must not be found
+        dataSource.saveRecords(
+                count,
+                count * 2,
+                Stream.empty(),
+                Stream.empty(),
+                IntStream.range(count + 10, count + 20)
+                        .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)));
+
+        // existing keys, deleted keys, keys never stored, and a duplicate
+        final int[] keyIndices = {count + 5, count + 15, count * 3, count + 500, count + 5, count * 2 - 1, 7};
+        final List<VirtualLongKey> keys = Arrays.stream(keyIndices)
+                .mapToObj(i -> testType.dataType().createVirtualLongKey(i))
+                .toList();
+        // load twice, the second time records may be taken from caches
+        for (int pass = 0; pass < 2; pass++) {
+            final List<VirtualLeafRecord<VirtualLongKey, ExampleByteArrayVirtualValue>> records =
+                    dataSource.loadLeafRecords(keys);
+            assertEquals(keys.size(), records.size(), "Wrong number of records");
+            for (int i = 0; i < keyIndices.length; i++) {
+                final int k = keyIndices[i];
+                final boolean exists = (k >= count) && (k < count * 2) && ((k < count + 10) || (k >= count + 20));
+                assertEqualsAndPrint(exists ? testType.dataType().createVirtualLeafRecord(k) : null, records.get(i));
+                assertEqualsAndPrint(dataSource.loadLeafRecord(keys.get(i)), records.get(i));
+            }
+        }
+        dataSource.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(TestType.class)
+    void loadLeavesByPathsInBatch(final TestType testType) throws IOException {
+        final int count = 1_000;
+        final MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> dataSource =
+                createDataSource(testDirectory, "testBatchLeafPaths", testType, count);
+        dataSource.saveRecords(
+                count,
+                count * 2,
+                IntStream.range(count, count * 2).mapToObj(MerkleDbDataSourceTest::createVirtualInternalRecord),
+                IntStream.range(count, count * 2)
+                        .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)),
+                Stream.empty());
+
+        // paths in and out of order, and a duplicate
+        final long[] paths = {count + 5, count * 2 - 1, count, count + 500, count + 5, count + 1};
+        // load twice, the second time records may be taken from caches
+        for (int pass = 0; pass < 2; pass++) {
+            final List<VirtualLeafRecord<VirtualLongKey, ExampleByteArrayVirtualValue>> records =
+                    dataSource.loadLeafRecords(paths);
+            assertEquals(paths.length, records.size(), "Wrong number of records");
+            for (int i = 0; i < paths.length; i++) {
+                assertEqualsAndPrint(testType.dataType().createVirtualLeafRecord((int) paths[i]), records.get(i));
+                assertEqualsAndPrint(dataSource.loadLeafRecord(paths[i]), records.get(i));
+            }
+        }
+
+        // invalid paths should throw an exception
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> dataSource.loadLeafRecords(new long[] {count, count * 2}),
+                "Loading leaf records from a path out of the leaf range should throw Exception");
+
+        dataSource.close();
+    }
+
     @ParameterizedTest
     @Tag(TestQualifierTags.TIME_CONSUMING)
     @EnumSource(TestType.class)
@@ -510,9 +595,202 @@ class MerkleDbDataSourceTest {
         }
     }
 
+    @Test
+    void pipelinedFlushLookupsWhileCommitPending() throws IOException, InterruptedException {
+        final TestType testType = TestType.variable_variable;
+        final int count = 1_000;
+        final BackgroundBlockingKeySerializer keySerializer = new BackgroundBlockingKeySerializer();
+        final MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> dataSource =
+                createPipelinedFlushDataSource(testDirectory, "testPipelined1", keySerializer, count);
+        final CountDownLatch commitStarted = new CountDownLatch(1);
+        final CountDownLatch commitReleased = new CountDownLatch(1);
+        try {
+            assertFalse(dataSource.isLongKeyMode(), "Uncommitted mappings are only used in object key mode");
+            // the first half of the leaves is committed to the leaf keys store
+            dataSource.saveRecords(
+                    count,
+                    count * 2,
+                    IntStream.range(count, count * 2).mapToObj(MerkleDbDataSourceTest::createVirtualInternalRecord),
+                    IntStream.range(count, count + count / 2)
+                            .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)),
+                    Stream.empty());
+            dataSource.waitForKeyToPathCommit();
+
+            // the second half is added and a few old leaves are deleted, but the commit is held back
+            keySerializer.onBackgroundSerialize(() -> awaitCommitRelease(commitStarted, commitReleased));
+            dataSource.saveRecords(
+                    count,
+                    count * 2,
+                    Stream.empty(),
+                    IntStream.range(count + count / 2, count * 2)
+                            .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)),
+                    IntStream.range(count + 10, count + 20)
+                            .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)));
+            assertTrue(commitStarted.await(10, TimeUnit.SECONDS), "Leaf keys store commit should be started");
+
+            // single lookups and batch lookups must see both committed and uncommitted mappings
+            final List<VirtualLongKey> keys = IntStream.range(count, count * 2 + 10)
+                    .mapToObj(i -> testType.dataType().createVirtualLongKey(i))
+                    .toList();
+            final List<VirtualLeafRecord<VirtualLongKey, ExampleByteArrayVirtualValue>> records =
+                    dataSource.loadLeafRecords(keys);
+            assertEquals(keys.size(), records.size(), "Wrong number of records");
+            for (int i = 0; i < keys.size(); i++) {
+                final int k = count + i;
+                final boolean exists = (k < count * 2) && ((k < count + 10) || (k >= count + 20));
+                final VirtualLeafRecord<VirtualLongKey, ExampleByteArrayVirtualValue> expected =
+                        exists ? testType.dataType().createVirtualLeafRecord(k) : null;
+                assertEqualsAndPrint(expected, records.get(i));
+                assertEqualsAndPrint(expected, dataSource.loadLeafRecord(keys.get(i)));
+                assertEquals(exists ? k : INVALID_PATH, dataSource.findKey(keys.get(i)), "Wrong path for key " + k);
+            }
+
+            // the same mappings are served from the store, once the commit is complete
+            commitReleased.countDown();
+            dataSource.waitForKeyToPathCommit();
+            for (int i = 0; i < keys.size(); i++) {
+                final int k = count + i;
+                final boolean exists = (k < count * 2) && ((k < count + 10) || (k >= count + 20));
+                assertEquals(exists ? k : INVALID_PATH, dataSource.findKey(keys.get(i)), "Wrong path for key " + k);
+            }
+        } finally {
+            commitReleased.countDown();
+            dataSource.close();
+        }
+    }
+
+    @Test
+    void pipelinedFlushSnapshotWaitsForCommit() throws IOException, InterruptedException {
+        final TestType testType = TestType.variable_variable;
+        final int count = 1_000;
+        final String tableName = "testPipelined2";
+        final Path originalDbPath = testDirectory.resolve("merkledb-pipelined");
+        final BackgroundBlockingKeySerializer keySerializer = new BackgroundBlockingKeySerializer();
+        final MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> dataSource =
+                createPipelinedFlushDataSource(originalDbPath, tableName, keySerializer, count);
+        final CountDownLatch commitStarted = new CountDownLatch(1);
+        final CountDownLatch commitReleased = new CountDownLatch(1);
+        keySerializer.onBackgroundSerialize(() -> awaitCommitRelease(commitStarted, commitReleased));
+        dataSource.saveRecords(
+                count,
+                count * 2,
+                IntStream.range(count, count * 2).mapToObj(MerkleDbDataSourceTest::createVirtualInternalRecord),
+                IntStream.range(count, count * 2)
+                        .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)),
+                Stream.empty());
+        assertTrue(commitStarted.await(10, TimeUnit.SECONDS), "Leaf keys store commit should be started");
+
+        final Path snapshotDbPath = testDirectory.resolve("merkledb-pipelined_SNAPSHOT");
+        final AtomicBoolean snapshotDone = new AtomicBoolean(false);
+        final Thread snapshotThread = new Thread(() -> {
+            try {
+                dataSource.getDatabase().snapshot(snapshotDbPath, dataSource);
+                snapshotDone.set(true);
+            } catch (final IOException e) {
+                fail("Snapshot failed", e);
+            }
+        });
+        snapshotThread.start();
+        sleepUnchecked(200L);
+        assertFalse(snapshotDone.get(), "Snapshot should wait for the pending leaf keys store commit");
+
+        commitReleased.countDown();
+        snapshotThread.join(10_000);
+        assertTrue(snapshotDone.get(), "Snapshot should be complete after the commit");
+        dataSource.close();
+
+        // the snapshot must contain all key to path mappings from the flush
+        final MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> dataSource2 =
+                testType.dataType().getDataSource(snapshotDbPath, tableName, false);
+        IntStream.range(count, count * 2).forEach(i -> assertLeaf(testType, dataSource2, i, i));
+        dataSource2.close();
+        assertEventuallyEquals(
+                0L, MerkleDbDataSource::getCountOfOpenDatabases, Duration.ofSeconds(1), "Expected no open dbs");
+    }
+
+    @Test
+    void pipelinedFlushCommitFailureFailsNextSaves() throws IOException {
+        final TestType testType = TestType.variable_variable;
+        final int count = 1_000;
+        final BackgroundBlockingKeySerializer keySerializer = new BackgroundBlockingKeySerializer();
+        final MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> dataSource =
+                createPipelinedFlushDataSource(testDirectory, "testPipelined3", keySerializer, count);
+        try {
+            keySerializer.onBackgroundSerialize(() -> {
+                throw new IOException("Test commit failure");
+            });
+            // the flush itself succeeds, the commit fails in background
+            dataSource.saveRecords(
+                    count,
+                    count * 2,
+                    IntStream.range(count, count * 2).mapToObj(MerkleDbDataSourceTest::createVirtualInternalRecord),
+                    IntStream.range(count, count * 2)
+                            .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)),
+                    Stream.empty());
+            dataSource.waitForKeyToPathCommit();
+
+            // the leaf keys store is half-written, so all further flushes must fail
+            keySerializer.onBackgroundSerialize(null);
+            for (int attempt = 0; attempt < 2; attempt++) {
+                final IOException e = assertThrows(
+                        IOException.class,
+                        () -> dataSource.saveRecords(
+                                count,
+                                count * 2,
+                                Stream.empty(),
+                                IntStream.range(count, count + 10)
+                                        .mapToObj(i -> testType.dataType().createVirtualLeafRecord(i)),
+                                Stream.empty()),
+                        "Flushes should fail after a failed leaf keys store commit");
+                Throwable cause = e;
+                while (cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                assertEquals("Test commit failure", cause.getMessage(), "Commit failure should be the cause");
+            }
+        } finally {
+            dataSource.close();
+        }
+    }
+
     // =================================================================================================================
     // Helper Methods
 
+    /**
+     * Creates a {@link TestType#variable_variable} data source with pipelined flushes enabled, which
+     * uses the given key serializer
+     */
+    private static MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> createPipelinedFlushDataSource(
+            final Path testDirectory,
+            final String name,
+            final BackgroundBlockingKeySerializer keySerializer,
+            final int size)
+            throws IOException {
+        final ExampleVariableSizeVirtualValueSerializer valueSerializer =
+                new ExampleVariableSizeVirtualValueSerializer();
+        final MerkleDbTableConfig<ExampleLongKeyVariableSize, ExampleVariableSizeVirtualValue> tableConfig =
+                new MerkleDbTableConfig<>(
+                                (short) 1, DigestType.SHA_384,
+                                (short) keySerializer.getCurrentDataVersion(), keySerializer,
+                                (short) valueSerializer.getCurrentDataVersion(), valueSerializer)
+                        .maxNumberOfKeys(size * 10L)
+                        .hashesRamToDiskThreshold(Long.MAX_VALUE)
+                        .pipelinedFlush(true);
+        return TestType.variable_variable.dataType().createDataSource(testDirectory, name, tableConfig, false);
+    }
+
+    /** Background serialization action, which blocks leaf keys store commits till the test releases them */
+    private static void awaitCommitRelease(final CountDownLatch commitStarted, final CountDownLatch commitReleased)
+            throws IOException {
+        commitStarted.countDown();
+        try {
+            commitReleased.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
     public static MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> createDataSource(
             final Path testDirectory, final String name, final TestType testType, final int size) throws IOException {
         return createDataSource(testDirectory, name, testType, size, Long.MAX_VALUE);
@@ -617,4 +895,43 @@ class MerkleDbDataSourceTest {
             return numInterrupts.get();
         }
     }
+
+    /**
+     * Variable-size key serializer, which runs an action before every key serialization on threads
+     * other than the flushing thread. Leaf records are serialized on the thread calling {@code
+     * saveRecords()}, while leaf keys store buckets are serialized in background during pipelined
+     * commits, so the action can hold back or fail these commits.
+     */
+    public static class BackgroundBlockingKeySerializer extends ExampleLongKeyVariableSize.Serializer {
+
+        private static final long CLASS_ID = 0x4f1d9a7c36e2b805L;
+
+        private volatile Thread flushingThread = null;
+
+        private volatile IORunnable backgroundAction = null;
+
+        @Override
+        public long getClassId() {
+            return CLASS_ID;
+        }
+
+        /**
+         * Sets the action to run before key serializations on threads other than the current one.
+         *
+         * @param action the action, or null to stop running it
+         */
+        void onBackgroundSerialize(final IORunnable action) {
+            flushingThread = Thread.currentThread();
+            backgroundAction = action;
+        }
+
+        @Override
+        public int serialize(final ExampleLongKeyVariableSize data, final ByteBuffer buffer) throws IOException {
+            final IORunnable action = backgroundAction;
+            if ((action != null) && (Thread.currentThread() != flushingThread)) {
+                action.run();
+            }
+            return super.serialize(data, buffer);
+        }
+    }
 }
@@ -196,7 +196,6 @@ public enum TestType {
                 final boolean enableMerging,
                 boolean preferDiskBasedIndexes)
                 throws IOException {
-            final MerkleDb database = MerkleDb.getInstance(dbPath);
             final MerkleDbTableConfig<? extends VirtualLongKey, ? extends ExampleByteArrayVirtualValue> tableConfig =
                     new MerkleDbTableConfig<>(
                                     (short) 1, DigestType.SHA_384,
@@ -205,6 +204,16 @@ public enum TestType {
                             .preferDiskIndices(preferDiskBasedIndexes)
                             .maxNumberOfKeys(size * 10L)
                             .hashesRamToDiskThreshold(hashesRamToDiskThreshold);
+            return createDataSource(dbPath, name, tableConfig, enableMerging);
+        }
+
+        public MerkleDbDataSource<VirtualLongKey, ExampleByteArrayVirtualValue> createDataSource(
+                final Path dbPath,
+                final String name,
+                final MerkleDbTableConfig<? extends VirtualLongKey, ? extends ExampleByteArrayVirtualValue> tableConfig,
+                final boolean enableMerging)
+                throws IOException {
+            final MerkleDb database = MerkleDb.getInstance(dbPath);
             MerkleDbDataSource dataSource =
                     database.createDataSource(name, (MerkleDbTableConfig) tableConfig, enableMerging);
             dataSource.registerMetrics(createMetrics());
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.collections;
+
+import static com.swirlds.common.units.UnitConstants.MEBIBYTES_TO_BYTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LongListCopyOnWriteTest extends AbstractLongListTest<LongListCopyOnWrite> {
+
+    @TempDir
+    Path testDirectory;
+
+    @Override
+    protected AbstractLongList<?> createLongList() {
+        return new LongListCopyOnWrite();
+    }
+
+    @Override
+    protected LongListCopyOnWrite createLongListWithChunkSizeInMb(final int chunkSizeInMb) {
+        final int impliedLongsPerChunk = Math.toIntExact((chunkSizeInMb * (long) MEBIBYTES_TO_BYTES) / Long.BYTES);
+        final long maxLongs = Math.min(
+                AbstractLongList.DEFAULT_MAX_LONGS_TO_STORE,
+                (long) impliedLongsPerChunk * AbstractLongList.MAX_NUM_CHUNKS);
+        return new LongListCopyOnWrite(impliedLongsPerChunk, maxLongs, 0);
+    }
+
+    @Override
+    protected LongListCopyOnWrite createFullyParameterizedLongListWith(
+            final int numLongsPerChunk, final long maxLongs) {
+        return new LongListCopyOnWrite(numLongsPerChunk, maxLongs, 0);
+    }
+
+    @Override
+    protected LongListCopyOnWrite createLongListFromFile(final Path file) throws IOException {
+        return new LongListCopyOnWrite(file);
+    }
+
+    @Test
+    void frozenViewIsNotChanged() {
+        final LongListCopyOnWrite list = new LongListCopyOnWrite(100, 10_000, 0);
+        for (int i = 0; i < 1_000; i++) {
+            list.put(i, i + 1);
+        }
+        final LongListCopyOnWrite.FrozenView view = list.freeze();
+        for (int i = 0; i < 1_000; i += 2) {
+            list.put(i, i + 1_000_000);
+        }
+        assertTrue(list.putIfEqual(1, 2, 42));
+        assertFalse(list.putIfEqual(3, 3, 42), "Wrong old value");
+        list.put(1_500, 7);
+        list.updateValidRange(250, 1_500);
+
+        assertEquals(1_000, view.size());
+        assertEquals(0, view.getMinValidIndex());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(i + 1, view.get(i, 0), "Frozen view must not be changed, index " + i);
+        }
+        assertEquals(0, view.get(1_500, 0));
+
+        assertEquals(42, list.get(1));
+        assertEquals(4, list.get(3));
+        assertEquals(1_000_500, list.get(500));
+        assertEquals(7, list.get(1_500));
+        assertEquals(0, list.get(100, 0), "Value to the left of min valid index must be discarded");
+        view.close();
+
+        // the view is closed, no more copies
+        list.put(1_200, 12);
+        assertEquals(12, list.get(1_200));
+        list.close();
+    }
+
+    @Test
+    void frozenViewIsWrittenToFile() throws IOException {
+        final LongListCopyOnWrite list = new LongListCopyOnWrite(100, 10_000, 0);
+        for (int i = 1; i < 3_000; i++) {
+            list.put(i, i * 3L);
+        }
+        list.updateValidRange(150, 2_999);
+        final LongListCopyOnWrite.FrozenView view = list.freeze();
+        for (int i = 150; i < 3_000; i++) {
+            list.put(i, 5);
+        }
+        final Path file = testDirectory.resolve("frozen.ll");
+        view.writeToFile(file);
+        view.close();
+
+        // files written by copy-on-write lists are compatible with other lists
+        final LongListOffHeap loaded = new LongListOffHeap(file);
+        assertEquals(150, loaded.getMinValidIndex());
+        assertEquals(3_000, loaded.size());
+        for (int i = 150; i < 3_000; i++) {
+            assertEquals(i * 3L, loaded.get(i), "Wrong value at index " + i);
+        }
+        loaded.close();
+        list.close();
+    }
+
+    @Test
+    void concurrentWritesAreNotLost() throws InterruptedException {
+        final int count = 100_000;
+        final LongListCopyOnWrite list = new LongListCopyOnWrite(1_000, count, 0);
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final CountDownLatch writersDone = new CountDownLatch(2);
+        for (int w = 0; w < 2; w++) {
+            final int writer = w;
+            new Thread(() -> {
+                        for (int i = writer; i < count; i += 2) {
+                            list.put(i, i + 1);
+                        }
+                        writersDone.countDown();
+                    })
+                    .start();
+        }
+        final Thread freezer = new Thread(() -> {
+            while (!done.get()) {
+                list.freeze().close();
+            }
+        });
+        freezer.start();
+        writersDone.await();
+        done.set(true);
+        freezer.join();
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, list.get(i), "Lost write at index " + i);
+        }
+        list.close();
+    }
+}
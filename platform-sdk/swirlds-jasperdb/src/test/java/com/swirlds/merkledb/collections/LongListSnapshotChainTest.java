@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.io.utility.FileUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LongListSnapshotChainTest {
+
+    private static final String FILE_NAME = "index.ll";
+    private static final int MAX_DELTAS = 3;
+
+    @TempDir
+    Path testDirectory;
+
+    private static void assertSameContent(final LongList expected, final LongList actual) {
+        assertEquals(expected.size(), actual.size(), "Sizes should match");
+        assertEquals(expected.getMinValidIndex(), actual.getMinValidIndex(), "Min valid indices should match");
+        for (long i = expected.getMinValidIndex(); i < expected.size(); i++) {
+            assertEquals(expected.get(i, 0), actual.get(i, 0), "Wrong value at index " + i);
+        }
+    }
+
+    @Test
+    void snapshotsAreRestoredWithDeltas() throws IOException {
+        final LongListOffHeap list = new LongListOffHeap(1024, 100_000, 0);
+        final Path chainDirectory = testDirectory.resolve(LongListSnapshotChain.CHAIN_DIRECTORY_NAME);
+        final LongListSnapshotChain chain = new LongListSnapshotChain(list, chainDirectory, FILE_NAME, MAX_DELTAS);
+        for (int i = 1; i < 20_000; i++) {
+            list.put(i, i * 10L);
+        }
+
+        final Random random = new Random(17);
+        Path previousSnapshotDirectory = null;
+        for (int round = 0; round < MAX_DELTAS * 2 + 2; round++) {
+            final Path snapshotDirectory = testDirectory.resolve("snapshot" + round);
+            Files.createDirectories(snapshotDirectory);
+            final Path file = snapshotDirectory.resolve(FILE_NAME);
+            final boolean delta = chain.snapshot(file);
+            assertEquals(round % (MAX_DELTAS + 1) != 0, delta, "Unexpected snapshot type in round " + round);
+
+            // Previous snapshot directories may be deleted, the chain must not depend on them
+            if (previousSnapshotDirectory != null) {
+                FileUtils.deleteDirectory(previousSnapshotDirectory);
+            }
+            previousSnapshotDirectory = snapshotDirectory;
+
+            final LongListOffHeap restored = new LongListOffHeap(file);
+            LongListSnapshotChain.applyDeltas(restored, file);
+            assertSameContent(list, restored);
+            restored.close();
+
+            // A few sparse updates, removals, and a valid range shift
+            for (int i = 0; i < 50; i++) {
+                final long index = list.getMinValidIndex() + random.nextInt(Math.toIntExact(list.size() / 2));
+                list.put(index, random.nextLong(1, Long.MAX_VALUE));
+            }
+            list.remove(list.getMinValidIndex() + 5);
+            list.updateValidRange(list.getMinValidIndex() + 700, list.size() + 1500);
+            list.put(list.size(), 42);
+        }
+        list.close();
+    }
+
+    @Test
+    void noManifestMeansFullFile() throws IOException {
+        final LongListOffHeap list = new LongListOffHeap(1024, 10_000, 0);
+        for (int i = 0; i < 5_000; i++) {
+            list.put(i, i + 1);
+        }
+        final Path file = testDirectory.resolve(FILE_NAME);
+        list.writeToFile(file);
+        assertFalse(Files.exists(LongListSnapshotChain.manifestFile(file)), "No manifest is expected");
+
+        final LongListOffHeap restored = new LongListOffHeap(file);
+        LongListSnapshotChain.applyDeltas(restored, file);
+        assertSameContent(list, restored);
+        restored.close();
+        list.close();
+    }
+
+    @Test
+    void missingChainFileFallsBackToFullSnapshot() throws IOException {
+        final LongListOffHeap list = new LongListOffHeap(1024, 10_000, 0);
+        final Path chainDirectory = testDirectory.resolve(LongListSnapshotChain.CHAIN_DIRECTORY_NAME);
+        final LongListSnapshotChain chain = new LongListSnapshotChain(list, chainDirectory, FILE_NAME, MAX_DELTAS);
+        for (int i = 0; i < 5_000; i++) {
+            list.put(i, i + 1);
+        }
+        final Path dir1 = Files.createDirectories(testDirectory.resolve("snapshot1"));
+        assertFalse(chain.snapshot(dir1.resolve(FILE_NAME)), "The first snapshot must be full");
+
+        list.put(10, 100);
+        Files.delete(chainDirectory.resolve(FILE_NAME));
+        final Path dir2 = Files.createDirectories(testDirectory.resolve("snapshot2"));
+        final Path file2 = dir2.resolve(FILE_NAME);
+        assertFalse(chain.snapshot(file2), "A full snapshot is expected when the chain is broken");
+        assertTrue(Files.exists(chainDirectory.resolve(FILE_NAME)), "A new chain should be started");
+
+        final LongListOffHeap restored = new LongListOffHeap(file2);
+        LongListSnapshotChain.applyDeltas(restored, file2);
+        assertSameContent(list, restored);
+        restored.close();
+        list.close();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class CompactionIoThrottleTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void negativeBudgetIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CompactionIoThrottle(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CompactionIoThrottle(0, -1));
+    }
+
+    @Test
+    void budgetDuringFlush() {
+        final CompactionIoThrottle throttle = new CompactionIoThrottle(10, 2);
+        assertEquals(10 * MB, throttle.getCurrentBytesPerSecond());
+        throttle.flushStarted();
+        throttle.flushStarted();
+        assertTrue(throttle.isFlushInProgress());
+        assertEquals(2 * MB, throttle.getCurrentBytesPerSecond());
+        throttle.flushFinished();
+        assertEquals(2 * MB, throttle.getCurrentBytesPerSecond(), "One flush is still in progress");
+        throttle.flushFinished();
+        assertFalse(throttle.isFlushInProgress());
+        assertEquals(10 * MB, throttle.getCurrentBytesPerSecond());
+
+        // If no budget during flushes is set, the regular budget applies
+        final CompactionIoThrottle noFlushBudget = new CompactionIoThrottle(10, 0);
+        noFlushBudget.flushStarted();
+        assertEquals(10 * MB, noFlushBudget.getCurrentBytesPerSecond());
+    }
+
+    @Test
+    void unlimitedBudgetDoesNotWait() throws InterruptedException {
+        final CompactionIoThrottle throttle = new CompactionIoThrottle(0, 0);
+        final long start = System.nanoTime();
+        throttle.acquire(100 * MB);
+        // Generous limit, it must not take anywhere close to 100 seconds at 1 Mb/s
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void copiesAreThrottled() throws InterruptedException {
+        final CompactionIoThrottle throttle = new CompactionIoThrottle(1, 0);
+        final long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            throttle.acquire(MB / 8);
+        }
+        // Half a megabyte at 1 Mb/s takes 500 ms, minus a burst of at most 100 ms
+        final long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(tookMillis >= 350, "Copies must be throttled, took " + tookMillis + " ms");
+    }
+}
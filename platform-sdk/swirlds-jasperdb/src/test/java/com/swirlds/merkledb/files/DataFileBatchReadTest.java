@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.swirlds.merkledb.collections.LongListHeap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class DataFileBatchReadTest {
+
+    private static final int ITEMS_PER_FILE = 1000;
+    private static final int FILES = 3;
+
+    /** Temporary directory provided by JUnit */
+    @SuppressWarnings("unused")
+    @TempDir
+    Path tempDir;
+
+    private static long[] dataItem(final FilesTestType testType, final int key) {
+        if (testType.dataItemSerializer.isVariableSize()) {
+            final long[] item = new long[1 + key % 5];
+            item[0] = key;
+            for (int i = 1; i < item.length; i++) {
+                item[i] = key + i;
+            }
+            return item;
+        }
+        return new long[] {key, key + 1};
+    }
+
+    @ParameterizedTest
+    @EnumSource(FilesTestType.class)
+    void batchReadMatchesSingleReads(final FilesTestType testType) throws IOException {
+        final DataFileCollection<long[]> collection = new DataFileCollection<>(
+                tempDir.resolve(testType.name()), "store", testType.dataItemSerializer, null);
+        final LongListHeap index = new LongListHeap();
+        for (int f = 0; f < FILES; f++) {
+            collection.startWriting();
+            for (int i = f * ITEMS_PER_FILE; i < (f + 1) * ITEMS_PER_FILE; i++) {
+                index.put(i, collection.storeDataItem(dataItem(testType, i)));
+            }
+            collection.endWriting(0, FILES * ITEMS_PER_FILE - 1).setFileCompleted();
+        }
+
+        // Random keys from all files, plus a few keys that aren't in the index
+        final Random random = new Random(42);
+        final long[] keys = LongStream.concat(
+                        random.longs(500, 0, FILES * ITEMS_PER_FILE),
+                        LongStream.of(FILES * ITEMS_PER_FILE, FILES * ITEMS_PER_FILE + 7))
+                .toArray();
+        final List<long[]> items = collection.readDataItemsUsingIndex(index, keys);
+        assertEquals(keys.length, items.size());
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] >= FILES * ITEMS_PER_FILE) {
+                assertNull(items.get(i), "Keys not in the index should be read as nulls");
+            } else {
+                assertArrayEquals(
+                        collection.readDataItemUsingIndex(index, keys[i]),
+                        items.get(i),
+                        "Batch read should return the same item as a single read");
+                assertArrayEquals(dataItem(testType, (int) keys[i]), items.get(i));
+            }
+        }
+        collection.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {PositionalReadEngine.NAME, AsyncFileChannelReadEngine.NAME})
+    void readEngineReadsAtOffsets(final String engineName) throws IOException {
+        final DataFileReadEngine engine = DataFileReadEngines.forName(engineName);
+        assertEquals(engineName, engine.getName());
+        final Path file = tempDir.resolve("engine_" + engineName);
+        final byte[] bytes = new byte[64 * 1024];
+        new Random(7).nextBytes(bytes);
+        Files.write(file, bytes);
+
+        final long[] offsets = {1000, 7, 40_000, 65_000, 65_530};
+        final ByteBuffer[] buffers = new ByteBuffer[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            buffers[i] = ByteBuffer.allocate(100);
+        }
+        try (final DataFileReadEngine.BatchReadChannel channel = engine.open(file)) {
+            channel.read(offsets, buffers);
+        }
+        for (int i = 0; i < offsets.length; i++) {
+            final ByteBuffer buffer = buffers[i].flip();
+            // The last read is truncated by the end of file
+            final int expectedSize = (int) Math.min(100, bytes.length - offsets[i]);
+            assertEquals(expectedSize, buffer.remaining(), "Wrong number of bytes read at " + offsets[i]);
+            for (int j = 0; j < expectedSize; j++) {
+                assertEquals(bytes[(int) offsets[i] + j], buffer.get(), "Wrong byte read at " + (offsets[i] + j));
+            }
+        }
+    }
+}
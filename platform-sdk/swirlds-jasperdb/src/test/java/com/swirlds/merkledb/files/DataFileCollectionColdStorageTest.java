@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.merkledb.collections.LongListOffHeap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DataFileCollectionColdStorageTest {
+
+    private static final String STORE_NAME = "coldStorageTest";
+
+    /** Temporary directory provided by JUnit */
+    @TempDir
+    Path tempFileDir;
+
+    private static void writeFile(
+            final DataFileCollection<long[]> coll, final LongListOffHeap index, final int firstKey, final int count)
+            throws IOException {
+        coll.startWriting();
+        for (int key = firstKey; key < firstKey + count; key++) {
+            index.put(key, coll.storeDataItem(new long[] {key, key * 10L}));
+        }
+        coll.endWriting(0, firstKey + count).setFileCompleted();
+    }
+
+    private static void assertAllValues(
+            final DataFileCollection<long[]> coll, final LongListOffHeap index, final int count) throws IOException {
+        for (int key = 0; key < count; key++) {
+            assertArrayEquals(
+                    new long[] {key, key * 10L}, coll.readDataItemUsingIndex(index, key), "Wrong value, key " + key);
+        }
+    }
+
+    @Test
+    void filesAreMovedToColdStorage() throws IOException {
+        final Path storeDir = tempFileDir.resolve("hot");
+        final Path coldStoreDir = tempFileDir.resolve("cold");
+        final LongListOffHeap index = new LongListOffHeap();
+        final DataFileCollection<long[]> coll = new DataFileCollection<>(
+                storeDir, coldStoreDir, STORE_NAME, null, new ExampleFixedSizeDataSerializer(), null);
+        assertTrue(coll.isColdStorageEnabled());
+        writeFile(coll, index, 0, 100);
+        writeFile(coll, index, 100, 100);
+
+        final DataFileReader<long[]> file = coll.getAllCompletedFiles().get(0);
+        final Path hotPath = file.getPath();
+        assertFalse(coll.isInColdStorage(file));
+        // Read some data to open the file
+        assertAllValues(coll, index, 200);
+
+        final Path tempFile = coll.copyToColdStorage(file);
+        assertTrue(Files.exists(hotPath), "The file must not be deleted till the move is completed");
+        coll.completeMoveToColdStorage(file, tempFile);
+        assertTrue(coll.isInColdStorage(file));
+        assertFalse(Files.exists(hotPath), "The file must be deleted from the main storage");
+        assertFalse(Files.exists(tempFile), "The temp file must be renamed");
+        assertEquals(coldStoreDir.resolve(hotPath.getFileName()), file.getPath());
+
+        coll.getAndResetTierReadStatistics();
+        assertAllValues(coll, index, 200);
+        assertArrayEquals(
+                new long[] {5, 50},
+                coll.readDataItemsUsingIndex(index, new long[] {5}).get(0),
+                "Batch reads must use the new location");
+        final DataFileCollection.TierReadStatistics stats = coll.getAndResetTierReadStatistics();
+        assertEquals(101, stats.coldReads(), "Wrong number of cold reads");
+        assertEquals(100, stats.hotReads(), "Wrong number of hot reads");
+        assertTrue(stats.coldReadNanos() > 0);
+        assertEquals(0, coll.getAndResetTierReadStatistics().coldReads(), "Stats must be reset");
+
+        // Snapshots include files from both tiers
+        final Path snapshotDir = tempFileDir.resolve("snapshot");
+        coll.snapshot(snapshotDir);
+        assertTrue(Files.exists(snapshotDir.resolve(hotPath.getFileName())));
+        coll.close();
+
+        // Restart from the same directories
+        final LongListOffHeap reloadedIndex = new LongListOffHeap();
+        final DataFileCollection<long[]> reloaded = new DataFileCollection<>(
+                storeDir,
+                coldStoreDir,
+                STORE_NAME,
+                null,
+                new ExampleFixedSizeDataSerializer(),
+                (key, dataLocation, dataValue) -> reloadedIndex.put(key, dataLocation));
+        final List<DataFileReader<long[]>> files = reloaded.getAllCompletedFiles();
+        assertEquals(2, files.size());
+        assertTrue(reloaded.isInColdStorage(files.get(0)));
+        assertFalse(reloaded.isInColdStorage(files.get(1)));
+        assertAllValues(reloaded, reloadedIndex, 200);
+        reloaded.close();
+        index.close();
+        reloadedIndex.close();
+    }
+
+    @Test
+    void interruptedMoveIsCleanedUpOnLoad() throws IOException {
+        final Path storeDir = tempFileDir.resolve("hot");
+        final Path coldStoreDir = tempFileDir.resolve("cold");
+        final LongListOffHeap index = new LongListOffHeap();
+        final DataFileCollection<long[]> coll = new DataFileCollection<>(
+                storeDir, coldStoreDir, STORE_NAME, null, new ExampleFixedSizeDataSerializer(), null);
+        writeFile(coll, index, 0, 50);
+        writeFile(coll, index, 50, 50);
+        final List<DataFileReader<long[]>> files = coll.getAllCompletedFiles();
+        // One file is copied, but not renamed yet
+        final Path tempFile = coll.copyToColdStorage(files.get(0));
+        // The other file is renamed, but the original file isn't deleted yet
+        final Path secondFile = files.get(1).getPath();
+        Files.copy(secondFile, coldStoreDir.resolve(secondFile.getFileName()));
+        coll.close();
+
+        final LongListOffHeap reloadedIndex = new LongListOffHeap();
+        final DataFileCollection<long[]> reloaded = new DataFileCollection<>(
+                storeDir,
+                coldStoreDir,
+                STORE_NAME,
+                null,
+                new ExampleFixedSizeDataSerializer(),
+                (key, dataLocation, dataValue) -> reloadedIndex.put(key, dataLocation));
+        assertFalse(Files.exists(tempFile), "Incomplete copies must be deleted");
+        assertFalse(Files.exists(secondFile), "Files moved to cold storage must be deleted from the main storage");
+        final List<DataFileReader<long[]>> reloadedFiles = reloaded.getAllCompletedFiles();
+        assertEquals(2, reloadedFiles.size());
+        assertFalse(reloaded.isInColdStorage(reloadedFiles.get(0)));
+        assertTrue(reloaded.isInColdStorage(reloadedFiles.get(1)));
+        assertAllValues(reloaded, reloadedIndex, 100);
+        reloaded.close();
+        index.close();
+        reloadedIndex.close();
+    }
+}
@@ -550,6 +550,58 @@ class DataFileCollectionCompactionTest {
         f.get();
     }
 
+    @Test
+    @DisplayName("Parallel compaction")
+    void testParallelCompaction() throws Exception {
+        final int numFiles = 10;
+        final int numValues = 1000;
+        final int parallelism = 4;
+        final String storeName = "testParallelCompaction";
+        final Path testDir = tempFileDir.resolve(storeName);
+        Files.createDirectories(testDir);
+        final LongListOffHeap index = new LongListOffHeap();
+        final DataFileCollection<long[]> store =
+                new DataFileCollection<>(testDir, storeName, new ExampleFixedSizeDataSerializer(), null);
+        final AtomicLongArray workerThroughputs = new AtomicLongArray(parallelism);
+        final DataFileCompactor compactor = new DataFileCompactor(
+                storeName,
+                store,
+                index,
+                null,
+                null,
+                null,
+                null,
+                (worker, throughput) -> workerThroughputs.incrementAndGet(worker));
+        final ExecutorService workerExecutor = Executors.newCachedThreadPool();
+        compactor.setCompactionParallelism(parallelism, workerExecutor);
+        try {
+            for (int i = 0; i < numFiles; i++) {
+                store.startWriting();
+                for (int j = 0; j < numValues; j++) {
+                    final long dataLocation = store.storeDataItem(new long[] {i * numValues + j, i * numValues + j});
+                    index.put(i * numValues + j, dataLocation);
+                }
+                store.endWriting(0, index.size() - 1).setFileCompleted();
+            }
+
+            final List<Path> newFiles = compactor.compactFiles(index, getFilesToMerge(store), 1);
+            assertEquals(parallelism, newFiles.size(), "Every worker should create its own file");
+            assertEquals(parallelism, store.getAllCompletedFiles().size());
+            for (int worker = 0; worker < parallelism; worker++) {
+                assertEquals(1, workerThroughputs.get(worker), "Throughput should be reported by every worker");
+            }
+            for (int i = 0; i < numFiles * numValues; i++) {
+                final long[] value = store.readDataItem(index.get(i));
+                assertNotNull(value, "Value " + i + " should be readable after compaction");
+                assertEquals(i, value[0]);
+                assertEquals(i, value[1]);
+            }
+        } finally {
+            workerExecutor.shutdown();
+            store.close();
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     @DisplayName("Restore with inconsistent index")
@@ -18,21 +18,33 @@ package com.swirlds.merkledb.files;
 
 import static com.swirlds.common.test.fixtures.RandomUtils.nextInt;
 import static com.swirlds.merkledb.files.DataFileCompactor.compactionPlan;
+import static com.swirlds.merkledb.files.DataFileCompactor.garbageCompactionPlan;
 import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 
+import com.swirlds.merkledb.collections.LongListOffHeap;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 
 class DataFileCompactorTest {
 
+    /** Temporary directory provided by JUnit */
+    @TempDir
+    Path tempFileDir;
+
     @Mock
     DataFileReader<?> initialLevel1;
 
@@ -157,4 +169,89 @@ class DataFileCompactorTest {
                 compactionPlan(Arrays.asList(firstLevel1, secondLevel1, secondLevel2), 3, 5);
         assertEquals(0, result.size());
     }
+
+    @Test
+    void testGarbageCompactionPlan_belowThreshold() {
+        assertEquals(
+                0,
+                garbageCompactionPlan(Arrays.asList(initialLevel1, firstLevel1), new double[] {0.2, 0.49}, 0.5, 10)
+                        .size());
+    }
+
+    @Test
+    void testGarbageCompactionPlan_mostGarbageFirst() {
+        List<? extends DataFileReader<?>> result = garbageCompactionPlan(
+                Arrays.asList(initialLevel1, firstLevel1, secondLevel1, secondLevel2),
+                new double[] {0.5, 0.9, 0.1, 0.7},
+                0.5,
+                10);
+        assertEquals(3, result.size());
+        assertEquals(firstLevel1, result.get(0));
+        assertEquals(secondLevel2, result.get(1));
+        assertEquals(initialLevel1, result.get(2));
+    }
+
+    @Test
+    void testGarbageCompactionPlan_maxFiles() {
+        List<? extends DataFileReader<?>> result = garbageCompactionPlan(
+                Arrays.asList(initialLevel1, firstLevel1, secondLevel1), new double[] {0.6, 0.9, 0.8}, 0.5, 2);
+        assertEquals(2, result.size());
+        assertEquals(firstLevel1, result.get(0));
+        assertEquals(secondLevel1, result.get(1));
+    }
+
+    private static void writeFile(
+            final DataFileCollection<long[]> coll,
+            final LongListOffHeap index,
+            final int firstKey,
+            final int count,
+            final int maxValidKey)
+            throws IOException {
+        coll.startWriting();
+        for (int key = firstKey; key < firstKey + count; key++) {
+            index.put(key, coll.storeDataItem(new long[] {key, key * 10L}));
+        }
+        coll.endWriting(0, maxValidKey).setFileCompleted();
+    }
+
+    @Test
+    void testGarbageRatiosAndGarbageCompaction() throws IOException, InterruptedException {
+        final LongListOffHeap index = new LongListOffHeap();
+        final DataFileCollection<long[]> coll =
+                new DataFileCollection<>(tempFileDir, "garbageTest", new ExampleFixedSizeDataSerializer(), null);
+        // 80 items of the first file are overwritten in the second file
+        writeFile(coll, index, 0, 100, 99);
+        writeFile(coll, index, 0, 80, 99);
+        writeFile(coll, index, 100, 100, 199);
+
+        final AtomicReference<Double> storeGarbageRatio = new AtomicReference<>();
+        final DataFileCompactor compactor = new DataFileCompactor(
+                "garbageTest", coll, index, null, null, null, null, null, storeGarbageRatio::set) {
+            @Override
+            double getGarbageRatioThreshold() {
+                // garbage compaction is disabled by default
+                return 0.5;
+            }
+        };
+        final List<DataFileReader<long[]>> files = coll.getAllCompletedFiles();
+        final double[] ratios = compactor.estimateGarbageRatios(files);
+        assertArrayEquals(new double[] {0.8, 0.0, 0.0}, ratios, 1e-9);
+        // 80 of 280 items are garbage, file headers and footers make the ratio slightly lower
+        assertTrue(storeGarbageRatio.get() > 0.25 && storeGarbageRatio.get() <= 80.0 / 280);
+
+        // Not enough files to compact by levels, but the first file is mostly garbage
+        assertTrue(compactor.compact(), "The file with garbage must be compacted");
+        final List<DataFileReader<long[]>> compactedFiles = coll.getAllCompletedFiles();
+        assertEquals(3, compactedFiles.size());
+        assertTrue(compactedFiles.stream().noneMatch(f -> f.getIndex() == files.get(0).getIndex()));
+        assertEquals(
+                20,
+                compactedFiles.get(compactedFiles.size() - 1).getMetadata().getDataItemCount(),
+                "Only live items must be copied");
+        for (int key = 0; key < 200; key++) {
+            assertArrayEquals(new long[] {key, key * 10L}, coll.readDataItemUsingIndex(index, key));
+        }
+        coll.close();
+        index.close();
+    }
 }
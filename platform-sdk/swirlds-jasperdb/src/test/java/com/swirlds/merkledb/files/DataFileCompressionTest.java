@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.merkledb.collections.LongListOffHeap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class DataFileCompressionTest {
+
+    private static final String STORE_NAME = "compressionTest";
+
+    /** Temporary directory provided by JUnit */
+    @TempDir
+    Path tempFileDir;
+
+    /**
+     * Creates a test data item. Most items are small, but some of them are larger than compressed
+     * blocks, so they span over multiple blocks
+     */
+    private static long[] dataItem(final int key, final int version) {
+        final int size = (key % 97 == 0) ? 5_000 : (key % 10) + 1;
+        final long[] item = new long[size + 1];
+        item[0] = key;
+        for (int i = 1; i < item.length; i++) {
+            item[i] = key * 31L + version + (i % 4);
+        }
+        return item;
+    }
+
+    private static void assertAllValues(
+            final DataFileCollection<long[]> coll, final LongListOffHeap index, final int count, final int version)
+            throws IOException {
+        for (int key = 0; key < count; key++) {
+            assertArrayEquals(
+                    dataItem(key, version), coll.readDataItemUsingIndex(index, key), "Wrong value, key " + key);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataFileCompression.class)
+    void codecRoundTrip(final DataFileCompression compression) throws IOException {
+        final Random random = new Random(1234);
+        for (final int size : new int[] {0, 1, 12, 13, 100, 4096, 65536}) {
+            final byte[] randomBytes = new byte[size];
+            random.nextBytes(randomBytes);
+            final byte[] repeatedBytes = new byte[size];
+            for (int i = 0; i < size; i++) {
+                repeatedBytes[i] = (byte) ((i % 100 < 70) ? i % 7 : random.nextInt());
+            }
+            for (final byte[] src : List.of(randomBytes, repeatedBytes)) {
+                final byte[] compressed = new byte[compression.maxCompressedLength(size) + 3];
+                final int compressedSize = compression.compress(src, 0, size, compressed, 3);
+                assertTrue(compressedSize <= compression.maxCompressedLength(size), "Compressed data is too large");
+                final byte[] decompressed = new byte[size + 5];
+                assertEquals(size, compression.decompress(compressed, 3, compressedSize, decompressed, 5));
+                assertArrayEquals(src, Arrays.copyOfRange(decompressed, 5, size + 5), "Wrong data, size " + size);
+            }
+            if ((compression != DataFileCompression.NONE) && (size >= 4096)) {
+                final byte[] compressed = new byte[compression.maxCompressedLength(size)];
+                assertTrue(
+                        compression.compress(repeatedBytes, 0, size, compressed, 0) < size / 2,
+                        "Repetitive data must be compressed");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(
+            value = DataFileCompression.class,
+            names = {"LZ4", "DEFLATE"})
+    void writeReadAndCompact(final DataFileCompression compression) throws IOException, InterruptedException {
+        final int count = 2_000;
+        final LongListOffHeap index = new LongListOffHeap();
+        final DataFileCollection<long[]> coll =
+                new DataFileCollection<>(tempFileDir, STORE_NAME, new ExampleVariableSizeDataSerializer(), null);
+        coll.setDataFileCompression(compression);
+
+        // the second file has new versions of all items from the first file
+        coll.startWriting();
+        for (int key = 0; key < count; key++) {
+            index.put(key, coll.storeDataItem(dataItem(key, 0)));
+        }
+        // data must be readable before the file is finished, including the current block,
+        // which isn't written to disk yet
+        assertAllValues(coll, index, count, 0);
+        coll.endWriting(0, count - 1).setFileCompleted();
+        coll.startWriting();
+        for (int key = 0; key < count; key++) {
+            index.put(key, coll.storeDataItem(dataItem(key, 1)));
+        }
+        coll.endWriting(0, count - 1).setFileCompleted();
+
+        final List<DataFileReader<long[]>> files = coll.getAllCompletedFiles();
+        assertEquals(2, files.size());
+        for (final DataFileReader<long[]> file : files) {
+            assertEquals(compression, file.getMetadata().getCompression());
+            assertEquals(DataFileCommon.COMPRESSED_FILE_FORMAT_VERSION, file.getMetadata().getFileFormatVersion());
+            assertEquals(file.getMetadata(), new DataFileMetadata(file.getPath()), "Footer must be read back");
+        }
+        assertAllValues(coll, index, count, 1);
+        assertArrayEquals(
+                dataItem(97, 1),
+                coll.readDataItemsUsingIndex(index, new long[] {97}).get(0),
+                "Batch reads must read compressed data");
+
+        // compaction reads compressed items and writes them to a new compressed file
+        final DataFileCompactor compactor = new DataFileCompactor(STORE_NAME, coll, index, null, null, null, null) {
+            @Override
+            int getMinNumberOfFilesToCompact() {
+                return 2;
+            }
+        };
+        compactor.compactFiles(index, files, 1);
+        final List<DataFileReader<long[]>> compactedFiles = coll.getAllCompletedFiles();
+        assertEquals(1, compactedFiles.size());
+        assertTrue(compactedFiles.get(0).getMetadata().isCompressed());
+        assertEquals(count, compactedFiles.get(0).getMetadata().getDataItemCount());
+        assertAllValues(coll, index, count, 1);
+        coll.close();
+
+        // load the files again, all items are iterated to rebuild the index
+        final LongListOffHeap reloadedIndex = new LongListOffHeap();
+        final DataFileCollection<long[]> reloaded = new DataFileCollection<>(
+                tempFileDir,
+                STORE_NAME,
+                new ExampleVariableSizeDataSerializer(),
+                (key, dataLocation, dataValue) -> reloadedIndex.put(key, dataLocation));
+        assertAllValues(reloaded, reloadedIndex, count, 1);
+        reloaded.close();
+        index.close();
+        reloadedIndex.close();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.merkledb.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class DataFileMemoryMapperTest {
+
+    private static final int COUNT = 10_000;
+    private static final int CHUNK_SIZE = 4096;
+    private static final int MAX_MAPPED_BYTES = CHUNK_SIZE * 3;
+
+    /** Temporary directory provided by JUnit */
+    @SuppressWarnings("unused")
+    @TempDir
+    Path tempDir;
+
+    private static long[] dataItem(final FilesTestType testType, final int key) {
+        if (testType.dataItemSerializer.isVariableSize()) {
+            final long[] item = new long[1 + key % 7];
+            item[0] = key;
+            for (int i = 1; i < item.length; i++) {
+                item[i] = key * 31L + i;
+            }
+            return item;
+        }
+        return new long[] {key, key * 31L};
+    }
+
+    @ParameterizedTest
+    @EnumSource(FilesTestType.class)
+    void mappedReadsMatchWrittenItems(final FilesTestType testType) throws IOException {
+        final DataFileWriter<long[]> writer =
+                new DataFileWriter<>("test", tempDir, 0, testType.dataItemSerializer, Instant.now(), 0);
+        final long[] dataLocations = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            dataLocations[i] = writer.storeDataItem(dataItem(testType, i));
+        }
+        writer.finishWriting();
+
+        final DataFileMemoryMapper mapper = new DataFileMemoryMapper(MAX_MAPPED_BYTES, CHUNK_SIZE);
+        final DataFileReader<long[]> reader = new DataFileReader<>(
+                writer.getPath(),
+                testType.dataItemSerializer,
+                writer.getMetadata(),
+                new PositionalReadEngine(),
+                mapper);
+        reader.setFileCompleted();
+        assertTrue(reader.getSize() > MAX_MAPPED_BYTES, "The file should be larger than mapped bytes limit");
+
+        // Random reads over the whole file make the mapper evict chunks all the time
+        final Random random = new Random(11);
+        for (int j = 0; j < COUNT * 3; j++) {
+            final int i = random.nextInt(COUNT);
+            assertArrayEquals(dataItem(testType, i), reader.readDataItem(dataLocations[i]), "Wrong item " + i);
+            assertTrue(mapper.getMappedBytes() <= MAX_MAPPED_BYTES, "Mapped bytes limit is exceeded");
+        }
+
+        reader.close();
+        assertEquals(0, mapper.getMappedBytes(), "All chunks should be unmapped when the reader is closed");
+    }
+
+    @Test
+    void leasedChunksGetSecondChance() throws IOException {
+        final DataFileWriter<long[]> writer = new DataFileWriter<>(
+                "test", tempDir, 0, FilesTestType.fixed.dataItemSerializer, Instant.now(), 0);
+        for (int i = 0; i < COUNT; i++) {
+            writer.storeDataItem(dataItem(FilesTestType.fixed, i));
+        }
+        writer.finishWriting();
+        final Path path = writer.getPath();
+        final long fileSize = path.toFile().length();
+
+        final DataFileMemoryMapper mapper = new DataFileMemoryMapper(MAX_MAPPED_BYTES, CHUNK_SIZE);
+        final AtomicReferenceArray<DataFileMemoryMapper.MappedChunk> chunks =
+                new AtomicReferenceArray<>(mapper.chunkCount(fileSize));
+        assertTrue(chunks.length() > 4, "The file should have more chunks than fit into the limit");
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(mapper.map(path, fileSize, chunks, i), "Chunk " + i + " should be mapped");
+        }
+
+        // Chunk 0 is the oldest, but it's used again, so chunk 1 is evicted instead
+        final DataFileMemoryMapper.MappedChunk chunk0 = chunks.get(0);
+        assertTrue(chunk0.lease(), "Mapped chunk should be leased");
+        chunk0.release();
+        mapper.map(path, fileSize, chunks, 3);
+        assertNotNull(chunks.get(0), "Recently used chunk should stay mapped");
+        assertNull(chunks.get(1), "Chunk not used since it was mapped should be evicted");
+
+        // Chunk 0 has used its second chance, so it's evicted after chunk 2
+        mapper.map(path, fileSize, chunks, 4);
+        assertNull(chunks.get(2), "Chunk not used since it was mapped should be evicted");
+        mapper.map(path, fileSize, chunks, 1);
+        assertNull(chunks.get(0), "Chunk not used since its second chance should be evicted");
+        assertEquals(MAX_MAPPED_BYTES, mapper.getMappedBytes(), "Wrong mapped bytes");
+
+        mapper.unmapAll(chunks);
+        assertEquals(0, mapper.getMappedBytes(), "All chunks should be unmapped");
+    }
+}
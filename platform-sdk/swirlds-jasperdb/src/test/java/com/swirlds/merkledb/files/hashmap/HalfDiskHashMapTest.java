@@ -16,8 +16,10 @@
 
 package com.swirlds.merkledb.files.hashmap;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.swirlds.common.io.streams.SerializableDataInputStream;
 import com.swirlds.merkledb.ExampleLongKeyFixedSize;
@@ -28,7 +30,14 @@ import com.swirlds.virtualmap.VirtualLongKey;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -88,6 +97,106 @@ class HalfDiskHashMapTest {
     // =================================================================================================================
     // Tests
 
+    @ParameterizedTest
+    @EnumSource(FilesTestType.class)
+    void keyFilter(FilesTestType testType) throws Exception {
+        final Path tempSnapshotDir = tempDirPath.resolve("KeyFilterSnapshot_" + testType.name());
+        final int count = 10_000;
+        final HalfDiskHashMap<VirtualLongKey> map = new HalfDiskHashMap<>(
+                count,
+                (KeySerializer<VirtualLongKey>) testType.keySerializer,
+                tempDirPath.resolve(testType.name()),
+                "HalfDiskHashMapTest",
+                null,
+                false,
+                true);
+        assertTrue(map.getKeyFilterMemoryConsumption() > 0, "Key filter should be enabled");
+        createSomeData(testType, map, 1, count, 1);
+        checkData(testType, map, 1, count, 1);
+        // absent keys
+        for (int i = count + 1; i <= count * 2; i++) {
+            assertEquals(-1, map.get(testType.createVirtualLongKey(i), -1), "Expect not to exist");
+        }
+        assertTrue(map.getKeyFilterFalsePositiveRate() < 0.1, "Key filter false positive rate is too high");
+        // deleted keys stay in the filter, but must not be found
+        map.startWriting();
+        map.delete(testType.createVirtualLongKey(5));
+        map.endWriting();
+        assertEquals(-1, map.get(testType.createVirtualLongKey(5), -1), "Expect not to exist");
+        // the filter is rebuilt when a map is loaded from disk
+        map.snapshot(tempSnapshotDir);
+        final HalfDiskHashMap<VirtualLongKey> mapFromSnapshot = new HalfDiskHashMap<>(
+                count,
+                (KeySerializer<VirtualLongKey>) testType.keySerializer,
+                tempSnapshotDir,
+                "HalfDiskHashMapTest",
+                null,
+                false,
+                true);
+        checkData(testType, mapFromSnapshot, 6, count - 5, 1);
+        assertEquals(-1, mapFromSnapshot.get(testType.createVirtualLongKey(5), -1), "Expect not to exist");
+        map.close();
+        mapFromSnapshot.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(FilesTestType.class)
+    void keyFilterGetsDuringEndWriting(FilesTestType testType) throws Exception {
+        final int count = 10_000;
+        final HalfDiskHashMap<VirtualLongKey> map = new HalfDiskHashMap<>(
+                count,
+                (KeySerializer<VirtualLongKey>) testType.keySerializer,
+                tempDirPath.resolve(testType.name()),
+                "HalfDiskHashMapTest",
+                null,
+                false,
+                true);
+        createSomeData(testType, map, 1, count, 1);
+        final AtomicBoolean committed = new AtomicBoolean(false);
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Void>> results = IntStream.range(0, 4)
+                    .mapToObj(t -> readers.submit(() -> {
+                        final Random random = new Random(t);
+                        while (!done.get()) {
+                            // keys from the completed session must never be missed
+                            final int oldKey = 1 + random.nextInt(count);
+                            assertEquals(
+                                    oldKey,
+                                    map.get(testType.createVirtualLongKey(oldKey), -1),
+                                    "Committed key must be found");
+                            // keys from the session being ended must be found once it's complete
+                            final boolean newKeysCommitted = committed.get();
+                            final int newKey = count + 1 + random.nextInt(count);
+                            final long value = map.get(testType.createVirtualLongKey(newKey), -1);
+                            if (newKeysCommitted) {
+                                assertEquals(newKey, value, "Committed key must be found");
+                            } else {
+                                assertTrue(value == -1 || value == newKey, "Unexpected value " + value);
+                            }
+                        }
+                        return (Void) null;
+                    }))
+                    .toList();
+            map.startWriting();
+            for (int i = count + 1; i <= count * 2; i++) {
+                map.put(testType.createVirtualLongKey(i), i);
+            }
+            map.endWriting();
+            committed.set(true);
+            checkData(testType, map, 1, count * 2, 1);
+            done.set(true);
+            for (final Future<Void> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            done.set(true);
+            readers.shutdownNow();
+            map.close();
+        }
+    }
+
     @ParameterizedTest
     @EnumSource(FilesTestType.class)
     void createDataAndCheck(FilesTestType testType) throws Exception {
@@ -180,6 +289,23 @@ class HalfDiskHashMapTest {
         checkData(testType, map, 600, 400, 1);
     }
 
+    @ParameterizedTest
+    @EnumSource(FilesTestType.class)
+    void getAll(FilesTestType testType) throws Exception {
+        // few buckets, so many keys in a batch share a bucket
+        final HalfDiskHashMap<VirtualLongKey> map = createNewTempMap(testType, 100);
+        createSomeData(testType, map, 0, 100, 3);
+        final int[] keyIndices = IntStream.concat(IntStream.range(0, 100), IntStream.of(5, 200, 300, 99))
+                .toArray();
+        final List<VirtualLongKey> keys =
+                IntStream.of(keyIndices).mapToObj(testType::createVirtualLongKey).toList();
+        final long[] expected =
+                IntStream.of(keyIndices).mapToLong(i -> i < 100 ? i * 3L : -1).toArray();
+        assertArrayEquals(expected, map.getAll(keys, -1), "Batch get must return the same values as get");
+        assertArrayEquals(new long[0], map.getAll(List.of(), -1));
+        map.close();
+    }
+
     @Test
     void testPrints() throws IOException {
         final FilesTestType testType = FilesTestType.fixed;
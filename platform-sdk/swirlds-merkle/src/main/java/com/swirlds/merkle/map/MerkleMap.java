@@ -24,6 +24,8 @@ import com.swirlds.common.config.singleton.ConfigurationHolder;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.merkle.MerkleInternal;
 import com.swirlds.common.merkle.MerkleNode;
+import com.swirlds.common.merkle.crypto.MerkleCryptoFactory;
+import com.swirlds.common.merkle.crypto.MerkleCryptography;
 import com.swirlds.common.merkle.impl.PartialBinaryMerkleInternal;
 import com.swirlds.common.merkle.route.MerkleRoute;
 import com.swirlds.common.merkle.utility.DebugIterationEndpoint;
@@ -54,6 +56,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.StampedLock;
 
 /**
@@ -95,6 +98,12 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
 
     private static final int DEFAULT_INITIAL_MAP_CAPACITY = 2_000_000;
 
+    /**
+     * The largest supported value for {@link FCHashMapConfig#hashSplitFactor()}, bounds the dirty subtree set to
+     * 128KB per map copy.
+     */
+    private static final int MAX_HASH_SPLIT_DEPTH = 20;
+
     /**
      * Internal map to guarantee O(1) access
      */
@@ -110,6 +119,20 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
      */
     private final RuntimeObjectRecord registryRecord;
 
+    /**
+     * The depth (relative to the root of the binary tree) of the subtrees that are tracked in {@link #dirtySubtrees}.
+     */
+    private final int hashSplitDepth;
+
+    /**
+     * A bit set with one bit for each subtree at {@link #hashSplitDepth} below the root of the binary tree. The index
+     * of a subtree is formed by the left/right steps from the root of the binary tree down to the subtree. A bit is set
+     * when an entry in the subtree was added, replaced, moved, or copied by this copy of the map, i.e. when the hash of
+     * the subtree may have been invalidated. Updated atomically since {@link #getForModify(Object)} only holds a read
+     * lock.
+     */
+    private final AtomicLongArray dirtySubtrees;
+
     private static class ChildIndices {
         /**
          * Internal Merkle Tree
@@ -153,6 +176,10 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
         setImmutable(false);
         lock = new StampedLock();
         registryRecord = RuntimeObjectRegistry.createRecord(getClass());
+
+        final FCHashMapConfig fcHashMapConfig = ConfigurationHolder.getConfigData(FCHashMapConfig.class);
+        hashSplitDepth = Math.max(0, Math.min(MAX_HASH_SPLIT_DEPTH, fcHashMapConfig.hashSplitFactor()));
+        dirtySubtrees = createDirtySubtrees(hashSplitDepth);
     }
 
     /**
@@ -179,6 +206,59 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
         that.setImmutable(true);
 
         registryRecord = RuntimeObjectRegistry.createRecord(getClass());
+
+        // The original keeps the subtrees it has dirtied, this copy starts out with everything hashed
+        hashSplitDepth = that.hashSplitDepth;
+        dirtySubtrees = createDirtySubtrees(hashSplitDepth);
+    }
+
+    /**
+     * Create an empty dirty subtree set for the given split depth.
+     */
+    private static AtomicLongArray createDirtySubtrees(final int splitDepth) {
+        return new AtomicLongArray(Math.max(1, (1 << splitDepth) >>> 6));
+    }
+
+    /**
+     * Mark the subtree at {@link #hashSplitDepth} that contains the node at the given route as dirty. Nodes above the
+     * split depth are ignored, they are always visited by the final hashing pass anyway.
+     *
+     * @param route the route of a node in the binary tree that was modified by this copy
+     */
+    private void markDirty(final MerkleRoute route) {
+        // Skip the steps to this map, then from the map to the binary tree, then from the tree to its root
+        final int stepsToSkip = getRoute().size() + 2;
+        final Iterator<Integer> steps = route.iterator();
+        for (int i = 0; i < stepsToSkip; i++) {
+            if (!steps.hasNext()) {
+                return;
+            }
+            steps.next();
+        }
+
+        int subtreeIndex = 0;
+        for (int i = 0; i < hashSplitDepth; i++) {
+            if (!steps.hasNext()) {
+                return;
+            }
+            subtreeIndex = (subtreeIndex << 1) | steps.next();
+        }
+
+        final int word = subtreeIndex >>> 6;
+        final long bit = 1L << (subtreeIndex & 63);
+        if ((dirtySubtrees.get(word) & bit) == 0) {
+            dirtySubtrees.getAndAccumulate(word, bit, (a, b) -> a | b);
+        }
+    }
+
+    /**
+     * Mark every subtree as dirty. Used when the set of invalidated hashes is not known, e.g. after deserialization.
+     */
+    private void markAllDirty() {
+        final int subtreeCount = 1 << hashSplitDepth;
+        for (int word = 0; word < dirtySubtrees.length(); word++) {
+            dirtySubtrees.set(word, subtreeCount >= 64 ? -1L : (1L << subtreeCount) - 1);
+        }
     }
 
     /**
@@ -313,6 +393,7 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
             }
         }
         super.addDeserializedChildren(children, version);
+        markAllDirty();
     }
 
     /**
@@ -343,6 +424,7 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
      */
     private void updateCache(final V entry) {
         index.put(entry.getKey(), entry);
+        markDirty(entry.getRoute());
     }
 
     /**
@@ -380,6 +462,13 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
                 return null;
             }
 
+            // The deleted entry's position is refilled by the right-most leaf, and the right-most leaf's position
+            // is removed. The moved copy is marked via updateCache().
+            markDirty(entry.getRoute());
+            final V rightMostLeaf = getTree().getRightMostLeaf();
+            if (rightMostLeaf != null) {
+                markDirty(rightMostLeaf.getRoute());
+            }
             getTree().delete(entry, this::updateCache);
             invalidateHash();
             return entry;
@@ -497,6 +586,7 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
 
                 parent.setChild(indexInParent, copy, route, false);
                 getTree().registerCopy(original, copy);
+                markDirty(route);
             }
 
             return copy;
@@ -556,6 +646,7 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
 
                 getTree().insert(value, this::updateCache);
                 index.put(key, value);
+                markDirty(value.getRoute());
                 invalidateHash();
                 return null;
             }
@@ -626,6 +717,7 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
 
         getTree().update(oldEntry, value);
         index.put(key, value);
+        markDirty(value.getRoute());
 
         return oldEntry;
     }
@@ -686,6 +778,9 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
             index.clear();
             getTree().clear();
             invalidateHash();
+            for (int word = 0; word < dirtySubtrees.length(); word++) {
+                dirtySubtrees.set(word, 0);
+            }
         } finally {
             releaseWriteLock(stamp);
         }
@@ -817,6 +912,81 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>> extends PartialBinary
         }
     }
 
+    /**
+     * Same as {@link #hashDirtySubtrees(MerkleCryptography)} using the default {@link MerkleCryptography}.
+     *
+     * @return the hash of this map
+     */
+    public Hash hashDirtySubtrees() {
+        return hashDirtySubtrees(MerkleCryptoFactory.getInstance());
+    }
+
+    /**
+     * <p>
+     * Hash this map, visiting only the subtrees modified by this copy.
+     * </p>
+     *
+     * <p>
+     * Every mutation of this copy marks the subtree at the configured split depth (see
+     * {@link FCHashMapConfig#hashSplitFactor()}) that contains it. This method descends from the root of the binary
+     * tree directly to each of the marked subtrees that still lacks a hash and hashes them in parallel via
+     * {@link MerkleCryptography#digestSubtreesSync(List)}. Unmodified subtrees are never walked. A final pass hashes
+     * the few nodes above the split depth. The result is identical to hashing the map with
+     * {@link MerkleCryptography#digestTreeSync(MerkleNode)}.
+     * </p>
+     *
+     * <p>
+     * This is intended for immutable copies (it is typically called right after {@link #copy()}), and must not be
+     * called concurrently with modifications of this copy.
+     * </p>
+     *
+     * @param cryptography the cryptography used to compute hashes
+     * @return the hash of this map
+     */
+    public Hash hashDirtySubtrees(final MerkleCryptography cryptography) {
+        final Hash hash = getHash();
+        if (hash != null) {
+            return hash;
+        }
+
+        final long stamp = readLock();
+        try {
+            final MerkleTreeInternalNode root = getTree().getRoot();
+            final List<MerkleNode> subtrees = new ArrayList<>();
+            for (int word = 0; word < dirtySubtrees.length(); word++) {
+                long bits = dirtySubtrees.getAndSet(word, 0);
+                while (bits != 0) {
+                    final int subtreeIndex = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    final MerkleNode subtree = findSubtree(root, subtreeIndex);
+                    if (subtree != null && subtree.getHash() == null) {
+                        subtrees.add(subtree);
+                    }
+                }
+            }
+            cryptography.digestSubtreesSync(subtrees);
+            return cryptography.digestTreeSync(this);
+        } finally {
+            releaseReadLock(stamp);
+        }
+    }
+
+    /**
+     * Find the internal node at {@link #hashSplitDepth} below the root of the binary tree with the given index.
+     *
+     * @return the subtree, or null if the path to it ends early
+     */
+    private MerkleNode findSubtree(final MerkleTreeInternalNode root, final int subtreeIndex) {
+        MerkleNode node = root;
+        for (int level = hashSplitDepth - 1; level >= 0; level--) {
+            if (node == null || node.getClassId() != MerkleTreeInternalNode.CLASS_ID) {
+                return null;
+            }
+            node = node.asInternal().getChild((subtreeIndex >>> level) & 1);
+        }
+        return node;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.core.jmh;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.metrics.noop.NoOpMetrics;
+import com.swirlds.common.test.fixtures.WeightGenerators;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.ConcurrentShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.GenerationReservation;
+import com.swirlds.platform.gossip.shadowgraph.ShadowEvent;
+import com.swirlds.platform.gossip.shadowgraph.ShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.ShadowGraphInsertionException;
+import com.swirlds.platform.metrics.SyncMetrics;
+import com.swirlds.platform.test.event.emitter.StandardEventEmitter;
+import com.swirlds.platform.test.event.source.EventSourceFactory;
+import com.swirlds.platform.test.fixtures.event.IndexedEvent;
+import com.swirlds.platform.test.fixtures.event.generator.StandardGraphGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures contention in the shadow graph: one thread inserts events (and periodically expires old generations)
+ * the way intake does, while several threads run the queries a sync performs: reserve a generation, read the tips,
+ * look up the peer's tips by hash and search for ancestors. Inserter and reader throughput are reported separately.
+ * The number of readers can be changed on the command line with {@code -tg 1,N}.
+ */
+@State(Scope.Group)
+@Fork(value = 1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ShadowGraphBenchmark {
+
+    private static final int READERS = 8;
+
+    @Param({"ShadowGraph", "ConcurrentShadowGraph"})
+    public String shadowGraphType;
+
+    @Param({"39"})
+    public int numNodes;
+
+    /** The number of generations kept in the graph, older generations are expired. */
+    @Param({"50"})
+    public int generationWindow;
+
+    @Param({"0"})
+    public long seed;
+
+    private StandardEventEmitter emitter;
+    private AbstractShadowGraph shadowGraph;
+    private long maxGeneration;
+    private int insertCount;
+
+    @Setup(Level.Iteration)
+    public void setup() throws ShadowGraphInsertionException {
+        final StandardGraphGenerator generator = new StandardGraphGenerator(
+                seed, EventSourceFactory.newStandardEventSources(WeightGenerators.balancedNodeWeights(numNodes)));
+        emitter = new StandardEventEmitter(generator);
+        final SyncMetrics syncMetrics = new SyncMetrics(new NoOpMetrics());
+        shadowGraph = "ShadowGraph".equals(shadowGraphType)
+                ? new ShadowGraph(syncMetrics, numNodes)
+                : new ConcurrentShadowGraph(syncMetrics, numNodes);
+        maxGeneration = 0;
+        insertCount = 0;
+
+        // Start from a populated graph so readers have real ancestry to walk
+        while (maxGeneration < generationWindow) {
+            insert();
+        }
+    }
+
+    private void insert() throws ShadowGraphInsertionException {
+        final IndexedEvent event = emitter.emitEvent();
+        shadowGraph.addEvent(event);
+        maxGeneration = Math.max(maxGeneration, event.getGeneration());
+        if (++insertCount % numNodes == 0) {
+            shadowGraph.expireBelow(Math.max(0, maxGeneration - generationWindow));
+        }
+    }
+
+    @Benchmark
+    @Group("sync")
+    @GroupThreads(1)
+    public void intake() throws ShadowGraphInsertionException {
+        insert();
+    }
+
+    @Benchmark
+    @Group("sync")
+    @GroupThreads(READERS)
+    public void syncQueries(final Blackhole bh) {
+        try (final GenerationReservation reservation = shadowGraph.reserve()) {
+            final List<ShadowEvent> tips = shadowGraph.getTips();
+            final List<Hash> tipHashes = new ArrayList<>(tips.size());
+            for (final ShadowEvent tip : tips) {
+                tipHashes.add(tip.getEventBaseHash());
+            }
+            bh.consume(shadowGraph.shadows(tipHashes));
+            final long reservedGeneration = reservation.getGeneration();
+            bh.consume(shadowGraph.findAncestors(tips, e -> e.getEvent().getGeneration() >= reservedGeneration));
+        }
+    }
+}
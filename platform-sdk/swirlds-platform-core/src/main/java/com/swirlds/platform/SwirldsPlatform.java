@@ -99,6 +99,7 @@ import com.swirlds.platform.event.preconsensus.PreconsensusEventWriter;
 import com.swirlds.platform.event.preconsensus.SyncPreconsensusEventWriter;
 import com.swirlds.platform.event.validation.AddressBookUpdate;
 import com.swirlds.platform.event.validation.AncientValidator;
+import com.swirlds.platform.event.validation.BatchingEventSignatureValidator;
 import com.swirlds.platform.event.validation.EventDeduplication;
 import com.swirlds.platform.event.validation.EventSignatureValidator;
 import com.swirlds.platform.event.validation.EventValidator;
@@ -117,6 +118,8 @@ import com.swirlds.platform.gossip.GossipFactory;
 import com.swirlds.platform.gossip.IntakeEventCounter;
 import com.swirlds.platform.gossip.NoOpIntakeEventCounter;
 import com.swirlds.platform.gossip.chatter.config.ChatterConfig;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.ConcurrentShadowGraph;
 import com.swirlds.platform.gossip.shadowgraph.ShadowGraph;
 import com.swirlds.platform.gossip.shadowgraph.ShadowGraphEventObserver;
 import com.swirlds.platform.gossip.sync.config.SyncConfig;
@@ -213,7 +216,7 @@ public class SwirldsPlatform implements Platform {
      * The shadow graph manager. This wraps a shadow graph, which is an Event graph that adds child pointers to the
      * Hashgraph Event graph. Used for gossiping.
      */
-    private final ShadowGraph shadowGraph;
+    private final AbstractShadowGraph shadowGraph;
 
     /**
      * the object used to calculate consensus. it is volatile because the whole object is replaced when reading a state
@@ -420,7 +423,11 @@ public class SwirldsPlatform implements Platform {
         final SyncMetrics syncMetrics = new SyncMetrics(metrics);
         RuntimeMetrics.setup(metrics);
 
-        this.shadowGraph = new ShadowGraph(syncMetrics, currentAddressBook.getSize());
+        if (platformContext.getConfiguration().getConfigData(SyncConfig.class).concurrentShadowGraph()) {
+            this.shadowGraph = new ConcurrentShadowGraph(syncMetrics, currentAddressBook.getSize());
+        } else {
+            this.shadowGraph = new ShadowGraph(syncMetrics, currentAddressBook.getSize());
+        }
 
         this.keysAndCerts = keysAndCerts;
 
@@ -719,6 +726,8 @@ public class SwirldsPlatform implements Platform {
                     initialState.getState().getPlatformState().getPreviousAddressBook(),
                     currentAddressBook,
                     intakeEventCounter);
+            final BatchingEventSignatureValidator batchingEventSignatureValidator =
+                    new BatchingEventSignatureValidator(platformContext, threadManager, time, eventSignatureValidator);
             final OrphanBuffer orphanBuffer = new OrphanBuffer(platformContext, intakeEventCounter);
             final InOrderLinker inOrderLinker = new InOrderLinker(platformContext, time, intakeEventCounter);
             final LinkedEventIntake linkedEventIntake = new LinkedEventIntake(
@@ -734,7 +743,7 @@ public class SwirldsPlatform implements Platform {
             platformWiring.bindIntake(
                     internalEventValidator,
                     eventDeduplicator,
-                    eventSignatureValidator,
+                    batchingEventSignatureValidator,
                     orphanBuffer,
                     inOrderLinker,
                     linkedEventIntake);
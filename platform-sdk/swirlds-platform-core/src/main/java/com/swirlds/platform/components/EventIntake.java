@@ -31,7 +31,7 @@ import com.swirlds.platform.event.linking.EventLinker;
 import com.swirlds.platform.event.validation.StaticValidators;
 import com.swirlds.platform.eventhandling.ConsensusRoundHandler;
 import com.swirlds.platform.gossip.IntakeEventCounter;
-import com.swirlds.platform.gossip.shadowgraph.ShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
 import com.swirlds.platform.intake.EventIntakePhase;
 import com.swirlds.platform.internal.ConsensusRound;
 import com.swirlds.platform.internal.EventImpl;
@@ -68,7 +68,7 @@ public class EventIntake {
     /** An {@link EventObserverDispatcher} instance */
     private final EventObserverDispatcher dispatcher;
     /** Stores events, expires them, provides event lookup methods */
-    private final ShadowGraph shadowGraph;
+    private final AbstractShadowGraph shadowGraph;
 
     private final ExecutorService prehandlePool;
     private final Consumer<EventImpl> prehandleEvent;
@@ -113,7 +113,7 @@ public class EventIntake {
             @NonNull final AddressBook addressBook,
             @NonNull final EventObserverDispatcher dispatcher,
             @NonNull final PhaseTimer<EventIntakePhase> phaseTimer,
-            @NonNull final ShadowGraph shadowGraph,
+            @NonNull final AbstractShadowGraph shadowGraph,
             @NonNull final Consumer<EventImpl> prehandleEvent,
             @NonNull final IntakeEventCounter intakeEventCounter) {
 
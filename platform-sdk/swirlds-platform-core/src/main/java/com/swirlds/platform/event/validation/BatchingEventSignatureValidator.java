@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.event.validation;
+
+import static com.swirlds.common.metrics.FloatFormats.FORMAT_10_2;
+import static com.swirlds.common.metrics.FloatFormats.FORMAT_14_7;
+import static com.swirlds.common.metrics.Metrics.PLATFORM_CATEGORY;
+
+import com.swirlds.base.state.Stoppable;
+import com.swirlds.base.time.Time;
+import com.swirlds.common.config.EventConfig;
+import com.swirlds.common.context.PlatformContext;
+import com.swirlds.common.metrics.extensions.CountPerSecond;
+import com.swirlds.common.threading.manager.ThreadManager;
+import com.swirlds.platform.event.GossipEvent;
+import com.swirlds.platform.stats.AverageAndMax;
+import com.swirlds.platform.wiring.FlushTrigger;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Collects events into batches, and verifies the signatures of each batch in parallel with an
+ * {@link EventSignatureValidator}.
+ * <p>
+ * A batch is verified once it reaches the configured size, when the batch deadline heartbeat arrives, or before the
+ * minimum generation non-ancient or the address books change. Events with valid signatures are returned in the order
+ * they were received, regardless of the order in which their signatures were verified.
+ * <p>
+ * This class is not thread safe, and is intended to be driven by a single sequential task scheduler. The verification
+ * threads are released by {@link #stop()}, once the scheduler has been stopped.
+ */
+public class BatchingEventSignatureValidator implements Stoppable {
+
+    private static final CountPerSecond.Config VERIFICATIONS_PER_SECOND_CONFIG = new CountPerSecond.Config(
+                    PLATFORM_CATEGORY, "eventSignatureVerifications/sec")
+            .withDescription("Event signatures verified per second by the intake pipeline")
+            .withFormat(FORMAT_14_7);
+
+    /**
+     * Validates the signature of a single event.
+     */
+    private final EventSignatureValidator eventSignatureValidator;
+
+    /**
+     * Measures how long events wait in a batch.
+     */
+    private final Time time;
+
+    /**
+     * The number of events that causes a batch to be verified immediately.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * The number of threads used to verify a batch.
+     */
+    private final int threadCount;
+
+    /**
+     * Verifies batches in parallel. Null if signatures are verified on the calling thread.
+     */
+    private final ExecutorService verificationPool;
+
+    /**
+     * Events waiting to have their signatures verified, in the order they were received.
+     */
+    private final List<GossipEvent> pendingEvents;
+
+    /**
+     * The time, in nanoseconds, when the oldest event in {@link #pendingEvents} was received.
+     */
+    private long oldestPendingEventTime;
+
+    private final AverageAndMax batchSize;
+    private final AverageAndMax batchLatency;
+    private final CountPerSecond verificationsPerSecond;
+
+    /**
+     * Constructor
+     *
+     * @param platformContext         the platform context
+     * @param threadManager           responsible for creating and managing threads
+     * @param time                    provides the time used to measure batch latency
+     * @param eventSignatureValidator validates the signature of a single event
+     */
+    public BatchingEventSignatureValidator(
+            @NonNull final PlatformContext platformContext,
+            @NonNull final ThreadManager threadManager,
+            @NonNull final Time time,
+            @NonNull final EventSignatureValidator eventSignatureValidator) {
+
+        Objects.requireNonNull(threadManager);
+
+        this.time = Objects.requireNonNull(time);
+        this.eventSignatureValidator = Objects.requireNonNull(eventSignatureValidator);
+
+        final EventConfig eventConfig = platformContext.getConfiguration().getConfigData(EventConfig.class);
+        this.maxBatchSize = Math.max(1, eventConfig.signatureVerificationBatchSize());
+        this.threadCount = eventConfig.signatureVerificationThreadCount();
+        this.verificationPool = threadCount > 0
+                ? Executors.newFixedThreadPool(
+                        threadCount, threadManager.createThreadFactory("platform", "event-signature-verification"))
+                : null;
+        this.pendingEvents = new ArrayList<>(maxBatchSize);
+
+        batchSize = new AverageAndMax(
+                platformContext.getMetrics(),
+                PLATFORM_CATEGORY,
+                "eventSignatureBatchSize",
+                "number of events in each batch of event signatures verified by the intake pipeline",
+                FORMAT_10_2);
+        batchLatency = new AverageAndMax(
+                platformContext.getMetrics(),
+                PLATFORM_CATEGORY,
+                "eventSignatureBatchLatency",
+                "microseconds between the first event of a signature batch being received and the batch being verified",
+                FORMAT_10_2);
+        verificationsPerSecond = new CountPerSecond(platformContext.getMetrics(), VERIFICATIONS_PER_SECOND_CONFIG);
+    }
+
+    /**
+     * Add an event to the current batch. If this fills the batch, the signatures of the batch are verified.
+     *
+     * @param event the event to verify the signature of
+     * @return the events of the batch that have valid signatures, in the order they were received. Empty if the batch
+     * is not yet full.
+     */
+    @NonNull
+    public List<GossipEvent> addEvent(@NonNull final GossipEvent event) {
+        if (pendingEvents.isEmpty()) {
+            oldestPendingEventTime = time.nanoTime();
+        }
+        pendingEvents.add(event);
+
+        if (pendingEvents.size() >= maxBatchSize) {
+            return verifyPendingEvents();
+        }
+        return List.of();
+    }
+
+    /**
+     * Verify the current batch because the batch deadline has passed. Called periodically by a heartbeat with a
+     * period equal to the maximum batch delay.
+     *
+     * @param now the current time
+     * @return the events of the batch that have valid signatures, in the order they were received
+     */
+    @NonNull
+    public List<GossipEvent> checkBatchDeadline(@NonNull final Instant now) {
+        return verifyPendingEvents();
+    }
+
+    /**
+     * Verify the current batch, regardless of its size.
+     *
+     * @param ignored ignored trigger object
+     * @return the events of the batch that have valid signatures, in the order they were received
+     */
+    @NonNull
+    public List<GossipEvent> flush(@NonNull final FlushTrigger ignored) {
+        return verifyPendingEvents();
+    }
+
+    /**
+     * Set the minimum generation required for an event to be non-ancient. Events already in the batch are verified
+     * against the previous minimum generation, as they would have been without batching.
+     *
+     * @param minimumGenerationNonAncient the minimum generation required for an event to be non-ancient
+     * @return the events of the batch that have valid signatures, in the order they were received
+     */
+    @NonNull
+    public List<GossipEvent> setMinimumGenerationNonAncient(final long minimumGenerationNonAncient) {
+        final List<GossipEvent> validEvents = verifyPendingEvents();
+        eventSignatureValidator.setMinimumGenerationNonAncient(minimumGenerationNonAncient);
+        return validEvents;
+    }
+
+    /**
+     * Set the previous and current address books. Events already in the batch are verified against the previous
+     * address books, as they would have been without batching.
+     *
+     * @param addressBookUpdate the new address books
+     * @return the events of the batch that have valid signatures, in the order they were received
+     */
+    @NonNull
+    public List<GossipEvent> updateAddressBooks(@NonNull final AddressBookUpdate addressBookUpdate) {
+        final List<GossipEvent> validEvents = verifyPendingEvents();
+        eventSignatureValidator.updateAddressBooks(addressBookUpdate);
+        return validEvents;
+    }
+
+    /**
+     * Shut down the verification threads. Must not be called while a batch is being verified, and no batch may be
+     * verified afterwards.
+     */
+    @Override
+    public void stop() {
+        if (verificationPool != null) {
+            verificationPool.shutdown();
+        }
+    }
+
+    /**
+     * Verify the signatures of all pending events. The batch is split into one contiguous range per thread, so that
+     * each task verifies many signatures.
+     *
+     * @return the pending events that have valid signatures, in the order they were received
+     */
+    @NonNull
+    private List<GossipEvent> verifyPendingEvents() {
+        final int eventCount = pendingEvents.size();
+        if (eventCount == 0) {
+            return List.of();
+        }
+
+        final GossipEvent[] events = pendingEvents.toArray(new GossipEvent[0]);
+        pendingEvents.clear();
+        final GossipEvent[] validEvents = new GossipEvent[eventCount];
+
+        final int taskCount = verificationPool == null ? 1 : Math.min(threadCount, eventCount);
+        if (taskCount == 1) {
+            verifyRange(events, validEvents, 0, eventCount);
+        } else {
+            final List<Future<?>> futures = new ArrayList<>(taskCount);
+            for (int task = 0; task < taskCount; task++) {
+                final int start = (int) ((long) eventCount * task / taskCount);
+                final int end = (int) ((long) eventCount * (task + 1) / taskCount);
+                futures.add(verificationPool.submit(() -> verifyRange(events, validEvents, start, end)));
+            }
+            awaitVerification(futures);
+        }
+
+        batchSize.update(eventCount);
+        batchLatency.update((time.nanoTime() - oldestPendingEventTime) / 1_000);
+        verificationsPerSecond.count(eventCount);
+
+        final List<GossipEvent> result = new ArrayList<>(eventCount);
+        for (final GossipEvent validEvent : validEvents) {
+            if (validEvent != null) {
+                result.add(validEvent);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Verify the signatures of a range of events.
+     *
+     * @param events      the events to verify
+     * @param validEvents receives each event with a valid signature at the same index, other indices are left null
+     * @param start       the first index to verify, inclusive
+     * @param end         the last index to verify, exclusive
+     */
+    private void verifyRange(
+            @NonNull final GossipEvent[] events,
+            @NonNull final GossipEvent[] validEvents,
+            final int start,
+            final int end) {
+        for (int i = start; i < end; i++) {
+            validEvents[i] = eventSignatureValidator.validateSignature(events[i]);
+        }
+    }
+
+    /**
+     * Wait for all verification tasks of a batch to complete.
+     *
+     * @param futures the futures of the verification tasks
+     */
+    private static void awaitVerification(@NonNull final List<Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while verifying event signatures", e);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException("unable to verify event signatures", e.getCause());
+            }
+        }
+    }
+}
@@ -216,6 +216,9 @@ public class EventSignatureValidator {
 
     /**
      * Validate event signature
+     * <p>
+     * May be called concurrently for different events, as long as no call overlaps with a call to
+     * {@link #setMinimumGenerationNonAncient(long)} or {@link #updateAddressBooks(AddressBookUpdate)}.
      *
      * @param event the event to verify the signature of
      * @return the event if the signature is valid, otherwise null
@@ -33,7 +33,7 @@ import com.swirlds.platform.event.linking.EventLinker;
 import com.swirlds.platform.event.validation.EventValidator;
 import com.swirlds.platform.gossip.chatter.ChatterGossip;
 import com.swirlds.platform.gossip.chatter.config.ChatterConfig;
-import com.swirlds.platform.gossip.shadowgraph.ShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
 import com.swirlds.platform.gossip.sync.SingleNodeSyncGossip;
 import com.swirlds.platform.gossip.sync.SyncGossip;
 import com.swirlds.platform.metrics.SyncMetrics;
@@ -102,7 +102,7 @@ public final class GossipFactory {
             @NonNull final NodeId selfId,
             @NonNull final SoftwareVersion appVersion,
             @Nullable final Hash epochHash,
-            @NonNull final ShadowGraph shadowGraph,
+            @NonNull final AbstractShadowGraph shadowGraph,
             @NonNull final EmergencyRecoveryManager emergencyRecoveryManager,
             @NonNull final AtomicReference<Consensus> consensusRef,
             @NonNull final QueueThread<GossipEvent> intakeQueue,
@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.gossip.shadowgraph;
+
+import static com.swirlds.logging.legacy.LogMarker.STARTUP;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.utility.Clearable;
+import com.swirlds.platform.EventStrings;
+import com.swirlds.platform.internal.EventImpl;
+import com.swirlds.platform.system.events.PlatformEvent;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>A shadow graph is a lightweight replication of the hashgraph structure. It supports:</p>
+ *
+ * <ul>
+ * <li>insertion of a shadow event</li>
+ * <li>querying for a shadow event by hashgraph event base hash</li>
+ * <li>querying for ancestors by shadow event</li>
+ * <li>providing the current tips (shadow events with no self-child)</li>
+ * <li>expiration of shadow events by generation</li>
+ * <li>reservation of a generation of events to prevent event expiration</li>
+ * </ul>
+ *
+ * <p>There are two implementations: {@link ShadowGraph} serializes all operations but ancestor searches on its
+ * monitor, and {@link ConcurrentShadowGraph} never blocks queries. Both are thread safe. This class holds the
+ * reservation and insertion rules they share.</p>
+ */
+public abstract class AbstractShadowGraph implements Clearable {
+
+    private static final Logger logger = LogManager.getLogger(AbstractShadowGraph.class);
+
+    /**
+     * The generation value for the first event created by a node.
+     */
+    protected static final long FIRST_GENERATION = 0;
+
+    /** The generation value indicating that no generation is currently reserved. */
+    public static final int NO_GENERATION_RESERVED = -1;
+
+    /**
+     * <p>Initializes the shadow graph with the given {@code events}. This method should be used after reconnect or
+     * restart. {@code events} must be ordered by generation, smallest to largest.</p>
+     *
+     * <p>A minimum generation is necessary because events loaded from signed state a could have generation gaps and are
+     * used in {@link com.swirlds.platform.Consensus}. {@link com.swirlds.platform.Consensus} will eventually expire its
+     * smallest generation and that generation must be present in the shadow graph or an exception is thrown, so we
+     * create empty generations to match {@link com.swirlds.platform.Consensus}.</p>
+     *
+     * @param events
+     * 		the events to add to the shadow graph
+     * @param minGeneration
+     * 		the generation to use as a minimum generation
+     * @throws IllegalArgumentException
+     * 		if argument is null or empty
+     */
+    public abstract void initFromEvents(final List<EventImpl> events, final long minGeneration);
+
+    /**
+     * Define the starting generation for the shadowgraph, it will not keep any events older than this
+     * @param generation the starting generation
+     */
+    public abstract void startFromGeneration(final long generation);
+
+    /**
+     * Reset the shadow graph manager to its constructed state.
+     */
+    @Override
+    public abstract void clear();
+
+    /**
+     * Reserves the events in generation {@code expireBelow}. A reservation prevents events in that generation and later
+     * (higher) generations from being expired from the shadow graph.
+     *
+     * @return the reservation instance with the reserved generation
+     */
+    public abstract GenerationReservation reserve();
+
+    /**
+     * Reserves {@code generation}, reusing the newest reservation in {@code reservationList} if it is for the same
+     * generation. Callers must ensure exclusive access to the list.
+     *
+     * @param reservationList
+     * 		the list of all currently reserved generations, in ascending generation order
+     * @param generation
+     * 		the generation to reserve, never less than that of any reservation in the list
+     * @return the reservation instance with the reserved generation
+     */
+    static GenerationReservation reserveGeneration(
+            final LinkedList<GenerationReservationImpl> reservationList, final long generation) {
+        if (!reservationList.isEmpty()) {
+            final GenerationReservationImpl lastReservation = reservationList.getLast();
+            if (lastReservation.getGeneration() == generation) {
+                lastReservation.incrementReservations();
+                return lastReservation;
+            }
+        }
+        final GenerationReservationImpl reservation = new GenerationReservationImpl(generation);
+        reservationList.addLast(reservation);
+        return reservation;
+    }
+
+    /**
+     * Determines if the provided {@code hash} is in the shadow graph.
+     *
+     * @param hash
+     * 		the hash to look for
+     * @return true if the hash matches the hash of a shadow event in the shadow graph, false otherwise
+     */
+    public abstract boolean isHashInGraph(final Hash hash);
+
+    /**
+     * Returns the ancestors of the provided {@code events} that pass the provided {@code predicate} using a
+     * depth-first search. The provided {@code events} are not included in the return set. Searching stops at nodes
+     * that have no parents, nodes that are expired, or nodes that do not pass the {@code predicate}.
+     *
+     * @param events
+     * 		the event to find ancestors of
+     * @param predicate
+     * 		determines whether or not to add the ancestor to the return list
+     * @return the set of matching ancestors
+     */
+    public abstract Set<ShadowEvent> findAncestors(
+            final Iterable<ShadowEvent> events, final Predicate<ShadowEvent> predicate);
+
+    /**
+     * Looks for events in a generation range that pass the provided predicate.
+     *
+     * @param startGen
+     * 		the start of the generation range (inclusive)
+     * @param endGen
+     * 		the end of the generation range (exclusive)
+     * @param predicate
+     * 		the predicate to filter out events
+     * @return a collection of events found
+     */
+    public abstract Collection<EventImpl> findByGeneration(
+            final long startGen, final long endGen, final Predicate<EventImpl> predicate);
+
+    /**
+     * <p>Update the reservable generation and remove any events from the shadow graph that can and should be
+     * expired.</p>
+     *
+     * <p>Events that should be expired have a generation that is less than {@code expireBelow}.</p>
+     * <p>Events that are allowed to be expired are events:</p>
+     * <ol>
+     *     <li>whose generation has zero reservations</li>
+     *     <li>whose generation is less than the smallest generation with a non-zero number of reservations</li>
+     * </ol>
+     *
+     * @param generation
+     * 		The generation below which all generations should be expired. For example, if {@code generation}
+     * 		is 100, events in generation 99 and below should be expired.
+     */
+    public abstract void expireBelow(final long generation);
+
+    /**
+     * Removes reservations that can and should be expired, starting with the oldest generation reservation. Callers
+     * must ensure exclusive access to the list.
+     *
+     * @param reservationList
+     * 		the list of all currently reserved generations, in ascending generation order
+     * @param expireBelow
+     * 		the generation below which all generations should be expired
+     * @return the oldest generation with at least one reservation, or {@code -1} if there are no generations with at
+     * 		least one reservation.
+     * @see #expireBelow
+     */
+    static long pruneReservationList(
+            final LinkedList<GenerationReservationImpl> reservationList, final long expireBelow) {
+        long oldestReservedGen = NO_GENERATION_RESERVED;
+
+        // Iterate through the reservation list in ascending generation order, removing reservations for generations
+        // that can and should be expired.
+        Iterator<GenerationReservationImpl> iter = reservationList.iterator();
+        while (iter.hasNext()) {
+            GenerationReservationImpl reservation = iter.next();
+            long reservedGen = reservation.getGeneration();
+
+            if (reservation.getNumReservations() > 0) {
+                // As soon as we find a reserved reservedGen, stop
+                // iterating because we cannot expire this reservedGen
+                oldestReservedGen = reservation.getGeneration();
+                break;
+            } else if (reservedGen < expireBelow) {
+                // If the number of reservations is 0 and the
+                // reservedGen should be expired, remove the reservation
+                iter.remove();
+            } else {
+                // If the expireBelow reservedGen is reached, stop
+                // because no more generations should be expired
+                break;
+            }
+        }
+        return oldestReservedGen;
+    }
+
+    /**
+     * Get the shadow event that references a hashgraph event instance.
+     *
+     * @param e
+     * 		The event.
+     * @return the shadow event that references an event, or null is {@code e} is null
+     */
+    public abstract ShadowEvent shadow(final PlatformEvent e);
+
+    /**
+     * Get the shadow events that reference the hashgraph event instances
+     * with the given hashes.
+     *
+     * @param hashes
+     * 		The event hashes to get shadow events for
+     * @return the shadow events that reference the events with the given hashes
+     */
+    public abstract List<ShadowEvent> shadows(final List<Hash> hashes);
+
+    /**
+     * Get a hashgraph event from a hash
+     *
+     * @param h
+     * 		the hash
+     * @return the hashgraph event, if there is one in {@code this} shadow graph, else `null`
+     */
+    public abstract EventImpl hashgraphEvent(final Hash h);
+
+    /**
+     * Returns a copy of the tips at the time of invocation. The returned list is not affected by changes
+     * made to the tip set.
+     *
+     * @return an unmodifiable copy of the tips
+     */
+    public abstract List<ShadowEvent> getTips();
+
+    /**
+     * If Event `e` is insertable, then insert it and update the tip set, else do nothing.
+     *
+     * @param e
+     * 		The event reference to insert.
+     * @return true iff e was inserted
+     * @throws ShadowGraphInsertionException
+     * 		if the event was unable to be added to the shadow graph
+     */
+    public abstract boolean addEvent(final EventImpl e) throws ShadowGraphInsertionException;
+
+    /**
+     * Build the exception thrown when an event passed to {@link #addEvent(EventImpl)} is not insertable.
+     *
+     * @param status
+     * 		the reason the event is not insertable
+     * @param e
+     * 		the event
+     * @param oldestGeneration
+     * 		the oldest generation that has not yet been expired
+     * @return the exception to throw
+     */
+    static ShadowGraphInsertionException notInsertable(
+            final InsertableStatus status, final EventImpl e, final long oldestGeneration) {
+        if (status == InsertableStatus.NULL_EVENT) {
+            return new ShadowGraphInsertionException(
+                    String.format("`addEvent`: did not insert, status is %s", status), status);
+        }
+        return new ShadowGraphInsertionException(
+                String.format(
+                        "`addEvent`: did not insert, status is %s for event %s, oldestGeneration = %s",
+                        status, EventStrings.toMediumString(e), oldestGeneration),
+                status);
+    }
+
+    /**
+     * Get the shadow event of the event with the given hash.
+     *
+     * @param h
+     * 		the hash of the event
+     * @return the shadow event, or null if there is none
+     */
+    protected abstract ShadowEvent shadow(final Hash h);
+
+    /**
+     * @param h
+     * 		the hash of the event
+     * @return the event that has the hash provided, or null if none exists
+     */
+    public abstract EventImpl getEvent(final Hash h);
+
+    /**
+     * Predicate to determine if an event has expired.
+     *
+     * @param event
+     * 		The event.
+     * @return true iff the given event is expired
+     */
+    protected abstract boolean expired(final PlatformEvent event);
+
+    /*
+     * Given an Event, `e`, with parent p, where p may be either self-parent or other-parent, the
+     * following test is applied to the parent p:
+     *
+     *   has parent   known parent   expired parent      insertable
+     *   --------------------------------------------+------------
+     *   false                                       |   true
+     *   true         false          false           |   false
+     *   true         true           false           |   true
+     *   true         false          true            |   true
+     *   true         true           true            |   true
+     *
+     * and the following test is applied to the event `e`:
+     *
+     *   is null      null shadow    expired             insertable
+     *   --------------------------------------------+------------
+     *   true                                        |   false
+     *                true                           |   false
+     *                               true            |   false
+     *   false        false          false           |   true
+     *
+     * The parent test above is applied to both of self-parent and other-parent. If the test
+     * is false for either parent, then `e` is not insertable. Else, `e` is insertable.
+     *
+     * I.e., the expression
+     *
+     *  test(`e`) && test(self-parent of `e`) && test(other-parent of `e`)
+     *
+     * is evaluated, where "test" is as defined above for the event `e` and for its parents.
+     * The result of that evaluation  determines whether `e` is insertable.
+     *
+     * return: true iff e is to be inserted
+     *
+     */
+
+    /**
+     * Determine whether an event is insertable at time of call.
+     *
+     * @param e
+     * 		The event to evaluate
+     * @return An insertable status, indicating whether the event can be inserted, and if not, the reason it can not be
+     * 		inserted.
+     */
+    protected InsertableStatus insertable(final EventImpl e) {
+        if (e == null) {
+            return InsertableStatus.NULL_EVENT;
+        }
+
+        // No multiple insertions
+        if (shadow(e) != null) {
+            return InsertableStatus.DUPLICATE_SHADOW_EVENT;
+        }
+
+        // An expired event will not be referenced in the graph.
+        if (expired(e)) {
+            return InsertableStatus.EXPIRED_EVENT;
+        }
+
+        final boolean hasOP = e.getOtherParent() != null;
+        final boolean hasSP = e.getSelfParent() != null;
+
+        // If e has an unexpired parent that is not already referenced by the shadow graph, then we log an error. This
+        // is only a sanity check, so there is no need to prevent insertion
+        if (hasOP) {
+            final boolean knownOP = shadow(e.getOtherParent()) != null;
+            final boolean expiredOP = expired(e.getOtherParent());
+            if (!knownOP && !expiredOP) {
+                logger.warn(STARTUP.getMarker(), "Missing non-expired other parent for {}", e::toMediumString);
+            }
+        }
+
+        if (hasSP) {
+            final boolean knownSP = shadow(e.getSelfParent()) != null;
+            final boolean expiredSP = expired(e.getSelfParent());
+            if (!knownSP && !expiredSP) {
+                logger.warn(STARTUP.getMarker(), "Missing non-expired self parent for {}", e::toMediumString);
+            }
+        }
+
+        // If both parents are null, then insertion is allowed. This will create
+        // a new tree in the forest view of the graph.
+        return InsertableStatus.INSERTABLE;
+    }
+
+    /**
+     * @return all events stored in the shadowgraph
+     */
+    public abstract EventImpl[] getAllEvents();
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.gossip.shadowgraph;
+
+import static com.swirlds.logging.legacy.LogMarker.EXCEPTION;
+import static com.swirlds.logging.legacy.LogMarker.STARTUP;
+import static com.swirlds.logging.legacy.LogMarker.SYNC_INFO;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.platform.EventStrings;
+import com.swirlds.platform.internal.EventImpl;
+import com.swirlds.platform.metrics.SyncMetrics;
+import com.swirlds.platform.system.events.PlatformEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>A shadow graph whose queries never block, unlike those of {@link ShadowGraph}. Sync threads may look up
+ * shadows by hash, read the tips, search for ancestors and query generations while the intake thread inserts events
+ * and the consensus thread expires them.</p>
+ *
+ * <ul>
+ * <li>Shadows are indexed by hash in a {@link ConcurrentHashMap}, so hash lookups are lock free.</li>
+ * <li>Shadows are partitioned by generation, each generation being a concurrent set. Expiring a generation
+ * removes its partition as a whole.</li>
+ * <li>The tips are an immutable snapshot that is replaced whenever they change, so readers always get a
+ * consistent tip set without copying under a lock.</li>
+ * <li>Expiry is epoch based: the oldest non-expired generation is published first, after which all readers treat
+ * older events as expired, and only then are the expired shadows removed and their events cleared. As in
+ * {@link ShadowGraph}, generations held by a {@link GenerationReservation} are never expired.</li>
+ * </ul>
+ *
+ * <p>Mutations ({@link #addEvent(EventImpl)}, {@link #expireBelow(long)} and initialization) are serialized with
+ * each other, but never with queries. Reservations use their own lock, so starting a sync never waits for
+ * intake.</p>
+ */
+public class ConcurrentShadowGraph extends AbstractShadowGraph {
+
+    private static final Logger logger = LogManager.getLogger(ConcurrentShadowGraph.class);
+
+    /**
+     * All shadow events in the graph, by the base hash of their event.
+     */
+    private final Map<Hash, ShadowEvent> shadowsByHash = new ConcurrentHashMap<>();
+
+    /**
+     * All shadow events in the graph, partitioned by generation.
+     */
+    private final Map<Long, Set<ShadowEvent>> shadowsByGeneration = new ConcurrentHashMap<>();
+
+    /**
+     * An immutable snapshot of the current tips. A tip is an event with no self child (could have other children).
+     */
+    private volatile List<ShadowEvent> tips = List.of();
+
+    /**
+     * The generation for which all older generations should be expired, when possible. Only modified while holding
+     * the {@link #reservationList} lock.
+     */
+    private volatile long expireBelow;
+
+    /**
+     * The oldest generation that has not yet been expired. Events below this generation are expired as soon as this
+     * value is published, even if they have not yet been removed from the graph.
+     */
+    private volatile long oldestGeneration;
+
+    /**
+     * The list of all currently reserved generations and their number of reservations. Guarded by its own monitor.
+     */
+    private final LinkedList<GenerationReservationImpl> reservationList = new LinkedList<>();
+
+    /**
+     * The stats instance to update
+     */
+    private final SyncMetrics syncMetrics;
+
+    /** the number of nodes in the network, used for debugging */
+    private final int numberOfNodes;
+
+    /**
+     * Constructs a new instance.
+     */
+    public ConcurrentShadowGraph(final SyncMetrics syncMetrics) {
+        this(syncMetrics, -1);
+    }
+
+    public ConcurrentShadowGraph(final SyncMetrics syncMetrics, final int numberOfNodes) {
+        this.syncMetrics = syncMetrics;
+        this.numberOfNodes = numberOfNodes;
+        expireBelow = FIRST_GENERATION;
+        oldestGeneration = FIRST_GENERATION;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void initFromEvents(final List<EventImpl> events, final long minGeneration) {
+        if (events == null || events.isEmpty()) {
+            throw new IllegalArgumentException("events must not be null or empty");
+        }
+
+        // Set this to the oldest generation in the event list, so we can determine if parent events are expired,
+        // therefore allowing the event to be inserted.
+        oldestGeneration = events.get(0).getGeneration();
+        synchronized (reservationList) {
+            expireBelow = events.get(0).getGeneration();
+        }
+
+        for (final EventImpl event : events) {
+            try {
+                addEvent(event);
+            } catch (final ShadowGraphInsertionException e) {
+                logger.error(EXCEPTION.getMarker(), "unable to insert event {}", event.toShortString(), e);
+            }
+        }
+
+        // if we are missing some generation, we will create empty ones to match Consensus
+        synchronized (reservationList) {
+            long generation = expireBelow;
+            while (generation > minGeneration) {
+                generation--;
+                shadowsByGeneration.put(generation, ConcurrentHashMap.newKeySet());
+            }
+            expireBelow = generation;
+        }
+        oldestGeneration = expireBelow;
+
+        logger.info(
+                STARTUP.getMarker(),
+                "Shadow graph initialized from events. Provided minGeneration = {}. Calculated oldestGeneration = {}",
+                minGeneration,
+                oldestGeneration);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void startFromGeneration(final long generation) {
+        synchronized (reservationList) {
+            expireBelow = generation;
+        }
+        oldestGeneration = generation;
+        logger.info(STARTUP.getMarker(), "Shadow graph starting from generation {}", generation);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear() {
+        synchronized (reservationList) {
+            expireBelow = FIRST_GENERATION;
+            reservationList.clear();
+        }
+        oldestGeneration = FIRST_GENERATION;
+        tips = List.of();
+        for (final ShadowEvent shadow : shadowsByHash.values()) {
+            shadow.getEvent().clear();
+            shadow.getEvent().getBaseEventHashedData().releaseSerializedBytes();
+        }
+        shadowsByHash.clear();
+        shadowsByGeneration.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GenerationReservation reserve() {
+        synchronized (reservationList) {
+            return reserveGeneration(reservationList, expireBelow);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isHashInGraph(final Hash hash) {
+        return shadow(hash) != null;
+    }
+
+    /**
+     * <p>Returns the ancestors of the provided {@code events} that pass the provided {@code predicate} using a
+     * depth-first search. The provided {@code events} are not included in the return set.</p>
+     *
+     * <p>This graph has no event index, so the search looks up the parents of each event by their hashes without
+     * taking a lock. The hashes are part of the immutable event data, so they can be read even while the event is
+     * being cleared. Adding events does not affect ancestors, and expiry publishes the new oldest generation before
+     * removing any shadow, so the walk stops at expired events even while they are being removed.</p>
+     *
+     * @param events
+     * 		the event to find ancestors of
+     * @param predicate
+     * 		determines whether or not to add the ancestor to the return list
+     * @return the set of matching ancestors
+     */
+    @Override
+    public Set<ShadowEvent> findAncestors(final Iterable<ShadowEvent> events, final Predicate<ShadowEvent> predicate) {
+        final Set<ShadowEvent> ancestors = new HashSet<>();
+        final Deque<ShadowEvent> todoStack = new ArrayDeque<>();
+        for (final ShadowEvent event : events) {
+            pushParents(todoStack, event);
+            while (!todoStack.isEmpty()) {
+                final ShadowEvent x = todoStack.pop();
+                if (!ancestors.contains(x) && !expired(x.getEvent()) && predicate.test(x) && ancestors.add(x)) {
+                    pushParents(todoStack, x);
+                }
+            }
+        }
+        return ancestors;
+    }
+
+    private void pushParents(final Deque<ShadowEvent> todoStack, final ShadowEvent event) {
+        final ShadowEvent sp = shadow(event.getEvent().getSelfParentHash());
+        if (sp != null) {
+            todoStack.push(sp);
+        }
+        final ShadowEvent op = shadow(event.getEvent().getOtherParentHash());
+        if (op != null) {
+            todoStack.push(op);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<EventImpl> findByGeneration(
+            final long startGen, final long endGen, final Predicate<EventImpl> predicate) {
+        final List<EventImpl> result = new ArrayList<>();
+        for (long gen = startGen; gen < endGen; gen++) {
+            final Set<ShadowEvent> shadows = shadowsByGeneration.get(gen);
+            if (shadows == null) {
+                continue;
+            }
+            for (final ShadowEvent shadow : shadows) {
+                final EventImpl event = shadow.getEvent();
+                if (predicate.test(event)) {
+                    result.add(event);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void expireBelow(final long generation) {
+        final long minGenToKeep;
+        synchronized (reservationList) {
+            if (generation < expireBelow) {
+                logger.error(
+                        EXCEPTION.getMarker(),
+                        "A request to expire generations below {} is less than request of {}. "
+                                + "Ignoring expiration request",
+                        generation,
+                        expireBelow);
+                // The value of expireBelow must never decrease, so ignore invalid requests like this
+                return;
+            }
+
+            // Update the reservable generation and prune reservations in one step, so a concurrent reserve() either
+            // reserves the old generation before pruning or the new one after it
+            expireBelow = generation;
+            long oldestReservedGen = pruneReservationList(reservationList, generation);
+            if (oldestReservedGen == NO_GENERATION_RESERVED) {
+                oldestReservedGen = generation;
+            }
+            syncMetrics.updateGensWaitingForExpiry(generation - oldestReservedGen);
+            minGenToKeep = Math.min(generation, oldestReservedGen);
+        }
+
+        final long firstGenToExpire = oldestGeneration;
+        if (firstGenToExpire >= minGenToKeep) {
+            return;
+        }
+
+        // Start a new epoch: from now on readers consider everything below minGenToKeep expired
+        oldestGeneration = minGenToKeep;
+        tips = tips.stream().filter(tip -> !expired(tip.getEvent())).toList();
+
+        // No reader can reach the expired shadows through the graph anymore, so they can be released
+        for (long gen = firstGenToExpire; gen < minGenToKeep; gen++) {
+            final Set<ShadowEvent> shadowsToExpire = shadowsByGeneration.remove(gen);
+            // shadowsToExpire should never be null, but check just in case.
+            if (shadowsToExpire == null) {
+                logger.error(EXCEPTION.getMarker(), "There were no events in generation {} to expire.", gen);
+                continue;
+            }
+            for (final ShadowEvent shadow : shadowsToExpire) {
+                shadowsByHash.remove(shadow.getEventBaseHash());
+                shadow.getEvent().clear();
+                shadow.getEvent().getBaseEventHashedData().releaseSerializedBytes();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ShadowEvent shadow(final PlatformEvent e) {
+        if (e == null) {
+            return null;
+        }
+        return shadowsByHash.get(e.getBaseHash());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ShadowEvent> shadows(final List<Hash> hashes) {
+        Objects.requireNonNull(hashes);
+        final List<ShadowEvent> shadows = new ArrayList<>(hashes.size());
+        for (final Hash hash : hashes) {
+            shadows.add(shadow(hash));
+        }
+        return shadows;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventImpl hashgraphEvent(final Hash h) {
+        return getEvent(h);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ShadowEvent> getTips() {
+        return new ArrayList<>(tips);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean addEvent(final EventImpl e) throws ShadowGraphInsertionException {
+        final InsertableStatus status = insertable(e);
+        if (status != InsertableStatus.INSERTABLE) {
+            // Every event received should be insertable, so throw an exception if that is not the case
+            throw notInsertable(status, e, oldestGeneration);
+        }
+
+        final ShadowEvent s = new ShadowEvent(e);
+        final ShadowEvent selfParent = shadow(e.getSelfParent());
+
+        // Make the shadow visible to generation queries before hash lookups, so anything that finds it by hash
+        // also finds it by generation
+        shadowsByGeneration
+                .computeIfAbsent(e.getGeneration(), g -> ConcurrentHashMap.newKeySet())
+                .add(s);
+        shadowsByHash.put(s.getEventBaseHash(), s);
+
+        final List<ShadowEvent> tipsBefore = tips;
+        final List<ShadowEvent> newTips = new ArrayList<>(tipsBefore.size() + 1);
+        for (final ShadowEvent tip : tipsBefore) {
+            if (!tip.equals(selfParent)) {
+                newTips.add(tip);
+            }
+        }
+        newTips.add(s);
+        tips = List.copyOf(newTips);
+
+        if (numberOfNodes > 0 && newTips.size() > numberOfNodes && newTips.size() > tipsBefore.size()) {
+            // It is possible that we have more tips than nodes even if there is no fork.
+            // Explained in: sync-protocol.md
+            logger.info(
+                    SYNC_INFO.getMarker(),
+                    "tips size is {} after adding {}. oldestGeneration: {}\ncurrent tips:{}",
+                    newTips::size,
+                    () -> EventStrings.toMediumString(e),
+                    () -> oldestGeneration,
+                    () -> newTips.stream()
+                            .map(sh -> EventStrings.toShortString(sh.getEvent()))
+                            .collect(Collectors.joining(",")));
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventImpl getEvent(final Hash h) {
+        final ShadowEvent shadowEvent = shadow(h);
+        return shadowEvent == null ? null : shadowEvent.getEvent();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventImpl[] getAllEvents() {
+        return shadowsByHash.values().stream().map(ShadowEvent::getEvent).toArray(EventImpl[]::new);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unlike a {@link ConcurrentHashMap} lookup, a null hash is tolerated and yields null.
+     */
+    @Override
+    protected ShadowEvent shadow(final Hash h) {
+        return h == null ? null : shadowsByHash.get(h);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean expired(final PlatformEvent event) {
+        return event.getGeneration() < oldestGeneration;
+    }
+}
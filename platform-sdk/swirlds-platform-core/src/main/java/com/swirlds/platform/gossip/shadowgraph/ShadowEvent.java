@@ -21,18 +21,10 @@ import com.swirlds.platform.EventStrings;
 import com.swirlds.platform.internal.EventImpl;
 
 /**
- * A shadow event wraps a hashgraph event, and provides parent pointers to shadow events.
+ * A shadow event wraps a hashgraph event. It is the vertex type of the shadow graph, see {@link ShadowGraph}.
  *
- * The shadow event type is the vertex type of the shadow graph. This is the elemental type of {@link ShadowGraph}.
- * It provides a reference to a hashgraph event instance and the following operations:
- *
- * <ul>
- * <li>linking of a parent shadow event</li>
- * <li>unlinking of a parent shadow event</li>
- * <li>querying for parent events</li>
- * </ul>
- *
- * All linking and unlinking of a shadow event is implemented by this type.
+ * A shadow event holds no links to other shadow events. Its parents are found through the shadow graph, which
+ * keeps them in its {@link ShadowEventIndex}, or looks them up by hash.
  *
  * A shadow event never modifies the fields in a hashgraph event.
  */
@@ -43,30 +35,10 @@ public class ShadowEvent {
     private final EventImpl event;
 
     /**
-     * self-parent
-     */
-    private ShadowEvent selfParent;
-
-    /**
-     * other-parent
+     * the id of this shadow event in the {@link ShadowEventIndex} of a {@link ShadowGraph}, or
+     * {@link ShadowEventIndex#NO_EVENT} if it is not in an index
      */
-    private ShadowEvent otherParent;
-
-    /**
-     * Construct a shadow event from an event and the shadow events of its parents
-     *
-     * @param event
-     * 		the event
-     * @param selfParent
-     * 		the self-parent event's shadow
-     * @param otherParent
-     * 		the other-parent event's shadow
-     */
-    public ShadowEvent(final EventImpl event, final ShadowEvent selfParent, final ShadowEvent otherParent) {
-        this.event = event;
-        this.selfParent = selfParent;
-        this.otherParent = otherParent;
-    }
+    private int indexId = ShadowEventIndex.NO_EVENT;
 
     /**
      * Construct a shadow event from an event
@@ -75,25 +47,7 @@ public class ShadowEvent {
      * 		the event
      */
     public ShadowEvent(final EventImpl event) {
-        this(event, null, null);
-    }
-
-    /**
-     * Get the self-parent of {@code this} shadow event
-     *
-     * @return the self-parent of {@code this} shadow event
-     */
-    public ShadowEvent getSelfParent() {
-        return this.selfParent;
-    }
-
-    /**
-     * Get the other-parent of {@code this} shadow event
-     *
-     * @return the other-parent of {@code this} shadow event
-     */
-    public ShadowEvent getOtherParent() {
-        return this.otherParent;
+        this.event = event;
     }
 
     /**
@@ -115,11 +69,22 @@ public class ShadowEvent {
     }
 
     /**
-     * Disconnect this shadow event from its parents. Remove inbound links and outbound links
+     * Get the id of this shadow event in the {@link ShadowEventIndex} it was added to
+     *
+     * @return the index id, or {@link ShadowEventIndex#NO_EVENT} if it is not in an index
+     */
+    int getIndexId() {
+        return indexId;
+    }
+
+    /**
+     * Set the id of this shadow event in the {@link ShadowEventIndex} it is added to
+     *
+     * @param indexId
+     * 		the index id, or {@link ShadowEventIndex#NO_EVENT} when it is removed
      */
-    public void disconnect() {
-        selfParent = null;
-        otherParent = null;
+    void setIndexId(final int indexId) {
+        this.indexId = indexId;
     }
 
     /**
@@ -0,0 +1,650 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.gossip.shadowgraph;
+
+import com.swirlds.common.crypto.Hash;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * <p>A compact store of the shadow events in a {@link ShadowGraph}. Each event is given a dense integer id, and all
+ * per-event data needed to navigate the graph (parents, generation, hash prefix) is kept in primitive arrays indexed
+ * by that id. Ids of expired events are reused. Each id has an incarnation number that changes whenever the id is
+ * freed, and parent references record the incarnation they point to, so a reference to an expired parent is never
+ * mistaken for the event that reused its id.</p>
+ *
+ * <ul>
+ * <li>Lookup by hash uses an open addressing table of ids, probed by the first 8 bytes of the hash. The full hash is
+ * only compared when the prefixes match.</li>
+ * <li>Events of the same generation are chained through an int array. Generations are kept in a window of buckets
+ * starting at the oldest tracked generation, so no generation is ever boxed.</li>
+ * <li>Ancestor searches walk the parent id arrays with a primitive stack and a bit set instead of hash sets.</li>
+ * </ul>
+ *
+ * <p>This class is not thread safe, with the exception of
+ * {@link #findAncestors(Iterable, LongSupplier, Predicate)}, which may run concurrently with a single writer.</p>
+ *
+ * <p>The parent id arrays are the only parent links of the shadow graph, {@link ShadowEvent} holds none.</p>
+ */
+final class ShadowEventIndex {
+
+    /**
+     * The id used to denote no event, e.g. a missing parent or an empty table slot.
+     */
+    static final int NO_EVENT = -1;
+
+    /**
+     * The bucket value of a generation that is not tracked. A tracked but empty generation has {@link #NO_EVENT}.
+     */
+    private static final int ABSENT_GENERATION = -2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int INITIAL_GENERATION_CAPACITY = 64;
+
+    /** Access to {@link #incarnations} with memory ordering, for lock-free ancestor searches. */
+    private static final VarHandle INCARNATIONS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * The per-event arrays read by ancestor searches. The arrays are replaced when the index grows, so they are
+     * published together, and a search never mixes arrays of different sizes.
+     */
+    private record Links(
+            ShadowEvent[] shadows,
+            long[] generations,
+            int[] incarnations,
+            int[] selfParents,
+            int[] selfParentIncarnations,
+            int[] otherParents,
+            int[] otherParentIncarnations) {}
+
+    /** The shadow event with a given id, or null if the id is free. */
+    private ShadowEvent[] shadows;
+
+    /** The first 8 bytes of the base hash of the event with a given id. */
+    private long[] hashPrefixes;
+
+    /** The generation of the event with a given id. */
+    private long[] generations;
+
+    /** The number of times a given id has been freed. */
+    private int[] incarnations;
+
+    /** The id of the self parent of the event with a given id, {@link #NO_EVENT} if unknown. */
+    private int[] selfParents;
+
+    /** The incarnation of the id in {@link #selfParents}. */
+    private int[] selfParentIncarnations;
+
+    /** The id of the other parent of the event with a given id, {@link #NO_EVENT} if unknown. */
+    private int[] otherParents;
+
+    /** The incarnation of the id in {@link #otherParents}. */
+    private int[] otherParentIncarnations;
+
+    /** The id of the next event in the same generation, {@link #NO_EVENT} at the end of the chain. */
+    private int[] nextInGeneration;
+
+    /** Ids of removed events, available for reuse. */
+    private int[] freeIds;
+
+    private int freeIdCount;
+
+    /** All ids below this value have been handed out at least once. */
+    private int idLimit;
+
+    /** The number of events in the index. */
+    private int size;
+
+    /** The current per-event arrays, as seen by ancestor searches that do not hold the shadow graph lock. */
+    private volatile Links links;
+
+    /** Open addressing hash table of ids. */
+    private int[] table;
+
+    /**
+     * The head of the event chain of each tracked generation. Generation {@link #firstGeneration} is at
+     * {@link #generationStart}.
+     */
+    private int[] generationHeads;
+
+    private int generationStart;
+
+    /** The number of buckets in use, starting at {@link #generationStart}. */
+    private int generationCount;
+
+    /** The generation stored at {@link #generationStart}. */
+    private long firstGeneration;
+
+    /**
+     * Create an empty index.
+     */
+    ShadowEventIndex() {
+        clear();
+    }
+
+    /**
+     * Remove all events from the index.
+     */
+    void clear() {
+        shadows = new ShadowEvent[INITIAL_CAPACITY];
+        hashPrefixes = new long[INITIAL_CAPACITY];
+        generations = new long[INITIAL_CAPACITY];
+        incarnations = new int[INITIAL_CAPACITY];
+        selfParents = new int[INITIAL_CAPACITY];
+        selfParentIncarnations = new int[INITIAL_CAPACITY];
+        otherParents = new int[INITIAL_CAPACITY];
+        otherParentIncarnations = new int[INITIAL_CAPACITY];
+        nextInGeneration = new int[INITIAL_CAPACITY];
+        freeIds = new int[INITIAL_CAPACITY];
+        publishLinks();
+        freeIdCount = 0;
+        idLimit = 0;
+        size = 0;
+        table = new int[INITIAL_CAPACITY * 2];
+        Arrays.fill(table, NO_EVENT);
+        generationHeads = new int[INITIAL_GENERATION_CAPACITY];
+        Arrays.fill(generationHeads, ABSENT_GENERATION);
+        generationStart = 0;
+        generationCount = 0;
+        firstGeneration = 0;
+    }
+
+    /**
+     * @return the number of events in the index
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the shadow event with the given id.
+     *
+     * @param id
+     * 		the id of the event
+     * @return the shadow event, or null if there is no event with this id
+     */
+    ShadowEvent get(final int id) {
+        return id == NO_EVENT ? null : shadows[id];
+    }
+
+    /**
+     * Get the generation of the event with the given id.
+     *
+     * @param id
+     * 		the id of an event in the index
+     * @return the generation of the event
+     */
+    long getGeneration(final int id) {
+        return generations[id];
+    }
+
+    /**
+     * Get the id of the self parent of the event with the given id.
+     *
+     * @param id
+     * 		the id of an event in the index
+     * @return the id of the self parent, or {@link #NO_EVENT} if it is not in the index
+     */
+    int getSelfParent(final int id) {
+        return resolve(selfParents[id], selfParentIncarnations[id]);
+    }
+
+    /**
+     * Get the id of the other parent of the event with the given id.
+     *
+     * @param id
+     * 		the id of an event in the index
+     * @return the id of the other parent, or {@link #NO_EVENT} if it is not in the index
+     */
+    int getOtherParent(final int id) {
+        return resolve(otherParents[id], otherParentIncarnations[id]);
+    }
+
+    /**
+     * @return the parent id, or {@link #NO_EVENT} if the parent has been removed since the reference was recorded
+     */
+    private int resolve(final int parentId, final int parentIncarnation) {
+        return parentId != NO_EVENT && incarnations[parentId] == parentIncarnation ? parentId : NO_EVENT;
+    }
+
+    /**
+     * Find the id of the event with the given base hash.
+     *
+     * @param hash
+     * 		the base hash of the event, may be null
+     * @return the id of the event, or {@link #NO_EVENT} if it is not in the index
+     */
+    int find(final Hash hash) {
+        if (hash == null) {
+            return NO_EVENT;
+        }
+        final long prefix = prefix(hash);
+        final int mask = table.length - 1;
+        for (int slot = slot(prefix, mask); ; slot = (slot + 1) & mask) {
+            final int id = table[slot];
+            if (id == NO_EVENT) {
+                return NO_EVENT;
+            }
+            if (hashPrefixes[id] == prefix && shadows[id].getEventBaseHash().equals(hash)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Find the id of the given shadow event.
+     *
+     * @param shadow
+     * 		the shadow event, may be null
+     * @return the id of the event, or {@link #NO_EVENT} if it is not in the index
+     */
+    int find(final ShadowEvent shadow) {
+        if (shadow == null) {
+            return NO_EVENT;
+        }
+        final int id = find(shadow.getEventBaseHash());
+        return id != NO_EVENT && shadows[id] == shadow ? id : NO_EVENT;
+    }
+
+    /**
+     * Add an event to the index. The event must not already be in the index.
+     *
+     * @param shadow
+     * 		the shadow of the event
+     * @param selfParent
+     * 		the id of the self parent, or {@link #NO_EVENT}
+     * @param otherParent
+     * 		the id of the other parent, or {@link #NO_EVENT}
+     * @return the id of the event
+     */
+    int add(final ShadowEvent shadow, final int selfParent, final int otherParent) {
+        final int id = allocateId();
+        final long generation = shadow.getEvent().getGeneration();
+        shadow.setIndexId(id);
+        shadows[id] = shadow;
+        hashPrefixes[id] = prefix(shadow.getEventBaseHash());
+        generations[id] = generation;
+        selfParents[id] = selfParent;
+        selfParentIncarnations[id] = selfParent == NO_EVENT ? 0 : incarnations[selfParent];
+        otherParents[id] = otherParent;
+        otherParentIncarnations[id] = otherParent == NO_EVENT ? 0 : incarnations[otherParent];
+
+        final int bucket = trackGeneration(generation);
+        nextInGeneration[id] = generationHeads[bucket];
+        generationHeads[bucket] = id;
+
+        size++;
+        if (size * 2 > table.length) {
+            resizeTable(table.length * 2);
+        } else {
+            insertIntoTable(id);
+        }
+        return id;
+    }
+
+    /**
+     * Start tracking a generation, if it is not tracked yet. Events can be added to any generation, tracking a
+     * generation without events only makes a difference to {@link #removeGeneration(long, Consumer)}.
+     *
+     * @param generation
+     * 		the generation to track
+     */
+    void trackEmptyGeneration(final long generation) {
+        final int bucket = trackGeneration(generation);
+        if (generationHeads[bucket] == ABSENT_GENERATION) {
+            generationHeads[bucket] = NO_EVENT;
+        }
+    }
+
+    /**
+     * Remove all events of a generation and stop tracking it.
+     *
+     * @param generation
+     * 		the generation to remove
+     * @param removedShadowConsumer
+     * 		called with each removed shadow event
+     * @return false if the generation was not tracked
+     */
+    boolean removeGeneration(final long generation, final Consumer<ShadowEvent> removedShadowConsumer) {
+        if (generationCount == 0 || generation < firstGeneration || generation - firstGeneration >= generationCount) {
+            return false;
+        }
+        final int bucket = generationStart + (int) (generation - firstGeneration);
+        final int head = generationHeads[bucket];
+        if (head == ABSENT_GENERATION) {
+            return false;
+        }
+        generationHeads[bucket] = ABSENT_GENERATION;
+
+        for (int id = head; id != NO_EVENT; ) {
+            final int next = nextInGeneration[id];
+            final ShadowEvent shadow = shadows[id];
+            remove(id);
+            removedShadowConsumer.accept(shadow);
+            id = next;
+        }
+
+        // Drop absent buckets from the start of the window
+        while (generationCount > 0 && generationHeads[generationStart] == ABSENT_GENERATION) {
+            generationStart++;
+            generationCount--;
+            firstGeneration++;
+        }
+        if (generationCount == 0) {
+            generationStart = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Pass each event in a generation range to a consumer.
+     *
+     * @param startGeneration
+     * 		the start of the generation range (inclusive)
+     * @param endGeneration
+     * 		the end of the generation range (exclusive)
+     * @param consumer
+     * 		the consumer of the shadow events
+     */
+    void forEachInGenerations(
+            final long startGeneration, final long endGeneration, final Consumer<ShadowEvent> consumer) {
+        if (generationCount == 0) {
+            return;
+        }
+        final long start = Math.max(startGeneration, firstGeneration);
+        final long end = Math.min(endGeneration, firstGeneration + generationCount);
+        for (long generation = start; generation < end; generation++) {
+            final int head = generationHeads[generationStart + (int) (generation - firstGeneration)];
+            for (int id = head; id >= 0; id = nextInGeneration[id]) {
+                consumer.accept(shadows[id]);
+            }
+        }
+    }
+
+    /**
+     * Pass each event in the index to a consumer.
+     *
+     * @param consumer
+     * 		the consumer of the shadow events
+     */
+    void forEach(final Consumer<ShadowEvent> consumer) {
+        for (int id = 0; id < idLimit; id++) {
+            if (shadows[id] != null) {
+                consumer.accept(shadows[id]);
+            }
+        }
+    }
+
+    /**
+     * <p>Find the ancestors of the given events using a depth-first search over the parent id arrays. The given
+     * events are not included. The search stops at events that are not in the index, are older than the minimum
+     * generation, or do not pass the predicate.</p>
+     *
+     * <p>Unlike all other methods, this one may be called without holding the shadow graph lock, while another
+     * thread adds and removes events:</p>
+     * <ol>
+     *     <li>it only reads the arrays published in {@link #links}, and the data of an event in them is only
+     *     changed when the event is removed</li>
+     *     <li>adding events does not affect ancestors</li>
+     *     <li>removing an event changes its incarnation before any of its data, and the search reads the
+     *     incarnation again after reading the data, so an event removed or replaced during the search is
+     *     treated as not in the index</li>
+     * </ol>
+     *
+     * @param events
+     * 		the events to find the ancestors of, events that are not in the index are ignored
+     * @param minGeneration
+     * 		supplies the oldest generation that is not expired, ancestors older than this are not visited
+     * @param predicate
+     * 		determines whether to include an ancestor and continue the search past it
+     * @return the matching ancestors
+     */
+    List<ShadowEvent> findAncestors(
+            final Iterable<ShadowEvent> events,
+            final LongSupplier minGeneration,
+            final Predicate<ShadowEvent> predicate) {
+        final Links current = links;
+        final BitSet visited = new BitSet();
+        final List<ShadowEvent> ancestors = new ArrayList<>();
+        // Parent references, each one packed as the expected incarnation and the id of the parent
+        long[] stack = new long[64];
+        int stackSize = 0;
+
+        for (final ShadowEvent event : events) {
+            final int startId = event.getIndexId();
+            if (startId == NO_EVENT || startId >= current.shadows().length) {
+                continue;
+            }
+            final int startIncarnation = (int) INCARNATIONS.getAcquire(current.incarnations(), startId);
+            if (current.shadows()[startId] != event) {
+                continue;
+            }
+            stack = ensureCapacity(stack, stackSize + 2);
+            stack[stackSize] = selfParentReference(current, startId);
+            stack[stackSize + 1] = otherParentReference(current, startId);
+            VarHandle.acquireFence();
+            if (current.incarnations()[startId] == startIncarnation) {
+                stackSize += 2;
+            }
+
+            while (stackSize > 0) {
+                final long reference = stack[--stackSize];
+                final int id = (int) reference;
+                final int incarnation = (int) (reference >>> 32);
+                if (id == NO_EVENT
+                        || visited.get(id)
+                        || (int) INCARNATIONS.getAcquire(current.incarnations(), id) != incarnation) {
+                    continue;
+                }
+                final ShadowEvent shadow = current.shadows()[id];
+                final long generation = current.generations()[id];
+                stack = ensureCapacity(stack, stackSize + 2);
+                stack[stackSize] = selfParentReference(current, id);
+                stack[stackSize + 1] = otherParentReference(current, id);
+                VarHandle.acquireFence();
+                if (current.incarnations()[id] != incarnation
+                        || shadow == null
+                        || generation < minGeneration.getAsLong()
+                        || !predicate.test(shadow)) {
+                    continue;
+                }
+                visited.set(id);
+                ancestors.add(shadow);
+                stackSize += 2;
+            }
+        }
+        return ancestors;
+    }
+
+    private static long selfParentReference(final Links links, final int id) {
+        return reference(links.selfParents()[id], links.selfParentIncarnations()[id]);
+    }
+
+    private static long otherParentReference(final Links links, final int id) {
+        return reference(links.otherParents()[id], links.otherParentIncarnations()[id]);
+    }
+
+    /**
+     * @return a parent reference with the incarnation in the high and the id in the low 32 bits
+     */
+    private static long reference(final int id, final int incarnation) {
+        return ((long) incarnation << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    private static long[] ensureCapacity(final long[] stack, final int capacity) {
+        return capacity > stack.length ? Arrays.copyOf(stack, stack.length * 2) : stack;
+    }
+
+    /**
+     * Remove a single event from the index and free its id. Does not unlink it from its generation.
+     */
+    private void remove(final int id) {
+        // Invalidates all references to this id held by children. Ancestor searches may run concurrently, so the
+        // new incarnation must be visible before any data of the id changes
+        incarnations[id]++;
+        VarHandle.releaseFence();
+        removeFromTable(id);
+        shadows[id].setIndexId(NO_EVENT);
+        shadows[id] = null;
+        selfParents[id] = NO_EVENT;
+        otherParents[id] = NO_EVENT;
+        nextInGeneration[id] = NO_EVENT;
+        size--;
+        freeIds[freeIdCount++] = id;
+    }
+
+    private int allocateId() {
+        if (freeIdCount > 0) {
+            return freeIds[--freeIdCount];
+        }
+        if (idLimit == shadows.length) {
+            final int capacity = shadows.length * 2;
+            shadows = Arrays.copyOf(shadows, capacity);
+            hashPrefixes = Arrays.copyOf(hashPrefixes, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+            incarnations = Arrays.copyOf(incarnations, capacity);
+            selfParents = Arrays.copyOf(selfParents, capacity);
+            selfParentIncarnations = Arrays.copyOf(selfParentIncarnations, capacity);
+            otherParents = Arrays.copyOf(otherParents, capacity);
+            otherParentIncarnations = Arrays.copyOf(otherParentIncarnations, capacity);
+            nextInGeneration = Arrays.copyOf(nextInGeneration, capacity);
+            freeIds = Arrays.copyOf(freeIds, capacity);
+            publishLinks();
+        }
+        return idLimit++;
+    }
+
+    private void publishLinks() {
+        links = new Links(
+                shadows,
+                generations,
+                incarnations,
+                selfParents,
+                selfParentIncarnations,
+                otherParents,
+                otherParentIncarnations);
+    }
+
+    /**
+     * Make sure there is a bucket for a generation.
+     *
+     * @return the index of the bucket in {@link #generationHeads}
+     */
+    private int trackGeneration(final long generation) {
+        if (generationCount == 0) {
+            generationStart = 0;
+            generationCount = 1;
+            firstGeneration = generation;
+            return 0;
+        }
+        if (generation < firstGeneration) {
+            // Prepend buckets
+            final int shift = Math.toIntExact(firstGeneration - generation);
+            final int[] heads = new int[Math.max(generationHeads.length, generationCount + shift) * 2];
+            Arrays.fill(heads, ABSENT_GENERATION);
+            System.arraycopy(generationHeads, generationStart, heads, shift, generationCount);
+            generationHeads = heads;
+            generationStart = 0;
+            generationCount += shift;
+            firstGeneration = generation;
+            return 0;
+        }
+        final int offset = Math.toIntExact(generation - firstGeneration);
+        if (offset >= generationCount) {
+            final int requiredCount = offset + 1;
+            if (generationStart + requiredCount > generationHeads.length) {
+                // Compact the window to the start of the array, growing it if necessary
+                final int[] heads = requiredCount * 2 > generationHeads.length
+                        ? new int[requiredCount * 2]
+                        : generationHeads;
+                System.arraycopy(generationHeads, generationStart, heads, 0, generationCount);
+                Arrays.fill(heads, generationCount, heads.length, ABSENT_GENERATION);
+                generationHeads = heads;
+                generationStart = 0;
+            }
+            generationCount = requiredCount;
+        }
+        return generationStart + offset;
+    }
+
+    private void insertIntoTable(final int id) {
+        final int mask = table.length - 1;
+        int slot = slot(hashPrefixes[id], mask);
+        while (table[slot] != NO_EVENT) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id;
+    }
+
+    /**
+     * Remove an id from the table, shifting back later entries of the probe sequence so no tombstones are needed.
+     */
+    private void removeFromTable(final int id) {
+        final int mask = table.length - 1;
+        int hole = slot(hashPrefixes[id], mask);
+        while (table[hole] != id) {
+            hole = (hole + 1) & mask;
+        }
+
+        for (int slot = (hole + 1) & mask; table[slot] != NO_EVENT; slot = (slot + 1) & mask) {
+            final int home = slot(hashPrefixes[table[slot]], mask);
+            // The entry can fill the hole unless its home slot is cyclically in (hole, slot]
+            final boolean homeBetween = hole <= slot ? (home > hole && home <= slot) : (home > hole || home <= slot);
+            if (!homeBetween) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+        }
+        table[hole] = NO_EVENT;
+    }
+
+    private void resizeTable(final int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, NO_EVENT);
+        for (int id = 0; id < idLimit; id++) {
+            if (shadows[id] != null) {
+                insertIntoTable(id);
+            }
+        }
+    }
+
+    private static int slot(final long prefix, final int mask) {
+        // Hashes are uniformly distributed, but mix the bits anyway to stay robust against poor test hashes
+        final long mixed = prefix * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & mask;
+    }
+
+    /**
+     * @return the first 8 bytes of the hash as a long
+     */
+    private static long prefix(final Hash hash) {
+        final byte[] value = hash.getValue();
+        long prefix = 0;
+        for (int i = 0; i < Math.min(Long.BYTES, value.length); i++) {
+            prefix = (prefix << 8) | (value[i] & 0xFF);
+        }
+        return prefix;
+    }
+}
@@ -31,9 +31,9 @@ import org.apache.logging.log4j.Logger;
  */
 public class ShadowGraphEventObserver implements EventAddedObserver, ConsensusRoundObserver {
     private static final Logger logger = LogManager.getLogger(ShadowGraphEventObserver.class);
-    private final ShadowGraph shadowGraph;
+    private final AbstractShadowGraph shadowGraph;
 
-    public ShadowGraphEventObserver(final ShadowGraph shadowGraph) {
+    public ShadowGraphEventObserver(final AbstractShadowGraph shadowGraph) {
         this.shadowGraph = shadowGraph;
     }
 
@@ -17,20 +17,26 @@
 package com.swirlds.platform.gossip.shadowgraph;
 
 import static com.swirlds.logging.legacy.LogMarker.SYNC_INFO;
+import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.buildEventFilter;
+import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.filterEventsTheyHave;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.filterLikelyDuplicates;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.getMyTipsTheyKnow;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.getTheirTipsIHave;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.readEventsINeed;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.readMyTipsTheyHave;
+import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.readTheirEventFilter;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.readTheirTipsAndGenerations;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.sendEventsTheyNeed;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.writeFirstByte;
+import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.writeMyEventFilter;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.writeMyTipsAndGenerations;
 import static com.swirlds.platform.gossip.shadowgraph.SyncUtils.writeTheirTipsIHave;
 
 import com.swirlds.base.time.Time;
+import com.swirlds.common.bloom.BloomFilter;
 import com.swirlds.common.context.PlatformContext;
 import com.swirlds.common.crypto.Cryptography;
+import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.platform.NodeId;
 import com.swirlds.common.threading.framework.QueueThread;
 import com.swirlds.common.threading.interrupt.InterruptableRunnable;
@@ -79,7 +85,7 @@ public class ShadowGraphSynchronizer {
     /**
      * The shadow graph manager to use for this sync
      */
-    private final ShadowGraph shadowGraph;
+    private final AbstractShadowGraph shadowGraph;
     /**
      * Number of member nodes in the network for this sync
      */
@@ -136,10 +142,31 @@ public class ShadowGraphSynchronizer {
      */
     private final Duration nonAncestorFilterThreshold;
 
+    /**
+     * If true then the peers exchange bloom filters of their recent events, and events the peer very probably has are
+     * not sent.
+     */
+    private final boolean eventFilterEnabled;
+
+    /**
+     * The number of generations below the highest tip generation whose events are added to the event filter.
+     */
+    private final int eventFilterGenerations;
+
+    /**
+     * The number of event filter bits per event.
+     */
+    private final int eventFilterBitsPerEvent;
+
+    /**
+     * The maximum size of an event filter, in bits, both for the filter we send and the filter we accept.
+     */
+    private final long maxEventFilterBits;
+
     public ShadowGraphSynchronizer(
             @NonNull final PlatformContext platformContext,
             @NonNull final Time time,
-            @NonNull final ShadowGraph shadowGraph,
+            @NonNull final AbstractShadowGraph shadowGraph,
             final int numberOfNodes,
             @NonNull final SyncMetrics syncMetrics,
             @NonNull final Supplier<GraphGenerations> generationsSupplier,
@@ -168,6 +195,10 @@ public class ShadowGraphSynchronizer {
         final SyncConfig syncConfig = platformContext.getConfiguration().getConfigData(SyncConfig.class);
         this.filterLikelyDuplicates = syncConfig.filterLikelyDuplicates();
         this.nonAncestorFilterThreshold = syncConfig.nonAncestorFilterThreshold();
+        this.eventFilterEnabled = syncConfig.eventFilterEnabled();
+        this.eventFilterGenerations = syncConfig.eventFilterGenerations();
+        this.eventFilterBitsPerEvent = syncConfig.eventFilterBitsPerEvent();
+        this.maxEventFilterBits = syncConfig.maxEventFilterBits();
     }
 
     /**
@@ -202,6 +233,10 @@ public class ShadowGraphSynchronizer {
             return event -> {
                 cryptography.digestSync(event.getHashedData());
                 event.buildDescriptor();
+                // The lookup takes the shadow graph lock, so it's only done when the metric is of interest
+                if (eventFilterEnabled && shadowGraph.isHashInGraph(event.getHashedData().getHash())) {
+                    syncMetrics.duplicateEventReceived();
+                }
 
                 wrappedPut.accept(event);
             };
@@ -296,15 +331,25 @@ public class ShadowGraphSynchronizer {
                     readMyTipsTheyHave(connection, myTips.size()),
                     writeTheirTipsIHave(connection, theirTipsIHave),
                     connection);
-            timing.setTimePoint(3);
 
             // Add each tip they know to the known set
             final List<ShadowEvent> knownTips = getMyTipsTheyKnow(connection, myTips, theirBooleans);
             eventsTheyHave.addAll(knownTips);
 
+            // Optionally, each peer tells the other about its recent events with a bloom filter. This covers the
+            // events the peer has but we can't infer from the tips, e.g. ancestors of tips we don't have yet.
+            final BloomFilter<Hash> theirEventFilter = eventFilterEnabled ? exchangeEventFilters(connection) : null;
+            timing.setTimePoint(3);
+
             // create a send list based on the known set
-            sendList = createSendList(
+            final List<EventImpl> eventsTheyNeed = createSendList(
                     connection.getSelfId(), eventsTheyHave, myGenerations, theirTipsAndGenerations.getGenerations());
+            if (theirEventFilter == null) {
+                sendList = eventsTheyNeed;
+            } else {
+                sendList = filterEventsTheyHave(eventsTheyNeed, theirEventFilter);
+                syncMetrics.eventsFiltered(eventsTheyNeed.size() - sendList.size());
+            }
         }
 
         final SyncConfig syncConfig = platformContext.getConfiguration().getConfigData(SyncConfig.class);
@@ -313,6 +358,25 @@ public class ShadowGraphSynchronizer {
                 connection, timing, sendList, syncConfig.syncKeepalivePeriod(), syncConfig.maxSyncTime());
     }
 
+    /**
+     * Send our event filter to the peer and read theirs.
+     *
+     * @param connection the connection to use
+     * @return the peer's event filter
+     */
+    @NonNull
+    private BloomFilter<Hash> exchangeEventFilters(@NonNull final Connection connection)
+            throws ParallelExecutionException {
+        final BloomFilter<Hash> myEventFilter =
+                buildEventFilter(shadowGraph, eventFilterGenerations, eventFilterBitsPerEvent, maxEventFilterBits);
+        final BloomFilter<Hash> theirEventFilter = readWriteParallel(
+                readTheirEventFilter(connection, maxEventFilterBits),
+                writeMyEventFilter(connection, myEventFilter),
+                connection);
+        syncMetrics.eventFilterSent(myEventFilter.getFilterSizeInBits());
+        return Objects.requireNonNull(theirEventFilter);
+    }
+
     @NonNull
     private Generations getGenerations(final long minRoundGen) {
         return new Generations(
@@ -18,6 +18,8 @@ package com.swirlds.platform.gossip.shadowgraph;
 
 import static com.swirlds.logging.legacy.LogMarker.SYNC_INFO;
 
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.bloom.hasher.HashBloomHasher;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.platform.NodeId;
 import com.swirlds.common.utility.CompareTo;
@@ -37,13 +39,16 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
@@ -59,6 +64,12 @@ public final class SyncUtils {
 
     private static final Logger logger = LogManager.getLogger();
 
+    /**
+     * The largest number of hashes per event in an event filter. Limits the work a peer can cause with the filter it
+     * sends.
+     */
+    public static final int MAX_EVENT_FILTER_HASH_COUNT = 32;
+
     /**
      * Private constructor to never instantiate this class
      */
@@ -207,6 +218,55 @@ public final class SyncUtils {
         };
     }
 
+    /**
+     * Send my event filter to the peer. The complementary function to {@link #readTheirEventFilter(Connection, long)}.
+     *
+     * @param connection the connection to write to
+     * @param filter     the filter of the events I have
+     * @return a {@link Callable} that writes the filter
+     */
+    public static Callable<Void> writeMyEventFilter(final Connection connection, final BloomFilter<Hash> filter) {
+        return () -> {
+            connection.getDos().writeEventFilter(filter);
+            connection.getDos().flush();
+            logger.info(
+                    SYNC_INFO.getMarker(),
+                    "{} sent event filter of {} bits",
+                    connection::getDescription,
+                    filter::getFilterSizeInBits);
+            return null;
+        };
+    }
+
+    /**
+     * Read the peer's event filter. The complementary function to
+     * {@link #writeMyEventFilter(Connection, BloomFilter)}.
+     *
+     * @param connection    the connection to read from
+     * @param maxFilterBits the largest filter that will be accepted, in bits
+     * @return a {@link Callable} that reads the filter
+     */
+    public static Callable<BloomFilter<Hash>> readTheirEventFilter(
+            final Connection connection, final long maxFilterBits) {
+        return () -> {
+            final BloomFilter<Hash> filter;
+            try {
+                filter = connection.getDis().readEventFilter(maxFilterBits, MAX_EVENT_FILTER_HASH_COUNT);
+            } catch (final IOException e) {
+                throw new SyncException(connection, "peer sent an invalid event filter", e);
+            }
+            if (filter == null) {
+                throw new SyncException(connection, "peer sent a null event filter");
+            }
+            logger.info(
+                    SYNC_INFO.getMarker(),
+                    "{} received event filter of {} bits",
+                    connection::getDescription,
+                    filter::getFilterSizeInBits);
+            return filter;
+        };
+    }
+
     /**
      * Send the events the peer needs. The complementary function to
      * {@link #readEventsINeed(Connection, Consumer, SyncMetrics, CountDownLatch, IntakeEventCounter, Duration)}.
@@ -385,7 +445,7 @@ public final class SyncUtils {
      */
     @Nullable
     private static ShadowEvent getLatestSelfEventInShadowgraph(
-            @NonNull final ShadowGraph shadowGraph, @NonNull final NodeId selfId) {
+            @NonNull final AbstractShadowGraph shadowGraph, @NonNull final NodeId selfId) {
 
         final List<ShadowEvent> tips = shadowGraph.getTips();
         for (final ShadowEvent tip : tips) {
@@ -417,7 +477,7 @@ public final class SyncUtils {
      */
     @NonNull
     public static List<EventImpl> filterLikelyDuplicates(
-            @NonNull final ShadowGraph shadowGraph,
+            @NonNull final AbstractShadowGraph shadowGraph,
             @NonNull final NodeId selfId,
             @NonNull final Duration nonAncestorThreshold,
             @NonNull final Instant now,
@@ -463,6 +523,92 @@ public final class SyncUtils {
         return filteredList;
     }
 
+    /**
+     * Build a bloom filter of the hashes of this node's recent events, to be sent to the peer so that it can avoid
+     * sending events this node already has. The filter has a random salt, so an event that is a false positive in one
+     * sync is very unlikely to be one in the next.
+     *
+     * @param shadowGraph     the shadow graph
+     * @param generations     the number of generations below the highest tip generation to add to the filter
+     * @param bitsPerEvent    the number of filter bits per event added
+     * @param maxFilterBits   the maximum size of the filter, in bits
+     * @return the filter
+     */
+    @NonNull
+    public static BloomFilter<Hash> buildEventFilter(
+            @NonNull final ShadowGraph shadowGraph,
+            final int generations,
+            final int bitsPerEvent,
+            final long maxFilterBits) {
+
+        long maxGeneration = -1;
+        for (final ShadowEvent tip : shadowGraph.getTips()) {
+            maxGeneration = Math.max(maxGeneration, tip.getEvent().getGeneration());
+        }
+        final Collection<EventImpl> events = maxGeneration < 0
+                ? List.of()
+                : shadowGraph.findByGeneration(
+                        Math.max(0, maxGeneration - generations), maxGeneration + 1, event -> true);
+
+        // k = (m / n) ln 2 minimizes the false positive rate for a filter of m bits holding n elements
+        final int hashCount = Math.min(
+                MAX_EVENT_FILTER_HASH_COUNT, Math.max(1, (int) Math.round(bitsPerEvent * Math.log(2))));
+        final long filterBits =
+                Math.min(maxFilterBits, Math.max(Long.SIZE, (long) events.size() * bitsPerEvent));
+        final BloomFilter<Hash> filter =
+                new BloomFilter<>(hashCount, new HashBloomHasher(ThreadLocalRandom.current().nextLong()), filterBits);
+        for (final EventImpl event : events) {
+            filter.add(event.getBaseHash());
+        }
+        return filter;
+    }
+
+    /**
+     * Remove from the send list the events that the peer very probably has, according to the peer's event filter.
+     * Bloom filters have false positives, so an event is only removed if none of the events that are still being sent
+     * are its descendants. This guarantees that the peer never receives an event whose parent was held back because
+     * of a false positive.
+     *
+     * @param sendList    the events to send, sorted by generation
+     * @param theirFilter the filter of the events the peer has
+     * @return the events that should be sent, in the same order
+     */
+    @NonNull
+    public static List<EventImpl> filterEventsTheyHave(
+            @NonNull final List<EventImpl> sendList, @NonNull final BloomFilter<Hash> theirFilter) {
+
+        // Walk from the highest generation down, so every child is visited before its parents
+        final Set<EventImpl> parentsOfSentEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+        final boolean[] send = new boolean[sendList.size()];
+        int sendCount = 0;
+        for (int i = sendList.size() - 1; i >= 0; i--) {
+            final EventImpl event = sendList.get(i);
+            if (parentsOfSentEvents.contains(event) || !theirFilter.contains(event.getBaseHash())) {
+                send[i] = true;
+                sendCount++;
+                addIfNotNull(parentsOfSentEvents, event.getSelfParent());
+                addIfNotNull(parentsOfSentEvents, event.getOtherParent());
+            }
+        }
+
+        if (sendCount == sendList.size()) {
+            return sendList;
+        }
+        final List<EventImpl> filteredList = new ArrayList<>(sendCount);
+        for (int i = 0; i < send.length; i++) {
+            if (send[i]) {
+                filteredList.add(sendList.get(i));
+            }
+        }
+        return filteredList;
+    }
+
+    private static void addIfNotNull(@NonNull final Set<EventImpl> set, @Nullable final EventImpl event) {
+        if (event != null) {
+            set.add(event);
+        }
+    }
+
     /**
      * Returns a predicate that determines if a {@link ShadowEvent}'s generation is non-ancient for the peer and greater
      * than this node's minimum non-expired generation, and is not already known.
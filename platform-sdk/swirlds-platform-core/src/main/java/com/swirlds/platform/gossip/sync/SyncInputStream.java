@@ -18,6 +18,8 @@ package com.swirlds.platform.gossip.sync;
 
 import static com.swirlds.common.io.extendable.ExtendableInputStream.extendInputStream;
 
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.bloom.hasher.HashBloomHasher;
 import com.swirlds.common.config.SocketConfig;
 import com.swirlds.common.context.PlatformContext;
 import com.swirlds.common.crypto.Hash;
@@ -111,6 +113,20 @@ public class SyncInputStream extends SerializableDataInputStream {
         return readSerializableList(numberOfNodes * MAX_TIPS_PER_NODE, false, Hash::new);
     }
 
+    /**
+     * Read the other node's bloom filter of event hashes
+     *
+     * @param maxFilterSizeInBits the largest filter that will be accepted
+     * @param maxHashCount        the largest number of hashes per event that will be accepted
+     * @throws IOException is a stream exception occurs, or if the filter is too large or does not use a
+     *                     {@link HashBloomHasher}
+     */
+    public BloomFilter<Hash> readEventFilter(final long maxFilterSizeInBits, final int maxHashCount)
+            throws IOException {
+        return readSerializable(
+                false, () -> new BloomFilter<>(maxFilterSizeInBits, maxHashCount, HashBloomHasher::new));
+    }
+
     public GossipEvent readEventData() throws IOException {
         return readSerializable(false, GossipEvent::new);
     }
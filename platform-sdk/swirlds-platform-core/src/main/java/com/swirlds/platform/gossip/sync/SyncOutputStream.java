@@ -18,6 +18,7 @@ package com.swirlds.platform.gossip.sync;
 
 import static com.swirlds.common.io.extendable.ExtendableOutputStream.extendOutputStream;
 
+import com.swirlds.common.bloom.BloomFilter;
 import com.swirlds.common.config.SocketConfig;
 import com.swirlds.common.context.PlatformContext;
 import com.swirlds.common.crypto.Hash;
@@ -134,6 +135,16 @@ public class SyncOutputStream extends SerializableDataOutputStream {
         writeSerializableList(tipHashes, false, true);
     }
 
+    /**
+     * Write a bloom filter of the hashes of the events this node has
+     *
+     * @param filter the filter to write
+     * @throws IOException iff the {@link SyncOutputStream} throws
+     */
+    public void writeEventFilter(final BloomFilter<Hash> filter) throws IOException {
+        writeSerializable(filter, false);
+    }
+
     /**
      * Write event data
      *
@@ -43,6 +43,17 @@ import java.time.Duration;
  *                                        during a sync
  * @param maxSyncTime                     the maximum amount of time to spend syncing with a peer, syncs that take
  *                                        longer than this will be aborted
+ * @param concurrentShadowGraph           if true, use a shadow graph whose queries never block, so that concurrent
+ *                                        syncs do not contend with each other or with event intake
+ * @param eventFilterEnabled              if true, each peer sends a bloom filter of the hashes of its recent events
+ *                                        during a sync, and events the peer very probably has are not sent. Both
+ *                                        peers must use the same value, since this changes the sync protocol.
+ * @param eventFilterGenerations          ignored if {@link #eventFilterEnabled} is false. The number of generations
+ *                                        below the highest tip generation whose events are added to the filter
+ * @param eventFilterBitsPerEvent         ignored if {@link #eventFilterEnabled} is false. The number of filter bits
+ *                                        per event in the filter. 10 bits give a false positive rate of about 1%.
+ * @param maxEventFilterBits              ignored if {@link #eventFilterEnabled} is false. The maximum size of a
+ *                                        filter, in bits. Larger filters received from a peer abort the sync.
  */
 @ConfigData("sync")
 public record SyncConfig(
@@ -55,4 +66,9 @@ public record SyncConfig(
         @ConfigProperty(defaultValue = "false") boolean filterLikelyDuplicates,
         @ConfigProperty(defaultValue = "3s") Duration nonAncestorFilterThreshold,
         @ConfigProperty(defaultValue = "500ms") Duration syncKeepalivePeriod,
-        @ConfigProperty(defaultValue = "1m") Duration maxSyncTime) {}
+        @ConfigProperty(defaultValue = "1m") Duration maxSyncTime,
+        @ConfigProperty(defaultValue = "false") boolean concurrentShadowGraph,
+        @ConfigProperty(defaultValue = "false") boolean eventFilterEnabled,
+        @ConfigProperty(defaultValue = "20") int eventFilterGenerations,
+        @ConfigProperty(defaultValue = "10") int eventFilterBitsPerEvent,
+        @ConfigProperty(defaultValue = "8388608") long maxEventFilterBits) {}
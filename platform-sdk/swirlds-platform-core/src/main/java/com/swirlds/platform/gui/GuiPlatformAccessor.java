@@ -20,7 +20,7 @@ import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.platform.NodeId;
 import com.swirlds.platform.Consensus;
 import com.swirlds.platform.components.state.StateManagementComponent;
-import com.swirlds.platform.gossip.shadowgraph.ShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
 import com.swirlds.platform.internal.EventImpl;
 import com.swirlds.platform.system.events.PlatformEvent;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -42,7 +42,7 @@ import java.util.concurrent.atomic.AtomicReference;
 @Deprecated(forRemoval = true)
 public final class GuiPlatformAccessor {
 
-    private final Map<NodeId, ShadowGraph> shadowGraphs = new ConcurrentHashMap<>();
+    private final Map<NodeId, AbstractShadowGraph> shadowGraphs = new ConcurrentHashMap<>();
     private final Map<NodeId, StateManagementComponent> stateManagementComponents = new ConcurrentHashMap<>();
     private final Map<NodeId, AtomicReference<Consensus>> consensusReferences = new ConcurrentHashMap<>();
 
@@ -65,7 +65,7 @@ public final class GuiPlatformAccessor {
      * @param nodeId      the ID of the node
      * @param shadowGraph the shadow graph
      */
-    public void setShadowGraph(@NonNull final NodeId nodeId, @NonNull final ShadowGraph shadowGraph) {
+    public void setShadowGraph(@NonNull final NodeId nodeId, @NonNull final AbstractShadowGraph shadowGraph) {
         Objects.requireNonNull(nodeId, "nodeId must not be null");
         Objects.requireNonNull(shadowGraph, "shadowGraph must not be null");
         shadowGraphs.put(nodeId, shadowGraph);
@@ -78,7 +78,7 @@ public final class GuiPlatformAccessor {
      * @return the shadow graph
      */
     @Nullable
-    public ShadowGraph getShadowGraph(@NonNull NodeId nodeId) {
+    public AbstractShadowGraph getShadowGraph(@NonNull NodeId nodeId) {
         Objects.requireNonNull(nodeId, "nodeId must not be null");
         return shadowGraphs.getOrDefault(nodeId, null);
     }
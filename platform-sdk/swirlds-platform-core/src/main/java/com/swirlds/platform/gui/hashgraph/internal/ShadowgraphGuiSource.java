@@ -18,14 +18,14 @@ package com.swirlds.platform.gui.hashgraph.internal;
 
 import com.swirlds.platform.consensus.GraphGenerations;
 import com.swirlds.platform.event.EventUtils;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
 import com.swirlds.platform.gossip.shadowgraph.ShadowEvent;
-import com.swirlds.platform.gossip.shadowgraph.ShadowGraph;
 import com.swirlds.platform.gui.hashgraph.HashgraphGuiSource;
 import com.swirlds.platform.internal.EventImpl;
 import com.swirlds.platform.system.events.PlatformEvent;
 
 /**
- * A {@link HashgraphGuiSource} that retrieves events from a {@link ShadowGraph}
+ * A {@link HashgraphGuiSource} that retrieves events from a {@link AbstractShadowGraph}
  */
 public interface ShadowgraphGuiSource extends HashgraphGuiSource {
     @Override
@@ -49,5 +49,5 @@ public interface ShadowgraphGuiSource extends HashgraphGuiSource {
         return getShadowGraph() != null;
     }
 
-    ShadowGraph getShadowGraph();
+    AbstractShadowGraph getShadowGraph();
 }
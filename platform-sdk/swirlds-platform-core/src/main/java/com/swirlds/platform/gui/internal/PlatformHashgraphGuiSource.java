@@ -16,15 +16,15 @@
 
 package com.swirlds.platform.gui.internal;
 
-import com.swirlds.platform.gossip.shadowgraph.ShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
 import com.swirlds.platform.gui.GuiPlatformAccessor;
 import com.swirlds.platform.gui.hashgraph.internal.ShadowgraphGuiSource;
 import com.swirlds.platform.system.Platform;
 import com.swirlds.platform.system.address.AddressBook;
 
 /**
- * A {@link ShadowgraphGuiSource} that retrieves the {@link ShadowGraph} from the platform that is being displayed by the
- * browser
+ * A {@link ShadowgraphGuiSource} that retrieves the {@link AbstractShadowGraph} from the platform that is being
+ * displayed by the browser
  */
 public class PlatformHashgraphGuiSource implements ShadowgraphGuiSource {
 
@@ -39,7 +39,7 @@ public class PlatformHashgraphGuiSource implements ShadowgraphGuiSource {
     }
 
     @Override
-    public ShadowGraph getShadowGraph() {
+    public AbstractShadowGraph getShadowGraph() {
         final Platform platform = getPlatform();
         if (platform == null) {
             return null;
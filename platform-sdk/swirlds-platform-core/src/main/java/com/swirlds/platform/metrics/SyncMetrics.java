@@ -106,6 +106,13 @@ public class SyncMetrics {
             .withFormat(FORMAT_14_7);
     private final CountPerSecond syncsPerSec;
 
+    private static final CountPerSecond.Config DUPLICATE_EVENTS_PER_SECOND_CONFIG = new CountPerSecond.Config(
+                    PLATFORM_CATEGORY, "syncDupEv/sec")
+            .withDescription("events received per second during syncs that were already in the shadow graph, "
+                    + "only counted with event filters enabled")
+            .withFormat(FORMAT_14_7);
+    private final CountPerSecond duplicateEventsPerSec;
+
     private final RunningAverageMetric tipsPerSync;
 
     private final AverageStat syncGenerationDiff;
@@ -119,6 +126,8 @@ public class SyncMetrics {
     private final AverageStat knownSetSize;
     private final AverageAndMax avgEventsPerSyncSent;
     private final AverageAndMax avgEventsPerSyncRec;
+    private final AverageAndMax avgEventsPerSyncFiltered;
+    private final AverageStat eventFilterBytes;
     private final MaxStat multiTipsPerSync;
     private final AverageStat gensWaitingForExpiry;
 
@@ -141,6 +150,7 @@ public class SyncMetrics {
         opportunitiesToInitiateSyncPerSec = new CountPerSecond(metrics, OPPORTUNITIES_TO_INITIATE_SYNC_CONFIG);
         outgoingSyncRequestsPerSec = new CountPerSecond(metrics, OUTGOING_SYNC_REQUESTS_CONFIG);
         syncsPerSec = new CountPerSecond(metrics, SYNCS_PER_SECOND_CONFIG);
+        duplicateEventsPerSec = new CountPerSecond(metrics, DUPLICATE_EVENTS_PER_SECOND_CONFIG);
 
         avgSyncDuration = new AverageAndMaxTimeStat(
                 metrics,
@@ -153,6 +163,19 @@ public class SyncMetrics {
                 metrics, PLATFORM_CATEGORY, "ev/syncS", "number of events sent per successful sync", FORMAT_8_1);
         avgEventsPerSyncRec = new AverageAndMax(
                 metrics, PLATFORM_CATEGORY, "ev/syncR", "number of events received per successful sync", FORMAT_8_1);
+        avgEventsPerSyncFiltered = new AverageAndMax(
+                metrics,
+                PLATFORM_CATEGORY,
+                "ev/syncFiltered",
+                "number of events per sync not sent because the peer's event filter contains them",
+                FORMAT_8_1);
+        eventFilterBytes = new AverageStat(
+                metrics,
+                PLATFORM_CATEGORY,
+                "eventFilterBytes",
+                "the average size, in bytes, of the event filter sent to the peer during a sync",
+                FORMAT_10_3,
+                AverageStat.WEIGHT_VOLATILE);
 
         syncGenerationDiff = new AverageStat(
                 metrics,
@@ -309,6 +332,36 @@ public class SyncMetrics {
         avgEventsPerSyncRec.update(info.getEventsRead());
     }
 
+    /**
+     * Called by {@link ShadowGraphSynchronizer} when it has sent its event filter to the peer
+     *
+     * @param filterSizeInBits
+     * 		the size of the filter that was sent
+     */
+    public void eventFilterSent(final long filterSizeInBits) {
+        eventFilterBytes.update((long) Math.ceil(filterSizeInBits * UnitConstants.BITS_TO_BYTES));
+    }
+
+    /**
+     * Called by {@link ShadowGraphSynchronizer} with the number of events left out of the send list because the
+     * peer's event filter contains them. Together with {@link #duplicateEventReceived()}, this measures how much
+     * event traffic the filter saves.
+     *
+     * @param eventCount
+     * 		the number of events that were not sent
+     */
+    public void eventsFiltered(final int eventCount) {
+        avgEventsPerSyncFiltered.update(eventCount);
+    }
+
+    /**
+     * Indicate that an event received during a sync was already in the shadow graph. Only counted if event filters
+     * are enabled and events are hashed on the gossip threads, as events hashed by intake can't be checked.
+     */
+    public void duplicateEventReceived() {
+        duplicateEventsPerSec.count();
+    }
+
     /**
      * Called by {@link ShadowGraphSynchronizer} to update the {@code tips/sync} statistic with the number of creators
      * that have more than one {@code sendTip} in the current synchronization.
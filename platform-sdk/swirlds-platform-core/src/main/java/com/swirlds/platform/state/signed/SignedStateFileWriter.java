@@ -35,6 +35,7 @@ import com.swirlds.common.io.streams.MerkleDataOutputStream;
 import com.swirlds.common.merkle.utility.MerkleTreeVisualizer;
 import com.swirlds.common.platform.NodeId;
 import com.swirlds.logging.legacy.payload.StateSavedToDiskPayload;
+import com.swirlds.merkledb.MerkleDb;
 import com.swirlds.platform.recovery.emergencyfile.EmergencyRecoveryFile;
 import com.swirlds.platform.state.State;
 import com.swirlds.platform.system.address.AddressBook;
@@ -213,9 +214,17 @@ public final class SignedStateFileWriter {
                     stateToDiskReason == null ? "UNKNOWN" : stateToDiskReason,
                     savedStateDirectory);
 
-            executeAndRename(
-                    savedStateDirectory,
-                    directory -> writeSignedStateFilesToDirectory(platformContext, selfId, directory, signedState));
+            // Periodic snapshots are frequent, so MerkleDB data sources only write changes since the previous
+            // snapshot for them. All other states are written in full
+            final boolean incremental = stateToDiskReason == StateToDiskReason.PERIODIC_SNAPSHOT;
+            executeAndRename(savedStateDirectory, directory -> {
+                if (incremental) {
+                    MerkleDb.runWithIncrementalSnapshots(() ->
+                            writeSignedStateFilesToDirectory(platformContext, selfId, directory, signedState));
+                } else {
+                    writeSignedStateFilesToDirectory(platformContext, selfId, directory, signedState);
+                }
+            });
 
             logger.info(STATE_TO_DISK.getMarker(), () -> new StateSavedToDiskPayload(
                             signedState.getRound(),
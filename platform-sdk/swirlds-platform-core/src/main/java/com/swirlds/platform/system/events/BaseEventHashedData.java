@@ -33,7 +33,10 @@ import com.swirlds.platform.system.address.AddressBook;
 import com.swirlds.platform.system.transaction.ConsensusTransactionImpl;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
@@ -53,6 +56,27 @@ public class BaseEventHashedData extends AbstractSerializableHashable
     public static final int TO_STRING_BYTE_ARRAY_LENGTH = 5;
     private static final long CLASS_ID = 0x21c2620e9b6a2243L;
 
+    /**
+     * A generous estimate of the serialized size of everything but the transactions, in bytes.
+     */
+    private static final int SERIALIZED_FIELDS_ESTIMATE = 512;
+
+    /**
+     * Marks that the serialized bytes were released by {@link #releaseSerializedBytes()} and must not be cached again.
+     */
+    private static final byte[] RELEASED = new byte[0];
+
+    private static final VarHandle SERIALIZED_BYTES;
+
+    static {
+        try {
+            SERIALIZED_BYTES = MethodHandles.lookup()
+                    .findVarHandle(BaseEventHashedData.class, "serializedBytes", byte[].class);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     public static class ClassVersion {
         /**
          * In this version, the transactions contained by this event are encoded using
@@ -106,6 +130,14 @@ public class BaseEventHashedData extends AbstractSerializableHashable
     /** the payload: an array of transactions */
     private ConsensusTransactionImpl[] transactions;
 
+    /**
+     * The {@link EventSerializationOptions#FULL} serialization of this object, computed the first time it is needed.
+     * This data never changes, so the same bytes are used to hash the event, to gossip it, and to write it to the
+     * preconsensus event stream. Set to {@link #RELEASED} once the event leaves the gossip window, after that the
+     * fields are serialized on every call.
+     */
+    private volatile byte[] serializedBytes;
+
     public BaseEventHashedData() {}
 
     /**
@@ -154,6 +186,54 @@ public class BaseEventHashedData extends AbstractSerializableHashable
     public void serialize(
             @NonNull final SerializableDataOutputStream out, @NonNull final EventSerializationOptions option)
             throws IOException {
+        if (option == EventSerializationOptions.FULL) {
+            final byte[] bytes = getSerializedBytes();
+            if (bytes != RELEASED) {
+                out.write(bytes);
+                return;
+            }
+        }
+        serializeFields(out, option);
+    }
+
+    /**
+     * Get the {@link EventSerializationOptions#FULL} serialization of this object, serializing it if this has not
+     * been done yet. The returned array must not be modified.
+     *
+     * @return the serialized bytes, or {@link #RELEASED} if they have been released
+     */
+    @NonNull
+    private byte[] getSerializedBytes() throws IOException {
+        byte[] bytes = serializedBytes;
+        if (bytes == null) {
+            // Transactions are the bulk of an event, size the buffer so that it rarely has to grow
+            final int sizeEstimate = SERIALIZED_FIELDS_ESTIMATE + getSerializedLength(transactions, true, false);
+            final ByteArrayOutputStream byteStream = new ByteArrayOutputStream(sizeEstimate);
+            try (final SerializableDataOutputStream out = new SerializableDataOutputStream(byteStream)) {
+                serializeFields(out, EventSerializationOptions.FULL);
+            }
+            bytes = byteStream.toByteArray();
+            // Concurrent callers may both serialize, but they produce identical bytes. A failed exchange means
+            // another caller got there first, or the bytes were released meanwhile and must not be cached again.
+            final byte[] witness = (byte[]) SERIALIZED_BYTES.compareAndExchange(this, null, bytes);
+            if (witness == RELEASED) {
+                return RELEASED;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Drop the cached {@link EventSerializationOptions#FULL} serialization of this object. Called when the event is
+     * no longer needed for gossip. Later serializations still work, but are no longer cached.
+     */
+    public void releaseSerializedBytes() {
+        serializedBytes = RELEASED;
+    }
+
+    private void serializeFields(
+            @NonNull final SerializableDataOutputStream out, @NonNull final EventSerializationOptions option)
+            throws IOException {
         out.writeSerializable(softwareVersion, true);
         if (serializedVersion < ClassVersion.BIRTH_ROUND) {
             out.writeLong(creatorId.id());
@@ -200,6 +280,7 @@ public class BaseEventHashedData extends AbstractSerializableHashable
             @NonNull final SerializableDataInputStream in, final int version, final int maxTransactionCount)
             throws IOException {
         Objects.requireNonNull(in, "The input stream must not be null");
+        serializedBytes = null;
         serializedVersion = version;
         if (version >= ClassVersion.SOFTWARE_VERSION) {
             softwareVersion = in.readSerializable();
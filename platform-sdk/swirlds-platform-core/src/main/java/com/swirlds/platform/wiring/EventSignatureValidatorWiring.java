@@ -17,20 +17,26 @@
 package com.swirlds.platform.wiring;
 
 import com.swirlds.common.wiring.schedulers.TaskScheduler;
+import com.swirlds.common.wiring.wires.input.Bindable;
 import com.swirlds.common.wiring.wires.input.BindableInputWire;
 import com.swirlds.common.wiring.wires.input.InputWire;
 import com.swirlds.common.wiring.wires.output.OutputWire;
 import com.swirlds.platform.event.GossipEvent;
 import com.swirlds.platform.event.validation.AddressBookUpdate;
-import com.swirlds.platform.event.validation.EventSignatureValidator;
+import com.swirlds.platform.event.validation.BatchingEventSignatureValidator;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 
 /**
- * Wiring for the {@link EventSignatureValidator}.
+ * Wiring for the {@link BatchingEventSignatureValidator}.
  *
  * @param eventInput                       the input wire for events with unvalidated signatures
  * @param minimumGenerationNonAncientInput the input wire for the minimum generation non-ancient
  * @param addressBookUpdateInput           the input wire for address book updates
+ * @param batchDeadlineInput               the heartbeat that verifies partially filled batches
+ * @param flushInput                       the input wire to verify the current batch, regardless of its size
  * @param eventOutput                      the output wire for events with validated signatures
  * @param flushRunnable                    the runnable to flush the validator
  */
@@ -38,6 +44,8 @@ public record EventSignatureValidatorWiring(
         @NonNull InputWire<GossipEvent> eventInput,
         @NonNull InputWire<Long> minimumGenerationNonAncientInput,
         @NonNull InputWire<AddressBookUpdate> addressBookUpdateInput,
+        @NonNull Bindable<Instant, List<GossipEvent>> batchDeadlineInput,
+        @NonNull InputWire<FlushTrigger> flushInput,
         @NonNull OutputWire<GossipEvent> eventOutput,
         @NonNull Runnable flushRunnable) {
 
@@ -45,15 +53,26 @@ public record EventSignatureValidatorWiring(
      * Create a new instance of this wiring.
      *
      * @param taskScheduler the task scheduler for this validator
+     * @param maxBatchDelay the maximum amount of time an event waits in a partially filled batch
      * @return the new wiring instance
      */
-    public static EventSignatureValidatorWiring create(@NonNull final TaskScheduler<GossipEvent> taskScheduler) {
+    public static EventSignatureValidatorWiring create(
+            @NonNull final TaskScheduler<List<GossipEvent>> taskScheduler, @NonNull final Duration maxBatchDelay) {
+
+        final InputWire<FlushTrigger> flushInput = taskScheduler.buildInputWire("flush");
+
         return new EventSignatureValidatorWiring(
                 taskScheduler.buildInputWire("events with unvalidated signatures"),
                 taskScheduler.buildInputWire("minimum generation non ancient"),
                 taskScheduler.buildInputWire("address book update"),
-                taskScheduler.getOutputWire(),
-                taskScheduler::flush);
+                taskScheduler.buildHeartbeatInputWire("batch deadline", maxBatchDelay),
+                flushInput,
+                taskScheduler.getOutputWire().buildSplitter(),
+                () -> {
+                    // events held in a partially filled batch must be released before the scheduler is flushed
+                    flushInput.inject(new FlushTrigger());
+                    taskScheduler.flush();
+                });
     }
 
     /**
@@ -61,11 +80,13 @@ public record EventSignatureValidatorWiring(
      *
      * @param eventSignatureValidator the event signature validator to bind
      */
-    public void bind(@NonNull final EventSignatureValidator eventSignatureValidator) {
-        ((BindableInputWire<GossipEvent, GossipEvent>) eventInput).bind(eventSignatureValidator::validateSignature);
-        ((BindableInputWire<Long, GossipEvent>) minimumGenerationNonAncientInput)
+    public void bind(@NonNull final BatchingEventSignatureValidator eventSignatureValidator) {
+        ((BindableInputWire<GossipEvent, List<GossipEvent>>) eventInput).bind(eventSignatureValidator::addEvent);
+        ((BindableInputWire<Long, List<GossipEvent>>) minimumGenerationNonAncientInput)
                 .bind(eventSignatureValidator::setMinimumGenerationNonAncient);
-        ((BindableInputWire<AddressBookUpdate, GossipEvent>) addressBookUpdateInput)
+        ((BindableInputWire<AddressBookUpdate, List<GossipEvent>>) addressBookUpdateInput)
                 .bind(eventSignatureValidator::updateAddressBooks);
+        batchDeadlineInput.bind(eventSignatureValidator::checkBatchDeadline);
+        ((BindableInputWire<FlushTrigger, List<GossipEvent>>) flushInput).bind(eventSignatureValidator::flush);
     }
 }
@@ -35,7 +35,7 @@ import com.swirlds.platform.event.linking.InOrderLinker;
 import com.swirlds.platform.event.orphan.OrphanBuffer;
 import com.swirlds.platform.event.preconsensus.PreconsensusEventWriter;
 import com.swirlds.platform.event.validation.AddressBookUpdate;
-import com.swirlds.platform.event.validation.EventSignatureValidator;
+import com.swirlds.platform.event.validation.BatchingEventSignatureValidator;
 import com.swirlds.platform.event.validation.InternalEventValidator;
 import com.swirlds.platform.state.signed.ReservedSignedState;
 import com.swirlds.platform.state.signed.SignedStateFileManager;
@@ -61,6 +61,12 @@ public class PlatformWiring implements Startable, Stoppable, Clearable {
 
     private final PlatformCoordinator platformCoordinator;
 
+    /**
+     * The event signature validator bound to the intake pipeline. Owns threads that must be released when the wiring
+     * is stopped. Null until the intake is bound, and always null when the legacy intake is used.
+     */
+    private BatchingEventSignatureValidator eventSignatureValidator;
+
     /**
      * Constructor.
      *
@@ -79,8 +85,12 @@ public class PlatformWiring implements Startable, Stoppable, Clearable {
             internalEventValidatorWiring =
                     InternalEventValidatorWiring.create(schedulers.internalEventValidatorScheduler());
             eventDeduplicatorWiring = EventDeduplicatorWiring.create(schedulers.eventDeduplicatorScheduler());
-            eventSignatureValidatorWiring =
-                    EventSignatureValidatorWiring.create(schedulers.eventSignatureValidatorScheduler());
+            eventSignatureValidatorWiring = EventSignatureValidatorWiring.create(
+                    schedulers.eventSignatureValidatorScheduler(),
+                    platformContext
+                            .getConfiguration()
+                            .getConfigData(EventConfig.class)
+                            .signatureVerificationBatchDelay());
             orphanBufferWiring = OrphanBufferWiring.create(schedulers.orphanBufferScheduler());
             inOrderLinkerWiring = InOrderLinkerWiring.create(schedulers.inOrderLinkerScheduler());
             linkedEventIntakeWiring = LinkedEventIntakeWiring.create(schedulers.linkedEventIntakeScheduler());
@@ -193,7 +203,7 @@ public class PlatformWiring implements Startable, Stoppable, Clearable {
     public void bindIntake(
             @NonNull final InternalEventValidator internalEventValidator,
             @NonNull final EventDeduplicator eventDeduplicator,
-            @NonNull final EventSignatureValidator eventSignatureValidator,
+            @NonNull final BatchingEventSignatureValidator eventSignatureValidator,
             @NonNull final OrphanBuffer orphanBuffer,
             @NonNull final InOrderLinker inOrderLinker,
             @NonNull final LinkedEventIntake linkedEventIntake) {
@@ -201,6 +211,7 @@ public class PlatformWiring implements Startable, Stoppable, Clearable {
         internalEventValidatorWiring.bind(internalEventValidator);
         eventDeduplicatorWiring.bind(eventDeduplicator);
         eventSignatureValidatorWiring.bind(eventSignatureValidator);
+        this.eventSignatureValidator = eventSignatureValidator;
         orphanBufferWiring.bind(orphanBuffer);
         inOrderLinkerWiring.bind(inOrderLinker);
         linkedEventIntakeWiring.bind(linkedEventIntake);
@@ -297,6 +308,9 @@ public class PlatformWiring implements Startable, Stoppable, Clearable {
     @Override
     public void stop() {
         model.stop();
+        if (eventSignatureValidator != null) {
+            eventSignatureValidator.stop();
+        }
     }
 
     /**
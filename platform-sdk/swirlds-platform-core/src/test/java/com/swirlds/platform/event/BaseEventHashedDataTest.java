@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.event;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.swirlds.common.constructable.ConstructableRegistry;
+import com.swirlds.common.constructable.ConstructableRegistryException;
+import com.swirlds.common.crypto.CryptographyHolder;
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.platform.system.events.BaseEventHashedData;
+import com.swirlds.platform.system.events.EventSerializationOptions;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class BaseEventHashedDataTest {
+
+    private static final int MAX_TRANSACTION_COUNT = 1000;
+
+    @BeforeAll
+    static void setUp() throws ConstructableRegistryException {
+        ConstructableRegistry.getInstance().registerConstructables("com.swirlds");
+    }
+
+    private static byte[] serialize(final BaseEventHashedData hashedData, final EventSerializationOptions option)
+            throws IOException {
+        final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        try (final SerializableDataOutputStream out = new SerializableDataOutputStream(byteStream)) {
+            hashedData.serialize(out, option);
+        }
+        return byteStream.toByteArray();
+    }
+
+    private static BaseEventHashedData deserialize(final byte[] bytes, final int version) throws IOException {
+        final BaseEventHashedData hashedData = new BaseEventHashedData();
+        try (final SerializableDataInputStream in = new SerializableDataInputStream(new ByteArrayInputStream(bytes))) {
+            hashedData.deserialize(in, version, MAX_TRANSACTION_COUNT);
+        }
+        return hashedData;
+    }
+
+    @Test
+    void cachedSerializationRoundTrip() throws IOException {
+        final BaseEventHashedData hashedData = DetGenerateUtils.generateBaseEventHashedData(new Random(2348790542L));
+
+        final byte[] first = serialize(hashedData, EventSerializationOptions.FULL);
+        assertArrayEquals(first, serialize(hashedData, EventSerializationOptions.FULL));
+
+        // An event received from a peer serializes and hashes exactly like the original
+        final BaseEventHashedData copy = deserialize(first, hashedData.getVersion());
+        assertEquals(hashedData, copy);
+        assertArrayEquals(first, serialize(copy, EventSerializationOptions.FULL));
+        assertEquals(CryptographyHolder.get().digestSync(hashedData), CryptographyHolder.get().digestSync(copy));
+    }
+
+    @Test
+    void omitTransactionsAfterCaching() throws IOException {
+        final BaseEventHashedData hashedData = DetGenerateUtils.generateBaseEventHashedData(new Random(9023411L));
+        assertTrue(hashedData.getTransactions().length > 0);
+
+        final byte[] full = serialize(hashedData, EventSerializationOptions.FULL);
+        final byte[] omitted = serialize(hashedData, EventSerializationOptions.OMIT_TRANSACTIONS);
+        assertTrue(omitted.length < full.length, "transactions must not be written");
+
+        final BaseEventHashedData copy = deserialize(omitted, hashedData.getVersion());
+        assertTrue(copy.getTransactions() == null || copy.getTransactions().length == 0);
+        assertEquals(hashedData.getTimeCreated(), copy.getTimeCreated());
+    }
+
+    @Test
+    void serializationAfterRelease() throws IOException {
+        final BaseEventHashedData hashedData = DetGenerateUtils.generateBaseEventHashedData(new Random(55120983L));
+        final byte[] full = serialize(hashedData, EventSerializationOptions.FULL);
+
+        hashedData.releaseSerializedBytes();
+        assertArrayEquals(full, serialize(hashedData, EventSerializationOptions.FULL));
+        assertArrayEquals(full, serialize(hashedData, EventSerializationOptions.FULL));
+    }
+
+    @Test
+    void deserializeResetsCachedBytes() throws IOException {
+        final BaseEventHashedData first = DetGenerateUtils.generateBaseEventHashedData(new Random(7741002L));
+        final BaseEventHashedData second = DetGenerateUtils.generateBaseEventHashedData(new Random(3190577L));
+        final byte[] secondBytes = serialize(second, EventSerializationOptions.FULL);
+
+        // Deserializing into an instance that already cached its bytes must not keep the stale bytes
+        serialize(first, EventSerializationOptions.FULL);
+        try (final SerializableDataInputStream in =
+                new SerializableDataInputStream(new ByteArrayInputStream(secondBytes))) {
+            first.deserialize(in, second.getVersion(), MAX_TRANSACTION_COUNT);
+        }
+        assertEquals(second, first);
+        assertArrayEquals(secondBytes, serialize(first, EventSerializationOptions.FULL));
+    }
+}
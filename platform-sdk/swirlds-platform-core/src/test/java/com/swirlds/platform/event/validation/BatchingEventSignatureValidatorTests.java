@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.event.validation;
+
+import static com.swirlds.common.threading.manager.AdHocThreadManager.getStaticThreadManager;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.swirlds.base.test.fixtures.time.FakeTime;
+import com.swirlds.common.context.PlatformContext;
+import com.swirlds.platform.event.GossipEvent;
+import com.swirlds.platform.system.address.AddressBook;
+import com.swirlds.platform.wiring.FlushTrigger;
+import com.swirlds.test.framework.config.TestConfigBuilder;
+import com.swirlds.test.framework.context.TestPlatformContextBuilder;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class BatchingEventSignatureValidatorTests {
+
+    /**
+     * Events that the mock validator rejects.
+     */
+    private Set<GossipEvent> invalidEvents;
+
+    private EventSignatureValidator eventSignatureValidator;
+
+    /**
+     * Validators built by the current test, stopped after the test to release their threads.
+     */
+    private final List<BatchingEventSignatureValidator> validators = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        invalidEvents = ConcurrentHashMap.newKeySet();
+        eventSignatureValidator = mock(EventSignatureValidator.class);
+        when(eventSignatureValidator.validateSignature(any())).thenAnswer(invocation -> {
+            final GossipEvent event = invocation.getArgument(0);
+            return invalidEvents.contains(event) ? null : event;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        validators.forEach(BatchingEventSignatureValidator::stop);
+        validators.clear();
+    }
+
+    /**
+     * Build a batching validator with the given configuration.
+     *
+     * @param batchSize   the maximum batch size
+     * @param threadCount the number of verification threads
+     * @return the batching validator
+     */
+    @NonNull
+    private BatchingEventSignatureValidator buildValidator(final int batchSize, final int threadCount) {
+        final PlatformContext platformContext = TestPlatformContextBuilder.create()
+                .withConfiguration(new TestConfigBuilder()
+                        .withValue("event.signatureVerificationBatchSize", batchSize)
+                        .withValue("event.signatureVerificationThreadCount", threadCount)
+                        .getOrCreateConfig())
+                .build();
+
+        final BatchingEventSignatureValidator validator = new BatchingEventSignatureValidator(
+                platformContext, getStaticThreadManager(), new FakeTime(), eventSignatureValidator);
+        validators.add(validator);
+        return validator;
+    }
+
+    @NonNull
+    private static List<GossipEvent> generateEvents(final int count) {
+        final List<GossipEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(mock(GossipEvent.class));
+        }
+        return events;
+    }
+
+    @Test
+    @DisplayName("Events are held until the batch is full")
+    void eventsHeldUntilBatchIsFull() {
+        final BatchingEventSignatureValidator validator = buildValidator(4, 3);
+        final List<GossipEvent> events = generateEvents(4);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(validator.addEvent(events.get(i)).isEmpty());
+        }
+        assertEquals(events, validator.addEvent(events.get(3)));
+    }
+
+    @Test
+    @DisplayName("Invalid events are removed, and valid events keep their order")
+    void invalidEventsRemovedInOrder() {
+        final int eventCount = 101;
+        final BatchingEventSignatureValidator validator = buildValidator(eventCount, 4);
+        final List<GossipEvent> events = generateEvents(eventCount);
+
+        final List<GossipEvent> expected = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            if (i % 3 == 0) {
+                invalidEvents.add(events.get(i));
+            } else {
+                expected.add(events.get(i));
+            }
+        }
+
+        final List<GossipEvent> output = new ArrayList<>();
+        for (final GossipEvent event : events) {
+            output.addAll(validator.addEvent(event));
+        }
+        assertEquals(expected, output);
+    }
+
+    @Test
+    @DisplayName("Partially filled batches are released by the deadline and by flushing")
+    void partialBatchesReleased() {
+        final BatchingEventSignatureValidator validator = buildValidator(100, 0);
+        final List<GossipEvent> events = generateEvents(3);
+
+        assertTrue(validator.addEvent(events.get(0)).isEmpty());
+        assertTrue(validator.addEvent(events.get(1)).isEmpty());
+        assertEquals(events.subList(0, 2), validator.checkBatchDeadline(Instant.now()));
+        assertTrue(validator.checkBatchDeadline(Instant.now()).isEmpty());
+
+        assertTrue(validator.addEvent(events.get(2)).isEmpty());
+        assertEquals(events.subList(2, 3), validator.flush(new FlushTrigger()));
+        assertTrue(validator.flush(new FlushTrigger()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Pending events are verified before the validator is updated")
+    void pendingEventsVerifiedBeforeUpdates() {
+        final BatchingEventSignatureValidator validator = buildValidator(100, 2);
+        final List<GossipEvent> events = generateEvents(4);
+
+        validator.addEvent(events.get(0));
+        validator.addEvent(events.get(1));
+        assertEquals(events.subList(0, 2), validator.setMinimumGenerationNonAncient(5));
+
+        validator.addEvent(events.get(2));
+        validator.addEvent(events.get(3));
+        final AddressBookUpdate update = new AddressBookUpdate(new AddressBook(), new AddressBook());
+        assertEquals(events.subList(2, 4), validator.updateAddressBooks(update));
+
+        final InOrder inOrder = inOrder(eventSignatureValidator);
+        inOrder.verify(eventSignatureValidator).validateSignature(events.get(1));
+        inOrder.verify(eventSignatureValidator).setMinimumGenerationNonAncient(5);
+        inOrder.verify(eventSignatureValidator).validateSignature(events.get(3));
+        inOrder.verify(eventSignatureValidator).updateAddressBooks(update);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.gossip.shadowgraph;
+
+import static com.swirlds.common.test.fixtures.RandomUtils.getRandomPrintSeed;
+import static com.swirlds.common.test.fixtures.RandomUtils.randomHash;
+import static com.swirlds.platform.gossip.shadowgraph.ShadowEventIndex.NO_EVENT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.platform.internal.EventImpl;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link ShadowEventIndex} class
+ */
+class ShadowEventIndexTest {
+    private Random random;
+    private ShadowEventIndex index;
+
+    @BeforeEach
+    void setup() {
+        random = getRandomPrintSeed();
+        index = new ShadowEventIndex();
+    }
+
+    private ShadowEvent newShadow(final long generation) {
+        final EventImpl event = mock(EventImpl.class);
+        final Hash hash = randomHash(random);
+        when(event.getBaseHash()).thenReturn(hash);
+        when(event.getGeneration()).thenReturn(generation);
+        return new ShadowEvent(event);
+    }
+
+    @Test
+    @DisplayName("Lookups by hash and generation")
+    void lookups() {
+        final ShadowEvent parent = newShadow(1);
+        final ShadowEvent child = newShadow(2);
+        final int parentId = index.add(parent, NO_EVENT, NO_EVENT);
+        final int childId = index.add(child, parentId, NO_EVENT);
+
+        assertEquals(2, index.size());
+        assertEquals(parentId, index.find(parent.getEventBaseHash()));
+        assertEquals(childId, index.find(child));
+        assertEquals(NO_EVENT, index.find(randomHash(random)));
+        assertEquals(NO_EVENT, index.find((Hash) null));
+        assertSame(child, index.get(childId));
+        assertNull(index.get(NO_EVENT));
+        assertEquals(parentId, index.getSelfParent(childId));
+        assertEquals(NO_EVENT, index.getOtherParent(childId));
+
+        final List<ShadowEvent> gen2 = new ArrayList<>();
+        index.forEachInGenerations(2, 3, gen2::add);
+        assertEquals(List.of(child), gen2);
+    }
+
+    @Test
+    @DisplayName("Removed parents are not resolved through reused ids")
+    void removedParentsAreForgotten() {
+        final ShadowEvent parent = newShadow(1);
+        final int parentId = index.add(parent, NO_EVENT, NO_EVENT);
+        final ShadowEvent child = newShadow(2);
+        final int childId = index.add(child, parentId, NO_EVENT);
+
+        final List<ShadowEvent> removed = new ArrayList<>();
+        assertTrue(index.removeGeneration(1, removed::add));
+        assertEquals(List.of(parent), removed);
+        assertFalse(index.removeGeneration(1, removed::add), "a generation can only be removed once");
+        assertEquals(NO_EVENT, index.find(parent));
+        assertEquals(NO_EVENT, parent.getIndexId());
+
+        // The freed id is reused by the next event, which must not be mistaken for the old parent
+        final int reusedId = index.add(newShadow(3), NO_EVENT, NO_EVENT);
+        assertEquals(parentId, reusedId);
+        assertEquals(NO_EVENT, index.getSelfParent(childId));
+        assertEquals(0, index.findAncestors(List.of(child), () -> 0, s -> true).size());
+    }
+
+    @Test
+    @DisplayName("Matches a hash map through growth and removal")
+    void matchesHashMap() {
+        final Map<Hash, ShadowEvent> expected = new HashMap<>();
+        for (long generation = 0; generation < 200; generation++) {
+            for (int i = 0; i < 50; i++) {
+                final ShadowEvent shadow = newShadow(generation);
+                index.add(shadow, NO_EVENT, NO_EVENT);
+                expected.put(shadow.getEventBaseHash(), shadow);
+            }
+            if (generation >= 100) {
+                assertTrue(index.removeGeneration(generation - 100, s -> expected.remove(s.getEventBaseHash())));
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        for (final ShadowEvent shadow : expected.values()) {
+            assertSame(shadow, index.get(index.find(shadow.getEventBaseHash())));
+        }
+        final Set<ShadowEvent> all = new HashSet<>();
+        index.forEach(all::add);
+        assertEquals(new HashSet<>(expected.values()), all);
+    }
+
+    @Test
+    @DisplayName("Ancestor search honors the minimum generation and the predicate")
+    void findAncestors() {
+        // a chain of self parents with an other parent at every step
+        int previous = NO_EVENT;
+        final List<ShadowEvent> others = new ArrayList<>();
+        for (long generation = 0; generation < 10; generation++) {
+            final ShadowEvent other = newShadow(generation);
+            others.add(other);
+            previous = index.add(newShadow(generation + 1), previous, index.add(other, NO_EVENT, NO_EVENT));
+        }
+        final List<ShadowEvent> tip = List.of(index.get(previous));
+
+        assertEquals(19, index.findAncestors(tip, () -> 0, s -> true).size());
+        // generations 5 to 9, for both the self parents and the other parents
+        assertEquals(10, index.findAncestors(tip, () -> 5, s -> true).size());
+
+        final ShadowEvent excluded = others.get(9);
+        final List<ShadowEvent> withoutOther = index.findAncestors(tip, () -> 0, s -> s != excluded);
+        assertEquals(18, withoutOther.size());
+        assertFalse(withoutOther.contains(excluded));
+        assertEquals(0, index.findAncestors(List.of(newShadow(0)), () -> 0, s -> true).size());
+    }
+}
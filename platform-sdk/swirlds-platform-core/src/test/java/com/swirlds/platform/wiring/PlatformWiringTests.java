@@ -26,7 +26,7 @@ import com.swirlds.platform.components.LinkedEventIntake;
 import com.swirlds.platform.event.deduplication.EventDeduplicator;
 import com.swirlds.platform.event.linking.InOrderLinker;
 import com.swirlds.platform.event.orphan.OrphanBuffer;
-import com.swirlds.platform.event.validation.EventSignatureValidator;
+import com.swirlds.platform.event.validation.BatchingEventSignatureValidator;
 import com.swirlds.platform.event.validation.InternalEventValidator;
 import com.swirlds.platform.state.signed.SignedStateFileManager;
 import com.swirlds.test.framework.config.TestConfigBuilder;
@@ -70,7 +70,7 @@ class PlatformWiringTests {
         wiring.bindIntake(
                 mock(InternalEventValidator.class),
                 mock(EventDeduplicator.class),
-                mock(EventSignatureValidator.class),
+                mock(BatchingEventSignatureValidator.class),
                 mock(OrphanBuffer.class),
                 mock(InOrderLinker.class),
                 mock(LinkedEventIntake.class));
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.platform.test.sync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.test.fixtures.RandomAddressBookGenerator;
+import com.swirlds.common.test.fixtures.RandomUtils;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.ConcurrentShadowGraph;
+import com.swirlds.platform.gossip.shadowgraph.GenerationReservation;
+import com.swirlds.platform.gossip.shadowgraph.ShadowEvent;
+import com.swirlds.platform.metrics.SyncMetrics;
+import com.swirlds.platform.system.address.AddressBook;
+import com.swirlds.platform.test.event.emitter.EventEmitterFactory;
+import com.swirlds.platform.test.event.emitter.StandardEventEmitter;
+import com.swirlds.platform.test.fixtures.event.IndexedEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs all {@link ShadowGraphTest} tests against {@link ConcurrentShadowGraph}, plus tests for concurrent access.
+ */
+@DisplayName("Concurrent Shadow Graph Tests")
+class ConcurrentShadowGraphTest extends ShadowGraphTest {
+
+    @Override
+    protected AbstractShadowGraph newShadowGraph() {
+        return new ConcurrentShadowGraph(mock(SyncMetrics.class));
+    }
+
+    @Test
+    @DisplayName("Readers see consistent tips while events are added and expired")
+    void readersDuringIntakeAndExpiry() throws Exception {
+        final Random random = RandomUtils.getRandomPrintSeed();
+        final AddressBook addressBook =
+                new RandomAddressBookGenerator(random).setSize(4).build();
+        final StandardEventEmitter emitter = new EventEmitterFactory(random, addressBook).newStandardEmitter();
+        final AbstractShadowGraph shadowGraph = newShadowGraph();
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        try (final GenerationReservation reservation = shadowGraph.reserve()) {
+                            final List<ShadowEvent> tips = shadowGraph.getTips();
+                            for (final ShadowEvent tip : tips) {
+                                final Hash selfParentHash = tip.getEvent().getSelfParentHash();
+                                assertFalse(
+                                        tips.stream().anyMatch(t -> t.getEventBaseHash().equals(selfParentHash)),
+                                        "a tip's self parent must never be a tip in the same snapshot");
+                            }
+                            final Set<ShadowEvent> ancestors = shadowGraph.findAncestors(tips, e -> true);
+                            for (final ShadowEvent ancestor : ancestors) {
+                                if (ancestor.getEvent().getGeneration() >= reservation.getGeneration()) {
+                                    assertTrue(
+                                            shadowGraph.isHashInGraph(ancestor.getEventBaseHash()),
+                                            "reserved generations must not be expired");
+                                }
+                            }
+                        }
+                    }
+                } catch (final Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        final List<IndexedEvent> events = new ArrayList<>();
+        long maxGeneration = 0;
+        for (int i = 0; i < 5_000; i++) {
+            final IndexedEvent event = emitter.emitEvent();
+            events.add(event);
+            shadowGraph.addEvent(event);
+            maxGeneration = Math.max(maxGeneration, event.getGeneration());
+            if (i % 100 == 99) {
+                shadowGraph.expireBelow(Math.max(0, maxGeneration - 20));
+            }
+        }
+        done.set(true);
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get(), "readers should not observe inconsistent state");
+
+        final long expireBelow = Math.max(0, maxGeneration - 20);
+        shadowGraph.expireBelow(expireBelow);
+        final Set<IndexedEvent> expected = new HashSet<>();
+        for (final IndexedEvent event : events) {
+            if (event.getGeneration() >= expireBelow) {
+                expected.add(event);
+                assertTrue(shadowGraph.isHashInGraph(event.getBaseHash()), "unexpired events should be present");
+            } else {
+                assertFalse(shadowGraph.isHashInGraph(event.getBaseHash()), "expired events should be removed");
+            }
+        }
+        assertEquals(expected.size(), shadowGraph.getAllEvents().length, "unexpected number of events");
+    }
+}
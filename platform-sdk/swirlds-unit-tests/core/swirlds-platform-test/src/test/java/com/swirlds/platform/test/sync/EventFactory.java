@@ -45,7 +45,7 @@ public class EventFactory {
     public static ShadowEvent makeShadow(final ShadowEvent selfParent, final ShadowEvent otherParent) {
         final EventImpl e = makeEvent(
                 selfParent == null ? null : selfParent.getEvent(), otherParent == null ? null : otherParent.getEvent());
-        return new ShadowEvent(e, selfParent, otherParent);
+        return new ShadowEvent(e);
     }
 
     public static EventImpl makeEventWithRandomHash() {
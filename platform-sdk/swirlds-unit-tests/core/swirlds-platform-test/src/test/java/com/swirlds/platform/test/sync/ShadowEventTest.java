@@ -16,11 +16,9 @@
 
 package com.swirlds.platform.test.sync;
 
-import static com.swirlds.platform.test.sync.EventEquality.identicalHashes;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -35,27 +33,15 @@ class ShadowEventTest {
     @Test
     @DisplayName("toString")
     void testToString() {
-        final EventImpl e = EventFactory.makeEventWithRandomHash();
         final EventImpl esp = EventFactory.makeEventWithRandomHash();
         final EventImpl eop = EventFactory.makeEventWithRandomHash();
-        final EventImpl esc = EventFactory.makeEventWithRandomHash();
-        final EventImpl eoc = EventFactory.makeEventWithRandomHash();
-
-        final ShadowEvent ssp = new ShadowEvent(esp);
-        final ShadowEvent sop = new ShadowEvent(eop);
-        final ShadowEvent ssc = new ShadowEvent(esc);
-        final ShadowEvent soc = new ShadowEvent(eoc);
+        final EventImpl e = EventFactory.makeEvent(esp, eop);
 
-        final ShadowEvent s = new ShadowEvent(e, ssp, sop);
-        String str;
-
-        str = s.toString();
+        final ShadowEvent s = new ShadowEvent(e);
+        final String str = s.toString();
 
         assertTrue(str.contains("sp"), "a shadow event string should annotate its self-parent");
         assertTrue(str.contains("op"), "a shadow event string should annotate its other-parent");
-
-        final EventImpl esc2 = EventFactory.makeEventWithRandomHash();
-        final ShadowEvent ssc2 = new ShadowEvent(esc2, s, sop);
     }
 
     @Test
@@ -80,109 +66,23 @@ class ShadowEventTest {
     }
 
     @Test
-    @DisplayName("parent and children getters")
+    @DisplayName("event getter")
     void testGetters() {
         final EventImpl e = EventFactory.makeEventWithRandomHash();
-        final EventImpl esp = EventFactory.makeEventWithRandomHash();
-        final EventImpl eop = EventFactory.makeEventWithRandomHash();
-        final EventImpl esc = EventFactory.makeEventWithRandomHash();
-        final EventImpl eoc = EventFactory.makeEventWithRandomHash();
 
-        final ShadowEvent ssp = new ShadowEvent(esp);
-        final ShadowEvent sop = new ShadowEvent(eop);
-        final ShadowEvent ssc = new ShadowEvent(esc);
-        final ShadowEvent soc = new ShadowEvent(eoc);
-
-        final ShadowEvent s = new ShadowEvent(e, ssp, sop);
-
-        assertTrue(identicalHashes(s.getSelfParent().getEvent(), ssp.getEvent()), "expected SP");
-        assertTrue(identicalHashes(s.getOtherParent().getEvent(), sop.getEvent()), "expected OP");
+        final ShadowEvent s = new ShadowEvent(e);
 
         assertSame(s.getEvent(), e, "getting the EventImpl should give the EventImpl instnace itself");
     }
 
-    @Test
-    @DisplayName("disconnect an event")
-    void testDisconnect() {
-        final EventImpl e = EventFactory.makeEventWithRandomHash();
-        final EventImpl esp = EventFactory.makeEventWithRandomHash();
-        final EventImpl eop = EventFactory.makeEventWithRandomHash();
-
-        final ShadowEvent ssp = new ShadowEvent(esp);
-        final ShadowEvent sop = new ShadowEvent(eop);
-
-        final ShadowEvent s = new ShadowEvent(e, ssp, sop);
-
-        assertNotNull(s.getSelfParent(), "SP should not be null before disconnect");
-
-        assertNotNull(s.getOtherParent(), "OP should not be null before disconnect");
-
-        s.disconnect();
-
-        assertNull(s.getSelfParent(), "SP should be null after disconnect");
-
-        assertNull(s.getOtherParent(), "OP should be null after disconnect");
-    }
-
     @Test
     @DisplayName("the hash of a shadow event is the hash of the referenced hashgraph event")
     void testHash() {
         final EventImpl e = EventFactory.makeEventWithRandomHash();
-        final EventImpl esp = EventFactory.makeEventWithRandomHash();
-        final EventImpl eop = EventFactory.makeEventWithRandomHash();
 
-        // Parents, unlinked
-        final ShadowEvent ssp = new ShadowEvent(esp);
-        final ShadowEvent sop = new ShadowEvent(eop);
-
-        // The shadow event, linked
-        final ShadowEvent s = new ShadowEvent(e, ssp, sop);
+        final ShadowEvent s = new ShadowEvent(e);
 
         // The hash of an event Shadow is the hash of the event
         assertEquals(e.getBaseHash(), s.getEventBaseHash(), "false");
     }
-
-    @Test
-    @DisplayName("parents linked by construction")
-    void testLinkedConstruction() {
-        final EventImpl e = EventFactory.makeEventWithRandomHash();
-        final EventImpl esp = EventFactory.makeEventWithRandomHash();
-        final EventImpl eop = EventFactory.makeEventWithRandomHash();
-
-        // Parents, unlinked
-        final ShadowEvent ssp = new ShadowEvent(esp);
-        final ShadowEvent sop = new ShadowEvent(eop);
-
-        // The shadow event, linked
-        final ShadowEvent s = new ShadowEvent(e, ssp, sop);
-
-        testLinkedConstruction(s, ssp, sop);
-    }
-
-    private static void testLinkedConstruction(final ShadowEvent s, final ShadowEvent ssp, final ShadowEvent sop) {
-        testSP(s, ssp);
-        testOP(s, sop);
-    }
-
-    @Test
-    @DisplayName("no links when constructed without other events")
-    void testUnlinkedConstruction() {
-        final EventImpl e = EventFactory.makeEventWithRandomHash();
-        final ShadowEvent s = new ShadowEvent(e);
-
-        testUnlinkedConstruction(s);
-    }
-
-    private static void testUnlinkedConstruction(final ShadowEvent s) {
-        assertNull(s.getSelfParent(), "");
-        assertNull(s.getOtherParent(), "");
-    }
-
-    private static void testSP(final ShadowEvent s, final ShadowEvent ssp) {
-        assertEquals(ssp, s.getSelfParent(), "expect given SP == SP of shadow event");
-    }
-
-    private static void testOP(final ShadowEvent s, final ShadowEvent sop) {
-        assertEquals(sop, s.getOtherParent(), "expect given OP == OP of shadow event");
-    }
 }
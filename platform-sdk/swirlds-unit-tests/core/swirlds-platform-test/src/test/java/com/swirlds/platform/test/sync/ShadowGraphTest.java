@@ -33,6 +33,7 @@ import com.swirlds.common.test.fixtures.RandomAddressBookGenerator;
 import com.swirlds.common.test.fixtures.RandomUtils;
 import com.swirlds.common.utility.CommonUtils;
 import com.swirlds.platform.event.EventUtils;
+import com.swirlds.platform.gossip.shadowgraph.AbstractShadowGraph;
 import com.swirlds.platform.gossip.shadowgraph.GenerationReservation;
 import com.swirlds.platform.gossip.shadowgraph.ShadowEvent;
 import com.swirlds.platform.gossip.shadowgraph.ShadowGraph;
@@ -71,7 +72,7 @@ class ShadowGraphTest {
 
     private List<IndexedEvent> generatedEvents;
     private HashMap<Hash, Set<Hash>> ancestorsMap;
-    private ShadowGraph shadowGraph;
+    private AbstractShadowGraph shadowGraph;
     private Map<Long, Set<ShadowEvent>> genToShadows;
     private long maxGen;
     private StandardEventEmitter emitter;
@@ -87,6 +88,13 @@ class ShadowGraphTest {
                 Arguments.of(1000, 10));
     }
 
+    /**
+     * Creates the shadow graph under test.
+     */
+    protected AbstractShadowGraph newShadowGraph() {
+        return new ShadowGraph(mock(SyncMetrics.class));
+    }
+
     @BeforeEach
     public void setup() {
         ancestorsMap = new HashMap<>();
@@ -99,7 +107,7 @@ class ShadowGraphTest {
         final EventEmitterFactory factory = new EventEmitterFactory(random, addressBook);
         emitter = factory.newStandardEmitter();
 
-        shadowGraph = new ShadowGraph(mock(SyncMetrics.class));
+        shadowGraph = newShadowGraph();
 
         for (int i = 0; i < numEvents; i++) {
             IndexedEvent event = emitter.emitEvent();
@@ -383,9 +391,11 @@ class ShadowGraphTest {
             if (gen < expireBelowGen) {
                 shadowSet.forEach((shadow) -> {
                     assertNull(
-                            shadow.getSelfParent(), "Expired events should have their self parent reference nulled.");
+                            shadow.getEvent().getSelfParent(),
+                            "Expired events should have their self parent reference nulled.");
                     assertNull(
-                            shadow.getOtherParent(), "Expired events should have their other parent reference nulled.");
+                            shadow.getEvent().getOtherParent(),
+                            "Expired events should have their other parent reference nulled.");
                     assertFalse(
                             shadowGraph.isHashInGraph(shadow.getEventBaseHash()),
                             "Events in an expire generation should not be in the shadow graph.");
@@ -605,7 +615,7 @@ class ShadowGraphTest {
                     "There are no forks, so the number of tips should stay the same.");
             assertTrue(shadowGraph.getTips().contains(tipShadow), "The tips should now contain the new tip.");
             assertFalse(
-                    shadowGraph.getTips().contains(tipShadow.getSelfParent()),
+                    shadowGraph.getTips().contains(shadowGraph.shadow(newTip.getSelfParent())),
                     "The tips should not contain the new tip's self parent.");
         }
     }
@@ -653,27 +663,27 @@ class ShadowGraphTest {
     }
 
     @Test
-    @DisplayName("Test that clear() disconnect all shadow events in the shadow graph")
+    @DisplayName("Test that clear() disconnect all events in the shadow graph")
     void testClearDisconnects() {
         Random random = RandomUtils.getRandomPrintSeed();
         initShadowGraph(random, 100, 4);
 
         List<ShadowEvent> tips = shadowGraph.getTips();
-        Set<ShadowEvent> shadows = new HashSet<>();
+        Set<EventImpl> events = new HashSet<>();
         for (ShadowEvent tip : tips) {
-            ShadowEvent sp = tip.getSelfParent();
+            EventImpl sp = tip.getEvent().getSelfParent();
             while (sp != null) {
-                shadows.add(sp);
+                events.add(sp);
                 sp = sp.getSelfParent();
             }
-            shadows.add(tip);
+            events.add(tip.getEvent());
         }
 
         shadowGraph.clear();
 
-        for (ShadowEvent s : shadows) {
-            assertNull(s.getSelfParent(), "after a clear, all parents should be disconnected");
-            assertNull(s.getOtherParent(), "after a clear, all parents should be disconnected");
+        for (EventImpl e : events) {
+            assertNull(e.getSelfParent(), "after a clear, all parents should be disconnected");
+            assertNull(e.getOtherParent(), "after a clear, all parents should be disconnected");
         }
     }
 
@@ -707,7 +717,7 @@ class ShadowGraphTest {
 
     @Test
     void testInitFromEvents_NullEventList() {
-        shadowGraph = new ShadowGraph(mock(SyncMetrics.class));
+        shadowGraph = newShadowGraph();
         assertThrows(
                 IllegalArgumentException.class,
                 () -> shadowGraph.initFromEvents(null, 0L),
@@ -716,7 +726,7 @@ class ShadowGraphTest {
 
     @Test
     void testInitFromEvents_EmptyEventList() {
-        shadowGraph = new ShadowGraph(mock(SyncMetrics.class));
+        shadowGraph = newShadowGraph();
         final List<EventImpl> empty = Collections.emptyList();
         assertThrows(
                 IllegalArgumentException.class,
@@ -733,7 +743,7 @@ class ShadowGraphTest {
                 new RandomAddressBookGenerator(random).setSize(4).build();
         final EventEmitterFactory factory = new EventEmitterFactory(random, addressBook);
         emitter = factory.newStandardEmitter();
-        shadowGraph = new ShadowGraph(mock(SyncMetrics.class));
+        shadowGraph = newShadowGraph();
 
         List<IndexedEvent> events = emitter.emitEvents(20);
         List<EventImpl> filteredEvents = events.stream()
@@ -760,7 +770,7 @@ class ShadowGraphTest {
                 new RandomAddressBookGenerator(random).setSize(4).build();
         final EventEmitterFactory factory = new EventEmitterFactory(random, addressBook);
         emitter = factory.newStandardEmitter();
-        shadowGraph = new ShadowGraph(mock(SyncMetrics.class));
+        shadowGraph = newShadowGraph();
 
         List<IndexedEvent> events = emitter.emitEvents(20);
         List<EventImpl> filteredEvents =
@@ -785,7 +795,7 @@ class ShadowGraphTest {
                 new RandomAddressBookGenerator(random).setSize(4).build();
         final EventEmitterFactory factory = new EventEmitterFactory(random, addressBook);
         emitter = factory.newStandardEmitter();
-        shadowGraph = new ShadowGraph(mock(SyncMetrics.class));
+        shadowGraph = newShadowGraph();
 
         List<IndexedEvent> events = emitter.emitEvents(20);
         List<EventImpl> filteredEvents =
@@ -814,7 +824,7 @@ class ShadowGraphTest {
                 new RandomAddressBookGenerator(random).setSize(numNodes).build();
         final EventEmitterFactory factory = new EventEmitterFactory(random, addressBook);
         emitter = factory.newStandardEmitter();
-        shadowGraph = new ShadowGraph(mock(SyncMetrics.class));
+        shadowGraph = newShadowGraph();
         for (int i = 0; i < numEvents; i++) {
             shadowGraph.addEvent(emitter.emitEvent());
         }
@@ -19,12 +19,15 @@ package com.swirlds.platform.test.sync;
 import static com.swirlds.common.test.fixtures.RandomUtils.getRandomPrintSeed;
 import static com.swirlds.common.test.fixtures.RandomUtils.randomHash;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.swirlds.base.test.fixtures.time.FakeTime;
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.bloom.hasher.HashBloomHasher;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.platform.NodeId;
 import com.swirlds.common.utility.CompareTo;
@@ -104,18 +107,18 @@ class SyncFilteringTest {
 
         final List<ShadowEvent> tips = new ArrayList<>();
         for (final EventImpl event : tipMap.values()) {
-            final ShadowEvent shadowEvent = new ShadowEvent(event, null, null);
+            final ShadowEvent shadowEvent = new ShadowEvent(event);
             tips.add(shadowEvent);
         }
         when(shadowGraph.getTips()).thenReturn(tips);
 
         final Set<ShadowEvent> ancestorShadowEvents = new HashSet<>();
         for (final EventImpl event : ancestors) {
-            final ShadowEvent shadowEvent = new ShadowEvent(event, null, null);
+            final ShadowEvent shadowEvent = new ShadowEvent(event);
             ancestorShadowEvents.add(shadowEvent);
         }
         for (final EventImpl event : selfEvents) {
-            final ShadowEvent shadowEvent = new ShadowEvent(event, null, null);
+            final ShadowEvent shadowEvent = new ShadowEvent(event);
             ancestorShadowEvents.add(shadowEvent);
         }
         when(shadowGraph.findAncestors(any(), any())).thenReturn(ancestorShadowEvents);
@@ -152,4 +155,42 @@ class SyncFilteringTest {
             clock.tick(Duration.ofMillis(random.nextInt(25, 100)));
         }
     }
+
+    @Test
+    void filterEventsTheyHaveTest() {
+        final Random random = getRandomPrintSeed();
+
+        // Chain A (events 0 to 99) is known to the peer, chain B (events 100 to 199) is not. The first event of
+        // chain B has event 50 as its other parent.
+        final List<EventImpl> sendList = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final EventImpl event = mock(EventImpl.class);
+            final Hash hash = randomHash(random);
+            when(event.getBaseHash()).thenReturn(hash);
+            if (i != 0 && i != 100) {
+                final EventImpl selfParent = sendList.get(i - 1);
+                when(event.getSelfParent()).thenReturn(selfParent);
+            }
+            if (i == 100) {
+                final EventImpl otherParent = sendList.get(50);
+                when(event.getOtherParent()).thenReturn(otherParent);
+            }
+            sendList.add(event);
+        }
+
+        final BloomFilter<Hash> theirFilter = new BloomFilter<>(7, new HashBloomHasher(random.nextLong()), 1_000_000);
+        for (int i = 0; i < 100; i++) {
+            theirFilter.add(sendList.get(i).getBaseHash());
+        }
+
+        final List<EventImpl> filteredEvents = SyncUtils.filterEventsTheyHave(sendList, theirFilter);
+
+        // Events 51 to 99 are skipped, the rest must be sent because they are ancestors of events the peer needs
+        final List<EventImpl> expectedEvents = new ArrayList<>(sendList.subList(0, 51));
+        expectedEvents.addAll(sendList.subList(100, 200));
+        assertEquals(expectedEvents, filteredEvents);
+
+        final BloomFilter<Hash> emptyFilter = new BloomFilter<>(7, new HashBloomHasher(random.nextLong()), 1_000);
+        assertSame(sendList, SyncUtils.filterEventsTheyHave(sendList, emptyFilter), "nothing should be filtered");
+    }
 }
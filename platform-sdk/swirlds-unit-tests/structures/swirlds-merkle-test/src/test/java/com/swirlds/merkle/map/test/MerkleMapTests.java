@@ -38,6 +38,7 @@ import com.swirlds.common.merkle.MerkleInternal;
 import com.swirlds.common.merkle.MerkleNode;
 import com.swirlds.common.merkle.crypto.MerkleCryptoFactory;
 import com.swirlds.common.merkle.crypto.MerkleCryptography;
+import com.swirlds.common.merkle.hash.MerkleHashChecker;
 import com.swirlds.common.merkle.impl.PartialNaryMerkleInternal;
 import com.swirlds.common.merkle.utility.Keyed;
 import com.swirlds.common.merkle.utility.KeyedMerkleLong;
@@ -69,6 +70,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -1165,4 +1167,58 @@ class MerkleMapTests {
         mm3.release();
         mm4.release();
     }
+
+    @Test
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.MMAP)
+    @DisplayName("Hashing Dirty Subtrees Produces Valid Hashes")
+    void hashingDirtySubtreesProducesValidHashes() {
+        final Random random = new Random(1234);
+        final List<MerkleMap<Key, Value>> copies = new ArrayList<>();
+
+        MerkleMap<Key, Value> map = new MerkleMap<>();
+        MerkleMapTestUtil.insertIntoMap(0, 10_000, map);
+        int nextIndex = 10_000;
+
+        for (int round = 0; round < 10; round++) {
+            final MerkleMap<Key, Value> immutableMap = map;
+            map = map.copy();
+            copies.add(immutableMap);
+
+            final Hash hash = immutableMap.hashDirtySubtrees(cryptography);
+            assertNotNull(hash, "map should be hashed");
+            assertEquals(hash, immutableMap.getHash(), "returned hash should be the hash of the map");
+            assertEquals(
+                    0,
+                    MerkleHashChecker.getNodesWithInvalidHashes(immutableMap).size(),
+                    "all hashes should be present and valid");
+
+            for (int i = 0; i < 200; i++) {
+                final int index = random.nextInt(nextIndex);
+                final Key key = new Key(new long[] {index, index, index});
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        final Value value = map.getForModify(key);
+                        if (value != null) {
+                            value.setBalance(random.nextLong());
+                        }
+                    }
+                    case 1 -> map.remove(key);
+                    case 2 -> {
+                        if (map.containsKey(key)) {
+                            map.replace(key, new Value(index, round, i, true));
+                        }
+                    }
+                    default -> {
+                        final Key newKey = new Key(new long[] {nextIndex, nextIndex, nextIndex});
+                        map.put(newKey, new Value(nextIndex, round, i, false));
+                        nextIndex++;
+                    }
+                }
+            }
+        }
+
+        map.release();
+        copies.forEach(MerkleMap::release);
+    }
 }
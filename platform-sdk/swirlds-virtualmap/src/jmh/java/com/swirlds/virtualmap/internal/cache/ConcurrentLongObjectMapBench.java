@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.cache; // NOSONAR: Needed to benchmark internal classes
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link ConcurrentLongObjectMap} with {@link ConcurrentHashMap}, which was used for the path indices
+ * in {@link VirtualNodeCache} before, on the same access pattern: a compute per new path.
+ * Run with {@code -prof gc} to see bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConcurrentLongObjectMapBench {
+
+    private static final int BATCH_SIZE = 100_000;
+
+    @Param({"0", "1000000"})
+    public long firstPath;
+
+    private final Object value = new Object();
+
+    private Map<Long, Object> hashMap;
+    private ConcurrentLongObjectMap<Object> longMap;
+
+    @Setup(Level.Invocation)
+    public void newMaps() {
+        hashMap = new ConcurrentHashMap<>();
+        longMap = new ConcurrentLongObjectMap<>();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void computeConcurrentHashMap() {
+        for (long path = firstPath; path < firstPath + BATCH_SIZE; path++) {
+            hashMap.compute(path, (k, v) -> value);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void computeConcurrentLongObjectMap() {
+        for (long path = firstPath; path < firstPath + BATCH_SIZE; path++) {
+            longMap.compute(path, (k, v) -> value);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.cache; // NOSONAR: Needed to benchmark internal classes
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import com.swirlds.virtualmap.internal.hash.VirtualHasherBench.BenchKey;
+import com.swirlds.virtualmap.internal.hash.VirtualHasherBench.BenchValue;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link VirtualNodeCache#putLeaf(VirtualLeafRecord)} and {@link VirtualNodeCache#putHash(long, Hash)}
+ * into a fresh cache copy. Leaf records and hashes are created in advance, so allocations reported by
+ * {@code -prof gc} ({@code gc.alloc.rate.norm}, bytes per operation) are the cache's own: mutations,
+ * dirty arrays, and path and key indices.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VirtualNodeCacheBench {
+
+    private static final int BATCH_SIZE = 100_000;
+
+    private List<VirtualLeafRecord<BenchKey, BenchValue>> leaves;
+    private Hash[] hashes;
+
+    private VirtualNodeCache<BenchKey, BenchValue> cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        leaves = IntStream.range(0, BATCH_SIZE)
+                .mapToObj(i -> new VirtualLeafRecord<>(BATCH_SIZE - 1L + i, new BenchKey(i), new BenchValue(i)))
+                .toList();
+        final Random random = new Random(1234);
+        hashes = new Hash[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final byte[] bytes = new byte[48];
+            random.nextBytes(bytes);
+            hashes[i] = new Hash(bytes);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newCache() {
+        cache = new VirtualNodeCache<>();
+        // Internal hashes are only mutable after the copy is made
+        cache.copy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void putLeaf() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            cache.putLeaf(leaves.get(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void putHash() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            cache.putHash(i, hashes[i]);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.hash; // NOSONAR: Needed to benchmark internal classes
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link VirtualHasher} with {@link LegacyVirtualHasher} on a tree where a given fraction of
+ * leaves is dirty. Clean hashes are served from memory, so only hashing itself is measured.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualHasherBench {
+
+    @Param({"1000000"})
+    public int leafCount;
+
+    @Param({"0.001", "0.01", "0.1", "1.0"})
+    public double dirtyFraction;
+
+    @Param({"forkJoin", "legacy"})
+    public String hasherImpl;
+
+    private final Random random = new Random(1234);
+
+    private long firstLeafPath;
+    private long lastLeafPath;
+    private List<VirtualLeafRecord<BenchKey, BenchValue>> allLeaves;
+    private Hash[] hashes;
+    private List<VirtualLeafRecord<BenchKey, BenchValue>> dirtyLeaves;
+
+    private VirtualHasher<BenchKey, BenchValue> hasher;
+    private LegacyVirtualHasher<BenchKey, BenchValue> legacyHasher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        firstLeafPath = leafCount - 1L;
+        lastLeafPath = leafCount * 2L - 2;
+        allLeaves = LongStream.rangeClosed(firstLeafPath, lastLeafPath)
+                .mapToObj(path -> new VirtualLeafRecord<>(path, new BenchKey(path), new BenchValue(path)))
+                .toList();
+        hasher = new VirtualHasher<>();
+        legacyHasher = new LegacyVirtualHasher<>();
+
+        // Hash the whole tree once, so clean node hashes are available
+        hashes = new Hash[(int) lastLeafPath + 1];
+        hasher.hash(
+                path -> null, allLeaves.iterator(), firstLeafPath, lastLeafPath, new VirtualHashListener<>() {
+                    @Override
+                    public void onNodeHashed(final long path, final Hash hash) {
+                        hashes[(int) path] = hash;
+                    }
+                });
+    }
+
+    @Setup(Level.Iteration)
+    public void selectDirtyLeaves() {
+        dirtyLeaves = new ArrayList<>();
+        for (final VirtualLeafRecord<BenchKey, BenchValue> leaf : allLeaves) {
+            if (random.nextDouble() < dirtyFraction) {
+                dirtyLeaves.add(leaf);
+            }
+        }
+        if (dirtyLeaves.isEmpty()) {
+            dirtyLeaves.add(allLeaves.get(allLeaves.size() - 1));
+        }
+    }
+
+    @Benchmark
+    public Hash hash() {
+        if ("legacy".equals(hasherImpl)) {
+            return legacyHasher.hash(path -> hashes[(int) path], dirtyLeaves.iterator(), firstLeafPath, lastLeafPath);
+        }
+        return hasher.hash(path -> hashes[(int) path], dirtyLeaves.iterator(), firstLeafPath, lastLeafPath);
+    }
+
+    public static final class BenchKey implements VirtualKey {
+        private static final long CLASS_ID = 0x2b3a6c1e8f7d9042L;
+
+        private long key;
+
+        public BenchKey() {}
+
+        public BenchKey(final long key) {
+            this.key = key;
+        }
+
+        @Override
+        public long getClassId() {
+            return CLASS_ID;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void serialize(final SerializableDataOutputStream out) throws IOException {
+            out.writeLong(key);
+        }
+
+        @Override
+        public void deserialize(final SerializableDataInputStream in, final int version) throws IOException {
+            key = in.readLong();
+        }
+
+        @Override
+        public void serialize(final ByteBuffer buffer) {
+            buffer.putLong(key);
+        }
+
+        @Override
+        public void deserialize(final ByteBuffer buffer, final int version) {
+            key = buffer.getLong();
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof BenchKey other && key == other.key;
+        }
+    }
+
+    public static final class BenchValue implements VirtualValue {
+        private static final long CLASS_ID = 0x5c7e3d1a9b2f4e60L;
+
+        private long value;
+
+        public BenchValue() {}
+
+        public BenchValue(final long value) {
+            this.value = value;
+        }
+
+        @Override
+        public long getClassId() {
+            return CLASS_ID;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public BenchValue copy() {
+            return new BenchValue(value);
+        }
+
+        @Override
+        public VirtualValue asReadOnly() {
+            return this;
+        }
+
+        @Override
+        public void serialize(final SerializableDataOutputStream out) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public void deserialize(final SerializableDataInputStream in, final int version) throws IOException {
+            value = in.readLong();
+        }
+
+        @Override
+        public void serialize(final ByteBuffer buffer) {
+            buffer.putLong(value);
+        }
+
+        @Override
+        public void deserialize(final ByteBuffer buffer, final int version) {
+            value = buffer.getLong();
+        }
+    }
+}
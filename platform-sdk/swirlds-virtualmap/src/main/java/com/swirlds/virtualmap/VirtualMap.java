@@ -42,6 +42,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
@@ -449,6 +450,19 @@ public final class VirtualMap<K extends VirtualKey, V extends VirtualValue> exte
         return root.get(key);
     }
 
+    /**
+     * Gets the values associated with the given keys. This is the batch version of {@link
+     * #get(VirtualKey)}: all values not yet in memory are read from the data source in a single
+     * batch, rather than one by one. The returned values *WILL BE* immutable.
+     *
+     * @param keys
+     * 		The keys. Must not be null or contain nulls.
+     * @return The values in the iteration order of the keys. A value may be null, or will be read only.
+     */
+    public List<V> getAll(final Collection<K> keys) {
+        return root.getAll(keys);
+    }
+
     /**
      * Puts the key/value pair into the map. The key must not be null, but the value
      * may be null. The previous value, if it existed, is returned. If the entry was already in the map,
@@ -508,4 +522,16 @@ public final class VirtualMap<K extends VirtualKey, V extends VirtualValue> exte
     public void warm(final K key) {
         root.warm(key);
     }
+
+    /**
+     * Warms leaf records for multiple keys, see {@link #warm(VirtualKey)}. All leaf records are loaded
+     * in a single batch, which is much cheaper than warming the keys one by one, when records have to
+     * be read from disk. Like {@link #warm(VirtualKey)}, this method may be called on a background
+     * thread, while the map is used in other threads.
+     *
+     * @param keys keys of the leaves to warm
+     */
+    public void warmAll(final Collection<K> keys) {
+        root.warmAll(keys);
+    }
 }
@@ -76,6 +76,29 @@ import java.time.Duration;
  * 		increase the amount of time required to make a fast copy by this amount of time.
  * @param maximumFlushThrottlePeriod
  * 		The maximum amount of time that any virtual map fast copy will be delayed due to a flush backlog.
+ * @param flushMemoryBudget
+ *      Memory budget for all unflushed copies of a virtual map, in bytes. If greater than zero, flush thresholds
+ *      are adjusted to the measured flush throughput: a copy is flushed once it's large enough to take
+ *      {@link #targetFlushLatency} to flush, but not larger than half of this budget. Until the first flush,
+ *      {@link #copyFlushThreshold} is used. If set to zero, {@link #copyFlushThreshold} is always used. Only
+ *      used when {@link #copyFlushThreshold} is greater than zero.
+ * @param targetFlushLatency
+ *      Target time to flush a single virtual root copy. Only used when {@link #flushMemoryBudget} is set.
+ * @param offHeapLeafCacheEnabled
+ *      Whether to move values of dirty leaves of virtual node cache copies to off-heap memory, once the copies
+ *      are sealed after hashing. Values are then deserialized on demand, when leaves are queried or flushed to
+ *      disk. It reduces heap usage and GC pressure when many unflushed copies are kept in memory, at the cost
+ *      of extra serialization work.
+ * @param reconnectPrefetchBatchSize
+ *      The number of virtual nodes, in path order, the reconnect teacher reads ahead from the data source in a
+ *      single batch. If set to zero, the teacher doesn't read ahead and loads every node when it's sent.
+ * @param reconnectPrefetchQueueSize
+ *      The maximum number of batches the reconnect teacher may read ahead. Only used when {@link
+ *      #reconnectPrefetchBatchSize} is greater than zero.
+ * @param reconnectFlushBatchSize
+ *      The minimum number of leaves the reconnect learner accumulates before saving them to the data source.
+ *      Leaves and hashes are saved in path order. If set to zero, every hashed batch is saved as soon as it's
+ *      ready.
  */
 @ConfigData("virtualMap")
 public record VirtualMapConfig(
@@ -95,7 +118,13 @@ public record VirtualMapConfig(
         @ConfigProperty(defaultValue = "2000000000") long familyThrottleThreshold,
         @ConfigProperty(defaultValue = "10000") int preferredFlushQueueSize,
         @ConfigProperty(defaultValue = "200ms") Duration flushThrottleStepSize,
-        @ConfigProperty(defaultValue = "5s") Duration maximumFlushThrottlePeriod) {
+        @ConfigProperty(defaultValue = "5s") Duration maximumFlushThrottlePeriod,
+        @Min(0) @ConfigProperty(defaultValue = "0") long flushMemoryBudget,
+        @ConfigProperty(defaultValue = "2s") Duration targetFlushLatency,
+        @ConfigProperty(defaultValue = "false") boolean offHeapLeafCacheEnabled,
+        @Min(0) @ConfigProperty(defaultValue = "1024") int reconnectPrefetchBatchSize,
+        @Min(1) @ConfigProperty(defaultValue = "16") int reconnectPrefetchQueueSize,
+        @Min(0) @ConfigProperty(defaultValue = "500000") int reconnectFlushBatchSize) {
     private static final double UNIT_FRACTION_PERCENT = 100.0;
 
     public ConfigViolation virtualMapWarningIntervalValidation(final Configuration configuration) {
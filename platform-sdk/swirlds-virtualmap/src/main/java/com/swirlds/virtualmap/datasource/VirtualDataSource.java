@@ -23,6 +23,8 @@ import com.swirlds.virtualmap.VirtualKey;
 import com.swirlds.virtualmap.VirtualValue;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -109,6 +111,46 @@ public interface VirtualDataSource<K extends VirtualKey, V extends VirtualValue>
      */
     VirtualLeafRecord<K, V> loadLeafRecord(final long path) throws IOException;
 
+    /**
+     * Load the records for multiple leaf nodes by path in a batch. Data sources that store leaves on
+     * disk should override this method to read records located close to each other together. The
+     * default implementation loads records one by one using {@link #loadLeafRecord(long)}.
+     *
+     * @param paths
+     * 		the paths for leaves
+     * @return the leaves' records in the same order as the paths, a list element is null if no record
+     * 		was stored for the corresponding path
+     * @throws IOException
+     * 		If there was a problem reading the leaf records
+     */
+    default List<VirtualLeafRecord<K, V>> loadLeafRecords(final long[] paths) throws IOException {
+        final List<VirtualLeafRecord<K, V>> records = new ArrayList<>(paths.length);
+        for (final long path : paths) {
+            records.add(loadLeafRecord(path));
+        }
+        return records;
+    }
+
+    /**
+     * Load the records for multiple leaf nodes by key in a batch. Data sources that store leaves on
+     * disk should override this method to read records located close to each other together. The
+     * default implementation loads records one by one using {@link #loadLeafRecord(VirtualKey)}.
+     *
+     * @param keys
+     * 		the keys for leaves
+     * @return the leaves' records in the same order as the keys, a list element is null if no record
+     * 		was stored for the corresponding key
+     * @throws IOException
+     * 		If there was a problem reading the leaf records
+     */
+    default List<VirtualLeafRecord<K, V>> loadLeafRecords(final List<K> keys) throws IOException {
+        final List<VirtualLeafRecord<K, V>> records = new ArrayList<>(keys.size());
+        for (final K key : keys) {
+            records.add(loadLeafRecord(key));
+        }
+        return records;
+    }
+
     /**
      * Find the path of the given key
      * @param key
@@ -130,6 +172,25 @@ public interface VirtualDataSource<K extends VirtualKey, V extends VirtualValue>
      */
     Hash loadHash(final long path) throws IOException;
 
+    /**
+     * Load multiple virtual node hashes by path in a batch. Data sources that store hashes on disk
+     * should override this method to read hashes located close to each other together. The default
+     * implementation loads hashes one by one using {@link #loadHash(long)}.
+     *
+     * @param paths virtual node paths
+     * @return loaded hashes in the same order as the paths, a list element is null if no hash was
+     *      stored for the corresponding path
+     * @throws IOException
+     * 		If there was a problem loading the hashes from data source
+     */
+    default List<Hash> loadHashes(final long[] paths) throws IOException {
+        final List<Hash> hashes = new ArrayList<>(paths.length);
+        for (final long path : paths) {
+            hashes.add(loadHash(path));
+        }
+        return hashes;
+    }
+
     /**
      * Load a virtual node hash by path and, if found, write it to the specified output stream. This
      * method helps avoid (de)serialization overhead during reconnects on the teacher side. Instead of
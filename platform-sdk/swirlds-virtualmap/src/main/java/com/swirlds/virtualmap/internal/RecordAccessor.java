@@ -25,6 +25,7 @@ import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.internal.cache.VirtualNodeCache;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.List;
 
 /**
  * Provides access to all records.
@@ -49,6 +50,20 @@ public interface RecordAccessor<K extends VirtualKey, V extends VirtualValue> {
      */
     Hash findHash(long path);
 
+    /**
+     * Gets hashes at multiple paths. Hashes found in memory are returned as is, all other hashes
+     * are loaded from the data source in a single batch, see {@link VirtualDataSource#loadHashes(long[])}.
+     *
+     * @param paths
+     * 		Virtual node paths
+     * @return The hashes in the same order as the paths, a list element is null if there is no hash
+     * 		at the corresponding path.
+     * @throws UncheckedIOException
+     * 		If we fail to access the data store, then a catastrophic error occurred and
+     * 		an UncheckedIOException is thrown.
+     */
+    List<Hash> findHashes(long[] paths);
+
     /**
      * Looks up a virtual node hash for a given path. If the hash is found, writes it to a
      * specified output stream.
@@ -81,6 +96,23 @@ public interface RecordAccessor<K extends VirtualKey, V extends VirtualValue> {
      */
     VirtualLeafRecord<K, V> findLeafRecord(final K key, final boolean copy);
 
+    /**
+     * Locates and returns leaf nodes for multiple keys. Leaves found in memory are returned
+     * as is, all other leaves are loaded from the data source in a single batch, see {@link
+     * VirtualDataSource#loadLeafRecords(List)}. Loaded leaves are not saved in memory, this
+     * method is similar to calling {@link #findLeafRecord(VirtualKey, boolean)} with <code>copy</code>
+     * set to false for every key.
+     *
+     * @param keys
+     * 		The keys. Must not be null or contain nulls.
+     * @return The leaves in the same order as the keys, a list element is null if there is no
+     * 		leaf for the corresponding key.
+     * @throws UncheckedIOException
+     * 		If we fail to access the data store, then a catastrophic error occurred and
+     * 		an UncheckedIOException is thrown.
+     */
+    List<VirtualLeafRecord<K, V>> findLeafRecords(final List<K> keys);
+
     /**
      * Locates and returns a leaf node based on the path. If the leaf
      * node already exists in memory, then the same instance is returned each time.
@@ -99,6 +131,23 @@ public interface RecordAccessor<K extends VirtualKey, V extends VirtualValue> {
      */
     VirtualLeafRecord<K, V> findLeafRecord(final long path, final boolean copy);
 
+    /**
+     * Locates and returns leaf nodes for multiple paths. Leaves found in memory are returned
+     * as is, all other leaves are loaded from the data source in a single batch, see {@link
+     * VirtualDataSource#loadLeafRecords(long[])}. Loaded leaves are not saved in memory, this
+     * method is similar to calling {@link #findLeafRecord(long, boolean)} with <code>copy</code>
+     * set to false for every path.
+     *
+     * @param paths
+     * 		The paths
+     * @return The leaves in the same order as the paths, a list element is null if there is no
+     * 		leaf at the corresponding path.
+     * @throws UncheckedIOException
+     * 		If we fail to access the data store, then a catastrophic error occurred and
+     * 		an UncheckedIOException is thrown.
+     */
+    List<VirtualLeafRecord<K, V>> findLeafRecords(final long[] paths);
+
     /**
      * Finds the path of the given key.
      * @param key
@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.cache;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A concurrent map from primitive {@code long} keys to object values, optimized for use by the
+ * {@link VirtualNodeCache} as its path indices.
+ * <p>
+ * A {@link java.util.concurrent.ConcurrentHashMap} with {@link Long} keys boxes every key and allocates
+ * a node object for every entry. This map doesn't allocate anything on puts, except when it grows. It is
+ * split into a fixed number of segments, each an open addressing hash table with linear probing, and each
+ * guarded by its own {@link StampedLock}. Keys are assigned to segments by their hash, so updates to
+ * different segments never contend. Reads are usually lock-free: they first try an optimistic read, and
+ * only take the segment read lock if the segment was modified in the meantime.
+ * <p>
+ * Null values are not supported. Like in {@link java.util.concurrent.ConcurrentHashMap}, a remapping
+ * function that returns null removes the entry.
+ *
+ * @param <V>
+ * 		the value type
+ */
+final class ConcurrentLongObjectMap<V> {
+    /**
+     * The default number of segments. Must be a power of two.
+     */
+    private static final int DEFAULT_SEGMENT_COUNT = 64;
+
+    /**
+     * The initial capacity of each segment table. Must be a power of two.
+     */
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    /**
+     * A multiplier used to spread keys, which are mostly sequential paths, over segments and table slots.
+     */
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * A function to compute a new value for a key, given the current value. Used in
+     * {@link #compute(long, Remapping)}.
+     *
+     * @param <V>
+     * 		the value type
+     */
+    @FunctionalInterface
+    interface Remapping<V> {
+        /**
+         * @param key
+         * 		the key
+         * @param value
+         * 		the current value, or null if the key is not in the map
+         * @return the new value, or null to remove the key from the map
+         */
+        V apply(long key, V value);
+    }
+
+    /**
+     * A consumer of map entries. Used in {@link #forEach(EntryVisitor)}.
+     *
+     * @param <V>
+     * 		the value type
+     * @param <E>
+     * 		the type of exception the visitor may throw
+     */
+    @FunctionalInterface
+    interface EntryVisitor<V, E extends Exception> {
+        void accept(long key, V value) throws E;
+    }
+
+    private final Segment<V>[] segments;
+
+    private final int segmentMask;
+
+    /**
+     * Create a new {@link ConcurrentLongObjectMap} with {@link #DEFAULT_SEGMENT_COUNT} segments.
+     */
+    ConcurrentLongObjectMap() {
+        this(DEFAULT_SEGMENT_COUNT);
+    }
+
+    /**
+     * Create a new {@link ConcurrentLongObjectMap}.
+     *
+     * @param segmentCount
+     * 		the number of segments. Must be a positive power of two
+     */
+    @SuppressWarnings("unchecked")
+    ConcurrentLongObjectMap(final int segmentCount) {
+        if (segmentCount <= 0 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("Segment count must be a positive power of two: " + segmentCount);
+        }
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>();
+        }
+        segmentMask = segmentCount - 1;
+    }
+
+    /**
+     * Gets the value for the given key.
+     *
+     * @param key
+     * 		the key
+     * @return the value, or null if the key is not in the map
+     */
+    V get(final long key) {
+        final long hash = hash(key);
+        return segment(hash).get(key, hash);
+    }
+
+    /**
+     * Puts the given value for the given key.
+     *
+     * @param key
+     * 		the key
+     * @param value
+     * 		the value. Cannot be null
+     * @return the previous value, or null if the key was not in the map
+     */
+    V put(final long key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        final long hash = hash(key);
+        return segment(hash).put(key, hash, value);
+    }
+
+    /**
+     * Removes the given key from the map.
+     *
+     * @param key
+     * 		the key
+     * @return the removed value, or null if the key was not in the map
+     */
+    V remove(final long key) {
+        final long hash = hash(key);
+        return segment(hash).compute(key, hash, (k, v) -> null);
+    }
+
+    /**
+     * Atomically computes a new value for the given key. The remapping function is called while holding the
+     * lock of the key's segment, so it must be short and must not access this map.
+     *
+     * @param key
+     * 		the key
+     * @param remapping
+     * 		the function to compute the new value. If it returns null, the key is removed from the map
+     * @return the new value, or null if the key is not in the map anymore
+     */
+    V compute(final long key, final Remapping<V> remapping) {
+        final long hash = hash(key);
+        return segment(hash).compute(key, hash, remapping);
+    }
+
+    /**
+     * Gets the number of entries in the map. Under concurrent updates, the result is an estimate.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        int size = 0;
+        for (final Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Calls the given visitor for every entry in the map, one segment at a time. The visitor is called while
+     * holding the segment read lock, so it must not modify this map. Entries added or removed concurrently
+     * may or may not be visited.
+     *
+     * @param visitor
+     * 		the visitor
+     * @param <E>
+     * 		the type of exception the visitor may throw
+     * @throws E
+     * 		if the visitor throws
+     */
+    <E extends Exception> void forEach(final EntryVisitor<V, E> visitor) throws E {
+        for (final Segment<V> segment : segments) {
+            segment.forEach(visitor);
+        }
+    }
+
+    private Segment<V> segment(final long hash) {
+        return segments[(int) (hash >>> 40) & segmentMask];
+    }
+
+    private static long hash(final long key) {
+        return key * HASH_MULTIPLIER;
+    }
+
+    /**
+     * A single open addressing hash table with linear probing. The table is never more than half full.
+     */
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+
+        // Both arrays always have the same length, a power of two. They are only modified under the
+        // write lock. A value of null marks an empty slot
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+        private Object[] values = new Object[INITIAL_SEGMENT_CAPACITY];
+
+        private volatile int size;
+
+        V get(final long key, final long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                final V value = find(key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        V put(final long key, final long hash, final V value) {
+            final long stamp = lock.writeLock();
+            try {
+                final int slot = findSlot(key, hash);
+                @SuppressWarnings("unchecked")
+                final V oldValue = (V) values[slot];
+                if (oldValue == null) {
+                    insert(slot, key, value);
+                } else {
+                    values[slot] = value;
+                }
+                return oldValue;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V compute(final long key, final long hash, final Remapping<V> remapping) {
+            final long stamp = lock.writeLock();
+            try {
+                final int slot = findSlot(key, hash);
+                @SuppressWarnings("unchecked")
+                final V oldValue = (V) values[slot];
+                final V newValue = remapping.apply(key, oldValue);
+                if (newValue == null) {
+                    if (oldValue != null) {
+                        removeAt(slot);
+                    }
+                } else if (oldValue == null) {
+                    insert(slot, key, newValue);
+                } else {
+                    values[slot] = newValue;
+                }
+                return newValue;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        <E extends Exception> void forEach(final EntryVisitor<V, E> visitor) throws E {
+            final long stamp = lock.readLock();
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    @SuppressWarnings("unchecked")
+                    final V value = (V) values[i];
+                    if (value != null) {
+                        visitor.accept(keys[i], value);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Looks up a key. May be called without holding any lock, as a part of an optimistic read. In this
+         * case, the arrays may be modified concurrently, and the result is only valid if the read is validated.
+         */
+        @SuppressWarnings("unchecked")
+        private V find(final long key, final long hash) {
+            final long[] keys = this.keys;
+            final Object[] values = this.values;
+            // During an optimistic read, the two arrays may come from different tables
+            if (keys.length != values.length) {
+                return null;
+            }
+            final int mask = values.length - 1;
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                final Object value = values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return (V) value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Finds the slot for a key, either the slot that contains the key, or the empty slot where it should
+         * be inserted. Must be called under the write lock.
+         */
+        private int findSlot(final long key, final long hash) {
+            final int mask = values.length - 1;
+            int slot = (int) hash & mask;
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void insert(final int slot, final long key, final V value) {
+            keys[slot] = key;
+            values[slot] = value;
+            final int newSize = size + 1;
+            size = newSize;
+            if (newSize * 2 > values.length) {
+                resize(values.length * 2);
+            }
+        }
+
+        /**
+         * Removes the entry at the given slot, and shifts back any following entries in the same probe
+         * sequence, so that lookups never stop at the emptied slot too early.
+         */
+        private void removeAt(int slot) {
+            final int mask = values.length - 1;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                final Object value = values[next];
+                if (value == null) {
+                    break;
+                }
+                final int home = (int) hash(keys[next]) & mask;
+                // The entry can be moved back to the empty slot, unless its home slot is between the
+                // empty slot (exclusive) and its current slot (inclusive), cyclically
+                final boolean homeInRange =
+                        slot <= next ? (slot < home && home <= next) : (slot < home || home <= next);
+                if (!homeInRange) {
+                    keys[slot] = keys[next];
+                    values[slot] = value;
+                    slot = next;
+                }
+            }
+            values[slot] = null;
+            size = size - 1;
+        }
+
+        private void resize(final int capacity) {
+            final long[] oldKeys = keys;
+            final Object[] oldValues = values;
+            final long[] newKeys = new long[capacity];
+            final Object[] newValues = new Object[capacity];
+            final int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                final Object value = oldValues[i];
+                if (value != null) {
+                    final long key = oldKeys[i];
+                    int slot = (int) hash(key) & mask;
+                    while (newValues[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = key;
+                    newValues[slot] = value;
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.cache;
+
+import com.swirlds.common.io.streams.SerializableDataInputStream;
+import com.swirlds.common.io.streams.SerializableDataOutputStream;
+import com.swirlds.virtualmap.VirtualValue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An append-only off-heap arena for serialized leaf values, used by a {@link VirtualNodeCache} copy
+ * to move values of its dirty leaves out of the Java heap once the copy is sealed.
+ * <p>
+ * Values are serialized into direct byte buffer chunks. Every stored value is returned as a separate
+ * read-only slice of a chunk, so a chunk is freed by the garbage collector once no slices (and hence no
+ * cache mutations) reference it anymore. It makes arenas safe to use with cache merges, when mutations
+ * of an older copy are moved to a newer one.
+ * <p>
+ * This class is not thread safe. Values may only be stored by a single thread, which is the case for
+ * {@link VirtualNodeCache#seal()}. Stored values may be read concurrently from any thread.
+ */
+final class OffHeapLeafArena {
+
+    /**
+     * The default size of a single arena chunk, in bytes. Values larger than a chunk are stored
+     * in dedicated buffers.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Arena chunk size.
+     */
+    private final int chunkSize;
+
+    /**
+     * The current chunk, values are appended to it until it's full. Null until the first value is stored.
+     */
+    private ByteBuffer chunk;
+
+    /**
+     * A reusable on-heap buffer to serialize values before they are copied to the arena.
+     */
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    /**
+     * Stream to serialize values into {@link #bytes}.
+     */
+    private final SerializableDataOutputStream out = new SerializableDataOutputStream(bytes);
+
+    /**
+     * Total number of bytes stored in this arena.
+     */
+    private long storedBytes;
+
+    /**
+     * Creates a new arena with the default chunk size.
+     */
+    OffHeapLeafArena() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new arena.
+     *
+     * @param chunkSize
+     * 		arena chunk size, in bytes. Must be positive
+     */
+    OffHeapLeafArena(final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Serializes the given value into this arena.
+     *
+     * @param value
+     * 		the value to store. Cannot be null
+     * @return a read-only buffer with the serialized value
+     */
+    ByteBuffer store(final VirtualValue value) {
+        bytes.reset();
+        try {
+            out.writeSerializable(value, true);
+            out.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to serialize a leaf value", e);
+        }
+        final int size = bytes.size();
+        final ByteBuffer target;
+        if (size > chunkSize) {
+            target = ByteBuffer.allocateDirect(size);
+        } else {
+            if ((chunk == null) || (chunk.remaining() < size)) {
+                chunk = ByteBuffer.allocateDirect(chunkSize);
+            }
+            target = chunk;
+        }
+        final int offset = target.position();
+        // ByteArrayOutputStream.toByteArray() would make another copy of the bytes
+        bytes.writeTo(new ByteBufferOutputStream(target));
+        storedBytes += size;
+        return target.slice(offset, size).asReadOnlyBuffer();
+    }
+
+    /**
+     * Deserializes a value stored in an arena.
+     *
+     * @param buffer
+     * 		a buffer returned by {@link #store(VirtualValue)}
+     * @param <V>
+     * 		the value type
+     * @return the deserialized value
+     */
+    static <V extends VirtualValue> V load(final ByteBuffer buffer) {
+        // Absolute bulk get, so concurrent readers of the same buffer don't interfere
+        final byte[] data = new byte[buffer.capacity()];
+        buffer.get(0, data);
+        try (final SerializableDataInputStream in = new SerializableDataInputStream(new ByteArrayInputStream(data))) {
+            return in.readSerializable();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to deserialize a leaf value", e);
+        }
+    }
+
+    /**
+     * Gets the total number of bytes stored in this arena.
+     *
+     * @return the number of stored bytes
+     */
+    long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * A minimal output stream that appends bytes to a byte buffer.
+     */
+    private static final class ByteBufferOutputStream extends OutputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferOutputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(final int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            buffer.put(b, off, len);
+        }
+    }
+}
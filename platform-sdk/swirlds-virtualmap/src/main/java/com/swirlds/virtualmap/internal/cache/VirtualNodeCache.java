@@ -36,6 +36,7 @@ import com.swirlds.virtualmap.config.VirtualMapConfig;
 import com.swirlds.virtualmap.datasource.VirtualHashRecord;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.Objects;
@@ -214,17 +215,18 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
 
     /**
      * A shared index of paths to leaves, via {@link Mutation}s. Works the same as {@link #keyToDirtyLeafIndex}.
+     * Paths are primitive longs, so this index doesn't box keys or allocate map nodes on updates.
      * <p>
      * <strong>ONE PER CHAIN OF CACHES</strong>.
      */
-    private final Map<Long, Mutation<Long, K>> pathToDirtyLeafIndex;
+    private final ConcurrentLongObjectMap<Mutation<Long, K>> pathToDirtyLeafIndex;
 
     /**
      * A shared index of paths to internals, via {@link Mutation}s. Works the same as {@link #keyToDirtyLeafIndex}.
      * <p>
      * <strong>ONE PER CHAIN OF CACHES</strong>.
      */
-    private final Map<Long, Mutation<Long, Hash>> pathToDirtyHashIndex;
+    private final ConcurrentLongObjectMap<Mutation<Long, Hash>> pathToDirtyHashIndex;
 
     /**
      * Whether this instance is released. A released cache is often the last in the
@@ -313,14 +315,38 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
      */
     private final AtomicLong lastReleased;
 
+    /**
+     * Whether values of dirty leaves are moved to an off-heap arena when this cache is sealed. See
+     * {@link VirtualMapConfig#offHeapLeafCacheEnabled()}.
+     */
+    private final boolean offHeapLeaves;
+
+    /**
+     * Whether values of dirty leaves have already been moved off-heap. Used to make {@link #seal()}
+     * idempotent.
+     */
+    private final AtomicBoolean leavesAreOffHeap = new AtomicBoolean(false);
+
     /**
      * Create a new VirtualNodeCache. The cache will be the first in the chain. It will get a
      * fastCopyVersion of zero, and create the shared data structures.
      */
     public VirtualNodeCache() {
+        this(config.offHeapLeafCacheEnabled());
+    }
+
+    /**
+     * Create a new VirtualNodeCache. The cache will be the first in the chain. It will get a
+     * fastCopyVersion of zero, and create the shared data structures.
+     *
+     * @param offHeapLeaves
+     * 		whether values of dirty leaves should be moved off-heap, when the cache copies are sealed
+     */
+    public VirtualNodeCache(final boolean offHeapLeaves) {
+        this.offHeapLeaves = offHeapLeaves;
         this.keyToDirtyLeafIndex = new ConcurrentHashMap<>();
-        this.pathToDirtyLeafIndex = new ConcurrentHashMap<>();
-        this.pathToDirtyHashIndex = new ConcurrentHashMap<>();
+        this.pathToDirtyLeafIndex = new ConcurrentLongObjectMap<>();
+        this.pathToDirtyHashIndex = new ConcurrentLongObjectMap<>();
         this.releaseLock = new ReentrantLock();
         this.lastReleased = new AtomicLong(-1L);
     }
@@ -346,6 +372,7 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
         this.pathToDirtyHashIndex = source.pathToDirtyHashIndex;
         this.releaseLock = source.releaseLock;
         this.lastReleased = source.lastReleased;
+        this.offHeapLeaves = source.offHeapLeaves;
 
         // The source now has immutable leaves and mutable internals
         source.prepareForHashing();
@@ -402,8 +429,9 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
         throwIfDestroyed();
 
         // Under normal conditions "seal()" would have been called already, but it is at least possible to
-        // release something that hasn't been sealed. So we call "seal()", just to tidy things up.
-        seal();
+        // release something that hasn't been sealed. So we seal the indexes, just to tidy things up. There
+        // is no need to move leaves off-heap, they are about to be dropped anyway.
+        sealIndexes();
 
         synchronized (lastReleased) {
             lastReleased.set(fastCopyVersion.get());
@@ -505,6 +533,13 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
      * cache.
      */
     public void seal() {
+        sealIndexes();
+        if (offHeapLeaves && !snapshot.get() && leavesAreOffHeap.compareAndSet(false, true)) {
+            moveLeavesOffHeap();
+        }
+    }
+
+    private void sealIndexes() {
         leafIndexesAreImmutable.set(true);
         hashesAreImmutable.set(true);
         dirtyLeaves.seal();
@@ -512,6 +547,55 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
         dirtyLeafPaths.seal();
     }
 
+    /**
+     * Serializes values of all dirty leaves in this cache into an off-heap arena. Leaf records in the
+     * mutations are replaced with records that only have paths and keys, so the original values can be
+     * garbage collected. Values are deserialized back on demand, see {@link #leafOf(Mutation)}.
+     * <p>
+     * Sealed caches are never modified, so leaf values can't change after they are moved off-heap.
+     * Readers may access the mutations concurrently: the off-heap value is always set before the leaf
+     * record is replaced, so a reader either sees the original record, or a stub record and the
+     * off-heap value.
+     */
+    private void moveLeavesOffHeap() {
+        final OffHeapLeafArena arena = new OffHeapLeafArena();
+        final int size = dirtyLeaves.size();
+        for (int i = 0; i < size; i++) {
+            final Mutation<K, VirtualLeafRecord<K, V>> mutation = dirtyLeaves.get(i);
+            final VirtualLeafRecord<K, V> leaf = mutation.value;
+            // Mutations may be shared with snapshots, or already moved off-heap before a merge
+            if (mutation.isDeleted() || (mutation.offHeapValue != null) || (leaf.getValue() == null)) {
+                continue;
+            }
+            mutation.offHeapValue = arena.store(leaf.getValue());
+            mutation.value = new VirtualLeafRecord<>(leaf.getPath(), leaf.getKey(), null);
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("Moved {} bytes of leaf values off-heap, version {}", arena.getStoredBytes(), fastCopyVersion);
+        }
+    }
+
+    /**
+     * Gets a leaf record from the given mutation. If the leaf value was moved off-heap, it's deserialized,
+     * and a new leaf record is returned.
+     *
+     * @param mutation
+     * 		the leaf mutation. Cannot be null
+     * @return the leaf record
+     */
+    private static <K extends VirtualKey, V extends VirtualValue> VirtualLeafRecord<K, V> leafOf(
+            final Mutation<K, VirtualLeafRecord<K, V>> mutation) {
+        final VirtualLeafRecord<K, V> leaf = mutation.value;
+        if ((leaf == null) || (leaf.getValue() != null)) {
+            return leaf;
+        }
+        final ByteBuffer offHeapValue = mutation.offHeapValue;
+        if (offHeapValue == null) {
+            return leaf;
+        }
+        return new VirtualLeafRecord<>(leaf.getPath(), leaf.getKey(), OffHeapLeafArena.load(offHeapValue));
+    }
+
     // --------------------------------------------------------------------------------------------
     // API for caching leaves.
     //
@@ -669,14 +753,14 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
         // create a new value and a new mutation and return the new mutation.
         if (forModify && mutation.version < fastCopyVersion.get()) {
             assert !leafIndexesAreImmutable.get() : "You cannot create leaf records at this time!";
+            final VirtualLeafRecord<K, V> existing = leafOf(mutation);
             @SuppressWarnings("unchecked")
-            final VirtualLeafRecord<K, V> leaf =
-                    new VirtualLeafRecord<>(mutation.value.getPath(), mutation.value.getKey(), (V)
-                            mutation.value.getValue().copy());
+            final VirtualLeafRecord<K, V> leaf = new VirtualLeafRecord<>(existing.getPath(), existing.getKey(), (V)
+                    existing.getValue().copy());
             return putLeaf(leaf);
         }
 
-        return mutation.value;
+        return leafOf(mutation);
     }
 
     /**
@@ -808,7 +892,7 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
                     return !mutation.isFiltered();
                 })
                 .filter(mutation -> !mutation.isDeleted())
-                .map(mutation -> mutation.value);
+                .map(VirtualNodeCache::leafOf);
     }
 
     /**
@@ -1068,7 +1152,7 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
      */
     public VirtualNodeCache<K, V> snapshot() {
         synchronized (lastReleased) {
-            final VirtualNodeCache<K, V> newSnapshot = new VirtualNodeCache<>();
+            final VirtualNodeCache<K, V> newSnapshot = new VirtualNodeCache<>(offHeapLeaves);
             setMapSnapshotAndArray(
                     this.pathToDirtyHashIndex, newSnapshot.pathToDirtyHashIndex, newSnapshot.dirtyHashes);
             setMapSnapshotAndArray(
@@ -1165,7 +1249,7 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
     private <V1> void updatePaths(
             final V1 value,
             final long path,
-            final Map<Long, Mutation<Long, V1>> index,
+            final ConcurrentLongObjectMap<Mutation<Long, V1>> index,
             final ConcurrentArray<Mutation<Long, V1>> dirtyPaths) {
         index.compute(path, (key, mutation) -> {
             // If there is no mutation or the mutation isn't for this version, then we need to create a new mutation.
@@ -1284,20 +1368,44 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
      */
     private static <K, V> void purge(final ConcurrentArray<Mutation<K, V>> array, final Map<K, Mutation<K, V>> index) {
         array.parallelTraverse(
-                CLEANING_POOL,
-                element -> index.compute(element.key, (key, mutation) -> {
-                    if (mutation == null || element.equals(mutation)) {
-                        // Already removed for a more recent mutation
-                        return null;
-                    }
-                    for (Mutation<K, V> m = mutation; m.next != null; m = m.next) {
-                        if (element.equals(m.next)) {
-                            m.next = null;
-                            break;
-                        }
-                    }
-                    return mutation;
-                }));
+                CLEANING_POOL, element -> index.compute(element.key, (key, mutation) -> purge(element, mutation)));
+    }
+
+    /**
+     * Same as {@link #purge(ConcurrentArray, Map)}, but for the path indices.
+     *
+     * @param index
+     * 		The index to look through for entries to purge
+     * @param <V>
+     * 		The value type referenced by the mutation list
+     */
+    private static <V> void purge(
+            final ConcurrentArray<Mutation<Long, V>> array, final ConcurrentLongObjectMap<Mutation<Long, V>> index) {
+        array.parallelTraverse(
+                CLEANING_POOL, element -> index.compute(element.key, (key, mutation) -> purge(element, mutation)));
+    }
+
+    /**
+     * Removes the given mutation from the mutation list, which starts with the given mutation.
+     *
+     * @param element
+     * 		The mutation to remove
+     * @param mutation
+     * 		The first (the most recent) mutation in the list, as stored in the index
+     * @return the new first mutation in the list, or null if the list became empty
+     */
+    private static <K, V> Mutation<K, V> purge(final Mutation<K, V> element, final Mutation<K, V> mutation) {
+        if (mutation == null || element.equals(mutation)) {
+            // Already removed for a more recent mutation
+            return null;
+        }
+        for (Mutation<K, V> m = mutation; m.next != null; m = m.next) {
+            if (element.equals(m.next)) {
+                m.next = null;
+                break;
+            }
+        }
+        return mutation;
     }
 
     /**
@@ -1359,19 +1467,60 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
         final long accepted = fastCopyVersion.get();
         final long rejected = lastReleased.get();
         for (final Map.Entry<K2, Mutation<K2, L2>> entry : src.entrySet()) {
-            Mutation<K2, L2> mutation = entry.getValue();
-
-            while (mutation != null && mutation.version > accepted) {
-                mutation = mutation.next;
+            final Mutation<K2, L2> mutation = snapshotMutation(entry.getValue(), accepted, rejected);
+            if (mutation != null) {
+                dst.put(entry.getKey(), mutation);
+                array.add(mutation);
             }
+        }
+    }
 
-            if (mutation == null || mutation.version <= rejected) {
-                continue;
+    /**
+     * Same as {@link #setMapSnapshotAndArray(Map, Map, ConcurrentArray)}, but for the path indices.
+     *
+     * @param src
+     * 		Map that contains the original mutations
+     * @param dst
+     * 		Map that acts as the destination of mutations
+     * @param <L2>
+     * 		Value type
+     */
+    private <L2> void setMapSnapshotAndArray(
+            final ConcurrentLongObjectMap<Mutation<Long, L2>> src,
+            final ConcurrentLongObjectMap<Mutation<Long, L2>> dst,
+            final ConcurrentArray<Mutation<Long, L2>> array) {
+        final long accepted = fastCopyVersion.get();
+        final long rejected = lastReleased.get();
+        src.forEach((path, value) -> {
+            final Mutation<Long, L2> mutation = snapshotMutation(value, accepted, rejected);
+            if (mutation != null) {
+                dst.put(path, mutation);
+                array.add(mutation);
             }
+        });
+    }
 
-            dst.put(entry.getKey(), mutation);
-            array.add(mutation);
+    /**
+     * Finds the latest mutation in the given mutation list with version less than or equal to the
+     * {@code accepted} version.
+     *
+     * @param mutation
+     * 		The first (the most recent) mutation in the list
+     * @param accepted
+     * 		The max accepted mutation version
+     * @param rejected
+     * 		The last released version. Mutations with this or lower versions are ignored
+     * @return the mutation to add to the snapshot, or null if there is no such mutation
+     */
+    private static <K2, L2> Mutation<K2, L2> snapshotMutation(
+            Mutation<K2, L2> mutation, final long accepted, final long rejected) {
+        while (mutation != null && mutation.version > accepted) {
+            mutation = mutation.next;
+        }
+        if (mutation == null || mutation.version <= rejected) {
+            return null;
         }
+        return mutation;
     }
 
     /**
@@ -1385,12 +1534,12 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
      * 		If something fails.
      */
     private void serializePathToDirtyHashIndex(
-            final Map<Long, Mutation<Long, Hash>> map, final SerializableDataOutputStream out) throws IOException {
+            final ConcurrentLongObjectMap<Mutation<Long, Hash>> map, final SerializableDataOutputStream out)
+            throws IOException {
         assert snapshot.get() : "Only snapshots can be serialized";
         out.writeInt(map.size());
-        for (final Map.Entry<Long, Mutation<Long, Hash>> entry : map.entrySet()) {
-            out.writeLong(entry.getKey());
-            final Mutation<Long, Hash> mutation = entry.getValue();
+        map.forEach((path, mutation) -> {
+            out.writeLong(path);
             assert mutation != null : "Mutations cannot be null in a snapshot";
             assert mutation.version <= this.fastCopyVersion.get()
                     : "Trying to serialize pathToDirtyInternalIndex with a version ahead";
@@ -1399,7 +1548,7 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
             if (!mutation.isDeleted()) {
                 out.writeSerializable(mutation.value, true);
             }
-        }
+        });
     }
 
     /**
@@ -1413,7 +1562,9 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
      * 		In case of trouble.
      */
     private void deserializePathToDirtyHashIndex(
-            final Map<Long, Mutation<Long, Hash>> map, final SerializableDataInputStream in, final int version)
+            final ConcurrentLongObjectMap<Mutation<Long, Hash>> map,
+            final SerializableDataInputStream in,
+            final int version)
             throws IOException {
         final int sizeOfMap = in.readInt();
         for (int index = 0; index < sizeOfMap; index++) {
@@ -1446,12 +1597,12 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
      * 		If something fails.
      */
     private void serializePathToDirtyLeafIndex(
-            final Map<Long, Mutation<Long, K>> map, final SerializableDataOutputStream out) throws IOException {
+            final ConcurrentLongObjectMap<Mutation<Long, K>> map, final SerializableDataOutputStream out)
+            throws IOException {
         assert snapshot.get() : "Only snapshots can be serialized";
         out.writeInt(map.size());
-        for (final Map.Entry<Long, Mutation<Long, K>> entry : map.entrySet()) {
-            out.writeLong(entry.getKey());
-            final Mutation<Long, K> mutation = entry.getValue();
+        map.forEach((path, mutation) -> {
+            out.writeLong(path);
             assert mutation != null : "Mutations cannot be null in a snapshot";
             assert mutation.version <= this.fastCopyVersion.get()
                     : "Trying to serialize pathToDirtyLeafIndex with a version ahead";
@@ -1459,7 +1610,7 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
             out.writeSerializable(mutation.value, true);
             out.writeLong(mutation.version);
             out.writeBoolean(mutation.isDeleted());
-        }
+        });
     }
 
     /**
@@ -1473,10 +1624,11 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
      * 		In case of trouble.
      */
     private void deserializePathToDirtyLeafIndex(
-            final Map<Long, Mutation<Long, K>> map, final SerializableDataInputStream in) throws IOException {
+            final ConcurrentLongObjectMap<Mutation<Long, K>> map, final SerializableDataInputStream in)
+            throws IOException {
         final int sizeOfMap = in.readInt();
         for (int index = 0; index < sizeOfMap; index++) {
-            final Long path = in.readLong();
+            final long path = in.readLong();
             final K key = in.readSerializable();
             final long mutationVersion = in.readLong();
             final boolean deleted = in.readBoolean();
@@ -1509,7 +1661,7 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
             assert mutation.version <= this.fastCopyVersion.get()
                     : "Trying to serialize keyToDirtyLeafIndex with a version ahead";
 
-            final VirtualLeafRecord<K, V> leaf = mutation.value;
+            final VirtualLeafRecord<K, V> leaf = leafOf(mutation);
             out.writeSerializable(leaf, false);
             out.writeLong(mutation.version);
             out.writeBoolean(mutation.isDeleted());
@@ -1578,6 +1730,8 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
         private final K key;
         private volatile V value;
         private volatile byte flags = 0;
+        // Serialized leaf value, if it was moved off-heap. Always null for other mutations
+        private volatile ByteBuffer offHeapValue;
 
         // A bit in the flags field, which indicates whether this mutation is for a deleted op
         private static final int FLAG_BIT_DELETED = 0;
@@ -1640,11 +1794,11 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
                 .append("\n");
         //noinspection unchecked
         builder.append(toDebugStringIndex(
-                        "pathToDirtyLeafIndex", (Map<Object, Mutation>) (Object) pathToDirtyLeafIndex))
+                        "pathToDirtyLeafIndex", (ConcurrentLongObjectMap<Mutation>) (Object) pathToDirtyLeafIndex))
                 .append("\n");
         //noinspection unchecked
         builder.append(toDebugStringIndex(
-                        "pathToDirtyHashIndex", (Map<Object, Mutation>) (Object) pathToDirtyHashIndex))
+                        "pathToDirtyHashIndex", (ConcurrentLongObjectMap<Mutation>) (Object) pathToDirtyHashIndex))
                 .append("\n");
         //noinspection unchecked
         builder.append(toDebugStringArray("dirtyLeaves", (ConcurrentArray<Mutation>) (Object) dirtyLeaves));
@@ -1682,27 +1836,40 @@ public final class VirtualNodeCache<K extends VirtualKey, V extends VirtualValue
         final StringBuilder builder = new StringBuilder();
         builder.append(indexName).append(":\n");
 
-        index.forEach((key, mutation) -> {
-            builder.append("\t").append(key).append(":==> ");
-            while (mutation != null) {
-                builder.append("[")
-                        .append(mutation.key)
-                        .append(",")
-                        .append(mutation.value)
-                        .append(",")
-                        .append(mutation.isDeleted() ? "D," : "")
-                        .append("V")
-                        .append(mutation.version)
-                        .append(mutation.version == this.fastCopyVersion.get() ? "*" : "")
-                        .append("]->");
-                mutation = mutation.next;
-            }
-            builder.append("\n");
-        });
+        index.forEach((key, mutation) -> toDebugStringIndexEntry(builder, key, mutation));
+
+        return builder.toString();
+    }
+
+    private String toDebugStringIndex(
+            final String indexName, @SuppressWarnings("rawtypes") final ConcurrentLongObjectMap<Mutation> index) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(indexName).append(":\n");
+
+        index.forEach((key, mutation) -> toDebugStringIndexEntry(builder, key, mutation));
 
         return builder.toString();
     }
 
+    private void toDebugStringIndexEntry(
+            final StringBuilder builder, final Object key, @SuppressWarnings("rawtypes") Mutation mutation) {
+        builder.append("\t").append(key).append(":==> ");
+        while (mutation != null) {
+            builder.append("[")
+                    .append(mutation.key)
+                    .append(",")
+                    .append(mutation.value)
+                    .append(",")
+                    .append(mutation.isDeleted() ? "D," : "")
+                    .append("V")
+                    .append(mutation.version)
+                    .append(mutation.version == this.fastCopyVersion.get() ? "*" : "")
+                    .append("]->");
+            mutation = mutation.next;
+        }
+        builder.append("\n");
+    }
+
     private String toDebugStringArray(
             final String name, @SuppressWarnings("rawtypes") final ConcurrentArray<Mutation> arr) {
         final StringBuilder builder = new StringBuilder();
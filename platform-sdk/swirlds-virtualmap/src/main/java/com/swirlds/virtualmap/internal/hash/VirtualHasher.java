@@ -16,33 +16,30 @@
 
 package com.swirlds.virtualmap.internal.hash;
 
-import static com.swirlds.common.threading.manager.AdHocThreadManager.getStaticThreadManager;
 import static com.swirlds.logging.legacy.LogMarker.EXCEPTION;
-import static com.swirlds.virtualmap.internal.Path.INVALID_PATH;
 import static com.swirlds.virtualmap.internal.Path.ROOT_PATH;
-import static com.swirlds.virtualmap.internal.Path.getIndexInRank;
-import static com.swirlds.virtualmap.internal.Path.getParentPath;
 import static com.swirlds.virtualmap.internal.Path.getRank;
-import static com.swirlds.virtualmap.internal.Path.getSiblingPath;
 
 import com.swirlds.common.config.singleton.ConfigurationHolder;
 import com.swirlds.common.crypto.Cryptography;
+import com.swirlds.common.crypto.CryptographyHolder;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.crypto.HashBuilder;
-import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.virtualmap.VirtualKey;
 import com.swirlds.virtualmap.VirtualMap;
 import com.swirlds.virtualmap.VirtualValue;
 import com.swirlds.virtualmap.config.VirtualMapConfig;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
-import com.swirlds.virtualmap.internal.Path;
+import com.swirlds.virtualmap.internal.merkle.VirtualInternalNode;
+import com.swirlds.virtualmap.internal.merkle.VirtualRootNode;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.LongFunction;
 import org.apache.logging.log4j.LogManager;
@@ -77,20 +74,28 @@ public final class VirtualHasher<K extends VirtualKey, V extends VirtualValue> {
     private static final int HASHING_THREAD_COUNT = config.getNumHashThreads();
 
     /**
-     * A thread pool for processing hashing work. A single executor service is shared across all {@link VirtualMap}
-     * instances. This is an unbounded cached thread pool. If more than one virtual merkle tree is being hashed
-     * concurrently, they will spawn threads as needed. A thread that is unused will eventually be purged from the
-     * pool. This approach was used to avoid more complicated thread pool semantics, however, it is anticipated
-     * that in the future we will want to have a fixed thread pool to better manage compute resources.
+     * A singleton reference to the Cryptography libraries. Used for hashing.
      */
-    private static final ExecutorService HASHING_POOL =
-            Executors.newCachedThreadPool(new ThreadConfiguration(getStaticThreadManager())
-                    .setThreadGroup(new ThreadGroup("virtual-map-hashers"))
-                    .setComponent("virtual-map")
-                    .setThreadName("hasher")
-                    .setExceptionHandler(
-                            (t, ex) -> logger.error(EXCEPTION.getMarker(), "Uncaught exception during hashing", ex))
-                    .buildFactory());
+    private static final Cryptography CRYPTO = CryptographyHolder.get();
+
+    private static final Hash NULL_HASH = CRYPTO.getNullHash();
+
+    /**
+     * Sub-trees with no more than this number of dirty leaves are hashed by a single task, without
+     * forking any further tasks. Larger sub-trees are split between their left and right children.
+     */
+    private static final int MAX_LEAVES_PER_TASK = 256;
+
+    /**
+     * A work-stealing pool for processing hashing work. A single pool is shared across all {@link VirtualMap}
+     * instances. The pool has a fixed number of threads, so if more than one virtual merkle tree is being
+     * hashed concurrently, their tasks are interleaved and idle threads steal work from busy ones.
+     */
+    private static final ForkJoinPool HASHING_POOL = new ForkJoinPool(
+            HASHING_THREAD_COUNT,
+            VirtualHasher::newHashingThread,
+            (t, ex) -> logger.error(EXCEPTION.getMarker(), "Uncaught exception during hashing", ex),
+            false);
 
     /**
      * This thread-local gets a HashBuilder that can be used for hashing on a per-thread basis.
@@ -98,50 +103,67 @@ public final class VirtualHasher<K extends VirtualKey, V extends VirtualValue> {
     private static final ThreadLocal<HashBuilder> HASH_BUILDER_THREAD_LOCAL =
             ThreadLocal.withInitial(() -> new HashBuilder(Cryptography.DEFAULT_DIGEST_TYPE));
 
+    // The arrays below are kept and passed between {@link VirtualMap} copies, with the ASSUMPTION that only
+    // a single copy of the {@link VirtualMap} is being hashed at a time (which should be true). The reason
+    // for keeping them is to cut down on garbage and temporary allocations.
+
+    /**
+     * Dirty leaves of the current batch, in left-to-right order. Every sub-tree of the batch covers
+     * a contiguous range of this array.
+     */
+    private VirtualLeafRecord<K, V>[] leaves = newLeafArray(16);
+
+    /**
+     * The number of leaves in {@link #leaves}.
+     */
+    private int leafCount;
+
     /**
-     * The working queue or the pending queue. Sometimes it is used as one, sometimes as the other.
-     * It is kept and passed between {@link VirtualMap} copies, with the ASSUMPTION
-     * that only a single copy of the {@link VirtualMap} is being hashed at a time (which should be true).
-     * The reason for keeping the queue and passing it around is to cut down on garbage and temporary allocations.
+     * Leaf positions, normalized to the last leaf rank. For leaf {@code i} at rank {@code r}, it is
+     * {@code (path + 1) << (maxLeafRank - r)}, so leaves on both leaf ranks are ordered left to right.
      */
-    private final ArrayHashingQueue<K, V> queue1;
+    private long[] leafKeys = new long[16];
 
     /**
-     * The working queue or the pending queue. Sometimes it is used as one, sometimes as the other.
-     * It is kept and passed between {@link VirtualMap} copies, with the ASSUMPTION
-     * that only a single copy of the {@link VirtualMap} is being hashed at a time (which should be true).
-     * The reason for keeping the queue and passing it around is to cut down on garbage and temporary allocations.
+     * For every leaf {@code i}, the hashes of all dirty nodes for which leaf {@code i} is the leftmost dirty
+     * leaf, starting from the leaf itself and going up, are stored in {@link #nodeHashes} starting at
+     * {@code hashOffsets[i]}. The number of such nodes is {@code hashOffsets[i + 1] - hashOffsets[i]}.
      */
-    private final ArrayHashingQueue<K, V> queue2;
+    private int[] hashOffsets = new int[17];
 
     /**
-     * The max stop queue. It is kept and passed between {@link VirtualMap} copies, with the ASSUMPTION
-     * that only a single copy of the {@link VirtualMap} is being hashed at a time (which should be true).
-     * The reason for keeping the queue and passing it around is to cut down on garbage and temporary allocations.
-     * <p>
-     * There are two stop queues. One is used for jobs that are ultimately the result of processing starting
-     * from the max rank, and the other is for jobs that are ultimately the result of processing starting from
-     * the min rank.
+     * Node hashes of the current batch. See {@link #hashOffsets} for the layout.
      */
-    private final ArrayHashingQueue<K, V> maxRankStopQueue;
+    private Hash[] nodeHashes = new Hash[16];
 
     /**
-     * The min stop queue. It is kept and passed between {@link VirtualMap} copies, with the ASSUMPTION
-     * that only a single copy of the {@link VirtualMap} is being hashed at a time (which should be true).
-     * The reason for keeping the queue and passing it around is to cut down on garbage and temporary allocations.
-     * <p>
-     * There are two stop queues. One is used for jobs that are ultimately the result of processing starting
-     * from the max rank, and the other is for jobs that are ultimately the result of processing starting from
-     * the min rank.
+     * Dirty leaves on the first leaf rank that share a sub-tree with some leaves on the last leaf
+     * rank. They are the first leaves in the stream, but have to be hashed together with the last ones.
      */
-    private final ArrayHashingQueue<K, V> minRankStopQueue;
+    private VirtualLeafRecord<K, V>[] deferredLeaves = newLeafArray(16);
 
     /**
-     * The last queue. It is kept and passed between {@link VirtualMap} copies, with the ASSUMPTION
-     * that only a single copy of the {@link VirtualMap} is being hashed at a time (which should be true).
-     * The reason for keeping the queue and passing it around is to cut down on garbage and temporary allocations.
+     * Hashes of the nodes at the top of the tree, one rank at a time, indexed by node index in the rank.
+     * The chunk rank hashes are collected from all batches, the hashes above are computed once all batches
+     * are done. Null entries are for clean nodes.
      */
-    private final ArrayHashingQueue<K, V> lastQueue;
+    private Hash[] topHashes = new Hash[1];
+
+    private Hash[] nextTopHashes = new Hash[1];
+
+    // The properties of the tree being hashed, set at the start of every hash() call
+
+    private LongFunction<Hash> hashReader;
+
+    private long firstLeafPath;
+
+    private long lastLeafPath;
+
+    private int maxLeafRank;
+
+    private int chunkRank;
+
+    private long lastPath;
 
     /**
      * Tracks if this virtual hasher has been shut down. If true (indicating that the hasher
@@ -154,15 +176,7 @@ public final class VirtualHasher<K extends VirtualKey, V extends VirtualValue> {
      * Create a new {@link VirtualHasher}. There should be one {@link VirtualHasher} shared across all copies
      * of a {@link VirtualMap} "family".
      */
-    public VirtualHasher() {
-        // These queues are used for the "workingQueue" (wq), "pendingQueue" (pq), "stopQueue" (sq),
-        // and "lastQueue" (lq). Which queue is which changes during execution.
-        this.queue1 = new ArrayHashingQueue<>();
-        this.queue2 = new ArrayHashingQueue<>();
-        this.maxRankStopQueue = new ArrayHashingQueue<>();
-        this.lastQueue = new ArrayHashingQueue<>();
-        this.minRankStopQueue = new ArrayHashingQueue<>();
-    }
+    public VirtualHasher() {}
 
     /**
      * Indicate to the virtual hasher that it has been shut down. This method does not interrupt threads, but
@@ -224,27 +238,28 @@ public final class VirtualHasher<K extends VirtualKey, V extends VirtualValue> {
             final long lastLeafPath,
             VirtualHashListener<K, V> listener) {
 
-        // Hashing algo v5. This version of the hashing algorithm is designed to optimally process
-        // a stream of dirty leaves sorted in **ASCENDING PATH ORDER**. During "reconnect", dirty leaves
-        // are streamed to the learner in ascending path order. By hashing them in this order, we can
-        // process them as they are streamed. In the previous algorithm, we processed leaves in descending
-        // path order, which would have required writing all dirty leaves to disk and then reading them back
-        // out again, and keeping track of which were dirty in an in-memory bit array. By processing them in
-        // ascending path order, we have no need to keep a history of which nodes are dirty, and we do not have
-        // to read the data back from disk. When reconnecting large state (1 billion leaves for example), this
-        // should result in a major improvement.
+        // Hashing algo v6. Dirty leaves are streamed in ascending path order (during reconnect, this is the
+        // order in which they are received from the teacher), and hashed in batches, so that we never need to
+        // keep all dirty leaves in memory.
         //
-        // Unfortunately, this algorithm is significantly more complicated than the previous version, which
-        // was itself fairly clever code! There are two problems that we had to solve for. First, processing
-        // in ascending path order is problematic because the first leaves we process may require hashes from
-        // the last leaves we process, because the first leaves may be siblings to internal nodes that are parents
-        // of the last leaves. Second, this algorithm is designed to hash a billion+ leaf tree, whereas the
-        // previous algorithm only worked with a set of dirty leaves that could fit into memory.
+        // The tree is divided into "chunks", sub-trees whose roots are on the "chunkRank", 1/4-way down from
+        // the root to the last leaf rank. For example, a billion leaf tree has 128 chunks. A batch is one or
+        // more consecutive chunks, accumulated until the batch has at least as many dirty leaves as a chunk
+        // can hold on the rank of the leaves. Every batch is hashed independently up to the chunk rank, and
+        // once all batches are hashed, the top of the tree is hashed from the chunk rank up to the root.
         //
-        // The essential thing about this algorithm is that we subdivide the tree and hash sub-trees of manageable
-        // size, one at a time. For this to work, the segment needs to be sized as a power of 2 such that for the
-        // max rank (the rank of the lastLeafPath) it evenly subdivides the theoretical max number of elements
-        // for that rank.
+        // Within a batch, each chunk is hashed recursively on a work-stealing fork-join pool. A task hashes
+        // the left and the right child sub-trees of its node, forking the left one to be stolen by an idle
+        // thread if both are large enough, and then hashes the node itself. Small sub-trees are hashed in a
+        // single task. There are no barriers between ranks, and no per-node objects other than the hashes.
+        //
+        // For recursion to work, every sub-tree must cover a contiguous range of the dirty leaves. This is the
+        // case if the leaves are ordered left to right, not by path. On each of the two leaf ranks, the two
+        // orders are the same, but all leaves on the last leaf rank are to the left of the leaves on the first
+        // leaf rank. Each chunk, except one, has all its leaves on a single rank, so the batches are never
+        // mixed. The exception is the chunk that has leaves on both ranks. Its leaves on the first leaf rank
+        // are the first to be streamed, and the leaves on the last rank are the very last ones. These first
+        // leaves are put aside into "deferredLeaves" and hashed at the very end, after the last rank leaves.
 
         // If the first or last leaf path are invalid, then there is nothing to hash.
         if (firstLeafPath < 1 || lastLeafPath < 1) {
@@ -265,535 +280,427 @@ public final class VirtualHasher<K extends VirtualKey, V extends VirtualValue> {
                     };
         }
 
-        // Given some tree, leaves will be on the rank of the lastLeafPath, and the rank of the firstLeafPath.
-        // Most often this involves two ranks. In the rare exception the number of leaves is exactly a power of
-        // two, and there is only one rank involved. Each rank has a different segment size. The rank of the
-        // lastLeafPath has the largest segment size, while the next rank up has a segment size that is exactly half,
-        // and so on up the tree. If the segment size is less than the max number of elements in a rank, then there
-        // is some rank at which the segment size is 1, and that rank may not be the same as the root rank. This rank
-        // is known as the "stopRank", because our hashing algorithm must stop there until all sub-trees have
-        // been hashed. It can then resume hashing from the "stopRank" up to the root rank. Another way of looking
-        // at it is that we divide the tree up into sub-trees of roughly equal size, such that one sub-tree is the root
-        // down to the stopRank, and each additional sub-tree has a root that is a node in the stopRank and extends
-        // down to the bottom-most rank.
-
-        // We know the paths are valid. In almost all cases, the rank of the first leaf and the rank of the
-        // last leaf will be different. We need to know what rank each path are on for our setup code.
-        final int minLeafRank = Path.getRank(firstLeafPath);
-        final int maxLeafRank = Path.getRank(lastLeafPath);
-
-        // Compute the stopRank with X, such that 2^X >= maxLeaves and 2^X-1 < maxLeaves, and stopRank = X / 4.
-        // (It produced too many small files when we divided by 2, instead of 4.)  It appears to work just fine by
-        // changing the denominator to 4, but we may need to revisit this sometime later.
-        // For example, given 1 billion maxLeaves produces an X of 30 (2^30 > 1 billion, 2^29 < 1 billion)
-        // and a stopRank then equals 7. It turns out, this is simply 1/4-way up the tree from maxLeafRank!
-        final int stopRank = maxLeafRank >> 2;
-
-        // As mentioned above, we sub-divide the tree into roughly equal-sized sub-trees. This was a deliberate
-        // oversimplification. If we were to literally divide the tree in this way, we may have sub-trees with
-        // very few dirty nodes requiring hashing, and this would be a waste of resources because few threads
-        // could be involved. It is much better to dynamically size the sub-tree such that a sufficient number
-        // of nodes are being handled at the same time. Because we have a binary tree, we can take advantage
-        // of the properties of the binary tree to know for certain that we can hash a subset independently.
-        // If I have a stopRank with 8 elements, then I know for certain that I could process any sub-tree
-        // who's base level consisted of 8 elements. I know for certain that I can process any sub-tree with
-        // 16 elements, or 24 elements, or 32 elements or any other multiple of 8 completely independently.
-        // Thus, given the number of elements in the stopRank, I can determine the size by which I can "segment"
-        // the tree into independent sub-trees. I can then accumulate all dirty nodes within the first segment.
-        // If I have accumulated less than the "segment" size of dirty nodes, I can go ahead and accumulate
-        // another segment-worth of nodes. This means, that if my segment size were 8, then I would try to
-        // accumulate at least 8 dirty nodes, but up to 15 dirty nodes. This may involve a single segment,
-        // or as many as all segments in a rank.
-        //
-        // If I have a rank where every leaf is dirty, then each sub-tree is exactly one segment-size in width,
-        // and I will process one segment-size worth of leaf nodes at a time. If the rank has a single
-        // dirty leaf, then I will process the entire rank in one go. If some segment in the rank has
-        // (segmentSize - 1) dirty leaves and a subsequent segment with segmentSize dirty leaves, then
-        // I will process ((segmentSize * 2) - 1) dirty nodes in that pass. Each pass may have a different
-        // number of nodes being processed, but all will fall somewhere between 1 and ((segmentSize * 2) - 1)
-        // in count.
-        //
-        // If there are two ranks involved (firstLeafPath is on a rank and lastLeafPath is on the next rank)
-        // and if the first dirty leaf lies within the segment that includes the firstLeafPath, and if the
-        // firstLeafPath is not positioned at the beginning of that segment, then two or more leaves at the
-        // end of the leaves on the last rank (including the lastLeafPath) must be hashed before the dirty
-        // leaves in this first segment are processed, otherwise an incorrect hash will be computed. While
-        // this may seem like a corner case, it is actually extremely common. To handle this case, when we
-        // detect it, we store off the first segment-worth of dirty leaves (literally, the dirty leaves in
-        // this specific segment only) into the "lastQueue", because it is saved until last.
-        //
-        // We then move on, hashing all other leaves and internal nodes like normal, accumulating all nodes
-        // within a segment into the "workingQueue" (also known as 'wq') until it has more nodes than
-        // segmentSize, and then hand it off to get hashed, and then continue until we get towards the end
-        // of the last rank of leaves.
-        //
-        // If lastQueue is not empty, then there are some number of "reserved" nodes near the end of the last rank
-        // that belong to the same hashing round as those in the lastQueue. Each internal node between the start
-        // of the segment and the firstLeafPath corresponds to exactly two nodes in the last rank. For example,
-        // if the segment started on path 51, and the firstLeafPath was 52, then there would be exactly two
-        // nodes in the last rank that belonged to this round (lastLeafPath and lastLeafPath - 1). We would
-        // make sure, while accumulating dirty nodes into the `wq` for a hashing round, that we do not include
-        // any of the reserved nodes -- they must form their own complete hashing round.
-
-        // Figure out the "segment" size to use for the two ranks that may contain leaves. Note that it is possible
-        // that minLeafRank and maxLeafRank are the same, and therefore it is possible that minRankSegmentSize
-        // and maxRankSegmentSize are also both equivalent.
-        final int minRankSegmentSize = 1 << (minLeafRank - stopRank);
-        final int maxRankSegmentSize = 1 << (maxLeafRank - stopRank);
-
-        // For this algorithm, we maximally size our work and pending queues to be the max rank
-        // segment size * 2 which allows us to read the entire next segment into the buffer without
-        // having to do read-ahead and array copies or worry about buffer overflow.
-        final int maxQueueSize = maxRankSegmentSize * 2;
-        queue1.ensureCapacity(maxQueueSize);
-        queue2.ensureCapacity(maxQueueSize);
-        // The stop queues only need to be the same size as the maxRankSegmentSize, not double
-        // (it may be that either stop queue needs to be large enough for the whole rank).
-        // The "lastQueue" is only ever populated with leaves on the minLeafRank, so it only
-        // needs to be large enough for minRankSegmentSize. This is one additional wrinkle. It is
-        // critical that the stop queue is ordered properly in ascending path order. The problem
-        // is that we process the minLeafRank first, and then the maxLeafRank. So we actually have
-        // *TWO* stop queues! One is for the stop-queue level nodes for the minLeafRank, and one is
-        // for the stop-queue level nodes for the maxLeafRank. When we process the stop level, we
-        // actually combine the two queues together using a CompoundHashingQueue to avoid any
-        // array or buffer copies.
-        minRankStopQueue.ensureCapacity(maxRankSegmentSize);
-        maxRankStopQueue.ensureCapacity(maxRankSegmentSize);
-        lastQueue.ensureCapacity(minRankSegmentSize);
-
-        // Compute the distance between the segment boundary and the firstLeafPath's index within the rank.
-        final long firstLeafIndexInRank = getIndexInRank(firstLeafPath);
-        final long firstLeafOffsetWithinSegment = firstLeafIndexInRank % minRankSegmentSize;
-
-        // If there are two ranks to process, and *IF* the firstLeafPath does not line up with the start
-        // of the segment, then read off every leaf we find that is in the minLeafRank AND within
-        // the initial segment (the same segment that the firstLeafPath lies within), and save them off in a buffer
-        // for later use. If leaves are in a single rank, there is no need to do this.
-        if (minLeafRank != maxLeafRank && firstLeafOffsetWithinSegment > 0) {
-            readLeavesInSegment(itr, lastQueue, firstLeafPath + (minRankSegmentSize - firstLeafOffsetWithinSegment));
+        this.hashReader = Objects.requireNonNull(hashReader, "hash reader is not permitted to be null");
+        this.firstLeafPath = firstLeafPath;
+        this.lastLeafPath = lastLeafPath;
+        this.lastPath = -1;
+        final int minLeafRank = getRank(firstLeafPath);
+        maxLeafRank = getRank(lastLeafPath);
+        chunkRank = maxLeafRank >> 2;
+
+        final int chunkCount = 1 << chunkRank;
+        if (topHashes.length < chunkCount) {
+            topHashes = new Hash[chunkCount];
+            nextTopHashes = new Hash[chunkCount];
         }
-
-        // Compute the number of leaves to reserve on the very last rank for inclusion with the first leaves
-        final long reservedLastLeafCount = lastQueue.size() == 0 ? 0 : (firstLeafOffsetWithinSegment * 2);
-        assert reservedLastLeafCount > 0 ? (lastQueue.size() > 0) : (lastQueue.size() == 0)
-                : "Improper computation of reservedLastLeafCount";
-
-        // Let the listener know we have started hashing.
-        listener.onHashingStarted();
-
-        // Iterate over all dirty leaves until we encounter the very last segment (the so-called
-        // reserved segment).
-        long lastPath = -1;
-        while (itr.hasNext()) {
-            final VirtualLeafRecord<K, V> next = itr.peek();
-            final long path = next.getPath();
-            final int rank = getRank(path);
-
-            // SANITY CHECK: Fail fast if this condition does not hold
-            if (path < lastPath) {
-                throw new IllegalStateException("The paths in the iterator must be strictly increasing! " + "lastPath="
-                        + lastPath + ", path=" + path);
+        Arrays.fill(topHashes, 0, chunkCount, null);
+
+        try {
+            // If there are two leaf ranks, and the firstLeafPath is not at the start of its chunk, then
+            // the chunk has leaves on both ranks. Put aside its dirty leaves on the first leaf rank.
+            final int minRankChunkShift = minLeafRank - chunkRank;
+            final long splitChunk = (firstLeafPath + 1) >> minRankChunkShift;
+            final boolean hasSplitChunk =
+                    minLeafRank != maxLeafRank && ((firstLeafPath + 1) & ((1L << minRankChunkShift) - 1)) != 0;
+            final long splitChunkFirstPath =
+                    hasSplitChunk ? (splitChunk << (maxLeafRank - chunkRank)) - 1 : Long.MAX_VALUE;
+            int deferredCount = 0;
+            if (hasSplitChunk) {
+                final long eofPath = ((splitChunk + 1) << minRankChunkShift) - 1;
+                for (VirtualLeafRecord<K, V> leaf = nextLeaf(itr, eofPath);
+                        leaf != null;
+                        leaf = nextLeaf(itr, eofPath)) {
+                    if (deferredCount == deferredLeaves.length) {
+                        deferredLeaves = Arrays.copyOf(deferredLeaves, deferredCount * 2);
+                    }
+                    deferredLeaves[deferredCount++] = leaf;
+                }
             }
-            lastPath = path;
 
-            // The path must always be within this range. We can use an assertion here because,
-            // unless there is some bug in our code, this cannot happen.
-            assert path >= firstLeafPath && path <= lastLeafPath
-                    : "Invalid path lies outside the leaf path range " + path;
+            // Let the listener know we have started hashing.
+            listener.onHashingStarted();
 
-            // Break out of the loop if the next leaf to process is in the reserved space
-            if (rank == maxLeafRank && path >= lastLeafPath - reservedLastLeafCount) {
-                break;
+            // Hash all batches except the split chunk
+            while (itr.hasNext()) {
+                long path = itr.peek().getPath();
+                if (path >= splitChunkFirstPath) {
+                    break;
+                }
+                final int rank = getRank(path);
+                final int chunkShift = rank - chunkRank;
+                // Either eof is the end of the rank, or the first leaf of the split chunk
+                final long eofPath = Math.min((1L << (rank + 1)) - 1, splitChunkFirstPath);
+                leafCount = 0;
+                do {
+                    final long chunkEndPath = ((((path + 1) >> chunkShift) + 1) << chunkShift) - 1;
+                    readLeaves(itr, Math.min(chunkEndPath, eofPath));
+                } while (leafCount < (1L << chunkShift)
+                        && itr.hasNext()
+                        && (path = itr.peek().getPath()) < eofPath);
+                if (!hashBatch(listener)) {
+                    return null;
+                }
             }
 
-            // Depending on the rank we're processing, we need to know the segment size.
-            final long segmentSize = rank == minLeafRank ? minRankSegmentSize : maxRankSegmentSize;
-            // Either eof is the end of the rank, or the last leaf before the reserved section
-            final long eofPath = Math.min((1L << (rank + 1)) - 1, lastLeafPath - reservedLastLeafCount + 1);
-
-            // Populate the wq with leaves by accumulating them from the iterator, a segment at a time.
-            final HashingQueue<K, V> wq = queue1.reset();
-            accumulate(itr, wq, path - (getIndexInRank(path) % segmentSize), segmentSize, eofPath);
-
-            // Setup and hash the subtree that we have accumulated. If I am hashing the minLeafRank,
-            // then the results go into the minRankStopQueue. If I am hashing the maxLeafRank, then
-            // the results go into the maxRankStopQueue.
-            final HashingQueue<K, V> pq = queue2.reset();
-            final HashingQueue<K, V> sq = rank == maxLeafRank ? maxRankStopQueue : minRankStopQueue;
-            listener.onBatchStarted();
-            hashSubTree(hashReader, listener, wq, pq, null, sq, firstLeafPath, lastLeafPath, rank, stopRank);
-            listener.onBatchCompleted();
-        }
+            // Then hash the split chunk, with the deferred leaves to the right of the last rank leaves
+            if (itr.hasNext() || deferredCount > 0) {
+                leafCount = 0;
+                readLeaves(itr, lastLeafPath + 1);
+                for (int i = 0; i < deferredCount; i++) {
+                    addLeaf(deferredLeaves[i]);
+                }
+                Arrays.fill(deferredLeaves, 0, deferredCount, null);
+                if (!hashBatch(listener)) {
+                    return null;
+                }
+            }
 
-        // If there are still remaining leaves to process (which must be in the "reserved" area),
-        // or if there were some leaves put in the "lastQueue", then process them now.
-        if (itr.hasNext() || lastQueue.size() > 0) {
-            final HashingQueue<K, V> wq = queue1.reset();
-            readLeavesInSegment(itr, wq, lastLeafPath + 1);
-            final HashingQueue<K, V> pq = queue2.reset();
-            listener.onBatchStarted();
-            hashSubTree(
-                    hashReader,
-                    listener,
-                    wq,
-                    pq,
-                    lastQueue,
-                    maxRankStopQueue,
-                    firstLeafPath,
-                    lastLeafPath,
-                    maxLeafRank,
-                    stopRank);
-            listener.onBatchCompleted();
+            // By this point we have hashed all the way from the leaves to the chunk rank. Now hash from
+            // the chunk rank to the root.
+            final Hash rootHash = hashTop(listener);
+            listener.onHashingCompleted();
+            return rootHash;
+        } finally {
+            Arrays.fill(leaves, 0, leafCount, null);
+            leafCount = 0;
+            this.hashReader = null;
         }
-
-        // By this point we have hashed all the way from the leaves to the stopLevel, and the results
-        // are in the maxRankStopQueue and minRankStopQueue. Now hash from the stopLevel to the root.
-        // We use a CompoundHashingQueue to combine the two stop queues to avoid any array copies.
-        listener.onBatchStarted();
-        hashSubTree(
-                hashReader,
-                listener,
-                new CompoundHashingQueue<>(maxRankStopQueue, minRankStopQueue),
-                queue1.reset(),
-                null,
-                queue2.reset(),
-                firstLeafPath,
-                lastLeafPath,
-                stopRank,
-                0);
-
-        // If everything worked correctly, there is a single HashJob in queue2 (which we used as the
-        // "stopQueue" -- i.e. the accumulator for the root level). We can just get this root job, hash
-        // it, and return the hash.
-        assert queue2.size() == 1
-                : "There must only be a single hash job in the root queue!! Current size = " + queue2.size();
-        final HashJob<K, V> rootJob = queue2.get(0);
-        rootJob.hash(HASH_BUILDER_THREAD_LOCAL.get());
-        listener.onRankStarted();
-        listener.onNodeHashed(rootJob.getPath(), rootJob.getHash());
-        listener.onRankCompleted();
-        listener.onBatchCompleted();
-        listener.onHashingCompleted();
-        return rootJob.getHash();
     }
 
     /**
-     * Hashes a sub-tree using multiple threads.
+     * Hashes all dirty leaves in {@link #leaves} and their parent nodes up to the chunk rank, and notifies
+     * the listener about all hashed nodes except the chunk roots. Chunk root hashes are stored in
+     * {@link #topHashes}.
      *
-     * @param hashReader
-     * 		Return a {@link Hash} by path. Used when this method needs to look up clean nodes.
      * @param listener
      * 		A {@link VirtualHashListener} that will receive notification of all hashing events. Cannot be null.
-     * @param wq
-     * 		The working queue. Cannot be null.
-     * @param pq
-     * 		The pending queue. Cannot be null.
-     * @param lq
-     * 		The last queue. Can be null.
-     * @param sq
-     * 		The stop queue. Cannot be null.
-     * @param firstLeafPath
-     * 		The firstLeafPath.
-     * @param lastLeafPath
-     * 		The lastLeafPath.
-     * @param startRank
-     * 		The startRank. Can be the same as stopRank. Must be greater than or equal to zero.
-     * @param stopRank
-     * 		The stopRank. Can be the same as the startRank. Must be greater than or equal to zero.
+     * @return false, if hashing failed because the hasher has been shut down, true otherwise
      */
-    private void hashSubTree(
-            final LongFunction<Hash> hashReader,
-            final VirtualHashListener<K, V> listener,
-            HashingQueue<K, V> wq,
-            HashingQueue<K, V> pq,
-            HashingQueue<K, V> lq,
-            final HashingQueue<K, V> sq,
-            final long firstLeafPath,
-            final long lastLeafPath,
-            final int startRank,
-            final int stopRank) {
-
-        // Unless we have a bug, this will always hold true
-        assert wq != null && pq != null && sq != null : "Unexpected null for pq or wq or sq";
-        assert startRank >= 0 : "startRank was negative!";
-        assert stopRank >= 0 : "stopRank was negative!";
-        assert listener != null : "Listener cannot be null in hashSubTree";
-
-        Objects.requireNonNull(hashReader, "hash reader is not permitted to be null");
-
-        // We maintain two different HashQueues, one for the current list of HashJobs in a single rank
-        // (sorted in ascending order by path), and one for the next list of HashJobs for the next rank
-        // closer to stopRank (also sorted in ascending order by path). After processing all jobs in
-        // wq and placing new jobs in pq, we switch the role of pq and wq and do it again. We continue
-        // in this way up the tree until we have hashed the rank just "below" stopRank and stored in
-        // the pq one or more jobs for the stopRank.
-        //
-        // For each iteration, we spawn multiple threads (limited by HASHING_THREAD_COUNT). Each thread
-        // independently walks over the current "wq". Within the queue are all the dirty nodes
-        // at that rank, in descending order by path. When a node is processed, it needs its sibling as
-        // well so that it can give its hash and its sibling's hash to the parent node (which has a HashJob
-        // created for it and placed into the pending queue at the right location). Sometimes only a single
-        // node of the two is dirty, and sometimes both siblings are dirty. We call this a "unit". Either it
-        // is a unit of 1 (the dirty node and a clean sibling) or a unit of 2 (the dirty node and its dirty
-        // sibling).
-        //
-        // Each thread, then walks over the workQueue looking for the units that belong to it. This is
-        // done efficiently in a lock-free manner by giving each unit an index and assigning the unit
-        // to the thread whose ordinal can be found via modulo. Thus, each thread has certain assigned
-        // units to process, and they can all process them completely in parallel.
-        //
-        // Before turning the threads loose, we set up a CountDownLatch such that when a thread finishes
-        // processing the rank it decrements the barrier and exits. The main thread waits until all
-        // hashing threads have hit the barrier before swapping the pq and wq, making the
-        // pq the new wq and wq the old pq and resetting the new pq back to 0 elements.
-        //
-        // For efficiency reasons, we do not actually clear the state from the queues. We just reset the
-        // size to 0 and manage it that way. This is a little risky, and keeps some hashes in memory
-        // far longer than necessary, but reduces garbage and improves overall system performance.
-
-        // If the start and stop rank are the same, then we have nothing to hash. We just have to transfer
-        // the items from the work queue to the stop queue. This only happens with rank 0 or rank 1.
-        if (startRank == stopRank) {
-            assert startRank == 1 || startRank == 0 : "Expected rank 0 or 1, was " + startRank;
-            sq.copyFrom(wq);
-            return;
+    private boolean hashBatch(final VirtualHashListener<K, V> listener) {
+        if (leafKeys.length < leafCount) {
+            leafKeys = new long[leaves.length];
+            hashOffsets = new int[leaves.length + 1];
         }
 
-        // Used to hold exceptions thrown by the hashing threads.
-        final Queue<Throwable> exceptions = new ConcurrentLinkedDeque<>();
-
-        // For each rank, start threads to process the work within those threads. When the threads
-        // complete, swap queues and run the next rank. Continue this until we get all the way to the end.
-        // The reason we grab and use a bunch of threads for each rank and then let them complete is so that
-        // if we have multiple VirtualMap instances, they can all pull from the same queue and not end up
-        // having to run in sequence. However, to really implement that, we need some counter to keep track
-        // of the number of threads available before we try to grab any, or we could deadlock with two
-        // maps both trying to get > half of the available threads and getting stuck. Note that we DO NOT
-        // process the very last rank, which only contains root. Instead, we will handle that separately.
-        for (int rank = startRank; rank > stopRank; rank--) {
-            final HashingQueue<K, V> workQueue = wq;
-            final HashingQueue<K, V> pendingQueue = rank == stopRank + 1 ? sq : pq;
-
-            // Compute the number of threads to use. For ranks with lots and lots of potential work,
-            // we use HASHING_THREAD_COUNT. For ranks where there are always few potential jobs,
-            // we don't need as many threads, so we might as well leave them available for other
-            // virtual maps to use. Of course, use wq.size() instead if it is smallest.
-            final int threadCount = Math.min(workQueue.size(), Math.min(HASHING_THREAD_COUNT, 1 << (rank - stopRank)));
-
-            final boolean hasLastQueue = (lq != null && lq.size() > 0);
-            assert workQueue.size() > 0 || hasLastQueue : "Work queue is empty for rank " + rank;
-            assert threadCount > 0 || hasLastQueue
-                    : "Thread count is zero for rank " + rank + ", max hashing threads configured to be "
-                            + HASHING_THREAD_COUNT;
-
-            // This latch is used to cause this thread to wait until all hashing threads complete their work.
-            final CountDownLatch latch = new CountDownLatch(threadCount);
-            final int offset = pendingQueue == sq ? sq.size() : 0;
-            final int workQueueSize = workQueue.size();
-            // Spawn each hashing thread
-            for (int i = 0; i < threadCount; i++) {
-                final int threadNum = i;
-                HASHING_POOL.execute(() -> {
-                    final HashBuilder hashBuilder = HASH_BUILDER_THREAD_LOCAL.get();
-                    try {
-                        // Each thread iterates over all "units". A unit is either a single job or two jobs if
-                        // they are siblings.
-                        for (int j = 0, unitIndex = 0; j < workQueueSize; j++, unitIndex++) {
-                            // Get the hash job (which is always part of the unit) and the nextJob which *may* be
-                            // part of the unit.
-                            final HashJob<K, V> hashJob = workQueue.get(j);
-                            final HashJob<K, V> nextJob = j < workQueueSize - 1 ? workQueue.get(j + 1) : null;
-                            final long nodePath = hashJob.getPath();
-
-                            // We never process the root node in background threads.
-                            assert nodePath != ROOT_PATH && getRank(nodePath) != stopRank;
-                            assert nodePath != INVALID_PATH;
-
-                            // Get the sibling path. This path is also never ROOT or INVALID,
-                            // because it is always for rank (stopRank + 1) or greater.
-                            final long siblingPath = getSiblingPath(nodePath);
-                            assert siblingPath != ROOT_PATH && getRank(nodePath) != stopRank;
-                            assert siblingPath != INVALID_PATH;
-
-                            // If both is true, then both are part of the unit. If they are part of the
-                            // same unit, then we will increment "j" so that we skip it on the next
-                            // iteration.
-                            final boolean both = nextJob != null && nextJob.getPath() == siblingPath;
-                            if (both) {
-                                j++;
-                            }
-
-                            // Now see whether this thread should be handling this unit. If not, then we simply
-                            // fall out of this if statement and check the next unit.
-                            if (unitIndex % threadCount == threadNum) {
-                                // Hash the first node
-                                hashJob.hash(hashBuilder);
-
-                                // We now need to figure out who the parent is. If the parent is not
-                                // in the cache or on disk, then it means we've never seen this parent
-                                // before (which can happen, for example, when the tree is expanding).
-                                // In that case, we create a new internal node. When it is hashed,
-                                // it will end up being saved in the cache.
-                                final long parentPath = getParentPath(nodePath);
-
-                                // We place the hash job that we create for the parent into the pending
-                                // queue at this location. Since multiple threads are running concurrently,
-                                // they all need to know where in the pendingQueue to place their results.
-                                // It turns out this is trivial, since we know each unit from the work queue
-                                // is in order, we also know each unit placed into the pendingQueue will be
-                                // in order. So we use the unit index + the offset.
-                                final int pendingQueueIndex = offset + unitIndex;
-
-                                if (both) {
-                                    // If we have both siblings, then we can hash the sibling and place both
-                                    // hashes for both siblings into the HashJob for the internal node and
-                                    // add it to the pendingQueue.
-                                    nextJob.hash(hashBuilder);
-                                    pendingQueue
-                                            .addHashJob(pendingQueueIndex)
-                                            .dirtyInternal(parentPath, hashJob.getHash(), nextJob.getHash());
-                                } else if (nodePath == firstLeafPath && nodePath == lastLeafPath) {
-                                    // There is only one leaf, and hashJob is it! There is no sibling
-                                    pendingQueue
-                                            .addHashJob(pendingQueueIndex)
-                                            .dirtyInternal(parentPath, hashJob.getHash(), null);
-                                } else {
-                                    // I know the hash MUST exist, because either it was dirty in a previous
-                                    // round and is stored in the cache, or it was written to disk. Otherwise, if
-                                    // it were dirty this round, it would have been in the work queue and part
-                                    // of this unit.
-                                    final Hash siblingHash = hashReader.apply(siblingPath);
-                                    if (siblingHash == null) {
-                                        throw new IllegalStateException("Failed to find a hash for " + siblingPath
-                                                + ", which is a sibling of " + nodePath);
-                                    }
-                                    final Hash leftHash = nodePath < siblingPath ? hashJob.getHash() : siblingHash;
-                                    final Hash rightHash = nodePath < siblingPath ? siblingHash : hashJob.getHash();
-                                    pendingQueue
-                                            .addHashJob(pendingQueueIndex)
-                                            .dirtyInternal(parentPath, leftHash, rightHash);
-                                }
-                            }
-                        }
-                    } catch (final Throwable exception) {
-                        exceptions.add(exception);
-                    } finally {
-                        // The thread has finished iterating over the work queue, so we must count down
-                        // at this latch. This is in the "finally" block so that we DO NOT under any
-                        // circumstance fail to do this, otherwise we'll hang the system.
-                        latch.countDown();
-                    }
-                });
-            }
+        // Compute leaf keys and the number of nodes each leaf is the leftmost dirty leaf for. Two adjacent
+        // leaves have their lowest common ancestor at the rank where their keys stop sharing a common prefix,
+        // and the right leaf is the leftmost dirty leaf for all nodes below that rank, down to the leaf itself.
+        int bottomRank = chunkRank;
+        int nodeCount = 0;
+        for (int i = 0; i < leafCount; i++) {
+            final long path = leaves[i].getPath();
+            final int rank = getRank(path);
+            final long key = (path + 1) << (maxLeafRank - rank);
+            final int topRank = i == 0 ? chunkRank : Math.max(chunkRank, commonAncestorRank(leafKeys[i - 1], key) + 1);
+            leafKeys[i] = key;
+            hashOffsets[i] = nodeCount;
+            nodeCount += rank - topRank + 1;
+            bottomRank = Math.max(bottomRank, rank);
+        }
+        hashOffsets[leafCount] = nodeCount;
+        if (nodeHashes.length < nodeCount) {
+            nodeHashes = new Hash[Math.max(nodeCount, nodeHashes.length * 2)];
+        }
 
-            // This thread must wait for all hashing threads to finish before we swap the pending and work
-            // queues and start hashing the next rank.
+        // Hash every chunk in the batch on the hashing pool
+        final int chunkShift = maxLeafRank - chunkRank;
+        final List<HashTask> tasks = new ArrayList<>();
+        int from = 0;
+        for (int i = 1; i <= leafCount; i++) {
+            final long chunk = leafKeys[from] >> chunkShift;
+            if (i == leafCount || (leafKeys[i] >> chunkShift) != chunk) {
+                tasks.add(new HashTask(chunkRank, chunk, from, i));
+                from = i;
+            }
+        }
+        for (final HashTask task : tasks) {
+            HASHING_POOL.execute(task);
+        }
+        // Wait for all tasks, even if some of them fail, so no task is still using the batch arrays
+        RuntimeException exception = null;
+        for (final HashTask task : tasks) {
             try {
-                latch.await();
-            } catch (final InterruptedException ex) {
-                if (!shutdown.get()) {
-                    logger.error(EXCEPTION.getMarker(), "Failed to wait for all hashing threads", ex);
+                topHashes[(int) (task.index - (1L << chunkRank))] = task.join();
+            } catch (final RuntimeException ex) {
+                if (exception == null) {
+                    exception = new RuntimeException("exception encountered while hashing virtual tree", ex);
+                } else {
+                    exception.addSuppressed(ex);
                 }
-                Thread.currentThread().interrupt();
             }
+        }
+        if (exception != null) {
+            if (shutdown.get()) {
+                // During a shutdown the rug is pulled out from underneath the hashing threads.
+                // No need to log/throw anything in this condition.
+                return false;
+            }
+            throw exception;
+        }
 
-            // If there were exceptions in on any of the threads then we need to rethrow them.
-            if (!exceptions.isEmpty()) {
-                if (shutdown.get()) {
-                    // During a shutdown the rug is pulled out from underneath the hashing threads.
-                    // No need to log/throw anything in this condition.
-                    return;
-                }
-                final RuntimeException exception =
-                        new RuntimeException("exception encountered while hashing virtual tree", exceptions.remove());
-                for (final Throwable t : exceptions) {
-                    exception.addSuppressed(t);
+        // Notify the listener about all hashed nodes, rank by rank, in ascending path order within each rank.
+        // The chunk roots are reported later, together with the rest of the top of the tree.
+        listener.onBatchStarted();
+        for (int rank = bottomRank; rank > chunkRank; rank--) {
+            listener.onRankStarted();
+            for (int i = 0; i < leafCount; i++) {
+                final VirtualLeafRecord<K, V> leaf = leaves[i];
+                final int leafRank = getRank(leaf.getPath());
+                final int distance = leafRank - rank;
+                if (distance >= 0 && distance < hashOffsets[i + 1] - hashOffsets[i]) {
+                    final int hashIndex = hashOffsets[i] + distance;
+                    if (distance == 0) {
+                        listener.onLeafHashed(leaf);
+                    }
+                    listener.onNodeHashed((leafKeys[i] >> (maxLeafRank - rank)) - 1, nodeHashes[hashIndex]);
+                    nodeHashes[hashIndex] = null;
                 }
-                throw exception;
             }
+            listener.onRankCompleted();
+        }
+        listener.onBatchCompleted();
 
-            final int pendingQueueSize = pendingQueue.size();
-            final int maximumPendingQueueSize = 1 << rank;
-            assert (pendingQueueSize > 0 || hasLastQueue) && pendingQueueSize <= maximumPendingQueueSize
-                    : "Pending queue has an invalid size of " + pendingQueueSize + " at rank " + rank;
+        Arrays.fill(leaves, 0, leafCount, null);
+        leafCount = 0;
+        return true;
+    }
 
-            // Save everything in the wq
+    /**
+     * Hashes the top of the tree, from the chunk rank up to the root, and notifies the listener about
+     * all hashed nodes as a single batch.
+     *
+     * @param listener
+     * 		A {@link VirtualHashListener} that will receive notification of all hashing events. Cannot be null.
+     * @return The hash of the root of the tree
+     */
+    private Hash hashTop(final VirtualHashListener<K, V> listener) {
+        final HashBuilder hashBuilder = HASH_BUILDER_THREAD_LOCAL.get();
+        listener.onBatchStarted();
+        for (int rank = chunkRank; ; rank--) {
+            final long firstPathInRank = (1L << rank) - 1;
+            final int nodesInRank = 1 << rank;
             listener.onRankStarted();
-            wq.stream().forEach(j -> {
-                final VirtualLeafRecord<K, V> leaf = j.getLeaf();
-                if (leaf != null) {
-                    listener.onLeafHashed(leaf);
+            for (int i = 0; i < nodesInRank; i++) {
+                if (topHashes[i] != null) {
+                    listener.onNodeHashed(firstPathInRank + i, topHashes[i]);
                 }
-                listener.onNodeHashed(j.getPath(), j.getHash());
-            });
+            }
             listener.onRankCompleted();
-
-            // Swap the work & pending queues
-            final HashingQueue<K, V> tmp = wq;
-            wq = pq;
-            pq = tmp;
-
-            if (lq != null) {
-                final HashingQueue<K, V> q = wq;
-                lq.stream().forEach(job -> q.appendHashJob().dirtyLeaf(job.getPath(), job.getLeaf()));
-                lq = null;
+            if (rank == 0) {
+                break;
             }
-
-            // Reset the pending queue and now initialOffset will be zero for all subsequent ranks.
-            pq.reset();
+            final long firstParentPath = (1L << (rank - 1)) - 1;
+            for (int i = 0; i < nodesInRank / 2; i++) {
+                final Hash left = topHashes[i * 2];
+                final Hash right = topHashes[i * 2 + 1];
+                if (left == null && right == null) {
+                    nextTopHashes[i] = null;
+                } else {
+                    final long leftPath = firstPathInRank + i * 2;
+                    nextTopHashes[i] = hashInternal(
+                            firstParentPath + i,
+                            left != null ? left : readCleanHash(leftPath),
+                            right != null ? right : readCleanHash(leftPath + 1),
+                            hashBuilder);
+                }
+            }
+            final Hash[] tmp = topHashes;
+            topHashes = nextTopHashes;
+            nextTopHashes = tmp;
         }
+        listener.onBatchCompleted();
+
+        final Hash rootHash = topHashes[0];
+        topHashes[0] = null;
+        return rootHash;
     }
 
     /**
-     * Read all leaves from the given iterator that are in the given rank and segment and add them to the given buffer.
+     * Recursively hashes a sub-tree of the current batch. The hashes of all nodes in the sub-tree are
+     * stored in {@link #nodeHashes}.
      *
-     * @param itr
-     * 		The iterator to read from. Cannot be null. May be at the end.
-     * @param queue
-     * 		The queue to write leaves into. The queue <strong>will be</strong> reset.
-     * @param eofPath
-     * 		The path that is one place larger than the last valid path to read to.
-     * 		This could be the end of a rank, or the end of a specific segment.
+     * @param rank
+     * 		The rank of the sub-tree root
+     * @param index
+     * 		The one-based index of the sub-tree root, that is its path + 1
+     * @param from
+     * 		The index of the first dirty leaf of the sub-tree in {@link #leaves}, inclusive
+     * @param to
+     * 		The index of the last dirty leaf of the sub-tree in {@link #leaves}, exclusive. There must be
+     * 		at least one dirty leaf in the sub-tree
+     * @return The hash of the sub-tree root
      */
-    private void readLeavesInSegment(
-            final PeekIterator<VirtualLeafRecord<K, V>> itr, final HashingQueue<K, V> queue, final long eofPath) {
-        // Iterate either until we run out of dirty leaves, or we encounter a leaf that is in the wrong rank or segment
-        while (itr.hasNext()) {
-            // Peek at the next leaf, but don't pull it off until we determine that it belongs in this buffer
-            final VirtualLeafRecord<?, ?> nextLeaf = itr.peek();
-            final long path = nextLeaf.getPath();
-            if (path < eofPath) {
-                // We know that this leaf belongs in the buffer, so we can go ahead and read it off now.
-                queue.appendHashJob().dirtyLeaf(path, itr.next());
+    private Hash hashSubTree(final int rank, final long index, final int from, final int to) {
+        assert from < to : "Sub-tree has no dirty leaves";
+        final long path = index - 1;
+        final VirtualLeafRecord<K, V> firstLeaf = leaves[from];
+        final int firstLeafRank = getRank(firstLeaf.getPath());
+        final Hash hash;
+        if (firstLeaf.getPath() == path) {
+            assert to - from == 1 : "A leaf cannot have children";
+            hash = CRYPTO.digestSync(firstLeaf);
+        } else {
+            final long leftIndex = index << 1;
+            final long rightIndex = leftIndex + 1;
+            final int split = findFirstLeaf(from, to, rightIndex << (maxLeafRank - rank - 1));
+            final Hash leftHash;
+            final Hash rightHash;
+            if ((to - from > MAX_LEAVES_PER_TASK) && (split > from) && (split < to)) {
+                final HashTask leftTask = new HashTask(rank + 1, leftIndex, from, split);
+                leftTask.fork();
+                try {
+                    rightHash = hashChild(rank + 1, rightIndex, split, to);
+                } catch (final RuntimeException ex) {
+                    leftTask.quietlyJoin();
+                    throw ex;
+                }
+                leftHash = leftTask.join();
             } else {
-                // We have encountered a leaf that is in the wrong segment.
-                break;
+                leftHash = hashChild(rank + 1, leftIndex, from, split);
+                rightHash = hashChild(rank + 1, rightIndex, split, to);
             }
+            hash = hashInternal(path, leftHash, rightHash, HASH_BUILDER_THREAD_LOCAL.get());
         }
+        nodeHashes[hashOffsets[from] + firstLeafRank - rank] = hash;
+        return hash;
     }
 
-    private void accumulate(
-            final PeekIterator<VirtualLeafRecord<K, V>> itr,
-            final HashingQueue<K, V> queue,
-            long segmentStart,
-            final long segmentSize,
-            final long eofPath) {
-        // While we have not yet read our "preferred" number of items, read off a segment into the queue.
-        while (queue.size() < segmentSize) {
-            readLeavesInSegment(itr, queue, Math.min(segmentStart + segmentSize, eofPath));
-            // If we have read as much as is available to read, then bail.
-            if (!itr.hasNext() || itr.peek().getPath() >= eofPath) {
-                return;
+    private Hash hashChild(final int rank, final long index, final int from, final int to) {
+        return from < to ? hashSubTree(rank, index, from, to) : readCleanHash(index - 1);
+    }
+
+    /**
+     * Finds the first leaf in the given range of {@link #leaves} with a key greater than or equal to
+     * the given key.
+     */
+    private int findFirstLeaf(int from, int to, final long key) {
+        while (from < to) {
+            final int mid = (from + to) >>> 1;
+            if (leafKeys[mid] < key) {
+                from = mid + 1;
             } else {
-                segmentStart += segmentSize;
+                to = mid;
             }
         }
+        return from;
+    }
+
+    /**
+     * Gets the hash of a node that isn't dirty. It must exist, because it is either stored in the cache or on
+     * disk. Otherwise, if it were dirty this round, it would have been hashed. The only exception is the right
+     * child of root in a tree with a single leaf, which has a null hash.
+     */
+    private Hash readCleanHash(final long path) {
+        if (path > lastLeafPath) {
+            return null;
+        }
+        final Hash hash = hashReader.apply(path);
+        if (hash == null) {
+            throw new IllegalStateException("Failed to find a hash for " + path);
+        }
+        return hash;
+    }
+
+    /**
+     * Reads all leaves from the given iterator with paths less than the given path, and adds them to
+     * {@link #leaves}.
+     */
+    private void readLeaves(final PeekIterator<VirtualLeafRecord<K, V>> itr, final long eofPath) {
+        for (VirtualLeafRecord<K, V> leaf = nextLeaf(itr, eofPath); leaf != null; leaf = nextLeaf(itr, eofPath)) {
+            addLeaf(leaf);
+        }
+    }
+
+    private void addLeaf(final VirtualLeafRecord<K, V> leaf) {
+        if (leafCount == leaves.length) {
+            leaves = Arrays.copyOf(leaves, leafCount * 2);
+        }
+        leaves[leafCount++] = leaf;
+    }
+
+    /**
+     * Gets the next leaf from the given iterator, if its path is less than the given path.
+     *
+     * @return the next leaf, or null if the iterator is at the end or the next leaf is at or beyond eofPath
+     */
+    private VirtualLeafRecord<K, V> nextLeaf(final PeekIterator<VirtualLeafRecord<K, V>> itr, final long eofPath) {
+        if (!itr.hasNext() || itr.peek().getPath() >= eofPath) {
+            return null;
+        }
+        final VirtualLeafRecord<K, V> leaf = itr.next();
+        final long path = leaf.getPath();
+
+        // SANITY CHECK: Fail fast if this condition does not hold
+        if (path <= lastPath) {
+            throw new IllegalStateException("The paths in the iterator must be strictly increasing! " + "lastPath="
+                    + lastPath + ", path=" + path);
+        }
+        lastPath = path;
+
+        // The path must always be within this range. We can use an assertion here because,
+        // unless there is some bug in our code, this cannot happen.
+        assert path >= firstLeafPath && path <= lastLeafPath : "Invalid path lies outside the leaf path range " + path;
+        return leaf;
+    }
+
+    /**
+     * Gets the rank of the lowest common ancestor of two different leaves, given their keys.
+     */
+    private int commonAncestorRank(final long key1, final long key2) {
+        return maxLeafRank - (Long.SIZE - Long.numberOfLeadingZeros(key1 ^ key2));
+    }
+
+    private static Hash hashInternal(final long path, final Hash left, final Hash right, final HashBuilder builder) {
+        final long classId = path == ROOT_PATH ? VirtualRootNode.CLASS_ID : VirtualInternalNode.CLASS_ID;
+
+        final int serId = path == ROOT_PATH
+                ? VirtualRootNode.ClassVersion.CURRENT_VERSION
+                : VirtualInternalNode.SERIALIZATION_VERSION;
+
+        builder.reset();
+        builder.update(classId);
+        builder.update(serId);
+        builder.update(left == null ? NULL_HASH : left);
+        builder.update(right == null ? NULL_HASH : right);
+        return builder.build();
+    }
+
+    private static ForkJoinWorkerThread newHashingThread(final ForkJoinPool pool) {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("<virtual-map: hasher #" + thread.getPoolIndex() + ">");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends VirtualKey, V extends VirtualValue> VirtualLeafRecord<K, V>[] newLeafArray(
+            final int size) {
+        return new VirtualLeafRecord[size];
     }
 
     public Hash emptyRootHash() {
-        final var hashJob = new HashJob<K, V>();
-        hashJob.dirtyInternal(ROOT_PATH, null, null);
-        hashJob.hash(new HashBuilder(Cryptography.DEFAULT_DIGEST_TYPE));
-        return hashJob.getHash();
+        return hashInternal(ROOT_PATH, null, null, new HashBuilder(Cryptography.DEFAULT_DIGEST_TYPE));
+    }
+
+    /**
+     * A fork-join task to hash a sub-tree of the current batch.
+     */
+    private final class HashTask extends RecursiveTask<Hash> {
+        private final int rank;
+        private final long index;
+        private final int from;
+        private final int to;
+
+        HashTask(final int rank, final long index, final int from, final int to) {
+            this.rank = rank;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Hash compute() {
+            return hashSubTree(rank, index, from, to);
+        }
     }
 }
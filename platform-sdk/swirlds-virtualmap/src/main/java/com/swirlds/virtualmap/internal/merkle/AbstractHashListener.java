@@ -28,8 +28,10 @@ import com.swirlds.virtualmap.internal.reconnect.ReconnectHashListener;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
 
 /**
@@ -52,6 +54,9 @@ import java.util.stream.Stream;
  * deepest rank (the leaves) to the lowest rank (nearest the top). When we flush, we flush in the opposite order
  * from the closest to the top of the tree to the deepest rank. Each rank is processed in ascending path order.
  * So we store each rank as a separate array and then stream them out in the proper order to disk.
+ * <p>
+ * Optionally, multiple batches may be accumulated in memory until they have enough leaves, and then flushed
+ * together. Accumulated ranks are ordered by path, so the data source still gets sorted leaves and hashes.
  *
  * @param <K>
  * 		The key
@@ -64,6 +69,8 @@ public abstract class AbstractHashListener<K extends VirtualKey, V extends Virtu
     private final VirtualDataSource<K, V> dataSource;
     private final long firstLeafPath;
     private final long lastLeafPath;
+    private final int flushBatchSize;
+    private long pendingLeafCount = 0;
     private final List<List<VirtualLeafRecord<K, V>>> batchLeaves = new ArrayList<>();
     private final List<List<VirtualHashRecord>> batchNodes = new ArrayList<>();
     private List<VirtualLeafRecord<K, V>> rankLeaves;
@@ -81,6 +88,28 @@ public abstract class AbstractHashListener<K extends VirtualKey, V extends Virtu
      */
     protected AbstractHashListener(
             final long firstLeafPath, final long lastLeafPath, final VirtualDataSource<K, V> dataSource) {
+        this(firstLeafPath, lastLeafPath, dataSource, 0);
+    }
+
+    /**
+     * Create a new {@link AbstractHashListener}, which accumulates hashed batches until they have at
+     * least the given number of leaves.
+     *
+     * @param firstLeafPath
+     * 		The first leaf path. Must be a valid path.
+     * @param lastLeafPath
+     * 		The last leaf path. Must be a valid path.
+     * @param dataSource
+     * 		The data source. Cannot be null.
+     * @param flushBatchSize
+     * 		The minimum number of leaves to flush to the data source at once. If zero, every batch is
+     * 		flushed as soon as it's hashed.
+     */
+    protected AbstractHashListener(
+            final long firstLeafPath,
+            final long lastLeafPath,
+            final VirtualDataSource<K, V> dataSource,
+            final int flushBatchSize) {
 
         if (firstLeafPath != Path.INVALID_PATH && !(firstLeafPath > 0 && firstLeafPath <= lastLeafPath)) {
             throw new IllegalArgumentException("The first leaf path is invalid. firstLeafPath=" + firstLeafPath
@@ -95,15 +124,10 @@ public abstract class AbstractHashListener<K extends VirtualKey, V extends Virtu
         this.firstLeafPath = firstLeafPath;
         this.lastLeafPath = lastLeafPath;
         this.dataSource = Objects.requireNonNull(dataSource);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void onBatchStarted() {
-        batchLeaves.clear();
-        batchNodes.clear();
+        if (flushBatchSize < 0) {
+            throw new IllegalArgumentException("The flush batch size is negative: " + flushBatchSize);
+        }
+        this.flushBatchSize = flushBatchSize;
     }
 
     /**
@@ -138,6 +162,7 @@ public abstract class AbstractHashListener<K extends VirtualKey, V extends Virtu
     public void onRankCompleted() {
         batchLeaves.add(rankLeaves);
         batchNodes.add(rankNodes);
+        pendingLeafCount += rankLeaves.size();
     }
 
     /**
@@ -145,25 +170,33 @@ public abstract class AbstractHashListener<K extends VirtualKey, V extends Virtu
      */
     @Override
     public void onBatchCompleted() {
-        long maxPath = -1;
+        if (pendingLeafCount >= flushBatchSize) {
+            flush();
+        }
+    }
 
-        Stream<VirtualHashRecord> sortedDirtyHashes = Stream.of();
-        for (int i = batchNodes.size() - 1; i >= 0; i--) {
-            final List<VirtualHashRecord> batch = batchNodes.get(i);
-            if (!batch.isEmpty()) {
-                sortedDirtyHashes = Stream.concat(sortedDirtyHashes, batch.stream());
-                maxPath = Math.max(maxPath, batch.get(batch.size() - 1).path());
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onHashingCompleted() {
+        if (!batchNodes.isEmpty() || !batchLeaves.isEmpty()) {
+            flush();
         }
+    }
 
-        Stream<VirtualLeafRecord<K, V>> sortedDirtyLeaves = Stream.of();
-        for (int i = batchLeaves.size() - 1; i >= 0; i--) {
-            final List<VirtualLeafRecord<K, V>> batch = batchLeaves.get(i);
-            if (!batch.isEmpty()) {
-                sortedDirtyLeaves = Stream.concat(sortedDirtyLeaves, batch.stream());
-                maxPath = Math.max(maxPath, batch.get(batch.size() - 1).getPath());
-            }
+    private void flush() {
+        final List<List<VirtualHashRecord>> sortedNodes = sortRanks(batchNodes, VirtualHashRecord::path);
+        final List<List<VirtualLeafRecord<K, V>>> sortedLeaves = sortRanks(batchLeaves, VirtualLeafRecord::getPath);
+        long maxPath = -1;
+        if (!sortedNodes.isEmpty()) {
+            maxPath = Math.max(maxPath, lastPath(sortedNodes, VirtualHashRecord::path));
         }
+        if (!sortedLeaves.isEmpty()) {
+            maxPath = Math.max(maxPath, lastPath(sortedLeaves, VirtualLeafRecord::getPath));
+        }
+        final Stream<VirtualHashRecord> sortedDirtyHashes = sortedNodes.stream().flatMap(List::stream);
+        final Stream<VirtualLeafRecord<K, V>> sortedDirtyLeaves = sortedLeaves.stream().flatMap(List::stream);
 
         // flush it down
         try {
@@ -172,6 +205,40 @@ public abstract class AbstractHashListener<K extends VirtualKey, V extends Virtu
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+
+        batchLeaves.clear();
+        batchNodes.clear();
+        pendingLeafCount = 0;
+    }
+
+    /**
+     * Orders the given ranks, each sorted by path, so their concatenation is sorted by path, too. Ranks
+     * of a single batch or of different batches never overlap, so it's enough to order them by their first
+     * paths. If they overlap anyway, all their elements are sorted into a single list.
+     */
+    private static <T> List<List<T>> sortRanks(final List<List<T>> ranks, final ToLongFunction<T> path) {
+        final List<List<T>> sorted = new ArrayList<>(ranks.size());
+        for (final List<T> rank : ranks) {
+            if (!rank.isEmpty()) {
+                sorted.add(rank);
+            }
+        }
+        sorted.sort(Comparator.comparingLong(rank -> path.applyAsLong(rank.get(0))));
+        for (int i = 1; i < sorted.size(); i++) {
+            final List<T> prev = sorted.get(i - 1);
+            if (path.applyAsLong(prev.get(prev.size() - 1)) >= path.applyAsLong(sorted.get(i).get(0))) {
+                final List<T> all = new ArrayList<>();
+                sorted.forEach(all::addAll);
+                all.sort(Comparator.comparingLong(path));
+                return List.of(all);
+            }
+        }
+        return sorted;
+    }
+
+    private static <T> long lastPath(final List<List<T>> sortedRanks, final ToLongFunction<T> path) {
+        final List<T> lastRank = sortedRanks.get(sortedRanks.size() - 1);
+        return path.applyAsLong(lastRank.get(lastRank.size() - 1));
     }
 
     /**
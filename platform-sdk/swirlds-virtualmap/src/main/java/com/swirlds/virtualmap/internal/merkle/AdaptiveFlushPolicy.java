@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.merkle;
+
+import java.time.Duration;
+
+/**
+ * Computes flush thresholds for virtual root copies, adjusting them to the measured flush throughput.
+ * A single policy instance is shared by all copies of the same virtual map.
+ * <p>
+ * The policy has two targets: a memory budget for all unflushed copies of a map, and a flush latency.
+ * A flushed copy should be small enough to be flushed in the target latency, given the flush throughput
+ * measured so far. It should also be no larger than half of the memory budget, so the next copy can grow
+ * while the previous one is being flushed. The flush threshold is the lower of the two limits. Until the
+ * first flush is measured, the static threshold is used, capped by the memory budget.
+ * <p>
+ * Copy sizes are estimated with {@link VirtualRootNode#estimatedSize()}, the same as for static flush
+ * thresholds.
+ */
+final class AdaptiveFlushPolicy {
+
+    /**
+     * Weight of the last measured flush in the flush throughput estimate.
+     */
+    private static final double THROUGHPUT_SMOOTHING_FACTOR = 0.25;
+
+    /**
+     * Flushes faster than this aren't measured, since their throughput is mostly overhead.
+     */
+    private static final long MIN_MEASURED_FLUSH_NANOS = 1_000_000;
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /**
+     * Memory budget for all unflushed copies of a map, in bytes. If zero, the policy is disabled,
+     * and static flush thresholds are used.
+     */
+    private final long memoryBudget;
+
+    /**
+     * Target flush latency, in nanoseconds.
+     */
+    private final long targetFlushLatencyNanos;
+
+    /**
+     * Estimated flush throughput, in bytes per second. Zero until the first flush is measured.
+     */
+    private volatile double flushThroughput = 0;
+
+    /**
+     * Creates a new flush policy.
+     *
+     * @param memoryBudget
+     * 		memory budget for all unflushed copies of a map, in bytes. Zero to disable the policy
+     * @param targetFlushLatency
+     * 		target flush latency
+     */
+    AdaptiveFlushPolicy(final long memoryBudget, final Duration targetFlushLatency) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        this.targetFlushLatencyNanos = targetFlushLatency.toNanos();
+    }
+
+    /**
+     * Checks if this policy is enabled.
+     *
+     * @return true if a memory budget is set, false otherwise
+     */
+    boolean isEnabled() {
+        return memoryBudget > 0;
+    }
+
+    /**
+     * Gets the flush threshold to use for the next copies.
+     *
+     * @param staticThreshold
+     * 		the configured flush threshold, in bytes. Must be positive
+     * @return the flush threshold, in bytes
+     */
+    long getFlushThreshold(final long staticThreshold) {
+        if (!isEnabled()) {
+            return staticThreshold;
+        }
+        final long memoryLimit = Math.max(1, memoryBudget / 2);
+        final double throughput = flushThroughput;
+        if (throughput <= 0) {
+            return Math.min(staticThreshold, memoryLimit);
+        }
+        final long latencyLimit = (long) (throughput * targetFlushLatencyNanos / NANOS_PER_SECOND);
+        return Math.max(1, Math.min(latencyLimit, memoryLimit));
+    }
+
+    /**
+     * Records a completed flush to update the flush throughput estimate.
+     *
+     * @param flushedSize
+     * 		estimated size of the flushed copy, in bytes
+     * @param flushNanos
+     * 		flush duration, in nanoseconds
+     */
+    synchronized void recordFlush(final long flushedSize, final long flushNanos) {
+        if ((flushedSize <= 0) || (flushNanos < MIN_MEASURED_FLUSH_NANOS)) {
+            return;
+        }
+        final double throughput = flushedSize * NANOS_PER_SECOND / flushNanos;
+        final double current = flushThroughput;
+        flushThroughput = (current <= 0)
+                ? throughput
+                : (current * (1 - THROUGHPUT_SMOOTHING_FACTOR) + throughput * THROUGHPUT_SMOOTHING_FACTOR);
+    }
+
+    /**
+     * Gets the estimated flush throughput.
+     *
+     * @return flush throughput, in bytes per second, or zero if no flushes have been measured
+     */
+    double getFlushThroughput() {
+        return flushThroughput;
+    }
+}
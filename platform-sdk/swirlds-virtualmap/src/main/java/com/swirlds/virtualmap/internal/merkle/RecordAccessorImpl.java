@@ -30,6 +30,9 @@ import com.swirlds.virtualmap.internal.VirtualStateAccessor;
 import com.swirlds.virtualmap.internal.cache.VirtualNodeCache;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -107,6 +110,43 @@ public class RecordAccessorImpl<K extends VirtualKey, V extends VirtualValue> im
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Hash> findHashes(final long[] paths) {
+        final int count = paths.length;
+        final List<Hash> hashes = new ArrayList<>(count);
+        // Indices of paths not found in the cache, to load from the data source
+        final int[] missed = new int[count];
+        int missedCount = 0;
+        for (int i = 0; i < count; i++) {
+            final long path = paths[i];
+            assert path >= 0;
+            final Hash hash = cache.lookupHashByPath(path, false);
+            if (hash == null) {
+                missed[missedCount++] = i;
+            }
+            hashes.add(hash == VirtualNodeCache.DELETED_HASH ? null : hash);
+        }
+        if (missedCount == 0) {
+            return hashes;
+        }
+        final long[] missedPaths = new long[missedCount];
+        for (int i = 0; i < missedCount; i++) {
+            missedPaths[i] = paths[missed[i]];
+        }
+        try {
+            final List<Hash> loaded = dataSource.loadHashes(missedPaths);
+            for (int i = 0; i < missedCount; i++) {
+                hashes.set(missed[i], loaded.get(i));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to read node hashes from data source by paths", e);
+        }
+        return hashes;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -146,6 +186,41 @@ public class RecordAccessorImpl<K extends VirtualKey, V extends VirtualValue> im
         return rec == VirtualNodeCache.DELETED_LEAF_RECORD ? null : rec;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<VirtualLeafRecord<K, V>> findLeafRecords(final List<K> keys) {
+        final int count = keys.size();
+        final List<VirtualLeafRecord<K, V>> records = new ArrayList<>(count);
+        // Indices of keys not found in the cache, to load from the data source
+        final int[] missed = new int[count];
+        final List<K> missedKeys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final K key = keys.get(i);
+            final VirtualLeafRecord<K, V> rec = cache.lookupLeafByKey(key, false);
+            if (rec == null) {
+                missed[missedKeys.size()] = i;
+                missedKeys.add(key);
+            }
+            records.add(rec == VirtualNodeCache.DELETED_LEAF_RECORD ? null : rec);
+        }
+        if (missedKeys.isEmpty()) {
+            return records;
+        }
+        try {
+            final List<VirtualLeafRecord<K, V>> loaded = missedKeys.size() == 1
+                    ? Collections.singletonList(dataSource.loadLeafRecord(missedKeys.get(0)))
+                    : dataSource.loadLeafRecords(missedKeys);
+            for (int i = 0; i < missedKeys.size(); i++) {
+                records.set(missed[i], loaded.get(i));
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Failed to read leaf records from the data source by keys", ex);
+        }
+        return records;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -173,6 +248,49 @@ public class RecordAccessorImpl<K extends VirtualKey, V extends VirtualValue> im
         return rec == VirtualNodeCache.DELETED_LEAF_RECORD ? null : rec;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<VirtualLeafRecord<K, V>> findLeafRecords(final long[] paths) {
+        final int count = paths.length;
+        final List<VirtualLeafRecord<K, V>> records = new ArrayList<>(count);
+        final long firstLeafPath = state.getFirstLeafPath();
+        final long lastLeafPath = state.getLastLeafPath();
+        // Indices of paths not found in the cache, to load from the data source
+        final int[] missed = new int[count];
+        int missedCount = 0;
+        for (int i = 0; i < count; i++) {
+            final long path = paths[i];
+            assert path != INVALID_PATH;
+            assert path != ROOT_PATH;
+            VirtualLeafRecord<K, V> rec = null;
+            if (path >= firstLeafPath && path <= lastLeafPath) {
+                rec = cache.lookupLeafByPath(path, false);
+                if (rec == null) {
+                    missed[missedCount++] = i;
+                }
+            }
+            records.add(rec == VirtualNodeCache.DELETED_LEAF_RECORD ? null : rec);
+        }
+        if (missedCount == 0) {
+            return records;
+        }
+        final long[] missedPaths = new long[missedCount];
+        for (int i = 0; i < missedCount; i++) {
+            missedPaths[i] = paths[missed[i]];
+        }
+        try {
+            final List<VirtualLeafRecord<K, V>> loaded = dataSource.loadLeafRecords(missedPaths);
+            for (int i = 0; i < missedCount; i++) {
+                records.set(missed[i], loaded.get(i));
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Failed to read leaf records from the data source by paths", ex);
+        }
+        return records;
+    }
+
     /**
      * {@inheritDoc}
      */
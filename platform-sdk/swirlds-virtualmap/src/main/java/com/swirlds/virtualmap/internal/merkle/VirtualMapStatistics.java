@@ -37,6 +37,8 @@ public class VirtualMapStatistics {
     private static final String QUERIES_PREFIX = "queries_";
     /** Prefix for all lifecycle related metric names */
     private static final String LIFECYCLE_PREFIX = "lifecycle_";
+    /** Prefix for all reconnect related metric names */
+    private static final String RECONNECT_PREFIX = "reconnect_";
 
     /** Virtual Map name */
     private final String label;
@@ -71,6 +73,14 @@ public class VirtualMapStatistics {
     private Counter flushCount;
     /** The average time to hash virtual map copy, ms */
     private LongAccumulator hashDurationMs;
+    /** Virtual root copy flush threshold, as adjusted to flush throughput, in bytes */
+    private LongGauge flushThresholdB;
+    /** Estimated flush throughput, in bytes per second */
+    private LongGauge flushThroughputBps;
+    /** Reconnect throughput on the teacher side, leaves sent per second */
+    private LongGauge reconnectTeacherLeavesPerSec;
+    /** Reconnect throughput on the learner side, leaves received and hashed per second */
+    private LongGauge reconnectLearnerLeavesPerSec;
 
     private static LongAccumulator buildLongAccumulator(
             final Metrics metrics, final String name, final String description) {
@@ -167,6 +177,20 @@ public class VirtualMapStatistics {
                 metrics,
                 VMAP_PREFIX + LIFECYCLE_PREFIX + "hashDurationMs_" + label,
                 "Virtual root copy hash duration, " + label + ", ms");
+        flushThresholdB = metrics.getOrCreate(
+                new LongGauge.Config(STAT_CATEGORY, VMAP_PREFIX + LIFECYCLE_PREFIX + "flushThresholdB_" + label)
+                        .withDescription("Virtual root copy flush threshold, " + label + ", bytes"));
+        flushThroughputBps = metrics.getOrCreate(
+                new LongGauge.Config(STAT_CATEGORY, VMAP_PREFIX + LIFECYCLE_PREFIX + "flushThroughputBps_" + label)
+                        .withDescription("Virtual root copy estimated flush throughput, " + label + ", bytes/s"));
+
+        // Reconnect
+        reconnectTeacherLeavesPerSec = metrics.getOrCreate(new LongGauge.Config(
+                        STAT_CATEGORY, VMAP_PREFIX + RECONNECT_PREFIX + "teacherLeavesPerSec_" + label)
+                .withDescription("Reconnect throughput on the teacher side, " + label + ", leaves/s"));
+        reconnectLearnerLeavesPerSec = metrics.getOrCreate(new LongGauge.Config(
+                        STAT_CATEGORY, VMAP_PREFIX + RECONNECT_PREFIX + "learnerLeavesPerSec_" + label)
+                .withDescription("Reconnect throughput on the learner side, " + label + ", leaves/s"));
     }
 
     /**
@@ -306,4 +330,48 @@ public class VirtualMapStatistics {
             this.hashDurationMs.update(hashDurationMs);
         }
     }
+
+    /**
+     * Updates {@link #flushThresholdB} stat to the given value.
+     *
+     * @param value the flush threshold, bytes
+     */
+    public void setFlushThreshold(final long value) {
+        if (flushThresholdB != null) {
+            flushThresholdB.set(value);
+        }
+    }
+
+    /**
+     * Updates {@link #flushThroughputBps} stat to the given value.
+     *
+     * @param value the estimated flush throughput, bytes per second
+     */
+    public void setFlushThroughput(final long value) {
+        if (flushThroughputBps != null) {
+            flushThroughputBps.set(value);
+        }
+    }
+
+    /**
+     * Updates {@link #reconnectTeacherLeavesPerSec} stat to the given value.
+     *
+     * @param value the number of leaves sent to the learner per second
+     */
+    public void setReconnectTeacherLeavesPerSec(final long value) {
+        if (reconnectTeacherLeavesPerSec != null) {
+            reconnectTeacherLeavesPerSec.set(value);
+        }
+    }
+
+    /**
+     * Updates {@link #reconnectLearnerLeavesPerSec} stat to the given value.
+     *
+     * @param value the number of leaves received from the teacher and hashed per second
+     */
+    public void setReconnectLearnerLeavesPerSec(final long value) {
+        if (reconnectLearnerLeavesPerSec != null) {
+            reconnectLearnerLeavesPerSec.set(value);
+        }
+    }
 }
@@ -83,6 +83,9 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
@@ -171,6 +174,11 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
      */
     private static final int MAX_FULL_REHASHING_TIMEOUT = 3600; // 1 hour
 
+    /**
+     * The number of leaves loaded from the data source in a single batch during the full leaf rehash.
+     */
+    private static final int FULL_REHASH_LOAD_BATCH_SIZE = 1024;
+
     /**
      * Placeholder (since this is such a hotspot) to hold the results from {@link ConfigurationHolder#getConfigData(Class)}
      * rather than calling that method more than once during the lifecycle of a {@link VirtualRootNode} instance.
@@ -267,6 +275,12 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
      */
     private final AtomicLong flushThreshold = new AtomicLong();
 
+    /**
+     * Adjusts {@link #flushThreshold} to the measured flush throughput, if a memory budget is set
+     * with {@link VirtualMapConfig#flushMemoryBudget()}. Shared by all copies.
+     */
+    private final AdaptiveFlushPolicy flushPolicy;
+
     /**
      * This latch is used to implement {@link #waitUntilFlushed()}.
      */
@@ -325,6 +339,7 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
         // Hasher is required during reconnects
         this.hasher = new VirtualHasher<>();
         this.flushThreshold.set(config.copyFlushThreshold());
+        this.flushPolicy = new AdaptiveFlushPolicy(config.flushMemoryBudget(), config.targetFlushLatency());
         // All other fields are initialized in postInit()
     }
 
@@ -338,6 +353,7 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
         this.fastCopyVersion = 0;
         this.hasher = new VirtualHasher<>();
         this.flushThreshold.set(config.copyFlushThreshold());
+        this.flushPolicy = new AdaptiveFlushPolicy(config.flushMemoryBudget(), config.targetFlushLatency());
         Objects.requireNonNull(dataSourceBuilder);
         this.dataSourceBuilder = dataSourceBuilder;
         // All other fields are initialized in postInit()
@@ -367,6 +383,7 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
         this.maxSizeReachedTriggeringWarning = source.maxSizeReachedTriggeringWarning;
         this.pipeline = source.pipeline;
         this.flushThreshold.set(source.flushThreshold.get());
+        this.flushPolicy = source.flushPolicy;
         this.statistics = source.statistics;
 
         if (this.pipeline.isTerminated()) {
@@ -490,9 +507,25 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
                 .setRunnable(() -> {
                     final long onePercent = (lastLeafPath - firstLeafPath) / 100 + 1;
                     try {
-                        for (long i = firstLeafPath; i <= lastLeafPath; i++) {
+                        for (long batchStart = firstLeafPath;
+                                batchStart <= lastLeafPath;
+                                batchStart += FULL_REHASH_LOAD_BATCH_SIZE) {
+                            // leaves are loaded in batches, so the data source can read them in parallel
+                            final int batchSize =
+                                    (int) Math.min(FULL_REHASH_LOAD_BATCH_SIZE, lastLeafPath - batchStart + 1);
+                            final long[] paths = new long[batchSize];
+                            for (int j = 0; j < batchSize; j++) {
+                                paths[j] = batchStart + j;
+                            }
+                            final List<VirtualLeafRecord<K, V>> leafRecords;
                             try {
-                                VirtualLeafRecord<K, V> leafRecord = dataSource.loadLeafRecord(i);
+                                leafRecords = dataSource.loadLeafRecords(paths);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            for (int j = 0; j < batchSize; j++) {
+                                final long i = paths[j];
+                                final VirtualLeafRecord<K, V> leafRecord = leafRecords.get(j);
                                 assert leafRecord != null : "Leaf record should not be null";
                                 try {
                                     rehashIterator.supply(leafRecord);
@@ -507,16 +540,14 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
                                     throw new MerkleSynchronizationException(
                                             "Failed to handle a leaf during full rehashing", e);
                                 }
-                            } catch (IOException e) {
-                                throw new UncheckedIOException(e);
-                            }
-                            // we don't care about tracking progress on small maps.
-                            if (onePercent > 10 && i % onePercent == 0) {
-                                logger.info(
-                                        STARTUP.getMarker(),
-                                        "Full rehash progress for the VirtualMap at {}: {}%",
-                                        getRoute(),
-                                        (i - firstLeafPath) / onePercent + 1);
+                                // we don't care about tracking progress on small maps.
+                                if (onePercent > 10 && i % onePercent == 0) {
+                                    logger.info(
+                                            STARTUP.getMarker(),
+                                            "Full rehash progress for the VirtualMap at {}: {}%",
+                                            getRoute(),
+                                            (i - firstLeafPath) / onePercent + 1);
+                                }
                             }
                         }
                     } finally {
@@ -813,6 +844,35 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
         return value == null ? null : (V) value.asReadOnly();
     }
 
+    /**
+     * Gets the values associated with the given keys. Leaves that are not in memory are loaded
+     * from the data source in a single batch. The returned values *WILL BE* immutable.
+     *
+     * @param keys
+     * 		The keys. Must not be null or contain nulls.
+     * @return The values in the iteration order of the keys. A value may be null, or will be read only.
+     */
+    public List<V> getAll(final Collection<K> keys) {
+        final List<VirtualLeafRecord<K, V>> recs = findLeafRecords(keys);
+        final List<V> values = new ArrayList<>(recs.size());
+        for (final VirtualLeafRecord<K, V> rec : recs) {
+            final V value = rec == null ? null : rec.getValue();
+            statistics.countReadEntities();
+            //noinspection unchecked
+            values.add(value == null ? null : (V) value.asReadOnly());
+        }
+        return values;
+    }
+
+    private List<VirtualLeafRecord<K, V>> findLeafRecords(final Collection<K> keys) {
+        Objects.requireNonNull(keys);
+        final List<K> keyList = new ArrayList<>(keys.size());
+        for (final K key : keys) {
+            keyList.add(Objects.requireNonNull(key, NO_NULL_KEYS_ALLOWED_MESSAGE));
+        }
+        return records.findLeafRecords(keyList);
+    }
+
     /**
      * Puts the key/value pair into the map. The key must not be null, but the value
      * may be null. The previous value, if it existed, is returned. If the entry was already in the map,
@@ -1061,7 +1121,7 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
         }
         // Otherwise check its size and compare against flush threshold
         final long threshold = flushThreshold.get();
-        return (threshold > 0) && (estimatedSize() >= threshold);
+        return (threshold > 0) && (estimatedSize() >= flushPolicy.getFlushThreshold(threshold));
     }
 
     /**
@@ -1114,13 +1174,21 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
             throw new IllegalStateException("a merged copy can not be flushed");
         }
 
+        final long flushedSize = flushPolicy.isEnabled() ? estimatedSize() : 0;
         final long start = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
         flush(cache, state, dataSource);
+        final long flushNanos = System.nanoTime() - startNanos;
         cache.release();
         final long end = System.currentTimeMillis();
         flushed.set(true);
         flushLatch.countDown();
         statistics.recordFlush(end - start);
+        if (flushPolicy.isEnabled()) {
+            flushPolicy.recordFlush(flushedSize, flushNanos);
+            statistics.setFlushThroughput((long) flushPolicy.getFlushThroughput());
+            statistics.setFlushThreshold(flushPolicy.getFlushThreshold(flushThreshold.get()));
+        }
         logger.debug(VIRTUAL_MERKLE_STATS.getMarker(), "Flushed in {} ms", end - start);
     }
 
@@ -1341,7 +1409,7 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
      */
     @Override
     public TeacherTreeView<Long> buildTeacherView() {
-        return new VirtualTeacherTreeView<>(getStaticThreadManager(), this, state, pipeline);
+        return new VirtualTeacherTreeView<>(getStaticThreadManager(), this, state, pipeline, statistics);
     }
 
     /**
@@ -1449,7 +1517,12 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
     public void prepareReconnectHashing(final long firstLeafPath, final long lastLeafPath) {
         // The hash listener will be responsible for flushing stuff to the reconnect data source
         final ReconnectHashListener<K, V> hashListener = new ReconnectHashListener<>(
-                firstLeafPath, lastLeafPath, reconnectRecords.getDataSource(), learnerTreeView.getNodeRemover());
+                firstLeafPath,
+                lastLeafPath,
+                reconnectRecords.getDataSource(),
+                learnerTreeView.getNodeRemover(),
+                config.reconnectFlushBatchSize(),
+                statistics);
 
         // This background thread will be responsible for hashing the tree and sending the
         // data to the hash listener to flush.
@@ -1505,6 +1578,15 @@ public final class VirtualRootNode<K extends VirtualKey, V extends VirtualValue>
         records.findLeafRecord(key, false);
     }
 
+    /**
+     * Loads leaf records for multiple keys in a single batch. Similar to {@link #warm(VirtualKey)},
+     * but leaves stored close to each other in the data source are loaded together.
+     * @param keys keys to the leaf nodes
+     */
+    public void warmAll(final Collection<K> keys) {
+        findLeafRecords(keys);
+    }
+
     ////////////////////////
 
     /**
@@ -22,6 +22,7 @@ import com.swirlds.virtualmap.datasource.VirtualDataSource;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.internal.hash.VirtualHashListener;
 import com.swirlds.virtualmap.internal.merkle.AbstractHashListener;
+import com.swirlds.virtualmap.internal.merkle.VirtualMapStatistics;
 import java.util.stream.Stream;
 
 /**
@@ -45,6 +46,9 @@ import java.util.stream.Stream;
  * deepest rank (the leaves) to the lowest rank (nearest the top). When we flush, we flush in the opposite order
  * from the closest to the top of the tree to the deepest rank. Each rank is processed in ascending path order.
  * So we store each rank as a separate array and then stream them out in the proper order to disk.
+ * <p>
+ * To write leaves to the data source in large sorted batches, multiple hashed batches may be accumulated
+ * before they are flushed, see {@link AbstractHashListener}.
  *
  * @param <K>
  * 		The key
@@ -55,7 +59,12 @@ public class ReconnectHashListener<K extends VirtualKey, V extends VirtualValue>
     private final ReconnectNodeRemover<K, V> nodeRemover;
 
     /**
-     * Create a new {@link ReconnectHashListener}.
+     * Measures the number of leaves received from the teacher per second. Null, if not measured.
+     */
+    private final ReconnectThroughputMeter throughputMeter;
+
+    /**
+     * Create a new {@link ReconnectHashListener}, which flushes every hashed batch to the data source.
      *
      * @param firstLeafPath
      * 		The first leaf path. Must be a valid path.
@@ -71,6 +80,55 @@ public class ReconnectHashListener<K extends VirtualKey, V extends VirtualValue>
             final ReconnectNodeRemover<K, V> nodeRemover) {
         super(firstLeafPath, lastLeafPath, dataSource);
         this.nodeRemover = nodeRemover;
+        this.throughputMeter = null;
+    }
+
+    /**
+     * Create a new {@link ReconnectHashListener}.
+     *
+     * @param firstLeafPath
+     * 		The first leaf path. Must be a valid path.
+     * @param lastLeafPath
+     * 		The last leaf path. Must be a valid path.
+     * @param dataSource
+     * 		The data source. Cannot be null.
+     * @param flushBatchSize
+     * 		The minimum number of leaves to flush to the data source at once
+     * @param statistics
+     * 		The statistics to report reconnect throughput to. Cannot be null.
+     */
+    public ReconnectHashListener(
+            final long firstLeafPath,
+            final long lastLeafPath,
+            final VirtualDataSource<K, V> dataSource,
+            final ReconnectNodeRemover<K, V> nodeRemover,
+            final int flushBatchSize,
+            final VirtualMapStatistics statistics) {
+        super(firstLeafPath, lastLeafPath, dataSource, flushBatchSize);
+        this.nodeRemover = nodeRemover;
+        this.throughputMeter = new ReconnectThroughputMeter(statistics::setReconnectLearnerLeavesPerSec);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onLeafHashed(final VirtualLeafRecord<K, V> leaf) {
+        super.onLeafHashed(leaf);
+        if (throughputMeter != null) {
+            throughputMeter.count(1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onHashingCompleted() {
+        super.onHashingCompleted();
+        if (throughputMeter != null) {
+            throughputMeter.complete();
+        }
     }
 
     /**
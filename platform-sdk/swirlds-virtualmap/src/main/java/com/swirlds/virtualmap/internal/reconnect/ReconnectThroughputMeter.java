@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.reconnect;
+
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * Measures reconnect throughput, in leaves per second, and reports it to a metric. The throughput is
+ * the total number of leaves processed since the first leaf divided by the elapsed time. The metric is
+ * updated at most once a second, and when reconnect is complete.
+ * <p>
+ * This class is not thread safe, it's expected to be used by a single thread.
+ */
+final class ReconnectThroughputMeter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final LongConsumer metric;
+
+    private long startNanos = -1;
+
+    private long lastUpdateNanos;
+
+    private long leaves;
+
+    /**
+     * Create a new throughput meter.
+     *
+     * @param metric
+     * 		the metric to report throughput to, in leaves per second. Cannot be null
+     */
+    ReconnectThroughputMeter(final LongConsumer metric) {
+        this.metric = Objects.requireNonNull(metric);
+    }
+
+    /**
+     * Counts processed leaves.
+     *
+     * @param count
+     * 		the number of leaves processed
+     */
+    void count(final long count) {
+        final long now = System.nanoTime();
+        if (startNanos < 0) {
+            startNanos = now;
+            lastUpdateNanos = now;
+        }
+        leaves += count;
+        if (now - lastUpdateNanos >= NANOS_PER_SECOND) {
+            update(now);
+        }
+    }
+
+    /**
+     * Reports the final throughput, if any leaves were processed.
+     */
+    void complete() {
+        if (startNanos >= 0) {
+            update(System.nanoTime());
+        }
+    }
+
+    private void update(final long now) {
+        lastUpdateNanos = now;
+        final long elapsed = now - startNanos;
+        if (elapsed > 0) {
+            metric.accept((long) ((double) leaves * NANOS_PER_SECOND / elapsed));
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.reconnect;
+
+import static com.swirlds.logging.legacy.LogMarker.RECONNECT;
+import static com.swirlds.virtualmap.internal.Path.ROOT_PATH;
+import static com.swirlds.virtualmap.internal.Path.getLeftChildPath;
+import static com.swirlds.virtualmap.internal.Path.getRightChildPath;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.threading.framework.config.ThreadConfiguration;
+import com.swirlds.common.threading.manager.ThreadManager;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import com.swirlds.virtualmap.internal.ConcurrentNodeStatusTracker;
+import com.swirlds.virtualmap.internal.RecordAccessor;
+import com.swirlds.virtualmap.internal.VirtualStateAccessor;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads the data for reconnect lessons ahead of time on the teacher side. A lesson for an internal node
+ * contains hashes of its children, a lesson for a leaf contains the leaf record.
+ * <p>
+ * The teacher sends lessons in breadth-first order, which is the order of node paths. A background thread
+ * reads lesson data for consecutive path ranges, using batched reads from the {@link RecordAccessor}, and
+ * puts them to a bounded queue of ready batches. Nodes that the learner has already confirmed to have,
+ * and hence will never need lessons with data, are skipped. The teacher takes batches from the queue as
+ * it progresses through paths. If the teacher asks for a node that hasn't been read ahead, for example,
+ * because the learner confirmed the node after the batch was read, {@code null} is returned, and the
+ * teacher falls back to reading the node directly.
+ * <p>
+ * Lesson data may only be requested by a single thread, in ascending path order.
+ *
+ * @param <K>
+ * 		The key
+ * @param <V>
+ * 		The value
+ */
+final class VirtualTeacherPrefetcher<K extends VirtualKey, V extends VirtualValue> {
+
+    private static final Logger logger = LogManager.getLogger(VirtualTeacherPrefetcher.class);
+
+    /**
+     * How long to wait for the next batch, or for space in the queue, before checking if the prefetcher
+     * is still running, ms.
+     */
+    private static final long POLL_INTERVAL_MS = 100;
+
+    /**
+     * Lesson data for a range of paths.
+     */
+    private static final class Batch<K extends VirtualKey, V extends VirtualValue> {
+        private final long firstPath;
+        private final long lastPath;
+        // Two child hashes for every internal node in the batch, null if not read
+        private final Hash[] childHashes;
+        // Leaf records for every leaf in the batch, null if not read
+        private final VirtualLeafRecord<K, V>[] leaves;
+
+        @SuppressWarnings("unchecked")
+        Batch(final long firstPath, final long lastPath) {
+            this.firstPath = firstPath;
+            this.lastPath = lastPath;
+            final int size = Math.toIntExact(lastPath - firstPath + 1);
+            this.childHashes = new Hash[size * 2];
+            this.leaves = new VirtualLeafRecord[size];
+        }
+    }
+
+    private final RecordAccessor<K, V> records;
+
+    private final VirtualStateAccessor state;
+
+    private final ConcurrentNodeStatusTracker nodeStatusTracker;
+
+    private final int batchSize;
+
+    /**
+     * Batches that are read and ready to be sent, in path order.
+     */
+    private final BlockingQueue<Batch<K, V>> readyBatches;
+
+    private final Thread thread;
+
+    /**
+     * Set when the prefetcher thread is finished, either because all paths are read, or because it
+     * failed or was closed.
+     */
+    private volatile boolean done = false;
+
+    /**
+     * The batch the teacher is currently sending. Only accessed by the teacher sending thread.
+     */
+    private Batch<K, V> current;
+
+    /**
+     * Create a new prefetcher. The prefetcher thread is not started until {@link #start()} is called.
+     *
+     * @param threadManager
+     * 		responsible for creating and managing threads
+     * @param records
+     * 		the records to read lesson data from
+     * @param state
+     * 		the state of the virtual tree that is being synchronized
+     * @param nodeStatusTracker
+     * 		tracks nodes the learner has confirmed to have
+     * @param batchSize
+     * 		the number of paths to read in a single batch
+     * @param queueSize
+     * 		the maximum number of batches to read ahead
+     */
+    VirtualTeacherPrefetcher(
+            final ThreadManager threadManager,
+            final RecordAccessor<K, V> records,
+            final VirtualStateAccessor state,
+            final ConcurrentNodeStatusTracker nodeStatusTracker,
+            final int batchSize,
+            final int queueSize) {
+        this.records = records;
+        this.state = state;
+        this.nodeStatusTracker = nodeStatusTracker;
+        this.batchSize = batchSize;
+        this.readyBatches = new ArrayBlockingQueue<>(queueSize);
+        this.thread = new ThreadConfiguration(threadManager)
+                .setComponent("virtualmap")
+                .setThreadName("teacher-prefetcher")
+                .setRunnable(this::run)
+                .build();
+    }
+
+    /**
+     * Starts reading lesson data in the background.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops reading lesson data and waits for the prefetcher thread to finish. After this method
+     * is called, all lesson data requests return {@code null}.
+     *
+     * @throws InterruptedException
+     * 		if interrupted while waiting for the prefetcher thread
+     */
+    void close() throws InterruptedException {
+        // The thread isn't interrupted, as interrupts close file channels the data source may be reading from
+        done = true;
+        if (thread.isAlive()) {
+            thread.join();
+        }
+        readyBatches.clear();
+    }
+
+    /**
+     * Gets a prefetched hash of a child of the given internal node.
+     *
+     * @param parent
+     * 		the internal node path
+     * @param childIndex
+     * 		the child index, 0 for the left child, 1 for the right child
+     * @return the child hash, or {@code null} if it wasn't read ahead
+     */
+    Hash getChildHash(final long parent, final int childIndex) {
+        final Batch<K, V> batch = batchFor(parent);
+        return (batch == null) ? null : batch.childHashes[(int) (parent - batch.firstPath) * 2 + childIndex];
+    }
+
+    /**
+     * Gets a prefetched leaf record.
+     *
+     * @param path
+     * 		the leaf path
+     * @return the leaf record, or {@code null} if it wasn't read ahead
+     */
+    VirtualLeafRecord<K, V> getLeaf(final long path) {
+        final Batch<K, V> batch = batchFor(path);
+        return (batch == null) ? null : batch.leaves[(int) (path - batch.firstPath)];
+    }
+
+    /**
+     * Finds the batch that contains the given path. Batches before the path are dropped, as paths
+     * are requested in ascending order.
+     */
+    private Batch<K, V> batchFor(final long path) {
+        try {
+            while ((current == null) || (current.lastPath < path)) {
+                final Batch<K, V> next = readyBatches.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    current = next;
+                } else if (done && readyBatches.isEmpty()) {
+                    return null;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return (current.firstPath <= path) ? current : null;
+    }
+
+    private void run() {
+        final long firstLeafPath = state.getFirstLeafPath();
+        final long lastLeafPath = state.getLastLeafPath();
+        final long[] hashPaths = new long[batchSize * 2];
+        final int[] hashIndices = new int[batchSize * 2];
+        final long[] leafPaths = new long[batchSize];
+        try {
+            for (long firstPath = ROOT_PATH; !done && (firstPath <= lastLeafPath); firstPath += batchSize) {
+                final long lastPath = Math.min(firstPath + batchSize - 1, lastLeafPath);
+                final Batch<K, V> batch = new Batch<>(firstPath, lastPath);
+                int hashCount = 0;
+                int leafCount = 0;
+                for (long path = firstPath; path <= lastPath; path++) {
+                    if (nodeStatusTracker.getStatus(path) == ConcurrentNodeStatusTracker.Status.KNOWN) {
+                        continue;
+                    }
+                    final int index = (int) (path - firstPath);
+                    if (path < firstLeafPath) {
+                        final long left = getLeftChildPath(path);
+                        final long right = getRightChildPath(path);
+                        hashIndices[hashCount] = index * 2;
+                        hashPaths[hashCount++] = left;
+                        if (right <= lastLeafPath) {
+                            hashIndices[hashCount] = index * 2 + 1;
+                            hashPaths[hashCount++] = right;
+                        }
+                    } else {
+                        leafPaths[leafCount++] = path;
+                    }
+                }
+                if (hashCount > 0) {
+                    final List<Hash> hashes = records.findHashes(Arrays.copyOf(hashPaths, hashCount));
+                    for (int i = 0; i < hashCount; i++) {
+                        batch.childHashes[hashIndices[i]] = hashes.get(i);
+                    }
+                }
+                if (leafCount > 0) {
+                    final List<VirtualLeafRecord<K, V>> leaves =
+                            records.findLeafRecords(Arrays.copyOf(leafPaths, leafCount));
+                    for (int i = 0; i < leafCount; i++) {
+                        batch.leaves[(int) (leafPaths[i] - firstPath)] = leaves.get(i);
+                    }
+                }
+                // Wait for the teacher to catch up, unless closed
+                boolean queued = false;
+                while (!done && !queued) {
+                    queued = readyBatches.offer(batch, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final RuntimeException e) {
+            // The teacher falls back to direct reads, reconnect can proceed
+            logger.warn(RECONNECT.getMarker(), "Failed to read ahead reconnect lessons", e);
+        } finally {
+            done = true;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import static com.swirlds.virtualmap.internal.Path.ROOT_PATH;
 import static com.swirlds.virtualmap.internal.Path.getLeftChildPath;
 import static com.swirlds.virtualmap.internal.Path.getRightChildPath;
 
+import com.swirlds.common.config.singleton.ConfigurationHolder;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.io.streams.SerializableDataOutputStream;
 import com.swirlds.common.merkle.synchronization.utility.MerkleSynchronizationException;
@@ -30,10 +31,12 @@ import com.swirlds.common.threading.framework.config.ThreadConfiguration;
 import com.swirlds.common.threading.manager.ThreadManager;
 import com.swirlds.virtualmap.VirtualKey;
 import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.config.VirtualMapConfig;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.internal.ConcurrentNodeStatusTracker;
 import com.swirlds.virtualmap.internal.RecordAccessor;
 import com.swirlds.virtualmap.internal.VirtualStateAccessor;
+import com.swirlds.virtualmap.internal.merkle.VirtualMapStatistics;
 import com.swirlds.virtualmap.internal.merkle.VirtualRootNode;
 import com.swirlds.virtualmap.internal.pipeline.VirtualPipeline;
 import java.io.IOException;
@@ -54,6 +57,8 @@ public final class VirtualTeacherTreeView<K extends VirtualKey, V extends Virtua
 
     private static final Logger logger = LogManager.getLogger(VirtualTeacherTreeView.class);
 
+    private static final VirtualMapConfig config = ConfigurationHolder.getConfigData(VirtualMapConfig.class);
+
     /**
      * A queue of the nodes (by path) that we are about to handle. Note that ConcurrentBitSetQueue
      * cleans up after itself in "chunks", such that we don't end up consuming a ton of memory.
@@ -80,6 +85,16 @@ public final class VirtualTeacherTreeView<K extends VirtualKey, V extends Virtua
      */
     private final CountDownLatch ready = new CountDownLatch(1);
 
+    /**
+     * Reads lesson data ahead of time. Null, if read-ahead is disabled, or the tree is empty.
+     */
+    private VirtualTeacherPrefetcher<K, V> prefetcher;
+
+    /**
+     * Measures the number of leaves sent to the learner per second.
+     */
+    private final ReconnectThroughputMeter throughputMeter;
+
     /**
      * Create a new {@link VirtualTeacherTreeView}.
      *
@@ -91,19 +106,33 @@ public final class VirtualTeacherTreeView<K extends VirtualKey, V extends Virtua
      * 		The state of the virtual tree that we are synchronizing.
      * @param pipeline
      * 		The pipeline managing the virtual map.
+     * @param statistics
+     * 		The statistics of the virtual map, to report reconnect throughput.
      */
     public VirtualTeacherTreeView(
             final ThreadManager threadManager,
             final VirtualRootNode<K, V> root,
             final VirtualStateAccessor state,
-            final VirtualPipeline pipeline) {
+            final VirtualPipeline pipeline,
+            final VirtualMapStatistics statistics) {
 
         // There is no distinction between originalState and reconnectState in this implementation
         super(root, state, state);
+        throughputMeter = new ReconnectThroughputMeter(statistics::setReconnectTeacherLeavesPerSec);
 
         new ThreadConfiguration(threadManager)
                 .setRunnable(() -> {
                     records = pipeline.detachCopy(root);
+                    if (config.reconnectPrefetchBatchSize() > 0 && state.getLastLeafPath() != INVALID_PATH) {
+                        prefetcher = new VirtualTeacherPrefetcher<>(
+                                threadManager,
+                                records,
+                                state,
+                                nodeStatusTracker,
+                                config.reconnectPrefetchBatchSize(),
+                                config.reconnectPrefetchQueueSize());
+                        prefetcher.start();
+                    }
                     ready.countDown();
                 })
                 .setComponent("virtualmap")
@@ -204,9 +233,13 @@ public final class VirtualTeacherTreeView<K extends VirtualKey, V extends Virtua
     @Override
     public void serializeLeaf(final SerializableDataOutputStream out, final Long leaf) throws IOException {
         checkValidLeaf(leaf, reconnectState);
-        final VirtualLeafRecord<K, V> leafRecord = records.findLeafRecord(leaf, false);
+        VirtualLeafRecord<K, V> leafRecord = (prefetcher != null) ? prefetcher.getLeaf(leaf) : null;
+        if (leafRecord == null) {
+            leafRecord = records.findLeafRecord(leaf, false);
+        }
         assert leafRecord != null : "Unexpected null leaf record at path=" + leaf;
         out.writeSerializable(leafRecord, false);
+        throughputMeter.count(1);
     }
 
     /**
@@ -249,9 +282,7 @@ public final class VirtualTeacherTreeView<K extends VirtualKey, V extends Virtua
         // Class version is written for the first entry only
         out.writeInt(Hash.CLASS_VERSION);
         // Write hash in SelfSerializable format
-        if (!records.findAndWriteHash(leftPath, out)) {
-            throw new MerkleSynchronizationException("Null hash for path = " + leftPath);
-        }
+        writeChildHash(parent, 0, leftPath, out);
 
         if (size == 2) {
             final long rightPath = getRightChildPath(parent);
@@ -259,9 +290,18 @@ public final class VirtualTeacherTreeView<K extends VirtualKey, V extends Virtua
             out.writeBoolean(false);
             // Class version is not written
             // Write hash in SelfSerializable format
-            if (!records.findAndWriteHash(rightPath, out)) {
-                throw new MerkleSynchronizationException("Null hash for path = " + rightPath);
-            }
+            writeChildHash(parent, 1, rightPath, out);
+        }
+    }
+
+    private void writeChildHash(
+            final long parent, final int childIndex, final long path, final SerializableDataOutputStream out)
+            throws IOException {
+        final Hash hash = (prefetcher != null) ? prefetcher.getChildHash(parent, childIndex) : null;
+        if (hash != null) {
+            hash.serialize(out);
+        } else if (!records.findAndWriteHash(path, out)) {
+            throw new MerkleSynchronizationException("Null hash for path = " + path);
         }
     }
 
@@ -280,6 +320,10 @@ public final class VirtualTeacherTreeView<K extends VirtualKey, V extends Virtua
     public void close() {
         try {
             waitUntilReady();
+            throughputMeter.complete();
+            if (prefetcher != null) {
+                prefetcher.close();
+            }
             records.getDataSource().close();
         } catch (final IOException e) {
             logger.error(RECONNECT.getMarker(), "interrupted while attempting to close data source");
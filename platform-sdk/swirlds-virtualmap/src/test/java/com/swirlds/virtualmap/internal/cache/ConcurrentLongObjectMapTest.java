@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Tags;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLongObjectMapTest {
+
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("VirtualNodeCache")})
+    @DisplayName("The segment count must be a positive power of two")
+    void invalidSegmentCountThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongObjectMap<String>(0), "Expected IAE");
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongObjectMap<String>(-4), "Expected IAE");
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongObjectMap<String>(12), "Expected IAE");
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("VirtualNodeCache")})
+    @DisplayName("Null values are not supported")
+    void nullValueThrows() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(1, null), "Expected NPE");
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("VirtualNodeCache")})
+    @DisplayName("Put, get, and remove")
+    void putGetRemove() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        assertNull(map.get(5), "Empty map must not contain anything");
+        assertNull(map.put(5, "five"), "There was no value before");
+        assertEquals("five", map.put(5, "FIVE"), "The old value must be returned");
+        assertEquals("FIVE", map.get(5), "Wrong value");
+        assertEquals(1, map.size(), "Wrong size");
+        assertNull(map.put(-5, "minus five"), "There was no value before");
+        assertEquals(2, map.size(), "Wrong size");
+        assertEquals("FIVE", map.remove(5), "The removed value must be returned");
+        assertNull(map.remove(5), "The key is already removed");
+        assertNull(map.get(5), "The key is removed");
+        assertEquals("minus five", map.get(-5), "Wrong value");
+        assertEquals(1, map.size(), "Wrong size");
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("VirtualNodeCache")})
+    @DisplayName("Compute adds, updates, and removes entries")
+    void compute() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        assertEquals("a", map.compute(7, (k, v) -> v == null ? "a" : v + "b"), "Wrong computed value");
+        assertEquals("ab", map.compute(7, (k, v) -> v == null ? "a" : v + "b"), "Wrong computed value");
+        assertEquals("ab", map.get(7), "Wrong value");
+        assertNull(map.compute(7, (k, v) -> null), "Null must remove the entry");
+        assertNull(map.get(7), "The key is removed");
+        assertEquals(0, map.size(), "Wrong size");
+        assertNull(map.compute(8, (k, v) -> null), "Nothing must be added");
+        assertEquals(0, map.size(), "Wrong size");
+    }
+
+    /**
+     * Uses a single segment and sequential keys, like paths in the node cache, so the table is resized
+     * multiple times and removals have to shift long probe sequences back.
+     */
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("VirtualNodeCache")})
+    @DisplayName("Random operations match a HashMap")
+    void randomOperationsMatchHashMap() {
+        final ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>(1);
+        final Map<Long, Long> expected = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            final long key = random.nextInt(5_000);
+            final long value = random.nextLong();
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.put(key, value), map.put(key, value), "Wrong old value");
+                case 1 -> assertEquals(expected.remove(key), map.remove(key), "Wrong removed value");
+                default -> assertEquals(expected.get(key), map.get(key), "Wrong value");
+            }
+        }
+        assertEquals(expected.size(), map.size(), "Wrong size");
+        final Map<Long, Long> actual = new HashMap<>();
+        map.forEach((key, value) -> assertNull(actual.put(key, value), "Each key must be visited once"));
+        assertEquals(expected, actual, "Wrong entries");
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("VirtualNodeCache")})
+    @DisplayName("Concurrent updates of the same keys are atomic")
+    void concurrentCompute() throws Exception {
+        final ConcurrentLongObjectMap<AtomicInteger> map = new ConcurrentLongObjectMap<>(4);
+        final int threads = 8;
+        final int keys = 10_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final Future<?>[] futures = IntStream.range(0, threads)
+                    .mapToObj(t -> executor.submit(() -> {
+                        for (int i = 0; i < keys; i++) {
+                            // Each thread increments a counter per key, replacing the counter object
+                            map.compute(i, (k, v) -> new AtomicInteger(v == null ? 1 : v.get() + 1));
+                            // Concurrent reads must always see either no value or a complete value
+                            final AtomicInteger counter = map.get(i);
+                            assertTrue(counter != null && counter.get() > 0, "Unexpected value");
+                        }
+                    }))
+                    .toArray(Future[]::new);
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(keys, map.size(), "Wrong size");
+        for (int i = 0; i < keys; i++) {
+            assertEquals(threads, map.get(i).get(), "Lost update for key " + i);
+        }
+    }
+}
@@ -2956,6 +2956,41 @@ class VirtualNodeCacheTest extends VirtualTestBase {
         }
     }
 
+    @Test
+    @Tags({@Tag("VirtualMerkle"), @Tag("VirtualNodeCache")})
+    @DisplayName("Leaves moved off-heap can be queried, modified, merged, and flushed")
+    void offHeapLeaves() {
+        final VirtualNodeCache<TestKey, TestValue> cache0 = new VirtualNodeCache<>(true);
+        final VirtualLeafRecord<TestKey, TestValue> apple = new VirtualLeafRecord<>(1, A_KEY, APPLE);
+        final VirtualLeafRecord<TestKey, TestValue> banana = new VirtualLeafRecord<>(2, B_KEY, BANANA);
+        cache0.putLeaf(apple);
+        cache0.putLeaf(banana);
+        final VirtualNodeCache<TestKey, TestValue> cache1 = cache0.copy();
+        cache0.seal();
+
+        assertEquals(apple, cache0.lookupLeafByKey(A_KEY, false), "Off-heap leaf should equal the original");
+        assertEquals(banana, cache0.lookupLeafByPath(2, false), "Off-heap leaf should equal the original");
+        assertEquals(apple, cache1.lookupLeafByKey(A_KEY, false), "Newer copies should see off-heap leaves");
+
+        final VirtualLeafRecord<TestKey, TestValue> cherry = new VirtualLeafRecord<>(2, B_KEY, CHERRY);
+        final VirtualLeafRecord<TestKey, TestValue> bananaForModify = cache1.lookupLeafByKey(B_KEY, true);
+        assertEquals(banana, bananaForModify, "Leaf for modify should equal the off-heap leaf");
+        bananaForModify.setValue(CHERRY);
+        assertEquals(cherry, cache1.lookupLeafByKey(B_KEY, false), "The modified leaf should be found");
+        assertEquals(banana, cache0.lookupLeafByKey(B_KEY, false), "Older copy should not be modified");
+
+        final VirtualNodeCache<TestKey, TestValue> cache2 = cache1.copy();
+        cache1.seal();
+        assertEquals(cherry, cache1.lookupLeafByKey(B_KEY, false), "Modified leaf should be moved off-heap");
+        cache0.merge();
+        final Set<VirtualLeafRecord<TestKey, TestValue>> flushed =
+                cache1.dirtyLeavesForFlush(1, 2).collect(Collectors.toSet());
+        assertEquals(Set.of(apple, cherry), flushed, "Off-heap leaves should be flushed with their values");
+
+        cache1.release();
+        cache2.release();
+    }
+
     private Hash digest(VirtualHashRecord left, VirtualHashRecord right) {
         final HashBuilder builder = new HashBuilder(Cryptography.DEFAULT_DIGEST_TYPE);
         builder.update(left.hash());
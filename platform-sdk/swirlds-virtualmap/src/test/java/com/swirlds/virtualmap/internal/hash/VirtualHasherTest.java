@@ -38,6 +38,7 @@ import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.function.LongFunction;
 import java.util.stream.Collectors;
@@ -49,6 +50,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /**
  * Tests for the {@link VirtualHasher}.
@@ -358,6 +360,49 @@ class VirtualHasherTest extends VirtualHasherTestBase {
                 "Hashing should not throw an exception");
     }
 
+    /**
+     * The hasher splits large sub-trees into multiple fork-join tasks. This test uses trees large enough
+     * for that, with different numbers of dirty leaves, and checks that both the root hash and the hashes
+     * of all dirty nodes match the hashes of a fully hashed reference tree.
+     */
+    @ParameterizedTest
+    @ValueSource(doubles = {0.001, 0.01, 0.1, 0.5, 1.0})
+    @Tag(TestTypeTags.FUNCTIONAL)
+    @Tag(TestComponentTags.VMAP)
+    @DisplayName("Verify the hasher produces the same hashes as the reference tree")
+    void hashesMatchReferenceTree(final double dirtyFraction) {
+        final long firstLeafPath = 2999L;
+        final long lastLeafPath = 5998L;
+        final Random random = new Random(42);
+        final List<Long> dirtyLeafPaths = LongStream.rangeClosed(firstLeafPath, lastLeafPath)
+                .filter(path -> path == lastLeafPath || random.nextDouble() < dirtyFraction)
+                .boxed()
+                .toList();
+
+        final TestDataSource ds = new TestDataSource(firstLeafPath, lastLeafPath);
+        final Hash expected = hashTree(ds);
+        // Every node from a dirty leaf up to the root must be rehashed, with the reference hash
+        final Set<VirtualHashRecord> expectedRecords = new HashSet<>();
+        for (final long dirtyLeafPath : dirtyLeafPaths) {
+            for (long path = dirtyLeafPath; path >= 0; path = Path.getParentPath(path)) {
+                expectedRecords.add(ds.getInternal(path));
+            }
+        }
+        final List<VirtualLeafRecord<TestKey, TestValue>> leaves = invalidateNodes(ds, dirtyLeafPaths.stream());
+
+        final HashingListener listener = new HashingListener();
+        final Hash rootHash = new VirtualHasher<TestKey, TestValue>()
+                .hash(ds::loadHash, leaves.iterator(), firstLeafPath, lastLeafPath, listener);
+
+        assertEquals(expected, rootHash, "Hash value does not match expected");
+        assertEquals(
+                expectedRecords,
+                new HashSet<>(listener.unsortedInternals()),
+                "Hashed nodes do not match the reference tree");
+        assertCallsAreBalanced(listener);
+        assertRecordsInRankAreAscendingPathOrder(listener);
+    }
+
     @SuppressWarnings("SpellCheckingInspection")
     private static void assertCallsAreBalanced(final HashingListener listener) {
         // Check the call order was correct. Something like:
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2023 Hedera Hashgraph, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.swirlds.virtualmap.internal.merkle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Tags;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveFlushPolicyTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private static final long SECOND_NANOS = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Negative memory budget is rejected")
+    void negativeBudgetThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveFlushPolicy(-1, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Static threshold is used when no memory budget is set")
+    void disabledPolicyUsesStaticThreshold() {
+        final AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(0, Duration.ofSeconds(1));
+        assertFalse(policy.isEnabled());
+        policy.recordFlush(100 * MB, SECOND_NANOS);
+        assertEquals(200 * MB, policy.getFlushThreshold(200 * MB));
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Static threshold is capped by half the memory budget before the first flush")
+    void thresholdBeforeFirstFlush() {
+        final AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(1000 * MB, Duration.ofSeconds(1));
+        assertTrue(policy.isEnabled());
+        assertEquals(200 * MB, policy.getFlushThreshold(200 * MB));
+        assertEquals(500 * MB, policy.getFlushThreshold(800 * MB));
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Threshold follows flush throughput and target latency")
+    void thresholdFollowsThroughput() {
+        final AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(1000 * MB, Duration.ofSeconds(2));
+        // 100 Mb in 1 second, 2 seconds target latency
+        policy.recordFlush(100 * MB, SECOND_NANOS);
+        assertEquals(100.0 * MB, policy.getFlushThroughput(), 1.0);
+        assertEquals(200 * MB, policy.getFlushThreshold(50 * MB));
+
+        // Slower flushes lower the threshold gradually
+        policy.recordFlush(20 * MB, SECOND_NANOS);
+        assertEquals(80.0 * MB, policy.getFlushThroughput(), 1.0);
+        assertEquals(160 * MB, policy.getFlushThreshold(50 * MB), 1.0);
+
+        // Very fast flushes are limited by the memory budget
+        for (int i = 0; i < 100; i++) {
+            policy.recordFlush(1000 * MB, SECOND_NANOS);
+        }
+        assertEquals(500 * MB, policy.getFlushThreshold(50 * MB));
+    }
+
+    @Test
+    @Tags({@Tag("VirtualMerkle")})
+    @DisplayName("Empty and very short flushes are ignored")
+    void emptyFlushesIgnored() {
+        final AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(1000 * MB, Duration.ofSeconds(1));
+        policy.recordFlush(0, SECOND_NANOS);
+        policy.recordFlush(MB, 1000);
+        assertEquals(0.0, policy.getFlushThroughput());
+        assertEquals(200 * MB, policy.getFlushThreshold(200 * MB));
+    }
+}
@@ -42,6 +42,7 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -163,6 +164,34 @@ public class RecordAccessorImplTest {
         assertNull(records.findHash(OLD_DELETED_INTERNAL_PATH), "Deleted records should be null");
     }
 
+    @Test
+    @DisplayName("findHashes returns hashes from cache and from disk")
+    void findHashes() {
+        final long[] paths = {CHANGED_INTERNAL_PATH, UNCHANGED_INTERNAL_PATH, DELETED_INTERNAL_PATH, MAX_PATH + 1};
+        final List<Hash> hashes = records.findHashes(paths);
+        assertEquals(paths.length, hashes.size(), "Wrong number of hashes");
+        assertSame(records.findHash(CHANGED_INTERNAL_PATH), hashes.get(0), "Did not find the same in memory instance!");
+        assertEquals(records.findHash(UNCHANGED_INTERNAL_PATH), hashes.get(1), "Wrong hash loaded from disk");
+        assertNull(hashes.get(2), "Deleted hashes should be null");
+        assertNull(hashes.get(3), "Should be null");
+    }
+
+    @Test
+    @DisplayName("findLeafRecords by paths returns records from cache and from disk")
+    void findLeafRecordsByPaths() {
+        final long[] paths = {CHANGED_LEAF_PATH, UNCHANGED_LEAF_PATH, BOGUS_LEAF_PATH, 8};
+        final List<VirtualLeafRecord<TestKey, TestValue>> leaves = records.findLeafRecords(paths);
+        assertEquals(paths.length, leaves.size(), "Wrong number of records");
+        assertSame(
+                records.findLeafRecord(CHANGED_LEAF_PATH, false),
+                leaves.get(0),
+                "Did not find the same in memory instance!");
+        assertEquals(records.findLeafRecord(UNCHANGED_LEAF_PATH, false), leaves.get(1));
+        assertNull(leaves.get(2), "Should be null");
+        assertNotNull(leaves.get(3), "Did not find record");
+        assertEquals(8, leaves.get(3).getPath(), "Unexpected path in record");
+    }
+
     @Test
     @DisplayName("findLeafRecord of invalid path throws")
     void findLeafRecordInvalidPathThrows() {
@@ -233,6 +262,39 @@ public class RecordAccessorImplTest {
         assertNull(records.findLeafRecord(new TestKey(DELETED_LEAF_PATH), false), "Deleted records should be null");
     }
 
+    @Test
+    @DisplayName("findLeafRecords by keys returns records from cache and from disk")
+    void findLeafRecordsByKeys() {
+        final List<TestKey> keys = List.of(
+                new TestKey(CHANGED_LEAF_KEY),
+                new TestKey(UNCHANGED_LEAF_PATH),
+                new TestKey(DELETED_LEAF_PATH),
+                new TestKey(BOGUS_LEAF_PATH),
+                new TestKey(8));
+        final List<VirtualLeafRecord<TestKey, TestValue>> leaves = records.findLeafRecords(keys);
+        assertEquals(keys.size(), leaves.size(), "Wrong number of records");
+        assertSame(
+                records.findLeafRecord(new TestKey(CHANGED_LEAF_KEY), false),
+                leaves.get(0),
+                "Did not find the same in memory instance!");
+        assertEquals(records.findLeafRecord(new TestKey(UNCHANGED_LEAF_PATH), false), leaves.get(1));
+        assertNull(leaves.get(2), "Deleted records should be null");
+        assertNull(leaves.get(3), "Should be null");
+        assertNotNull(leaves.get(4), "Did not find record");
+        assertEquals(8, leaves.get(4).getPath(), "Unexpected path in record");
+    }
+
+    @Test
+    @DisplayName("findLeafRecords by keys with broken data source throws")
+    void findLeafRecordsByKeysOnDiskWhenBrokenThrows() {
+        dataSource.throwExceptionOnLoadLeafRecordByKey = true;
+        final List<TestKey> keys = List.of(new TestKey(UNCHANGED_LEAF_PATH), new TestKey(8));
+        assertThrows(
+                UncheckedIOException.class,
+                () -> records.findLeafRecords(keys),
+                "Should have thrown UncheckedIOException");
+    }
+
     @Test
     @DisplayName("findLeafRecord of bad path returns null")
     void findLeafRecordBadPath() {
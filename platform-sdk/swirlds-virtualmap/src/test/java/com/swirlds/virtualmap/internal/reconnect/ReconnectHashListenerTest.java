@@ -18,6 +18,7 @@ package com.swirlds.virtualmap.internal.reconnect;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 
@@ -35,6 +36,7 @@ import com.swirlds.virtualmap.datasource.VirtualHashRecord;
 import com.swirlds.virtualmap.datasource.VirtualKeySet;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.internal.hash.VirtualHasher;
+import com.swirlds.virtualmap.internal.merkle.VirtualMapStatistics;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
@@ -143,6 +145,43 @@ class ReconnectHashListenerTest {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @ParameterizedTest
+    @CsvSource({"1000, 100", "100000, 10000", "100000, 1000000"})
+    @DisplayName("Batches are accumulated and flushed in path order")
+    void accumulatedFlushOrder(int size, int flushBatchSize) {
+        final VirtualDataSourceSpy ds =
+                new VirtualDataSourceSpy(new InMemoryBuilder().build("accumulatedFlushOrder", true));
+        final ReconnectNodeRemover<TestKey, TestValue> remover = mock(ReconnectNodeRemover.class);
+
+        final long last = size + size;
+        final ReconnectHashListener<TestKey, TestValue> listener = new ReconnectHashListener<>(
+                size, last, ds, remover, flushBatchSize, new VirtualMapStatistics("accumulatedFlushOrder"));
+        final VirtualHasher<TestKey, TestValue> hasher = new VirtualHasher<>();
+        hasher.hash(
+                this::hash, LongStream.range(size, last).mapToObj(this::leaf).iterator(), size, last, listener);
+
+        long totalHashes = 0;
+        long totalLeaves = 0;
+        for (int i = 0; i < ds.leafRecords.size(); i++) {
+            final List<VirtualHashRecord> hashes = ds.internalRecords.get(i);
+            for (int j = 1; j < hashes.size(); j++) {
+                assertTrue(hashes.get(j - 1).path() < hashes.get(j).path(), "Hashes must be sorted by path");
+            }
+            final List<VirtualLeafRecord<TestKey, TestValue>> leaves = ds.leafRecords.get(i);
+            for (int j = 1; j < leaves.size(); j++) {
+                assertTrue(leaves.get(j - 1).getPath() < leaves.get(j).getPath(), "Leaves must be sorted by path");
+            }
+            if (i < ds.leafRecords.size() - 1) {
+                assertTrue(leaves.size() >= flushBatchSize, "Only the last flush may have fewer leaves");
+            }
+            totalHashes += hashes.size();
+            totalLeaves += leaves.size();
+        }
+        assertEquals(size + size, totalHashes, "Some internal records were not written!");
+        assertEquals(size, totalLeaves, "Some leaf records were not written!");
+    }
+
     private VirtualLeafRecord<TestKey, TestValue> leaf(long path) {
         return new VirtualLeafRecord<>(path, new TestKey(path), new TestValue(path));
     }